@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.annotation.behavior;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Annotation a Processor implementation can use to indicate that the Framework
+ * should batch the {@link org.apache.nifi.processor.ProcessSession ProcessSession}s'
+ * commits of many invocations of the Processor, without requiring the user to
+ * configure a Run Duration. While the Processor has work to do, the Framework
+ * triggers it repeatedly with the same ProcessSession, for up to the given
+ * {@link #duration()} or until the given {@link #maxFlowFiles()} have been
+ * processed, and then commits the ProcessSession once. This means one update
+ * of the FlowFile Repository, one update of the Provenance Repository and one
+ * transfer to each destination queue for the entire batch, which for Processors
+ * that handle many small FlowFiles is often the larger part of their cost.
+ * </p>
+ *
+ * <p>
+ * As with {@link SupportsBatching}, calls to
+ * {@link org.apache.nifi.processor.ProcessSession#commit() ProcessSession.commit()}
+ * then do not guarantee that the data has been safely stored in NiFi's Content
+ * Repository or FlowFile Repository, so this annotation is not appropriate for a
+ * Processor that relies on ProcessSession.commit() to ensure that data is persisted
+ * before, for instance, deleting the data from a remote source.
+ * </p>
+ *
+ * <p>
+ * The annotation only takes effect for a Processor that is also annotated with
+ * {@link SupportsBatching}, and only if the administrator has enabled commit
+ * batching through the <code>nifi.processor.commit.batching.enabled</code>
+ * property, which is disabled by default.
+ * </p>
+ */
+@Documented
+@Target({ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface BatchCommits {
+
+    /**
+     * The maximum amount of time for which the commits of the Processor may be batched,
+     * such as "25 millis". If the user configures a longer Run Duration for a Processor
+     * that also supports batching, the Run Duration is used instead.
+     */
+    String duration() default "25 millis";
+
+    /**
+     * The maximum number of FlowFiles that may be part of a batch before it is committed.
+     */
+    int maxFlowFiles() default 10000;
+}
@@ -20,7 +20,10 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.nifi.attribute.expression.language.antlr.AttributeExpressionLexer;
@@ -223,6 +226,10 @@ import org.apache.nifi.attribute.expression.language.evaluation.selection.Mappin
  */
 public class Query {
 
+    // the number of PreparedQuery objects that are retained by prepare(String), so that the same property value is not parsed again each time it is evaluated
+    private static final int MAX_PREPARED_QUERIES = 1000;
+    private static final ConcurrentMap<String, PreparedQuery> preparedQueries = new ConcurrentHashMap<>();
+
     private final String query;
     private final Tree tree;
     private final Evaluator<?> evaluator;
@@ -386,15 +393,62 @@ public class Query {
 
     static String evaluateExpression(final Tree tree, final String queryText, final Map<String, String> valueMap, final AttributeValueDecorator decorator) throws ProcessException {
         final Object evaluated = Query.fromTree(tree, queryText).evaluate(valueMap).getValue();
-        if (evaluated == null) {
-            return null;
-        }
+        return evaluated == null ? null : formatEvaluatedValue(evaluated.toString(), decorator);
+    }
 
-        final String value = evaluated.toString();
-        final String escaped = value.replace("$$", "$");
+    /**
+     * Evaluates an Evaluator that was created by {@link #buildReusableEvaluator(Tree)}. Unlike
+     * {@link #evaluateExpression(Tree, String, Map, AttributeValueDecorator)}, this does not build
+     * a new Evaluator for each evaluation.
+     */
+    static String evaluateExpression(final Evaluator<?> evaluator, final Map<String, String> valueMap, final AttributeValueDecorator decorator) throws ProcessException {
+        final Object evaluated = evaluator.evaluate(valueMap).getValue();
+        return evaluated == null ? null : formatEvaluatedValue(evaluated.toString(), decorator);
+    }
+
+    static String formatEvaluatedValue(final String value, final AttributeValueDecorator decorator) {
+        // String.replace compiles a Pattern, so avoid it for the common case of a value with nothing to un-escape
+        final String escaped = value.indexOf("$$") < 0 ? value : value.replace("$$", "$");
         return decorator == null ? escaped : decorator.decorate(escaped);
     }
 
+    /**
+     * Builds an Evaluator for the given tree that may be evaluated any number of times, and concurrently,
+     * or returns <code>null</code> if the expression requires a new Evaluator for each evaluation. The
+     * Evaluators that iterate over multiple attributes or values, and those that reduce them, keep track
+     * of their progress through a single evaluation, so expressions that use them cannot be reused.
+     *
+     * @param tree the tree of a compiled expression
+     * @return an Evaluator that may be reused, or <code>null</code> if a new Evaluator must be built for each evaluation
+     */
+    static Evaluator<?> buildReusableEvaluator(final Tree tree) {
+        return isReusable(tree) ? buildEvaluator(tree) : null;
+    }
+
+    private static boolean isReusable(final Tree tree) {
+        switch (tree.getType()) {
+            case MULTI_ATTRIBUTE_REFERENCE:
+            case COUNT:
+            case JOIN:
+                return false;
+            default:
+                break;
+        }
+
+        // a literal may embed expressions of its own, which are compiled only when the Evaluator is built
+        final String text = tree.getText();
+        if (text != null && text.contains("${")) {
+            return false;
+        }
+
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            if (!isReusable(tree.getChild(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     static String evaluateExpressions(final String rawValue, final Map<String, String> valueLookup) throws ProcessException {
         return evaluateExpressions(rawValue, valueLookup, null);
     }
@@ -449,11 +503,38 @@ public class Query {
         }
     }
 
+    /**
+     * Prepares the given value for evaluation. The PreparedQuery objects that are returned are immutable and
+     * thread-safe, so a bounded number of them are retained and returned again when the same value is prepared,
+     * rather than parsing the value each time.
+     *
+     * @param query the value that may contain Expression Language
+     * @return a PreparedQuery for the value
+     * @throws AttributeExpressionLanguageParsingException if the value cannot be parsed
+     */
     public static PreparedQuery prepare(final String query) throws AttributeExpressionLanguageParsingException {
         if (query == null) {
             return new EmptyPreparedQuery(null);
         }
 
+        final PreparedQuery cached = preparedQueries.get(query);
+        if (cached != null) {
+            return cached;
+        }
+
+        final PreparedQuery prepared = prepareQuery(query);
+        if (preparedQueries.size() >= MAX_PREPARED_QUERIES) {
+            // make room by discarding an arbitrary entry; the values that are evaluated most often will quickly be prepared again
+            final Iterator<String> itr = preparedQueries.keySet().iterator();
+            if (itr.hasNext()) {
+                preparedQueries.remove(itr.next());
+            }
+        }
+        preparedQueries.put(query, prepared);
+        return prepared;
+    }
+
+    private static PreparedQuery prepareQuery(final String query) throws AttributeExpressionLanguageParsingException {
         final List<Range> ranges = extractExpressionRanges(query);
 
         if (ranges.isEmpty()) {
@@ -16,42 +16,86 @@
  */
 package org.apache.nifi.attribute.expression.language;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.nifi.attribute.expression.language.evaluation.Evaluator;
+import org.apache.nifi.attribute.expression.language.evaluation.functions.AttributeEvaluator;
 import org.apache.nifi.expression.AttributeValueDecorator;
 import org.apache.nifi.processor.exception.ProcessException;
 
 import org.antlr.runtime.tree.Tree;
 
+/**
+ * A PreparedQuery that builds the Evaluators for its expressions once, when it is created, and reuses them
+ * for every evaluation. An expression that is simply a reference to an attribute, such as <code>${filename}</code>,
+ * is evaluated by looking up the attribute directly. Expressions whose Evaluators cannot be reused are rebuilt
+ * for each evaluation. Instances of this class are immutable and may be evaluated concurrently.
+ */
 public class StandardPreparedQuery implements PreparedQuery {
 
-    private final List<String> queryStrings;
-    private final Map<String, Tree> trees;
+    private final String[] queryStrings;
+    private final Tree[] trees;
+    private final Evaluator<?>[] evaluators;
+    private final String[] attributeNames;
 
     public StandardPreparedQuery(final List<String> queryStrings, final Map<String, Tree> trees) {
-        this.queryStrings = new ArrayList<>(queryStrings);
-        this.trees = new HashMap<>(trees);
-    }
+        final int size = queryStrings.size();
+        this.queryStrings = queryStrings.toArray(new String[size]);
+        this.trees = new Tree[size];
+        this.evaluators = new Evaluator<?>[size];
+        this.attributeNames = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            final Tree tree = trees.get(this.queryStrings[i]);
+            if (tree == null) {
+                continue;
+            }
 
+            this.trees[i] = tree;
+            final Evaluator<?> evaluator = Query.buildReusableEvaluator(tree);
+            this.evaluators[i] = evaluator;
+            if (evaluator instanceof AttributeEvaluator) {
+                this.attributeNames[i] = ((AttributeEvaluator) evaluator).getAttributeName();
+            }
+        }
+    }
 
     @Override
     public String evaluateExpressions(final Map<String, String> valueMap, final AttributeValueDecorator decorator) throws ProcessException {
+        if (queryStrings.length == 1) {
+            final String evaluated = evaluate(0, valueMap, decorator);
+            return evaluated == null ? "" : evaluated;
+        }
+
         final StringBuilder sb = new StringBuilder();
-        for (final String val : queryStrings) {
-            final Tree tree = trees.get(val);
-            if (tree == null) {
-                sb.append(val);
-            } else {
-                final String evaluated = Query.evaluateExpression(tree, val, valueMap, decorator);
-                if (evaluated != null) {
-                    sb.append(evaluated);
-                }
+        for (int i = 0; i < queryStrings.length; i++) {
+            final String evaluated = evaluate(i, valueMap, decorator);
+            if (evaluated != null) {
+                sb.append(evaluated);
             }
         }
         return sb.toString();
     }
 
+    private String evaluate(final int index, final Map<String, String> valueMap, final AttributeValueDecorator decorator) {
+        final Tree tree = trees[index];
+        if (tree == null) {
+            return queryStrings[index];
+        }
+
+        final String attributeName = attributeNames[index];
+        if (attributeName != null) {
+            final String value = valueMap.get(attributeName);
+            return value == null ? null : Query.formatEvaluatedValue(value, decorator);
+        }
+
+        final Evaluator<?> evaluator = evaluators[index];
+        if (evaluator != null) {
+            return Query.evaluateExpression(evaluator, valueMap, decorator);
+        }
+
+        return Query.evaluateExpression(tree, queryStrings[index], valueMap, decorator);
+    }
+
 }
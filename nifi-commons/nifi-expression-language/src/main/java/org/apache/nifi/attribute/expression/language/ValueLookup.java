@@ -16,6 +16,7 @@
  */
 package org.apache.nifi.attribute.expression.language;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -56,7 +57,7 @@ final class ValueLookup implements Map<String, String> {
             }
         }
         if (flowFile != null) {
-            maps.add(ValueLookup.extractFlowFileProperties(flowFile));
+            maps.add(new FlowFilePropertiesMap(flowFile));
             maps.add(flowFile.getAttributes());
         }
 
@@ -181,4 +182,61 @@ final class ValueLookup implements Map<String, String> {
         return newMap.entrySet();
     }
 
+    /**
+     * An immutable view of the properties of a FlowFile, such as its size and entry date, that converts each
+     * property to a String only when it is looked up. Most expressions refer only to attributes, so this avoids
+     * building a Map of all of the properties for every FlowFile that an expression is evaluated against.
+     */
+    private static final class FlowFilePropertiesMap extends AbstractMap<String, String> {
+        private final FlowFile flowFile;
+
+        FlowFilePropertiesMap(final FlowFile flowFile) {
+            this.flowFile = flowFile;
+        }
+
+        @Override
+        public String get(final Object key) {
+            if (key == null) {
+                return null;
+            }
+
+            switch (key.toString()) {
+                case "flowFileId":
+                    return String.valueOf(flowFile.getId());
+                case "fileSize":
+                    return String.valueOf(flowFile.getSize());
+                case "entryDate":
+                    return String.valueOf(flowFile.getEntryDate());
+                case "lineageStartDate":
+                    return String.valueOf(flowFile.getLineageStartDate());
+                case "lastQueueDate":
+                    return String.valueOf(flowFile.getLastQueueDate());
+                case "queueDateIndex":
+                    return String.valueOf(flowFile.getQueueDateIndex());
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return 6;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return Collections.unmodifiableMap(extractFlowFileProperties(flowFile)).entrySet();
+        }
+    }
+
 }
@@ -22,18 +22,28 @@ import org.apache.nifi.attribute.expression.language.evaluation.Evaluator;
 import org.apache.nifi.attribute.expression.language.evaluation.QueryResult;
 import org.apache.nifi.attribute.expression.language.evaluation.StringEvaluator;
 import org.apache.nifi.attribute.expression.language.evaluation.StringQueryResult;
+import org.apache.nifi.attribute.expression.language.evaluation.literals.StringLiteralEvaluator;
 
 public class AttributeEvaluator extends StringEvaluator {
 
     private final Evaluator<String> nameEvaluator;
+    private final String attributeName;
 
     public AttributeEvaluator(final Evaluator<String> nameEvaluator) {
         this.nameEvaluator = nameEvaluator;
+        this.attributeName = nameEvaluator instanceof StringLiteralEvaluator ? nameEvaluator.evaluate(null).getValue() : null;
+    }
+
+    /**
+     * @return the name of the attribute to evaluate, or <code>null</code> if the name is itself the result of an expression
+     */
+    public String getAttributeName() {
+        return attributeName;
     }
 
     @Override
     public QueryResult<String> evaluate(final Map<String, String> attributes) {
-        final String nameValue = nameEvaluator.evaluate(attributes).getValue();
+        final String nameValue = attributeName == null ? nameEvaluator.evaluate(attributes).getValue() : attributeName;
         final String attributeValue = attributes.get(nameValue);
         return new StringQueryResult(attributeValue);
     }
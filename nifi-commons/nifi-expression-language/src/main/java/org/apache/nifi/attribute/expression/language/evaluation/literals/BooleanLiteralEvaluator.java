@@ -25,15 +25,15 @@ import org.apache.nifi.attribute.expression.language.evaluation.QueryResult;
 
 public class BooleanLiteralEvaluator extends BooleanEvaluator {
 
-    private final boolean value;
+    private final BooleanQueryResult result;
 
     public BooleanLiteralEvaluator(final boolean value) {
-        this.value = value;
+        this.result = new BooleanQueryResult(value);
     }
 
     @Override
     public QueryResult<Boolean> evaluate(final Map<String, String> attributes) {
-        return new BooleanQueryResult(value);
+        return result;
     }
 
     @Override
@@ -26,15 +26,15 @@ import java.util.Map;
 
 public class DecimalLiteralEvaluator extends DecimalEvaluator {
 
-    private final double literal;
+    private final DecimalQueryResult result;
 
     public DecimalLiteralEvaluator(final String value) {
-        this.literal = Double.parseDouble(value);
+        this.result = new DecimalQueryResult(Double.parseDouble(value));
     }
 
     @Override
     public QueryResult<Double> evaluate(final Map<String, String> attributes) {
-        return new DecimalQueryResult(literal);
+        return result;
     }
 
     @Override
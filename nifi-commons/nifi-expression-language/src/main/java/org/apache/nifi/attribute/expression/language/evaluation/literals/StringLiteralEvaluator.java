@@ -25,7 +25,7 @@ import org.apache.nifi.attribute.expression.language.evaluation.StringQueryResul
 
 public class StringLiteralEvaluator extends StringEvaluator {
 
-    private final String value;
+    private final StringQueryResult result;
 
     public StringLiteralEvaluator(final String value) {
         // need to escape characters after backslashes
@@ -61,12 +61,12 @@ public class StringLiteralEvaluator extends StringEvaluator {
             }
         }
 
-        this.value = sb.toString();
+        this.result = new StringQueryResult(sb.toString());
     }
 
     @Override
     public QueryResult<String> evaluate(final Map<String, String> attributes) {
-        return new StringQueryResult(value);
+        return result;
     }
 
     @Override
@@ -25,15 +25,15 @@ import org.apache.nifi.attribute.expression.language.evaluation.WholeNumberQuery
 
 public class WholeNumberLiteralEvaluator extends WholeNumberEvaluator {
 
-    private final long literal;
+    private final WholeNumberQueryResult result;
 
     public WholeNumberLiteralEvaluator(final String value) {
-        this.literal = Long.parseLong(value);
+        this.result = new WholeNumberQueryResult(Long.parseLong(value));
     }
 
     @Override
     public QueryResult<Long> evaluate(final Map<String, String> attributes) {
-        return new WholeNumberQueryResult(literal);
+        return result;
     }
 
     @Override
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.attribute.expression.language;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.nifi.attribute.expression.language.Query.Range;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of evaluating some common expressions against a FlowFile's attributes. The 'prepared'
+ * benchmark evaluates a PreparedQuery, which reuses its Evaluators; 'rebuilt' builds the Evaluators for the
+ * expression again for each evaluation, as was done before PreparedQuery reused them; and 'property' prepares
+ * the value each time, as a processor does when it calls ProcessContext.newPropertyValue for each FlowFile. This
+ * is not run as part of the build; to run it, build the test classes with the 'benchmarks' profile enabled and
+ * execute the main method from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class QueryBenchmark {
+
+    @State(Scope.Thread)
+    public static class QueryState {
+        @Param({"${filename}", "${filename:toUpper()}", "${fileSize:gt(100)}", "${mime.type:equals('text/plain'):and(${fileSize:lt(1024)})}", "/data/${path}/${filename}.${now():format('yyyy')}"})
+        private String expression;
+
+        private PreparedQuery preparedQuery;
+        private List<String> texts;
+        private List<Tree> trees;
+        private ValueLookup valueLookup;
+
+        @Setup
+        public void setup() {
+            preparedQuery = Query.prepare(expression);
+
+            // split the expression into its literal text and embedded expressions, as Query.prepare does
+            texts = new ArrayList<>();
+            trees = new ArrayList<>();
+            int lastIndex = 0;
+            for (final Range range : Query.extractExpressionRanges(expression)) {
+                if (range.getStart() > lastIndex) {
+                    texts.add(expression.substring(lastIndex, range.getStart()));
+                    trees.add(null);
+                }
+
+                final String treeText = expression.substring(range.getStart(), range.getEnd() + 1);
+                texts.add(treeText);
+                trees.add(Query.compileTree(treeText));
+                lastIndex = range.getEnd() + 1;
+            }
+            if (lastIndex < expression.length()) {
+                texts.add(expression.substring(lastIndex));
+                trees.add(null);
+            }
+
+            final Map<String, String> attributes = new HashMap<>();
+            attributes.put("filename", "8a0a1fd7-5b43-4c7a-a8e1-0c13ad5e1f0e.txt");
+            attributes.put("path", "./");
+            attributes.put("uuid", "8a0a1fd7-5b43-4c7a-a8e1-0c13ad5e1f0e");
+            attributes.put("mime.type", "text/plain");
+            attributes.put("fileSize", "512");
+            valueLookup = new ValueLookup(null, null, attributes);
+        }
+    }
+
+    @Benchmark
+    public String prepared(final QueryState state) {
+        return state.preparedQuery.evaluateExpressions(state.valueLookup, null);
+    }
+
+    @Benchmark
+    public String rebuilt(final QueryState state) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < state.texts.size(); i++) {
+            final Tree tree = state.trees.get(i);
+            final String evaluated = tree == null ? state.texts.get(i) : Query.evaluateExpression(tree, state.texts.get(i), state.valueLookup, null);
+            if (evaluated != null) {
+                sb.append(evaluated);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String property(final QueryState state) {
+        return Query.prepare(state.expression).evaluateExpressions(state.valueLookup, null);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+            .include(QueryBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+}
@@ -17,9 +17,15 @@
 package org.apache.nifi.attribute.expression.language;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Ignore;
@@ -84,6 +90,73 @@ public class TestStandardPreparedQuery {
 
     }
 
+    @Test
+    public void testPreparedQueryIsReused() {
+        assertSame(Query.prepare("${xx:toUpper()}"), Query.prepare("${xx:toUpper()}"));
+    }
+
+    @Test
+    public void testEvaluateRepeatedly() {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put("filename", "file.txt");
+        attributes.put("fileSize", "150");
+
+        final StandardPreparedQuery prepared = (StandardPreparedQuery) Query.prepare("${filename:toUpper()} ${fileSize:gt(100)} ${missing} ${literal('$$')}");
+        for (int i = 0; i < 3; i++) {
+            assertEquals("FILE.TXT true  $", prepared.evaluateExpressions(attributes, null));
+        }
+
+        attributes.put("fileSize", "50");
+        assertEquals("FILE.TXT false  $", prepared.evaluateExpressions(attributes, null));
+        assertEquals("[FILE.TXT] [false]  [$]", prepared.evaluateExpressions(attributes, value -> "[" + value + "]"));
+    }
+
+    @Test
+    public void testEvaluateStatefulExpressionsRepeatedly() {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put("a", "x");
+        attributes.put("b", "y");
+        attributes.put("c", "x");
+
+        // these expressions iterate over several attributes, so each evaluation must start afresh
+        final StandardPreparedQuery count = (StandardPreparedQuery) Query.prepare("${allMatchingAttributes('.*'):count()}");
+        final StandardPreparedQuery join = (StandardPreparedQuery) Query.prepare("${allAttributes('a', 'b'):join('-')}");
+        final StandardPreparedQuery all = (StandardPreparedQuery) Query.prepare("${allMatchingAttributes('[ac]'):equals('x')}");
+        for (int i = 0; i < 3; i++) {
+            assertEquals("3", count.evaluateExpressions(attributes, null));
+            assertEquals("x-y", join.evaluateExpressions(attributes, null));
+            assertEquals("true", all.evaluateExpressions(attributes, null));
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testConcurrentEvaluation() throws Exception {
+        final StandardPreparedQuery prepared = (StandardPreparedQuery) Query.prepare("${value:append('-'):append(${value:toNumber():plus(1)})}");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    final Map<String, String> attributes = new HashMap<>();
+                    for (int i = 0; i < 10000; i++) {
+                        final int value = thread * 100000 + i;
+                        attributes.put("value", String.valueOf(value));
+                        assertEquals(value + "-" + (value + 1), prepared.evaluateExpressions(attributes, null));
+                    }
+                    return null;
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get(15, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private String evaluate(final String query, final Map<String, String> attrs) {
         final String evaluated = ((StandardPreparedQuery) Query.prepare(query)).evaluateExpressions(attrs, null);
         return evaluated;
@@ -71,6 +71,8 @@ public abstract class NiFiProperties {
     public static final String H2_URL_APPEND = "nifi.h2.url.append";
     public static final String REMOTE_INPUT_HOST = "nifi.remote.input.host";
     public static final String REMOTE_INPUT_PORT = "nifi.remote.input.socket.port";
+    public static final String REMOTE_INPUT_SOCKET_THREADS = "nifi.remote.input.socket.threads";
+    public static final String REMOTE_SOCKET_MULTIPLEX_CONNECTIONS = "nifi.remote.socket.multiplex.connections";
     public static final String SITE_TO_SITE_SECURE = "nifi.remote.input.secure";
     public static final String SITE_TO_SITE_HTTP_ENABLED = "nifi.remote.input.http.enabled";
     public static final String SITE_TO_SITE_HTTP_TRANSACTION_TTL = "nifi.remote.input.http.transaction.ttl";
@@ -78,6 +80,8 @@ public abstract class NiFiProperties {
     public static final String ADMINISTRATIVE_YIELD_DURATION = "nifi.administrative.yield.duration";
     public static final String PERSISTENT_STATE_DIRECTORY = "nifi.persistent.state.directory";
     public static final String BORED_YIELD_DURATION = "nifi.bored.yield.duration";
+    public static final String TIMER_DRIVEN_SCHEDULING_AGENT = "nifi.timer.driven.scheduling.agent";
+    public static final String PROCESSOR_COMMIT_BATCHING_ENABLED = "nifi.processor.commit.batching.enabled";
     public static final String PROCESSOR_SCHEDULING_TIMEOUT = "nifi.processor.scheduling.timeout";
 
     // content repository properties
@@ -90,6 +94,8 @@ public abstract class NiFiProperties {
     public static final String CONTENT_ARCHIVE_BACK_PRESSURE_PERCENTAGE = "nifi.content.repository.archive.backpressure.percentage";
     public static final String CONTENT_ARCHIVE_ENABLED = "nifi.content.repository.archive.enabled";
     public static final String CONTENT_ARCHIVE_CLEANUP_FREQUENCY = "nifi.content.repository.archive.cleanup.frequency";
+    public static final String CONTENT_REPOSITORY_MEMORY_MAPPED_READS = "nifi.content.repository.memory.mapped.reads";
+    public static final String CONTENT_REPOSITORY_MAX_MAPPED_CLAIMS = "nifi.content.repository.memory.mapped.max.claims";
     public static final String CONTENT_VIEWER_URL = "nifi.content.viewer.url";
 
     // flowfile repository properties
@@ -98,12 +104,17 @@ public abstract class NiFiProperties {
     public static final String FLOWFILE_REPOSITORY_DIRECTORY = "nifi.flowfile.repository.directory";
     public static final String FLOWFILE_REPOSITORY_PARTITIONS = "nifi.flowfile.repository.partitions";
     public static final String FLOWFILE_REPOSITORY_CHECKPOINT_INTERVAL = "nifi.flowfile.repository.checkpoint.interval";
+    public static final String FLOWFILE_REPOSITORY_WAL_IMPLEMENTATION = "nifi.flowfile.repository.wal.implementation";
+    public static final String FLOWFILE_REPOSITORY_SNAPSHOT_SEGMENTS = "nifi.flowfile.repository.snapshot.segments";
     public static final String FLOWFILE_SWAP_MANAGER_IMPLEMENTATION = "nifi.swap.manager.implementation";
     public static final String QUEUE_SWAP_THRESHOLD = "nifi.queue.swap.threshold";
+    public static final String QUEUE_IMPLEMENTATION = "nifi.queue.implementation";
+    public static final String QUEUE_STRIPES = "nifi.queue.stripes";
     public static final String SWAP_IN_THREADS = "nifi.swap.in.threads";
     public static final String SWAP_IN_PERIOD = "nifi.swap.in.period";
     public static final String SWAP_OUT_THREADS = "nifi.swap.out.threads";
     public static final String SWAP_OUT_PERIOD = "nifi.swap.out.period";
+    public static final String SWAP_COMPRESSION_ENABLED = "nifi.swap.compression.enabled";
 
     // provenance properties
     public static final String PROVENANCE_REPO_IMPLEMENTATION_CLASS = "nifi.provenance.repository.implementation";
@@ -176,6 +187,9 @@ public abstract class NiFiProperties {
     public static final String CLUSTER_FIREWALL_FILE = "nifi.cluster.firewall.file";
     public static final String FLOW_ELECTION_MAX_WAIT_TIME = "nifi.cluster.flow.election.max.wait.time";
     public static final String FLOW_ELECTION_MAX_CANDIDATES = "nifi.cluster.flow.election.max.candidates";
+    public static final String LOAD_BALANCE_ADDRESS = "nifi.cluster.load.balance.address";
+    public static final String LOAD_BALANCE_PORT = "nifi.cluster.load.balance.port";
+    public static final String LOAD_BALANCE_MAX_THREADS = "nifi.cluster.load.balance.max.threads";
 
     // zookeeper properties
     public static final String ZOOKEEPER_CONNECT_STRING = "nifi.zookeeper.connect.string";
@@ -214,6 +228,7 @@ public abstract class NiFiProperties {
     public static final String DEFAULT_LOGIN_IDENTITY_PROVIDER_CONFIGURATION_FILE = "conf/login-identity-providers.xml";
     public static final String DEFAULT_USER_CREDENTIAL_CACHE_DURATION = "24 hours";
     public static final Integer DEFAULT_REMOTE_INPUT_PORT = null;
+    public static final int DEFAULT_REMOTE_INPUT_SOCKET_THREADS = 0;
     public static final Path DEFAULT_TEMPLATE_DIRECTORY = Paths.get("conf", "templates");
     public static final int DEFAULT_WEB_THREADS = 200;
     public static final String DEFAULT_WEB_WORKING_DIR = "./work/jetty";
@@ -222,17 +237,26 @@ public abstract class NiFiProperties {
     public static final String DEFAULT_NAR_LIBRARY_DIR = "./lib";
     public static final String DEFAULT_FLOWFILE_REPO_PARTITIONS = "256";
     public static final String DEFAULT_FLOWFILE_CHECKPOINT_INTERVAL = "2 min";
+    public static final String DEFAULT_FLOWFILE_REPO_WAL_IMPLEMENTATION = "org.wali.MinimalLockingWriteAheadLog";
+    public static final int DEFAULT_FLOWFILE_REPO_SNAPSHOT_SEGMENTS = 4;
     public static final int DEFAULT_MAX_FLOWFILES_PER_CLAIM = 100;
+    public static final String DEFAULT_CONTENT_REPOSITORY_MEMORY_MAPPED_READS = "false";
+    public static final int DEFAULT_CONTENT_REPOSITORY_MAX_MAPPED_CLAIMS = 1024;
     public static final int DEFAULT_QUEUE_SWAP_THRESHOLD = 20000;
+    public static final String DEFAULT_QUEUE_IMPLEMENTATION = "org.apache.nifi.controller.StandardFlowFileQueue";
+    public static final int DEFAULT_QUEUE_STRIPES = 8;
     public static final String DEFAULT_SWAP_STORAGE_LOCATION = "./flowfile_repository/swap";
     public static final String DEFAULT_SWAP_IN_PERIOD = "1 sec";
     public static final String DEFAULT_SWAP_OUT_PERIOD = "5 sec";
     public static final int DEFAULT_SWAP_IN_THREADS = 4;
     public static final int DEFAULT_SWAP_OUT_THREADS = 4;
+    public static final String DEFAULT_SWAP_COMPRESSION_ENABLED = "false";
     public static final String DEFAULT_ADMINISTRATIVE_YIELD_DURATION = "30 sec";
     public static final String DEFAULT_PERSISTENT_STATE_DIRECTORY = "./conf/state";
     public static final String DEFAULT_COMPONENT_STATUS_SNAPSHOT_FREQUENCY = "5 mins";
     public static final String DEFAULT_BORED_YIELD_DURATION = "10 millis";
+    public static final String DEFAULT_TIMER_DRIVEN_SCHEDULING_AGENT = "org.apache.nifi.controller.scheduling.TimerDrivenSchedulingAgent";
+    public static final String DEFAULT_PROCESSOR_COMMIT_BATCHING_ENABLED = "false";
     public static final String DEFAULT_ZOOKEEPER_CONNECT_TIMEOUT = "3 secs";
     public static final String DEFAULT_ZOOKEEPER_SESSION_TIMEOUT = "3 secs";
     public static final String DEFAULT_ZOOKEEPER_ROOT_NODE = "/nifi";
@@ -253,6 +277,7 @@ public abstract class NiFiProperties {
     public static final int DEFAULT_CLUSTER_NODE_PROTOCOL_THREADS = 2;
     public static final String DEFAULT_REQUEST_REPLICATION_CLAIM_TIMEOUT = "15 secs";
     public static final String DEFAULT_FLOW_ELECTION_MAX_WAIT_TIME = "5 mins";
+    public static final int DEFAULT_LOAD_BALANCE_MAX_THREADS = 8;
 
     // state management defaults
     public static final String DEFAULT_STATE_MANAGEMENT_CONFIG_FILE = "conf/state-management.xml";
@@ -321,6 +346,26 @@ public abstract class NiFiProperties {
         }
     }
 
+    /**
+     * @return the fully qualified class name of the FlowFile Queue implementation to use for connections
+     */
+    public String getQueueImplementation() {
+        final String implementation = getProperty(QUEUE_IMPLEMENTATION);
+        if (implementation == null || implementation.trim().isEmpty()) {
+            return DEFAULT_QUEUE_IMPLEMENTATION;
+        }
+
+        return implementation.trim();
+    }
+
+    /**
+     * @return the number of independently locked stripes that a striped FlowFile Queue splits its
+     *         active queue into
+     */
+    public int getQueueStripes() {
+        return getIntegerProperty(QUEUE_STRIPES, DEFAULT_QUEUE_STRIPES);
+    }
+
     public Integer getIntegerProperty(final String propertyName, final Integer defaultValue) {
         final String value = getProperty(propertyName);
         if (value == null || value.trim().isEmpty()) {
@@ -359,6 +404,14 @@ public abstract class NiFiProperties {
         return getProperty(SWAP_OUT_PERIOD, DEFAULT_SWAP_OUT_PERIOD);
     }
 
+    /**
+     * @return <code>true</code> if swap files should be written in the
+     * compressed, batched format
+     */
+    public boolean isSwapCompressionEnabled() {
+        return Boolean.parseBoolean(getProperty(SWAP_COMPRESSION_ENABLED, DEFAULT_SWAP_COMPRESSION_ENABLED));
+    }
+
     public String getAdministrativeYieldDuration() {
         return getProperty(ADMINISTRATIVE_YIELD_DURATION, DEFAULT_ADMINISTRATIVE_YIELD_DURATION);
     }
@@ -383,6 +436,29 @@ public abstract class NiFiProperties {
         return getPropertyAsPort(REMOTE_INPUT_PORT, DEFAULT_REMOTE_INPUT_PORT);
     }
 
+    /**
+     * The maximum number of threads used to service RAW socket Site-to-Site
+     * connections. Idle connections do not hold a thread.
+     *
+     * @return the number of worker threads for RAW socket communication, or 0
+     *         if the number of threads grows with the number of connections
+     *         that have a request in progress
+     */
+    public int getRemoteInputSocketThreads() {
+        return getIntegerProperty(REMOTE_INPUT_SOCKET_THREADS, DEFAULT_REMOTE_INPUT_SOCKET_THREADS);
+    }
+
+    /**
+     * Whether Remote Process Groups that use RAW socket Site-to-Site
+     * multiplex all of their transactions with a remote instance over a
+     * single connection.
+     *
+     * @return True if property value is 'true'; False otherwise.
+     */
+    public boolean isRemoteSocketMultiplexConnections() {
+        return "true".equalsIgnoreCase(getProperty(REMOTE_SOCKET_MULTIPLEX_CONNECTIONS, "false"));
+    }
+
     /**
      * @return False if property value is 'false'; True otherwise.
      */
@@ -491,6 +567,31 @@ public abstract class NiFiProperties {
                 DEFAULT_FLOWFILE_CHECKPOINT_INTERVAL);
     }
 
+    /**
+     * Returns the fully qualified class name of the Write-Ahead Log
+     * implementation that the FlowFile Repository should use
+     *
+     * @return the Write-Ahead Log implementation
+     */
+    public String getFlowFileRepositoryWalImplementation() {
+        final String implementation = getProperty(FLOWFILE_REPOSITORY_WAL_IMPLEMENTATION);
+        if (implementation == null || implementation.trim().isEmpty()) {
+            return DEFAULT_FLOWFILE_REPO_WAL_IMPLEMENTATION;
+        }
+
+        return implementation.trim();
+    }
+
+    /**
+     * Returns the number of segments that the FlowFile Repository's snapshot
+     * is split into, if the Write-Ahead Log implementation supports it
+     *
+     * @return the number of snapshot segments
+     */
+    public int getFlowFileRepositorySnapshotSegments() {
+        return getIntegerProperty(FLOWFILE_REPOSITORY_SNAPSHOT_SEGMENTS, DEFAULT_FLOWFILE_REPO_SNAPSHOT_SEGMENTS);
+    }
+
     /**
      * @return the restore directory or null if not configured
      */
@@ -699,6 +800,47 @@ public abstract class NiFiProperties {
         }
     }
 
+    /**
+     * @return the address on which this node listens for FlowFiles of load-balanced connections that are sent by other nodes of
+     *         the cluster, or <code>null</code> if no load balance port is configured, in which case the node neither accepts
+     *         load-balanced FlowFiles nor distributes its own
+     */
+    public InetSocketAddress getClusterLoadBalanceAddress() {
+        final Integer port = getClusterLoadBalancePort();
+        if (port == null) {
+            return null;
+        }
+
+        String address = getProperty(LOAD_BALANCE_ADDRESS);
+        if (StringUtils.isBlank(address)) {
+            address = getProperty(CLUSTER_NODE_ADDRESS);
+        }
+        if (StringUtils.isBlank(address)) {
+            address = "localhost";
+        }
+        return InetSocketAddress.createUnresolved(address.trim(), port);
+    }
+
+    public Integer getClusterLoadBalancePort() {
+        try {
+            return Integer.parseInt(getProperty(LOAD_BALANCE_PORT));
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the maximum number of threads that this node uses to send FlowFiles of load-balanced connections to other nodes,
+     *         and the maximum number of threads that it uses to receive them
+     */
+    public int getClusterLoadBalanceMaxThreads() {
+        try {
+            return Integer.parseInt(getProperty(LOAD_BALANCE_MAX_THREADS));
+        } catch (NumberFormatException nfe) {
+            return DEFAULT_LOAD_BALANCE_MAX_THREADS;
+        }
+    }
+
     public boolean isClustered() {
         return Boolean.parseBoolean(getProperty(CLUSTER_IS_NODE));
     }
@@ -887,6 +1029,23 @@ public abstract class NiFiProperties {
         return contentRepositoryPaths;
     }
 
+    /**
+     * @return <code>true</code> if the content repository should read content
+     * claims through memory-mapped files and export content using zero-copy
+     * transfers
+     */
+    public boolean isContentRepositoryMemoryMappedReads() {
+        return Boolean.parseBoolean(getProperty(CONTENT_REPOSITORY_MEMORY_MAPPED_READS, DEFAULT_CONTENT_REPOSITORY_MEMORY_MAPPED_READS));
+    }
+
+    /**
+     * @return the maximum number of resource claims whose memory mappings the
+     * content repository keeps cached when memory-mapped reads are enabled
+     */
+    public int getContentRepositoryMaxMappedClaims() {
+        return getIntegerProperty(CONTENT_REPOSITORY_MAX_MAPPED_CLAIMS, DEFAULT_CONTENT_REPOSITORY_MAX_MAPPED_CLAIMS);
+    }
+
     /**
      * Returns the provenance repository paths. This method returns a mapping of
      * file repository name to file repository paths. It simply returns the
@@ -934,6 +1093,21 @@ public abstract class NiFiProperties {
         return getProperty(BORED_YIELD_DURATION, DEFAULT_BORED_YIELD_DURATION);
     }
 
+    /**
+     * @return the fully qualified class name of the Scheduling Agent that runs Timer-Driven components
+     */
+    public String getTimerDrivenSchedulingAgent() {
+        return getProperty(TIMER_DRIVEN_SCHEDULING_AGENT, DEFAULT_TIMER_DRIVEN_SCHEDULING_AGENT).trim();
+    }
+
+    /**
+     * @return whether or not the framework batches the session commits of Processors that are annotated
+     *         with BatchCommits
+     */
+    public boolean isProcessorCommitBatchingEnabled() {
+        return Boolean.parseBoolean(getProperty(PROCESSOR_COMMIT_BATCHING_ENABLED, DEFAULT_PROCESSOR_COMMIT_BATCHING_ENABLED).trim());
+    }
+
     public File getStateManagementConfigFile() {
         return new File(getProperty(STATE_MANAGEMENT_CONFIG_FILE, DEFAULT_STATE_MANAGEMENT_CONFIG_FILE));
     }
@@ -19,6 +19,7 @@ package org.apache.nifi.remote;
 import org.apache.nifi.events.EventReporter;
 import org.apache.nifi.remote.codec.FlowFileCodec;
 import org.apache.nifi.remote.exception.ProtocolException;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
 import org.apache.nifi.remote.io.CompressionInputStream;
 import org.apache.nifi.remote.io.CompressionOutputStream;
 import org.apache.nifi.remote.protocol.CommunicationsSession;
@@ -47,6 +48,9 @@ public abstract class AbstractTransaction implements Transaction {
     protected final TransferDirection direction;
     private final CRC32 crc = new CRC32();
     private final boolean compress;
+    private final CompressionAlgorithm compressionAlgorithm;
+    private CompressionAlgorithm.Compressor compressor;
+    private CompressionAlgorithm.Decompressor decompressor;
     protected final FlowFileCodec codec;
     protected final EventReporter eventReporter;
     protected final int protocolVersion;
@@ -61,11 +65,20 @@ public abstract class AbstractTransaction implements Transaction {
     public AbstractTransaction(final Peer peer, final TransferDirection direction, final boolean useCompression,
                                final FlowFileCodec codec, final EventReporter eventReporter, final int protocolVersion,
                                final int penaltyMillis, final String destinationId) {
+        this(peer, direction, useCompression, CompressionAlgorithm.DEFLATE, codec, eventReporter, protocolVersion, penaltyMillis, destinationId);
+    }
+
+    public AbstractTransaction(final Peer peer, final TransferDirection direction, final boolean useCompression, final CompressionAlgorithm compressionAlgorithm,
+                               final FlowFileCodec codec, final EventReporter eventReporter, final int protocolVersion,
+                               final int penaltyMillis, final String destinationId) {
         this.peer = peer;
         this.state = TransactionState.TRANSACTION_STARTED;
         this.direction = direction;
         this.compress = useCompression;
+        this.compressionAlgorithm = compressionAlgorithm;
         this.codec = codec;
+        // each transaction is encoded independently of any that came before it on the same connection
+        codec.reset();
         this.eventReporter = eventReporter;
         this.protocolVersion = protocolVersion;
         this.penaltyMillis = penaltyMillis;
@@ -145,7 +158,7 @@ public abstract class AbstractTransaction implements Transaction {
 
                 logger.debug("{} Receiving data from {}", this, peer);
                 final InputStream is = peer.getCommunicationsSession().getInput().getInputStream();
-                final InputStream dataIn = compress ? new CompressionInputStream(is) : is;
+                final InputStream dataIn = compress ? new CompressionInputStream(is, getDecompressor()) : is;
                 final DataPacket packet = codec.decode(new CheckedInputStream(dataIn, crc));
 
                 if (packet == null) {
@@ -166,6 +179,20 @@ public abstract class AbstractTransaction implements Transaction {
         }
     }
 
+    private CompressionAlgorithm.Decompressor getDecompressor() {
+        if (decompressor == null) {
+            decompressor = compressionAlgorithm.createDecompressor();
+        }
+        return decompressor;
+    }
+
+    private CompressionAlgorithm.Compressor getCompressor() {
+        if (compressor == null) {
+            compressor = compressionAlgorithm.createCompressor();
+        }
+        return compressor;
+    }
+
     abstract protected Response readTransactionResponse() throws IOException;
 
     protected final void writeTransactionResponse(ResponseCode response) throws IOException {
@@ -363,7 +390,7 @@ public abstract class AbstractTransaction implements Transaction {
                 logger.debug("{} Sending data to {}", this, peer);
 
                 final OutputStream os = peer.getCommunicationsSession().getOutput().getOutputStream();
-                final OutputStream dataOut = compress ? new CompressionOutputStream(os) : os;
+                final OutputStream dataOut = compress ? new CompressionOutputStream(os, getCompressor()) : os;
                 final OutputStream out = new CheckedOutputStream(dataOut, crc);
 
                 codec.encode(dataPacket, out);
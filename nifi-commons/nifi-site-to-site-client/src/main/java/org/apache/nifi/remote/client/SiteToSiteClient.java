@@ -25,6 +25,7 @@ import org.apache.nifi.remote.exception.HandshakeException;
 import org.apache.nifi.remote.exception.PortNotRunningException;
 import org.apache.nifi.remote.exception.ProtocolException;
 import org.apache.nifi.remote.exception.UnknownPortException;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
 import org.apache.nifi.remote.protocol.DataPacket;
 import org.apache.nifi.remote.protocol.SiteToSiteTransportProtocol;
 import org.apache.nifi.remote.protocol.http.HttpProxy;
@@ -161,6 +162,8 @@ public interface SiteToSiteClient extends Closeable {
         private EventReporter eventReporter = EventReporter.NO_OP;
         private File peerPersistenceFile;
         private boolean useCompression;
+        private CompressionAlgorithm compressionAlgorithm = CompressionAlgorithm.DEFLATE;
+        private boolean multiplexConnections;
         private String portName;
         private String portIdentifier;
         private int batchCount;
@@ -190,6 +193,8 @@ public interface SiteToSiteClient extends Closeable {
             this.eventReporter = config.getEventReporter();
             this.peerPersistenceFile = config.getPeerPersistenceFile();
             this.useCompression = config.isUseCompression();
+            this.compressionAlgorithm = config.getCompressionAlgorithm();
+            this.multiplexConnections = config.isMultiplexConnections();
             this.transportProtocol = config.getTransportProtocol();
             this.portName = config.getPortName();
             this.portIdentifier = config.getPortIdentifier();
@@ -447,6 +452,38 @@ public interface SiteToSiteClient extends Closeable {
             return this;
         }
 
+        /**
+         * Specifies the algorithm to compress data with, if compression is
+         * used. DEFLATE compresses the most, whereas LZ4 uses far less CPU.
+         * Remote instances that do not support choosing the algorithm are
+         * always sent data compressed with DEFLATE. Defaults to DEFLATE.
+         *
+         * @param compressionAlgorithm the algorithm to compress data with
+         * @return the builder
+         */
+        public Builder compressionAlgorithm(final CompressionAlgorithm compressionAlgorithm) {
+            this.compressionAlgorithm = compressionAlgorithm;
+            return this;
+        }
+
+        /**
+         * Specifies whether or not all transactions with a given remote
+         * instance should share a single RAW socket connection. When enabled,
+         * each transaction runs on its own logical stream of that connection,
+         * so that one transaction can stream its data while another is waiting
+         * for its confirmation. Remote instances that do not support
+         * multiplexing are communicated with over separate connections, as if
+         * this were disabled. Has no effect on the HTTP transport protocol.
+         * Defaults to false.
+         *
+         * @param multiplex true if connections should be multiplexed
+         * @return the builder
+         */
+        public Builder multiplexConnections(final boolean multiplex) {
+            this.multiplexConnections = multiplex;
+            return this;
+        }
+
         /**
          * Specifies the protocol to use for site to site data transport.
          * @param transportProtocol transport protocol
@@ -624,6 +661,21 @@ public interface SiteToSiteClient extends Closeable {
             return useCompression;
         }
 
+        /**
+         * @return the algorithm to compress data with, if compression is used
+         */
+        public CompressionAlgorithm getCompressionAlgorithm() {
+            return compressionAlgorithm;
+        }
+
+        /**
+         * @return a boolean indicating whether or not transactions with a
+         * remote instance share a single RAW socket connection
+         */
+        public boolean isMultiplexConnections() {
+            return multiplexConnections;
+        }
+
         /**
          * @return the transport protocol to use, defaults to RAW
          */
@@ -682,6 +734,8 @@ public interface SiteToSiteClient extends Closeable {
         private final EventReporter eventReporter;
         private final File peerPersistenceFile;
         private final boolean useCompression;
+        private final CompressionAlgorithm compressionAlgorithm;
+        private final boolean multiplexConnections;
         private final SiteToSiteTransportProtocol transportProtocol;
         private final String portName;
         private final String portIdentifier;
@@ -706,6 +760,8 @@ public interface SiteToSiteClient extends Closeable {
             this.eventReporter = null;
             this.peerPersistenceFile = null;
             this.useCompression = false;
+            this.compressionAlgorithm = CompressionAlgorithm.DEFLATE;
+            this.multiplexConnections = false;
             this.portName = null;
             this.portIdentifier = null;
             this.batchCount = 0;
@@ -730,6 +786,8 @@ public interface SiteToSiteClient extends Closeable {
             this.eventReporter = builder.eventReporter;
             this.peerPersistenceFile = builder.peerPersistenceFile;
             this.useCompression = builder.useCompression;
+            this.compressionAlgorithm = builder.compressionAlgorithm;
+            this.multiplexConnections = builder.multiplexConnections;
             this.portName = builder.portName;
             this.portIdentifier = builder.portIdentifier;
             this.batchCount = builder.batchCount;
@@ -744,6 +802,17 @@ public interface SiteToSiteClient extends Closeable {
             return useCompression;
         }
 
+        @Override
+        public CompressionAlgorithm getCompressionAlgorithm() {
+            // may be null if this config was serialized before the compression algorithm was configurable
+            return compressionAlgorithm == null ? CompressionAlgorithm.DEFLATE : compressionAlgorithm;
+        }
+
+        @Override
+        public boolean isMultiplexConnections() {
+            return multiplexConnections;
+        }
+
         @Override
         public String getUrl() {
             return url;
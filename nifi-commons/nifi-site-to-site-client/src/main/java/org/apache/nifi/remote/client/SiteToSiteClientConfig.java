@@ -23,6 +23,7 @@ import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLContext;
 
 import org.apache.nifi.events.EventReporter;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
 import org.apache.nifi.remote.protocol.DataPacket;
 import org.apache.nifi.remote.protocol.SiteToSiteTransportProtocol;
 import org.apache.nifi.remote.protocol.http.HttpProxy;
@@ -102,6 +103,25 @@ public interface SiteToSiteClientConfig extends Serializable {
      */
     boolean isUseCompression();
 
+    /**
+     * @return the algorithm to compress data with, if compression is used.
+     * Remote instances that do not support choosing the algorithm are always
+     * sent data compressed with DEFLATE
+     */
+    default CompressionAlgorithm getCompressionAlgorithm() {
+        return CompressionAlgorithm.DEFLATE;
+    }
+
+    /**
+     * @return a boolean indicating whether or not all transactions with a
+     * remote instance share a single RAW socket connection, each running on
+     * its own logical stream. Remote instances that do not support this are
+     * communicated with over separate connections
+     */
+    default boolean isMultiplexConnections() {
+        return false;
+    }
+
     /**
      * @return a transport protocol to use
      */
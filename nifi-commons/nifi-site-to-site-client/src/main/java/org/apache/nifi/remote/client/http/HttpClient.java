@@ -155,6 +155,7 @@ public class HttpClient extends AbstractSiteToSiteClient implements PeerStatusPr
             apiClient.setReadTimeoutMillis(timeoutMillis);
 
             apiClient.setCompress(config.isUseCompression());
+            apiClient.setCompressionAlgorithm(config.getCompressionAlgorithm());
             apiClient.setRequestExpirationMillis(config.getIdleConnectionExpiration(TimeUnit.MILLISECONDS));
             apiClient.setBatchCount(config.getPreferredBatchCount());
             apiClient.setBatchSize(config.getPreferredBatchSize());
@@ -183,7 +184,7 @@ public class HttpClient extends AbstractSiteToSiteClient implements PeerStatusPr
             // We found a valid peer to communicate with.
             final Integer transactionProtocolVersion = apiClient.getTransactionProtocolVersion();
             final HttpClientTransaction transaction = new HttpClientTransaction(transactionProtocolVersion, peer, direction,
-                config.isUseCompression(), portId, penaltyMillis, config.getEventReporter()) {
+                config.isUseCompression(), config.getCompressionAlgorithm(), portId, penaltyMillis, config.getEventReporter()) {
 
                 @Override
                 protected void close() throws IOException {
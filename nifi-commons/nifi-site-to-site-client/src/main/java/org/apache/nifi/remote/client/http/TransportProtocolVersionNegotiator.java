@@ -33,6 +33,8 @@ public class TransportProtocolVersionNegotiator extends StandardVersionNegotiato
         switch (getVersion()) {
             case 1:
                 return 5;
+            case 2:
+                return 7;
             default:
                 throw new RuntimeException("Transport protocol version " + getVersion()
                         + " was not configured with any transaction protocol version.");
@@ -61,6 +61,8 @@ import org.apache.nifi.remote.exception.PortNotRunningException;
 import org.apache.nifi.remote.exception.TransmissionDisabledException;
 import org.apache.nifi.remote.exception.UnknownPortException;
 import org.apache.nifi.remote.io.socket.SocketChannelCommunicationsSession;
+import org.apache.nifi.remote.io.socket.multiplex.MultiplexedConnection;
+import org.apache.nifi.remote.io.socket.multiplex.MultiplexedStream;
 import org.apache.nifi.remote.io.socket.ssl.SSLSocketChannel;
 import org.apache.nifi.remote.io.socket.ssl.SSLSocketChannelCommunicationsSession;
 import org.apache.nifi.remote.protocol.CommunicationsSession;
@@ -72,6 +74,9 @@ public class EndpointConnectionPool implements PeerStatusProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(EndpointConnectionPool.class);
 
+    // how long to wait before trying again to multiplex connections to a peer that did not support it
+    private static final long MULTIPLEX_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(5L);
+
     private final ConcurrentMap<PeerDescription, BlockingQueue<EndpointConnection>> connectionQueueMap = new ConcurrentHashMap<>();
     private final URI clusterUrl;
 
@@ -82,6 +87,13 @@ public class EndpointConnectionPool implements PeerStatusProvider {
     private final ScheduledExecutorService taskExecutor;
     private final int idleExpirationMillis;
     private final RemoteDestination remoteDestination;
+    private final boolean multiplexConnections;
+
+    // each peer's entry is updated only while holding that peer's lock, so that a slow connection to one peer does not
+    // hold up connections to the others
+    private final ConcurrentMap<PeerDescription, MultiplexedConnection> multiplexedConnections = new ConcurrentHashMap<>();
+    private final ConcurrentMap<PeerDescription, Object> multiplexLocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<PeerDescription, Long> multiplexingUnsupported = new ConcurrentHashMap<>();
 
     private volatile int commsTimeout;
     private volatile boolean shutdown = false;
@@ -92,6 +104,16 @@ public class EndpointConnectionPool implements PeerStatusProvider {
 
     public EndpointConnectionPool(final URI clusterUrl, final RemoteDestination remoteDestination, final int commsTimeoutMillis, final int idleExpirationMillis,
             final SSLContext sslContext, final EventReporter eventReporter, final File persistenceFile, final SiteInfoProvider siteInfoProvider) {
+        this(clusterUrl, remoteDestination, commsTimeoutMillis, idleExpirationMillis, sslContext, eventReporter, persistenceFile, siteInfoProvider, false);
+    }
+
+    /**
+     * @param multiplexConnections whether or not the connections to each peer should be carried over a single
+     *            {@link MultiplexedConnection}, if the peer supports it
+     */
+    public EndpointConnectionPool(final URI clusterUrl, final RemoteDestination remoteDestination, final int commsTimeoutMillis, final int idleExpirationMillis,
+            final SSLContext sslContext, final EventReporter eventReporter, final File persistenceFile, final SiteInfoProvider siteInfoProvider,
+            final boolean multiplexConnections) {
         Objects.requireNonNull(clusterUrl, "URL cannot be null");
         Objects.requireNonNull(remoteDestination, "Remote Destination/Port Identifier cannot be null");
 
@@ -101,6 +123,7 @@ public class EndpointConnectionPool implements PeerStatusProvider {
         this.eventReporter = eventReporter;
         this.commsTimeout = commsTimeoutMillis;
         this.idleExpirationMillis = idleExpirationMillis;
+        this.multiplexConnections = multiplexConnections;
 
         this.siteInfoProvider = siteInfoProvider;
 
@@ -232,6 +255,7 @@ public class EndpointConnectionPool implements PeerStatusProvider {
                         protocol.setPreferredBatchCount(config.getPreferredBatchCount());
                         protocol.setPreferredBatchSize(config.getPreferredBatchSize());
                         protocol.setPreferredBatchDuration(config.getPreferredBatchDuration(TimeUnit.MILLISECONDS));
+                        protocol.setCompressionAlgorithm(config.getCompressionAlgorithm());
                     }
 
                     // perform handshake
@@ -428,10 +452,86 @@ public class EndpointConnectionPool implements PeerStatusProvider {
 
     private CommunicationsSession establishSiteToSiteConnection(final PeerStatus peerStatus) throws IOException {
         final PeerDescription description = peerStatus.getPeerDescription();
+        if (multiplexConnections) {
+            final CommunicationsSession commsSession = openMultiplexedStream(description);
+            if (commsSession != null) {
+                commsSession.getOutput().getOutputStream().write(CommunicationsSession.MAGIC_BYTES);
+                return commsSession;
+            }
+        }
+
         return establishSiteToSiteConnection(description.getHostname(), description.getPort());
     }
 
+    /**
+     * Opens a new stream over the multiplexed connection to the given peer, establishing that connection if there is
+     * none yet
+     *
+     * @param description the peer to connect to
+     * @return the stream, or <code>null</code> if the peer does not support multiplexed connections or the connection
+     *         already carries as many streams as it may
+     * @throws IOException if unable to connect to the peer
+     */
+    private CommunicationsSession openMultiplexedStream(final PeerDescription description) throws IOException {
+        final Long unsupportedTimestamp = multiplexingUnsupported.get(description);
+        if (unsupportedTimestamp != null) {
+            if (System.currentTimeMillis() - unsupportedTimestamp < MULTIPLEX_RETRY_MILLIS) {
+                return null;
+            }
+            multiplexingUnsupported.remove(description);
+        }
+
+        synchronized (getMultiplexLock(description)) {
+            MultiplexedConnection connection = multiplexedConnections.get(description);
+            if (connection == null || connection.isClosed()) {
+                final String peerUrl = "nifi://" + description.getHostname() + ":" + description.getPort();
+                final CommunicationsSession commsSession = openCommunicationsSession(description.getHostname(), description.getPort());
+                try {
+                    if (commsTimeout > 0) {
+                        commsSession.setTimeout(commsTimeout);
+                    }
+                    connection = MultiplexedConnection.initiate(commsSession, peerUrl);
+                } catch (final IOException e) {
+                    // Instances that do not support multiplexing close the connection upon receiving its magic bytes
+                    logger.info("{} Unable to establish multiplexed connection with {} due to {}; will use separate connections for each transaction",
+                        this, peerUrl, e.toString());
+                    multiplexingUnsupported.put(description, System.currentTimeMillis());
+                    try {
+                        commsSession.close();
+                    } catch (final IOException ioe) {
+                    }
+                    return null;
+                }
+
+                logger.debug("{} Established multiplexed connection with {}", this, peerUrl);
+                multiplexedConnections.put(description, connection);
+            }
+
+            final MultiplexedStream stream = connection.openStream();
+            if (stream == null) {
+                logger.debug("{} {} already carries {} streams; using a separate connection", this, connection, MultiplexedConnection.MAX_CONCURRENT_STREAMS);
+            }
+            return stream;
+        }
+    }
+
+    private Object getMultiplexLock(final PeerDescription description) {
+        return multiplexLocks.computeIfAbsent(description, key -> new Object());
+    }
+
     private CommunicationsSession establishSiteToSiteConnection(final String hostname, final int port) throws IOException {
+        final CommunicationsSession commsSession = openCommunicationsSession(hostname, port);
+        try {
+            commsSession.getOutput().getOutputStream().write(CommunicationsSession.MAGIC_BYTES);
+        } catch (final IOException ioe) {
+            commsSession.close();
+            throw ioe;
+        }
+
+        return commsSession;
+    }
+
+    private CommunicationsSession openCommunicationsSession(final String hostname, final int port) throws IOException {
         final boolean siteToSiteSecure = siteInfoProvider.isSecure();
 
         CommunicationsSession commsSession = null;
@@ -459,8 +559,6 @@ public class EndpointConnectionPool implements PeerStatusProvider {
 
                 commsSession = new SocketChannelCommunicationsSession(socketChannel);
             }
-
-            commsSession.getOutput().getOutputStream().write(CommunicationsSession.MAGIC_BYTES);
         } catch (final IOException ioe) {
             if (commsSession != null) {
                 commsSession.close();
@@ -496,6 +594,21 @@ public class EndpointConnectionPool implements PeerStatusProvider {
 
             connectionQueue.addAll(connections);
         }
+
+        closeUnusedMultiplexedConnections();
+    }
+
+    private void closeUnusedMultiplexedConnections() {
+        for (final PeerDescription description : multiplexedConnections.keySet()) {
+            synchronized (getMultiplexLock(description)) {
+                final MultiplexedConnection connection = multiplexedConnections.get(description);
+                if (connection != null && (connection.isClosed() || connection.getStreamCount() == 0)) {
+                    logger.debug("{} Closing unused {}", this, connection);
+                    connection.close();
+                    multiplexedConnections.remove(description);
+                }
+            }
+        }
     }
 
     public void shutdown() {
@@ -513,6 +626,15 @@ public class EndpointConnectionPool implements PeerStatusProvider {
                 terminate(state);
             }
         }
+
+        for (final PeerDescription description : multiplexedConnections.keySet()) {
+            synchronized (getMultiplexLock(description)) {
+                final MultiplexedConnection connection = multiplexedConnections.remove(description);
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+        }
     }
 
     public void terminate(final EndpointConnection connection) {
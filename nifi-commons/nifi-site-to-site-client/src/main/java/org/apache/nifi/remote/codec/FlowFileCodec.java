@@ -69,4 +69,14 @@ public interface FlowFileCodec extends VersionedRemoteResource {
      * @throws TransmissionDisabledException if a user terminates the connection
      */
     DataPacket decode(InputStream stream) throws IOException, ProtocolException, TransmissionDisabledException;
+
+    /**
+     * Discards any state that the codec has built up from the DataPackets that
+     * it has encoded or decoded. A codec is negotiated once per connection but
+     * may be used for many transactions, so this is called at the start of each
+     * transaction, on both sides, in order to ensure that each transaction can
+     * be decoded on its own.
+     */
+    default void reset() {
+    }
 }
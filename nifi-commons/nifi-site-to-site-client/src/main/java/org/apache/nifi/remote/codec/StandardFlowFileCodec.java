@@ -22,9 +22,13 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.nifi.remote.StandardVersionNegotiator;
 import org.apache.nifi.remote.VersionNegotiator;
@@ -33,16 +37,60 @@ import org.apache.nifi.remote.protocol.DataPacket;
 import org.apache.nifi.remote.util.StandardDataPacket;
 import org.apache.nifi.stream.io.StreamUtils;
 
+/**
+ * <p>
+ * Version 1 of the codec writes the number of attributes, each attribute's key and value as length-prefixed UTF-8 strings,
+ * and the content's length, followed by the content itself.
+ * </p>
+ *
+ * <p>
+ * Version 2 writes lengths as variable-length integers and replaces any string that has been sent before in the same
+ * transaction with its index into a dictionary that both sides build up as the transaction progresses. Every attribute key
+ * is added to the dictionary, whereas a value is added only once it has been seen twice, so that values that are unique to a
+ * single FlowFile, such as its UUID, do not fill up the dictionary. Each string is preceded by a tag: {@value #LITERAL} for a
+ * string that is not added to the dictionary, {@value #LITERAL_ADDED} for a string that is, and any greater value for a
+ * reference to the dictionary entry at that value minus {@value #FIRST_REFERENCE}.
+ * </p>
+ */
 public class StandardFlowFileCodec implements FlowFileCodec {
 
     public static final int MAX_NUM_ATTRIBUTES = 25000;
 
     public static final String DEFAULT_FLOWFILE_PATH = "./";
 
+    /**
+     * The maximum number of entries in the attribute dictionary of a single transaction
+     */
+    public static final int MAX_DICTIONARY_SIZE = 4096;
+
+    /**
+     * The maximum length of a string that is added to the attribute dictionary
+     */
+    public static final int MAX_DICTIONARY_STRING_LENGTH = 1024;
+
+    private static final int LITERAL = 0;
+    private static final int LITERAL_ADDED = 1;
+    private static final int FIRST_REFERENCE = 2;
+
     private final VersionNegotiator versionNegotiator;
 
+    // encoding state for version 2
+    private final Map<String, Integer> encodeDictionary = new HashMap<>();
+    private final Set<String> valuesSeenOnce = new HashSet<>();
+
+    // decoding state for version 2
+    private final List<String> decodeDictionary = new ArrayList<>();
+
+    /**
+     * Creates a codec that uses version 1, which every peer supports, until another version is negotiated
+     */
     public StandardFlowFileCodec() {
-        versionNegotiator = new StandardVersionNegotiator(1);
+        this(1);
+    }
+
+    public StandardFlowFileCodec(final int version) {
+        versionNegotiator = new StandardVersionNegotiator(2, 1);
+        versionNegotiator.setVersion(version);
     }
 
     @Override
@@ -50,13 +98,23 @@ public class StandardFlowFileCodec implements FlowFileCodec {
         final DataOutputStream out = new DataOutputStream(encodedOut);
 
         final Map<String, String> attributes = dataPacket.getAttributes();
-        out.writeInt(attributes.size());
-        for (final Map.Entry<String, String> entry : attributes.entrySet()) {
-            writeString(entry.getKey(), out);
-            writeString(entry.getValue(), out);
-        }
+        if (versionNegotiator.getVersion() >= 2) {
+            writeVarLong(attributes.size(), out);
+            for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+                writeDictionaryString(entry.getKey(), true, out);
+                writeDictionaryString(entry.getValue(), false, out);
+            }
+
+            writeVarLong(dataPacket.getSize(), out);
+        } else {
+            out.writeInt(attributes.size());
+            for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+                writeString(entry.getKey(), out);
+                writeString(entry.getValue(), out);
+            }
 
-        out.writeLong(dataPacket.getSize());
+            out.writeLong(dataPacket.getSize());
+        }
 
         final InputStream in = dataPacket.getData();
         StreamUtils.copy(in, encodedOut);
@@ -66,10 +124,11 @@ public class StandardFlowFileCodec implements FlowFileCodec {
     @Override
     public DataPacket decode(final InputStream stream) throws IOException, ProtocolException {
         final DataInputStream in = new DataInputStream(stream);
+        final boolean dictionaryEncoded = versionNegotiator.getVersion() >= 2;
 
         final int numAttributes;
         try {
-            numAttributes = in.readInt();
+            numAttributes = dictionaryEncoded ? readVarInt(in) : in.readInt();
         } catch (final EOFException e) {
             // we're out of data.
             return null;
@@ -83,16 +142,23 @@ public class StandardFlowFileCodec implements FlowFileCodec {
 
         final Map<String, String> attributes = new HashMap<>(numAttributes);
         for (int i = 0; i < numAttributes; i++) {
-            final String attrName = readString(in);
-            final String attrValue = readString(in);
+            final String attrName = dictionaryEncoded ? readDictionaryString(in) : readString(in);
+            final String attrValue = dictionaryEncoded ? readDictionaryString(in) : readString(in);
             attributes.put(attrName, attrValue);
         }
 
-        final long numBytes = in.readLong();
+        final long numBytes = dictionaryEncoded ? readVarLong(in) : in.readLong();
 
         return new StandardDataPacket(attributes, stream, numBytes);
     }
 
+    @Override
+    public void reset() {
+        encodeDictionary.clear();
+        valuesSeenOnce.clear();
+        decodeDictionary.clear();
+    }
+
     private void writeString(final String val, final DataOutputStream out) throws IOException {
         final byte[] bytes = val.getBytes("UTF-8");
         out.writeInt(bytes.length);
@@ -106,6 +172,91 @@ public class StandardFlowFileCodec implements FlowFileCodec {
         return new String(bytes, "UTF-8");
     }
 
+    private void writeDictionaryString(final String val, final boolean alwaysAdd, final DataOutputStream out) throws IOException {
+        final Integer index = encodeDictionary.get(val);
+        if (index != null) {
+            writeVarLong(FIRST_REFERENCE + index, out);
+            return;
+        }
+
+        boolean add = encodeDictionary.size() < MAX_DICTIONARY_SIZE && val.length() <= MAX_DICTIONARY_STRING_LENGTH;
+        if (add && !alwaysAdd && !valuesSeenOnce.remove(val)) {
+            // don't let values that are never repeated, such as UUIDs, grow the set without bound
+            if (valuesSeenOnce.size() >= MAX_DICTIONARY_SIZE) {
+                valuesSeenOnce.clear();
+            }
+            valuesSeenOnce.add(val);
+            add = false;
+        }
+
+        if (add) {
+            encodeDictionary.put(val, encodeDictionary.size());
+        }
+
+        final byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(add ? LITERAL_ADDED : LITERAL, out);
+        writeVarLong(bytes.length, out);
+        out.write(bytes);
+    }
+
+    private String readDictionaryString(final DataInputStream in) throws IOException {
+        final int tag = readVarInt(in);
+        if (tag >= FIRST_REFERENCE) {
+            final int index = tag - FIRST_REFERENCE;
+            if (index >= decodeDictionary.size()) {
+                throw new ProtocolException("Attribute dictionary reference " + index + " is invalid; the dictionary has only " + decodeDictionary.size() + " entries");
+            }
+            return decodeDictionary.get(index);
+        }
+
+        final int numBytes = readVarInt(in);
+        final byte[] bytes = new byte[numBytes];
+        StreamUtils.fillBuffer(in, bytes, true);
+        final String val = new String(bytes, StandardCharsets.UTF_8);
+
+        if (tag == LITERAL_ADDED) {
+            if (decodeDictionary.size() >= MAX_DICTIONARY_SIZE) {
+                throw new ProtocolException("Attribute dictionary exceeds the maximum of " + MAX_DICTIONARY_SIZE + " entries");
+            }
+            decodeDictionary.add(val);
+        }
+        return val;
+    }
+
+    private void writeVarLong(final long value, final DataOutputStream out) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    private long readVarLong(final DataInputStream in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new ProtocolException("Malformed variable-length integer");
+    }
+
+    private int readVarInt(final DataInputStream in) throws IOException {
+        final long value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new ProtocolException("Expected a non-negative integer but got " + value);
+        }
+        return (int) value;
+    }
+
     @Override
     public List<Integer> getSupportedVersions() {
         return versionNegotiator.getSupportedVersions();
@@ -0,0 +1,467 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.remote.io.socket.multiplex;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.apache.nifi.remote.RemoteResourceInitiator;
+import org.apache.nifi.remote.StandardVersionNegotiator;
+import org.apache.nifi.remote.VersionNegotiator;
+import org.apache.nifi.remote.VersionedRemoteResource;
+import org.apache.nifi.remote.exception.HandshakeException;
+import org.apache.nifi.remote.exception.ProtocolException;
+import org.apache.nifi.remote.protocol.CommunicationsSession;
+import org.apache.nifi.stream.io.StreamUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Carries any number of {@link MultiplexedStream}s over a single RAW socket Site-to-Site connection. Each stream
+ * behaves as a connection of its own: it begins with the usual magic bytes and protocol negotiation, and then carries
+ * handshakes, requests and transactions exactly as a dedicated connection would, so that a transaction on one stream
+ * can stream its data while a transaction on another stream is waiting for its confirmation.
+ * </p>
+ *
+ * <p>
+ * The connection is opened by sending {@link #MAGIC_BYTES} in place of the usual magic bytes, followed by a negotiation
+ * of the version of this resource. From then on, everything is sent in frames consisting of a one-byte frame type, a
+ * four-byte stream identifier and a four-byte length:
+ * </p>
+ *
+ * <ul>
+ * <li>An OPEN frame carries no payload and opens a stream. Only the side that initiated the connection opens streams,
+ * each with an identifier greater than any it has used before, and no more than {@link #MAX_CONCURRENT_STREAMS} at a
+ * time. The accepting side answers an OPEN frame that would exceed that limit with a CLOSE frame for the stream.</li>
+ * <li>A DATA frame carries the given number of bytes for a stream.</li>
+ * <li>A WINDOW_UPDATE frame carries no payload; its length is the number of bytes that the receiver of a stream has
+ * consumed since its last update, which the sender of that stream may now send in addition to its initial window of
+ * {@link #STREAM_WINDOW_SIZE} bytes. This bounds the data that is buffered for any one stream, so that a stream whose
+ * reader falls behind never holds up the others.</li>
+ * <li>A CLOSE frame carries no payload and indicates that the sender has closed the stream.</li>
+ * </ul>
+ *
+ * <p>
+ * Frames are read either by a thread of the connection's own, started by {@link #start()}, which suits the side that
+ * initiates the connection and shares it among all of its transactions with the remote instance, or by calling
+ * {@link #readAvailableFrames()} whenever data arrives, which allows the side that accepts connections to service
+ * them from a selector without a thread per connection.
+ * </p>
+ */
+public class MultiplexedConnection implements VersionedRemoteResource, Closeable {
+
+    public static final String RESOURCE_NAME = "SocketFlowFileMultiplexer";
+
+    /**
+     * Sent by the initiator of a multiplexed connection in place of {@link CommunicationsSession#MAGIC_BYTES}. A remote
+     * instance that does not support multiplexed connections closes the connection upon receiving them.
+     */
+    public static final byte[] MAGIC_BYTES = {(byte) 'N', (byte) 'i', (byte) 'F', (byte) 'm'};
+
+    /**
+     * The maximum number of bytes carried by a single DATA frame
+     */
+    public static final int MAX_FRAME_SIZE = 64 * 1024;
+
+    /**
+     * The number of bytes that may be sent on a stream before the receiver acknowledges that it has consumed them
+     */
+    public static final int STREAM_WINDOW_SIZE = 1024 * 1024;
+
+    /**
+     * The maximum number of streams that may be open over a connection at once. Because each stream may buffer up to
+     * {@link #STREAM_WINDOW_SIZE} bytes, this bounds the memory that a remote instance can cause to be allocated for its
+     * connection.
+     */
+    public static final int MAX_CONCURRENT_STREAMS = 32;
+
+    private static final int FRAME_DATA = 1;
+    private static final int FRAME_WINDOW_UPDATE = 2;
+    private static final int FRAME_CLOSE = 3;
+    private static final int FRAME_OPEN = 4;
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiplexedConnection.class);
+
+    private final CommunicationsSession session;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final String description;
+    private final Consumer<MultiplexedStream> streamAcceptor;
+    private final VersionNegotiator versionNegotiator = new StandardVersionNegotiator(1);
+
+    private final ConcurrentMap<Integer, MultiplexedStream> streams = new ConcurrentHashMap<>();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final Object writeLock = new Object();
+
+    // guarded by writeLock
+    private int nextStreamId = 1;
+
+    // only accessed while reading frames, which happens on one thread at a time
+    private int highestAcceptedStreamId = 0;
+
+    /**
+     * Creates a multiplexed connection over the given session, whose magic bytes and version have already been
+     * negotiated. Call {@link #start()} to begin reading frames.
+     *
+     * @param session the session to carry the streams over
+     * @param description a description of the remote end of the session, for logging
+     * @param streamAcceptor if not <code>null</code>, the remote instance may open streams, and each one that it opens
+     *            is handed to this acceptor on the thread that reads frames, which must therefore not block;
+     *            if <code>null</code>, streams are opened only by calling {@link #openStream()}
+     * @throws IOException if unable to obtain the streams of the session
+     * @see #start()
+     * @see #readAvailableFrames()
+     */
+    public MultiplexedConnection(final CommunicationsSession session, final String description, final Consumer<MultiplexedStream> streamAcceptor) throws IOException {
+        this.session = session;
+        this.description = description;
+        this.streamAcceptor = streamAcceptor;
+        this.in = new DataInputStream(session.getInput().getInputStream());
+        this.out = new DataOutputStream(session.getOutput().getOutputStream());
+    }
+
+    /**
+     * Opens a multiplexed connection over the given session, which must not have been used yet, by sending the
+     * magic bytes of a multiplexed connection and negotiating its version.
+     *
+     * @param session the session to carry the streams over
+     * @param description a description of the remote end of the session, for logging
+     * @return the started connection
+     * @throws IOException if unable to communicate with the remote instance
+     * @throws HandshakeException if the remote instance does not support multiplexed connections
+     */
+    public static MultiplexedConnection initiate(final CommunicationsSession session, final String description) throws IOException {
+        final MultiplexedConnection connection = new MultiplexedConnection(session, description, null);
+        connection.out.write(MAGIC_BYTES);
+        if (RemoteResourceInitiator.initiateResourceNegotiation(connection, connection.in, connection.out) == null) {
+            throw new HandshakeException(description + " does not support multiplexed connections");
+        }
+
+        connection.start();
+        return connection;
+    }
+
+    /**
+     * Starts a daemon thread that reads frames from the connection and dispatches them to their streams for as long as
+     * the connection is open. Must not be combined with {@link #readAvailableFrames()}.
+     */
+    public void start() {
+        final Thread readerThread = new Thread(this::readFrames);
+        readerThread.setName("Site-to-Site Multiplexed Connection Reader for " + description);
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * @return a new stream over this connection, or <code>null</code> if {@link #MAX_CONCURRENT_STREAMS} streams are
+     *         already open over it
+     * @throws IOException if the connection is closed
+     */
+    public MultiplexedStream openStream() throws IOException {
+        if (streamAcceptor != null) {
+            throw new IllegalStateException("Streams are opened by the remote end of " + this);
+        }
+        if (closed.get()) {
+            throw new IOException(this + " is closed");
+        }
+
+        final MultiplexedStream stream;
+        synchronized (writeLock) {
+            // streams are only removed concurrently, so the limit cannot be exceeded once it has been checked under the lock
+            if (streams.size() >= MAX_CONCURRENT_STREAMS) {
+                return null;
+            }
+
+            // identifiers are allocated and announced under the same lock so that the remote end sees them in increasing order
+            stream = new MultiplexedStream(this, nextStreamId++);
+            stream.setUserDn(session.getUserDn());
+            streams.put(stream.getStreamId(), stream);
+
+            try {
+                writeControlFrame(FRAME_OPEN, stream.getStreamId(), 0);
+            } catch (final IOException e) {
+                streams.remove(stream.getStreamId());
+                throw e;
+            }
+        }
+
+        // the connection may have been closed after it was checked, in which case nothing else will close the stream
+        if (closed.get()) {
+            stream.connectionClosed();
+            throw new IOException(this + " is closed");
+        }
+        return stream;
+    }
+
+    /**
+     * @return the number of streams that are currently open over this connection
+     */
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    public boolean isClosed() {
+        return closed.get() || session.isClosed();
+    }
+
+    /**
+     * Reads the frames that have arrived on the connection and dispatches them to their streams, returning once no
+     * further data is waiting. This is intended to be called whenever a selector finds the underlying channel
+     * readable, and must be called by only one thread at a time. Must not be combined with {@link #start()}.
+     *
+     * @return <code>true</code> if the connection is still open, <code>false</code> if it has been closed, either by
+     *         the remote instance or because it could not be read from
+     */
+    public boolean readAvailableFrames() {
+        try {
+            do {
+                final int frameType;
+                try {
+                    frameType = in.read();
+                } catch (final SocketTimeoutException e) {
+                    // the channel was readable without carrying a frame, as can happen with TLS; wait for more data
+                    return !closed.get();
+                }
+
+                if (!readFrame(frameType)) {
+                    close();
+                    return false;
+                }
+            } while (!closed.get() && session.isDataAvailable());
+        } catch (final IOException e) {
+            logReadFailure(e);
+            close();
+            return false;
+        }
+
+        return !closed.get();
+    }
+
+    private void readFrames() {
+        try {
+            while (!closed.get()) {
+                final int frameType;
+                try {
+                    frameType = in.read();
+                } catch (final SocketTimeoutException e) {
+                    // the connection is merely idle; a timeout part way through a frame, below, is fatal
+                    continue;
+                }
+
+                if (!readFrame(frameType)) {
+                    break;
+                }
+            }
+        } catch (final IOException e) {
+            logReadFailure(e);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Reads the remainder of a frame whose type has been read and dispatches it
+     *
+     * @param frameType the type of the frame, or -1 if the end of the stream was reached
+     * @return <code>false</code> if the remote instance has closed the connection
+     * @throws IOException if unable to read the frame, or if the frame is invalid
+     */
+    private boolean readFrame(final int frameType) throws IOException {
+        if (frameType < 0) {
+            logger.debug("{} closed by remote instance", this);
+            return false;
+        }
+
+        final int streamId = in.readInt();
+        final int length = in.readInt();
+        switch (frameType) {
+            case FRAME_OPEN:
+                acceptStream(streamId);
+                break;
+            case FRAME_DATA:
+                receiveData(streamId, length);
+                break;
+            case FRAME_WINDOW_UPDATE: {
+                final MultiplexedStream stream = streams.get(streamId);
+                if (stream != null) {
+                    stream.addSendWindow(length);
+                }
+                break;
+            }
+            case FRAME_CLOSE: {
+                final MultiplexedStream stream = streams.remove(streamId);
+                if (stream != null) {
+                    stream.remoteClosed();
+                }
+                break;
+            }
+            default:
+                throw new ProtocolException("Received unknown frame type " + frameType + " from " + description);
+        }
+
+        return true;
+    }
+
+    private void logReadFailure(final IOException e) {
+        if (!closed.get()) {
+            logger.warn("{} failed to read from remote instance due to {}; closing connection", this, e.toString());
+            if (logger.isDebugEnabled()) {
+                logger.warn("", e);
+            }
+        }
+    }
+
+    private void receiveData(final int streamId, final int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new ProtocolException("Received frame of " + length + " bytes from " + description + "; frames may not exceed " + MAX_FRAME_SIZE + " bytes");
+        }
+
+        final byte[] payload = new byte[length];
+        StreamUtils.fillBuffer(in, payload, true);
+
+        // data for a stream that has already been closed on this side is discarded
+        final MultiplexedStream stream = streams.get(streamId);
+        if (stream != null) {
+            stream.receive(payload);
+        }
+    }
+
+    private void acceptStream(final int streamId) throws IOException {
+        if (streamAcceptor == null) {
+            throw new ProtocolException(description + " attempted to open stream " + streamId + " but only this side of " + this + " may open streams");
+        }
+        if (streamId <= highestAcceptedStreamId) {
+            throw new ProtocolException(description + " attempted to open stream " + streamId + " but has already opened stream " + highestAcceptedStreamId);
+        }
+
+        highestAcceptedStreamId = streamId;
+
+        // The side that opens streams stops counting a stream no earlier than this side does, whichever side closes it,
+        // so a remote instance that enforces the limit when opening streams never has a stream rejected here.
+        if (streams.size() >= MAX_CONCURRENT_STREAMS) {
+            logger.warn("{} attempted to open more than {} concurrent streams over {}; rejecting stream {}", description, MAX_CONCURRENT_STREAMS, this, streamId);
+            writeControlFrame(FRAME_CLOSE, streamId, 0);
+            return;
+        }
+
+        final MultiplexedStream stream = new MultiplexedStream(this, streamId);
+        stream.setUserDn(session.getUserDn());
+        streams.put(streamId, stream);
+        streamAcceptor.accept(stream);
+    }
+
+    void writeData(final int streamId, final byte[] b, final int off, final int len) throws IOException {
+        synchronized (writeLock) {
+            if (closed.get()) {
+                throw new IOException(this + " is closed");
+            }
+
+            out.writeByte(FRAME_DATA);
+            out.writeInt(streamId);
+            out.writeInt(len);
+            out.write(b, off, len);
+            out.flush();
+        }
+    }
+
+    void writeWindowUpdate(final int streamId, final int bytesConsumed) throws IOException {
+        writeControlFrame(FRAME_WINDOW_UPDATE, streamId, bytesConsumed);
+    }
+
+    void streamClosed(final MultiplexedStream stream) {
+        // if the stream is no longer registered, the remote instance has closed it already
+        if (streams.remove(stream.getStreamId()) == null || closed.get()) {
+            return;
+        }
+
+        try {
+            writeControlFrame(FRAME_CLOSE, stream.getStreamId(), 0);
+        } catch (final IOException e) {
+            logger.debug("{} failed to notify remote instance that {} is closed due to {}", this, stream, e.toString());
+        }
+    }
+
+    private void writeControlFrame(final int frameType, final int streamId, final int length) throws IOException {
+        synchronized (writeLock) {
+            if (closed.get()) {
+                throw new IOException(this + " is closed");
+            }
+
+            out.writeByte(frameType);
+            out.writeInt(streamId);
+            out.writeInt(length);
+            out.flush();
+        }
+    }
+
+    /**
+     * Closes the connection and every stream that is open over it
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        final List<MultiplexedStream> openStreams = new ArrayList<>(streams.values());
+        streams.clear();
+        for (final MultiplexedStream stream : openStreams) {
+            stream.connectionClosed();
+        }
+
+        try {
+            session.close();
+        } catch (final IOException e) {
+            logger.debug("{} failed to close cleanly due to {}", this, e.toString());
+        }
+    }
+
+    /**
+     * Interrupts every stream of this connection, as well as the connection itself
+     */
+    public void interrupt() {
+        for (final MultiplexedStream stream : streams.values()) {
+            stream.interrupt();
+        }
+        session.interrupt();
+    }
+
+    @Override
+    public VersionNegotiator getVersionNegotiator() {
+        return versionNegotiator;
+    }
+
+    @Override
+    public String getResourceName() {
+        return RESOURCE_NAME;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiplexedConnection[" + description + "]";
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.remote.io.socket.multiplex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.nifi.remote.AbstractCommunicationsSession;
+import org.apache.nifi.remote.exception.ProtocolException;
+import org.apache.nifi.remote.exception.TransmissionDisabledException;
+import org.apache.nifi.remote.io.InterruptableInputStream;
+import org.apache.nifi.remote.io.InterruptableOutputStream;
+import org.apache.nifi.remote.protocol.CommunicationsInput;
+import org.apache.nifi.remote.protocol.CommunicationsOutput;
+
+/**
+ * A logical connection that is carried over a {@link MultiplexedConnection}. Data written to the stream is sent in
+ * frames of up to {@link MultiplexedConnection#MAX_FRAME_SIZE} bytes whenever the stream is flushed or its buffer is
+ * full; data received for the stream is buffered until it is read.
+ */
+public class MultiplexedStream extends AbstractCommunicationsSession {
+
+    private final MultiplexedConnection connection;
+    private final int streamId;
+    private final StreamInput input;
+    private final StreamOutput output;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition dataReceived = lock.newCondition();
+    private final Condition windowAvailable = lock.newCondition();
+
+    // guarded by lock
+    private final Deque<byte[]> received = new ArrayDeque<>();
+    private int receivedOffset = 0;
+    private int bytesBuffered = 0;
+    private int sendWindow = MultiplexedConnection.STREAM_WINDOW_SIZE;
+    private boolean remoteClosed = false;
+    private Runnable dataListener;
+
+    private volatile boolean closed = false;
+    private volatile boolean connectionClosed = false;
+    private volatile boolean interrupted = false;
+    private volatile int timeoutMillis = 30000;
+
+    MultiplexedStream(final MultiplexedConnection connection, final int streamId) {
+        this.connection = connection;
+        this.streamId = streamId;
+        this.input = new StreamInput();
+        this.output = new StreamOutput();
+    }
+
+    int getStreamId() {
+        return streamId;
+    }
+
+    /**
+     * Registers a callback that is run once, on the thread that reads from the connection, as soon as data is available
+     * to be read from this stream or the stream is closed. If either is already the case, the callback is run
+     * immediately on the calling thread.
+     *
+     * @param listener the callback to run; it must not block
+     */
+    public void notifyWhenDataAvailable(final Runnable listener) {
+        final boolean ready;
+        lock.lock();
+        try {
+            ready = bytesBuffered > 0 || remoteClosed || closed || connectionClosed;
+            dataListener = ready ? null : listener;
+        } finally {
+            lock.unlock();
+        }
+
+        if (ready) {
+            listener.run();
+        }
+    }
+
+    void receive(final byte[] data) throws ProtocolException {
+        final Runnable listener;
+        lock.lock();
+        try {
+            if (bytesBuffered + data.length > MultiplexedConnection.STREAM_WINDOW_SIZE) {
+                throw new ProtocolException("Remote instance sent more data on " + this + " than allowed by its window of "
+                    + MultiplexedConnection.STREAM_WINDOW_SIZE + " bytes");
+            }
+
+            received.addLast(data);
+            bytesBuffered += data.length;
+            dataReceived.signalAll();
+            listener = takeDataListener();
+        } finally {
+            lock.unlock();
+        }
+
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    void addSendWindow(final int bytes) {
+        lock.lock();
+        try {
+            sendWindow += bytes;
+            windowAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void remoteClosed() {
+        final Runnable listener;
+        lock.lock();
+        try {
+            remoteClosed = true;
+            dataReceived.signalAll();
+            windowAvailable.signalAll();
+            listener = takeDataListener();
+        } finally {
+            lock.unlock();
+        }
+
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    void connectionClosed() {
+        connectionClosed = true;
+
+        final Runnable listener;
+        lock.lock();
+        try {
+            dataReceived.signalAll();
+            windowAvailable.signalAll();
+            listener = takeDataListener();
+        } finally {
+            lock.unlock();
+        }
+
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private Runnable takeDataListener() {
+        final Runnable listener = dataListener;
+        dataListener = null;
+        return listener;
+    }
+
+    private int readBuffered(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        int bytesRead = 0;
+        lock.lock();
+        try {
+            long nanosRemaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (bytesBuffered == 0) {
+                if (remoteClosed) {
+                    return -1;
+                }
+                nanosRemaining = await(dataReceived, nanosRemaining);
+            }
+
+            while (bytesRead < len && bytesBuffered > 0) {
+                final byte[] chunk = received.peekFirst();
+                final int toCopy = Math.min(len - bytesRead, chunk.length - receivedOffset);
+                System.arraycopy(chunk, receivedOffset, b, off + bytesRead, toCopy);
+                bytesRead += toCopy;
+                bytesBuffered -= toCopy;
+                receivedOffset += toCopy;
+                if (receivedOffset == chunk.length) {
+                    received.removeFirst();
+                    receivedOffset = 0;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        input.consumed(bytesRead);
+        return bytesRead;
+    }
+
+    private void writeFrames(final byte[] b, final int off, final int len) throws IOException {
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            final int frameLength;
+            lock.lock();
+            try {
+                long nanosRemaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+                while (sendWindow == 0) {
+                    if (remoteClosed) {
+                        throw new IOException(this + " was closed by the remote instance");
+                    }
+                    nanosRemaining = await(windowAvailable, nanosRemaining);
+                }
+                if (remoteClosed) {
+                    throw new IOException(this + " was closed by the remote instance");
+                }
+
+                frameLength = Math.min(remaining, Math.min(sendWindow, MultiplexedConnection.MAX_FRAME_SIZE));
+                sendWindow -= frameLength;
+            } finally {
+                lock.unlock();
+            }
+
+            connection.writeData(streamId, b, offset, frameLength);
+            output.written(frameLength);
+            offset += frameLength;
+            remaining -= frameLength;
+        }
+    }
+
+    // must be called while holding the lock
+    private long await(final Condition condition, final long nanosRemaining) throws IOException {
+        if (interrupted) {
+            throw new TransmissionDisabledException();
+        }
+        if (closed || connectionClosed) {
+            throw new IOException(this + " is closed");
+        }
+        if (nanosRemaining <= 0L) {
+            throw new SocketTimeoutException("Timed out waiting for " + this);
+        }
+
+        try {
+            return condition.awaitNanos(nanosRemaining);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + this);
+        }
+    }
+
+    private int getBytesBuffered() {
+        lock.lock();
+        try {
+            return bytesBuffered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CommunicationsInput getInput() {
+        return input;
+    }
+
+    @Override
+    public CommunicationsOutput getOutput() {
+        return output;
+    }
+
+    @Override
+    public void setTimeout(final int millis) throws IOException {
+        this.timeoutMillis = millis;
+    }
+
+    @Override
+    public int getTimeout() throws IOException {
+        return timeoutMillis;
+    }
+
+    @Override
+    public boolean isDataAvailable() {
+        try {
+            return input.interruptableIn.available() > 0;
+        } catch (final Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return output.getBytesWritten();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return input.getBytesRead();
+    }
+
+    @Override
+    public void interrupt() {
+        interrupted = true;
+        input.interruptableIn.interrupt();
+        output.interruptableOut.interrupt();
+
+        lock.lock();
+        try {
+            dataReceived.signalAll();
+            windowAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        if (closed || connectionClosed) {
+            return true;
+        }
+
+        lock.lock();
+        try {
+            return remoteClosed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        lock.lock();
+        try {
+            received.clear();
+            receivedOffset = 0;
+            bytesBuffered = 0;
+            dataReceived.signalAll();
+            windowAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        connection.streamClosed(this);
+    }
+
+    @Override
+    public String toString() {
+        return "MultiplexedStream[id=" + streamId + ", " + connection + "]";
+    }
+
+    private class StreamInput implements CommunicationsInput {
+        private final InterruptableInputStream interruptableIn;
+        private int bytesSinceWindowUpdate = 0;
+        private volatile long bytesRead = 0L;
+
+        private StreamInput() {
+            final InputStream streamIn = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    final byte[] b = new byte[1];
+                    final int len = read(b, 0, 1);
+                    return len < 0 ? -1 : b[0] & 0xFF;
+                }
+
+                @Override
+                public int read(final byte[] b, final int off, final int len) throws IOException {
+                    return readBuffered(b, off, len);
+                }
+
+                @Override
+                public int available() {
+                    return getBytesBuffered();
+                }
+            };
+            interruptableIn = new InterruptableInputStream(new BufferedInputStream(streamIn));
+        }
+
+        private void consumed(final int bytes) throws IOException {
+            bytesRead += bytes;
+            bytesSinceWindowUpdate += bytes;
+            if (bytesSinceWindowUpdate >= MultiplexedConnection.STREAM_WINDOW_SIZE / 2 && !closed) {
+                connection.writeWindowUpdate(streamId, bytesSinceWindowUpdate);
+                bytesSinceWindowUpdate = 0;
+            }
+        }
+
+        @Override
+        public void consume() throws IOException {
+            lock.lock();
+            try {
+                received.clear();
+                receivedOffset = 0;
+                bytesBuffered = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return interruptableIn;
+        }
+
+        @Override
+        public long getBytesRead() {
+            return bytesRead;
+        }
+    }
+
+    private class StreamOutput implements CommunicationsOutput {
+        private final InterruptableOutputStream interruptableOut;
+        private volatile long bytesWritten = 0L;
+
+        private StreamOutput() {
+            final OutputStream streamOut = new OutputStream() {
+                @Override
+                public void write(final int b) throws IOException {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(final byte[] b, final int off, final int len) throws IOException {
+                    writeFrames(b, off, len);
+                }
+            };
+            interruptableOut = new InterruptableOutputStream(new BufferedOutputStream(streamOut, MultiplexedConnection.MAX_FRAME_SIZE));
+        }
+
+        private void written(final int bytes) {
+            bytesWritten += bytes;
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            return interruptableOut;
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+    }
+}
@@ -55,5 +55,11 @@ public enum HandshakeProperty {
      * client when pulling data. This property was introduced in version 5 of
      * the protocol. Value is in milliseconds.
      */
-    BATCH_DURATION;
+    BATCH_DURATION,
+    /**
+     * The name of the CompressionAlgorithm to compress the contents of
+     * FlowFiles with, if GZIP is true. If not specified, DEFLATE is used. This
+     * property was introduced in version 7 of the protocol.
+     */
+    COMPRESSION_ALGORITHM;
 }
@@ -22,6 +22,7 @@ import org.apache.nifi.remote.AbstractTransaction;
 import org.apache.nifi.remote.Peer;
 import org.apache.nifi.remote.TransferDirection;
 import org.apache.nifi.remote.codec.StandardFlowFileCodec;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
 import org.apache.nifi.remote.io.http.HttpCommunicationsSession;
 import org.apache.nifi.remote.protocol.Response;
 import org.apache.nifi.remote.protocol.ResponseCode;
@@ -41,7 +42,14 @@ public class HttpClientTransaction extends AbstractTransaction {
 
     public HttpClientTransaction(final int protocolVersion, final Peer peer, TransferDirection direction,
                                  final boolean useCompression, final String portId, int penaltyMillis, EventReporter eventReporter) throws IOException {
-        super(peer, direction, useCompression, new StandardFlowFileCodec(), eventReporter, protocolVersion, penaltyMillis, portId);
+        this(protocolVersion, peer, direction, useCompression, CompressionAlgorithm.DEFLATE, portId, penaltyMillis, eventReporter);
+    }
+
+    public HttpClientTransaction(final int protocolVersion, final Peer peer, TransferDirection direction, final boolean useCompression,
+                                 final CompressionAlgorithm compressionAlgorithm, final String portId, int penaltyMillis, EventReporter eventReporter) throws IOException {
+        // the codec and the compression algorithm are not negotiated over HTTP, but are implied by the version of the protocol
+        super(peer, direction, useCompression, protocolVersion >= 7 ? compressionAlgorithm : CompressionAlgorithm.DEFLATE,
+            new StandardFlowFileCodec(protocolVersion >= 7 ? 2 : 1), eventReporter, protocolVersion, penaltyMillis, portId);
     }
 
     public void initialize(SiteToSiteRestApiClient apiUtil, String transactionUrl) throws IOException {
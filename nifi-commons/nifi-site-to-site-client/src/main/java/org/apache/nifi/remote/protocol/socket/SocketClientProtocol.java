@@ -30,6 +30,7 @@ import org.apache.nifi.remote.codec.FlowFileCodec;
 import org.apache.nifi.remote.codec.StandardFlowFileCodec;
 import org.apache.nifi.remote.exception.HandshakeException;
 import org.apache.nifi.remote.exception.ProtocolException;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
 import org.apache.nifi.remote.protocol.ClientProtocol;
 import org.apache.nifi.remote.protocol.CommunicationsSession;
 import org.apache.nifi.remote.protocol.HandshakeProperty;
@@ -52,10 +53,12 @@ import java.util.concurrent.TimeUnit;
 public class SocketClientProtocol implements ClientProtocol {
 
     // Version 6 added to support Zero-Master Clustering, which was introduced in NiFi 1.0.0
-    private final VersionNegotiator versionNegotiator = new StandardVersionNegotiator(6, 5, 4, 3, 2, 1);
+    // Version 7 added to support negotiating the compression algorithm and version 2 of the StandardFlowFileCodec
+    private final VersionNegotiator versionNegotiator = new StandardVersionNegotiator(7, 6, 5, 4, 3, 2, 1);
 
     private RemoteDestination destination;
     private boolean useCompression = false;
+    private CompressionAlgorithm compressionAlgorithm = CompressionAlgorithm.DEFLATE;
 
     private String commsIdentifier;
     private boolean handshakeComplete = false;
@@ -96,6 +99,10 @@ public class SocketClientProtocol implements ClientProtocol {
         this.useCompression = destination.isUseCompression();
     }
 
+    public void setCompressionAlgorithm(final CompressionAlgorithm compressionAlgorithm) {
+        this.compressionAlgorithm = compressionAlgorithm;
+    }
+
     public void setTimeout(final int timeoutMillis) {
         this.timeoutMillis = timeoutMillis;
     }
@@ -133,6 +140,10 @@ public class SocketClientProtocol implements ClientProtocol {
             }
         }
 
+        if (useCompression && versionNegotiator.getVersion() >= 7) {
+            properties.put(HandshakeProperty.COMPRESSION_ALGORITHM, compressionAlgorithm.name());
+        }
+
         final CommunicationsSession commsSession = peer.getCommunicationsSession();
         commsSession.setTimeout(timeoutMillis);
         final DataInputStream dis = new DataInputStream(commsSession.getInput().getInputStream());
@@ -249,7 +260,8 @@ public class SocketClientProtocol implements ClientProtocol {
 
         RequestType.NEGOTIATE_FLOWFILE_CODEC.writeRequestType(dos);
 
-        FlowFileCodec codec = new StandardFlowFileCodec();
+        // older versions of the protocol cannot accept a proposal of a codec version that they do not know
+        FlowFileCodec codec = new StandardFlowFileCodec(versionNegotiator.getVersion() >= 7 ? 2 : 1);
         try {
             codec = (FlowFileCodec) RemoteResourceInitiator.initiateResourceNegotiation(codec, dis, dos);
         } catch (HandshakeException e) {
@@ -270,7 +282,11 @@ public class SocketClientProtocol implements ClientProtocol {
         }
 
         return new SocketClientTransaction(versionNegotiator.getVersion(), destination.getIdentifier(), peer, codec,
-                direction, useCompression, (int) destination.getYieldPeriod(TimeUnit.MILLISECONDS), eventReporter);
+                direction, useCompression, getNegotiatedCompressionAlgorithm(), (int) destination.getYieldPeriod(TimeUnit.MILLISECONDS), eventReporter);
+    }
+
+    private CompressionAlgorithm getNegotiatedCompressionAlgorithm() {
+        return versionNegotiator.getVersion() >= 7 ? compressionAlgorithm : CompressionAlgorithm.DEFLATE;
     }
 
     @Override
@@ -63,6 +63,7 @@ import org.apache.nifi.remote.exception.HandshakeException;
 import org.apache.nifi.remote.exception.PortNotRunningException;
 import org.apache.nifi.remote.exception.ProtocolException;
 import org.apache.nifi.remote.exception.UnknownPortException;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
 import org.apache.nifi.remote.io.http.HttpCommunicationsSession;
 import org.apache.nifi.remote.io.http.HttpInput;
 import org.apache.nifi.remote.io.http.HttpOutput;
@@ -124,6 +125,7 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_BATCH_COUNT;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_BATCH_DURATION;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_BATCH_SIZE;
+import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_COMPRESSION_ALGORITHM;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_REQUEST_EXPIRATION;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_USE_COMPRESSION;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.LOCATION_HEADER_NAME;
@@ -156,12 +158,14 @@ public class SiteToSiteRestApiClient implements Closeable {
     private CloseableHttpAsyncClient httpAsyncClient;
 
     private boolean compress = false;
+    private CompressionAlgorithm compressionAlgorithm = CompressionAlgorithm.DEFLATE;
     private long requestExpirationMillis = 0;
     private int serverTransactionTtl = 0;
     private int batchCount = 0;
     private long batchSize = 0;
     private long batchDurationMillis = 0;
-    private TransportProtocolVersionNegotiator transportProtocolVersionNegotiator = new TransportProtocolVersionNegotiator(1);
+    // Version 2 added to support negotiating the compression algorithm and version 2 of the StandardFlowFileCodec
+    private TransportProtocolVersionNegotiator transportProtocolVersionNegotiator = new TransportProtocolVersionNegotiator(2, 1);
 
     private String trustedPeerDn;
     private final ScheduledExecutorService ttlExtendTaskExecutor;
@@ -1008,6 +1012,8 @@ public class SiteToSiteRestApiClient implements Closeable {
     private void setHandshakeProperties(final HttpRequestBase httpRequest) {
         if (compress) {
             httpRequest.setHeader(HANDSHAKE_PROPERTY_USE_COMPRESSION, "true");
+            // servers that only support version 1 of the transport protocol ignore this and use DEFLATE
+            httpRequest.setHeader(HANDSHAKE_PROPERTY_COMPRESSION_ALGORITHM, compressionAlgorithm.name());
         }
 
         if (requestExpirationMillis > 0) {
@@ -1219,6 +1225,10 @@ public class SiteToSiteRestApiClient implements Closeable {
         this.compress = compress;
     }
 
+    public void setCompressionAlgorithm(final CompressionAlgorithm compressionAlgorithm) {
+        this.compressionAlgorithm = compressionAlgorithm;
+    }
+
     public void setRequestExpirationMillis(final long requestExpirationMillis) {
         if (requestExpirationMillis < 0) {
             throw new IllegalArgumentException("requestExpirationMillis can't be a negative value.");
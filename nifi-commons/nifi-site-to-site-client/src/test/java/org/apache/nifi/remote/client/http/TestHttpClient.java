@@ -24,6 +24,7 @@ import org.apache.nifi.remote.client.KeystoreType;
 import org.apache.nifi.remote.client.SiteToSiteClient;
 import org.apache.nifi.remote.codec.StandardFlowFileCodec;
 import org.apache.nifi.remote.exception.HandshakeException;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
 import org.apache.nifi.remote.io.CompressionInputStream;
 import org.apache.nifi.remote.io.CompressionOutputStream;
 import org.apache.nifi.remote.protocol.DataPacket;
@@ -84,6 +85,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.LOCATION_HEADER_NAME;
@@ -113,6 +116,7 @@ public class TestHttpClient {
     private static Set<PeerDTO> peers;
     private static Set<PeerDTO> peersSecure;
     private static String serverChecksum;
+    private static int serverTransportProtocolVersion;
 
     public static class SiteInfoServlet extends HttpServlet {
 
@@ -279,8 +283,9 @@ public class TestHttpClient {
 
             setCommonResponseHeaders(resp, reqProtocolVersion);
 
+            final StandardFlowFileCodec codec = createCodec(req);
             DataPacket dataPacket;
-            while ((dataPacket = readIncomingPacket(req)) != null) {
+            while ((dataPacket = readIncomingPacket(req, codec)) != null) {
                 logger.info("received {}", dataPacket);
                 consumeDataPacket(dataPacket);
             }
@@ -299,10 +304,11 @@ public class TestHttpClient {
             resp.setContentType("application/octet-stream");
             setCommonResponseHeaders(resp, reqProtocolVersion);
 
+            final StandardFlowFileCodec codec = createCodec(req);
             final OutputStream outputStream = getOutputStream(req, resp);
-            writeOutgoingPacket(outputStream);
-            writeOutgoingPacket(outputStream);
-            writeOutgoingPacket(outputStream);
+            writeOutgoingPacket(outputStream, codec);
+            writeOutgoingPacket(outputStream, codec);
+            writeOutgoingPacket(outputStream, codec);
             resp.flushBuffer();
         }
     }
@@ -336,7 +342,7 @@ public class TestHttpClient {
 
             setCommonResponseHeaders(resp, reqProtocolVersion);
 
-            consumeDataPacket(readIncomingPacket(req));
+            consumeDataPacket(readIncomingPacket(req, createCodec(req)));
 
             sleepUntilTestCaseFinish();
 
@@ -351,7 +357,7 @@ public class TestHttpClient {
             resp.setContentType("application/octet-stream");
             setCommonResponseHeaders(resp, reqProtocolVersion);
 
-            writeOutgoingPacket(getOutputStream(req, resp));
+            writeOutgoingPacket(getOutputStream(req, resp), createCodec(req));
 
             sleepUntilTestCaseFinish();
         }
@@ -366,29 +372,40 @@ public class TestHttpClient {
         }
     }
 
-    private static void writeOutgoingPacket(OutputStream outputStream) throws IOException {
+    private static void writeOutgoingPacket(OutputStream outputStream, StandardFlowFileCodec codec) throws IOException {
         final DataPacket packet = new DataPacketBuilder()
                     .contents("Example contents from server.")
                     .attr("Server attr 1", "Server attr 1 value")
                     .attr("Server attr 2", "Server attr 2 value")
                     .build();
-        new StandardFlowFileCodec().encode(packet, outputStream);
+        codec.encode(packet, outputStream);
         outputStream.flush();
     }
 
+    private static StandardFlowFileCodec createCodec(HttpServletRequest req) {
+        return new StandardFlowFileCodec(getNegotiatedProtocolVersion(req) >= 2 ? 2 : 1);
+    }
+
+    private static CompressionAlgorithm getCompressionAlgorithm(HttpServletRequest req) {
+        final String algorithm = req.getHeader(HttpHeaders.HANDSHAKE_PROPERTY_COMPRESSION_ALGORITHM);
+        if (getNegotiatedProtocolVersion(req) < 2 || isEmpty(algorithm)) {
+            return CompressionAlgorithm.DEFLATE;
+        }
+        return CompressionAlgorithm.valueOf(algorithm);
+    }
+
     private static OutputStream getOutputStream(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         OutputStream outputStream = resp.getOutputStream();
         if (Boolean.valueOf(req.getHeader(HttpHeaders.HANDSHAKE_PROPERTY_USE_COMPRESSION))){
-            outputStream = new CompressionOutputStream(outputStream);
+            outputStream = new CompressionOutputStream(outputStream, getCompressionAlgorithm(req).createCompressor());
         }
         return outputStream;
     }
 
-    private static DataPacket readIncomingPacket(HttpServletRequest req) throws IOException {
-        final StandardFlowFileCodec codec = new StandardFlowFileCodec();
+    private static DataPacket readIncomingPacket(HttpServletRequest req, StandardFlowFileCodec codec) throws IOException {
         InputStream inputStream = req.getInputStream();
         if (Boolean.valueOf(req.getHeader(HttpHeaders.HANDSHAKE_PROPERTY_USE_COMPRESSION))){
-            inputStream = new CompressionInputStream(inputStream);
+            inputStream = new CompressionInputStream(inputStream, getCompressionAlgorithm(req).createDecompressor());
         }
 
         return codec.decode(inputStream);
@@ -400,8 +417,13 @@ public class TestHttpClient {
         return Integer.parseInt(reqProtocolVersionStr);
     }
 
+    private static int getNegotiatedProtocolVersion(HttpServletRequest req) {
+        return Math.min(getReqProtocolVersion(req), serverTransportProtocolVersion);
+    }
+
     private static void setCommonResponseHeaders(HttpServletResponse resp, int reqProtocolVersion) {
-        resp.setHeader(PROTOCOL_VERSION, String.valueOf(reqProtocolVersion));
+        // like a real server, confirm the highest version that both sides support
+        resp.setHeader(PROTOCOL_VERSION, String.valueOf(Math.min(reqProtocolVersion, serverTransportProtocolVersion)));
         resp.setHeader(SERVER_SIDE_TRANSACTION_TTL, "3");
     }
 
@@ -597,6 +619,7 @@ public class TestHttpClient {
         System.setProperty("org.slf4j.simpleLogger.log.org.apache.nifi.remote.protocol.http.HttpClientTransaction", "DEBUG");
 
         testCaseFinished = new CountDownLatch(1);
+        serverTransportProtocolVersion = 1;
 
         final PeerDTO peer = new PeerDTO();
         peer.setHostname("localhost");
@@ -1055,6 +1078,50 @@ public class TestHttpClient {
 
     }
 
+    @Test
+    public void testSendSuccessCompressedWithTransportProtocolVersion2() throws Exception {
+        serverTransportProtocolVersion = 2;
+
+        try (
+                SiteToSiteClient client = getDefaultBuilder()
+                        .portName("input-running")
+                        .useCompression(true)
+                        .compressionAlgorithm(CompressionAlgorithm.LZ4)
+                        .build()
+        ) {
+            final Transaction transaction = client.createTransaction(TransferDirection.SEND);
+
+            assertNotNull(transaction);
+
+            // the checksum covers the encoded packets before compression, so compute it with the codec version that the client uses
+            final StandardFlowFileCodec codec = new StandardFlowFileCodec(2);
+            final CRC32 crc = new CRC32();
+            final OutputStream checksumOut = new CheckedOutputStream(new ByteArrayOutputStream(), crc);
+            for (int i = 0; i < 20; i++) {
+                codec.encode(createClientDataPacket(i), checksumOut);
+            }
+            serverChecksum = String.valueOf(crc.getValue());
+
+            for (int i = 0; i < 20; i++) {
+                transaction.send(createClientDataPacket(i));
+            }
+
+            transaction.confirm();
+
+            transaction.complete();
+        }
+
+    }
+
+    private static DataPacket createClientDataPacket(final int index) {
+        return new DataPacketBuilder()
+                .contents("Example contents from client.")
+                .attr("Client attr 1", "Client attr 1 value")
+                .attr("Client attr 2", "Client attr 2 value")
+                .attr("Client index", String.valueOf(index))
+                .build();
+    }
+
     @Test
     public void testSendSlowClientSuccess() throws Exception {
 
@@ -1303,6 +1370,21 @@ public class TestHttpClient {
         }
     }
 
+    @Test
+    public void testReceiveSuccessCompressedWithTransportProtocolVersion2() throws Exception {
+        serverTransportProtocolVersion = 2;
+
+        try (
+                SiteToSiteClient client = getDefaultBuilder()
+                        .portName("output-running")
+                        .useCompression(true)
+                        .compressionAlgorithm(CompressionAlgorithm.LZ4)
+                        .build()
+        ) {
+            testReceive(client);
+        }
+    }
+
     @Test
     public void testReceiveSlowClientSuccess() throws Exception {
 
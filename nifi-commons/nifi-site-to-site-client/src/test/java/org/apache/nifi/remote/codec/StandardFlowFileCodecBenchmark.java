@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.remote.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.nifi.remote.io.CompressionAlgorithm;
+import org.apache.nifi.remote.io.CompressionInputStream;
+import org.apache.nifi.remote.io.CompressionOutputStream;
+import org.apache.nifi.remote.protocol.DataPacket;
+import org.apache.nifi.remote.util.StandardDataPacket;
+import org.apache.nifi.stream.io.StreamUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the CPU time per FlowFile of encoding and decoding a Site-to-Site transaction of small FlowFiles with 30
+ * attributes each, for each version of the StandardFlowFileCodec and each compression algorithm. The data is written
+ * and read the way that a transaction does, with a new compression stream and a running CRC for each FlowFile. Before
+ * running the benchmarks, the main method prints the number of bytes that each combination puts on the wire per
+ * FlowFile; together with the time per FlowFile, this gives the throughput that a link of a given bandwidth can
+ * sustain. This is not run as part of the build; to run it, build the test classes with the 'benchmarks' profile
+ * enabled and execute the main method from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class StandardFlowFileCodecBenchmark {
+
+    private static final int FLOWFILES_PER_TRANSACTION = 100;
+    private static final int ATTRIBUTE_COUNT = 30;
+
+    @State(Scope.Thread)
+    public static class TransactionState {
+        @Param({"1", "2"})
+        private int codecVersion;
+
+        @Param({"NONE", "DEFLATE", "LZ4"})
+        private String compression;
+
+        private final List<Map<String, String>> attributes = new ArrayList<>();
+        private final List<byte[]> contents = new ArrayList<>();
+        private StandardFlowFileCodec codec;
+        private CompressionAlgorithm.Compressor compressor;
+        private CompressionAlgorithm.Decompressor decompressor;
+        private byte[] encoded;
+
+        @Setup
+        public void setup() throws IOException {
+            for (int i = 0; i < FLOWFILES_PER_TRANSACTION; i++) {
+                final Map<String, String> flowFileAttributes = new HashMap<>();
+                flowFileAttributes.put("uuid", UUID.randomUUID().toString());
+                flowFileAttributes.put("filename", "event-" + i + ".json");
+                flowFileAttributes.put("path", "./");
+                flowFileAttributes.put("mime.type", "application/json");
+                flowFileAttributes.put("kafka.topic", "events");
+                flowFileAttributes.put("kafka.partition", String.valueOf(i % 8));
+                flowFileAttributes.put("kafka.offset", String.valueOf(1000000L + i));
+                for (int j = flowFileAttributes.size(); j < ATTRIBUTE_COUNT; j++) {
+                    flowFileAttributes.put("source.attribute." + j, "value for attribute " + j + " of source " + (i % 4));
+                }
+                attributes.add(flowFileAttributes);
+
+                contents.add(("{\"id\":" + i + ",\"type\":\"click\",\"user\":\"user-" + (i % 20) + "\",\"timestamp\":" + (1480000000000L + i * 17)
+                    + ",\"page\":\"/products/" + (i % 50) + "\",\"referrer\":\"https://www.example.com/search?q=item+" + (i % 10) + "\"}")
+                    .getBytes(StandardCharsets.UTF_8));
+            }
+
+            codec = new StandardFlowFileCodec(codecVersion);
+            if (!"NONE".equals(compression)) {
+                compressor = CompressionAlgorithm.valueOf(compression).createCompressor();
+                decompressor = CompressionAlgorithm.valueOf(compression).createDecompressor();
+            }
+
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            encodeTransaction(this, baos);
+            encoded = baos.toByteArray();
+        }
+    }
+
+    private static long encodeTransaction(final TransactionState state, final OutputStream out) throws IOException {
+        final CRC32 crc = new CRC32();
+        state.codec.reset();
+        for (int i = 0; i < FLOWFILES_PER_TRANSACTION; i++) {
+            final byte[] content = state.contents.get(i);
+            final DataPacket dataPacket = new StandardDataPacket(state.attributes.get(i), new ByteArrayInputStream(content), content.length);
+
+            final OutputStream dataOut = state.compressor == null ? out : new CompressionOutputStream(out, state.compressor);
+            final OutputStream checkedOut = new CheckedOutputStream(dataOut, crc);
+            state.codec.encode(dataPacket, checkedOut);
+            if (state.compressor != null) {
+                checkedOut.close();
+            }
+        }
+        return crc.getValue();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLOWFILES_PER_TRANSACTION)
+    public long encode(final TransactionState state) throws IOException {
+        return encodeTransaction(state, new NullOutputStream());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLOWFILES_PER_TRANSACTION)
+    public long decode(final TransactionState state) throws IOException {
+        final CRC32 crc = new CRC32();
+        final byte[] contentBuffer = new byte[1024];
+        final InputStream in = new ByteArrayInputStream(state.encoded);
+        state.codec.reset();
+
+        long total = 0L;
+        for (int i = 0; i < FLOWFILES_PER_TRANSACTION; i++) {
+            final InputStream dataIn = state.decompressor == null ? in : new CompressionInputStream(in, state.decompressor);
+            final DataPacket dataPacket = state.codec.decode(new CheckedInputStream(dataIn, crc));
+            total += StreamUtils.fillBuffer(dataPacket.getData(), contentBuffer, false);
+        }
+        return total + crc.getValue();
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    }
+
+    public static void main(final String[] args) throws IOException, RunnerException {
+        // the size on the wire does not depend on timing, so it is computed once here rather than within the benchmarks
+        for (final int codecVersion : new int[] {1, 2}) {
+            for (final String compression : new String[] {"NONE", "DEFLATE", "LZ4"}) {
+                final TransactionState state = new TransactionState();
+                state.codecVersion = codecVersion;
+                state.compression = compression;
+                state.setup();
+                System.out.printf("Codec version %d with compression %s puts %d bytes per FlowFile on the wire%n",
+                    codecVersion, compression, state.encoded.length / FLOWFILES_PER_TRANSACTION);
+            }
+        }
+
+        final Options options = new OptionsBuilder()
+            .include(StandardFlowFileCodecBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.remote.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.nifi.remote.exception.ProtocolException;
+import org.apache.nifi.remote.protocol.DataPacket;
+import org.apache.nifi.remote.util.StandardDataPacket;
+import org.apache.nifi.stream.io.StreamUtils;
+import org.junit.Test;
+
+public class TestStandardFlowFileCodec {
+
+    private static Map<String, String> createAttributes(final int index) {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put("uuid", UUID.randomUUID().toString());
+        attributes.put("filename", "file-" + index);
+        attributes.put("path", "./");
+        attributes.put("mime.type", "text/plain");
+        attributes.put("empty", "");
+        attributes.put("unicode", "événement 漢字");
+        return attributes;
+    }
+
+    private static byte[] encode(final StandardFlowFileCodec codec, final int count) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            final byte[] content = ("content " + i).getBytes(StandardCharsets.UTF_8);
+            codec.encode(new StandardDataPacket(createAttributes(i), new ByteArrayInputStream(content), content.length), baos);
+        }
+        return baos.toByteArray();
+    }
+
+    private static void verifyDecoded(final StandardFlowFileCodec codec, final InputStream in, final int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            final DataPacket dataPacket = codec.decode(in);
+            final Map<String, String> expected = createAttributes(i);
+            final Map<String, String> actual = dataPacket.getAttributes();
+            assertEquals(expected.size(), actual.size());
+            for (final Map.Entry<String, String> entry : expected.entrySet()) {
+                if (!entry.getKey().equals("uuid")) {
+                    assertEquals(entry.getValue(), actual.get(entry.getKey()));
+                }
+            }
+
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            StreamUtils.copy(dataPacket.getData(), content);
+            assertEquals("content " + i, new String(content.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (final int version : new int[] {1, 2}) {
+            final byte[] encoded = encode(new StandardFlowFileCodec(version), 50);
+
+            final InputStream in = new ByteArrayInputStream(encoded);
+            final StandardFlowFileCodec decoder = new StandardFlowFileCodec(version);
+            verifyDecoded(decoder, in, 50);
+            assertNull(decoder.decode(in));
+        }
+    }
+
+    @Test
+    public void testVersion2IsSmallerForRepeatedAttributes() throws IOException {
+        final int version1Length = encode(new StandardFlowFileCodec(1), 50).length;
+        final int version2Length = encode(new StandardFlowFileCodec(2), 50).length;
+        assertTrue("Expected version 2 to encode " + version1Length + " bytes into less than half, but it took " + version2Length,
+            version2Length < version1Length / 2);
+    }
+
+    @Test
+    public void testResetStartsNewDictionary() throws IOException {
+        final StandardFlowFileCodec encoder = new StandardFlowFileCodec(2);
+        final StandardFlowFileCodec decoder = new StandardFlowFileCodec(2);
+
+        for (int transaction = 0; transaction < 3; transaction++) {
+            encoder.reset();
+            final byte[] encoded = encode(encoder, 10);
+
+            // a decoder that starts from an empty dictionary can decode each transaction on its own
+            decoder.reset();
+            verifyDecoded(decoder, new ByteArrayInputStream(encoded), 10);
+            verifyDecoded(new StandardFlowFileCodec(2), new ByteArrayInputStream(encoded), 10);
+        }
+    }
+
+    @Test
+    public void testInvalidDictionaryReference() throws IOException {
+        // one attribute whose key refers to a dictionary entry that does not exist
+        final byte[] encoded = new byte[] {1, 5};
+        try {
+            new StandardFlowFileCodec(2).decode(new ByteArrayInputStream(encoded));
+            fail("Expected invalid dictionary reference to be rejected");
+        } catch (final ProtocolException expected) {
+        }
+    }
+}
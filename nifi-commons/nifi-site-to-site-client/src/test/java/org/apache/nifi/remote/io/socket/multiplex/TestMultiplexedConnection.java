@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.remote.io.socket.multiplex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.remote.RemoteResourceInitiator;
+import org.apache.nifi.remote.io.socket.SocketChannelCommunicationsSession;
+import org.apache.nifi.remote.protocol.CommunicationsSession;
+import org.apache.nifi.stream.io.StreamUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMultiplexedConnection {
+
+    private ServerSocketChannel serverSocketChannel;
+    private final List<MultiplexedConnection> connections = new ArrayList<>();
+    private final BlockingQueue<MultiplexedStream> acceptedStreams = new LinkedBlockingQueue<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Before
+    public void setup() throws IOException {
+        serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.bind(new InetSocketAddress("localhost", 0));
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        for (final MultiplexedConnection connection : connections) {
+            connection.close();
+        }
+        executor.shutdownNow();
+        serverSocketChannel.close();
+    }
+
+    private CommunicationsSession connect() throws IOException {
+        final SocketChannel socketChannel = SocketChannel.open(serverSocketChannel.getLocalAddress());
+        return new SocketChannelCommunicationsSession(socketChannel);
+    }
+
+    private CommunicationsSession accept() throws IOException {
+        serverSocketChannel.configureBlocking(true);
+        return new SocketChannelCommunicationsSession(serverSocketChannel.accept());
+    }
+
+    /**
+     * @return the initiating side of a connection whose other side hands every stream it accepts to acceptedStreams
+     */
+    private MultiplexedConnection createConnectionPair() throws IOException {
+        final MultiplexedConnection initiator = new MultiplexedConnection(connect(), "initiator", null);
+        final MultiplexedConnection acceptor = new MultiplexedConnection(accept(), "acceptor", acceptedStreams::add);
+        connections.add(initiator);
+        connections.add(acceptor);
+        initiator.start();
+        acceptor.start();
+        return initiator;
+    }
+
+    private MultiplexedStream takeAcceptedStream() throws InterruptedException {
+        final MultiplexedStream stream = acceptedStreams.poll(10, TimeUnit.SECONDS);
+        if (stream == null) {
+            fail("Timed out waiting for stream to be accepted");
+        }
+        return stream;
+    }
+
+    @Test(timeout = 30000)
+    public void testReadAvailableFrames() throws Exception {
+        final MultiplexedConnection initiator = new MultiplexedConnection(connect(), "initiator", null);
+        final MultiplexedConnection acceptor = new MultiplexedConnection(accept(), "acceptor", acceptedStreams::add);
+        connections.add(initiator);
+        connections.add(acceptor);
+        initiator.start();
+
+        final byte[] data = "hello".getBytes("UTF-8");
+        final MultiplexedStream stream = initiator.openStream();
+        final OutputStream out = stream.getOutput().getOutputStream();
+        out.write(data);
+        out.flush();
+
+        // the accepting side reads frames only when it is told that data has arrived, as it is by a selector
+        while (acceptedStreams.isEmpty() || !acceptedStreams.peek().isDataAvailable()) {
+            assertTrue(acceptor.readAvailableFrames());
+        }
+
+        final byte[] received = new byte[data.length];
+        StreamUtils.fillBuffer(takeAcceptedStream().getInput().getInputStream(), received);
+        assertArrayEquals(data, received);
+
+        initiator.close();
+        assertFalse(acceptor.readAvailableFrames());
+        assertTrue(acceptor.isClosed());
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentStreamsLargerThanWindow() throws Exception {
+        final MultiplexedConnection connection = createConnectionPair();
+
+        // echo everything received on each accepted stream
+        executor.submit(() -> {
+            while (true) {
+                final MultiplexedStream stream = acceptedStreams.take();
+                executor.submit(() -> {
+                    final InputStream in = stream.getInput().getInputStream();
+                    final OutputStream out = stream.getOutput().getOutputStream();
+                    final byte[] buffer = new byte[8192];
+                    int len;
+                    while ((len = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, len);
+                        out.flush();
+                    }
+                    stream.close();
+                    return null;
+                });
+            }
+        });
+
+        final int numStreams = 8;
+        final int dataLength = 3 * MultiplexedConnection.STREAM_WINDOW_SIZE + 17;
+        final List<Future<byte[]>> echoes = new ArrayList<>();
+        final List<byte[]> sent = new ArrayList<>();
+        for (int i = 0; i < numStreams; i++) {
+            final byte[] data = new byte[dataLength];
+            new Random(i).nextBytes(data);
+            sent.add(data);
+
+            final MultiplexedStream stream = connection.openStream();
+            executor.submit(() -> {
+                final OutputStream out = stream.getOutput().getOutputStream();
+                out.write(data);
+                out.flush();
+                return null;
+            });
+            echoes.add(executor.submit(() -> {
+                final byte[] echoed = new byte[dataLength];
+                StreamUtils.fillBuffer(stream.getInput().getInputStream(), echoed, true);
+                stream.close();
+                return echoed;
+            }));
+        }
+
+        for (int i = 0; i < numStreams; i++) {
+            assertArrayEquals(sent.get(i), echoes.get(i).get());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testCloseStream() throws Exception {
+        final MultiplexedConnection connection = createConnectionPair();
+
+        final MultiplexedStream stream = connection.openStream();
+        final DataOutputStream out = new DataOutputStream(stream.getOutput().getOutputStream());
+        out.writeUTF("hello");
+        out.flush();
+
+        final MultiplexedStream accepted = takeAcceptedStream();
+        final DataInputStream acceptedIn = new DataInputStream(accepted.getInput().getInputStream());
+        assertEquals("hello", acceptedIn.readUTF());
+
+        // closing one side ends the stream on the other, without affecting other streams of the connection
+        stream.close();
+        assertEquals(-1, acceptedIn.read());
+        assertTrue(accepted.isClosed());
+        assertEquals(0, connection.getStreamCount());
+
+        final MultiplexedStream other = connection.openStream();
+        other.getOutput().getOutputStream().write(7);
+        other.getOutput().getOutputStream().flush();
+        final MultiplexedStream otherAccepted = takeAcceptedStream();
+        assertEquals(7, otherAccepted.getInput().getInputStream().read());
+
+        otherAccepted.close();
+        assertEquals(-1, other.getInput().getInputStream().read());
+        try {
+            other.getOutput().getOutputStream().write(new byte[MultiplexedConnection.MAX_FRAME_SIZE + 1]);
+            fail("Expected write to a stream that was closed by the remote instance to fail");
+        } catch (final IOException expected) {
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testOpenStreamLimit() throws Exception {
+        final MultiplexedConnection connection = createConnectionPair();
+        final List<MultiplexedStream> streams = new ArrayList<>();
+        for (int i = 0; i < MultiplexedConnection.MAX_CONCURRENT_STREAMS; i++) {
+            streams.add(connection.openStream());
+        }
+
+        // no more streams may be opened until one of them is closed
+        assertNull(connection.openStream());
+        streams.get(0).close();
+        final MultiplexedStream stream = connection.openStream();
+        assertNotNull(stream);
+
+        // the remote instance must have accepted every stream, including the one opened after the limit was reached
+        stream.getOutput().getOutputStream().write(7);
+        stream.getOutput().getOutputStream().flush();
+        MultiplexedStream accepted = null;
+        for (int i = 0; i <= MultiplexedConnection.MAX_CONCURRENT_STREAMS; i++) {
+            accepted = takeAcceptedStream();
+        }
+        assertEquals(7, accepted.getInput().getInputStream().read());
+    }
+
+    @Test(timeout = 30000)
+    public void testRejectsStreamsPastLimit() throws Exception {
+        // a misbehaving remote instance that writes frames directly, ignoring the limit on the number of streams
+        final CommunicationsSession rawSession = connect();
+        final MultiplexedConnection acceptor = new MultiplexedConnection(accept(), "acceptor", acceptedStreams::add);
+        connections.add(acceptor);
+        acceptor.start();
+
+        final DataOutputStream rawOut = new DataOutputStream(rawSession.getOutput().getOutputStream());
+        for (int streamId = 1; streamId <= MultiplexedConnection.MAX_CONCURRENT_STREAMS + 1; streamId++) {
+            rawOut.writeByte(4); // OPEN
+            rawOut.writeInt(streamId);
+            rawOut.writeInt(0);
+        }
+        rawOut.flush();
+
+        final DataInputStream rawIn = new DataInputStream(rawSession.getInput().getInputStream());
+        assertEquals(3, rawIn.readByte()); // CLOSE
+        assertEquals(MultiplexedConnection.MAX_CONCURRENT_STREAMS + 1, rawIn.readInt());
+        assertEquals(0, rawIn.readInt());
+
+        assertEquals(MultiplexedConnection.MAX_CONCURRENT_STREAMS, acceptedStreams.size());
+        assertEquals(MultiplexedConnection.MAX_CONCURRENT_STREAMS, acceptor.getStreamCount());
+        assertFalse(acceptor.isClosed());
+        rawSession.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testConnectionClosedWhileReading() throws Exception {
+        final MultiplexedConnection connection = createConnectionPair();
+        final MultiplexedStream stream = connection.openStream();
+        stream.getOutput().getOutputStream().write(1);
+        stream.getOutput().getOutputStream().flush();
+        takeAcceptedStream();
+
+        final Future<?> read = executor.submit(() -> stream.getInput().getInputStream().read());
+        Thread.sleep(100L);
+        connections.get(1).close();
+
+        try {
+            read.get();
+            fail("Expected read to fail once the connection was closed");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        // wait for the initiator to notice that the remote instance has gone away
+        final long maxTime = System.currentTimeMillis() + 10000L;
+        while (!connection.isClosed() && System.currentTimeMillis() < maxTime) {
+            Thread.sleep(10L);
+        }
+        assertTrue(connection.isClosed());
+        try {
+            connection.openStream();
+            fail("Expected no streams to be opened on a closed connection");
+        } catch (final IOException expected) {
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testNotifyWhenDataAvailable() throws Exception {
+        final MultiplexedConnection connection = createConnectionPair();
+        final MultiplexedStream stream = connection.openStream();
+        stream.getOutput().getOutputStream().write(1);
+        stream.getOutput().getOutputStream().flush();
+
+        final MultiplexedStream accepted = takeAcceptedStream();
+        assertEquals(1, accepted.getInput().getInputStream().read());
+        assertTrue(!accepted.isDataAvailable());
+
+        final CountDownLatch notified = new CountDownLatch(1);
+        accepted.notifyWhenDataAvailable(notified::countDown);
+        assertEquals(1, notified.getCount());
+
+        stream.getOutput().getOutputStream().write(2);
+        stream.getOutput().getOutputStream().flush();
+        assertTrue(notified.await(10, TimeUnit.SECONDS));
+        assertTrue(accepted.isDataAvailable());
+
+        // data is already available, so the callback runs immediately
+        final CountDownLatch immediate = new CountDownLatch(1);
+        accepted.notifyWhenDataAvailable(immediate::countDown);
+        assertEquals(0, immediate.getCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testInitiateNegotiatesVersion() throws Exception {
+        final Future<byte[]> magicBytes = executor.submit(() -> {
+            final CommunicationsSession session = accept();
+            final DataInputStream in = new DataInputStream(session.getInput().getInputStream());
+            final DataOutputStream out = new DataOutputStream(session.getOutput().getOutputStream());
+            final byte[] magic = new byte[MultiplexedConnection.MAGIC_BYTES.length];
+            StreamUtils.fillBuffer(in, magic, true);
+            assertEquals(MultiplexedConnection.RESOURCE_NAME, in.readUTF());
+            assertEquals(1, in.readInt());
+            out.write(RemoteResourceInitiator.RESOURCE_OK);
+            out.flush();
+            return magic;
+        });
+
+        final MultiplexedConnection connection = MultiplexedConnection.initiate(connect(), "negotiated");
+        connections.add(connection);
+        assertTrue(Arrays.equals(MultiplexedConnection.MAGIC_BYTES, magicBytes.get()));
+        assertEquals(1, connection.getVersionNegotiator().getVersion());
+    }
+
+    @Test(timeout = 30000)
+    public void testInitiateRejectedByRemoteInstance() throws Exception {
+        // an instance that does not support multiplexing does not recognize the magic bytes and closes the connection
+        executor.submit(() -> {
+            final CommunicationsSession session = accept();
+            final byte[] magic = new byte[CommunicationsSession.MAGIC_BYTES.length];
+            StreamUtils.fillBuffer(session.getInput().getInputStream(), magic, true);
+            session.close();
+            return null;
+        });
+
+        try {
+            MultiplexedConnection.initiate(connect(), "rejected");
+            fail("Expected multiplexed connection to be rejected");
+        } catch (final IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.remote.io;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The algorithms that {@link CompressionOutputStream} and {@link CompressionInputStream} can use to compress each
+ * chunk of data. Both ends of a stream must agree on the algorithm, as it is not recorded in the stream itself.
+ */
+public enum CompressionAlgorithm {
+
+    /**
+     * zlib deflate at the fastest compression level. This is the only algorithm understood by peers that do not
+     * negotiate the algorithm.
+     */
+    DEFLATE {
+        @Override
+        public Compressor createCompressor() {
+            return new DeflateCompressor(CompressionOutputStream.DEFAULT_COMPRESSION_LEVEL, Deflater.DEFAULT_STRATEGY);
+        }
+
+        @Override
+        public Decompressor createDecompressor() {
+            return new InflateDecompressor();
+        }
+    },
+
+    /**
+     * The LZ4 block format, which compresses less than {@link #DEFLATE} but uses a small fraction of the CPU.
+     */
+    LZ4 {
+        @Override
+        public Compressor createCompressor() {
+            return new LZ4BlockCompressor();
+        }
+
+        @Override
+        public Decompressor createDecompressor() {
+            return new LZ4BlockCompressor();
+        }
+    };
+
+    /**
+     * @return a new Compressor for this algorithm. A Compressor is not thread-safe but may be reused for any number of chunks.
+     */
+    public abstract Compressor createCompressor();
+
+    /**
+     * @return a new Decompressor for this algorithm. A Decompressor is not thread-safe but may be reused for any number of chunks.
+     */
+    public abstract Decompressor createDecompressor();
+
+    /**
+     * Compresses a single chunk of data.
+     */
+    public interface Compressor {
+
+        /**
+         * @param length the number of bytes to compress
+         * @return the largest number of bytes that compressing the given number of bytes can produce
+         */
+        int maxCompressedLength(int length);
+
+        /**
+         * Compresses the first <code>length</code> bytes of <code>source</code> into <code>destination</code>, which must
+         * have room for at least {@link #maxCompressedLength(int)} bytes.
+         *
+         * @param source the data to compress
+         * @param length the number of bytes of the source to compress
+         * @param destination the buffer to write the compressed data to
+         * @return the number of compressed bytes written to the destination
+         * @throws IOException if the data could not be compressed
+         */
+        int compress(byte[] source, int length, byte[] destination) throws IOException;
+    }
+
+    /**
+     * Decompresses a single chunk of data that was produced by the corresponding {@link Compressor}.
+     */
+    public interface Decompressor {
+
+        /**
+         * @param source the compressed data
+         * @param length the number of compressed bytes in the source
+         * @param destination the buffer to write the decompressed data to
+         * @param decompressedLength the number of bytes that the chunk decompresses to
+         * @throws IOException if the compressed data is malformed
+         */
+        void decompress(byte[] source, int length, byte[] destination, int decompressedLength) throws IOException;
+    }
+
+    static class DeflateCompressor implements Compressor {
+        private final Deflater deflater;
+
+        DeflateCompressor(final int level, final int strategy) {
+            deflater = new Deflater(level);
+            deflater.setStrategy(strategy);
+        }
+
+        @Override
+        public int maxCompressedLength(final int length) {
+            // the bound that zlib's compressBound() gives, which includes the zlib header and trailer
+            return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+        }
+
+        @Override
+        public int compress(final byte[] source, final int length, final byte[] destination) throws IOException {
+            deflater.setInput(source, 0, length);
+            deflater.finish();
+            final int compressedBytes = deflater.deflate(destination);
+            final boolean finished = deflater.finished();
+            deflater.reset();
+
+            if (!finished) {
+                throw new IOException("Compressed data did not fit into a buffer of " + destination.length + " bytes");
+            }
+            return compressedBytes;
+        }
+    }
+
+    static class InflateDecompressor implements Decompressor {
+        private final Inflater inflater = new Inflater();
+
+        @Override
+        public void decompress(final byte[] source, final int length, final byte[] destination, final int decompressedLength) throws IOException {
+            inflater.setInput(source, 0, length);
+            try {
+                inflater.inflate(destination, 0, decompressedLength);
+            } catch (final DataFormatException e) {
+                throw new IOException(e);
+            } finally {
+                inflater.reset();
+            }
+        }
+    }
+}
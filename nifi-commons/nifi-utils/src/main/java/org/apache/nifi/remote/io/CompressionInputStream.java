@@ -20,16 +20,19 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
+
+import org.apache.nifi.remote.io.CompressionAlgorithm.Decompressor;
 
 public class CompressionInputStream extends InputStream {
 
     private final InputStream in;
-    private final Inflater inflater;
+    private final Decompressor decompressor;
 
+    // the buffers are reused for each chunk and grow only when a chunk does not fit
     private byte[] compressedBuffer;
     private byte[] buffer;
+    private int compressedLength;
+    private int bufferLength;
 
     private int bufferIndex;
     private boolean eos = false;    // whether or not we've reached the end of stream
@@ -38,8 +41,20 @@ public class CompressionInputStream extends InputStream {
     private final byte[] fourByteBuffer = new byte[4];
 
     public CompressionInputStream(final InputStream in) {
+        this(in, CompressionAlgorithm.DEFLATE.createDecompressor());
+    }
+
+    /**
+     * Creates a stream that decompresses each chunk with the given Decompressor, which must correspond to the
+     * Compressor that the data was written with. As with {@link CompressionOutputStream}, the same Decompressor may be
+     * used for many streams, one after another.
+     *
+     * @param in the stream to read compressed data from
+     * @param decompressor the decompressor to decompress each chunk with
+     */
+    public CompressionInputStream(final InputStream in, final Decompressor decompressor) {
         this.in = in;
-        inflater = new Inflater();
+        this.decompressor = decompressor;
 
         buffer = new byte[0];
         compressedBuffer = new byte[0];
@@ -67,13 +82,19 @@ public class CompressionInputStream extends InputStream {
 
         // determine the size of the decompressed buffer
         fillBuffer(fourByteBuffer);
-        buffer = new byte[toInt(fourByteBuffer)];
+        bufferLength = toLength(fourByteBuffer);
+        if (buffer.length < bufferLength) {
+            buffer = new byte[bufferLength];
+        }
 
         // determine the size of the compressed buffer
         fillBuffer(fourByteBuffer);
-        compressedBuffer = new byte[toInt(fourByteBuffer)];
+        compressedLength = toLength(fourByteBuffer);
+        if (compressedBuffer.length < compressedLength) {
+            compressedBuffer = new byte[compressedLength];
+        }
 
-        bufferIndex = buffer.length;  // indicate that buffer is empty
+        bufferIndex = bufferLength;  // indicate that buffer is empty
     }
 
     private int toInt(final byte[] data) {
@@ -83,6 +104,14 @@ public class CompressionInputStream extends InputStream {
                 | (data[3] & 0xFF);
     }
 
+    private int toLength(final byte[] data) throws IOException {
+        final int length = toInt(data);
+        if (length < 0) {
+            throw new IOException("Invalid CompressionInputStream. Chunk length was " + length);
+        }
+        return length;
+    }
+
     protected void bufferAndDecompress() throws IOException {
         if (allDataRead) {
             eos = true;
@@ -90,15 +119,8 @@ public class CompressionInputStream extends InputStream {
         }
 
         readChunkHeader();
-        fillBuffer(compressedBuffer);
-
-        inflater.setInput(compressedBuffer);
-        try {
-            inflater.inflate(buffer);
-        } catch (final DataFormatException e) {
-            throw new IOException(e);
-        }
-        inflater.reset();
+        fillBuffer(compressedBuffer, compressedLength);
+        decompressor.decompress(compressedBuffer, compressedLength, buffer, bufferLength);
 
         bufferIndex = 0;
         final int moreDataByte = in.read();
@@ -110,21 +132,25 @@ public class CompressionInputStream extends InputStream {
     }
 
     private void fillBuffer(final byte[] buffer) throws IOException {
+        fillBuffer(buffer, buffer.length);
+    }
+
+    private void fillBuffer(final byte[] buffer, final int length) throws IOException {
         int len;
-        int bytesLeft = buffer.length;
+        int bytesLeft = length;
         int bytesRead = 0;
         while (bytesLeft > 0 && (len = in.read(buffer, bytesRead, bytesLeft)) > 0) {
             bytesLeft -= len;
             bytesRead += len;
         }
 
-        if (bytesRead < buffer.length) {
+        if (bytesRead < length) {
             throw new EOFException();
         }
     }
 
     private boolean isBufferEmpty() {
-        return bufferIndex >= buffer.length;
+        return bufferIndex >= bufferLength;
     }
 
     @Override
@@ -165,7 +191,7 @@ public class CompressionInputStream extends InputStream {
             return -1;
         }
 
-        final int free = buffer.length - bufferIndex;
+        final int free = bufferLength - bufferIndex;
         final int bytesToTransfer = Math.min(len, free);
         System.arraycopy(buffer, bufferIndex, b, off, bytesToTransfer);
         bufferIndex += bytesToTransfer;
@@ -18,8 +18,11 @@ package org.apache.nifi.remote.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.zip.Deflater;
 
+import org.apache.nifi.remote.io.CompressionAlgorithm.Compressor;
+
 public class CompressionOutputStream extends OutputStream {
 
     public static final byte[] SYNC_BYTES = new byte[]{'S', 'Y', 'N', 'C'};
@@ -27,12 +30,15 @@ public class CompressionOutputStream extends OutputStream {
     public static final int DEFAULT_COMPRESSION_LEVEL = 1;
     public static final int DEFAULT_BUFFER_SIZE = 64 << 10;
     public static final int MIN_BUFFER_SIZE = 8 << 10;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 10;
 
     private final OutputStream out;
-    private final Deflater deflater;
+    private final Compressor compressor;
+    private final int bufferSize;
 
-    private final byte[] buffer;
-    private final byte[] compressed;
+    // the buffers start small and grow up to the buffer size, so that a stream that carries little data allocates little
+    private byte[] buffer;
+    private byte[] compressed;
 
     private int bufferIndex = 0;
     private boolean dataWritten = false;
@@ -46,15 +52,29 @@ public class CompressionOutputStream extends OutputStream {
     }
 
     public CompressionOutputStream(final OutputStream outStream, final int bufferSize, final int level, final int strategy) {
+        this(outStream, bufferSize, new CompressionAlgorithm.DeflateCompressor(level, strategy));
+    }
+
+    /**
+     * Creates a stream that compresses each chunk with the given Compressor. The Compressor is not shared with the stream,
+     * so the same Compressor may be used for many streams, one after another, to avoid creating a new one for each.
+     *
+     * @param outStream the stream to write compressed data to
+     * @param compressor the compressor to compress each chunk with
+     */
+    public CompressionOutputStream(final OutputStream outStream, final Compressor compressor) {
+        this(outStream, DEFAULT_BUFFER_SIZE, compressor);
+    }
+
+    public CompressionOutputStream(final OutputStream outStream, final int bufferSize, final Compressor compressor) {
         if (bufferSize < MIN_BUFFER_SIZE) {
             throw new IllegalArgumentException("Buffer size must be at least " + MIN_BUFFER_SIZE);
         }
 
         this.out = outStream;
-        this.deflater = new Deflater(level);
-        this.deflater.setStrategy(strategy);
-        buffer = new byte[bufferSize];
-        compressed = new byte[bufferSize + 64];
+        this.compressor = compressor;
+        this.bufferSize = bufferSize;
+        buffer = new byte[INITIAL_BUFFER_SIZE];
     }
 
     /**
@@ -67,15 +87,17 @@ public class CompressionOutputStream extends OutputStream {
             return;
         }
 
-        deflater.setInput(buffer, 0, bufferIndex);
-        deflater.finish();
-        final int compressedBytes = deflater.deflate(compressed);
+        final int maxCompressedLength = compressor.maxCompressedLength(bufferIndex);
+        if (compressed == null || compressed.length < maxCompressedLength) {
+            compressed = new byte[maxCompressedLength];
+        }
+
+        final int compressedBytes = compressor.compress(buffer, bufferIndex, compressed);
 
         writeChunkHeader(compressedBytes);
         out.write(compressed, 0, compressedBytes);
 
         bufferIndex = 0;
-        deflater.reset();
     }
 
     private void writeChunkHeader(final int compressedBytes) throws IOException {
@@ -99,11 +121,18 @@ public class CompressionOutputStream extends OutputStream {
     }
 
     protected boolean bufferFull() {
-        return bufferIndex >= buffer.length;
+        return bufferIndex >= bufferSize;
+    }
+
+    private void ensureBufferSpace() {
+        if (bufferIndex >= buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, bufferSize));
+        }
     }
 
     @Override
     public void write(final int b) throws IOException {
+        ensureBufferSpace();
         buffer[bufferIndex++] = (byte) (b & 0xFF);
         if (bufferFull()) {
             compressAndWrite();
@@ -119,6 +148,7 @@ public class CompressionOutputStream extends OutputStream {
     public void write(final byte[] b, final int off, final int len) throws IOException {
         int bytesLeft = len;
         while (bytesLeft > 0) {
+            ensureBufferSpace();
             final int free = buffer.length - bufferIndex;
             final int bytesThisIteration = Math.min(bytesLeft, free);
             System.arraycopy(b, off + len - bytesLeft, buffer, bufferIndex, bytesThisIteration);
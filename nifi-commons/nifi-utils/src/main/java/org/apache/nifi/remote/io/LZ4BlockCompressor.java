@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.remote.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the LZ4 block format. The compressor uses a single hash table probe per position,
+ * as the reference implementation does at its fastest setting, and skips ahead faster the longer it goes without
+ * finding a match so that incompressible data costs little more than a copy.
+ */
+class LZ4BlockCompressor implements CompressionAlgorithm.Compressor, CompressionAlgorithm.Decompressor {
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int RUN_MASK = 15;
+    private static final int ML_MASK = 15;
+    private static final int HASH_LOG = 12;
+    private static final int SKIP_STRENGTH = 6;
+
+    // Positions are stored in the hash table offset by a base that advances past each block, so that entries left over
+    // from earlier blocks, as well as the zeroes of a new table, can be recognized as stale without clearing the table
+    // for every block.
+    private int[] hashTable;
+    private int hashTableBase = 1;
+
+    @Override
+    public int maxCompressedLength(final int length) {
+        return length + length / 255 + 16;
+    }
+
+    @Override
+    public int compress(final byte[] source, final int length, final byte[] destination) {
+        int anchor = 0;
+        int destIndex = 0;
+
+        if (length > MF_LIMIT) {
+            if (hashTable == null) {
+                hashTable = new int[1 << HASH_LOG];
+            }
+            if (hashTableBase > Integer.MAX_VALUE - length) {
+                Arrays.fill(hashTable, 0);
+                hashTableBase = 1;
+            }
+            final int base = hashTableBase;
+            hashTableBase += length;
+
+            final int matchLimit = length - LAST_LITERALS;
+            final int lastMatchStart = length - MF_LIMIT;
+
+            int index = 0;
+            int misses = 0;
+            while (index <= lastMatchStart) {
+                final int sequence = readInt(source, index);
+                final int hash = hash(sequence);
+                final int reference = hashTable[hash] - base;
+                hashTable[hash] = base + index;
+
+                if (reference < 0 || index - reference > MAX_DISTANCE || readInt(source, reference) != sequence) {
+                    index += 1 + (misses++ >> SKIP_STRENGTH);
+                    continue;
+                }
+                misses = 0;
+
+                // extend the match backward into the pending literals, then forward as far as the format allows
+                int matchStart = index;
+                int matchReference = reference;
+                while (matchStart > anchor && matchReference > 0 && source[matchStart - 1] == source[matchReference - 1]) {
+                    matchStart--;
+                    matchReference--;
+                }
+
+                int matchLength = index - matchStart + MIN_MATCH;
+                while (matchStart + matchLength < matchLimit && source[matchStart + matchLength] == source[matchReference + matchLength]) {
+                    matchLength++;
+                }
+
+                destIndex = writeSequence(source, anchor, matchStart - anchor, destination, destIndex, matchStart - matchReference, matchLength);
+
+                index = matchStart + matchLength;
+                anchor = index;
+                if (index - 2 <= lastMatchStart) {
+                    hashTable[hash(readInt(source, index - 2))] = base + index - 2;
+                }
+            }
+        }
+
+        return writeLastLiterals(source, anchor, length - anchor, destination, destIndex);
+    }
+
+    private static int writeSequence(final byte[] source, final int literalStart, final int literalLength, final byte[] destination, final int destIndex,
+        final int offset, final int matchLength) {
+        int index = destIndex;
+        final int tokenIndex = index++;
+        final int extraMatchLength = matchLength - MIN_MATCH;
+        destination[tokenIndex] = (byte) ((Math.min(literalLength, RUN_MASK) << 4) | Math.min(extraMatchLength, ML_MASK));
+
+        index = writeLength(literalLength, RUN_MASK, destination, index);
+        System.arraycopy(source, literalStart, destination, index, literalLength);
+        index += literalLength;
+
+        destination[index++] = (byte) offset;
+        destination[index++] = (byte) (offset >>> 8);
+
+        return writeLength(extraMatchLength, ML_MASK, destination, index);
+    }
+
+    private static int writeLastLiterals(final byte[] source, final int literalStart, final int literalLength, final byte[] destination, final int destIndex) {
+        int index = destIndex;
+        destination[index++] = (byte) (Math.min(literalLength, RUN_MASK) << 4);
+        index = writeLength(literalLength, RUN_MASK, destination, index);
+        System.arraycopy(source, literalStart, destination, index, literalLength);
+        return index + literalLength;
+    }
+
+    private static int writeLength(final int length, final int mask, final byte[] destination, final int destIndex) {
+        int index = destIndex;
+        if (length >= mask) {
+            int remaining = length - mask;
+            while (remaining >= 255) {
+                destination[index++] = (byte) 255;
+                remaining -= 255;
+            }
+            destination[index++] = (byte) remaining;
+        }
+        return index;
+    }
+
+    @Override
+    public void decompress(final byte[] source, final int length, final byte[] destination, final int decompressedLength) throws IOException {
+        int sourceIndex = 0;
+        int destIndex = 0;
+
+        while (true) {
+            if (sourceIndex >= length) {
+                throw new IOException("Malformed LZ4 block: unexpected end of data");
+            }
+
+            final int token = source[sourceIndex++] & 0xFF;
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int lengthByte;
+                do {
+                    if (sourceIndex >= length) {
+                        throw new IOException("Malformed LZ4 block: unexpected end of data");
+                    }
+                    lengthByte = source[sourceIndex++] & 0xFF;
+                    literalLength += lengthByte;
+                } while (lengthByte == 255);
+            }
+
+            if (literalLength > length - sourceIndex || literalLength > decompressedLength - destIndex) {
+                throw new IOException("Malformed LZ4 block: literals exceed the bounds of the block");
+            }
+            System.arraycopy(source, sourceIndex, destination, destIndex, literalLength);
+            sourceIndex += literalLength;
+            destIndex += literalLength;
+
+            // the last sequence of a block consists of literals only
+            if (sourceIndex == length) {
+                break;
+            }
+
+            if (sourceIndex + 2 > length) {
+                throw new IOException("Malformed LZ4 block: unexpected end of data");
+            }
+            final int offset = (source[sourceIndex] & 0xFF) | ((source[sourceIndex + 1] & 0xFF) << 8);
+            sourceIndex += 2;
+            if (offset == 0 || offset > destIndex) {
+                throw new IOException("Malformed LZ4 block: invalid match offset " + offset);
+            }
+
+            int matchLength = token & ML_MASK;
+            if (matchLength == ML_MASK) {
+                int lengthByte;
+                do {
+                    if (sourceIndex >= length) {
+                        throw new IOException("Malformed LZ4 block: unexpected end of data");
+                    }
+                    lengthByte = source[sourceIndex++] & 0xFF;
+                    matchLength += lengthByte;
+                } while (lengthByte == 255);
+            }
+            matchLength += MIN_MATCH;
+
+            if (matchLength > decompressedLength - destIndex) {
+                throw new IOException("Malformed LZ4 block: match exceeds the bounds of the block");
+            }
+
+            final int matchIndex = destIndex - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(destination, matchIndex, destination, destIndex, matchLength);
+            } else {
+                // overlapping match, which repeats the last 'offset' bytes
+                for (int i = 0; i < matchLength; i++) {
+                    destination[destIndex + i] = destination[matchIndex + i];
+                }
+            }
+            destIndex += matchLength;
+        }
+
+        if (destIndex != decompressedLength) {
+            throw new IOException("Malformed LZ4 block: expected " + decompressedLength + " bytes but decompressed to " + destIndex);
+        }
+    }
+
+    private static int readInt(final byte[] buffer, final int index) {
+        return (buffer[index] & 0xFF)
+            | (buffer[index + 1] & 0xFF) << 8
+            | (buffer[index + 2] & 0xFF) << 16
+            | (buffer[index + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(final int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
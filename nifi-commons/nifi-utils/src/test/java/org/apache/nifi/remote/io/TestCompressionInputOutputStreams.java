@@ -17,12 +17,14 @@
 package org.apache.nifi.remote.io;
 
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.apache.nifi.remote.io.CompressionInputStream;
 import org.apache.nifi.remote.io.CompressionOutputStream;
@@ -139,6 +141,77 @@ public class TestCompressionInputOutputStreams {
         assertTrue(Arrays.equals(data512, decompressed2));
     }
 
+    @Test
+    public void testLZ4RoundTrip() throws IOException {
+        // a mix of incompressible runs, long repetitions and short repeated phrases exercises both literal and match lengths
+        final Random random = new Random(17L);
+        final ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
+        for (int i = 0; i < 40; i++) {
+            final byte[] randomBytes = new byte[random.nextInt(2000)];
+            random.nextBytes(randomBytes);
+            dataStream.write(randomBytes);
+
+            final byte[] repeated = new byte[random.nextInt(5000)];
+            Arrays.fill(repeated, (byte) i);
+            dataStream.write(repeated);
+
+            for (int j = 0; j < random.nextInt(50); j++) {
+                dataStream.write(("attribute.name." + random.nextInt(5) + "=value").getBytes("UTF-8"));
+            }
+        }
+        final byte[] data = dataStream.toByteArray();
+
+        for (final int length : new int[] {1, 12, 13, 100, 8192, data.length}) {
+            final byte[] toCompress = Arrays.copyOf(data, length);
+            final byte[] compressedBytes = compress(toCompress, CompressionAlgorithm.LZ4.createCompressor());
+            final CompressionInputStream cis = new CompressionInputStream(new ByteArrayInputStream(compressedBytes), CompressionAlgorithm.LZ4.createDecompressor());
+            assertTrue(Arrays.equals(toCompress, readFully(cis)));
+        }
+    }
+
+    @Test
+    public void testCompressorReusedAcrossStreams() throws IOException {
+        for (final CompressionAlgorithm algorithm : CompressionAlgorithm.values()) {
+            final CompressionAlgorithm.Compressor compressor = algorithm.createCompressor();
+            final CompressionAlgorithm.Decompressor decompressor = algorithm.createDecompressor();
+
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            for (int i = 0; i < 10; i++) {
+                final CompressionOutputStream cos = new CompressionOutputStream(baos, compressor);
+                cos.write(("The quick brown fox jumps over the lazy dog #" + i + " The quick brown fox jumps over the lazy dog").getBytes("UTF-8"));
+                cos.close();
+            }
+
+            final ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
+            for (int i = 0; i < 10; i++) {
+                final byte[] decompressed = readFully(new CompressionInputStream(bais, decompressor));
+                assertTrue(Arrays.equals(("The quick brown fox jumps over the lazy dog #" + i + " The quick brown fox jumps over the lazy dog").getBytes("UTF-8"), decompressed));
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedLZ4BlockRejected() throws IOException {
+        final byte[] data = new byte[1000];
+        final byte[] compressedBytes = compress(data, CompressionAlgorithm.LZ4.createCompressor());
+
+        // the first match offset follows the SYNC bytes, the two lengths, the token and a single literal
+        compressedBytes[4 + 4 + 4 + 2] = (byte) 0xFF;
+        try {
+            readFully(new CompressionInputStream(new ByteArrayInputStream(compressedBytes), CompressionAlgorithm.LZ4.createDecompressor()));
+            fail("Expected malformed block to be rejected");
+        } catch (final IOException expected) {
+        }
+    }
+
+    private byte[] compress(final byte[] data, final CompressionAlgorithm.Compressor compressor) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final CompressionOutputStream cos = new CompressionOutputStream(baos, 8192, compressor);
+        cos.write(data);
+        cos.close();
+        return baos.toByteArray();
+    }
+
     private byte[] readFully(final InputStream in) throws IOException {
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
 
@@ -0,0 +1,1444 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wali;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.nifi.stream.io.BufferedInputStream;
+import org.apache.nifi.stream.io.BufferedOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A {@link WriteAheadRepository} that, like {@link MinimalLockingWriteAheadLog}, spreads
+ * transactions across several partitions/journals but differs in three ways:
+ * </p>
+ *
+ * <ul>
+ * <li><b>Group Commit</b>: a transaction is written to its partition's journal while the
+ * partition is claimed, but the claim is released before the journal is synced to disk.
+ * Any number of transactions that were written to a journal while a sync was in progress are
+ * then made durable by a single sync, rather than each transaction forcing its own.</li>
+ * <li><b>Non-blocking Checkpoint</b>: a checkpoint holds the repository's write lock only long
+ * enough to roll over the journals. The snapshot is then written from the live record map
+ * while updates continue. Updates that occur while the snapshot is being written remember the
+ * state of the record as of the checkpoint, so the snapshot still reflects exactly the
+ * state of the repository at the time that the journals were rolled over.</li>
+ * <li><b>Segmented Snapshot</b>: the snapshot is written as a number of independent segments
+ * (spread across the configured paths) plus a small manifest. Segments are written and, on
+ * recovery, read in parallel.</li>
+ * </ul>
+ *
+ * <p>
+ * As with {@link MinimalLockingWriteAheadLog}, this implementation is ONLY appropriate if it
+ * can be guaranteed that only a single thread will ever issue updates for a given Record at
+ * any one time. If more than one snapshot segment is used, the {@link SerDeFactory} must
+ * either create a new {@link SerDe} on each invocation of
+ * {@link SerDeFactory#createSerDe(String)} or provide a thread-safe SerDe.
+ * </p>
+ *
+ * <p>
+ * The {@link SyncListener#onSync(int)} method is invoked after the group commit that covered
+ * the transaction completes, which is after the partition has been released.
+ * </p>
+ *
+ * @param <T> type of record this WAL is for
+ */
+public final class GroupCommitWriteAheadLog<T> implements WriteAheadRepository<T> {
+
+    private static final byte SNAPSHOT_RECORD = 1;
+    private static final byte SNAPSHOT_END = 2;
+    private static final Pattern SNAPSHOT_SEGMENT_PATTERN = Pattern.compile("snapshot-(\\d+)-(\\d+)");
+
+    private final List<Path> paths;
+    private final Path partialPath;
+    private final Path snapshotPath;
+    private final int snapshotSegments;
+
+    private final SerDeFactory<T> serdeFactory;
+    private final SyncListener syncListener;
+    private final FileChannel lockChannel;
+    private final AtomicLong transactionIdGenerator = new AtomicLong(0L);
+
+    private final Partition<T>[] partitions;
+    private final AtomicLong partitionIndex = new AtomicLong(0L);
+    private final ConcurrentMap<Object, T> recordMap = new ConcurrentHashMap<>();
+    private final Map<Object, T> unmodifiableRecordMap = Collections.unmodifiableMap(recordMap);
+    private final Set<String> externalLocations = new CopyOnWriteArraySet<>();
+
+    private final Set<String> recoveredExternalLocations = new CopyOnWriteArraySet<>();
+
+    private final AtomicInteger numberBlackListedPartitions = new AtomicInteger(0);
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitWriteAheadLog.class);
+
+    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+    private final Lock readLock = rwLock.readLock(); // required to update a partition
+    private final Lock writeLock = rwLock.writeLock(); // required to roll over the partitions
+
+    // While a snapshot is being written, holds the state that each modified record had when the
+    // checkpoint began. An empty Optional indicates that the record did not exist at that time.
+    private volatile ConcurrentMap<Object, Optional<T>> snapshotOverlay = null;
+    private long snapshotGeneration = 0L; // guarded by synchronization on this
+
+    private volatile boolean updated = false;
+    private volatile boolean recovered = false;
+
+    public GroupCommitWriteAheadLog(final Path path, final int partitionCount, final SerDe<T> serde, final SyncListener syncListener) throws IOException {
+        this(new TreeSet<>(Collections.singleton(path)), partitionCount, 1, new SingletonSerDeFactory<T>(serde), syncListener);
+    }
+
+    public GroupCommitWriteAheadLog(final Path path, final int partitionCount, final int snapshotSegments, final SerDeFactory<T> serdeFactory,
+        final SyncListener syncListener) throws IOException {
+        this(new TreeSet<>(Collections.singleton(path)), partitionCount, snapshotSegments, serdeFactory, syncListener);
+    }
+
+    /**
+     *
+     * @param paths a sorted set of Paths to use for the partitions/journals and
+     * the snapshot segments. The snapshot manifest will always be written to the
+     * first path specified.
+     * @param partitionCount the number of partitions/journals to use. Because
+     * transactions that are written to the same partition share a sync, this can
+     * be considerably smaller than the number of threads that are expected to
+     * update the repository simultaneously
+     * @param snapshotSegments the number of segments to split the snapshot into.
+     * Segments are written and recovered in parallel, one thread per segment
+     * @param serdeFactory the factory for the serializer/deserializer for records
+     * @param syncListener the listener
+     * @throws IOException if unable to initialize due to IO issue
+     */
+    @SuppressWarnings("unchecked")
+    public GroupCommitWriteAheadLog(final SortedSet<Path> paths, final int partitionCount, final int snapshotSegments, final SerDeFactory<T> serdeFactory,
+        final SyncListener syncListener) throws IOException {
+        this.syncListener = syncListener;
+
+        requireNonNull(paths);
+        requireNonNull(serdeFactory);
+
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("Paths must be non-empty");
+        }
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Partition Count must be at least 1");
+        }
+        if (snapshotSegments < 1) {
+            throw new IllegalArgumentException("Snapshot Segments must be at least 1");
+        }
+
+        int resolvedPartitionCount = partitionCount;
+        int existingPartitions = 0;
+        for (final Path path : paths) {
+            if (!Files.exists(path)) {
+                Files.createDirectories(path);
+            }
+
+            final File file = path.toFile();
+            if (!file.isDirectory()) {
+                throw new IOException("Path given [" + path + "] is not a directory");
+            }
+            if (!file.canWrite()) {
+                throw new IOException("Path given [" + path + "] is not writable");
+            }
+            if (!file.canRead()) {
+                throw new IOException("Path given [" + path + "] is not readable");
+            }
+            if (!file.canExecute()) {
+                throw new IOException("Path given [" + path + "] is not executable");
+            }
+
+            final File[] children = file.listFiles();
+            if (children != null) {
+                for (final File child : children) {
+                    if (child.isDirectory() && child.getName().startsWith("partition-")) {
+                        existingPartitions++;
+                    }
+                }
+            }
+        }
+
+        // Partitions are spread across all of the paths, so only compare once all paths have been examined
+        if (existingPartitions != 0 && existingPartitions != partitionCount) {
+            logger.warn("Constructing GroupCommitWriteAheadLog with partitionCount={}, but the repository currently has "
+                    + "{} partitions; ignoring argument and proceeding with {} partitions",
+                    new Object[]{partitionCount, existingPartitions, existingPartitions});
+            resolvedPartitionCount = existingPartitions;
+        }
+
+        this.paths = new ArrayList<>(paths);
+        final Path basePath = this.paths.get(0);
+        this.partialPath = basePath.resolve("snapshot.partial");
+        this.snapshotPath = basePath.resolve("snapshot");
+        this.snapshotSegments = snapshotSegments;
+        this.serdeFactory = serdeFactory;
+
+        final Path lockPath = basePath.resolve("wali.lock");
+        lockChannel = new FileOutputStream(lockPath.toFile()).getChannel();
+        lockChannel.lock();
+
+        partitions = new Partition[resolvedPartitionCount];
+
+        Iterator<Path> pathIterator = paths.iterator();
+        for (int i = 0; i < resolvedPartitionCount; i++) {
+            // If we're out of paths, create a new iterator to start over.
+            if (!pathIterator.hasNext()) {
+                pathIterator = paths.iterator();
+            }
+
+            final Path partitionBasePath = pathIterator.next();
+
+            partitions[i] = new Partition<>(partitionBasePath.resolve("partition-" + i), serdeFactory, i, getVersion());
+        }
+    }
+
+    @Override
+    public int update(final Collection<T> records, final boolean forceSync) throws IOException {
+        if (!recovered) {
+            throw new IllegalStateException("Cannot update repository until record recovery has been performed");
+        }
+
+        if (records.isEmpty()) {
+            return -1;
+        }
+
+        updated = true;
+        readLock.lock();
+        try {
+            while (true) {
+                final int numBlackListed = numberBlackListedPartitions.get();
+                if (numBlackListed >= partitions.length) {
+                    throw new IOException("All Partitions have been blacklisted due to "
+                            + "failures when attempting to update. If the Write-Ahead Log is able to perform a checkpoint, "
+                            + "this issue may resolve itself. Otherwise, manual intervention will be required.");
+                }
+
+                final long partitionIdx = partitionIndex.getAndIncrement();
+                final int resolvedIdx = (int) (partitionIdx % partitions.length);
+                final Partition<T> partition = partitions[resolvedIdx];
+                if (!partition.tryClaim()) {
+                    continue;
+                }
+
+                final Journal journal;
+                final long journalSequence;
+                try {
+                    final long transactionId = transactionIdGenerator.getAndIncrement();
+                    if (logger.isTraceEnabled()) {
+                        for (final T record : records) {
+                            logger.trace("Partition {} performing Transaction {}: {}", new Object[]{partition, transactionId, record});
+                        }
+                    }
+
+                    try {
+                        journal = partition.getJournal();
+                        journalSequence = partition.update(records, transactionId, unmodifiableRecordMap);
+                    } catch (final Throwable t) {
+                        partition.blackList();
+                        numberBlackListedPartitions.incrementAndGet();
+                        throw t;
+                    }
+                } finally {
+                    partition.releaseClaim();
+                }
+
+                // Sync outside of the claim so that other transactions can be written to the journal while
+                // this one is being synced; the next sync then covers all of them.
+                if (forceSync) {
+                    try {
+                        journal.sync(journalSequence);
+                    } catch (final Throwable t) {
+                        partition.blackList();
+                        numberBlackListedPartitions.incrementAndGet();
+                        throw t;
+                    }
+
+                    if (syncListener != null) {
+                        syncListener.onSync(resolvedIdx);
+                    }
+                }
+
+                updateRecordMap(records);
+                return resolvedIdx;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void updateRecordMap(final Collection<T> records) {
+        final ConcurrentMap<Object, Optional<T>> overlay = snapshotOverlay;
+
+        for (final T record : records) {
+            final UpdateType updateType = serdeFactory.getUpdateType(record);
+            final Object recordIdentifier = serdeFactory.getRecordIdentifier(record);
+
+            if (overlay != null && !overlay.containsKey(recordIdentifier)) {
+                // A snapshot is being written. Remember the state of the record as of the checkpoint
+                // before changing it. This is safe without further locking because only a single thread
+                // updates a given record at a time.
+                overlay.putIfAbsent(recordIdentifier, Optional.ofNullable(recordMap.get(recordIdentifier)));
+            }
+
+            if (updateType == UpdateType.DELETE) {
+                recordMap.remove(recordIdentifier);
+            } else if (updateType == UpdateType.SWAP_OUT) {
+                final String newLocation = serdeFactory.getLocation(record);
+                if (newLocation == null) {
+                    logger.error("Received Record (ID=" + recordIdentifier + ") with UpdateType of SWAP_OUT but "
+                            + "no indicator of where the Record is to be Swapped Out to; these records may be "
+                            + "lost when the repository is restored!");
+                } else {
+                    recordMap.remove(recordIdentifier);
+                    this.externalLocations.add(newLocation);
+                }
+            } else if (updateType == UpdateType.SWAP_IN) {
+                final String newLocation = serdeFactory.getLocation(record);
+                if (newLocation == null) {
+                    logger.error("Received Record (ID=" + recordIdentifier + ") with UpdateType of SWAP_IN but no "
+                            + "indicator of where the Record is to be Swapped In from; these records may be duplicated "
+                            + "when the repository is restored!");
+                } else {
+                    externalLocations.remove(newLocation);
+                }
+                recordMap.put(recordIdentifier, record);
+            } else {
+                recordMap.put(recordIdentifier, record);
+            }
+        }
+    }
+
+    @Override
+    public Collection<T> recoverRecords() throws IOException {
+        if (updated) {
+            throw new IllegalStateException("Cannot recover records after updating the repository; must call recoverRecords first");
+        }
+
+        final long recoverStart = System.nanoTime();
+        writeLock.lock();
+        try {
+            Long maxTransactionId = recoverFromSnapshot();
+            recoverFromEdits(recordMap, maxTransactionId);
+
+            for (final Partition<T> partition : partitions) {
+                final long transId = partition.getMaxRecoveredTransactionId();
+                if (maxTransactionId == null || transId > maxTransactionId) {
+                    maxTransactionId = transId;
+                }
+            }
+
+            this.transactionIdGenerator.set(maxTransactionId + 1);
+            this.externalLocations.addAll(recoveredExternalLocations);
+            logger.info("{} finished recovering records. Performing Checkpoint to ensure proper state of Partitions before updates", this);
+        } finally {
+            writeLock.unlock();
+        }
+        final long recoverNanos = System.nanoTime() - recoverStart;
+        final long recoveryMillis = TimeUnit.MILLISECONDS.convert(recoverNanos, TimeUnit.NANOSECONDS);
+        logger.info("Successfully recovered {} records in {} milliseconds", recordMap.size(), recoveryMillis);
+        checkpoint();
+
+        recovered = true;
+        return recordMap.values();
+    }
+
+    @Override
+    public Set<String> getRecoveredSwapLocations() throws IOException {
+        return recoveredExternalLocations;
+    }
+
+    private Long recoverFromSnapshot() throws IOException {
+        final boolean partialExists = Files.exists(partialPath);
+        final boolean snapshotExists = Files.exists(snapshotPath);
+
+        if (!partialExists && !snapshotExists) {
+            return null;
+        }
+
+        if (partialExists && snapshotExists) {
+            // both files exist -- assume we failed while checkpointing. Delete
+            // the partial file
+            Files.delete(partialPath);
+        } else if (partialExists) {
+            // partial exists but snapshot does not -- we must have completed
+            // creating the partial, deleted the snapshot
+            // but crashed before renaming the partial to the snapshot. Just
+            // rename partial to snapshot
+            Files.move(partialPath, snapshotPath);
+        }
+
+        if (Files.size(snapshotPath) == 0) {
+            logger.warn("{} Found 0-byte Snapshot file; skipping Snapshot file in recovery", this);
+            return null;
+        }
+
+        final long maxTransactionId;
+        final List<String> segmentNames = new ArrayList<>();
+        try (final DataInputStream dataIn = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath, StandardOpenOption.READ)))) {
+            final String waliImplementationClass = dataIn.readUTF();
+            final int waliImplementationVersion = dataIn.readInt();
+
+            if (!waliImplementationClass.equals(GroupCommitWriteAheadLog.class.getName())) {
+                throw new IOException("Write-Ahead Log located at " + snapshotPath + " was written using the "
+                        + waliImplementationClass + " class; cannot restore using " + getClass().getName());
+            }
+
+            if (waliImplementationVersion > getVersion()) {
+                throw new IOException("Write-Ahead Log located at " + snapshotPath + " was written using version "
+                        + waliImplementationVersion + " of the " + waliImplementationClass + " class; cannot restore using Version " + getVersion());
+            }
+
+            snapshotGeneration = dataIn.readLong();
+            maxTransactionId = dataIn.readLong();
+
+            final int numSegments = dataIn.readInt();
+            for (int i = 0; i < numSegments; i++) {
+                segmentNames.add(dataIn.readUTF());
+            }
+
+            final int numSwapRecords = dataIn.readInt();
+            final Set<String> swapLocations = new HashSet<>();
+            for (int i = 0; i < numSwapRecords; i++) {
+                swapLocations.add(dataIn.readUTF());
+            }
+            this.recoveredExternalLocations.addAll(swapLocations);
+        }
+
+        final List<Callable<Integer>> tasks = new ArrayList<>(segmentNames.size());
+        for (final String segmentName : segmentNames) {
+            final Path segmentPath = findSnapshotSegment(segmentName);
+            tasks.add(() -> recoverSnapshotSegment(segmentPath));
+        }
+
+        final int numRecords = invokeAll(tasks, "Recover Snapshot Segment");
+
+        logger.debug("{} restored {} Records from {} Snapshot Segments and {} Swap Files from Snapshot, ending with Transaction ID {}",
+                new Object[]{this, numRecords, segmentNames.size(), recoveredExternalLocations.size(), maxTransactionId});
+        return maxTransactionId;
+    }
+
+    private Path findSnapshotSegment(final String segmentName) throws IOException {
+        for (final Path path : paths) {
+            final Path segmentPath = path.resolve(segmentName);
+            if (Files.exists(segmentPath)) {
+                return segmentPath;
+            }
+        }
+
+        throw new IOException("Snapshot " + snapshotPath + " references Snapshot Segment " + segmentName
+                + " but this segment could not be found in any of " + paths + "; cannot restore Write-Ahead Log");
+    }
+
+    private int recoverSnapshotSegment(final Path segmentPath) throws IOException {
+        int numRecords = 0;
+        try (final DataInputStream dataIn = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath, StandardOpenOption.READ)))) {
+            final String waliImplementationClass = dataIn.readUTF();
+            if (!waliImplementationClass.equals(GroupCommitWriteAheadLog.class.getName())) {
+                throw new IOException("Snapshot Segment " + segmentPath + " was written using the " + waliImplementationClass
+                        + " class; cannot restore using " + getClass().getName());
+            }
+
+            dataIn.readInt(); // version of the write-ahead log, already verified using the snapshot manifest
+            final String serdeEncoding = dataIn.readUTF();
+            final int serdeVersion = dataIn.readInt();
+
+            final SerDe<T> serde = serdeFactory.createSerDe(serdeEncoding);
+            serde.readHeader(dataIn);
+
+            while (true) {
+                final int marker = dataIn.read();
+                if (marker == SNAPSHOT_END) {
+                    break;
+                }
+                if (marker != SNAPSHOT_RECORD) {
+                    throw new EOFException("Snapshot Segment " + segmentPath + " ended unexpectedly or is corrupt (found marker " + marker + ")");
+                }
+
+                final T record = serde.deserializeRecord(dataIn, serdeVersion);
+                if (record == null) {
+                    throw new EOFException();
+                }
+
+                final UpdateType updateType = serde.getUpdateType(record);
+                if (updateType == UpdateType.DELETE) {
+                    logger.warn("While recovering from snapshot, found record with type 'DELETE'; this record will not be restored");
+                    continue;
+                }
+
+                logger.trace("Recovered from snapshot: {}", record);
+                recordMap.put(serde.getRecordIdentifier(record), record);
+                numRecords++;
+            }
+        }
+
+        logger.debug("{} restored {} Records from Snapshot Segment {}", new Object[]{this, numRecords, segmentPath});
+        return numRecords;
+    }
+
+    /**
+     * Recovers records from the edit logs via the Partitions. Transactions are
+     * replayed in the order of their Transaction ID, regardless of which
+     * Partition they were written to.
+     *
+     * @param modifiableRecordMap map
+     * @param maxTransactionIdRestored index of max restored transaction
+     * @throws IOException if unable to recover from edits
+     */
+    private void recoverFromEdits(final Map<Object, T> modifiableRecordMap, final Long maxTransactionIdRestored) throws IOException {
+        final Map<Object, T> updateMap = new HashMap<>();
+        final Map<Object, T> unmodifiableRecordMap = Collections.unmodifiableMap(modifiableRecordMap);
+        final Map<Object, T> ignorableMap = new HashMap<>();
+        final Set<String> ignorableSwapLocations = new HashSet<>();
+
+        // populate a map of the next transaction id for each partition to the
+        // partition that has that next transaction id.
+        final SortedMap<Long, Partition<T>> transactionMap = new TreeMap<>();
+        for (final Partition<T> partition : partitions) {
+            Long transactionId;
+            boolean keepTransaction;
+            do {
+                transactionId = partition.getNextRecoverableTransactionId();
+
+                keepTransaction = transactionId == null || maxTransactionIdRestored == null || transactionId > maxTransactionIdRestored;
+                if (keepTransaction && transactionId != null) {
+                    transactionMap.put(transactionId, partition);
+                } else if (transactionId != null) {
+                    // skip the next transaction, because our snapshot already
+                    // contained this transaction.
+                    try {
+                        partition.recoverNextTransaction(ignorableMap, updateMap, ignorableSwapLocations);
+                    } catch (final EOFException e) {
+                        logger.error("{} unexpectedly reached End of File while reading from {} for Transaction {}; "
+                                + "assuming crash and ignoring this transaction.",
+                                new Object[]{this, partition, transactionId});
+                    }
+                }
+            } while (!keepTransaction);
+        }
+
+        while (!transactionMap.isEmpty()) {
+            final Map.Entry<Long, Partition<T>> firstEntry = transactionMap.entrySet().iterator().next();
+            final Long firstTransactionId = firstEntry.getKey();
+            final Partition<T> nextPartition = firstEntry.getValue();
+
+            try {
+                updateMap.clear();
+                final Set<Object> idsRemoved = nextPartition.recoverNextTransaction(unmodifiableRecordMap, updateMap, recoveredExternalLocations);
+                modifiableRecordMap.putAll(updateMap);
+                for (final Object id : idsRemoved) {
+                    modifiableRecordMap.remove(id);
+                }
+            } catch (final EOFException e) {
+                logger.error("{} unexpectedly reached End-of-File when reading from {} for Transaction ID {}; "
+                        + "assuming crash and ignoring this transaction",
+                        new Object[]{this, nextPartition, firstTransactionId});
+            }
+
+            transactionMap.remove(firstTransactionId);
+
+            Long subsequentTransactionId = null;
+            try {
+                subsequentTransactionId = nextPartition.getNextRecoverableTransactionId();
+            } catch (final IOException e) {
+                logger.error("{} unexpectedly found End-of-File when reading from {} for Transaction ID {}; "
+                        + "assuming crash and ignoring this transaction",
+                        new Object[]{this, nextPartition, firstTransactionId});
+            }
+
+            if (subsequentTransactionId != null) {
+                transactionMap.put(subsequentTransactionId, nextPartition);
+            }
+        }
+
+        for (final Partition<T> partition : partitions) {
+            partition.endRecovery();
+        }
+    }
+
+    @Override
+    public synchronized int checkpoint() throws IOException {
+        final Set<String> swapLocations;
+        final long maxTransactionId;
+        final List<Journal> oldJournals = new ArrayList<>(partitions.length);
+        final ConcurrentMap<Object, Optional<T>> overlay = new ConcurrentHashMap<>();
+
+        final long startNanos = System.nanoTime();
+        final long stopTheWorldNanos;
+        final int numRecords;
+
+        writeLock.lock();
+        try {
+            final long stopTheWorldStart = System.nanoTime();
+            // Stop the world only long enough to determine the last transaction ID that the snapshot
+            // represents and to roll over the partitions to new journals. The records themselves are
+            // not copied; instead, from this point until the snapshot has been written, any update to
+            // a record first remembers the state that the record had at this point in the overlay.
+            maxTransactionId = transactionIdGenerator.get() - 1;
+            swapLocations = new HashSet<>(externalLocations);
+
+            for (final Partition<T> partition : partitions) {
+                try {
+                    oldJournals.add(partition.rollover());
+                } catch (final Throwable t) {
+                    partition.blackList();
+                    numberBlackListedPartitions.getAndIncrement();
+                    throw t;
+                }
+            }
+
+            snapshotOverlay = overlay;
+            stopTheWorldNanos = System.nanoTime() - stopTheWorldStart;
+        } finally {
+            writeLock.unlock();
+        }
+
+        final long generation = snapshotGeneration + 1;
+        try {
+            // Sync and close the old journals. Any thread that is waiting for one of these journals to be
+            // synced will be released once it is closed. If any Exception is thrown, we wait until we have
+            // attempted to close all journals before throwing it, to avoid leaking resources.
+            IOException failure = null;
+            for (final Journal journal : oldJournals) {
+                if (journal == null) {
+                    continue;
+                }
+
+                try {
+                    journal.close();
+                } catch (final IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+
+            if (syncListener != null) {
+                syncListener.onGlobalSync();
+            }
+
+            numRecords = writeSnapshot(generation, maxTransactionId, swapLocations, overlay);
+        } finally {
+            snapshotOverlay = null;
+        }
+
+        snapshotGeneration = generation;
+        deleteOldSnapshotSegments(generation);
+
+        // clear all of the edit logs
+        final long partitionStart = System.nanoTime();
+        for (final Partition<T> partition : partitions) {
+            // we can call clearOld without claiming the partition because it
+            // does not change the partition's state and the only member variable
+            // it touches is modified only by #rollover(), which is called only
+            // from this synchronized method.
+            partition.clearOld();
+        }
+        final long partitionEnd = System.nanoTime();
+        numberBlackListedPartitions.set(0);
+
+        final long endNanos = System.nanoTime();
+        final long millis = TimeUnit.MILLISECONDS.convert(endNanos - startNanos, TimeUnit.NANOSECONDS);
+        final long partitionMillis = TimeUnit.MILLISECONDS.convert(partitionEnd - partitionStart, TimeUnit.NANOSECONDS);
+        final long stopTheWorldMillis = TimeUnit.NANOSECONDS.toMillis(stopTheWorldNanos);
+
+        logger.info("{} checkpointed with {} Records and {} Swap Files in {} Snapshot Segments in {} milliseconds (Stop-the-world "
+                + "time = {} milliseconds, {} Records updated while writing Snapshot, Clear Edit Logs time = {} millis), max Transaction ID {}",
+                new Object[]{this, numRecords, swapLocations.size(), snapshotSegments, millis, stopTheWorldMillis, overlay.size(), partitionMillis, maxTransactionId});
+
+        return numRecords;
+    }
+
+    private int writeSnapshot(final long generation, final long maxTransactionId, final Set<String> swapLocations,
+        final ConcurrentMap<Object, Optional<T>> overlay) throws IOException {
+
+        final List<String> segmentNames = new ArrayList<>(snapshotSegments);
+        final List<Callable<Integer>> tasks = new ArrayList<>(snapshotSegments);
+        for (int i = 0; i < snapshotSegments; i++) {
+            final String segmentName = "snapshot-" + generation + "-" + i;
+            final Path segmentPath = paths.get(i % paths.size()).resolve(segmentName);
+            final int segmentIndex = i;
+
+            segmentNames.add(segmentName);
+            tasks.add(() -> writeSnapshotSegment(segmentPath, segmentIndex, overlay));
+        }
+
+        final int numRecords = invokeAll(tasks, "Write Snapshot Segment");
+
+        // Write the manifest to the .partial file and then replace the existing snapshot with it. Until
+        // the manifest has been replaced, the previous snapshot and its segments remain intact.
+        try (final FileOutputStream fileOut = new FileOutputStream(partialPath.toFile());
+            final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+
+            dataOut.writeUTF(GroupCommitWriteAheadLog.class.getName());
+            dataOut.writeInt(getVersion());
+            dataOut.writeLong(generation);
+            dataOut.writeLong(maxTransactionId);
+
+            dataOut.writeInt(segmentNames.size());
+            for (final String segmentName : segmentNames) {
+                dataOut.writeUTF(segmentName);
+            }
+
+            dataOut.writeInt(swapLocations.size());
+            for (final String swapLocation : swapLocations) {
+                dataOut.writeUTF(swapLocation);
+            }
+
+            dataOut.flush();
+            fileOut.getFD().sync();
+        }
+
+        Files.deleteIfExists(snapshotPath);
+        Files.move(partialPath, snapshotPath);
+        return numRecords;
+    }
+
+    private int writeSnapshotSegment(final Path segmentPath, final int segmentIndex, final Map<Object, Optional<T>> overlay) throws IOException {
+        final SerDe<T> serde = serdeFactory.createSerDe(null);
+
+        int numRecords = 0;
+        try (final FileOutputStream fileOut = new FileOutputStream(segmentPath.toFile());
+            final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+
+            dataOut.writeUTF(GroupCommitWriteAheadLog.class.getName());
+            dataOut.writeInt(getVersion());
+            dataOut.writeUTF(serde.getClass().getName());
+            dataOut.writeInt(serde.getVersion());
+            serde.writeHeader(dataOut);
+
+            // Records that have been updated since the checkpoint began are written from the overlay instead
+            // of the record map. If a record is updated after we read it from the map but before we check the
+            // overlay, it is written twice with the same state, which is harmless.
+            for (final Map.Entry<Object, T> entry : recordMap.entrySet()) {
+                final Object recordId = entry.getKey();
+                if (getSegmentIndex(recordId) != segmentIndex || overlay.containsKey(recordId)) {
+                    continue;
+                }
+
+                logger.trace("Checkpointing {}", entry.getValue());
+                dataOut.write(SNAPSHOT_RECORD);
+                serde.serializeRecord(entry.getValue(), dataOut);
+                numRecords++;
+            }
+
+            for (final Map.Entry<Object, Optional<T>> entry : overlay.entrySet()) {
+                final Optional<T> checkpointedState = entry.getValue();
+                if (getSegmentIndex(entry.getKey()) != segmentIndex || !checkpointedState.isPresent()) {
+                    continue;
+                }
+
+                logger.trace("Checkpointing {}", checkpointedState.get());
+                dataOut.write(SNAPSHOT_RECORD);
+                serde.serializeRecord(checkpointedState.get(), dataOut);
+                numRecords++;
+            }
+
+            dataOut.write(SNAPSHOT_END);
+            dataOut.flush();
+            fileOut.getFD().sync();
+        }
+
+        return numRecords;
+    }
+
+    private int getSegmentIndex(final Object recordId) {
+        return (recordId.hashCode() & Integer.MAX_VALUE) % snapshotSegments;
+    }
+
+    private void deleteOldSnapshotSegments(final long currentGeneration) {
+        for (final Path path : paths) {
+            final File[] children = path.toFile().listFiles();
+            if (children == null) {
+                continue;
+            }
+
+            for (final File child : children) {
+                final Matcher matcher = SNAPSHOT_SEGMENT_PATTERN.matcher(child.getName());
+                if (matcher.matches() && Long.parseLong(matcher.group(1)) != currentGeneration && !child.delete()) {
+                    logger.warn("{} failed to delete old Snapshot Segment {}", this, child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the given tasks, one thread per task, and returns the sum of their results
+     */
+    private int invokeAll(final List<Callable<Integer>> tasks, final String threadName) throws IOException {
+        if (tasks.size() == 1) {
+            try {
+                return tasks.get(0).call();
+            } catch (final IOException | RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new IOException(e);
+            }
+        }
+
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        final ThreadFactory threadFactory = r -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(r);
+            thread.setName(threadName + " " + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), threadFactory);
+        try {
+            int total = 0;
+            for (final Future<Integer> future : executor.invokeAll(tasks)) {
+                total += future.get();
+            }
+            return total;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + threadName + " tasks to complete", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void shutdown() throws IOException {
+        writeLock.lock();
+        try {
+            for (final Partition<T> partition : partitions) {
+                partition.close();
+            }
+        } finally {
+            writeLock.unlock();
+            lockChannel.close();
+        }
+    }
+
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupCommitWriteAheadLog[" + paths.get(0) + "]";
+    }
+
+    /**
+     * A single journal file to which a Partition writes. Transactions are written
+     * while the owning Partition is claimed; syncing is coordinated here so that
+     * all transactions written before a sync begins are covered by that sync.
+     */
+    private static class Journal {
+        private final FileOutputStream fileOut;
+        private final DataOutputStream dataOut;
+        private final Lock syncLock = new ReentrantLock();
+
+        private volatile long writtenCount = 0L; // modified only while the Partition is claimed
+        private volatile long syncedCount = 0L; // modified only while holding the sync lock
+        private boolean closed = false; // guarded by sync lock; true only once all transactions have been synced
+
+        public Journal(final FileOutputStream fileOut, final DataOutputStream dataOut) {
+            this.fileOut = fileOut;
+            this.dataOut = dataOut;
+        }
+
+        public DataOutputStream getOutputStream() {
+            return dataOut;
+        }
+
+        /**
+         * Must be called while the owning Partition is claimed, after a transaction has been
+         * written and flushed
+         *
+         * @return the sequence number of the transaction within this journal
+         */
+        public long transactionWritten() {
+            final long sequence = writtenCount + 1;
+            writtenCount = sequence;
+            return sequence;
+        }
+
+        /**
+         * Ensures that all transactions up to and including the given sequence number are
+         * synced to disk. If another thread is already syncing, waits for it to finish and then
+         * syncs everything that has been written since, unless that sync already covered the
+         * given sequence number.
+         *
+         * @param sequence the sequence number returned by {@link #transactionWritten()}
+         * @throws IOException if unable to sync the journal
+         */
+        public void sync(final long sequence) throws IOException {
+            if (syncedCount >= sequence) {
+                return;
+            }
+
+            syncLock.lock();
+            try {
+                if (syncedCount >= sequence || closed) {
+                    return;
+                }
+
+                final long target = writtenCount;
+                fileOut.getFD().sync();
+                syncedCount = target;
+            } finally {
+                syncLock.unlock();
+            }
+        }
+
+        /**
+         * Syncs any transactions that have not yet been synced and closes the file. See
+         * the notes in MinimalLockingWriteAheadLog's Partition.close() regarding why the
+         * FileOutputStream, rather than the DataOutputStream, is closed.
+         *
+         * @throws IOException if unable to sync or close the file
+         */
+        public void close() throws IOException {
+            syncLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+
+                // Only mark the journal closed once it has been synced. If the sync fails, any thread
+                // still waiting on this journal will attempt to sync it itself and fail as well.
+                try {
+                    if (syncedCount < writtenCount) {
+                        final long target = writtenCount;
+                        fileOut.getFD().sync();
+                        syncedCount = target;
+                    }
+                    closed = true;
+                } finally {
+                    fileOut.close();
+                }
+            } finally {
+                syncLock.unlock();
+            }
+        }
+
+        public void closeQuietly() {
+            try {
+                close();
+            } catch (final Exception e) {
+            }
+        }
+    }
+
+    /**
+     * Represents a partition of this repository, which maps directly to a
+     * .journal file.
+     *
+     * All methods with the exceptions of {@link #tryClaim()},
+     * {@link #releaseClaim()} and {@link #blackList()} in this Partition MUST
+     * be called while holding the claim (via {@link #tryClaim()}), or while no
+     * other thread can access the Partition.
+     *
+     * @param <S> type of record held in the partitions
+     */
+    private static class Partition<S> {
+
+        public static final String JOURNAL_EXTENSION = ".journal";
+        private static final Pattern JOURNAL_FILENAME_PATTERN = Pattern.compile("\\d+\\.journal");
+
+        private final SerDeFactory<S> serdeFactory;
+        private SerDe<S> serde;
+
+        private final Path editDirectory;
+        private final int writeAheadLogVersion;
+
+        private final Lock lock = new ReentrantLock();
+        private Journal journal = null;
+        private boolean blackListed = false;
+        private boolean closed = false;
+        private DataInputStream recoveryIn;
+        private int recoveryVersion;
+        private String currentJournalFilename = "";
+
+        private static final byte TRANSACTION_CONTINUE = 1;
+        private static final byte TRANSACTION_COMMIT = 2;
+
+        private final String description;
+        private final AtomicLong maxTransactionId = new AtomicLong(-1L);
+        private final Logger logger = LoggerFactory.getLogger(GroupCommitWriteAheadLog.class);
+
+        private final Queue<Path> recoveryFiles;
+
+        public Partition(final Path path, final SerDeFactory<S> serdeFactory, final int partitionIndex, final int writeAheadLogVersion) throws IOException {
+            this.editDirectory = path;
+            this.serdeFactory = serdeFactory;
+
+            final File file = path.toFile();
+            if (!file.exists() && !file.mkdirs()) {
+                throw new IOException("Could not create directory " + file.getAbsolutePath());
+            }
+
+            this.recoveryFiles = new LinkedBlockingQueue<>();
+            for (final Path recoveryPath : getRecoveryPaths()) {
+                recoveryFiles.add(recoveryPath);
+            }
+
+            this.description = "Partition-" + partitionIndex;
+            this.writeAheadLogVersion = writeAheadLogVersion;
+        }
+
+        public boolean tryClaim() {
+            final boolean obtainedLock = lock.tryLock();
+            if (!obtainedLock) {
+                return false;
+            }
+
+            // Check if the partition is blacklisted. If so, unlock it and return false. Otherwise,
+            // leave it locked and return true, so that the caller will need to unlock.
+            if (blackListed) {
+                lock.unlock();
+                return false;
+            }
+
+            return true;
+        }
+
+        public void releaseClaim() {
+            lock.unlock();
+        }
+
+        public Journal getJournal() {
+            return journal;
+        }
+
+        public void close() {
+            final Journal toClose = journal;
+            if (toClose != null) {
+                toClose.closeQuietly();
+            }
+
+            this.closed = true;
+            this.journal = null;
+        }
+
+        public void blackList() {
+            lock.lock();
+            try {
+                blackListed = true;
+            } finally {
+                lock.unlock();
+            }
+            logger.debug("Blacklisted {}", this);
+        }
+
+        /**
+         * Begins writing to a new journal and returns the previous one, which
+         * the caller is responsible for closing.
+         *
+         * @return the previous journal, or <code>null</code> if there was none
+         * @throws IOException if failure to rollover
+         */
+        public Journal rollover() throws IOException {
+            lock.lock();
+            try {
+                final Journal oldJournal = journal;
+                journal = null;
+
+                final Path editPath = getNewEditPath();
+                try {
+                    journal = createJournal(editPath);
+                } catch (final IOException ioe) {
+                    if (oldJournal != null) {
+                        try {
+                            oldJournal.close();
+                        } catch (final IOException ioe2) {
+                            ioe.addSuppressed(ioe2);
+                        }
+                    }
+
+                    logger.error("Failed to create new journal for {} due to {}", new Object[] {this, ioe.toString()}, ioe);
+                    blackList();
+                    throw ioe;
+                }
+
+                currentJournalFilename = editPath.toFile().getName();
+
+                blackListed = false;
+                return oldJournal;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Journal createJournal(final Path editPath) throws IOException {
+            this.serde = serdeFactory.createSerDe(null);
+            final FileOutputStream fos = new FileOutputStream(editPath.toFile());
+            try {
+                final DataOutputStream outStream = new DataOutputStream(new BufferedOutputStream(fos));
+                outStream.writeUTF(GroupCommitWriteAheadLog.class.getName());
+                outStream.writeInt(writeAheadLogVersion);
+                outStream.writeUTF(serde.getClass().getName());
+                outStream.writeInt(serde.getVersion());
+                serde.writeHeader(outStream);
+
+                outStream.flush();
+                return new Journal(fos, outStream);
+            } catch (final IOException ioe) {
+                try {
+                    fos.close();
+                } catch (final IOException innerIOE) {
+                }
+
+                throw ioe;
+            }
+        }
+
+        private long getJournalIndex(final File file) {
+            final String filename = file.getName();
+            final int dotIndex = filename.indexOf(".");
+            final String number = filename.substring(0, dotIndex);
+            return Long.parseLong(number);
+        }
+
+        private Path getNewEditPath() throws IOException {
+            final List<Path> recoveryPaths = getRecoveryPaths();
+            final long newIndex;
+            if (recoveryPaths == null || recoveryPaths.isEmpty()) {
+                newIndex = 1;
+            } else {
+                final long lastFileIndex = getJournalIndex(recoveryPaths.get(recoveryPaths.size() - 1).toFile());
+                newIndex = lastFileIndex + 1;
+            }
+
+            return editDirectory.resolve(newIndex + JOURNAL_EXTENSION);
+        }
+
+        private List<Path> getRecoveryPaths() throws IOException {
+            final List<Path> paths = new ArrayList<>();
+
+            final File directory = editDirectory.toFile();
+            final File[] partitionFiles = directory.listFiles();
+            if (partitionFiles == null) {
+                return paths;
+            }
+
+            for (final File file : partitionFiles) {
+                // if file is a journal file but no data has yet been persisted, it may
+                // very well be a 0-byte file (the journal is not SYNC'ed to disk after
+                // a header is written out, so it may be lost). In this case, the journal
+                // is empty, so we can just skip it.
+                if (file.isDirectory() || file.length() == 0L) {
+                    continue;
+                }
+
+                if (!JOURNAL_FILENAME_PATTERN.matcher(file.getName()).matches()) {
+                    continue;
+                }
+
+                final String waliImplementationClass = getJournalImplementationClass(file);
+                if (waliImplementationClass == null) {
+                    logger.warn("Found file {}, but could not access it, or it was not in the expected format; "
+                            + "will ignore this file", file.getAbsolutePath());
+                } else if (GroupCommitWriteAheadLog.class.getName().equals(waliImplementationClass)) {
+                    paths.add(file.toPath());
+                } else {
+                    // Do not silently ignore journals written by another implementation, as doing so would lose data.
+                    throw new IOException("Journal " + file.getAbsolutePath() + " was written using the " + waliImplementationClass
+                            + " class; cannot restore using " + GroupCommitWriteAheadLog.class.getName());
+                }
+            }
+
+            // Sort journal files by the numeric portion of the filename
+            Collections.sort(paths, new Comparator<Path>() {
+                @Override
+                public int compare(final Path o1, final Path o2) {
+                    if (o1 == null && o2 == null) {
+                        return 0;
+                    }
+                    if (o1 == null) {
+                        return 1;
+                    }
+                    if (o2 == null) {
+                        return -1;
+                    }
+
+                    final long index1 = getJournalIndex(o1.toFile());
+                    final long index2 = getJournalIndex(o2.toFile());
+                    return Long.compare(index1, index2);
+                }
+            });
+
+            return paths;
+        }
+
+        void clearOld() throws IOException {
+            final List<Path> oldRecoveryFiles = getRecoveryPaths();
+
+            for (final Path path : oldRecoveryFiles) {
+                final File file = path.toFile();
+                if (file.getName().equals(currentJournalFilename)) {
+                    continue;
+                }
+                if (file.exists()) {
+                    file.delete();
+                }
+            }
+        }
+
+        private String getJournalImplementationClass(final File file) {
+            try (final FileInputStream fis = new FileInputStream(file);
+                    final InputStream bufferedIn = new BufferedInputStream(fis);
+                    final DataInputStream in = new DataInputStream(bufferedIn)) {
+                return in.readUTF();
+            } catch (final IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Writes the given records to the current journal as a single
+         * transaction and flushes them to the Operating System. The data is not
+         * synced to disk; the returned sequence number must be passed to
+         * {@link Journal#sync(long)} in order to do so.
+         *
+         * @return the sequence number of the transaction within the journal
+         */
+        public long update(final Collection<S> records, final long transactionId, final Map<Object, S> recordMap) throws IOException {
+            if (this.closed) {
+                throw new IllegalStateException("Partition is closed");
+            }
+
+            final DataOutputStream out = journal.getOutputStream();
+            out.writeLong(transactionId);
+
+            final int numEditsToSerialize = records.size();
+            int editsSerialized = 0;
+            for (final S record : records) {
+                final Object recordId = serde.getRecordIdentifier(record);
+                final S previousVersion = recordMap.get(recordId);
+
+                serde.serializeEdit(previousVersion, record, out);
+                if (++editsSerialized < numEditsToSerialize) {
+                    out.write(TRANSACTION_CONTINUE);
+                } else {
+                    out.write(TRANSACTION_COMMIT);
+                }
+            }
+
+            out.flush();
+            return journal.transactionWritten();
+        }
+
+        private DataInputStream createDataInputStream(final Path path) throws IOException {
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        }
+
+        private DataInputStream getRecoveryStream() throws IOException {
+            if (recoveryIn != null && hasMoreData(recoveryIn)) {
+                return recoveryIn;
+            }
+
+            while (true) {
+                final Path nextRecoveryPath = recoveryFiles.poll();
+                if (nextRecoveryPath == null) {
+                    return null;
+                }
+
+                logger.debug("{} recovering from {}", this, nextRecoveryPath);
+                if (recoveryIn != null) {
+                    recoveryIn.close();
+                }
+                recoveryIn = createDataInputStream(nextRecoveryPath);
+                if (hasMoreData(recoveryIn)) {
+                    final String waliImplementationClass = recoveryIn.readUTF();
+                    if (!GroupCommitWriteAheadLog.class.getName().equals(waliImplementationClass)) {
+                        continue;
+                    }
+
+                    final long waliVersion = recoveryIn.readInt();
+                    if (waliVersion > writeAheadLogVersion) {
+                        throw new IOException("Cannot recovery from file " + nextRecoveryPath + " because it was written using "
+                                + "WALI version " + waliVersion + ", but the version used to restore it is only " + writeAheadLogVersion);
+                    }
+
+                    final String serdeEncoding = recoveryIn.readUTF();
+                    this.recoveryVersion = recoveryIn.readInt();
+                    serde = serdeFactory.createSerDe(serdeEncoding);
+
+                    serde.readHeader(recoveryIn);
+
+                    break;
+                }
+            }
+
+            return recoveryIn;
+        }
+
+        public Long getNextRecoverableTransactionId() throws IOException {
+            while (true) {
+                DataInputStream recoveryStream = getRecoveryStream();
+                if (recoveryStream == null) {
+                    return null;
+                }
+
+                final long transactionId;
+                try {
+                    transactionId = recoveryIn.readLong();
+                } catch (final EOFException e) {
+                    continue;
+                }
+
+                this.maxTransactionId.set(transactionId);
+                return transactionId;
+            }
+        }
+
+        private boolean hasMoreData(final InputStream in) throws IOException {
+            in.mark(1);
+            final int nextByte = in.read();
+            in.reset();
+            return nextByte >= 0;
+        }
+
+        public void endRecovery() throws IOException {
+            if (recoveryIn != null) {
+                recoveryIn.close();
+            }
+
+            final Path nextRecoveryPath = this.recoveryFiles.poll();
+            if (nextRecoveryPath != null) {
+                throw new IllegalStateException("Signaled to end recovery, but there are more recovery files for Partition "
+                        + "in directory " + editDirectory);
+            }
+
+            final Path newEditPath = getNewEditPath();
+            journal = createJournal(newEditPath);
+            currentJournalFilename = newEditPath.toFile().getName();
+        }
+
+        public Set<Object> recoverNextTransaction(final Map<Object, S> currentRecordMap, final Map<Object, S> updatedRecordMap, final Set<String> swapLocations) throws IOException {
+            final Set<Object> idsRemoved = new HashSet<>();
+
+            int transactionFlag;
+            do {
+                final S record = serde.deserializeEdit(recoveryIn, currentRecordMap, recoveryVersion);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{} Recovering Transaction {}: {}", new Object[] { this, maxTransactionId.get(), record });
+                }
+
+                final Object recordId = serde.getRecordIdentifier(record);
+                final UpdateType updateType = serde.getUpdateType(record);
+                if (updateType == UpdateType.DELETE) {
+                    updatedRecordMap.remove(recordId);
+                    idsRemoved.add(recordId);
+                } else if (updateType == UpdateType.SWAP_IN) {
+                    final String location = serde.getLocation(record);
+                    if (location == null) {
+                        logger.error("Recovered SWAP_IN record from edit log, but it did not contain a Location; skipping record");
+                    } else {
+                        swapLocations.remove(location);
+                        updatedRecordMap.put(recordId, record);
+                        idsRemoved.remove(recordId);
+                    }
+                } else if (updateType == UpdateType.SWAP_OUT) {
+                    final String location = serde.getLocation(record);
+                    if (location == null) {
+                        logger.error("Recovered SWAP_OUT record from edit log, but it did not contain a Location; skipping record");
+                    } else {
+                        swapLocations.add(location);
+                        updatedRecordMap.remove(recordId);
+                        idsRemoved.add(recordId);
+                    }
+                } else {
+                    updatedRecordMap.put(recordId, record);
+                    idsRemoved.remove(recordId);
+                }
+
+                transactionFlag = recoveryIn.read();
+            } while (transactionFlag != TRANSACTION_COMMIT);
+
+            return idsRemoved;
+        }
+
+        /**
+         * Must be called after recovery has finished
+         *
+         * @return max recovered transaction id
+         */
+        public long getMaxRecoveredTransactionId() {
+            return maxTransactionId.get();
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wali;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGroupCommitWriteAheadLog {
+
+    @Test
+    public void testUpdateAndRecover() throws IOException {
+        final Path path = Paths.get("target/group-commit-repo-update-recover");
+        deleteRecursively(path.toFile());
+        Files.createDirectories(path);
+
+        final DummyRecordSerde serde = new DummyRecordSerde();
+        final WriteAheadRepository<DummyRecord> repo = new GroupCommitWriteAheadLog<>(path, 4, serde, null);
+        assertTrue(repo.recoverRecords().isEmpty());
+
+        for (int i = 0; i < 10; i++) {
+            repo.update(Collections.singleton(new DummyRecord(String.valueOf(i), UpdateType.CREATE)), i % 2 == 0);
+        }
+        repo.update(Collections.singleton(new DummyRecord("3", UpdateType.UPDATE).setProperty("A", "B")), true);
+        repo.update(Collections.singleton(new DummyRecord("4", UpdateType.DELETE)), false);
+        repo.shutdown();
+
+        final WriteAheadRepository<DummyRecord> recoverRepo = new GroupCommitWriteAheadLog<>(path, 4, serde, null);
+        final Map<String, DummyRecord> recovered = toMap(recoverRepo.recoverRecords());
+        recoverRepo.shutdown();
+
+        assertEquals(9, recovered.size());
+        assertNull(recovered.get("4"));
+        assertEquals("B", recovered.get("3").getProperty("A"));
+    }
+
+    @Test
+    public void testRecoverFromSegmentedSnapshotAndJournals() throws IOException {
+        final Path path = Paths.get("target/group-commit-repo-segments");
+        deleteRecursively(path.toFile());
+        Files.createDirectories(path);
+
+        final SerDeFactory<DummyRecord> serdeFactory = new SingletonSerDeFactory<>(new DummyRecordSerde());
+        final WriteAheadRepository<DummyRecord> repo = new GroupCommitWriteAheadLog<>(path, 4, 4, serdeFactory, null);
+        assertTrue(repo.recoverRecords().isEmpty());
+
+        for (int i = 0; i < 1000; i++) {
+            repo.update(Collections.singleton(new DummyRecord(String.valueOf(i), UpdateType.CREATE).setProperty("i", String.valueOf(i))), false);
+        }
+
+        assertEquals(1000, repo.checkpoint());
+        assertEquals(4, countSnapshotSegments(path));
+
+        // these are only in the journals
+        for (int i = 0; i < 100; i++) {
+            repo.update(Collections.singleton(new DummyRecord(String.valueOf(i), UpdateType.DELETE)), false);
+        }
+        repo.update(Collections.singleton(new DummyRecord("500", UpdateType.UPDATE).setProperty("i", "updated")), true);
+        repo.shutdown();
+
+        final WriteAheadRepository<DummyRecord> recoverRepo = new GroupCommitWriteAheadLog<>(path, 4, 4, serdeFactory, null);
+        final Map<String, DummyRecord> recovered = toMap(recoverRepo.recoverRecords());
+        recoverRepo.shutdown();
+
+        assertEquals(900, recovered.size());
+        assertNull(recovered.get("99"));
+        assertEquals("100", recovered.get("100").getProperty("i"));
+        assertEquals("updated", recovered.get("500").getProperty("i"));
+
+        // the checkpoint performed on recovery should have replaced the previous generation of segments
+        assertEquals(4, countSnapshotSegments(path));
+    }
+
+    @Test
+    public void testSnapshotReflectsStateAtCheckpoint() throws IOException, InterruptedException {
+        final Path path = Paths.get("target/group-commit-repo-concurrent-checkpoint");
+        deleteRecursively(path.toFile());
+        Files.createDirectories(path);
+
+        // Use a SerDe that pauses the checkpoint while the snapshot is being written so that
+        // the repository can be updated in the meantime.
+        final CountDownLatch pauseStarted = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final AtomicInteger pauseOnRecord = new AtomicInteger(-1);
+        final DummyRecordSerde pausingSerde = new DummyRecordSerde() {
+            @Override
+            public void serializeRecord(final DummyRecord record, final DataOutputStream out) throws IOException {
+                if (pauseOnRecord.get() >= 0 && pauseOnRecord.getAndIncrement() == 0) {
+                    pauseStarted.countDown();
+                    try {
+                        resume.await();
+                    } catch (final InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                super.serializeRecord(record, out);
+            }
+        };
+
+        final WriteAheadRepository<DummyRecord> pausingRepo = new GroupCommitWriteAheadLog<>(path, 2, pausingSerde, null);
+        assertTrue(pausingRepo.recoverRecords().isEmpty());
+        for (int i = 0; i < 100; i++) {
+            pausingRepo.update(Collections.singleton(new DummyRecord(String.valueOf(i), UpdateType.CREATE).setProperty("v", "original")), false);
+        }
+
+        pauseOnRecord.set(0);
+        final AtomicReference<Throwable> checkpointFailure = new AtomicReference<>();
+        final Thread checkpointThread = new Thread(() -> {
+            try {
+                pausingRepo.checkpoint();
+            } catch (final Throwable t) {
+                checkpointFailure.set(t);
+            }
+        });
+        checkpointThread.start();
+        assertTrue(pauseStarted.await(10, TimeUnit.SECONDS));
+
+        // Updates must not be blocked while the snapshot is written, and must not be reflected in the snapshot.
+        for (int i = 0; i < 50; i++) {
+            pausingRepo.update(Collections.singleton(new DummyRecord(String.valueOf(i), UpdateType.DELETE)), true);
+        }
+        for (int i = 50; i < 100; i++) {
+            pausingRepo.update(Collections.singleton(new DummyRecord(String.valueOf(i), UpdateType.UPDATE).setProperty("v", "modified")), true);
+        }
+        pausingRepo.update(Collections.singleton(new DummyRecord("new", UpdateType.CREATE)), true);
+
+        resume.countDown();
+        checkpointThread.join();
+        assertNull(checkpointFailure.get());
+        pausingRepo.shutdown();
+
+        // Remove the journals so that only the snapshot is recovered.
+        for (final File partitionDir : path.toFile().listFiles(file -> file.getName().startsWith("partition-"))) {
+            deleteRecursively(partitionDir);
+        }
+
+        final WriteAheadRepository<DummyRecord> recoverRepo = new GroupCommitWriteAheadLog<>(path, 2, new DummyRecordSerde(), null);
+        final Map<String, DummyRecord> recovered = toMap(recoverRepo.recoverRecords());
+        recoverRepo.shutdown();
+
+        assertEquals(100, recovered.size());
+        assertFalse(recovered.containsKey("new"));
+        for (final DummyRecord record : recovered.values()) {
+            assertEquals("original", record.getProperty("v"));
+        }
+    }
+
+    @Test
+    public void testConcurrentSyncedUpdates() throws IOException, InterruptedException {
+        final Path path = Paths.get("target/group-commit-repo-concurrent");
+        deleteRecursively(path.toFile());
+        Files.createDirectories(path);
+
+        final AtomicInteger syncCount = new AtomicInteger(0);
+        final SyncListener syncListener = new SyncListener() {
+            @Override
+            public void onSync(final int partitionIndex) {
+                syncCount.incrementAndGet();
+            }
+
+            @Override
+            public void onGlobalSync() {
+            }
+        };
+
+        final SortedSet<Path> paths = new TreeSet<>();
+        paths.add(path.resolve("a"));
+        paths.add(path.resolve("b"));
+
+        final SerDeFactory<DummyRecord> serdeFactory = new SingletonSerDeFactory<>(new DummyRecordSerde());
+        final WriteAheadRepository<DummyRecord> repo = new GroupCommitWriteAheadLog<>(paths, 2, 3, serdeFactory, syncListener);
+        assertTrue(repo.recoverRecords().isEmpty());
+
+        final int numThreads = 8;
+        final int updatesPerThread = 250;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            final int threadIndex = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < updatesPerThread; i++) {
+                        final String id = threadIndex + "-" + i;
+                        repo.update(Collections.singleton(new DummyRecord(id, UpdateType.CREATE).setProperty("id", id)), true);
+                        if (i % 100 == 0 && threadIndex == 0) {
+                            repo.checkpoint();
+                        }
+                    }
+                } catch (final Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(numThreads * updatesPerThread, syncCount.get());
+        repo.shutdown();
+
+        final WriteAheadRepository<DummyRecord> recoverRepo = new GroupCommitWriteAheadLog<>(paths, 2, 3, serdeFactory, null);
+        final Map<String, DummyRecord> recovered = toMap(recoverRepo.recoverRecords());
+        recoverRepo.shutdown();
+
+        assertEquals(numThreads * updatesPerThread, recovered.size());
+        for (final Map.Entry<String, DummyRecord> entry : recovered.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue().getProperty("id"));
+        }
+    }
+
+    @Test
+    public void testCannotRecoverMinimalLockingWriteAheadLog() throws IOException {
+        final Path path = Paths.get("target/group-commit-repo-from-minimal-locking");
+        deleteRecursively(path.toFile());
+        Files.createDirectories(path);
+
+        final DummyRecordSerde serde = new DummyRecordSerde();
+        final WriteAheadRepository<DummyRecord> minimalLockingRepo = new MinimalLockingWriteAheadLog<>(path, 2, serde, null);
+        minimalLockingRepo.recoverRecords();
+        minimalLockingRepo.update(Collections.singleton(new DummyRecord("1", UpdateType.CREATE)), true);
+        minimalLockingRepo.shutdown();
+
+        WriteAheadRepository<DummyRecord> repo = null;
+        try {
+            repo = new GroupCommitWriteAheadLog<>(path, 2, serde, null);
+            repo.recoverRecords();
+            Assert.fail("Expected IOException when recovering a repository written by another implementation");
+        } catch (final IOException expected) {
+            assertNotNull(expected.getMessage());
+        } finally {
+            if (repo != null) {
+                repo.shutdown();
+            }
+        }
+    }
+
+    private Map<String, DummyRecord> toMap(final Collection<DummyRecord> records) {
+        final Map<String, DummyRecord> map = new HashMap<>();
+        for (final DummyRecord record : records) {
+            map.put(record.getId(), record);
+        }
+        return map;
+    }
+
+    private int countSnapshotSegments(final Path path) {
+        final File[] segments = path.toFile().listFiles(file -> file.getName().startsWith("snapshot-"));
+        return segments == null ? 0 : segments.length;
+    }
+
+    private void deleteRecursively(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+
+        file.delete();
+    }
+}
@@ -139,6 +139,37 @@ public interface FlowFileQueue {
      */
     void putAll(Collection<FlowFileRecord> files);
 
+    /**
+     * Places the given files into this node's queue, regardless of the queue's load balance strategy. This is used
+     * for FlowFiles that another node of the cluster has transferred to this node.
+     *
+     * @param files to place into queue
+     */
+    void putAllLocally(Collection<FlowFileRecord> files);
+
+    /**
+     * Sets how FlowFiles that are added to this queue are distributed across the nodes of the cluster
+     *
+     * @param strategy the load balance strategy
+     * @param partitioningAttribute the name of the attribute whose value determines the node that a FlowFile is
+     *            queued on when the strategy is {@link LoadBalanceStrategy#PARTITION_BY_ATTRIBUTE}; ignored otherwise
+     * @throws NullPointerException if the strategy is null
+     * @throws IllegalArgumentException if the strategy is {@link LoadBalanceStrategy#PARTITION_BY_ATTRIBUTE} and no
+     *             partitioning attribute is given
+     */
+    void setLoadBalanceStrategy(LoadBalanceStrategy strategy, String partitioningAttribute);
+
+    /**
+     * @return how FlowFiles that are added to this queue are distributed across the nodes of the cluster
+     */
+    LoadBalanceStrategy getLoadBalanceStrategy();
+
+    /**
+     * @return the name of the attribute that determines the node that a FlowFile is queued on, or <code>null</code>
+     *         if the load balance strategy is not {@link LoadBalanceStrategy#PARTITION_BY_ATTRIBUTE}
+     */
+    String getPartitioningAttribute();
+
     /**
      * @param expiredRecords expired records
      * @return the next flow file on the queue; null if empty
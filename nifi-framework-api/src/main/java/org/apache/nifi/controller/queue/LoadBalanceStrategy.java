@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.queue;
+
+/**
+ * Specifies how the FlowFiles that are added to a connection's queue on one node of a cluster should be distributed
+ * across the nodes of the cluster
+ */
+public enum LoadBalanceStrategy {
+    /**
+     * FlowFiles remain on the node on which they were added to the queue. This is the only strategy that applies
+     * to a standalone instance.
+     */
+    DO_NOT_LOAD_BALANCE,
+
+    /**
+     * FlowFiles are distributed evenly across the nodes of the cluster, one after the other.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * FlowFiles are distributed according to the value of the connection's partitioning attribute, such that all FlowFiles
+     * with the same value are queued on the same node for as long as the cluster's membership does not change.
+     */
+    PARTITION_BY_ATTRIBUTE,
+
+    /**
+     * All FlowFiles are queued on a single node of the cluster, which every node determines in the same way.
+     */
+    SINGLE_NODE;
+}
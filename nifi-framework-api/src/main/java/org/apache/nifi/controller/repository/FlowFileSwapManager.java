@@ -78,6 +78,18 @@ public interface FlowFileSwapManager {
      */
     SwapContents swapIn(String swapLocation, FlowFileQueue flowFileQueue) throws IncompleteSwapFileException, IOException;
 
+    /**
+     * Indicates that the swap file at the given location is the next one that the given queue will swap in, so that
+     * the Swap Manager may begin swapping it in ahead of time. A subsequent call to {@link #swapIn(String, FlowFileQueue)}
+     * for the same location then returns the FlowFiles that were swapped in, without waiting on external storage if
+     * the work has already completed. Swap Managers that do not support this may ignore the call.
+     *
+     * @param swapLocation the location of the swap file that is expected to be swapped in next
+     * @param flowFileQueue the queue to which the FlowFiles belong
+     */
+    default void prefetch(String swapLocation, FlowFileQueue flowFileQueue) {
+    }
+
     /**
      * Determines swap files that exist for the given FlowFileQueue
      *
@@ -17,6 +17,8 @@
 
 package org.apache.nifi.controller.repository;
 
+import java.util.concurrent.ExecutorService;
+
 import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
 import org.apache.nifi.events.EventReporter;
 
@@ -37,4 +39,21 @@ public interface SwapManagerInitializationContext {
      * @return an {@link EventReporter} that can be used to report events to users
      */
     EventReporter getEventReporter();
+
+    /**
+     * @return an {@link ExecutorService} that can be used to write swap files in the background, or <code>null</code>
+     *         if swap files must be written by the thread that swaps the FlowFiles out
+     */
+    default ExecutorService getSwapOutExecutor() {
+        return null;
+    }
+
+    /**
+     * @return an {@link ExecutorService} that can be used to swap FlowFiles in ahead of time, once a queue indicates
+     *         that a swap file is likely to be swapped in soon, or <code>null</code> if swap files must be read by the
+     *         thread that swaps the FlowFiles in
+     */
+    default ExecutorService getSwapInExecutor() {
+        return null;
+    }
 }
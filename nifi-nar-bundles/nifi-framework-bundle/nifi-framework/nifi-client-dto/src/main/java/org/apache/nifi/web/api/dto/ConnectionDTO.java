@@ -38,6 +38,8 @@ public class ConnectionDTO extends ComponentDTO {
     private Long backPressureObjectThreshold;
     private String backPressureDataSizeThreshold;
     private String flowFileExpiration;
+    private String loadBalanceStrategy;
+    private String loadBalancePartitionAttribute;
     private List<String> prioritizers;
     private List<PositionDTO> bends;
 
@@ -214,6 +216,39 @@ public class ConnectionDTO extends ComponentDTO {
         this.flowFileExpiration = flowFileExpiration;
     }
 
+    /**
+     * How the FlowFiles that are added to this connection on one node of a cluster are distributed across the nodes of the cluster.
+     *
+     * @return The load balance strategy
+     */
+    @ApiModelProperty(
+            value = "How the FlowFiles that are added to this connection on one node of a cluster are distributed across the nodes of the cluster.",
+            allowableValues = "DO_NOT_LOAD_BALANCE, ROUND_ROBIN, PARTITION_BY_ATTRIBUTE, SINGLE_NODE"
+    )
+    public String getLoadBalanceStrategy() {
+        return loadBalanceStrategy;
+    }
+
+    public void setLoadBalanceStrategy(String loadBalanceStrategy) {
+        this.loadBalanceStrategy = loadBalanceStrategy;
+    }
+
+    /**
+     * The name of the attribute whose value determines the node that a FlowFile is queued on when the load balance strategy is PARTITION_BY_ATTRIBUTE.
+     *
+     * @return The partitioning attribute
+     */
+    @ApiModelProperty(
+            value = "The name of the attribute whose value determines the node that a FlowFile is queued on when the load balance strategy is PARTITION_BY_ATTRIBUTE."
+    )
+    public String getLoadBalancePartitionAttribute() {
+        return loadBalancePartitionAttribute;
+    }
+
+    public void setLoadBalancePartitionAttribute(String loadBalancePartitionAttribute) {
+        this.loadBalancePartitionAttribute = loadBalancePartitionAttribute;
+    }
+
     /**
      * The prioritizers this connection is using.
      *
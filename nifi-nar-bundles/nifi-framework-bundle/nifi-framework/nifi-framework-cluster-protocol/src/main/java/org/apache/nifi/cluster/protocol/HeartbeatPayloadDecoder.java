@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.cluster.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.nifi.cluster.coordination.node.DisconnectionCode;
+import org.apache.nifi.cluster.coordination.node.NodeConnectionState;
+import org.apache.nifi.cluster.coordination.node.NodeConnectionStatus;
+import org.apache.nifi.repository.schema.Record;
+import org.apache.nifi.repository.schema.SchemaRecordReader;
+
+/**
+ * Decodes the heartbeat payloads that the nodes of the cluster send to the Cluster Coordinator, in either XML or the binary
+ * encoding described by {@link HeartbeatPayloadSchema}. For each node, the last binary payload is retained so that the
+ * deltas that the node sends next can be applied to it.
+ */
+public class HeartbeatPayloadDecoder {
+
+    private final SchemaRecordReader recordReader = SchemaRecordReader.fromSchema(HeartbeatPayloadSchema.HEARTBEAT_PAYLOAD_SCHEMA_V1);
+    private final ConcurrentMap<String, AcknowledgedPayload> acknowledgedPayloads = new ConcurrentHashMap<>();
+
+    /**
+     * Decodes the given payload of a heartbeat from the given node
+     *
+     * @param nodeId the node that sent the heartbeat
+     * @param encodedPayload the payload of the heartbeat
+     * @return the decoded payload, or <code>null</code> if the payload is a delta relative to a payload that is not known,
+     *         in which case the node has to send its next payload in full
+     * @throws ProtocolException if the payload cannot be decoded
+     */
+    public HeartbeatPayload decode(final NodeIdentifier nodeId, final byte[] encodedPayload) throws ProtocolException {
+        if (!HeartbeatPayloadSchema.isBinary(encodedPayload)) {
+            acknowledgedPayloads.remove(nodeId.getId());
+            return HeartbeatPayload.unmarshal(encodedPayload);
+        }
+
+        final Record record;
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodedPayload))) {
+            in.skipBytes(HeartbeatPayloadSchema.MAGIC_HEADER.length);
+            final int version = in.readInt();
+            if (version < 1 || version > HeartbeatPayloadSchema.VERSION) {
+                throw new ProtocolException("Heartbeat payload from " + nodeId + " uses version " + version + " of the binary encoding, which is not supported");
+            }
+
+            record = recordReader.readRecord(in);
+        } catch (final IOException ioe) {
+            throw new ProtocolException("Failed to decode heartbeat payload from " + nodeId, ioe);
+        }
+        if (record == null) {
+            throw new ProtocolException("Heartbeat payload from " + nodeId + " is empty");
+        }
+
+        final long sequence = (Long) record.getFieldValue(HeartbeatPayloadSchema.SEQUENCE);
+        final Long baseSequence = (Long) record.getFieldValue(HeartbeatPayloadSchema.BASE_SEQUENCE);
+        final HeartbeatPayload base;
+        if (baseSequence == null) {
+            base = null;
+        } else {
+            final AcknowledgedPayload acknowledged = acknowledgedPayloads.get(nodeId.getId());
+            if (acknowledged == null || acknowledged.getSequence() != baseSequence) {
+                acknowledgedPayloads.remove(nodeId.getId());
+                return null;
+            }
+            base = acknowledged.getPayload();
+        }
+
+        final HeartbeatPayload payload = new HeartbeatPayload();
+        final Integer activeThreadCount = (Integer) record.getFieldValue(HeartbeatPayloadSchema.ACTIVE_THREAD_COUNT);
+        payload.setActiveThreadCount(activeThreadCount != null ? activeThreadCount : (base == null ? 0 : base.getActiveThreadCount()));
+        final Long totalFlowFileCount = (Long) record.getFieldValue(HeartbeatPayloadSchema.TOTAL_FLOWFILE_COUNT);
+        payload.setTotalFlowFileCount(totalFlowFileCount != null ? totalFlowFileCount : (base == null ? 0L : base.getTotalFlowFileCount()));
+        final Long totalFlowFileBytes = (Long) record.getFieldValue(HeartbeatPayloadSchema.TOTAL_FLOWFILE_BYTES);
+        payload.setTotalFlowFileBytes(totalFlowFileBytes != null ? totalFlowFileBytes : (base == null ? 0L : base.getTotalFlowFileBytes()));
+        final Long systemStartTime = (Long) record.getFieldValue(HeartbeatPayloadSchema.SYSTEM_START_TIME);
+        payload.setSystemStartTime(systemStartTime != null ? systemStartTime : (base == null ? 0L : base.getSystemStartTime()));
+
+        final Map<String, NodeConnectionStatus> clusterStatus = new LinkedHashMap<>();
+        if (base != null && base.getClusterStatus() != null) {
+            for (final NodeConnectionStatus status : base.getClusterStatus()) {
+                clusterStatus.put(status.getNodeIdentifier().getId(), status);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<Record> changedStatuses = (List<Record>) record.getFieldValue(HeartbeatPayloadSchema.CLUSTER_STATUS);
+        for (final Record statusRecord : changedStatuses) {
+            final NodeConnectionStatus status = createStatus(statusRecord);
+            clusterStatus.put(status.getNodeIdentifier().getId(), status);
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<String> removedNodeIds = (List<String>) record.getFieldValue(HeartbeatPayloadSchema.REMOVED_NODE_IDS);
+        for (final String removedNodeId : removedNodeIds) {
+            clusterStatus.remove(removedNodeId);
+        }
+        payload.setClusterStatus(new ArrayList<>(clusterStatus.values()));
+
+        acknowledgedPayloads.put(nodeId.getId(), new AcknowledgedPayload(sequence, payload));
+        return payload;
+    }
+
+    private static NodeConnectionStatus createStatus(final Record statusRecord) {
+        final Record nodeIdRecord = (Record) statusRecord.getFieldValue(HeartbeatPayloadSchema.NODE_IDENTIFIER);
+        final NodeIdentifier nodeId = new NodeIdentifier(
+            (String) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.NODE_ID),
+            (String) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.API_ADDRESS),
+            (Integer) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.API_PORT),
+            (String) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.SOCKET_ADDRESS),
+            (Integer) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.SOCKET_PORT),
+            (String) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.SITE_TO_SITE_ADDRESS),
+            (Integer) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.SITE_TO_SITE_PORT),
+            (Integer) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.SITE_TO_SITE_HTTP_API_PORT),
+            (Boolean) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.SITE_TO_SITE_SECURE),
+            (String) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.LOAD_BALANCE_ADDRESS),
+            (Integer) nodeIdRecord.getFieldValue(HeartbeatPayloadSchema.LOAD_BALANCE_PORT),
+            null);
+
+        final String disconnectCode = (String) statusRecord.getFieldValue(HeartbeatPayloadSchema.DISCONNECT_CODE);
+        return new NodeConnectionStatus(
+            (Long) statusRecord.getFieldValue(HeartbeatPayloadSchema.UPDATE_ID),
+            nodeId,
+            NodeConnectionState.valueOf((String) statusRecord.getFieldValue(HeartbeatPayloadSchema.STATE)),
+            disconnectCode == null ? null : DisconnectionCode.valueOf(disconnectCode),
+            (String) statusRecord.getFieldValue(HeartbeatPayloadSchema.DISCONNECT_REASON),
+            (Long) statusRecord.getFieldValue(HeartbeatPayloadSchema.CONNECTION_REQUEST_TIME));
+    }
+
+    /**
+     * @param nodeId the identifier of a node
+     * @return the sequence number of the last binary payload that was decoded for the given node, or <code>null</code> if
+     *         there is none, i.e., if the node's last payload was XML or a delta that could not be applied
+     */
+    public Long getAcknowledgedSequence(final NodeIdentifier nodeId) {
+        final AcknowledgedPayload acknowledged = acknowledgedPayloads.get(nodeId.getId());
+        return acknowledged == null ? null : acknowledged.getSequence();
+    }
+
+    /**
+     * Discards the retained payload of the given node
+     *
+     * @param nodeId the identifier of the node
+     */
+    public void remove(final NodeIdentifier nodeId) {
+        acknowledgedPayloads.remove(nodeId.getId());
+    }
+
+    /**
+     * Discards the retained payloads of all nodes
+     */
+    public void clear() {
+        acknowledgedPayloads.clear();
+    }
+
+    private static class AcknowledgedPayload {
+        private final long sequence;
+        private final HeartbeatPayload payload;
+
+        public AcknowledgedPayload(final long sequence, final HeartbeatPayload payload) {
+            this.sequence = sequence;
+            this.payload = payload;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public HeartbeatPayload getPayload() {
+            return payload;
+        }
+    }
+}
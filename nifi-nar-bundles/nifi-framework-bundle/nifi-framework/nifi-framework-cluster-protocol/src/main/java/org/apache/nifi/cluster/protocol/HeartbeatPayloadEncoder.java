@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.cluster.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.nifi.cluster.coordination.node.NodeConnectionStatus;
+import org.apache.nifi.cluster.protocol.message.HeartbeatResponseMessage;
+import org.apache.nifi.repository.schema.FieldMapRecord;
+import org.apache.nifi.repository.schema.Record;
+import org.apache.nifi.repository.schema.RecordField;
+import org.apache.nifi.repository.schema.RecordSchema;
+import org.apache.nifi.repository.schema.SchemaRecordWriter;
+
+/**
+ * <p>
+ * Encodes the heartbeat payloads of a node. Until the Cluster Coordinator has indicated in a heartbeat response that it
+ * understands the binary encoding described by {@link HeartbeatPayloadSchema}, payloads are marshaled as XML, which every
+ * version of NiFi understands. After that, each payload is encoded as a delta relative to the last payload that the
+ * Cluster Coordinator acknowledged, or in full if there is no such payload.
+ * </p>
+ *
+ * <p>
+ * If a heartbeat cannot be sent, {@link #reset()} must be called so that the next payload is marshaled as XML again; this
+ * way, a node falls back to XML when the role of Cluster Coordinator moves to a node that runs an older version.
+ * </p>
+ */
+public class HeartbeatPayloadEncoder {
+
+    private static final int MAX_UNACKNOWLEDGED_PAYLOADS = 16;
+
+    private final SchemaRecordWriter recordWriter = new SchemaRecordWriter();
+
+    // guarded by this
+    private int version = 0;
+    private long nextSequence = 0L;
+    private long acknowledgedSequence = -1L;
+    private HeartbeatPayload acknowledgedPayload;
+    private final SortedMap<Long, HeartbeatPayload> unacknowledgedPayloads = new TreeMap<>();
+
+    /**
+     * @return the version of the binary encoding that is currently used, or 0 if payloads are marshaled as XML
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    /**
+     * Encodes the given payload
+     *
+     * @param payload the payload to encode
+     * @return the encoded payload
+     * @throws ProtocolException if unable to encode the payload
+     */
+    public synchronized byte[] encode(final HeartbeatPayload payload) throws ProtocolException {
+        if (version < 1) {
+            return payload.marshal();
+        }
+
+        final long sequence = nextSequence++;
+        final HeartbeatPayload base = acknowledgedPayload;
+
+        final Map<String, Object> values = new HashMap<>();
+        values.put(HeartbeatPayloadSchema.SEQUENCE, sequence);
+        if (base == null) {
+            values.put(HeartbeatPayloadSchema.ACTIVE_THREAD_COUNT, payload.getActiveThreadCount());
+            values.put(HeartbeatPayloadSchema.TOTAL_FLOWFILE_COUNT, payload.getTotalFlowFileCount());
+            values.put(HeartbeatPayloadSchema.TOTAL_FLOWFILE_BYTES, payload.getTotalFlowFileBytes());
+            values.put(HeartbeatPayloadSchema.SYSTEM_START_TIME, payload.getSystemStartTime());
+        } else {
+            values.put(HeartbeatPayloadSchema.BASE_SEQUENCE, acknowledgedSequence);
+            putIfChanged(values, HeartbeatPayloadSchema.ACTIVE_THREAD_COUNT, payload.getActiveThreadCount(), base.getActiveThreadCount());
+            putIfChanged(values, HeartbeatPayloadSchema.TOTAL_FLOWFILE_COUNT, payload.getTotalFlowFileCount(), base.getTotalFlowFileCount());
+            putIfChanged(values, HeartbeatPayloadSchema.TOTAL_FLOWFILE_BYTES, payload.getTotalFlowFileBytes(), base.getTotalFlowFileBytes());
+            putIfChanged(values, HeartbeatPayloadSchema.SYSTEM_START_TIME, payload.getSystemStartTime(), base.getSystemStartTime());
+        }
+
+        final Map<String, NodeConnectionStatus> baseStatuses = new HashMap<>();
+        if (base != null) {
+            for (final NodeConnectionStatus status : getClusterStatus(base)) {
+                baseStatuses.put(status.getNodeIdentifier().getId(), status);
+            }
+        }
+
+        final List<Record> changedStatuses = new ArrayList<>();
+        for (final NodeConnectionStatus status : getClusterStatus(payload)) {
+            final NodeConnectionStatus baseStatus = baseStatuses.remove(status.getNodeIdentifier().getId());
+            if (baseStatus == null || baseStatus.getUpdateIdentifier() != status.getUpdateIdentifier() || baseStatus.getState() != status.getState()) {
+                changedStatuses.add(createStatusRecord(status));
+            }
+        }
+        values.put(HeartbeatPayloadSchema.CLUSTER_STATUS, changedStatuses);
+        values.put(HeartbeatPayloadSchema.REMOVED_NODE_IDS, new ArrayList<>(baseStatuses.keySet()));
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(baos)) {
+            out.write(HeartbeatPayloadSchema.MAGIC_HEADER);
+            out.writeInt(version);
+            recordWriter.writeRecord(createRecord(HeartbeatPayloadSchema.HEARTBEAT_PAYLOAD_SCHEMA_V1, values), out);
+        } catch (final IOException ioe) {
+            throw new ProtocolException("Failed to encode heartbeat payload", ioe);
+        }
+
+        unacknowledgedPayloads.put(sequence, payload);
+        while (unacknowledgedPayloads.size() > MAX_UNACKNOWLEDGED_PAYLOADS) {
+            unacknowledgedPayloads.remove(unacknowledgedPayloads.firstKey());
+        }
+
+        return baos.toByteArray();
+    }
+
+    private static void putIfChanged(final Map<String, Object> values, final String fieldName, final Object value, final Object baseValue) {
+        if (!Objects.equals(value, baseValue)) {
+            values.put(fieldName, value);
+        }
+    }
+
+    private static List<NodeConnectionStatus> getClusterStatus(final HeartbeatPayload payload) {
+        final List<NodeConnectionStatus> clusterStatus = payload.getClusterStatus();
+        return clusterStatus == null ? Collections.emptyList() : clusterStatus;
+    }
+
+    private static Record createStatusRecord(final NodeConnectionStatus status) {
+        final NodeIdentifier nodeId = status.getNodeIdentifier();
+        final Map<String, Object> nodeIdValues = new HashMap<>();
+        nodeIdValues.put(HeartbeatPayloadSchema.NODE_ID, nodeId.getId());
+        nodeIdValues.put(HeartbeatPayloadSchema.API_ADDRESS, nodeId.getApiAddress());
+        nodeIdValues.put(HeartbeatPayloadSchema.API_PORT, nodeId.getApiPort());
+        nodeIdValues.put(HeartbeatPayloadSchema.SOCKET_ADDRESS, nodeId.getSocketAddress());
+        nodeIdValues.put(HeartbeatPayloadSchema.SOCKET_PORT, nodeId.getSocketPort());
+        nodeIdValues.put(HeartbeatPayloadSchema.SITE_TO_SITE_ADDRESS, nodeId.getSiteToSiteAddress());
+        nodeIdValues.put(HeartbeatPayloadSchema.SITE_TO_SITE_PORT, nodeId.getSiteToSitePort());
+        nodeIdValues.put(HeartbeatPayloadSchema.SITE_TO_SITE_HTTP_API_PORT, nodeId.getSiteToSiteHttpApiPort());
+        nodeIdValues.put(HeartbeatPayloadSchema.SITE_TO_SITE_SECURE, nodeId.isSiteToSiteSecure());
+        nodeIdValues.put(HeartbeatPayloadSchema.LOAD_BALANCE_ADDRESS, nodeId.getLoadBalanceAddress());
+        nodeIdValues.put(HeartbeatPayloadSchema.LOAD_BALANCE_PORT, nodeId.getLoadBalancePort());
+
+        final Map<String, Object> statusValues = new HashMap<>();
+        statusValues.put(HeartbeatPayloadSchema.UPDATE_ID, status.getUpdateIdentifier());
+        statusValues.put(HeartbeatPayloadSchema.NODE_IDENTIFIER, createRecord(HeartbeatPayloadSchema.NODE_IDENTIFIER_SCHEMA_V1, nodeIdValues));
+        statusValues.put(HeartbeatPayloadSchema.STATE, status.getState().name());
+        statusValues.put(HeartbeatPayloadSchema.DISCONNECT_CODE, status.getDisconnectCode() == null ? null : status.getDisconnectCode().name());
+        statusValues.put(HeartbeatPayloadSchema.DISCONNECT_REASON, status.getDisconnectReason());
+        statusValues.put(HeartbeatPayloadSchema.CONNECTION_REQUEST_TIME, status.getConnectionRequestTime());
+        return createRecord(HeartbeatPayloadSchema.NODE_CONNECTION_STATUS_SCHEMA_V1, statusValues);
+    }
+
+    private static Record createRecord(final RecordSchema schema, final Map<String, Object> values) {
+        final Map<RecordField, Object> fieldValues = new HashMap<>();
+        for (final RecordField field : schema.getFields()) {
+            fieldValues.put(field, values.get(field.getFieldName()));
+        }
+        return new FieldMapRecord(fieldValues, schema);
+    }
+
+    /**
+     * Processes the response to a heartbeat: records which version of the binary encoding the Cluster Coordinator
+     * understands and, if the Cluster Coordinator acknowledged the payload, uses it as the base of subsequent deltas.
+     *
+     * @param encodedPayload the payload of the heartbeat, as returned by {@link #encode(HeartbeatPayload)}
+     * @param response the response to the heartbeat
+     * @return the payload that was encoded, or <code>null</code> if it is no longer known
+     * @throws ProtocolException if the payload is XML and cannot be unmarshaled
+     */
+    public synchronized HeartbeatPayload onResponse(final byte[] encodedPayload, final HeartbeatResponseMessage response) throws ProtocolException {
+        final Integer coordinatorVersion = response.getHeartbeatPayloadVersion();
+        final int negotiatedVersion = coordinatorVersion == null ? 0 : Math.min(HeartbeatPayloadSchema.VERSION, coordinatorVersion);
+        if (negotiatedVersion != version) {
+            reset();
+            version = negotiatedVersion;
+        }
+
+        if (!HeartbeatPayloadSchema.isBinary(encodedPayload)) {
+            return HeartbeatPayload.unmarshal(encodedPayload);
+        }
+
+        final long sequence = readSequence(encodedPayload);
+        final HeartbeatPayload payload = unacknowledgedPayloads.remove(sequence);
+        unacknowledgedPayloads.headMap(sequence).clear();
+
+        final Long responseAcknowledgedSequence = response.getAcknowledgedHeartbeatSequence();
+        if (payload != null && version > 0 && responseAcknowledgedSequence != null && responseAcknowledgedSequence == sequence) {
+            acknowledgedSequence = sequence;
+            acknowledgedPayload = payload;
+        } else {
+            // the Cluster Coordinator does not know the payload, so the next one has to be sent in full
+            acknowledgedSequence = -1L;
+            acknowledgedPayload = null;
+        }
+
+        return payload;
+    }
+
+    private static long readSequence(final byte[] encodedPayload) throws ProtocolException {
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodedPayload))) {
+            in.skipBytes(HeartbeatPayloadSchema.MAGIC_HEADER.length + 4);
+
+            // the sequence is the first field of the record, which follows the record's sentinel byte
+            in.read();
+            return in.readLong();
+        } catch (final IOException ioe) {
+            throw new ProtocolException("Failed to read sequence number of heartbeat payload", ioe);
+        }
+    }
+
+    /**
+     * Discards all negotiated state, so that the next payload is marshaled as XML
+     */
+    public synchronized void reset() {
+        version = 0;
+        acknowledgedSequence = -1L;
+        acknowledgedPayload = null;
+        unacknowledgedPayloads.clear();
+    }
+}
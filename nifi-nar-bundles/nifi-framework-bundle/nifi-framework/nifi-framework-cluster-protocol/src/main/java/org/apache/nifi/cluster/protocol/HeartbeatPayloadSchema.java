@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.cluster.protocol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.nifi.repository.schema.ComplexRecordField;
+import org.apache.nifi.repository.schema.FieldType;
+import org.apache.nifi.repository.schema.RecordField;
+import org.apache.nifi.repository.schema.RecordSchema;
+import org.apache.nifi.repository.schema.Repetition;
+import org.apache.nifi.repository.schema.SimpleRecordField;
+
+/**
+ * <p>
+ * The schema of the binary encoding of a {@link HeartbeatPayload}. A binary payload starts with {@link #MAGIC_HEADER},
+ * which can never start an XML document, followed by the version of the encoding as a 4-byte integer and a single record
+ * of the schema for that version.
+ * </p>
+ *
+ * <p>
+ * Every payload has a sequence number. A payload that also has a base sequence number is a delta: it contains only the
+ * values that differ from those of the payload with the base sequence number, which the Cluster Coordinator must have
+ * acknowledged. For the cluster status, the delta contains the status of each node whose status has changed and the
+ * identifiers of the nodes that are no longer part of the status.
+ * </p>
+ */
+public class HeartbeatPayloadSchema {
+
+    /**
+     * The highest version of the binary encoding that this instance can read and write
+     */
+    public static final int VERSION = 1;
+
+    static final byte[] MAGIC_HEADER = new byte[] {0, 'N', 'H', 'B'};
+
+    public static final RecordSchema NODE_IDENTIFIER_SCHEMA_V1;
+    public static final RecordSchema NODE_CONNECTION_STATUS_SCHEMA_V1;
+    public static final RecordSchema HEARTBEAT_PAYLOAD_SCHEMA_V1;
+
+    public static final String NODE_ID = "Node ID";
+    public static final String API_ADDRESS = "API Address";
+    public static final String API_PORT = "API Port";
+    public static final String SOCKET_ADDRESS = "Socket Address";
+    public static final String SOCKET_PORT = "Socket Port";
+    public static final String SITE_TO_SITE_ADDRESS = "Site-to-Site Address";
+    public static final String SITE_TO_SITE_PORT = "Site-to-Site Port";
+    public static final String SITE_TO_SITE_HTTP_API_PORT = "Site-to-Site HTTP API Port";
+    public static final String SITE_TO_SITE_SECURE = "Site-to-Site Secure";
+    public static final String LOAD_BALANCE_ADDRESS = "Load Balance Address";
+    public static final String LOAD_BALANCE_PORT = "Load Balance Port";
+
+    public static final String UPDATE_ID = "Update ID";
+    public static final String NODE_IDENTIFIER = "Node Identifier";
+    public static final String STATE = "State";
+    public static final String DISCONNECT_CODE = "Disconnect Code";
+    public static final String DISCONNECT_REASON = "Disconnect Reason";
+    public static final String CONNECTION_REQUEST_TIME = "Connection Request Time";
+
+    public static final String SEQUENCE = "Sequence";
+    public static final String BASE_SEQUENCE = "Base Sequence";
+    public static final String ACTIVE_THREAD_COUNT = "Active Thread Count";
+    public static final String TOTAL_FLOWFILE_COUNT = "Total FlowFile Count";
+    public static final String TOTAL_FLOWFILE_BYTES = "Total FlowFile Bytes";
+    public static final String SYSTEM_START_TIME = "System Start Time";
+    public static final String CLUSTER_STATUS = "Cluster Status";
+    public static final String REMOVED_NODE_IDS = "Removed Node IDs";
+
+    static {
+        final List<RecordField> nodeIdFields = new ArrayList<>();
+        nodeIdFields.add(new SimpleRecordField(NODE_ID, FieldType.STRING, Repetition.EXACTLY_ONE));
+        nodeIdFields.add(new SimpleRecordField(API_ADDRESS, FieldType.STRING, Repetition.EXACTLY_ONE));
+        nodeIdFields.add(new SimpleRecordField(API_PORT, FieldType.INT, Repetition.EXACTLY_ONE));
+        nodeIdFields.add(new SimpleRecordField(SOCKET_ADDRESS, FieldType.STRING, Repetition.EXACTLY_ONE));
+        nodeIdFields.add(new SimpleRecordField(SOCKET_PORT, FieldType.INT, Repetition.EXACTLY_ONE));
+        nodeIdFields.add(new SimpleRecordField(SITE_TO_SITE_ADDRESS, FieldType.STRING, Repetition.ZERO_OR_ONE));
+        nodeIdFields.add(new SimpleRecordField(SITE_TO_SITE_PORT, FieldType.INT, Repetition.ZERO_OR_ONE));
+        nodeIdFields.add(new SimpleRecordField(SITE_TO_SITE_HTTP_API_PORT, FieldType.INT, Repetition.ZERO_OR_ONE));
+        nodeIdFields.add(new SimpleRecordField(SITE_TO_SITE_SECURE, FieldType.BOOLEAN, Repetition.EXACTLY_ONE));
+        nodeIdFields.add(new SimpleRecordField(LOAD_BALANCE_ADDRESS, FieldType.STRING, Repetition.ZERO_OR_ONE));
+        nodeIdFields.add(new SimpleRecordField(LOAD_BALANCE_PORT, FieldType.INT, Repetition.ZERO_OR_ONE));
+        NODE_IDENTIFIER_SCHEMA_V1 = new RecordSchema(nodeIdFields);
+
+        final List<RecordField> statusFields = new ArrayList<>();
+        statusFields.add(new SimpleRecordField(UPDATE_ID, FieldType.LONG, Repetition.EXACTLY_ONE));
+        statusFields.add(new ComplexRecordField(NODE_IDENTIFIER, Repetition.EXACTLY_ONE, nodeIdFields));
+        statusFields.add(new SimpleRecordField(STATE, FieldType.STRING, Repetition.EXACTLY_ONE));
+        statusFields.add(new SimpleRecordField(DISCONNECT_CODE, FieldType.STRING, Repetition.ZERO_OR_ONE));
+        statusFields.add(new SimpleRecordField(DISCONNECT_REASON, FieldType.LONG_STRING, Repetition.ZERO_OR_ONE));
+        statusFields.add(new SimpleRecordField(CONNECTION_REQUEST_TIME, FieldType.LONG, Repetition.ZERO_OR_ONE));
+        NODE_CONNECTION_STATUS_SCHEMA_V1 = new RecordSchema(statusFields);
+
+        final List<RecordField> payloadFields = new ArrayList<>();
+        payloadFields.add(new SimpleRecordField(SEQUENCE, FieldType.LONG, Repetition.EXACTLY_ONE));
+        payloadFields.add(new SimpleRecordField(BASE_SEQUENCE, FieldType.LONG, Repetition.ZERO_OR_ONE));
+        payloadFields.add(new SimpleRecordField(ACTIVE_THREAD_COUNT, FieldType.INT, Repetition.ZERO_OR_ONE));
+        payloadFields.add(new SimpleRecordField(TOTAL_FLOWFILE_COUNT, FieldType.LONG, Repetition.ZERO_OR_ONE));
+        payloadFields.add(new SimpleRecordField(TOTAL_FLOWFILE_BYTES, FieldType.LONG, Repetition.ZERO_OR_ONE));
+        payloadFields.add(new SimpleRecordField(SYSTEM_START_TIME, FieldType.LONG, Repetition.ZERO_OR_ONE));
+        payloadFields.add(new ComplexRecordField(CLUSTER_STATUS, Repetition.ZERO_OR_MORE, statusFields));
+        payloadFields.add(new SimpleRecordField(REMOVED_NODE_IDS, FieldType.STRING, Repetition.ZERO_OR_MORE));
+        HEARTBEAT_PAYLOAD_SCHEMA_V1 = new RecordSchema(payloadFields);
+    }
+
+    /**
+     * @param payload an encoded heartbeat payload
+     * @return <code>true</code> if the payload uses the binary encoding, <code>false</code> if it is XML
+     */
+    public static boolean isBinary(final byte[] payload) {
+        return payload != null && payload.length >= MAGIC_HEADER.length && Arrays.equals(MAGIC_HEADER, Arrays.copyOf(payload, MAGIC_HEADER.length));
+    }
+}
@@ -88,6 +88,17 @@ public class NodeIdentifier {
      */
     private final Boolean siteToSiteSecure;
 
+    /**
+     * the IP or hostname that other nodes of the cluster should use to transfer FlowFiles of load-balanced connections to this node,
+     * or <code>null</code> if the node does not accept load-balanced FlowFiles
+     */
+    private final String loadBalanceAddress;
+
+    /**
+     * the port that other nodes of the cluster should use to transfer FlowFiles of load-balanced connections to this node,
+     * or <code>null</code> if the node does not accept load-balanced FlowFiles
+     */
+    private final Integer loadBalancePort;
 
     private final String nodeDn;
 
@@ -98,6 +109,12 @@ public class NodeIdentifier {
 
     public NodeIdentifier(final String id, final String apiAddress, final int apiPort, final String socketAddress, final int socketPort,
         final String siteToSiteAddress, final Integer siteToSitePort, final Integer siteToSiteHttpApiPort, final boolean siteToSiteSecure, final String dn) {
+        this(id, apiAddress, apiPort, socketAddress, socketPort, siteToSiteAddress, siteToSitePort, siteToSiteHttpApiPort, siteToSiteSecure, null, null, dn);
+    }
+
+    public NodeIdentifier(final String id, final String apiAddress, final int apiPort, final String socketAddress, final int socketPort,
+        final String siteToSiteAddress, final Integer siteToSitePort, final Integer siteToSiteHttpApiPort, final boolean siteToSiteSecure,
+        final String loadBalanceAddress, final Integer loadBalancePort, final String dn) {
 
         if (StringUtils.isBlank(id)) {
             throw new IllegalArgumentException("Node ID may not be empty or null.");
@@ -112,6 +129,9 @@ public class NodeIdentifier {
         if (siteToSitePort != null) {
             validatePort(siteToSitePort);
         }
+        if (loadBalancePort != null) {
+            validatePort(loadBalancePort);
+        }
 
         this.id = id;
         this.apiAddress = apiAddress;
@@ -123,6 +143,8 @@ public class NodeIdentifier {
         this.siteToSitePort = siteToSitePort;
         this.siteToSiteHttpApiPort = siteToSiteHttpApiPort;
         this.siteToSiteSecure = siteToSiteSecure;
+        this.loadBalanceAddress = loadBalancePort == null ? null : (loadBalanceAddress == null ? socketAddress : loadBalanceAddress);
+        this.loadBalancePort = loadBalancePort;
     }
 
     /**
@@ -138,6 +160,8 @@ public class NodeIdentifier {
         this.siteToSiteAddress = null;
         this.siteToSitePort = null;
         this.siteToSiteHttpApiPort = null;
+        this.loadBalanceAddress = null;
+        this.loadBalancePort = null;
         this.siteToSiteSecure = false;
     }
 
@@ -187,6 +211,14 @@ public class NodeIdentifier {
         return siteToSiteSecure;
     }
 
+    public String getLoadBalanceAddress() {
+        return loadBalanceAddress;
+    }
+
+    public Integer getLoadBalancePort() {
+        return loadBalancePort;
+    }
+
 
     /**
      * Compares the id of two node identifiers for equality.
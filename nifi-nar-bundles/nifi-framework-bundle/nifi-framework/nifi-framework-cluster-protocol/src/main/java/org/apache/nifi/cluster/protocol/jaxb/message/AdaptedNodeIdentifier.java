@@ -30,6 +30,8 @@ public class AdaptedNodeIdentifier {
     private Integer siteToSiteHttpApiPort;
 
     private boolean siteToSiteSecure;
+    private String loadBalanceAddress;
+    private Integer loadBalancePort;
 
     public AdaptedNodeIdentifier() {
     }
@@ -107,4 +109,20 @@ public class AdaptedNodeIdentifier {
         this.siteToSiteHttpApiPort = siteToSiteHttpApiPort;
     }
 
+    public String getLoadBalanceAddress() {
+        return loadBalanceAddress;
+    }
+
+    public void setLoadBalanceAddress(String loadBalanceAddress) {
+        this.loadBalanceAddress = loadBalanceAddress;
+    }
+
+    public Integer getLoadBalancePort() {
+        return loadBalancePort;
+    }
+
+    public void setLoadBalancePort(Integer loadBalancePort) {
+        this.loadBalancePort = loadBalancePort;
+    }
+
 }
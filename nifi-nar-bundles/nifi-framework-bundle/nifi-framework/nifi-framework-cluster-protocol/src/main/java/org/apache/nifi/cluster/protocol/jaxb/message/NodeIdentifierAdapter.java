@@ -38,6 +38,8 @@ public class NodeIdentifierAdapter extends XmlAdapter<AdaptedNodeIdentifier, Nod
             aNi.setSiteToSitePort(ni.getSiteToSitePort());
             aNi.setSiteToSiteHttpApiPort(ni.getSiteToSiteHttpApiPort());
             aNi.setSiteToSiteSecure(ni.isSiteToSiteSecure());
+            aNi.setLoadBalanceAddress(ni.getLoadBalanceAddress());
+            aNi.setLoadBalancePort(ni.getLoadBalancePort());
             return aNi;
         }
     }
@@ -48,7 +50,8 @@ public class NodeIdentifierAdapter extends XmlAdapter<AdaptedNodeIdentifier, Nod
             return null;
         } else {
             return new NodeIdentifier(aNi.getId(), aNi.getApiAddress(), aNi.getApiPort(), aNi.getSocketAddress(), aNi.getSocketPort(),
-                aNi.getSiteToSiteAddress(), aNi.getSiteToSitePort(),aNi.getSiteToSiteHttpApiPort(), aNi.isSiteToSiteSecure());
+                aNi.getSiteToSiteAddress(), aNi.getSiteToSitePort(),aNi.getSiteToSiteHttpApiPort(), aNi.isSiteToSiteSecure(),
+                aNi.getLoadBalanceAddress(), aNi.getLoadBalancePort(), null);
         }
     }
 
@@ -29,6 +29,8 @@ public class HeartbeatResponseMessage extends ProtocolMessage {
 
     private List<NodeConnectionStatus> updatedNodeStatuses = new ArrayList<>();
     private String flowElectionMessage = null;
+    private Integer heartbeatPayloadVersion = null;
+    private Long acknowledgedHeartbeatSequence = null;
 
     @Override
     public MessageType getType() {
@@ -50,4 +52,28 @@ public class HeartbeatResponseMessage extends ProtocolMessage {
     public void setFlowElectionMessage(String flowElectionMessage) {
         this.flowElectionMessage = flowElectionMessage;
     }
+
+    /**
+     * @return the highest version of the binary heartbeat payload encoding that the Cluster Coordinator supports, or
+     *         <code>null</code> if it supports only XML payloads
+     */
+    public Integer getHeartbeatPayloadVersion() {
+        return heartbeatPayloadVersion;
+    }
+
+    public void setHeartbeatPayloadVersion(final Integer heartbeatPayloadVersion) {
+        this.heartbeatPayloadVersion = heartbeatPayloadVersion;
+    }
+
+    /**
+     * @return the sequence number of the binary heartbeat payload that the Cluster Coordinator has retained as the base
+     *         for subsequent deltas, or <code>null</code> if it has not retained any
+     */
+    public Long getAcknowledgedHeartbeatSequence() {
+        return acknowledgedHeartbeatSequence;
+    }
+
+    public void setAcknowledgedHeartbeatSequence(final Long acknowledgedHeartbeatSequence) {
+        this.acknowledgedHeartbeatSequence = acknowledgedHeartbeatSequence;
+    }
 }
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.cluster.protocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.nifi.cluster.coordination.node.DisconnectionCode;
+import org.apache.nifi.cluster.coordination.node.NodeConnectionState;
+import org.apache.nifi.cluster.coordination.node.NodeConnectionStatus;
+import org.apache.nifi.cluster.protocol.message.HeartbeatResponseMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHeartbeatPayloadEncoder {
+
+    private NodeIdentifier nodeId;
+    private NodeIdentifier otherNodeId;
+    private List<NodeConnectionStatus> clusterStatus;
+    private HeartbeatPayloadEncoder encoder;
+    private HeartbeatPayloadDecoder decoder;
+
+    @Before
+    public void setup() {
+        nodeId = new NodeIdentifier("node-1", "localhost", 8000, "localhost", 8001, "localhost", 8002, 8003, true);
+        otherNodeId = new NodeIdentifier("node-2", "otherhost", 8000, "otherhost", 8001, null, null, null, false);
+        clusterStatus = Arrays.asList(
+            new NodeConnectionStatus(nodeId, NodeConnectionState.CONNECTED),
+            new NodeConnectionStatus(otherNodeId, DisconnectionCode.LACK_OF_HEARTBEAT));
+        encoder = new HeartbeatPayloadEncoder();
+        decoder = new HeartbeatPayloadDecoder();
+    }
+
+    @Test
+    public void testXmlUntilNegotiated() {
+        final byte[] encoded = encoder.encode(createPayload(4, 83L));
+        assertFalse(HeartbeatPayloadSchema.isBinary(encoded));
+
+        final HeartbeatPayload decoded = decoder.decode(nodeId, encoded);
+        assertPayloadEquals(createPayload(4, 83L), decoded);
+
+        // a Cluster Coordinator that does not know about the binary encoding does not advertise a version
+        final HeartbeatPayload acknowledged = encoder.onResponse(encoded, new HeartbeatResponseMessage());
+        assertPayloadEquals(createPayload(4, 83L), acknowledged);
+        assertEquals(0, encoder.getVersion());
+        assertFalse(HeartbeatPayloadSchema.isBinary(encoder.encode(createPayload(4, 83L))));
+    }
+
+    @Test
+    public void testDeltaContainsOnlyChanges() {
+        exchange(encoder.encode(createPayload(4, 83L)));
+        assertEquals(HeartbeatPayloadSchema.VERSION, encoder.getVersion());
+
+        final byte[] full = encoder.encode(createPayload(4, 83L));
+        assertTrue(HeartbeatPayloadSchema.isBinary(full));
+        assertPayloadEquals(createPayload(4, 83L), exchange(full));
+
+        final HeartbeatPayload changed = createPayload(5, 83L);
+        final byte[] delta = encoder.encode(changed);
+        assertTrue(HeartbeatPayloadSchema.isBinary(delta));
+        assertTrue(delta.length < full.length);
+        assertPayloadEquals(changed, exchange(delta));
+
+        final byte[] unchanged = encoder.encode(changed);
+        assertTrue(unchanged.length < delta.length);
+        assertPayloadEquals(changed, exchange(unchanged));
+    }
+
+    @Test
+    public void testClusterStatusChangesApplied() {
+        exchange(encoder.encode(createPayload(4, 83L)));
+        exchange(encoder.encode(createPayload(4, 83L)));
+
+        final HeartbeatPayload payload = createPayload(4, 83L);
+        final List<NodeConnectionStatus> statuses = new ArrayList<>();
+        statuses.add(new NodeConnectionStatus(nodeId, DisconnectionCode.NODE_SHUTDOWN, "Node was shutdown"));
+        statuses.add(clusterStatus.get(1));
+        payload.setClusterStatus(statuses);
+        assertPayloadEquals(payload, exchange(encoder.encode(payload)));
+
+        final HeartbeatPayload removed = createPayload(4, 83L);
+        removed.setClusterStatus(new ArrayList<>());
+        final HeartbeatPayload decoded = exchange(encoder.encode(removed));
+        assertTrue(decoded.getClusterStatus().isEmpty());
+    }
+
+    @Test
+    public void testFullPayloadSentWhenBaseUnknown() {
+        exchange(encoder.encode(createPayload(4, 83L)));
+        exchange(encoder.encode(createPayload(4, 83L)));
+
+        // the Cluster Coordinator changed, so the base of the delta is no longer known
+        decoder.clear();
+        final byte[] delta = encoder.encode(createPayload(5, 100L));
+        assertNull(decoder.decode(nodeId, delta));
+        assertNull(decoder.getAcknowledgedSequence(nodeId));
+        encoder.onResponse(delta, createResponse(nodeId));
+
+        assertPayloadEquals(createPayload(6, 100L), exchange(encoder.encode(createPayload(6, 100L))));
+    }
+
+    @Test
+    public void testResetFallsBackToXml() {
+        exchange(encoder.encode(createPayload(4, 83L)));
+        assertTrue(HeartbeatPayloadSchema.isBinary(encoder.encode(createPayload(4, 83L))));
+
+        encoder.reset();
+        assertEquals(0, encoder.getVersion());
+
+        final byte[] encoded = encoder.encode(createPayload(4, 83L));
+        assertFalse(HeartbeatPayloadSchema.isBinary(encoded));
+        assertPayloadEquals(createPayload(4, 83L), exchange(encoded));
+    }
+
+    private HeartbeatPayload exchange(final byte[] encoded) {
+        final HeartbeatPayload decoded = decoder.decode(nodeId, encoded);
+        assertNotNull(decoded);
+        assertNotNull(encoder.onResponse(encoded, createResponse(nodeId)));
+        return decoded;
+    }
+
+    private HeartbeatResponseMessage createResponse(final NodeIdentifier nodeId) {
+        final HeartbeatResponseMessage response = new HeartbeatResponseMessage();
+        response.setHeartbeatPayloadVersion(HeartbeatPayloadSchema.VERSION);
+        response.setAcknowledgedHeartbeatSequence(decoder.getAcknowledgedSequence(nodeId));
+        return response;
+    }
+
+    private HeartbeatPayload createPayload(final int flowFileCount, final long flowFileBytes) {
+        final HeartbeatPayload payload = new HeartbeatPayload();
+        payload.setActiveThreadCount(2);
+        payload.setSystemStartTime(1000L);
+        payload.setTotalFlowFileCount(flowFileCount);
+        payload.setTotalFlowFileBytes(flowFileBytes);
+        payload.setClusterStatus(new ArrayList<>(clusterStatus));
+        return payload;
+    }
+
+    private void assertPayloadEquals(final HeartbeatPayload expected, final HeartbeatPayload actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getActiveThreadCount(), actual.getActiveThreadCount());
+        assertEquals(expected.getSystemStartTime(), actual.getSystemStartTime());
+        assertEquals(expected.getTotalFlowFileCount(), actual.getTotalFlowFileCount());
+        assertEquals(expected.getTotalFlowFileBytes(), actual.getTotalFlowFileBytes());
+        assertEquals(expected.getClusterStatus(), actual.getClusterStatus());
+
+        for (int i = 0; i < expected.getClusterStatus().size(); i++) {
+            final NodeConnectionStatus expectedStatus = expected.getClusterStatus().get(i);
+            final NodeConnectionStatus actualStatus = actual.getClusterStatus().get(i);
+            assertEquals(expectedStatus.getDisconnectCode(), actualStatus.getDisconnectCode());
+            assertEquals(expectedStatus.getDisconnectReason(), actualStatus.getDisconnectReason());
+            assertEquals(expectedStatus.getUpdateIdentifier(), actualStatus.getUpdateIdentifier());
+            assertEquals(expectedStatus.getNodeIdentifier().getApiAddress(), actualStatus.getNodeIdentifier().getApiAddress());
+            assertEquals(expectedStatus.getNodeIdentifier().getSiteToSitePort(), actualStatus.getNodeIdentifier().getSiteToSitePort());
+        }
+    }
+}
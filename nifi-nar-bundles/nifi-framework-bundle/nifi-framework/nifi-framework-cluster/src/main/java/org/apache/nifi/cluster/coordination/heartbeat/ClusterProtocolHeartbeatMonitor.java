@@ -34,6 +34,8 @@ import org.apache.nifi.cluster.coordination.node.NodeConnectionStatus;
 import org.apache.nifi.cluster.coordination.node.NodeWorkload;
 import org.apache.nifi.cluster.protocol.Heartbeat;
 import org.apache.nifi.cluster.protocol.HeartbeatPayload;
+import org.apache.nifi.cluster.protocol.HeartbeatPayloadDecoder;
+import org.apache.nifi.cluster.protocol.HeartbeatPayloadSchema;
 import org.apache.nifi.cluster.protocol.NodeIdentifier;
 import org.apache.nifi.cluster.protocol.ProtocolException;
 import org.apache.nifi.cluster.protocol.ProtocolHandler;
@@ -59,6 +61,7 @@ public class ClusterProtocolHeartbeatMonitor extends AbstractHeartbeatMonitor im
 
     private final String heartbeatAddress;
     private final ConcurrentMap<NodeIdentifier, NodeHeartbeat> heartbeatMessages = new ConcurrentHashMap<>();
+    private final HeartbeatPayloadDecoder payloadDecoder = new HeartbeatPayloadDecoder();
 
     protected static final Unmarshaller nodeIdentifierUnmarshaller;
 
@@ -110,6 +113,7 @@ public class ClusterProtocolHeartbeatMonitor extends AbstractHeartbeatMonitor im
         // that if we go the required amount of time without receiving a heartbeat, we do know to mark the node
         // as disconnected.
         heartbeatMessages.clear();
+        payloadDecoder.clear();
         for (final NodeIdentifier nodeId : clusterCoordinator.getNodeIdentifiers()) {
             final NodeHeartbeat heartbeat = new StandardNodeHeartbeat(nodeId, System.currentTimeMillis(),
                     clusterCoordinator.getConnectionStatus(nodeId), 0, 0L, 0, System.currentTimeMillis());
@@ -130,12 +134,14 @@ public class ClusterProtocolHeartbeatMonitor extends AbstractHeartbeatMonitor im
     public synchronized void removeHeartbeat(final NodeIdentifier nodeId) {
         logger.debug("Deleting heartbeat for node {}", nodeId);
         heartbeatMessages.remove(nodeId);
+        payloadDecoder.remove(nodeId);
     }
 
     @Override
     public synchronized void purgeHeartbeats() {
         logger.debug("Purging old heartbeats");
         heartbeatMessages.clear();
+        payloadDecoder.clear();
     }
 
     @Override
@@ -157,7 +163,18 @@ public class ClusterProtocolHeartbeatMonitor extends AbstractHeartbeatMonitor im
         final NodeIdentifier nodeId = heartbeat.getNodeIdentifier();
         final NodeConnectionStatus connectionStatus = heartbeat.getConnectionStatus();
         final byte[] payloadBytes = heartbeat.getPayload();
-        final HeartbeatPayload payload = HeartbeatPayload.unmarshal(payloadBytes);
+        final HeartbeatPayload payload = payloadDecoder.decode(nodeId, payloadBytes);
+
+        final HeartbeatResponseMessage responseMessage = new HeartbeatResponseMessage();
+        responseMessage.setHeartbeatPayloadVersion(HeartbeatPayloadSchema.VERSION);
+        if (payload == null) {
+            // The payload is a delta relative to one that we do not have, for instance because we were just elected
+            // Cluster Coordinator. Without an acknowledged sequence in the response, the node sends the next one in full.
+            logger.debug("Received heartbeat from {} relative to an unknown heartbeat; requesting a full heartbeat", nodeId);
+            return responseMessage;
+        }
+        responseMessage.setAcknowledgedHeartbeatSequence(payloadDecoder.getAcknowledgedSequence(nodeId));
+
         final int activeThreadCount = payload.getActiveThreadCount();
         final int flowFileCount = (int) payload.getTotalFlowFileCount();
         final long flowFileBytes = payload.getTotalFlowFileBytes();
@@ -175,8 +192,6 @@ public class ClusterProtocolHeartbeatMonitor extends AbstractHeartbeatMonitor im
             nodeStatusList = Collections.emptyList();
         }
         final List<NodeConnectionStatus> updatedStatuses = getUpdatedStatuses(nodeStatusList);
-
-        final HeartbeatResponseMessage responseMessage = new HeartbeatResponseMessage();
         responseMessage.setUpdatedNodeStatuses(updatedStatuses);
 
         if (!getClusterCoordinator().isFlowElectionComplete()) {
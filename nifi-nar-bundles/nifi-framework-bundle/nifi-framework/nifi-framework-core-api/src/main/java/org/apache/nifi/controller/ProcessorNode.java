@@ -96,6 +96,20 @@ public abstract class ProcessorNode extends AbstractConfiguredComponent implemen
 
     public abstract long getRunDuration(TimeUnit timeUnit);
 
+    /**
+     * @param timeUnit the unit of the returned duration
+     * @return the amount of time for which the framework may keep triggering the Processor with the same session
+     *         before committing it: if the Processor supports batching, the larger of the Run Duration and the
+     *         duration declared by the Processor's BatchCommits annotation, if commit batching is enabled. A value
+     *         of 0 indicates that the session is committed after each invocation
+     */
+    public abstract long getCommitBatchDuration(TimeUnit timeUnit);
+
+    /**
+     * @return the maximum number of FlowFiles that may be part of a batched session before it is committed
+     */
+    public abstract int getCommitBatchMaxFlowFiles();
+
     public abstract Map<String, String> getStyle();
 
     public abstract void setStyle(Map<String, String> style);
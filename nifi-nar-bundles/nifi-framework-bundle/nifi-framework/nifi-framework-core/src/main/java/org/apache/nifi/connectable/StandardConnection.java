@@ -28,9 +28,12 @@ import org.apache.nifi.authorization.RequestAction;
 import org.apache.nifi.authorization.Resource;
 import org.apache.nifi.authorization.resource.Authorizable;
 import org.apache.nifi.authorization.user.NiFiUser;
+import org.apache.nifi.controller.AbstractFlowFileQueue;
 import org.apache.nifi.controller.ProcessScheduler;
 import org.apache.nifi.controller.StandardFlowFileQueue;
+import org.apache.nifi.controller.StripedFlowFileQueue;
 import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.queue.clustered.FlowFileLoadBalancer;
 import org.apache.nifi.controller.repository.FlowFileRecord;
 import org.apache.nifi.controller.repository.FlowFileRepository;
 import org.apache.nifi.controller.repository.FlowFileSwapManager;
@@ -68,7 +71,7 @@ public final class StandardConnection implements Connection {
     private final Connectable source;
     private final AtomicReference<Connectable> destination;
     private final AtomicReference<Collection<Relationship>> relationships;
-    private final StandardFlowFileQueue flowFileQueue;
+    private final AbstractFlowFileQueue flowFileQueue;
     private final AtomicInteger labelIndex = new AtomicInteger(1);
     private final AtomicLong zIndex = new AtomicLong(0L);
     private final ProcessScheduler scheduler;
@@ -83,8 +86,14 @@ public final class StandardConnection implements Connection {
         destination = new AtomicReference<>(builder.destination);
         relationships = new AtomicReference<>(Collections.unmodifiableCollection(builder.relationships));
         scheduler = builder.scheduler;
-        flowFileQueue = new StandardFlowFileQueue(id, this, builder.flowFileRepository, builder.provenanceRepository, builder.resourceClaimManager,
-                scheduler, builder.swapManager, builder.eventReporter, builder.queueSwapThreshold);
+        if (StripedFlowFileQueue.class.getName().equals(builder.queueImplementation)) {
+            flowFileQueue = new StripedFlowFileQueue(id, this, builder.flowFileRepository, builder.provenanceRepository, builder.resourceClaimManager,
+                    scheduler, builder.swapManager, builder.eventReporter, builder.queueSwapThreshold, builder.queueStripes);
+        } else {
+            flowFileQueue = new StandardFlowFileQueue(id, this, builder.flowFileRepository, builder.provenanceRepository, builder.resourceClaimManager,
+                    scheduler, builder.swapManager, builder.eventReporter, builder.queueSwapThreshold);
+        }
+        flowFileQueue.setLoadBalancer(builder.loadBalancer);
         hashCode = new HashCodeBuilder(7, 67).append(id).toHashCode();
     }
 
@@ -373,6 +382,9 @@ public final class StandardConnection implements Connection {
         private ProvenanceEventRepository provenanceRepository;
         private ResourceClaimManager resourceClaimManager;
         private int queueSwapThreshold;
+        private String queueImplementation = StandardFlowFileQueue.class.getName();
+        private int queueStripes = 1;
+        private FlowFileLoadBalancer loadBalancer;
 
         public Builder(final ProcessScheduler scheduler) {
             this.scheduler = scheduler;
@@ -449,6 +461,21 @@ public final class StandardConnection implements Connection {
             return this;
         }
 
+        public Builder queueImplementation(final String queueImplementation) {
+            this.queueImplementation = queueImplementation;
+            return this;
+        }
+
+        public Builder queueStripes(final int queueStripes) {
+            this.queueStripes = queueStripes;
+            return this;
+        }
+
+        public Builder loadBalancer(final FlowFileLoadBalancer loadBalancer) {
+            this.loadBalancer = loadBalancer;
+            return this;
+        }
+
         public StandardConnection build() {
             if (source == null) {
                 throw new IllegalStateException("Cannot build a Connection without a Source");
@@ -468,6 +495,12 @@ public final class StandardConnection implements Connection {
             if (resourceClaimManager == null) {
                 throw new IllegalStateException("Cannot build a Connection without a Resource Claim Manager");
             }
+            if (!StandardFlowFileQueue.class.getName().equals(queueImplementation) && !StripedFlowFileQueue.class.getName().equals(queueImplementation)) {
+                throw new IllegalStateException("Cannot build a Connection with unknown FlowFile Queue implementation " + queueImplementation);
+            }
+            if (queueStripes < 1) {
+                throw new IllegalStateException("Cannot build a Connection whose FlowFile Queue has fewer than 1 stripe");
+            }
 
             if (relationships == null) {
                 relationships = new ArrayList<>();
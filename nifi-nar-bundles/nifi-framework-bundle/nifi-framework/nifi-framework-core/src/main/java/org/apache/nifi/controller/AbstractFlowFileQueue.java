@@ -0,0 +1,1309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller;
+
+import org.apache.nifi.connectable.Connectable;
+import org.apache.nifi.connectable.Connection;
+import org.apache.nifi.controller.queue.DropFlowFileState;
+import org.apache.nifi.controller.queue.DropFlowFileStatus;
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.queue.FlowFileSummary;
+import org.apache.nifi.controller.queue.ListFlowFileRequest;
+import org.apache.nifi.controller.queue.ListFlowFileState;
+import org.apache.nifi.controller.queue.ListFlowFileStatus;
+import org.apache.nifi.controller.queue.LoadBalanceStrategy;
+import org.apache.nifi.controller.queue.QueueSize;
+import org.apache.nifi.controller.queue.clustered.FlowFileLoadBalancer;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.controller.repository.FlowFileRepository;
+import org.apache.nifi.controller.repository.FlowFileSwapManager;
+import org.apache.nifi.controller.repository.IncompleteSwapFileException;
+import org.apache.nifi.controller.repository.RepositoryRecord;
+import org.apache.nifi.controller.repository.RepositoryRecordType;
+import org.apache.nifi.controller.repository.SwapContents;
+import org.apache.nifi.controller.repository.SwapSummary;
+import org.apache.nifi.controller.repository.claim.ContentClaim;
+import org.apache.nifi.controller.repository.claim.ResourceClaim;
+import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
+import org.apache.nifi.controller.swap.StandardSwapSummary;
+import org.apache.nifi.events.EventReporter;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.flowfile.FlowFilePrioritizer;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
+import org.apache.nifi.processor.DataUnit;
+import org.apache.nifi.provenance.ProvenanceEventBuilder;
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.apache.nifi.provenance.ProvenanceEventType;
+import org.apache.nifi.reporting.Severity;
+import org.apache.nifi.scheduling.SchedulingStrategy;
+import org.apache.nifi.util.FormatUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Base class for FlowFile Queue implementations. Provides the size accounting, back pressure, FlowFile expiration,
+ * swap file bookkeeping, and the listing and dropping of FlowFiles, while leaving the organization of the active
+ * queue and the locking strategy that protects it to the concrete implementation.
+ *
+ * The swap queue, swap locations and swap mode that are held by this class must only be accessed while holding the
+ * lock that is obtained via {@link #lock()} or while holding whatever lock the concrete implementation uses to
+ * guard them.
+ */
+public abstract class AbstractFlowFileQueue implements FlowFileQueue {
+
+    public static final int MAX_EXPIRED_RECORDS_PER_ITERATION = 100000;
+    public static final int SWAP_RECORD_POLL_SIZE = 10000;
+
+    /**
+     * The number of FlowFiles that the active queue must still drain before the next swap file is swapped in, at which
+     * point the swap manager is asked to start swapping that file in ahead of time.
+     */
+    public static final int SWAP_PREFETCH_COUNT = SWAP_RECORD_POLL_SIZE / 2;
+
+    public static final int DEFAULT_BACKPRESSURE_COUNT = 10000;
+    public static final String DEFAULT_BACKPRESSURE_SIZE = "1 GB";
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractFlowFileQueue.class);
+
+    protected final AtomicReference<FlowFileQueueSize> size = new AtomicReference<>(new FlowFileQueueSize(0, 0L, 0, 0L, 0, 0, 0L));
+
+    private final AtomicReference<MaxQueueSize> maxQueueSize = new AtomicReference<>(new MaxQueueSize(DEFAULT_BACKPRESSURE_SIZE,
+            DataUnit.parseDataSize(DEFAULT_BACKPRESSURE_SIZE, DataUnit.B).longValue(), DEFAULT_BACKPRESSURE_COUNT));
+    private final AtomicReference<TimePeriod> expirationPeriod = new AtomicReference<>(new TimePeriod("0 mins", 0L));
+
+    // guarded by the lock of the concrete implementation
+    protected final List<FlowFileRecord> swapQueue = new ArrayList<>();
+    protected final List<String> swapLocations = new ArrayList<>();
+    protected volatile boolean swapMode = false;
+    private String prefetchedSwapLocation = null;
+
+    protected final EventReporter eventReporter;
+    protected final Connection connection;
+    protected final int swapThreshold;
+    protected final FlowFileSwapManager swapManager;
+    private final String identifier;
+    private final FlowFileRepository flowFileRepository;
+    private final ProvenanceEventRepository provRepository;
+    private final ResourceClaimManager resourceClaimManager;
+
+    private final ConcurrentMap<String, DropFlowFileRequest> dropRequestMap = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ListFlowFileRequest> listRequestMap = new ConcurrentHashMap<>();
+
+    private volatile LoadBalanceStrategy loadBalanceStrategy = LoadBalanceStrategy.DO_NOT_LOAD_BALANCE;
+    private volatile String partitioningAttribute = null;
+    private volatile FlowFileLoadBalancer loadBalancer = null;
+
+    // SCHEDULER CANNOT BE NOTIFIED OF EVENTS WITH THE WRITE LOCK HELD! DOING SO WILL RESULT IN A DEADLOCK!
+    protected final ProcessScheduler scheduler;
+
+    protected AbstractFlowFileQueue(final String identifier, final Connection connection, final FlowFileRepository flowFileRepo, final ProvenanceEventRepository provRepo,
+        final ResourceClaimManager resourceClaimManager, final ProcessScheduler scheduler, final FlowFileSwapManager swapManager, final EventReporter eventReporter, final int swapThreshold) {
+        this.eventReporter = eventReporter;
+        this.swapManager = swapManager;
+        this.flowFileRepository = flowFileRepo;
+        this.provRepository = provRepo;
+        this.resourceClaimManager = resourceClaimManager;
+
+        this.identifier = identifier;
+        this.swapThreshold = swapThreshold;
+        this.scheduler = scheduler;
+        this.connection = connection;
+    }
+
+    /**
+     * Lock the queue so that other threads are unable to interact with the
+     * queue
+     */
+    public abstract void lock();
+
+    /**
+     * Unlock the queue
+     */
+    public abstract void unlock();
+
+    /**
+     * Creates a copy of the FlowFiles that are currently in the active queue, sorted into the order in which
+     * they would be pulled from the queue. Implementations should hold their lock no longer than is necessary
+     * to copy the queue.
+     *
+     * @return a sorted copy of the active queue
+     */
+    protected abstract List<FlowFileRecord> getActiveFlowFilesInPriorityOrder();
+
+    /**
+     * Creates a copy of the FlowFiles that are currently in the active queue. This method is called only
+     * while holding the lock obtained via {@link #lock()}.
+     *
+     * @return a copy of the active queue
+     */
+    protected abstract List<FlowFileRecord> getActiveFlowFiles();
+
+    /**
+     * Removes all FlowFiles from the active queue without updating the size of the queue. This method is
+     * called only while holding the lock obtained via {@link #lock()}.
+     */
+    protected abstract void clearActiveQueue();
+
+    /**
+     * Adds the given FlowFiles to the active queue without updating the size of the queue. This method is
+     * called only while holding the lock obtained via {@link #lock()}.
+     *
+     * @param flowFiles the FlowFiles to add
+     */
+    protected abstract void addToActiveQueue(Collection<FlowFileRecord> flowFiles);
+
+    /**
+     * Places the given FlowFile into this node's queue, regardless of the queue's load balance strategy.
+     *
+     * @param file the FlowFile to place into the queue
+     */
+    protected abstract void putLocally(FlowFileRecord file);
+
+    @Override
+    public void put(final FlowFileRecord file) {
+        if (isLoadBalanced()) {
+            putAll(Collections.singletonList(file));
+        } else {
+            putLocally(file);
+        }
+    }
+
+    @Override
+    public void putAll(final Collection<FlowFileRecord> files) {
+        final FlowFileLoadBalancer balancer = loadBalancer;
+        if (balancer == null || !isLoadBalanced()) {
+            putAllLocally(files);
+            return;
+        }
+
+        // Until another node has received them, FlowFiles that are sent to that node are accounted for as unacknowledged,
+        // so that they still count towards back pressure. The load balancer acknowledges them once they have been transferred.
+        incrementUnacknowledgedQueueSize(files.size(), getTotalSize(files));
+        final List<FlowFileRecord> localFlowFiles = balancer.distribute(this, files);
+        if (!localFlowFiles.isEmpty()) {
+            incrementUnacknowledgedQueueSize(-localFlowFiles.size(), -getTotalSize(localFlowFiles));
+            putAllLocally(localFlowFiles);
+        }
+    }
+
+    private static long getTotalSize(final Collection<FlowFileRecord> flowFiles) {
+        long totalSize = 0L;
+        for (final FlowFileRecord flowFile : flowFiles) {
+            totalSize += flowFile.getSize();
+        }
+        return totalSize;
+    }
+
+    private boolean isLoadBalanced() {
+        return loadBalancer != null && loadBalanceStrategy != LoadBalanceStrategy.DO_NOT_LOAD_BALANCE;
+    }
+
+    /**
+     * Sets the load balancer that distributes FlowFiles across the nodes of the cluster if the queue's load balance strategy
+     * calls for it. Without a load balancer, all FlowFiles are queued locally.
+     *
+     * @param loadBalancer the load balancer, or <code>null</code> if FlowFiles are not to be distributed
+     */
+    public void setLoadBalancer(final FlowFileLoadBalancer loadBalancer) {
+        this.loadBalancer = loadBalancer;
+    }
+
+    @Override
+    public void setLoadBalanceStrategy(final LoadBalanceStrategy strategy, final String partitioningAttribute) {
+        Objects.requireNonNull(strategy);
+        if (strategy == LoadBalanceStrategy.PARTITION_BY_ATTRIBUTE && (partitioningAttribute == null || partitioningAttribute.trim().isEmpty())) {
+            throw new IllegalArgumentException("Cannot partition FlowFiles by attribute without the name of a partitioning attribute");
+        }
+
+        // set the attribute first, so that a thread that sees the new strategy also sees the new attribute
+        this.partitioningAttribute = strategy == LoadBalanceStrategy.PARTITION_BY_ATTRIBUTE ? partitioningAttribute : null;
+        this.loadBalanceStrategy = strategy;
+    }
+
+    @Override
+    public LoadBalanceStrategy getLoadBalanceStrategy() {
+        return loadBalanceStrategy;
+    }
+
+    @Override
+    public String getPartitioningAttribute() {
+        return partitioningAttribute;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    @Override
+    public void setBackPressureObjectThreshold(final long threshold) {
+        boolean updated = false;
+        while (!updated) {
+            MaxQueueSize maxSize = maxQueueSize.get();
+            final MaxQueueSize updatedSize = new MaxQueueSize(maxSize.getMaxSize(), maxSize.getMaxBytes(), threshold);
+            updated = maxQueueSize.compareAndSet(maxSize, updatedSize);
+        }
+    }
+
+    @Override
+    public long getBackPressureObjectThreshold() {
+        return maxQueueSize.get().getMaxCount();
+    }
+
+    @Override
+    public void setBackPressureDataSizeThreshold(final String maxDataSize) {
+        final long maxBytes = DataUnit.parseDataSize(maxDataSize, DataUnit.B).longValue();
+
+        boolean updated = false;
+        while (!updated) {
+            MaxQueueSize maxSize = maxQueueSize.get();
+            final MaxQueueSize updatedSize = new MaxQueueSize(maxDataSize, maxBytes, maxSize.getMaxCount());
+            updated = maxQueueSize.compareAndSet(maxSize, updatedSize);
+        }
+    }
+
+    @Override
+    public String getBackPressureDataSizeThreshold() {
+        return maxQueueSize.get().getMaxSize();
+    }
+
+    @Override
+    public QueueSize size() {
+        return getQueueSize();
+    }
+
+
+    protected QueueSize getQueueSize() {
+        return size.get().toQueueSize();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.get().isEmpty();
+    }
+
+    @Override
+    public boolean isActiveQueueEmpty() {
+        final FlowFileQueueSize queueSize = size.get();
+        return queueSize.activeQueueCount == 0 && queueSize.swappedCount == 0;
+    }
+
+    public QueueSize getActiveQueueSize() {
+        return size.get().activeQueueSize();
+    }
+
+    @Override
+    public void acknowledge(final FlowFileRecord flowFile) {
+        incrementUnacknowledgedQueueSize(-1, -flowFile.getSize());
+
+        // queue may have been full but no longer is. Notify that the source may now be available to run,
+        // because of back pressure caused by this queue.
+        notifyScheduler(connection.getSource());
+    }
+
+    @Override
+    public void acknowledge(final Collection<FlowFileRecord> flowFiles) {
+        long totalSize = 0L;
+        for (final FlowFileRecord flowFile : flowFiles) {
+            totalSize += flowFile.getSize();
+        }
+
+        incrementUnacknowledgedQueueSize(-flowFiles.size(), -totalSize);
+
+        // it's possible that queue was full but no longer is. Notify that the source may now be available to run,
+        // because of back pressure caused by this queue.
+        notifyScheduler(connection.getSource());
+    }
+
+    /**
+     * Notifies the scheduler that the given component may now be able to run, either because FlowFiles were added to this queue
+     * or because back pressure applied by this queue may have been released. Cron-driven components run only on their schedule,
+     * so they are not notified. This must not be called while holding this queue's lock.
+     *
+     * @param component the source or destination of this queue's connection
+     */
+    protected void notifyScheduler(final Connectable component) {
+        final SchedulingStrategy schedulingStrategy = component.getSchedulingStrategy();
+        if (schedulingStrategy == SchedulingStrategy.EVENT_DRIVEN || schedulingStrategy == SchedulingStrategy.TIMER_DRIVEN
+            || schedulingStrategy == SchedulingStrategy.PRIMARY_NODE_ONLY) {
+            scheduler.registerEvent(component);
+        }
+    }
+
+    @Override
+    public boolean isFull() {
+        final MaxQueueSize maxSize = maxQueueSize.get();
+
+        // Check if max size is set
+        if (maxSize.getMaxBytes() <= 0 && maxSize.getMaxCount() <= 0) {
+            return false;
+        }
+
+        final QueueSize queueSize = getQueueSize();
+        if (maxSize.getMaxCount() > 0 && queueSize.getObjectCount() >= maxSize.getMaxCount()) {
+            return true;
+        }
+
+        if (maxSize.getMaxBytes() > 0 && queueSize.getByteCount() >= maxSize.getMaxBytes()) {
+            return true;
+        }
+
+        return false;
+    }
+
+
+    protected boolean isLaterThan(final Long maxAge) {
+        if (maxAge == null) {
+            return false;
+        }
+        return maxAge < System.currentTimeMillis();
+    }
+
+    protected Long getExpirationDate(final FlowFile flowFile, final long expirationMillis) {
+        if (flowFile == null) {
+            return null;
+        }
+        if (expirationMillis <= 0) {
+            return null;
+        } else {
+            final long entryDate = flowFile.getEntryDate();
+            final long expirationDate = entryDate + expirationMillis;
+            return expirationDate;
+        }
+    }
+
+    protected long getExpirationMillis() {
+        return expirationPeriod.get().getMillis();
+    }
+
+    @Override
+    public long drainQueue(final Queue<FlowFileRecord> sourceQueue, final List<FlowFileRecord> destination, int maxResults, final Set<FlowFileRecord> expiredRecords) {
+        long drainedSize = 0L;
+        FlowFileRecord pulled = null;
+
+        final long expirationMillis = expirationPeriod.get().getMillis();
+        while (destination.size() < maxResults && (pulled = sourceQueue.poll()) != null) {
+            if (isLaterThan(getExpirationDate(pulled, expirationMillis))) {
+                expiredRecords.add(pulled);
+                if (expiredRecords.size() >= MAX_EXPIRED_RECORDS_PER_ITERATION) {
+                    break;
+                }
+            } else {
+                if (pulled.isPenalized()) {
+                    sourceQueue.add(pulled);
+                    break;
+                }
+                destination.add(pulled);
+            }
+            drainedSize += pulled.getSize();
+        }
+        return drainedSize;
+    }
+
+    /**
+     * Once the active queue has drained to within {@link #SWAP_PREFETCH_COUNT} FlowFiles of the point at which the
+     * next swap file is swapped in, asks the swap manager to start swapping that file in, so that the FlowFiles are
+     * ready by the time that they are needed. This method must be called with the lock that guards the swap locations
+     * held.
+     *
+     * @param activeQueueCount the number of FlowFiles in the active queue
+     */
+    protected void prefetchSwapFileIfNecessary(final int activeQueueCount) {
+        if (swapLocations.isEmpty() || activeQueueCount > swapThreshold - SWAP_RECORD_POLL_SIZE + SWAP_PREFETCH_COUNT) {
+            return;
+        }
+
+        final String nextSwapLocation = swapLocations.get(0);
+        if (!nextSwapLocation.equals(prefetchedSwapLocation)) {
+            prefetchedSwapLocation = nextSwapLocation;
+            swapManager.prefetch(nextSwapLocation, this);
+        }
+    }
+
+    /**
+     * Swaps in the FlowFiles that are held in the given swap file, updating the swap queue and active queue sizes
+     * accordingly. The FlowFiles returned must then be added to the active queue by the caller. This method must
+     * be called with the lock that guards the swap locations held.
+     *
+     * @param swapLocation the location of the swap file
+     * @return the FlowFiles that were swapped in, or <code>null</code> if the swap file could not be read
+     */
+    protected List<FlowFileRecord> swapIn(final String swapLocation) {
+        boolean partialContents = false;
+        SwapContents swapContents = null;
+        try {
+            swapContents = swapManager.swapIn(swapLocation, this);
+        } catch (final IncompleteSwapFileException isfe) {
+            logger.error("Failed to swap in all FlowFiles from Swap File {}; Swap File ended prematurely. The records that were present will still be swapped in", swapLocation);
+            logger.error("", isfe);
+            swapContents = isfe.getPartialContents();
+            partialContents = true;
+        } catch (final FileNotFoundException fnfe) {
+            logger.error("Failed to swap in FlowFiles from Swap File {} because the Swap File can no longer be found", swapLocation);
+            if (eventReporter != null) {
+                eventReporter.reportEvent(Severity.ERROR, "Swap File", "Failed to swap in FlowFiles from Swap File " + swapLocation + " because the Swap File can no longer be found");
+            }
+            return null;
+        } catch (final IOException ioe) {
+            logger.error("Failed to swap in FlowFiles from Swap File {}; Swap File appears to be corrupt!", swapLocation);
+            logger.error("", ioe);
+            if (eventReporter != null) {
+                eventReporter.reportEvent(Severity.ERROR, "Swap File", "Failed to swap in FlowFiles from Swap File " +
+                    swapLocation + "; Swap File appears to be corrupt! Some FlowFiles in the queue may not be accessible. See logs for more information.");
+            }
+            return null;
+        }
+
+        final QueueSize swapSize = swapContents.getSummary().getQueueSize();
+        final long contentSize = swapSize.getByteCount();
+        final int flowFileCount = swapSize.getObjectCount();
+        incrementSwapQueueSize(-flowFileCount, -contentSize, -1);
+
+        if (partialContents) {
+            // if we have partial results, we need to calculate the content size of the flowfiles
+            // actually swapped back in.
+            long contentSizeSwappedIn = 0L;
+            for (final FlowFileRecord swappedIn : swapContents.getFlowFiles()) {
+                contentSizeSwappedIn += swappedIn.getSize();
+            }
+
+            incrementActiveQueueSize(swapContents.getFlowFiles().size(), contentSizeSwappedIn);
+        } else {
+            // we swapped in the whole swap file. We can just use the info that we got from the summary.
+            incrementActiveQueueSize(flowFileCount, contentSize);
+        }
+
+        return swapContents.getFlowFiles();
+    }
+
+    /**
+     * Writes the given FlowFiles to a swap file.
+     *
+     * @param toSwap the FlowFiles to swap out
+     * @return the location of the swap file, or <code>null</code> if the FlowFiles could not be swapped out
+     */
+    protected String swapOut(final List<FlowFileRecord> toSwap) {
+        try {
+            return swapManager.swapOut(toSwap, this);
+        } catch (final IOException ioe) {
+            logger.error("FlowFile Queue with identifier {} has {} FlowFiles queued up. Attempted to spill FlowFile information over to disk in order to avoid exhausting "
+                + "the Java heap space but failed to write information to disk due to {}", getIdentifier(), getQueueSize().getObjectCount(), ioe.toString());
+            logger.error("", ioe);
+            if (eventReporter != null) {
+                eventReporter.reportEvent(Severity.ERROR, "Failed to Overflow to Disk", "Flowfile Queue with identifier " + getIdentifier() + " has " + getQueueSize().getObjectCount() +
+                    " queued up. Attempted to spill FlowFile information over to disk in order to avoid exhausting the Java heap space but failed to write information to disk. "
+                    + "See logs for more information.");
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Merges the given active queue with the swap queue and writes the lowest-priority FlowFiles out to swap files,
+     * {@link #SWAP_RECORD_POLL_SIZE} at a time. FlowFiles that do not fit back onto the active queue are left on the
+     * swap queue. This method must be called with the lock that guards both the active queue and the swap queue held.
+     *
+     * @param activeQueue the active queue to merge with the swap queue
+     * @param priorities the prioritizers that determine which FlowFiles have the lowest priority
+     */
+    protected void writeSwapFiles(final Queue<FlowFileRecord> activeQueue, final List<FlowFilePrioritizer> priorities) {
+        final int numSwapFiles = swapQueue.size() / SWAP_RECORD_POLL_SIZE;
+
+        int originalSwapQueueCount = swapQueue.size();
+        long originalSwapQueueBytes = 0L;
+        for (final FlowFileRecord flowFile : swapQueue) {
+            originalSwapQueueBytes += flowFile.getSize();
+        }
+
+        final int originalActiveQueueCount = activeQueue.size();
+        long originalActiveQueueBytes = 0L;
+        for (final FlowFileRecord flowFile : activeQueue) {
+            originalActiveQueueBytes += flowFile.getSize();
+        }
+
+        // Create a new Priority queue with the prioritizers that are set, but reverse the
+        // prioritizers because we want to pull the lowest-priority FlowFiles to swap out
+        final PriorityQueue<FlowFileRecord> tempQueue = new PriorityQueue<>(activeQueue.size() + swapQueue.size(), Collections.reverseOrder(new Prioritizer(priorities)));
+        tempQueue.addAll(activeQueue);
+        tempQueue.addAll(swapQueue);
+
+        long bytesSwappedOut = 0L;
+        int flowFilesSwappedOut = 0;
+        final List<String> swapLocations = new ArrayList<>(numSwapFiles);
+        for (int i = 0; i < numSwapFiles; i++) {
+            // Create a new swap file for the next SWAP_RECORD_POLL_SIZE records
+            final List<FlowFileRecord> toSwap = new ArrayList<>(SWAP_RECORD_POLL_SIZE);
+            for (int j = 0; j < SWAP_RECORD_POLL_SIZE; j++) {
+                final FlowFileRecord flowFile = tempQueue.poll();
+                toSwap.add(flowFile);
+                bytesSwappedOut += flowFile.getSize();
+                flowFilesSwappedOut++;
+            }
+
+            Collections.reverse(toSwap); // currently ordered in reverse priority order based on the ordering of the temp queue.
+            final String swapLocation = swapOut(toSwap);
+            if (swapLocation == null) {
+                tempQueue.addAll(toSwap); // if we failed, we must add the FlowFiles back to the queue.
+                break;
+            }
+
+            swapLocations.add(swapLocation);
+        }
+
+        // Pull any records off of the temp queue that won't fit back on the active queue, and add those to the
+        // swap queue. Then add the records back to the active queue.
+        swapQueue.clear();
+        long updatedSwapQueueBytes = 0L;
+        while (tempQueue.size() > swapThreshold) {
+            final FlowFileRecord record = tempQueue.poll();
+            swapQueue.add(record);
+            updatedSwapQueueBytes += record.getSize();
+        }
+
+        Collections.reverse(swapQueue); // currently ordered in reverse priority order based on the ordering of the temp queue
+
+        // replace the contents of the active queue, since we've merged it with the swap queue.
+        activeQueue.clear();
+        FlowFileRecord toRequeue;
+        long activeQueueBytes = 0L;
+        while ((toRequeue = tempQueue.poll()) != null) {
+            activeQueue.offer(toRequeue);
+            activeQueueBytes += toRequeue.getSize();
+        }
+
+        boolean updated = false;
+        while (!updated) {
+            final FlowFileQueueSize originalSize = size.get();
+
+            final int addedSwapRecords = swapQueue.size() - originalSwapQueueCount;
+            final long addedSwapBytes = updatedSwapQueueBytes - originalSwapQueueBytes;
+
+            final FlowFileQueueSize newSize = new FlowFileQueueSize(
+                originalSize.activeQueueCount + activeQueue.size() - originalActiveQueueCount,
+                originalSize.activeQueueBytes + activeQueueBytes - originalActiveQueueBytes,
+                originalSize.swappedCount + addedSwapRecords + flowFilesSwappedOut,
+                originalSize.swappedBytes + addedSwapBytes + bytesSwappedOut,
+                originalSize.swapFiles + numSwapFiles,
+                originalSize.unacknowledgedCount, originalSize.unacknowledgedBytes);
+            updated = size.compareAndSet(originalSize, newSize);
+        }
+
+        this.swapLocations.addAll(swapLocations);
+    }
+
+
+    protected static final class Prioritizer implements Comparator<FlowFileRecord>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final transient List<FlowFilePrioritizer> prioritizers = new ArrayList<>();
+
+        protected Prioritizer(final List<FlowFilePrioritizer> priorities) {
+            if (null != priorities) {
+                prioritizers.addAll(priorities);
+            }
+        }
+
+        @Override
+        public int compare(final FlowFileRecord f1, final FlowFileRecord f2) {
+            int returnVal = 0;
+            final boolean f1Penalized = f1.isPenalized();
+            final boolean f2Penalized = f2.isPenalized();
+
+            if (f1Penalized && !f2Penalized) {
+                return 1;
+            } else if (!f1Penalized && f2Penalized) {
+                return -1;
+            }
+
+            if (f1Penalized && f2Penalized) {
+                if (f1.getPenaltyExpirationMillis() < f2.getPenaltyExpirationMillis()) {
+                    return -1;
+                } else if (f1.getPenaltyExpirationMillis() > f2.getPenaltyExpirationMillis()) {
+                    return 1;
+                }
+            }
+
+            if (!prioritizers.isEmpty()) {
+                for (final FlowFilePrioritizer prioritizer : prioritizers) {
+                    returnVal = prioritizer.compare(f1, f2);
+                    if (returnVal != 0) {
+                        return returnVal;
+                    }
+                }
+            }
+
+            final ContentClaim claim1 = f1.getContentClaim();
+            final ContentClaim claim2 = f2.getContentClaim();
+
+            // put the one without a claim first
+            if (claim1 == null && claim2 != null) {
+                return -1;
+            } else if (claim1 != null && claim2 == null) {
+                return 1;
+            } else if (claim1 != null && claim2 != null) {
+                final int claimComparison = claim1.compareTo(claim2);
+                if (claimComparison != 0) {
+                    return claimComparison;
+                }
+
+                final int claimOffsetComparison = Long.compare(f1.getContentClaimOffset(), f2.getContentClaimOffset());
+                if (claimOffsetComparison != 0) {
+                    return claimOffsetComparison;
+                }
+            }
+
+            return Long.compare(f1.getId(), f2.getId());
+        }
+    }
+
+    @Override
+    public String getFlowFileExpiration() {
+        return expirationPeriod.get().getPeriod();
+    }
+
+    @Override
+    public int getFlowFileExpiration(final TimeUnit timeUnit) {
+        return (int) timeUnit.convert(expirationPeriod.get().getMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void setFlowFileExpiration(final String flowExpirationPeriod) {
+        final long millis = FormatUtils.getTimeDuration(flowExpirationPeriod, TimeUnit.MILLISECONDS);
+        if (millis < 0) {
+            throw new IllegalArgumentException("FlowFile Expiration Period must be positive");
+        }
+
+        expirationPeriod.set(new TimePeriod(flowExpirationPeriod, millis));
+    }
+
+
+    @Override
+    public void purgeSwapFiles() {
+        swapManager.purge();
+    }
+
+    @Override
+    public SwapSummary recoverSwappedFlowFiles() {
+        int swapFlowFileCount = 0;
+        long swapByteCount = 0L;
+        Long maxId = null;
+        List<ResourceClaim> resourceClaims = new ArrayList<>();
+        final long startNanos = System.nanoTime();
+
+        lock();
+        try {
+            final List<String> swapLocations;
+            try {
+                swapLocations = swapManager.recoverSwapLocations(this);
+            } catch (final IOException ioe) {
+                logger.error("Failed to determine whether or not any Swap Files exist for FlowFile Queue {}", getIdentifier());
+                logger.error("", ioe);
+                if (eventReporter != null) {
+                    eventReporter.reportEvent(Severity.ERROR, "FlowFile Swapping", "Failed to determine whether or not any Swap Files exist for FlowFile Queue " +
+                        getIdentifier() + "; see logs for more detials");
+                }
+                return null;
+            }
+
+            for (final String swapLocation : swapLocations) {
+                try {
+                    final SwapSummary summary = swapManager.getSwapSummary(swapLocation);
+                    final QueueSize queueSize = summary.getQueueSize();
+                    final Long maxSwapRecordId = summary.getMaxFlowFileId();
+                    if (maxSwapRecordId != null) {
+                        if (maxId == null || maxSwapRecordId > maxId) {
+                            maxId = maxSwapRecordId;
+                        }
+                    }
+
+                    swapFlowFileCount += queueSize.getObjectCount();
+                    swapByteCount += queueSize.getByteCount();
+                    resourceClaims.addAll(summary.getResourceClaims());
+                } catch (final IOException ioe) {
+                    logger.error("Failed to recover FlowFiles from Swap File {}; the file appears to be corrupt", swapLocation, ioe.toString());
+                    logger.error("", ioe);
+                    if (eventReporter != null) {
+                        eventReporter.reportEvent(Severity.ERROR, "FlowFile Swapping", "Failed to recover FlowFiles from Swap File " + swapLocation +
+                            "; the file appears to be corrupt. See logs for more details");
+                    }
+                }
+            }
+
+            incrementSwapQueueSize(swapFlowFileCount, swapByteCount, swapLocations.size());
+            this.swapLocations.addAll(swapLocations);
+        } finally {
+            unlock();
+        }
+
+        if (!swapLocations.isEmpty()) {
+            final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            logger.info("Recovered {} swap files for {} in {} millis", swapLocations.size(), this, millis);
+        }
+
+        return new StandardSwapSummary(new QueueSize(swapFlowFileCount, swapByteCount), maxId, resourceClaims);
+    }
+
+
+    @Override
+    public String toString() {
+        return "FlowFileQueue[id=" + identifier + "]";
+    }
+
+
+    @Override
+    public ListFlowFileStatus listFlowFiles(final String requestIdentifier, final int maxResults) {
+        // purge any old requests from the map just to keep it clean. But if there are very few requests, which is usually the case, then don't bother
+        if (listRequestMap.size() > 10) {
+            final List<String> toDrop = new ArrayList<>();
+            for (final Map.Entry<String, ListFlowFileRequest> entry : listRequestMap.entrySet()) {
+                final ListFlowFileRequest request = entry.getValue();
+                final boolean completed = request.getState() == ListFlowFileState.COMPLETE || request.getState() == ListFlowFileState.FAILURE;
+
+                if (completed && System.currentTimeMillis() - request.getLastUpdated() > TimeUnit.MINUTES.toMillis(5L)) {
+                    toDrop.add(entry.getKey());
+                }
+            }
+
+            for (final String requestId : toDrop) {
+                listRequestMap.remove(requestId);
+            }
+        }
+
+        // numSteps = 1 for each swap location + 1 for active queue + 1 for swap queue.
+        final ListFlowFileRequest listRequest = new ListFlowFileRequest(requestIdentifier, maxResults, size());
+
+        final Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int position = 0;
+                int resultCount = 0;
+                final List<FlowFileSummary> summaries = new ArrayList<>();
+
+                // Create an ArrayList that contains all of the contents of the active queue, in the same order as on the queue.
+                // We do this so that we don't have to hold the lock any longer than absolutely necessary.
+                final List<FlowFileRecord> allFlowFiles = getActiveFlowFilesInPriorityOrder();
+
+                listRequest.setState(ListFlowFileState.CALCULATING_LIST);
+
+                for (final FlowFileRecord flowFile : allFlowFiles) {
+                    summaries.add(summarize(flowFile, ++position));
+                    if (summaries.size() >= maxResults) {
+                        break;
+                    }
+                }
+
+                logger.debug("{} Finished listing FlowFiles for active queue with a total of {} results", AbstractFlowFileQueue.this, resultCount);
+                listRequest.setFlowFileSummaries(summaries);
+                listRequest.setState(ListFlowFileState.COMPLETE);
+            }
+        }, "List FlowFiles for Connection " + getIdentifier());
+        t.setDaemon(true);
+        t.start();
+
+        listRequestMap.put(requestIdentifier, listRequest);
+        return listRequest;
+    }
+
+    private FlowFileSummary summarize(final FlowFile flowFile, final int position) {
+        // extract all of the information that we care about into new variables rather than just
+        // wrapping the FlowFile object with a FlowFileSummary object. We do this because we want to
+        // be able to hold many FlowFileSummary objects in memory and if we just wrap the FlowFile object,
+        // we will end up holding the entire FlowFile (including all Attributes) in the Java heap as well,
+        // which can be problematic if we expect them to be swapped out.
+        final String uuid = flowFile.getAttribute(CoreAttributes.UUID.key());
+        final String filename = flowFile.getAttribute(CoreAttributes.FILENAME.key());
+        final long size = flowFile.getSize();
+        final Long lastQueuedTime = flowFile.getLastQueueDate();
+        final long lineageStart = flowFile.getLineageStartDate();
+        final boolean penalized = flowFile.isPenalized();
+
+        return new FlowFileSummary() {
+            @Override
+            public String getUuid() {
+                return uuid;
+            }
+
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+
+            @Override
+            public int getPosition() {
+                return position;
+            }
+
+            @Override
+            public long getSize() {
+                return size;
+            }
+
+            @Override
+            public long getLastQueuedTime() {
+                return lastQueuedTime == null ? 0L : lastQueuedTime;
+            }
+
+            @Override
+            public long getLineageStartDate() {
+                return lineageStart;
+            }
+
+            @Override
+            public boolean isPenalized() {
+                return penalized;
+            }
+        };
+    }
+
+
+    @Override
+    public ListFlowFileStatus getListFlowFileStatus(final String requestIdentifier) {
+        return listRequestMap.get(requestIdentifier);
+    }
+
+    @Override
+    public ListFlowFileStatus cancelListFlowFileRequest(final String requestIdentifier) {
+        logger.info("Canceling ListFlowFile Request with ID {}", requestIdentifier);
+        final ListFlowFileRequest request = listRequestMap.remove(requestIdentifier);
+        if (request != null) {
+            request.cancel();
+        }
+
+        return request;
+    }
+
+    @Override
+    public void verifyCanList() throws IllegalStateException {
+    }
+
+    @Override
+    public DropFlowFileStatus dropFlowFiles(final String requestIdentifier, final String requestor) {
+        logger.info("Initiating drop of FlowFiles from {} on behalf of {} (request identifier={})", this, requestor, requestIdentifier);
+
+        // purge any old requests from the map just to keep it clean. But if there are very requests, which is usually the case, then don't bother
+        if (dropRequestMap.size() > 10) {
+            final List<String> toDrop = new ArrayList<>();
+            for (final Map.Entry<String, DropFlowFileRequest> entry : dropRequestMap.entrySet()) {
+                final DropFlowFileRequest request = entry.getValue();
+                final boolean completed = request.getState() == DropFlowFileState.COMPLETE || request.getState() == DropFlowFileState.FAILURE;
+
+                if (completed && System.currentTimeMillis() - request.getLastUpdated() > TimeUnit.MINUTES.toMillis(5L)) {
+                    toDrop.add(entry.getKey());
+                }
+            }
+
+            for (final String requestId : toDrop) {
+                dropRequestMap.remove(requestId);
+            }
+        }
+
+        final DropFlowFileRequest dropRequest = new DropFlowFileRequest(requestIdentifier);
+        final QueueSize originalSize = getQueueSize();
+        dropRequest.setCurrentSize(originalSize);
+        dropRequest.setOriginalSize(originalSize);
+        if (originalSize.getObjectCount() == 0) {
+            dropRequest.setDroppedSize(originalSize);
+            dropRequest.setState(DropFlowFileState.COMPLETE);
+            dropRequestMap.put(requestIdentifier, dropRequest);
+            return dropRequest;
+        }
+
+        final Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lock();
+                try {
+                    dropRequest.setState(DropFlowFileState.DROPPING_FLOWFILES);
+                    logger.debug("For DropFlowFileRequest {}, original size is {}", requestIdentifier, getQueueSize());
+
+                    try {
+                        final List<FlowFileRecord> activeQueueRecords = getActiveFlowFiles();
+
+                        QueueSize droppedSize;
+                        try {
+                            if (dropRequest.getState() == DropFlowFileState.CANCELED) {
+                                logger.info("Cancel requested for DropFlowFileRequest {}", requestIdentifier);
+                                return;
+                            }
+
+                            droppedSize = drop(activeQueueRecords, requestor);
+                            logger.debug("For DropFlowFileRequest {}, Dropped {} from active queue", requestIdentifier, droppedSize);
+                        } catch (final IOException ioe) {
+                            logger.error("Failed to drop the FlowFiles from queue {} due to {}", AbstractFlowFileQueue.this.getIdentifier(), ioe.toString());
+                            logger.error("", ioe);
+
+                            dropRequest.setState(DropFlowFileState.FAILURE, "Failed to drop FlowFiles due to " + ioe.toString());
+                            return;
+                        }
+
+                        clearActiveQueue();
+                        incrementActiveQueueSize(-droppedSize.getObjectCount(), -droppedSize.getByteCount());
+                        dropRequest.setCurrentSize(getQueueSize());
+                        dropRequest.setDroppedSize(dropRequest.getDroppedSize().add(droppedSize));
+
+                        final QueueSize swapSize = size.get().swapQueueSize();
+                        logger.debug("For DropFlowFileRequest {}, Swap Queue has {} elements, Swapped Record Count = {}, Swapped Content Size = {}",
+                            requestIdentifier, swapQueue.size(), swapSize.getObjectCount(), swapSize.getByteCount());
+                        if (dropRequest.getState() == DropFlowFileState.CANCELED) {
+                            logger.info("Cancel requested for DropFlowFileRequest {}", requestIdentifier);
+                            return;
+                        }
+
+                        try {
+                            droppedSize = drop(swapQueue, requestor);
+                        } catch (final IOException ioe) {
+                            logger.error("Failed to drop the FlowFiles from queue {} due to {}", AbstractFlowFileQueue.this.getIdentifier(), ioe.toString());
+                            logger.error("", ioe);
+
+                            dropRequest.setState(DropFlowFileState.FAILURE, "Failed to drop FlowFiles due to " + ioe.toString());
+                            return;
+                        }
+
+                        swapQueue.clear();
+                        dropRequest.setCurrentSize(getQueueSize());
+                        dropRequest.setDroppedSize(dropRequest.getDroppedSize().add(droppedSize));
+                        swapMode = false;
+                        incrementSwapQueueSize(-droppedSize.getObjectCount(), -droppedSize.getByteCount(), 0);
+                        logger.debug("For DropFlowFileRequest {}, dropped {} from Swap Queue", requestIdentifier, droppedSize);
+
+                        final int swapFileCount = swapLocations.size();
+                        final Iterator<String> swapLocationItr = swapLocations.iterator();
+                        while (swapLocationItr.hasNext()) {
+                            final String swapLocation = swapLocationItr.next();
+
+                            SwapContents swapContents = null;
+                            try {
+                                if (dropRequest.getState() == DropFlowFileState.CANCELED) {
+                                    logger.info("Cancel requested for DropFlowFileRequest {}", requestIdentifier);
+                                    return;
+                                }
+
+                                swapContents = swapManager.swapIn(swapLocation, AbstractFlowFileQueue.this);
+                                droppedSize = drop(swapContents.getFlowFiles(), requestor);
+                            } catch (final IncompleteSwapFileException isfe) {
+                                swapContents = isfe.getPartialContents();
+                                final String warnMsg = "Failed to swap in FlowFiles from Swap File " + swapLocation + " because the file was corrupt. "
+                                    + "Some FlowFiles may not be dropped from the queue until NiFi is restarted.";
+
+                                logger.warn(warnMsg);
+                                if (eventReporter != null) {
+                                    eventReporter.reportEvent(Severity.WARNING, "Drop FlowFiles", warnMsg);
+                                }
+                            } catch (final IOException ioe) {
+                                logger.error("Failed to swap in FlowFiles from Swap File {} in order to drop the FlowFiles for Connection {} due to {}",
+                                    swapLocation, AbstractFlowFileQueue.this.getIdentifier(), ioe.toString());
+                                logger.error("", ioe);
+                                if (eventReporter != null) {
+                                    eventReporter.reportEvent(Severity.ERROR, "Drop FlowFiles", "Failed to swap in FlowFiles from Swap File " + swapLocation
+                                        + ". The FlowFiles contained in this Swap File will not be dropped from the queue");
+                                }
+
+                                dropRequest.setState(DropFlowFileState.FAILURE, "Failed to swap in FlowFiles from Swap File " + swapLocation + " due to " + ioe.toString());
+                                if (swapContents != null) {
+                                    addToActiveQueue(swapContents.getFlowFiles()); // ensure that we don't lose the FlowFiles from our queue.
+                                }
+
+                                return;
+                            }
+
+                            dropRequest.setDroppedSize(dropRequest.getDroppedSize().add(droppedSize));
+                            incrementSwapQueueSize(-droppedSize.getObjectCount(), -droppedSize.getByteCount(), -1);
+
+                            dropRequest.setCurrentSize(getQueueSize());
+                            swapLocationItr.remove();
+                            logger.debug("For DropFlowFileRequest {}, dropped {} for Swap File {}", requestIdentifier, droppedSize, swapLocation);
+                        }
+
+                        logger.debug("Dropped FlowFiles from {} Swap Files", swapFileCount);
+                        logger.info("Successfully dropped {} FlowFiles ({} bytes) from Connection with ID {} on behalf of {}",
+                            dropRequest.getDroppedSize().getObjectCount(), dropRequest.getDroppedSize().getByteCount(), AbstractFlowFileQueue.this.getIdentifier(), requestor);
+                        dropRequest.setState(DropFlowFileState.COMPLETE);
+                    } catch (final Exception e) {
+                        logger.error("Failed to drop FlowFiles from Connection with ID {} due to {}", AbstractFlowFileQueue.this.getIdentifier(), e.toString());
+                        logger.error("", e);
+                        dropRequest.setState(DropFlowFileState.FAILURE, "Failed to drop FlowFiles due to " + e.toString());
+                    }
+                } finally {
+                    unlock();
+                }
+            }
+        }, "Drop FlowFiles for Connection " + getIdentifier());
+        t.setDaemon(true);
+        t.start();
+
+        dropRequestMap.put(requestIdentifier, dropRequest);
+
+        return dropRequest;
+    }
+
+    private QueueSize drop(final List<FlowFileRecord> flowFiles, final String requestor) throws IOException {
+        // Create a Provenance Event and a FlowFile Repository record for each FlowFile
+        final List<ProvenanceEventRecord> provenanceEvents = new ArrayList<>(flowFiles.size());
+        final List<RepositoryRecord> flowFileRepoRecords = new ArrayList<>(flowFiles.size());
+        for (final FlowFileRecord flowFile : flowFiles) {
+            provenanceEvents.add(createDropEvent(flowFile, requestor));
+            flowFileRepoRecords.add(createDeleteRepositoryRecord(flowFile));
+        }
+
+        long dropContentSize = 0L;
+        for (final FlowFileRecord flowFile : flowFiles) {
+            dropContentSize += flowFile.getSize();
+            final ContentClaim contentClaim = flowFile.getContentClaim();
+            if (contentClaim == null) {
+                continue;
+            }
+
+            final ResourceClaim resourceClaim = contentClaim.getResourceClaim();
+            if (resourceClaim == null) {
+                continue;
+            }
+
+            resourceClaimManager.decrementClaimantCount(resourceClaim);
+        }
+
+        provRepository.registerEvents(provenanceEvents);
+        flowFileRepository.updateRepository(flowFileRepoRecords);
+        return new QueueSize(flowFiles.size(), dropContentSize);
+    }
+
+    private ProvenanceEventRecord createDropEvent(final FlowFileRecord flowFile, final String requestor) {
+        final ProvenanceEventBuilder builder = provRepository.eventBuilder();
+        builder.fromFlowFile(flowFile);
+        builder.setEventType(ProvenanceEventType.DROP);
+        builder.setLineageStartDate(flowFile.getLineageStartDate());
+        builder.setComponentId(getIdentifier());
+        builder.setComponentType("Connection");
+        builder.setAttributes(flowFile.getAttributes(), Collections.<String, String> emptyMap());
+        builder.setDetails("FlowFile Queue emptied by " + requestor);
+        builder.setSourceQueueIdentifier(getIdentifier());
+
+        final ContentClaim contentClaim = flowFile.getContentClaim();
+        if (contentClaim != null) {
+            final ResourceClaim resourceClaim = contentClaim.getResourceClaim();
+            builder.setPreviousContentClaim(resourceClaim.getContainer(), resourceClaim.getSection(), resourceClaim.getId(), contentClaim.getOffset(), flowFile.getSize());
+        }
+
+        return builder.build();
+    }
+
+    private RepositoryRecord createDeleteRepositoryRecord(final FlowFileRecord flowFile) {
+        return new RepositoryRecord() {
+            @Override
+            public FlowFileQueue getDestination() {
+                return null;
+            }
+
+            @Override
+            public FlowFileQueue getOriginalQueue() {
+                return AbstractFlowFileQueue.this;
+            }
+
+            @Override
+            public RepositoryRecordType getType() {
+                return RepositoryRecordType.DELETE;
+            }
+
+            @Override
+            public ContentClaim getCurrentClaim() {
+                return flowFile.getContentClaim();
+            }
+
+            @Override
+            public ContentClaim getOriginalClaim() {
+                return flowFile.getContentClaim();
+            }
+
+            @Override
+            public long getCurrentClaimOffset() {
+                return flowFile.getContentClaimOffset();
+            }
+
+            @Override
+            public FlowFileRecord getCurrent() {
+                return flowFile;
+            }
+
+            @Override
+            public boolean isAttributesChanged() {
+                return false;
+            }
+
+            @Override
+            public boolean isMarkedForAbort() {
+                return false;
+            }
+
+            @Override
+            public String getSwapLocation() {
+                return null;
+            }
+
+            @Override
+            public List<ContentClaim> getTransientClaims() {
+                return Collections.emptyList();
+            }
+        };
+    }
+
+
+    @Override
+    public DropFlowFileRequest cancelDropFlowFileRequest(final String requestIdentifier) {
+        final DropFlowFileRequest request = dropRequestMap.remove(requestIdentifier);
+        if (request == null) {
+            return null;
+        }
+
+        request.cancel();
+        return request;
+    }
+
+    @Override
+    public DropFlowFileStatus getDropFlowFileStatus(final String requestIdentifier) {
+        return dropRequestMap.get(requestIdentifier);
+    }
+
+    @Override
+    public QueueSize getUnacknowledgedQueueSize() {
+        return size.get().unacknowledgedQueueSize();
+    }
+
+
+    protected void incrementActiveQueueSize(final int count, final long bytes) {
+        boolean updated = false;
+        while (!updated) {
+            final FlowFileQueueSize original = size.get();
+            final FlowFileQueueSize newSize = new FlowFileQueueSize(original.activeQueueCount + count, original.activeQueueBytes + bytes,
+                original.swappedCount, original.swappedBytes, original.swapFiles, original.unacknowledgedCount, original.unacknowledgedBytes);
+            updated = size.compareAndSet(original, newSize);
+
+            if (updated) {
+                logIfNegative(original, newSize, "active");
+            }
+        }
+    }
+
+    protected void incrementSwapQueueSize(final int count, final long bytes, final int fileCount) {
+        boolean updated = false;
+        while (!updated) {
+            final FlowFileQueueSize original = size.get();
+            final FlowFileQueueSize newSize = new FlowFileQueueSize(original.activeQueueCount, original.activeQueueBytes,
+                original.swappedCount + count, original.swappedBytes + bytes, original.swapFiles + fileCount, original.unacknowledgedCount, original.unacknowledgedBytes);
+            updated = size.compareAndSet(original, newSize);
+
+            if (updated) {
+                logIfNegative(original, newSize, "swap");
+            }
+        }
+    }
+
+    protected void incrementUnacknowledgedQueueSize(final int count, final long bytes) {
+        boolean updated = false;
+        while (!updated) {
+            final FlowFileQueueSize original = size.get();
+            final FlowFileQueueSize newSize = new FlowFileQueueSize(original.activeQueueCount, original.activeQueueBytes,
+                original.swappedCount, original.swappedBytes, original.swapFiles, original.unacknowledgedCount + count, original.unacknowledgedBytes + bytes);
+            updated = size.compareAndSet(original, newSize);
+
+            if (updated) {
+                logIfNegative(original, newSize, "Unacknowledged");
+            }
+        }
+    }
+
+    private void logIfNegative(final FlowFileQueueSize original, final FlowFileQueueSize newSize, final String counterName) {
+        if (newSize.activeQueueBytes < 0 || newSize.activeQueueCount < 0 || newSize.swappedBytes < 0 || newSize.swappedCount < 0
+                || newSize.unacknowledgedBytes < 0 || newSize.unacknowledgedCount < 0) {
+
+            logger.error("Updated Size of Queue " + counterName + " from " + original + " to " + newSize, new RuntimeException("Cannot create negative queue size"));
+
+        }
+    }
+
+
+    private static class MaxQueueSize {
+        private final String maxSize;
+        private final long maxBytes;
+        private final long maxCount;
+
+        public MaxQueueSize(final String maxSize, final long maxBytes, final long maxCount) {
+            this.maxSize = maxSize;
+            this.maxBytes = maxBytes;
+            this.maxCount = maxCount;
+        }
+
+        public String getMaxSize() {
+            return maxSize;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public long getMaxCount() {
+            return maxCount;
+        }
+
+        @Override
+        public String toString() {
+            return maxCount + " Objects/" + maxSize;
+        }
+    }
+
+    private static class TimePeriod {
+        private final String period;
+        private final long millis;
+
+        public TimePeriod(final String period, final long millis) {
+            this.period = period;
+            this.millis = millis;
+        }
+
+        public String getPeriod() {
+            return period;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public String toString() {
+            return period;
+        }
+    }
+}
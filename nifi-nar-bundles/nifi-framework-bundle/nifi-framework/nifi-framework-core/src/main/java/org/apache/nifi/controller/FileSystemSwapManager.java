@@ -36,6 +36,12 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Pattern;
 
 import org.apache.nifi.controller.queue.FlowFileQueue;
@@ -46,9 +52,13 @@ import org.apache.nifi.controller.repository.SwapContents;
 import org.apache.nifi.controller.repository.SwapManagerInitializationContext;
 import org.apache.nifi.controller.repository.SwapSummary;
 import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
+import org.apache.nifi.controller.swap.CompressedSchemaSwapDeserializer;
+import org.apache.nifi.controller.swap.CompressedSchemaSwapSerializer;
 import org.apache.nifi.controller.swap.SchemaSwapDeserializer;
 import org.apache.nifi.controller.swap.SchemaSwapSerializer;
 import org.apache.nifi.controller.swap.SimpleSwapDeserializer;
+import org.apache.nifi.controller.swap.StandardSwapContents;
+import org.apache.nifi.controller.swap.StandardSwapSummary;
 import org.apache.nifi.controller.swap.SwapDeserializer;
 import org.apache.nifi.controller.swap.SwapSerializer;
 import org.apache.nifi.events.EventReporter;
@@ -63,6 +73,20 @@ import org.slf4j.LoggerFactory;
  * An implementation of the {@link FlowFileSwapManager} that swaps FlowFiles
  * to/from local disk
  * </p>
+ *
+ * <p>
+ * If the {@link SwapManagerInitializationContext} provides a swap-out executor, swap files are written in the
+ * background: {@link #swapOut(List, FlowFileQueue)} returns the location of the swap file immediately and the
+ * FlowFiles are held in memory until the swap file has been written and the FlowFile Repository updated. If the
+ * FlowFiles are swapped back in before that happens, they are handed back without ever being written. If writing the
+ * swap file fails, the FlowFiles stay in memory and are handed back when the location is swapped in, just as if the
+ * swap file had been written.
+ * </p>
+ *
+ * <p>
+ * If the context provides a swap-in executor, {@link #prefetch(String, FlowFileQueue)} swaps in the given swap file
+ * in the background, so that the queue does not have to wait on the disk when it later swaps in that location.
+ * </p>
  */
 public class FileSystemSwapManager implements FlowFileSwapManager {
 
@@ -75,11 +99,19 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
     private static final Logger logger = LoggerFactory.getLogger(FileSystemSwapManager.class);
 
     private final File storageDirectory;
+    private final boolean compressSwapFiles;
 
     // effectively final
     private FlowFileRepository flowFileRepository;
     private EventReporter eventReporter;
     private ResourceClaimManager claimManager;
+    private ExecutorService swapOutExecutor;
+    private ExecutorService swapInExecutor;
+
+    // swap files that have been handed out by swapOut but may not have been written yet
+    private final ConcurrentMap<String, PendingSwapFile> pendingSwapFiles = new ConcurrentHashMap<>();
+    // swap files that are being, or have been, swapped in ahead of time
+    private final ConcurrentMap<String, Future<SwapContents>> prefetchedSwapFiles = new ConcurrentHashMap<>();
 
     private static final byte[] MAGIC_HEADER = {'S', 'W', 'A', 'P'};
 
@@ -88,6 +120,7 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
      */
     public FileSystemSwapManager() {
         storageDirectory = null;
+        compressSwapFiles = false;
     }
 
     public FileSystemSwapManager(final NiFiProperties nifiProperties) {
@@ -97,6 +130,8 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
         if (!storageDirectory.exists() && !storageDirectory.mkdirs()) {
             throw new RuntimeException("Cannot create Swap Storage directory " + storageDirectory.getAbsolutePath());
         }
+
+        this.compressSwapFiles = nifiProperties.isSwapCompressionEnabled();
     }
 
     @Override
@@ -104,6 +139,8 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
         this.claimManager = initializationContext.getResourceClaimManager();
         this.eventReporter = initializationContext.getEventReporter();
         this.flowFileRepository = initializationContext.getFlowFileRepository();
+        this.swapOutExecutor = initializationContext.getSwapOutExecutor();
+        this.swapInExecutor = initializationContext.getSwapInExecutor();
     }
 
     @Override
@@ -113,10 +150,57 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
         }
 
         final File swapFile = new File(storageDirectory, System.currentTimeMillis() + "-" + flowFileQueue.getIdentifier() + "-" + UUID.randomUUID().toString() + ".swap");
+        final String swapLocation = swapFile.getAbsolutePath();
+
+        if (swapOutExecutor != null) {
+            final PendingSwapFile pendingSwapFile = new PendingSwapFile(new ArrayList<>(toSwap));
+            pendingSwapFiles.put(swapLocation, pendingSwapFile);
+
+            try {
+                swapOutExecutor.submit(() -> writePendingSwapFile(swapFile, pendingSwapFile, flowFileQueue));
+                return swapLocation;
+            } catch (final RejectedExecutionException ree) {
+                // executor has been shut down; write the swap file with this thread instead.
+                pendingSwapFiles.remove(swapLocation);
+            }
+        }
+
+        writeSwapFile(toSwap, flowFileQueue, swapFile);
+        return swapLocation;
+    }
+
+    private void writePendingSwapFile(final File swapFile, final PendingSwapFile pendingSwapFile, final FlowFileQueue flowFileQueue) {
+        if (!pendingSwapFile.startWrite()) {
+            // the FlowFiles were swapped back in before we got to them.
+            return;
+        }
+
+        boolean written = false;
+        try {
+            writeSwapFile(pendingSwapFile.getFlowFiles(), flowFileQueue, swapFile);
+            written = true;
+        } catch (final Throwable t) {
+            error("Failed to swap out " + pendingSwapFile.getFlowFiles().size() + " FlowFiles from " + flowFileQueue + " due to: " + t
+                + "; the FlowFiles will be kept in memory until they are swapped back in");
+            logger.error("", t);
+        } finally {
+            pendingSwapFile.writeComplete(written);
+            if (written) {
+                pendingSwapFiles.remove(swapFile.getAbsolutePath(), pendingSwapFile);
+            }
+        }
+    }
+
+    /**
+     * Writes the given FlowFiles to the given swap file and then updates the FlowFile Repository to indicate that
+     * the FlowFiles have been swapped out. If this method throws an Exception, the swap file does not exist and the
+     * FlowFile Repository has not been updated.
+     */
+    private void writeSwapFile(final List<FlowFileRecord> toSwap, final FlowFileQueue flowFileQueue, final File swapFile) throws IOException {
         final File swapTempFile = new File(swapFile.getParentFile(), swapFile.getName() + ".part");
         final String swapLocation = swapFile.getAbsolutePath();
 
-        final SwapSerializer serializer = new SchemaSwapSerializer();
+        final SwapSerializer serializer = compressSwapFiles ? new CompressedSchemaSwapSerializer() : new SchemaSwapSerializer();
         try (final FileOutputStream fos = new FileOutputStream(swapTempFile);
             final OutputStream out = new BufferedOutputStream(fos)) {
             out.write(MAGIC_HEADER);
@@ -131,19 +215,63 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
             throw ioe;
         }
 
-        if (swapTempFile.renameTo(swapFile)) {
+        if (!swapTempFile.renameTo(swapFile)) {
+            swapTempFile.delete();
+            throw new IOException("Unable to rename swap file from " + swapTempFile + " to " + swapFile);
+        }
+
+        try {
             flowFileRepository.swapFlowFilesOut(toSwap, flowFileQueue, swapLocation);
-        } else {
-            error("Failed to swap out FlowFiles from " + flowFileQueue + " due to: Unable to rename swap file from " + swapTempFile + " to " + swapFile);
+        } catch (final IOException | RuntimeException e) {
+            // the FlowFile Repository still considers the FlowFiles to be in the queue, so the swap file must not be recovered.
+            if (!swapFile.delete()) {
+                warn("Failed to delete Swap File " + swapFile + " after failing to update the FlowFile Repository; this file should be cleaned up manually");
+            }
+            throw e;
         }
+    }
 
-        return swapLocation;
+    @Override
+    public void prefetch(final String swapLocation, final FlowFileQueue flowFileQueue) {
+        if (swapInExecutor == null || prefetchedSwapFiles.containsKey(swapLocation)) {
+            return;
+        }
+
+        try {
+            prefetchedSwapFiles.computeIfAbsent(swapLocation, location -> swapInExecutor.submit(() -> swapInFromStorage(location, flowFileQueue)));
+        } catch (final RejectedExecutionException ree) {
+            // executor has been shut down; the swap file will be swapped in when it is needed.
+            logger.debug("Unable to prefetch swap file {} because the executor has been shut down", swapLocation);
+        }
     }
 
     @Override
     public SwapContents swapIn(final String swapLocation, final FlowFileQueue flowFileQueue) throws IOException {
+        final Future<SwapContents> prefetched = prefetchedSwapFiles.remove(swapLocation);
+        if (prefetched != null) {
+            return getPrefetchedContents(prefetched);
+        }
+
+        return swapInFromStorage(swapLocation, flowFileQueue);
+    }
+
+    private SwapContents swapInFromStorage(final String swapLocation, final FlowFileQueue flowFileQueue) throws IOException {
         final File swapFile = new File(swapLocation);
-        final SwapContents swapContents = peek(swapLocation, flowFileQueue);
+
+        final SwapContents swapContents;
+        final PendingSwapFile pendingSwapFile = pendingSwapFiles.remove(swapLocation);
+        if (pendingSwapFile == null) {
+            swapContents = readSwapFile(swapLocation, flowFileQueue);
+        } else {
+            final List<FlowFileRecord> flowFiles = pendingSwapFile.getFlowFiles();
+            swapContents = new StandardSwapContents(StandardSwapSummary.summarize(flowFiles), flowFiles);
+
+            if (!pendingSwapFile.reclaim()) {
+                // The swap file was never written, so the FlowFile Repository was never told that the FlowFiles were swapped out.
+                return swapContents;
+            }
+        }
+
         flowFileRepository.swapFlowFilesIn(swapFile.getAbsolutePath(), swapContents.getFlowFiles(), flowFileQueue);
 
         if (!swapFile.delete()) {
@@ -153,8 +281,54 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
         return swapContents;
     }
 
+    private SwapContents getPrefetchedContents(final Future<SwapContents> future) throws IOException {
+        // The FlowFiles have already been swapped in, or are being swapped in, by another thread. We must not give up
+        // waiting if interrupted, as the FlowFiles would then be lost.
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                } catch (final ExecutionException ee) {
+                    final Throwable cause = ee.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IOException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     @Override
     public SwapContents peek(final String swapLocation, final FlowFileQueue flowFileQueue) throws IOException {
+        final PendingSwapFile pendingSwapFile = pendingSwapFiles.get(swapLocation);
+        if (pendingSwapFile != null) {
+            final List<FlowFileRecord> flowFiles = pendingSwapFile.getFlowFiles();
+            return new StandardSwapContents(StandardSwapSummary.summarize(flowFiles), flowFiles);
+        }
+
+        final Future<SwapContents> prefetched = prefetchedSwapFiles.get(swapLocation);
+        if (prefetched != null) {
+            return getPrefetchedContents(prefetched);
+        }
+
+        return readSwapFile(swapLocation, flowFileQueue);
+    }
+
+    private SwapContents readSwapFile(final String swapLocation, final FlowFileQueue flowFileQueue) throws IOException {
         final File swapFile = new File(swapLocation);
         if (!swapFile.exists()) {
             throw new FileNotFoundException("Failed to swap in FlowFiles from external storage location " + swapLocation + " into FlowFile Queue because the file could not be found");
@@ -171,6 +345,13 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
 
     @Override
     public void purge() {
+        // Make sure that no swap file that is waiting to be written is written after we have purged the swap files.
+        for (final PendingSwapFile pendingSwapFile : pendingSwapFiles.values()) {
+            pendingSwapFile.reclaim();
+        }
+        pendingSwapFiles.clear();
+        prefetchedSwapFiles.clear();
+
         final File[] swapFiles = storageDirectory.listFiles(new FilenameFilter() {
             @Override
             public boolean accept(final File dir, final String name) {
@@ -255,6 +436,16 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
 
     @Override
     public SwapSummary getSwapSummary(final String swapLocation) throws IOException {
+        final PendingSwapFile pendingSwapFile = pendingSwapFiles.get(swapLocation);
+        if (pendingSwapFile != null) {
+            return StandardSwapSummary.summarize(pendingSwapFile.getFlowFiles());
+        }
+
+        final Future<SwapContents> prefetched = prefetchedSwapFiles.get(swapLocation);
+        if (prefetched != null) {
+            return getPrefetchedContents(prefetched).getSummary();
+        }
+
         final File swapFile = new File(swapLocation);
 
         // read record from disk via the swap file
@@ -283,6 +474,9 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
             if (serializationName.equals(SchemaSwapDeserializer.getSerializationName())) {
                 return new SchemaSwapDeserializer();
             }
+            if (serializationName.equals(CompressedSchemaSwapDeserializer.getSerializationName())) {
+                return new CompressedSchemaSwapDeserializer();
+            }
 
             throw new IOException("Cannot find a suitable Deserializer for swap file, written with Serialization Name '" + serializationName + "'");
         } else {
@@ -307,6 +501,75 @@ public class FileSystemSwapManager implements FlowFileSwapManager {
         }
     }
 
+    /**
+     * The FlowFiles of a swap file that has been handed out by swapOut but that may not have been written yet
+     */
+    private static class PendingSwapFile {
+        private final List<FlowFileRecord> flowFiles;
+        private PendingSwapFileState state = PendingSwapFileState.QUEUED;
+
+        public PendingSwapFile(final List<FlowFileRecord> flowFiles) {
+            this.flowFiles = flowFiles;
+        }
+
+        public List<FlowFileRecord> getFlowFiles() {
+            return flowFiles;
+        }
+
+        /**
+         * @return <code>true</code> if the swap file should be written, <code>false</code> if the FlowFiles have already been reclaimed
+         */
+        public synchronized boolean startWrite() {
+            if (state != PendingSwapFileState.QUEUED) {
+                return false;
+            }
+
+            state = PendingSwapFileState.WRITING;
+            return true;
+        }
+
+        public synchronized void writeComplete(final boolean written) {
+            state = written ? PendingSwapFileState.WRITTEN : PendingSwapFileState.FAILED;
+            notifyAll();
+        }
+
+        /**
+         * Takes the FlowFiles back, waiting for the swap file to be written if that is in progress. If the swap file has
+         * not yet been written, it never will be.
+         *
+         * @return <code>true</code> if the swap file was written and the FlowFile Repository updated, <code>false</code> otherwise
+         */
+        public synchronized boolean reclaim() {
+            boolean interrupted = false;
+            while (state == PendingSwapFileState.WRITING) {
+                try {
+                    wait();
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (state == PendingSwapFileState.WRITTEN) {
+                return true;
+            }
+
+            state = PendingSwapFileState.RECLAIMED;
+            return false;
+        }
+    }
+
+    private enum PendingSwapFileState {
+        QUEUED,
+        WRITING,
+        WRITTEN,
+        FAILED,
+        RECLAIMED;
+    }
+
     private static class SwapFileComparator implements Comparator<String> {
 
         @Override
@@ -44,6 +44,7 @@ import org.apache.nifi.cluster.coordination.node.NodeConnectionStatus;
 import org.apache.nifi.cluster.protocol.DataFlow;
 import org.apache.nifi.cluster.protocol.Heartbeat;
 import org.apache.nifi.cluster.protocol.HeartbeatPayload;
+import org.apache.nifi.cluster.protocol.HeartbeatPayloadEncoder;
 import org.apache.nifi.cluster.protocol.NodeIdentifier;
 import org.apache.nifi.cluster.protocol.NodeProtocolSender;
 import org.apache.nifi.cluster.protocol.UnknownServiceAddressException;
@@ -69,7 +70,11 @@ import org.apache.nifi.controller.label.StandardLabel;
 import org.apache.nifi.controller.leader.election.LeaderElectionManager;
 import org.apache.nifi.controller.leader.election.LeaderElectionStateChangeListener;
 import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.queue.LoadBalanceStrategy;
 import org.apache.nifi.controller.queue.QueueSize;
+import org.apache.nifi.controller.queue.clustered.ClusterLoadBalancer;
+import org.apache.nifi.controller.queue.clustered.LoadBalanceProtocol;
+import org.apache.nifi.controller.queue.clustered.LoadBalanceServer;
 import org.apache.nifi.controller.reporting.ReportingTaskInstantiationException;
 import org.apache.nifi.controller.reporting.ReportingTaskProvider;
 import org.apache.nifi.controller.reporting.StandardReportingInitializationContext;
@@ -99,8 +104,10 @@ import org.apache.nifi.controller.repository.io.LimitedInputStream;
 import org.apache.nifi.controller.scheduling.EventDrivenSchedulingAgent;
 import org.apache.nifi.controller.scheduling.ProcessContextFactory;
 import org.apache.nifi.controller.scheduling.QuartzSchedulingAgent;
+import org.apache.nifi.controller.scheduling.SchedulingAgent;
 import org.apache.nifi.controller.scheduling.StandardProcessScheduler;
 import org.apache.nifi.controller.scheduling.TimerDrivenSchedulingAgent;
+import org.apache.nifi.controller.scheduling.WorkStealingSchedulingAgent;
 import org.apache.nifi.controller.serialization.FlowSerializationException;
 import org.apache.nifi.controller.serialization.FlowSerializer;
 import org.apache.nifi.controller.serialization.FlowSynchronizationException;
@@ -135,6 +142,9 @@ import org.apache.nifi.groups.RemoteProcessGroup;
 import org.apache.nifi.groups.RemoteProcessGroupPortDescriptor;
 import org.apache.nifi.groups.StandardProcessGroup;
 import org.apache.nifi.history.History;
+import org.apache.nifi.io.socket.SSLContextFactory;
+import org.apache.nifi.io.socket.ServerSocketConfiguration;
+import org.apache.nifi.io.socket.SocketConfiguration;
 import org.apache.nifi.logging.ComponentLog;
 import org.apache.nifi.logging.ControllerServiceLogObserver;
 import org.apache.nifi.logging.LogLevel;
@@ -225,6 +235,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -305,6 +316,13 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
     private final LeaderElectionManager leaderElectionManager;
     private final ClusterCoordinator clusterCoordinator;
 
+    /**
+     * distributes the FlowFiles of load-balanced connections and receives those of other nodes; null unless configured for clustering with a load balance port
+     */
+    private final ClusterLoadBalancer loadBalancer;
+    private final LoadBalanceServer loadBalanceServer;
+    private final FlowEngine loadBalanceEngine;
+
     /**
      * true if controller is configured to operate in a clustered environment
      */
@@ -321,6 +339,8 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
     private final StringEncryptor encryptor;
 
     private final ScheduledExecutorService clusterTaskExecutor = new FlowEngine(3, "Clustering Tasks", true);
+    private final FlowEngine swapInEngine;
+    private final FlowEngine swapOutEngine;
     private final ResourceClaimManager resourceClaimManager = new StandardResourceClaimManager();
 
     // guarded by rwLock
@@ -329,6 +349,7 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
      */
     private ScheduledFuture<?> heartbeatSenderFuture;
     private final Heartbeater heartbeater;
+    private final HeartbeatPayloadEncoder heartbeatPayloadEncoder = new HeartbeatPayloadEncoder();
     private final HeartbeatMonitor heartbeatMonitor;
 
     // guarded by FlowController lock
@@ -443,6 +464,8 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
 
         timerDrivenEngineRef = new AtomicReference<>(new FlowEngine(maxTimerDrivenThreads.get(), "Timer-Driven Process"));
         eventDrivenEngineRef = new AtomicReference<>(new FlowEngine(maxEventDrivenThreads.get(), "Event-Driven Process"));
+        swapInEngine = nifiProperties.getSwapInThreads() > 0 ? new FlowEngine(nifiProperties.getSwapInThreads(), "Swap In", true) : null;
+        swapOutEngine = nifiProperties.getSwapOutThreads() > 0 ? new FlowEngine(nifiProperties.getSwapOutThreads(), "Swap Out", true) : null;
 
         final FlowFileRepository flowFileRepo = createFlowFileRepository(nifiProperties, resourceClaimManager);
         flowFileRepository = flowFileRepo;
@@ -479,7 +502,16 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
                 eventDrivenEngineRef.get(), this, stateManagerProvider, eventDrivenWorkerQueue, contextFactory, maxEventDrivenThreads.get(), encryptor, this.variableRegistry));
 
         final QuartzSchedulingAgent quartzSchedulingAgent = new QuartzSchedulingAgent(this, timerDrivenEngineRef.get(), contextFactory, encryptor, this.variableRegistry);
-        final TimerDrivenSchedulingAgent timerDrivenAgent = new TimerDrivenSchedulingAgent(this, timerDrivenEngineRef.get(), contextFactory, encryptor, this.variableRegistry, this.nifiProperties);
+        final String timerDrivenAgentImplementation = nifiProperties.getTimerDrivenSchedulingAgent();
+        final SchedulingAgent timerDrivenAgent;
+        if (WorkStealingSchedulingAgent.class.getName().equals(timerDrivenAgentImplementation)) {
+            timerDrivenAgent = new WorkStealingSchedulingAgent(this, timerDrivenEngineRef.get(), contextFactory, encryptor, this.variableRegistry, this.nifiProperties,
+                maxTimerDrivenThreads.get());
+        } else if (TimerDrivenSchedulingAgent.class.getName().equals(timerDrivenAgentImplementation)) {
+            timerDrivenAgent = new TimerDrivenSchedulingAgent(this, timerDrivenEngineRef.get(), contextFactory, encryptor, this.variableRegistry, this.nifiProperties);
+        } else {
+            throw new RuntimeException("Unknown Timer-Driven Scheduling Agent " + timerDrivenAgentImplementation + " configured by property " + NiFiProperties.TIMER_DRIVEN_SCHEDULING_AGENT);
+        }
         processScheduler.setSchedulingAgent(SchedulingStrategy.TIMER_DRIVEN, timerDrivenAgent);
         // PRIMARY_NODE_ONLY is deprecated, but still exists to handle processors that are still defined with it (they haven't been re-configured with executeNode = PRIMARY).
         processScheduler.setSchedulingAgent(SchedulingStrategy.PRIMARY_NODE_ONLY, timerDrivenAgent);
@@ -547,6 +579,34 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
             listener.setRootGroup(rootGroup);
         }
 
+        final Integer loadBalancePort = nifiProperties.getClusterLoadBalancePort();
+        if (configuredForClustering && loadBalancePort != null) {
+            final SSLContextFactory sslContextFactory = createClusterSslContextFactory(nifiProperties);
+            final int loadBalanceThreads = nifiProperties.getClusterLoadBalanceMaxThreads();
+
+            final SocketConfiguration socketConfiguration = new SocketConfiguration();
+            socketConfiguration.setSocketTimeout(LoadBalanceProtocol.SOCKET_TIMEOUT_MILLIS);
+            socketConfiguration.setSSLContextFactory(sslContextFactory);
+            loadBalanceEngine = new FlowEngine(loadBalanceThreads, "Load Balance Client", true);
+            loadBalancer = new ClusterLoadBalancer(clusterCoordinator, flowFileRepository, contentRepository, provenanceRepository, resourceClaimManager,
+                socketConfiguration, loadBalanceEngine);
+
+            final ServerSocketConfiguration serverSocketConfiguration = new ServerSocketConfiguration();
+            serverSocketConfiguration.setSocketTimeout(LoadBalanceProtocol.SOCKET_TIMEOUT_MILLIS);
+            serverSocketConfiguration.setNeedClientAuth(sslContextFactory != null);
+            serverSocketConfiguration.setReuseAddress(true);
+            serverSocketConfiguration.setSSLContextFactory(sslContextFactory);
+            loadBalanceServer = new LoadBalanceServer(loadBalanceThreads, loadBalancePort, serverSocketConfiguration, this::getFlowFileQueue,
+                flowFileRepository, contentRepository, provenanceRepository);
+        } else {
+            if (configuredForClustering) {
+                LOG.info("Not enabling load-balanced connections because the '" + NiFiProperties.LOAD_BALANCE_PORT + "' property is not set");
+            }
+            loadBalanceEngine = null;
+            loadBalancer = null;
+            loadBalanceServer = null;
+        }
+
         // Determine frequency for obtaining component status snapshots
         final String snapshotFrequency = nifiProperties.getProperty(NiFiProperties.COMPONENT_STATUS_SNAPSHOT_FREQUENCY, NiFiProperties.DEFAULT_COMPONENT_STATUS_SNAPSHOT_FREQUENCY);
         long snapshotMillis;
@@ -581,7 +641,7 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
         this.leaderElectionManager = leaderElectionManager;
 
         if (configuredForClustering) {
-            heartbeater = new ClusterProtocolHeartbeater(protocolSender, clusterCoordinator, leaderElectionManager);
+            heartbeater = new ClusterProtocolHeartbeater(protocolSender, clusterCoordinator, leaderElectionManager, heartbeatPayloadEncoder);
 
             // Check if there is already a cluster coordinator elected. If not, go ahead
             // and register for coordinator role. If there is already one elected, do not register until
@@ -668,6 +728,23 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
         };
     }
 
+    private static SSLContextFactory createClusterSslContextFactory(final NiFiProperties nifiProperties) {
+        if (!Boolean.valueOf(nifiProperties.getProperty(NiFiProperties.CLUSTER_PROTOCOL_IS_SECURE))) {
+            return null;
+        }
+
+        try {
+            return new SSLContextFactory(nifiProperties);
+        } catch (final Exception e) {
+            throw new IllegalStateException("NiFi is configured to secure communications between the nodes of the cluster but the Keystore/Truststore could not be loaded", e);
+        }
+    }
+
+    private FlowFileQueue getFlowFileQueue(final String connectionId) {
+        final Connection connection = getRootGroup().findConnection(connectionId);
+        return connection == null ? null : connection.getFlowFileQueue();
+    }
+
     public void initializeFlow() throws IOException {
         writeLock.lock();
         try {
@@ -707,6 +784,11 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
                 listener.start();
             }
 
+            if (loadBalanceServer != null) {
+                loadBalanceServer.start();
+                loadBalancer.start();
+            }
+
             notifyComponentsConfigurationRestored();
 
             timerDrivenEngineRef.get().scheduleWithFixedDelay(new Runnable() {
@@ -911,6 +993,16 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
                 public EventReporter getEventReporter() {
                     return eventReporter;
                 }
+
+                @Override
+                public ExecutorService getSwapOutExecutor() {
+                    return swapOutEngine;
+                }
+
+                @Override
+                public ExecutorService getSwapInExecutor() {
+                    return swapInEngine;
+                }
             };
 
             swapManager.initialize(initializationContext);
@@ -923,6 +1015,9 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
                 .destination(destination)
                 .swapManager(swapManager)
                 .queueSwapThreshold(nifiProperties.getQueueSwapThreshold())
+                .queueImplementation(nifiProperties.getQueueImplementation())
+                .queueStripes(nifiProperties.getQueueStripes())
+                .loadBalancer(loadBalancer)
                 .eventReporter(eventReporter)
                 .resourceClaimManager(resourceClaimManager)
                 .flowFileRepository(flowFileRepository)
@@ -1345,6 +1440,16 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
 
             clusterTaskExecutor.shutdownNow();
 
+            // FlowFiles that are waiting to be sent to other nodes remain in the FlowFile Repository, so they are restored to their queues on restart
+            if (loadBalanceServer != null) {
+                loadBalanceEngine.shutdownNow();
+                try {
+                    loadBalanceServer.stop();
+                } catch (final IOException ioe) {
+                    LOG.warn("Failed to stop receiving load-balanced FlowFiles due to {}", ioe.toString());
+                }
+            }
+
             if (zooKeeperStateServer != null) {
                 zooKeeperStateServer.shutdown();
             }
@@ -1377,6 +1482,20 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
                 LOG.info("Interrupted while waiting for controller termination.");
             }
 
+            // Swap files that have not yet been written need not be: the FlowFile Repository has not yet been told
+            // that those FlowFiles were swapped out, so they will be restored to their queues on restart.
+            if (swapInEngine != null) {
+                swapInEngine.shutdownNow();
+            }
+            if (swapOutEngine != null) {
+                swapOutEngine.shutdownNow();
+                try {
+                    swapOutEngine.awaitTermination(gracefulShutdownSeconds / 2, TimeUnit.SECONDS);
+                } catch (final InterruptedException ie) {
+                    LOG.info("Interrupted while waiting for swap files to be written.");
+                }
+            }
+
             try {
                 flowFileRepository.close();
             } catch (final Throwable t) {
@@ -1481,6 +1600,7 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
         writeLock.lock();
         try {
             setMaxThreadCount(maxThreadCount, this.timerDrivenEngineRef.get(), this.maxTimerDrivenThreads);
+            processScheduler.setMaxThreadCount(SchedulingStrategy.TIMER_DRIVEN, maxThreadCount);
         } finally {
             writeLock.unlock();
         }
@@ -1882,6 +2002,9 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
                 queue.setBackPressureDataSizeThreshold(connectionDTO.getBackPressureDataSizeThreshold());
                 queue.setBackPressureObjectThreshold(connectionDTO.getBackPressureObjectThreshold());
                 queue.setFlowFileExpiration(connectionDTO.getFlowFileExpiration());
+                if (connectionDTO.getLoadBalanceStrategy() != null) {
+                    queue.setLoadBalanceStrategy(LoadBalanceStrategy.valueOf(connectionDTO.getLoadBalanceStrategy()), connectionDTO.getLoadBalancePartitionAttribute());
+                }
 
                 final List<String> prioritizers = connectionDTO.getPrioritizers();
                 if (prioritizers != null) {
@@ -3973,7 +4096,7 @@ public class FlowController implements EventAccess, ControllerServiceProvider, R
                 return null;
             }
 
-            final Heartbeat heartbeat = new Heartbeat(nodeId, connectionStatus, hbPayload.marshal());
+            final Heartbeat heartbeat = new Heartbeat(nodeId, connectionStatus, heartbeatPayloadEncoder.encode(hbPayload));
             final HeartbeatMessage message = new HeartbeatMessage();
             message.setHeartbeat(heartbeat);
 
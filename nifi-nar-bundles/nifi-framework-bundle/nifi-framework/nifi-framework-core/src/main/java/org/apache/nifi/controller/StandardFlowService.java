@@ -198,6 +198,7 @@ public class StandardFlowService implements FlowService, ProtocolHandler {
 
             final InetSocketAddress nodeApiAddress = nifiProperties.getNodeApiAddress();
             final InetSocketAddress nodeSocketAddress = nifiProperties.getClusterNodeProtocolAddress();
+            final InetSocketAddress loadBalanceAddress = nifiProperties.getClusterLoadBalanceAddress();
 
             String nodeUuid = null;
             final StateManager stateManager = controller.getStateManagerProvider().getStateManager(CLUSTER_NODE_CONFIG);
@@ -214,7 +215,9 @@ public class StandardFlowService implements FlowService, ProtocolHandler {
                     nodeApiAddress.getHostName(), nodeApiAddress.getPort(),
                     nodeSocketAddress.getHostName(), nodeSocketAddress.getPort(),
                     nifiProperties.getRemoteInputHost(), nifiProperties.getRemoteInputPort(),
-                    nifiProperties.getRemoteInputHttpPort(), nifiProperties.isSiteToSiteSecure());
+                    nifiProperties.getRemoteInputHttpPort(), nifiProperties.isSiteToSiteSecure(),
+                    loadBalanceAddress == null ? null : loadBalanceAddress.getHostName(),
+                    loadBalanceAddress == null ? null : loadBalanceAddress.getPort(), null);
 
         } else {
             this.configuredForClustering = false;
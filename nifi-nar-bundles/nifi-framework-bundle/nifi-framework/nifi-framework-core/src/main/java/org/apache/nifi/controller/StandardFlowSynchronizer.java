@@ -59,6 +59,7 @@ import org.apache.nifi.connectable.Position;
 import org.apache.nifi.connectable.Size;
 import org.apache.nifi.controller.exception.ProcessorInstantiationException;
 import org.apache.nifi.controller.label.Label;
+import org.apache.nifi.controller.queue.LoadBalanceStrategy;
 import org.apache.nifi.controller.reporting.ReportingTaskInstantiationException;
 import org.apache.nifi.controller.reporting.StandardReportingInitializationContext;
 import org.apache.nifi.controller.serialization.FlowEncodingVersion;
@@ -861,6 +862,11 @@ public class StandardFlowSynchronizer implements FlowSynchronizer {
             if (dto.getFlowFileExpiration() != null) {
                 connection.getFlowFileQueue().setFlowFileExpiration(dto.getFlowFileExpiration());
             }
+
+            // a connection that is not load balanced has no strategy in the flow, so reset it rather than keep the current one
+            final LoadBalanceStrategy loadBalanceStrategy = dto.getLoadBalanceStrategy() == null ? LoadBalanceStrategy.DO_NOT_LOAD_BALANCE
+                : LoadBalanceStrategy.valueOf(dto.getLoadBalanceStrategy());
+            connection.getFlowFileQueue().setLoadBalanceStrategy(loadBalanceStrategy, dto.getLoadBalancePartitionAttribute());
         }
 
         // Replace the templates with those from the proposed flow
@@ -1236,6 +1242,9 @@ public class StandardFlowSynchronizer implements FlowSynchronizer {
             if (dto.getFlowFileExpiration() != null) {
                 connection.getFlowFileQueue().setFlowFileExpiration(dto.getFlowFileExpiration());
             }
+            if (dto.getLoadBalanceStrategy() != null) {
+                connection.getFlowFileQueue().setLoadBalanceStrategy(LoadBalanceStrategy.valueOf(dto.getLoadBalanceStrategy()), dto.getLoadBalancePartitionAttribute());
+            }
 
             processGroup.addConnection(connection);
         }
@@ -18,6 +18,7 @@ package org.apache.nifi.controller;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.nifi.annotation.behavior.BatchCommits;
 import org.apache.nifi.annotation.behavior.EventDriven;
 import org.apache.nifi.annotation.behavior.InputRequirement;
 import org.apache.nifi.annotation.behavior.InputRequirement.Requirement;
@@ -129,6 +130,8 @@ public class StandardProcessorNode extends ProcessorNode implements Connectable
     private final boolean triggerWhenAnyDestinationAvailable;
     private final boolean eventDrivenSupported;
     private final boolean batchSupported;
+    private final long commitBatchNanos;
+    private final int commitBatchMaxFlowFiles;
     private final Requirement inputRequirement;
     private final ProcessScheduler processScheduler;
     private long runNanos = 0L;
@@ -179,6 +182,14 @@ public class StandardProcessorNode extends ProcessorNode implements Connectable
         triggerWhenEmpty = procClass.isAnnotationPresent(TriggerWhenEmpty.class);
         sideEffectFree = procClass.isAnnotationPresent(SideEffectFree.class);
         batchSupported = procClass.isAnnotationPresent(SupportsBatching.class);
+        final BatchCommits batchCommits = procClass.getAnnotation(BatchCommits.class);
+        if (batchCommits != null && nifiProperties.isProcessorCommitBatchingEnabled()) {
+            commitBatchNanos = FormatUtils.getTimeDuration(batchCommits.duration(), TimeUnit.NANOSECONDS);
+            commitBatchMaxFlowFiles = batchCommits.maxFlowFiles();
+        } else {
+            commitBatchNanos = 0L;
+            commitBatchMaxFlowFiles = Integer.MAX_VALUE;
+        }
         triggeredSerially = procClass.isAnnotationPresent(TriggerSerially.class);
         triggerWhenAnyDestinationAvailable = procClass.isAnnotationPresent(TriggerWhenAnyDestinationAvailable.class);
         eventDrivenSupported = procClass.isAnnotationPresent(EventDriven.class) && !triggeredSerially && !triggerWhenEmpty;
@@ -509,6 +520,17 @@ public class StandardProcessorNode extends ProcessorNode implements Connectable
         return timeUnit.convert(this.runNanos, TimeUnit.NANOSECONDS);
     }
 
+    @Override
+    public long getCommitBatchDuration(final TimeUnit timeUnit) {
+        final long batchNanos = batchSupported ? Math.max(runNanos, commitBatchNanos) : 0L;
+        return timeUnit.convert(batchNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int getCommitBatchMaxFlowFiles() {
+        return commitBatchMaxFlowFiles;
+    }
+
     @Override
     public void setRunDuration(final long duration, final TimeUnit timeUnit) {
         if (duration < 0) {
@@ -0,0 +1,713 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller;
+
+import org.apache.nifi.connectable.Connection;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.controller.repository.FlowFileRepository;
+import org.apache.nifi.controller.repository.FlowFileSwapManager;
+import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
+import org.apache.nifi.events.EventReporter;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.flowfile.FlowFilePrioritizer;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
+import org.apache.nifi.processor.FlowFileFilter;
+import org.apache.nifi.processor.FlowFileFilter.FlowFileFilterResult;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+
+import java.io.IOException;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * A FlowFileQueue that is intended for connections that have many concurrent producers and consumers. Rather than
+ * guarding the entire active queue with a single lock, the active queue is split into a number of stripes, each with
+ * its own lock. A thread that puts a FlowFile onto the queue or polls a FlowFile from the queue needs to lock only one
+ * of the stripes, so threads rarely contend with one another.
+ * </p>
+ *
+ * <p>
+ * When no {@link FlowFilePrioritizer}s are configured, each stripe is a FIFO queue and the FlowFiles are spread
+ * across all stripes. Ordering is then guaranteed only within a stripe, which is sufficient for a connection that has
+ * no prioritizers. Penalized FlowFiles are set aside within the stripe until their penalty expires. Once prioritizers
+ * are configured, all FlowFiles are merged into a single, prioritized stripe so that the queue honors the configured
+ * ordering exactly as the {@link StandardFlowFileQueue} does.
+ * </p>
+ *
+ * <p>
+ * The swap queue and swap files are guarded by a separate lock. Whenever both are needed, the swap lock is always
+ * obtained before any stripe lock, and stripe locks are always obtained in order, and a thread holding a stripe lock
+ * never attempts to obtain the swap lock.
+ * </p>
+ */
+public class StripedFlowFileQueue extends AbstractFlowFileQueue {
+
+    private final Stripe[] stripes;
+    private final ReentrantLock swapLock = new ReentrantLock();
+
+    // modified only while holding the locks of all stripes
+    private volatile List<FlowFilePrioritizer> priorities = Collections.emptyList();
+
+    public StripedFlowFileQueue(final String identifier, final Connection connection, final FlowFileRepository flowFileRepo, final ProvenanceEventRepository provRepo,
+        final ResourceClaimManager resourceClaimManager, final ProcessScheduler scheduler, final FlowFileSwapManager swapManager, final EventReporter eventReporter,
+        final int swapThreshold, final int stripeCount) {
+        super(identifier, connection, flowFileRepo, provRepo, resourceClaimManager, scheduler, swapManager, eventReporter, swapThreshold);
+
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Number of stripes must be positive");
+        }
+
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    @Override
+    public List<FlowFilePrioritizer> getPriorities() {
+        return priorities;
+    }
+
+    @Override
+    public void setPriorities(final List<FlowFilePrioritizer> newPriorities) {
+        final List<FlowFilePrioritizer> updatedPriorities = Collections.unmodifiableList(new ArrayList<>(newPriorities));
+
+        lock();
+        try {
+            if (updatedPriorities.isEmpty() && !isPrioritized()) {
+                return;
+            }
+
+            final List<FlowFileRecord> allFlowFiles = new ArrayList<>();
+            for (final Stripe stripe : stripes) {
+                allFlowFiles.addAll(stripe.queue);
+                stripe.queue = new FifoQueue();
+            }
+
+            if (updatedPriorities.isEmpty()) {
+                // Keep the FlowFiles in the order that they would have been pulled from the prioritized queue.
+                Collections.sort(allFlowFiles, new Prioritizer(updatedPriorities));
+            } else {
+                stripes[0].queue = new PriorityQueue<>(Math.max(20, allFlowFiles.size()), new Prioritizer(updatedPriorities));
+            }
+
+            stripes[0].queue.addAll(allFlowFiles);
+            priorities = updatedPriorities;
+        } finally {
+            unlock();
+        }
+    }
+
+    private boolean isPrioritized() {
+        return !priorities.isEmpty();
+    }
+
+    /**
+     * @return the index of the stripe that the current thread should use first, so that the threads
+     *         that interact with this queue are spread across the stripes
+     */
+    private int getStripeIndex() {
+        if (stripes.length == 1 || isPrioritized()) {
+            return 0;
+        }
+
+        return (int) (Thread.currentThread().getId() % stripes.length);
+    }
+
+    /**
+     * Obtains the lock for the stripe that the current thread should use in order to add FlowFiles to the
+     * active queue. If the queue becomes prioritized while waiting for the lock, the lock is released and the
+     * first stripe is locked instead, as all FlowFiles must then be held by the first stripe.
+     *
+     * @return the locked stripe
+     */
+    private Stripe lockStripeForPut() {
+        while (true) {
+            final Stripe stripe = stripes[getStripeIndex()];
+            stripe.lock.lock();
+
+            if (stripe == stripes[0] || !isPrioritized()) {
+                return stripe;
+            }
+
+            stripe.lock.unlock();
+        }
+    }
+
+    private boolean isSwapRequired(final int numFiles) {
+        return swapMode || size.get().activeQueueCount > swapThreshold - numFiles;
+    }
+
+    @Override
+    protected void putLocally(final FlowFileRecord file) {
+        putAllLocally(Collections.singletonList(file));
+    }
+
+    @Override
+    public void putAllLocally(final Collection<FlowFileRecord> files) {
+        final int numFiles = files.size();
+        long bytes = 0L;
+        for (final FlowFile flowFile : files) {
+            bytes += flowFile.getSize();
+        }
+
+        if (isSwapRequired(numFiles)) {
+            swapLock.lock();
+            try {
+                swapQueue.addAll(files);
+                incrementSwapQueueSize(numFiles, bytes, 0);
+                swapMode = true;
+                writeSwapFilesIfNecessary();
+            } finally {
+                swapLock.unlock();
+            }
+        } else {
+            final Stripe stripe = lockStripeForPut();
+            try {
+                // increment the size while holding the stripe's lock so that no other thread is able to
+                // poll the FlowFiles and decrement the size before we have incremented it.
+                stripe.queue.addAll(files);
+                incrementActiveQueueSize(numFiles, bytes);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        notifyScheduler(connection.getDestination());
+    }
+
+
+    @Override
+    public FlowFileRecord poll(final Set<FlowFileRecord> expiredRecords) {
+        final List<FlowFileRecord> records = poll(1, expiredRecords);
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    @Override
+    public List<FlowFileRecord> poll(final int maxResults, final Set<FlowFileRecord> expiredRecords) {
+        final List<FlowFileRecord> records = new ArrayList<>(Math.min(1024, maxResults));
+        migrateSwapToActiveIfNecessary();
+
+        final int firstIndex = getStripeIndex();
+        final int stripeCount = isPrioritized() ? 1 : stripes.length;
+        boolean contended = false;
+
+        // First, drain any stripe that is not locked by another thread. If that does not yield enough FlowFiles,
+        // wait for the locks of the stripes that we skipped.
+        for (int i = 0; i < stripeCount && records.size() < maxResults && expiredRecords.size() < MAX_EXPIRED_RECORDS_PER_ITERATION; i++) {
+            final Stripe stripe = stripes[(firstIndex + i) % stripes.length];
+            if (stripe.lock.tryLock()) {
+                try {
+                    drainStripe(stripe, records, maxResults, expiredRecords);
+                } finally {
+                    stripe.lock.unlock();
+                }
+            } else {
+                contended = true;
+            }
+        }
+
+        if (contended && records.isEmpty()) {
+            for (int i = 0; i < stripeCount && records.size() < maxResults && expiredRecords.size() < MAX_EXPIRED_RECORDS_PER_ITERATION; i++) {
+                final Stripe stripe = stripes[(firstIndex + i) % stripes.length];
+                stripe.lock.lock();
+                try {
+                    drainStripe(stripe, records, maxResults, expiredRecords);
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Drains FlowFiles from the given stripe into the given list, updating the queue size accordingly. This method
+     * must be called with the stripe's lock held.
+     */
+    private void drainStripe(final Stripe stripe, final List<FlowFileRecord> records, final int maxResults, final Set<FlowFileRecord> expiredRecords) {
+        final int originalRecordCount = records.size();
+        final Set<FlowFileRecord> expired = new HashSet<>();
+        final long bytesDrained = drainQueue(stripe.queue, records, maxResults, expired);
+
+        final int recordsDrained = records.size() - originalRecordCount;
+        if (recordsDrained == 0 && expired.isEmpty()) {
+            return;
+        }
+
+        long expiredBytes = 0L;
+        for (final FlowFileRecord record : expired) {
+            expiredBytes += record.getSize();
+        }
+
+        expiredRecords.addAll(expired);
+        incrementActiveQueueSize(-(expired.size() + recordsDrained), -bytesDrained);
+        incrementUnacknowledgedQueueSize(recordsDrained, bytesDrained - expiredBytes);
+    }
+
+    /**
+     * If the active queue has room for more FlowFiles and there are FlowFiles on the swap queue or in swap files,
+     * migrate them to the active queue. If another thread is already doing so, this method returns immediately
+     * rather than waiting for that thread.
+     */
+    private void migrateSwapToActiveIfNecessary() {
+        // this is the most common condition (nothing is swapped out), so do the check first and avoid the expense
+        // of obtaining the swap lock for 99.999% of the cases.
+        final FlowFileQueueSize queueSize = size.get();
+        if (queueSize.swappedCount == 0 || queueSize.activeQueueCount > swapThreshold - SWAP_RECORD_POLL_SIZE + SWAP_PREFETCH_COUNT) {
+            return;
+        }
+
+        if (!swapLock.tryLock()) {
+            return;
+        }
+
+        try {
+            migrateSwapToActive();
+        } finally {
+            swapLock.unlock();
+        }
+    }
+
+    /**
+     * Moves FlowFiles from the swap files or swap queue to the active queue, as does the
+     * {@link StandardFlowFileQueue}. This method MUST be called with the swap lock held.
+     */
+    private void migrateSwapToActive() {
+        prefetchSwapFileIfNecessary(size.get().activeQueueCount);
+        if (size.get().activeQueueCount > swapThreshold - SWAP_RECORD_POLL_SIZE) {
+            return;
+        }
+
+        // If there are swap files waiting to be swapped in, swap those in first, so that the FlowFiles that
+        // were swapped out first are also swapped in first.
+        if (!swapLocations.isEmpty()) {
+            final String swapLocation = swapLocations.remove(0);
+            final List<FlowFileRecord> swappedIn = swapIn(swapLocation);
+            if (swappedIn != null) {
+                distribute(swappedIn);
+            }
+            return;
+        }
+
+        if (swapQueue.isEmpty() || size.get().swappedCount > swapQueue.size()) {
+            return;
+        }
+
+        final int recordsToMigrate = Math.min(swapQueue.size(), Math.max(0, swapThreshold - size.get().activeQueueCount));
+        if (recordsToMigrate > 0) {
+            final List<FlowFileRecord> migrating = swapQueue.subList(0, recordsToMigrate);
+            final List<FlowFileRecord> toMigrate = new ArrayList<>(migrating);
+            migrating.clear();
+
+            long bytesMigrated = 0L;
+            for (final FlowFileRecord flowFile : toMigrate) {
+                bytesMigrated += flowFile.getSize();
+            }
+
+            incrementActiveQueueSize(toMigrate.size(), bytesMigrated);
+            incrementSwapQueueSize(-toMigrate.size(), -bytesMigrated, 0);
+            distribute(toMigrate);
+        }
+
+        if (size.get().swappedCount == 0) {
+            swapMode = false;
+        }
+    }
+
+    /**
+     * Spreads the given FlowFiles across the stripes, keeping contiguous runs of FlowFiles together so that
+     * each stripe preserves the order of the FlowFiles that it receives. The size of the active queue must already
+     * account for the given FlowFiles. This method MUST be called with the swap lock held, which also prevents the
+     * prioritizers from changing while the FlowFiles are distributed.
+     */
+    private void distribute(final List<FlowFileRecord> flowFiles) {
+        if (flowFiles.isEmpty()) {
+            return;
+        }
+
+        final int stripeCount = isPrioritized() ? 1 : stripes.length;
+        final int perStripe = (flowFiles.size() + stripeCount - 1) / stripeCount;
+        for (int i = 0; i < stripeCount; i++) {
+            final int start = i * perStripe;
+            if (start >= flowFiles.size()) {
+                break;
+            }
+
+            final List<FlowFileRecord> run = flowFiles.subList(start, Math.min(flowFiles.size(), start + perStripe));
+            final Stripe stripe = stripes[i];
+            stripe.lock.lock();
+            try {
+                stripe.queue.addAll(run);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * This method MUST be called with the swap lock held
+     */
+    private void writeSwapFilesIfNecessary() {
+        if (swapQueue.size() < SWAP_RECORD_POLL_SIZE) {
+            return;
+        }
+
+        migrateSwapToActive();
+
+        if (isPrioritized()) {
+            // When prioritized, all active FlowFiles are held by the first stripe, so we can merge it with the
+            // swap queue and swap out the lowest-priority FlowFiles, just as the StandardFlowFileQueue does.
+            final Stripe firstStripe = stripes[0];
+            firstStripe.lock.lock();
+            try {
+                writeSwapFiles(firstStripe.queue, priorities);
+            } finally {
+                firstStripe.lock.unlock();
+            }
+
+            return;
+        }
+
+        // Without prioritizers, the FlowFiles on the swap queue are newer than those in the active queue, so there
+        // is no need to merge the two. Swap out the oldest FlowFiles on the swap queue, as the swap files will be
+        // swapped back in before the remainder of the swap queue is migrated to the active queue.
+        final int numSwapFiles = swapQueue.size() / SWAP_RECORD_POLL_SIZE;
+        for (int i = 0; i < numSwapFiles; i++) {
+            final List<FlowFileRecord> swapping = swapQueue.subList(0, SWAP_RECORD_POLL_SIZE);
+            final String swapLocation = swapOut(new ArrayList<>(swapping));
+            if (swapLocation == null) {
+                break;
+            }
+
+            swapping.clear();
+            swapLocations.add(swapLocation);
+            incrementSwapQueueSize(0, 0L, 1);
+        }
+    }
+
+
+    @Override
+    public List<FlowFileRecord> poll(final FlowFileFilter filter, final Set<FlowFileRecord> expiredRecords) {
+        long bytesPulled = 0L;
+        int flowFilesPulled = 0;
+
+        final List<FlowFileRecord> selectedFlowFiles = new ArrayList<>();
+
+        // Lock the entire queue so that the filter sees a consistent view of the FlowFiles across all stripes.
+        lock();
+        try {
+            migrateSwapToActive();
+
+            final long expirationMillis = getExpirationMillis();
+            boolean terminated = false;
+
+            for (int i = 0; i < stripes.length && !terminated; i++) {
+                final Stripe stripe = stripes[i];
+                final List<FlowFileRecord> unselected = new ArrayList<>();
+
+                while (true) {
+                    FlowFileRecord flowFile = stripe.queue.poll();
+                    if (flowFile == null) {
+                        break;
+                    }
+
+                    final boolean isExpired = isLaterThan(getExpirationDate(flowFile, expirationMillis));
+                    if (isExpired) {
+                        expiredRecords.add(flowFile);
+                        bytesPulled += flowFile.getSize();
+                        flowFilesPulled++;
+
+                        if (expiredRecords.size() >= MAX_EXPIRED_RECORDS_PER_ITERATION) {
+                            terminated = true;
+                            break;
+                        } else {
+                            continue;
+                        }
+                    } else if (flowFile.isPenalized()) {
+                        stripe.queue.add(flowFile);
+                        flowFile = null;
+                        break; // just stop searching this stripe because the rest are all penalized.
+                    }
+
+                    final FlowFileFilterResult result = filter.filter(flowFile);
+                    if (result.isAccept()) {
+                        bytesPulled += flowFile.getSize();
+                        flowFilesPulled++;
+
+                        incrementUnacknowledgedQueueSize(1, flowFile.getSize());
+                        selectedFlowFiles.add(flowFile);
+                    } else {
+                        unselected.add(flowFile);
+                    }
+
+                    if (!result.isContinue()) {
+                        terminated = true;
+                        break;
+                    }
+                }
+
+                stripe.requeue(unselected);
+            }
+
+            incrementActiveQueueSize(-flowFilesPulled, -bytesPulled);
+            return selectedFlowFiles;
+        } finally {
+            unlock();
+        }
+    }
+
+
+    @Override
+    protected List<FlowFileRecord> getActiveFlowFilesInPriorityOrder() {
+        final List<FlowFileRecord> allFlowFiles = new ArrayList<>();
+        for (final Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                allFlowFiles.addAll(stripe.queue);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        // sort the FlowFileRecords so that we have the list in the same order as on the queue.
+        Collections.sort(allFlowFiles, new Prioritizer(priorities));
+        return allFlowFiles;
+    }
+
+    @Override
+    protected List<FlowFileRecord> getActiveFlowFiles() {
+        final List<FlowFileRecord> allFlowFiles = new ArrayList<>();
+        for (final Stripe stripe : stripes) {
+            allFlowFiles.addAll(stripe.queue);
+        }
+        return allFlowFiles;
+    }
+
+    @Override
+    protected void clearActiveQueue() {
+        for (final Stripe stripe : stripes) {
+            stripe.queue.clear();
+        }
+    }
+
+    @Override
+    protected void addToActiveQueue(final Collection<FlowFileRecord> flowFiles) {
+        stripes[0].queue.addAll(flowFiles);
+    }
+
+    @Override
+    public FlowFileRecord getFlowFile(final String flowFileUuid) throws IOException {
+        if (flowFileUuid == null) {
+            return null;
+        }
+
+        for (final Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                // read through all of the FlowFiles in the stripe, looking for the FlowFile with the given ID
+                for (final FlowFileRecord flowFile : stripe.queue) {
+                    if (flowFileUuid.equals(flowFile.getAttribute(CoreAttributes.UUID.key()))) {
+                        return flowFile;
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Lock the swap queue and all stripes of the queue so that other threads are unable
+     * to interact with the queue
+     */
+    @Override
+    public void lock() {
+        swapLock.lock();
+        for (final Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    /**
+     * Unlock the queue
+     */
+    @Override
+    public void unlock() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+        swapLock.unlock();
+    }
+
+
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // guarded by lock
+        private Queue<FlowFileRecord> queue = new FifoQueue();
+
+        /**
+         * Returns FlowFiles that were polled from this stripe but not selected, such that they are pulled again
+         * in the same order. Must be called with the lock held.
+         */
+        private void requeue(final List<FlowFileRecord> flowFiles) {
+            if (queue instanceof FifoQueue) {
+                ((FifoQueue) queue).addAllFirst(flowFiles);
+            } else {
+                queue.addAll(flowFiles);
+            }
+        }
+    }
+
+    /**
+     * A First-In-First-Out queue of FlowFiles that sets penalized FlowFiles aside until their penalty has expired.
+     * Unlike a PriorityQueue, adding and removing FlowFiles does not require any comparisons, unless the FlowFile is
+     * penalized. Because penalized FlowFiles are never returned by {@link #poll()}, this queue returns <code>null</code>
+     * from {@link #poll()} if all FlowFiles that it holds are penalized. Not thread safe.
+     */
+    private static class FifoQueue extends AbstractQueue<FlowFileRecord> {
+        private static final Comparator<FlowFileRecord> PENALTY_COMPARATOR = new Comparator<FlowFileRecord>() {
+            @Override
+            public int compare(final FlowFileRecord o1, final FlowFileRecord o2) {
+                final int penaltyComparison = Long.compare(o1.getPenaltyExpirationMillis(), o2.getPenaltyExpirationMillis());
+                if (penaltyComparison != 0) {
+                    return penaltyComparison;
+                }
+
+                return Long.compare(o1.getId(), o2.getId());
+            }
+        };
+
+        private final ArrayDeque<FlowFileRecord> queue = new ArrayDeque<>();
+        private final PriorityQueue<FlowFileRecord> penalized = new PriorityQueue<>(11, PENALTY_COMPARATOR);
+
+        @Override
+        public boolean offer(final FlowFileRecord flowFile) {
+            if (flowFile.isPenalized()) {
+                penalized.offer(flowFile);
+            } else {
+                queue.offer(flowFile);
+            }
+
+            return true;
+        }
+
+        private void addAllFirst(final List<FlowFileRecord> flowFiles) {
+            for (int i = flowFiles.size() - 1; i >= 0; i--) {
+                final FlowFileRecord flowFile = flowFiles.get(i);
+                if (flowFile.isPenalized()) {
+                    penalized.offer(flowFile);
+                } else {
+                    queue.addFirst(flowFile);
+                }
+            }
+        }
+
+        @Override
+        public FlowFileRecord poll() {
+            // FlowFiles whose penalty has expired have been waiting longest, so pull them first.
+            final FlowFileRecord penalizedHead = penalized.peek();
+            if (penalizedHead != null && !penalizedHead.isPenalized()) {
+                return penalized.poll();
+            }
+
+            FlowFileRecord flowFile;
+            while ((flowFile = queue.poll()) != null) {
+                if (!flowFile.isPenalized()) {
+                    return flowFile;
+                }
+
+                penalized.offer(flowFile);
+            }
+
+            return null;
+        }
+
+        @Override
+        public FlowFileRecord peek() {
+            final FlowFileRecord penalizedHead = penalized.peek();
+            if (penalizedHead != null && !penalizedHead.isPenalized()) {
+                return penalizedHead;
+            }
+
+            for (final FlowFileRecord flowFile : queue) {
+                if (!flowFile.isPenalized()) {
+                    return flowFile;
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public void clear() {
+            queue.clear();
+            penalized.clear();
+        }
+
+        @Override
+        public int size() {
+            return queue.size() + penalized.size();
+        }
+
+        @Override
+        public Iterator<FlowFileRecord> iterator() {
+            final Iterator<FlowFileRecord> queueItr = queue.iterator();
+            final Iterator<FlowFileRecord> penalizedItr = penalized.iterator();
+
+            return new Iterator<FlowFileRecord>() {
+                @Override
+                public boolean hasNext() {
+                    return queueItr.hasNext() || penalizedItr.hasNext();
+                }
+
+                @Override
+                public FlowFileRecord next() {
+                    if (queueItr.hasNext()) {
+                        return queueItr.next();
+                    }
+                    if (penalizedItr.hasNext()) {
+                        return penalizedItr.next();
+                    }
+
+                    throw new NoSuchElementException();
+                }
+            };
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.nifi.controller.cluster;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -29,6 +30,7 @@ import org.apache.nifi.cluster.coordination.ClusterCoordinator;
 import org.apache.nifi.cluster.coordination.node.ClusterRoles;
 import org.apache.nifi.cluster.coordination.node.NodeConnectionStatus;
 import org.apache.nifi.cluster.protocol.HeartbeatPayload;
+import org.apache.nifi.cluster.protocol.HeartbeatPayloadEncoder;
 import org.apache.nifi.cluster.protocol.NodeIdentifier;
 import org.apache.nifi.cluster.protocol.NodeProtocolSender;
 import org.apache.nifi.cluster.protocol.ProtocolException;
@@ -51,11 +53,14 @@ public class ClusterProtocolHeartbeater implements Heartbeater {
     private final NodeProtocolSender protocolSender;
     private final LeaderElectionManager electionManager;
     private final ClusterCoordinator clusterCoordinator;
+    private final HeartbeatPayloadEncoder payloadEncoder;
 
-    public ClusterProtocolHeartbeater(final NodeProtocolSender protocolSender, final ClusterCoordinator clusterCoordinator, final LeaderElectionManager electionManager) {
+    public ClusterProtocolHeartbeater(final NodeProtocolSender protocolSender, final ClusterCoordinator clusterCoordinator, final LeaderElectionManager electionManager,
+            final HeartbeatPayloadEncoder payloadEncoder) {
         this.protocolSender = protocolSender;
         this.clusterCoordinator = clusterCoordinator;
         this.electionManager = electionManager;
+        this.payloadEncoder = payloadEncoder;
     }
 
     @Override
@@ -73,11 +78,18 @@ public class ClusterProtocolHeartbeater implements Heartbeater {
         final long sendStart = System.nanoTime();
 
         final String heartbeatAddress = getHeartbeatAddress();
-        final HeartbeatResponseMessage responseMessage = protocolSender.heartbeat(heartbeatMessage, heartbeatAddress);
+        final HeartbeatResponseMessage responseMessage;
+        try {
+            responseMessage = protocolSender.heartbeat(heartbeatMessage, heartbeatAddress);
+        } catch (final ProtocolException pe) {
+            // The Cluster Coordinator may be a node that does not understand binary payloads; fall back to XML until it tells us otherwise
+            payloadEncoder.reset();
+            throw pe;
+        }
 
         final byte[] payloadBytes = heartbeatMessage.getHeartbeat().getPayload();
-        final HeartbeatPayload payload = HeartbeatPayload.unmarshal(payloadBytes);
-        final List<NodeConnectionStatus> nodeStatusList = payload.getClusterStatus();
+        final HeartbeatPayload payload = payloadEncoder.onResponse(payloadBytes, responseMessage);
+        final List<NodeConnectionStatus> nodeStatusList = payload == null || payload.getClusterStatus() == null ? Collections.emptyList() : payload.getClusterStatus();
         final Map<NodeIdentifier, Long> updateIdMap = nodeStatusList.stream().collect(
                 Collectors.toMap(status -> status.getNodeIdentifier(), status -> status.getUpdateIdentifier()));
 
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.queue.clustered;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.apache.nifi.cluster.coordination.ClusterCoordinator;
+import org.apache.nifi.cluster.coordination.node.NodeConnectionState;
+import org.apache.nifi.cluster.protocol.NodeIdentifier;
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.queue.LoadBalanceStrategy;
+import org.apache.nifi.controller.repository.ContentRepository;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.controller.repository.FlowFileRepository;
+import org.apache.nifi.controller.repository.RepositoryRecord;
+import org.apache.nifi.controller.repository.StandardRepositoryRecord;
+import org.apache.nifi.controller.repository.claim.ContentClaim;
+import org.apache.nifi.controller.repository.claim.ResourceClaim;
+import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
+import org.apache.nifi.io.socket.SocketConfiguration;
+import org.apache.nifi.provenance.ProvenanceEventBuilder;
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.apache.nifi.provenance.ProvenanceEventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Distributes the FlowFiles of load-balanced connections across the nodes of the cluster that are connected and that accept
+ * load-balanced FlowFiles, i.e., that have a load balance port. Every node orders these nodes by their identifiers, so that all
+ * nodes that share the same view of the cluster choose the same node for a given partitioning attribute value, and for the
+ * single-node strategy. If this node is not connected to the cluster, it keeps all FlowFiles to itself.
+ * </p>
+ *
+ * <p>
+ * The FlowFiles that are assigned to another node are sent to it by a {@link LoadBalanceClient}. They remain in this node's
+ * FlowFile Repository until the other node has confirmed that it has persisted them, so a FlowFile that is in transit when this
+ * node is restarted is restored into the connection and distributed again; it may then be received twice.
+ * </p>
+ */
+public class ClusterLoadBalancer implements FlowFileLoadBalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterLoadBalancer.class);
+    static final long MEMBERSHIP_REFRESH_MILLIS = 1000L;
+
+    private final ClusterCoordinator clusterCoordinator;
+    private final FlowFileRepository flowFileRepository;
+    private final ContentRepository contentRepository;
+    private final ProvenanceEventRepository provenanceRepository;
+    private final ResourceClaimManager resourceClaimManager;
+    private final SocketConfiguration socketConfiguration;
+    private final ScheduledExecutorService executor;
+
+    private final ConcurrentMap<String, LoadBalanceClient> clients = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> roundRobinCounters = new ConcurrentHashMap<>();
+    private volatile List<NodeIdentifier> loadBalanceNodes = Collections.emptyList();
+
+    public ClusterLoadBalancer(final ClusterCoordinator clusterCoordinator, final FlowFileRepository flowFileRepository, final ContentRepository contentRepository,
+            final ProvenanceEventRepository provenanceRepository, final ResourceClaimManager resourceClaimManager, final SocketConfiguration socketConfiguration,
+            final ScheduledExecutorService executor) {
+        this.clusterCoordinator = clusterCoordinator;
+        this.flowFileRepository = flowFileRepository;
+        this.contentRepository = contentRepository;
+        this.provenanceRepository = provenanceRepository;
+        this.resourceClaimManager = resourceClaimManager;
+        this.socketConfiguration = socketConfiguration;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts tracking the membership of the cluster. The executor is shared with the clients that send FlowFiles to the other nodes.
+     */
+    public void start() {
+        refreshMembership();
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                refreshMembership();
+            } catch (final Exception e) {
+                logger.error("Failed to determine which nodes of the cluster to load balance FlowFiles to", e);
+            }
+        }, MEMBERSHIP_REFRESH_MILLIS, MEMBERSHIP_REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Updates the nodes that FlowFiles are distributed across. Any FlowFiles that are still waiting to be sent to a node that
+     * is no longer one of them are distributed again.
+     */
+    void refreshMembership() {
+        final NodeIdentifier localNodeId = clusterCoordinator.getLocalNodeIdentifier();
+        final Set<NodeIdentifier> connectedNodes = clusterCoordinator.getNodeIdentifiers(NodeConnectionState.CONNECTED);
+        if (localNodeId == null || !clusterCoordinator.isConnected() || !connectedNodes.contains(localNodeId)) {
+            loadBalanceNodes = Collections.emptyList();
+        } else {
+            loadBalanceNodes = connectedNodes.stream()
+                .filter(nodeId -> nodeId.getLoadBalancePort() != null)
+                .sorted(Comparator.comparing(NodeIdentifier::getId))
+                .collect(Collectors.toList());
+        }
+
+        final List<NodeIdentifier> nodes = loadBalanceNodes;
+        for (final LoadBalanceClient client : clients.values()) {
+            if (!nodes.contains(client.getNodeIdentifier()) && clients.remove(client.getNodeIdentifier().getId(), client)) {
+                final int pendingCount = client.getPendingCount();
+                if (pendingCount > 0) {
+                    logger.info("{} is no longer available for load balancing; distributing its {} pending FlowFiles among the remaining nodes",
+                        client.getNodeIdentifier(), pendingCount);
+                }
+                client.remove();
+            }
+        }
+    }
+
+    @Override
+    public List<FlowFileRecord> distribute(final FlowFileQueue queue, final Collection<FlowFileRecord> flowFiles) {
+        final List<NodeIdentifier> nodes = loadBalanceNodes;
+        final NodeIdentifier localNodeId = clusterCoordinator.getLocalNodeIdentifier();
+        final LoadBalanceStrategy strategy = queue.getLoadBalanceStrategy();
+        final String partitioningAttribute = queue.getPartitioningAttribute();
+        if (nodes.size() < 2 || localNodeId == null || strategy == LoadBalanceStrategy.DO_NOT_LOAD_BALANCE) {
+            return new ArrayList<>(flowFiles);
+        }
+
+        final List<FlowFileRecord> localFlowFiles = new ArrayList<>();
+        final Map<NodeIdentifier, List<FlowFileRecord>> remoteFlowFiles = new HashMap<>();
+        for (final FlowFileRecord flowFile : flowFiles) {
+            final NodeIdentifier nodeId = nodes.get(getNodeIndex(queue, strategy, partitioningAttribute, flowFile, nodes.size()));
+            if (nodeId.equals(localNodeId)) {
+                localFlowFiles.add(flowFile);
+            } else {
+                remoteFlowFiles.computeIfAbsent(nodeId, id -> new ArrayList<>()).add(flowFile);
+            }
+        }
+
+        for (final Map.Entry<NodeIdentifier, List<FlowFileRecord>> entry : remoteFlowFiles.entrySet()) {
+            getClient(entry.getKey()).offer(queue, entry.getValue());
+        }
+
+        return localFlowFiles;
+    }
+
+    private int getNodeIndex(final FlowFileQueue queue, final LoadBalanceStrategy strategy, final String partitioningAttribute, final FlowFileRecord flowFile, final int numNodes) {
+        switch (strategy) {
+            case ROUND_ROBIN:
+                final AtomicLong counter = roundRobinCounters.computeIfAbsent(queue.getIdentifier(), id -> new AtomicLong(0L));
+                return (int) Math.floorMod(counter.getAndIncrement(), (long) numNodes);
+            case PARTITION_BY_ATTRIBUTE:
+                // String.hashCode() is specified, so every node maps the same value to the same index
+                final String value = partitioningAttribute == null ? null : flowFile.getAttribute(partitioningAttribute);
+                return value == null ? 0 : Math.floorMod(value.hashCode(), numNodes);
+            case SINGLE_NODE:
+            default:
+                return 0;
+        }
+    }
+
+    private LoadBalanceClient getClient(final NodeIdentifier nodeId) {
+        final LoadBalanceClient client = clients.get(nodeId.getId());
+        if (client != null) {
+            return client;
+        }
+
+        final LoadBalanceClient newClient = new LoadBalanceClient(nodeId, this, contentRepository, socketConfiguration, executor);
+        final LoadBalanceClient existingClient = clients.putIfAbsent(nodeId.getId(), newClient);
+        return existingClient == null ? newClient : existingClient;
+    }
+
+    /**
+     * Removes the given FlowFiles, which the given node has confirmed that it has received, from this node's repositories and
+     * acknowledges them on the queue
+     */
+    void transferComplete(final NodeIdentifier nodeId, final FlowFileQueue queue, final List<FlowFileRecord> flowFiles, final long transferMillis) {
+        final String transitUri = "nifi://" + nodeId.getLoadBalanceAddress() + ":" + nodeId.getLoadBalancePort() + "/load-balance/" + queue.getIdentifier();
+        final List<ProvenanceEventRecord> provenanceEvents = new ArrayList<>(flowFiles.size());
+        final List<RepositoryRecord> repositoryRecords = new ArrayList<>(flowFiles.size());
+        for (final FlowFileRecord flowFile : flowFiles) {
+            provenanceEvents.add(createSendEvent(flowFile, queue, transitUri, transferMillis));
+
+            final StandardRepositoryRecord record = new StandardRepositoryRecord(queue, flowFile);
+            record.markForDelete();
+            repositoryRecords.add(record);
+
+            final ContentClaim contentClaim = flowFile.getContentClaim();
+            if (contentClaim != null && contentClaim.getResourceClaim() != null) {
+                resourceClaimManager.decrementClaimantCount(contentClaim.getResourceClaim());
+            }
+        }
+
+        try {
+            provenanceRepository.registerEvents(provenanceEvents);
+            flowFileRepository.updateRepository(repositoryRecords);
+        } catch (final IOException e) {
+            logger.error("Sent {} FlowFiles from {} to {} but failed to remove them from the FlowFile Repository; they may be sent again after a restart",
+                flowFiles.size(), queue, nodeId, e);
+        }
+
+        queue.acknowledge(flowFiles);
+        logger.debug("Sent {} FlowFiles from {} to {} in {} millis", flowFiles.size(), queue, nodeId, transferMillis);
+    }
+
+    private ProvenanceEventRecord createSendEvent(final FlowFileRecord flowFile, final FlowFileQueue queue, final String transitUri, final long transferMillis) {
+        final ProvenanceEventBuilder builder = provenanceRepository.eventBuilder();
+        builder.fromFlowFile(flowFile);
+        builder.setEventType(ProvenanceEventType.SEND);
+        builder.setComponentId(queue.getIdentifier());
+        builder.setComponentType("Connection");
+        builder.setTransitUri(transitUri);
+        builder.setEventDuration(transferMillis);
+        builder.setAttributes(flowFile.getAttributes(), Collections.emptyMap());
+        builder.setSourceQueueIdentifier(queue.getIdentifier());
+
+        final ContentClaim contentClaim = flowFile.getContentClaim();
+        if (contentClaim != null) {
+            final ResourceClaim resourceClaim = contentClaim.getResourceClaim();
+            builder.setCurrentContentClaim(resourceClaim.getContainer(), resourceClaim.getSection(), resourceClaim.getId(), contentClaim.getOffset(), flowFile.getSize());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Distributes again the given FlowFiles, which could not be sent to the node that they were assigned to
+     */
+    void redistribute(final FlowFileQueue queue, final List<FlowFileRecord> flowFiles) {
+        queue.acknowledge(flowFiles);
+        queue.putAll(flowFiles);
+    }
+
+    /**
+     * Queues the given FlowFiles on this node, because the node that they were assigned to cannot accept them
+     */
+    void keepLocally(final FlowFileQueue queue, final List<FlowFileRecord> flowFiles) {
+        queue.acknowledge(flowFiles);
+        queue.putAllLocally(flowFiles);
+    }
+
+    /**
+     * @return the number of FlowFiles that are waiting to be sent to other nodes
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (final LoadBalanceClient client : clients.values()) {
+            count += client.getPendingCount();
+        }
+        return count;
+    }
+}
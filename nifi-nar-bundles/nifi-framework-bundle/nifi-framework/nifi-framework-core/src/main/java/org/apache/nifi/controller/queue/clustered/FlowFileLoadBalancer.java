@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.queue.clustered;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+
+/**
+ * Distributes the FlowFiles that are added to a load-balanced connection across the nodes of the cluster.
+ */
+public interface FlowFileLoadBalancer {
+
+    /**
+     * Determines, according to the queue's load balance strategy, which node of the cluster each of the given FlowFiles is to be
+     * queued on. FlowFiles that belong on other nodes are sent to those nodes in the background. Until a FlowFile has been
+     * received by the other node, it is accounted for as unacknowledged by the queue; once it has been received, the load balancer
+     * acknowledges it. If it cannot be received, for instance because the node has left the cluster, the load balancer
+     * acknowledges it and adds it to the queue again.
+     *
+     * @param queue the queue that the FlowFiles are being added to
+     * @param flowFiles the FlowFiles to distribute
+     * @return the FlowFiles that are to be queued on this node
+     */
+    List<FlowFileRecord> distribute(FlowFileQueue queue, Collection<FlowFileRecord> flowFiles);
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.queue.clustered;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.nifi.cluster.protocol.NodeIdentifier;
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.repository.ContentRepository;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.io.socket.SocketConfiguration;
+import org.apache.nifi.io.socket.SocketUtils;
+import org.apache.nifi.remote.exception.ProtocolException;
+import org.apache.nifi.stream.io.NonCloseableOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the FlowFiles that a {@link ClusterLoadBalancer} has assigned to one other node of the cluster. FlowFiles wait in a
+ * pending queue per connection until the client runs; each run opens a session with the node and sends transactions until
+ * no FlowFiles are pending or the session has lasted long enough to give other clients a turn.
+ */
+class LoadBalanceClient implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadBalanceClient.class);
+
+    static final int MAX_FLOWFILES_PER_TRANSACTION = 1000;
+    static final long MAX_BYTES_PER_TRANSACTION = 10L * 1024 * 1024;
+    static final long MAX_SESSION_NANOS = TimeUnit.SECONDS.toNanos(5L);
+    static final long QUEUE_FULL_BACKOFF_MILLIS = 1000L;
+    static final long FAILURE_BACKOFF_MILLIS = 5000L;
+
+    private final NodeIdentifier nodeId;
+    private final InetSocketAddress address;
+    private final ClusterLoadBalancer loadBalancer;
+    private final ContentRepository contentRepository;
+    private final SocketConfiguration socketConfiguration;
+    private final ScheduledExecutorService executor;
+
+    private final ConcurrentMap<String, PendingFlowFiles> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean removed = false;
+    private int batchCounter = 0;
+
+    LoadBalanceClient(final NodeIdentifier nodeId, final ClusterLoadBalancer loadBalancer, final ContentRepository contentRepository,
+            final SocketConfiguration socketConfiguration, final ScheduledExecutorService executor) {
+        this.nodeId = nodeId;
+        this.address = InetSocketAddress.createUnresolved(nodeId.getLoadBalanceAddress(), nodeId.getLoadBalancePort());
+        this.loadBalancer = loadBalancer;
+        this.contentRepository = contentRepository;
+        this.socketConfiguration = socketConfiguration;
+        this.executor = executor;
+    }
+
+    NodeIdentifier getNodeIdentifier() {
+        return nodeId;
+    }
+
+    /**
+     * Adds the given FlowFiles to those that are waiting to be sent to the node
+     *
+     * @param queue the queue that the FlowFiles were added to
+     * @param flowFiles the FlowFiles to send
+     */
+    void offer(final FlowFileQueue queue, final Collection<FlowFileRecord> flowFiles) {
+        pending.computeIfAbsent(queue.getIdentifier(), id -> new PendingFlowFiles(queue)).flowFiles.addAll(flowFiles);
+
+        // if the node was removed concurrently, the FlowFiles may have been added after the others were handed back
+        if (removed) {
+            handBack();
+        } else {
+            schedule(0L);
+        }
+    }
+
+    /**
+     * Stops sending FlowFiles to the node, because it is no longer part of the cluster, and hands back all pending FlowFiles
+     * to the load balancer so that they can be distributed among the remaining nodes. A transaction that is in progress
+     * is allowed to complete.
+     */
+    void remove() {
+        removed = true;
+        handBack();
+    }
+
+    private void handBack() {
+        for (final PendingFlowFiles pendingFlowFiles : pending.values()) {
+            final List<FlowFileRecord> flowFiles = new ArrayList<>();
+            FlowFileRecord flowFile;
+            while ((flowFile = pendingFlowFiles.flowFiles.poll()) != null) {
+                flowFiles.add(flowFile);
+            }
+
+            if (!flowFiles.isEmpty()) {
+                loadBalancer.redistribute(pendingFlowFiles.queue, flowFiles);
+            }
+        }
+    }
+
+    int getPendingCount() {
+        int count = 0;
+        for (final PendingFlowFiles pendingFlowFiles : pending.values()) {
+            count += pendingFlowFiles.flowFiles.size();
+        }
+        return count;
+    }
+
+    private boolean hasPending() {
+        for (final PendingFlowFiles pendingFlowFiles : pending.values()) {
+            if (!pendingFlowFiles.flowFiles.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void schedule(final long delayMillis) {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void run() {
+        long delayMillis;
+        try {
+            delayMillis = sendPending();
+        } catch (final Exception e) {
+            delayMillis = FAILURE_BACKOFF_MILLIS;
+            logger.warn("Failed to send FlowFiles to {} due to {}; will try again in {} millis", nodeId, e.toString(), delayMillis);
+            if (logger.isDebugEnabled()) {
+                logger.warn("", e);
+            }
+        } finally {
+            scheduled.set(false);
+        }
+
+        if (removed) {
+            handBack();
+        } else if (hasPending()) {
+            schedule(delayMillis);
+        }
+    }
+
+    /**
+     * @return the number of milliseconds to wait before running again if FlowFiles are still pending
+     */
+    private long sendPending() throws IOException {
+        final Set<String> fullQueues = new HashSet<>();
+        try (final Socket socket = SocketUtils.createSocket(address, socketConfiguration)) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            negotiateVersion(in, out);
+
+            final long sessionEnd = System.nanoTime() + MAX_SESSION_NANOS;
+            while (!removed && System.nanoTime() < sessionEnd) {
+                final Batch batch = nextBatch(fullQueues);
+                if (batch == null) {
+                    break;
+                }
+
+                final long startNanos = System.nanoTime();
+                final int outcome;
+                try {
+                    outcome = transfer(batch, in, out);
+                } catch (final IOException | RuntimeException e) {
+                    requeue(batch);
+                    throw e;
+                }
+
+                switch (outcome) {
+                    case LoadBalanceProtocol.CONFIRM_TRANSACTION:
+                        loadBalancer.transferComplete(nodeId, batch.queue, batch.flowFiles, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                        break;
+                    case LoadBalanceProtocol.QUEUE_FULL:
+                        logger.debug("{} is full on {}; will not send it more FlowFiles for {} millis", batch.queue, nodeId, QUEUE_FULL_BACKOFF_MILLIS);
+                        fullQueues.add(batch.queue.getIdentifier());
+                        requeue(batch);
+                        break;
+                    case LoadBalanceProtocol.CONNECTION_NOT_FOUND:
+                        logger.warn("{} does not have a Connection with ID {}; will keep {} FlowFiles on this node", nodeId, batch.queue.getIdentifier(), batch.flowFiles.size());
+                        loadBalancer.keepLocally(batch.queue, batch.flowFiles);
+                        break;
+                    default:
+                        requeue(batch);
+                        throw new IOException(nodeId + " rejected " + batch.flowFiles.size() + " FlowFiles for " + batch.queue + " because the checksum did not match");
+                }
+            }
+
+            out.write(LoadBalanceProtocol.END_OF_SESSION);
+            out.flush();
+        }
+
+        return fullQueues.isEmpty() ? 0L : QUEUE_FULL_BACKOFF_MILLIS;
+    }
+
+    private void negotiateVersion(final DataInputStream in, final DataOutputStream out) throws IOException {
+        out.writeInt(LoadBalanceProtocol.VERSION);
+        out.flush();
+
+        final int response = LoadBalanceProtocol.readResponse(in);
+        if (response == LoadBalanceProtocol.REQUEST_DIFFERENT_VERSION) {
+            throw new ProtocolException(nodeId + " does not support version " + LoadBalanceProtocol.VERSION + " of the Load Balance Protocol but only version " + in.readInt());
+        }
+        if (response != LoadBalanceProtocol.VERSION_ACCEPTED) {
+            throw new ProtocolException("Expected " + nodeId + " to accept the protocol version but received response " + response);
+        }
+    }
+
+    private int transfer(final Batch batch, final DataInputStream in, final DataOutputStream out) throws IOException {
+        out.write(LoadBalanceProtocol.TRANSACTION);
+        out.writeUTF(batch.queue.getIdentifier());
+        out.flush();
+
+        final int spaceResponse = LoadBalanceProtocol.readResponse(in);
+        if (spaceResponse == LoadBalanceProtocol.QUEUE_FULL || spaceResponse == LoadBalanceProtocol.CONNECTION_NOT_FOUND) {
+            return spaceResponse;
+        }
+        if (spaceResponse != LoadBalanceProtocol.SPACE_AVAILABLE) {
+            throw new ProtocolException("Expected " + nodeId + " to indicate whether " + batch.queue + " has space available but received response " + spaceResponse);
+        }
+
+        final CheckedOutputStream checkedOut = new CheckedOutputStream(out, new CRC32());
+        final DataOutputStream flowFileOut = new DataOutputStream(checkedOut);
+        for (final FlowFileRecord flowFile : batch.flowFiles) {
+            flowFileOut.write(LoadBalanceProtocol.MORE_FLOWFILES);
+
+            final Map<String, String> attributes = flowFile.getAttributes();
+            flowFileOut.writeInt(attributes.size());
+            for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+                LoadBalanceProtocol.writeString(entry.getKey(), flowFileOut);
+                LoadBalanceProtocol.writeString(entry.getValue(), flowFileOut);
+            }
+
+            flowFileOut.writeLong(flowFile.getLineageStartDate());
+            flowFileOut.writeLong(flowFile.getSize());
+            if (flowFile.getSize() > 0) {
+                final long bytesCopied = contentRepository.exportTo(flowFile.getContentClaim(), new NonCloseableOutputStream(flowFileOut),
+                    flowFile.getContentClaimOffset(), flowFile.getSize());
+                if (bytesCopied != flowFile.getSize()) {
+                    throw new EOFException("Expected to send " + flowFile.getSize() + " bytes of content for " + flowFile + " but its content has only " + bytesCopied);
+                }
+            }
+        }
+
+        flowFileOut.write(LoadBalanceProtocol.NO_MORE_FLOWFILES);
+        flowFileOut.flush();
+        out.writeLong(checkedOut.getChecksum().getValue());
+        out.flush();
+
+        final int transactionResponse = LoadBalanceProtocol.readResponse(in);
+        if (transactionResponse != LoadBalanceProtocol.CONFIRM_TRANSACTION && transactionResponse != LoadBalanceProtocol.REJECT_CHECKSUM) {
+            throw new ProtocolException("Expected " + nodeId + " to confirm the transaction for " + batch.queue + " but received response " + transactionResponse);
+        }
+        return transactionResponse;
+    }
+
+    private Batch nextBatch(final Set<String> fullQueues) {
+        // start with a different queue each time so that no connection is starved by another one
+        final List<PendingFlowFiles> candidates = new ArrayList<>(pending.values());
+        final int startIndex = batchCounter++;
+        for (int i = 0; i < candidates.size(); i++) {
+            final PendingFlowFiles pendingFlowFiles = candidates.get(Math.floorMod(startIndex + i, candidates.size()));
+            if (fullQueues.contains(pendingFlowFiles.queue.getIdentifier())) {
+                continue;
+            }
+
+            final List<FlowFileRecord> flowFiles = new ArrayList<>();
+            long bytes = 0L;
+            FlowFileRecord flowFile;
+            while (flowFiles.size() < MAX_FLOWFILES_PER_TRANSACTION && bytes < MAX_BYTES_PER_TRANSACTION && (flowFile = pendingFlowFiles.flowFiles.poll()) != null) {
+                flowFiles.add(flowFile);
+                bytes += flowFile.getSize();
+            }
+
+            if (!flowFiles.isEmpty()) {
+                return new Batch(pendingFlowFiles.queue, flowFiles);
+            }
+        }
+
+        return null;
+    }
+
+    private void requeue(final Batch batch) {
+        pending.computeIfAbsent(batch.queue.getIdentifier(), id -> new PendingFlowFiles(batch.queue)).flowFiles.addAll(batch.flowFiles);
+    }
+
+    @Override
+    public String toString() {
+        return "LoadBalanceClient[node=" + nodeId + ", address=" + address + "]";
+    }
+
+    private static class PendingFlowFiles {
+        private final FlowFileQueue queue;
+        private final Queue<FlowFileRecord> flowFiles = new ConcurrentLinkedQueue<>();
+
+        private PendingFlowFiles(final FlowFileQueue queue) {
+            this.queue = queue;
+        }
+    }
+
+    private static class Batch {
+        private final FlowFileQueue queue;
+        private final List<FlowFileRecord> flowFiles;
+
+        private Batch(final FlowFileQueue queue, final List<FlowFileRecord> flowFiles) {
+            this.queue = queue;
+            this.flowFiles = flowFiles;
+        }
+    }
+}
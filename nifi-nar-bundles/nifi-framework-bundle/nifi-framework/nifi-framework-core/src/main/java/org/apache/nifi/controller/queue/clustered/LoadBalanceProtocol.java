@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.queue.clustered;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.nifi.remote.exception.ProtocolException;
+import org.apache.nifi.stream.io.StreamUtils;
+
+/**
+ * <p>
+ * The protocol that nodes of a cluster use to transfer the FlowFiles of load-balanced connections to one another.
+ * </p>
+ *
+ * <p>
+ * The sending node opens a socket to the receiving node's load balance port and writes the version of the protocol that it
+ * wishes to use, as an int. The receiving node responds with {@value #VERSION_ACCEPTED}, or with
+ * {@value #REQUEST_DIFFERENT_VERSION} followed by the version that it prefers, as an int. The sending node then sends any number
+ * of transactions, each starting with {@value #TRANSACTION}, and finally {@value #END_OF_SESSION}, after which both sides close
+ * the socket.
+ * </p>
+ *
+ * <p>
+ * A transaction transfers FlowFiles of a single connection. It begins with the connection's identifier, as a modified UTF-8 string,
+ * to which the receiving node responds with {@value #SPACE_AVAILABLE}, {@value #QUEUE_FULL} or {@value #CONNECTION_NOT_FOUND}. Only
+ * if space is available does the sending node continue: for each FlowFile, it writes {@value #MORE_FLOWFILES}, the number of
+ * attributes as an int, each attribute's key and value as length-prefixed UTF-8 strings, the lineage start date as a long, and the
+ * length of the content as a long, followed by the content itself. After the last FlowFile, it writes {@value #NO_MORE_FLOWFILES}
+ * and the CRC32 checksum, as a long, of everything that it has written since the receiving node indicated that space is available.
+ * The receiving node responds with {@value #CONFIRM_TRANSACTION} once it has persisted and queued the FlowFiles, or with
+ * {@value #REJECT_CHECKSUM} if the checksum does not match, in which case it discards the FlowFiles. Only once the transaction is
+ * confirmed does the sending node remove the FlowFiles from its own repositories.
+ * </p>
+ */
+public final class LoadBalanceProtocol {
+
+    public static final int VERSION = 1;
+
+    public static final int VERSION_ACCEPTED = 0x10;
+    public static final int REQUEST_DIFFERENT_VERSION = 0x11;
+
+    public static final int TRANSACTION = 0x20;
+    public static final int END_OF_SESSION = 0x21;
+
+    public static final int SPACE_AVAILABLE = 0x30;
+    public static final int QUEUE_FULL = 0x31;
+    public static final int CONNECTION_NOT_FOUND = 0x32;
+
+    public static final int MORE_FLOWFILES = 0x40;
+    public static final int NO_MORE_FLOWFILES = 0x41;
+
+    public static final int CONFIRM_TRANSACTION = 0x50;
+    public static final int REJECT_CHECKSUM = 0x51;
+
+    public static final int MAX_NUM_ATTRIBUTES = 25000;
+
+    /**
+     * How long either side waits for the other before giving up on the session
+     */
+    public static final int SOCKET_TIMEOUT_MILLIS = 30000;
+
+    private LoadBalanceProtocol() {
+    }
+
+    static void writeString(final String value, final DataOutputStream out) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new ProtocolException("Received string with invalid length of " + length + " bytes");
+        }
+
+        final byte[] bytes = new byte[length];
+        StreamUtils.fillBuffer(in, bytes, true);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int readResponse(final DataInputStream in) throws IOException {
+        final int response = in.read();
+        if (response < 0) {
+            throw new ProtocolException("Remote instance closed the connection unexpectedly");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.queue.clustered;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.repository.ContentRepository;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.controller.repository.FlowFileRepository;
+import org.apache.nifi.controller.repository.RepositoryRecord;
+import org.apache.nifi.controller.repository.StandardFlowFileRecord;
+import org.apache.nifi.controller.repository.StandardRepositoryRecord;
+import org.apache.nifi.controller.repository.claim.ContentClaim;
+import org.apache.nifi.controller.repository.claim.ResourceClaim;
+import org.apache.nifi.io.socket.ServerSocketConfiguration;
+import org.apache.nifi.io.socket.SocketListener;
+import org.apache.nifi.provenance.ProvenanceEventBuilder;
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.apache.nifi.provenance.ProvenanceEventType;
+import org.apache.nifi.remote.exception.ProtocolException;
+import org.apache.nifi.stream.io.LimitingInputStream;
+import org.apache.nifi.stream.io.NonCloseableInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives the FlowFiles of load-balanced connections that other nodes of the cluster send to this node, using the
+ * {@link LoadBalanceProtocol}. Each session is served by one of a bounded number of threads; sessions that arrive while
+ * all threads are busy wait for one to become available.
+ */
+public class LoadBalanceServer extends SocketListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadBalanceServer.class);
+    private static final AtomicLong enqueuedIndex = new AtomicLong(0L);
+
+    private final Function<String, FlowFileQueue> queueLookup;
+    private final FlowFileRepository flowFileRepository;
+    private final ContentRepository contentRepository;
+    private final ProvenanceEventRepository provenanceRepository;
+
+    /**
+     * @param numThreads the maximum number of sessions to serve concurrently
+     * @param port the port to listen on, or 0 to listen on any available port
+     * @param configuration the configuration of the server socket
+     * @param queueLookup returns the queue of the connection with the given identifier, or <code>null</code> if there is no such connection
+     * @param flowFileRepository the repository that received FlowFiles are recorded in
+     * @param contentRepository the repository that the content of received FlowFiles is written to
+     * @param provenanceRepository the repository that RECEIVE events are registered with
+     */
+    public LoadBalanceServer(final int numThreads, final int port, final ServerSocketConfiguration configuration, final Function<String, FlowFileQueue> queueLookup,
+            final FlowFileRepository flowFileRepository, final ContentRepository contentRepository, final ProvenanceEventRepository provenanceRepository) {
+        super(numThreads, port, configuration);
+        this.queueLookup = queueLookup;
+        this.flowFileRepository = flowFileRepository;
+        this.contentRepository = contentRepository;
+        this.provenanceRepository = provenanceRepository;
+    }
+
+    @Override
+    public void dispatchRequest(final Socket socket) {
+        final String peerDescription = socket.getInetAddress().getHostName() + ":" + socket.getPort();
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            final int version = in.readInt();
+            if (version != LoadBalanceProtocol.VERSION) {
+                logger.debug("{} requested version {} of the Load Balance Protocol; requesting version {} instead", peerDescription, version, LoadBalanceProtocol.VERSION);
+                out.write(LoadBalanceProtocol.REQUEST_DIFFERENT_VERSION);
+                out.writeInt(LoadBalanceProtocol.VERSION);
+                out.flush();
+                return;
+            }
+
+            out.write(LoadBalanceProtocol.VERSION_ACCEPTED);
+            out.flush();
+
+            final String transitUriPrefix = "nifi://" + socket.getInetAddress().getHostName() + "/load-balance/";
+            while (true) {
+                final int request = in.read();
+                if (request == LoadBalanceProtocol.END_OF_SESSION) {
+                    return;
+                }
+                if (request != LoadBalanceProtocol.TRANSACTION) {
+                    throw new ProtocolException("Expected a transaction or the end of the session but received " + request);
+                }
+
+                receiveTransaction(in, out, peerDescription, transitUriPrefix);
+            }
+        } catch (final Exception e) {
+            logger.error("Failed to receive FlowFiles from {} due to {}", peerDescription, e.toString());
+            if (logger.isDebugEnabled()) {
+                logger.error("", e);
+            }
+        }
+    }
+
+    private void receiveTransaction(final DataInputStream in, final DataOutputStream out, final String peerDescription, final String transitUriPrefix) throws IOException {
+        final long startNanos = System.nanoTime();
+        final String connectionId = in.readUTF();
+        final FlowFileQueue queue = queueLookup.apply(connectionId);
+        if (queue == null) {
+            logger.warn("{} attempted to send FlowFiles to Connection {} but no such Connection exists", peerDescription, connectionId);
+            out.write(LoadBalanceProtocol.CONNECTION_NOT_FOUND);
+            out.flush();
+            return;
+        }
+        if (queue.isFull()) {
+            logger.debug("{} attempted to send FlowFiles to {} but the queue is full", peerDescription, queue);
+            out.write(LoadBalanceProtocol.QUEUE_FULL);
+            out.flush();
+            return;
+        }
+
+        out.write(LoadBalanceProtocol.SPACE_AVAILABLE);
+        out.flush();
+
+        final CheckedInputStream checkedIn = new CheckedInputStream(in, new CRC32());
+        final DataInputStream flowFileIn = new DataInputStream(checkedIn);
+        final List<FlowFileRecord> flowFiles = new ArrayList<>();
+        boolean persisted = false;
+        try {
+            while (true) {
+                final int indicator = flowFileIn.read();
+                if (indicator == LoadBalanceProtocol.NO_MORE_FLOWFILES) {
+                    break;
+                }
+                if (indicator != LoadBalanceProtocol.MORE_FLOWFILES) {
+                    throw new ProtocolException("Expected a FlowFile or the end of the transaction but received " + indicator);
+                }
+
+                flowFiles.add(receiveFlowFile(flowFileIn));
+            }
+
+            final long checksum = checkedIn.getChecksum().getValue();
+            final long expectedChecksum = in.readLong();
+            if (checksum != expectedChecksum) {
+                logger.error("Received {} FlowFiles from {} for {} but the checksum was {} instead of the expected {}; discarding FlowFiles",
+                    flowFiles.size(), peerDescription, queue, checksum, expectedChecksum);
+                out.write(LoadBalanceProtocol.REJECT_CHECKSUM);
+                out.flush();
+                return;
+            }
+
+            persist(flowFiles, queue, transitUriPrefix + connectionId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            persisted = true;
+        } finally {
+            if (!persisted) {
+                for (final FlowFileRecord flowFile : flowFiles) {
+                    if (flowFile.getContentClaim() != null) {
+                        contentRepository.decrementClaimantCount(flowFile.getContentClaim());
+                    }
+                }
+            }
+        }
+
+        queue.putAllLocally(flowFiles);
+        out.write(LoadBalanceProtocol.CONFIRM_TRANSACTION);
+        out.flush();
+        logger.debug("Received {} FlowFiles from {} for {}", flowFiles.size(), peerDescription, queue);
+    }
+
+    private FlowFileRecord receiveFlowFile(final DataInputStream in) throws IOException {
+        final int numAttributes = in.readInt();
+        if (numAttributes < 0 || numAttributes > LoadBalanceProtocol.MAX_NUM_ATTRIBUTES) {
+            throw new ProtocolException("FlowFile has an invalid number of attributes: " + numAttributes);
+        }
+
+        final Map<String, String> attributes = new HashMap<>(numAttributes);
+        for (int i = 0; i < numAttributes; i++) {
+            final String key = LoadBalanceProtocol.readString(in);
+            final String value = LoadBalanceProtocol.readString(in);
+            attributes.put(key, value);
+        }
+
+        final long lineageStartDate = in.readLong();
+        final long contentLength = in.readLong();
+        if (contentLength < 0) {
+            throw new ProtocolException("FlowFile has an invalid content length of " + contentLength + " bytes");
+        }
+
+        ContentClaim contentClaim = null;
+        if (contentLength > 0) {
+            contentClaim = contentRepository.create(false);
+            final long bytesImported;
+            try {
+                final InputStream contentIn = new LimitingInputStream(new NonCloseableInputStream(in), contentLength);
+                bytesImported = contentRepository.importFrom(contentIn, contentClaim);
+            } catch (final IOException e) {
+                contentRepository.decrementClaimantCount(contentClaim);
+                throw e;
+            }
+
+            if (bytesImported != contentLength) {
+                contentRepository.decrementClaimantCount(contentClaim);
+                throw new EOFException("Expected " + contentLength + " bytes of content but received only " + bytesImported);
+            }
+        }
+
+        final long now = System.currentTimeMillis();
+        return new StandardFlowFileRecord.Builder()
+            .id(flowFileRepository.getNextFlowFileSequence())
+            .addAttributes(attributes)
+            .entryDate(now)
+            .lineageStart(lineageStartDate, 0L)
+            .lastQueued(now, enqueuedIndex.getAndIncrement())
+            .contentClaim(contentClaim)
+            .contentClaimOffset(0L)
+            .size(contentLength)
+            .build();
+    }
+
+    private void persist(final List<FlowFileRecord> flowFiles, final FlowFileQueue queue, final String transitUri, final long transferMillis) throws IOException {
+        final List<RepositoryRecord> repositoryRecords = new ArrayList<>(flowFiles.size());
+        final List<ProvenanceEventRecord> provenanceEvents = new ArrayList<>(flowFiles.size());
+        for (final FlowFileRecord flowFile : flowFiles) {
+            final StandardRepositoryRecord record = new StandardRepositoryRecord(null);
+            record.setWorking(flowFile);
+            record.setDestination(queue);
+            repositoryRecords.add(record);
+
+            final ProvenanceEventBuilder builder = provenanceRepository.eventBuilder();
+            builder.fromFlowFile(flowFile);
+            builder.setEventType(ProvenanceEventType.RECEIVE);
+            builder.setComponentId(queue.getIdentifier());
+            builder.setComponentType("Connection");
+            builder.setTransitUri(transitUri);
+            builder.setEventDuration(transferMillis);
+            builder.setAttributes(Collections.emptyMap(), flowFile.getAttributes());
+            final ContentClaim contentClaim = flowFile.getContentClaim();
+            if (contentClaim != null) {
+                final ResourceClaim resourceClaim = contentClaim.getResourceClaim();
+                builder.setCurrentContentClaim(resourceClaim.getContainer(), resourceClaim.getSection(), resourceClaim.getId(), contentClaim.getOffset(), flowFile.getSize());
+            }
+            provenanceEvents.add(builder.build());
+        }
+
+        flowFileRepository.updateRepository(repositoryRecords);
+        provenanceRepository.registerEvents(provenanceEvents);
+    }
+}
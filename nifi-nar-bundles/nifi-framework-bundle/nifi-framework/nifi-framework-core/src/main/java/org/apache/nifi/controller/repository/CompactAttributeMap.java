@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.repository;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * An immutable, compact Map of FlowFile attributes. Rather than holding a hash
+ * table of entries, the keys are held in a sorted array and the values in a
+ * parallel array. The key arrays are interned as "shapes", so all FlowFiles
+ * that have the same set of attribute keys share a single key array, and the
+ * keys themselves are interned so that keys deserialized from the repositories
+ * or swap files do not each hold their own copy of the String.
+ * </p>
+ *
+ * <p>
+ * Updates are applied by merging a set of changes into an existing map,
+ * producing a new map and leaving the original untouched. This allows a
+ * FlowFile whose attributes were not changed to share its parent's map
+ * entirely.
+ * </p>
+ *
+ * <b>Immutable - Thread Safe</b>
+ */
+final class CompactAttributeMap extends AbstractMap<String, String> {
+
+    // Bounds for the interning caches, so that flows creating unique attribute names (such as those
+    // that include a timestamp or counter in the name) cannot grow them without limit.
+    private static final int MAX_INTERNED_KEYS = 10000;
+    private static final int MAX_INTERNED_SHAPES = 10000;
+
+    private static final ConcurrentMap<String, String> internedKeys = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Shape, String[]> internedShapes = new ConcurrentHashMap<>();
+
+    static final CompactAttributeMap EMPTY = new CompactAttributeMap(new String[0], new String[0]);
+
+    private final String[] keys;
+    private final String[] values;
+    private Set<Map.Entry<String, String>> entrySet;
+
+    private CompactAttributeMap(final String[] keys, final String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Creates a map that contains the entries of the given map. Entries with a
+     * <code>null</code> key or value are ignored.
+     *
+     * @param attributes the attributes to copy
+     * @return a compact map containing the given attributes
+     */
+    static CompactAttributeMap of(final Map<String, String> attributes) {
+        if (attributes instanceof CompactAttributeMap) {
+            return (CompactAttributeMap) attributes;
+        }
+
+        return EMPTY.update(attributes);
+    }
+
+    /**
+     * Returns a map that contains the entries of this map, updated with the
+     * given changes. A change whose value is <code>null</code> removes the key.
+     *
+     * @param changes the attributes to add, replace, or remove
+     * @return the updated map, which may be this map if nothing changed
+     */
+    CompactAttributeMap update(final Map<String, String> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return this;
+        }
+
+        int changeCount = 0;
+        final String[] changedKeys = new String[changes.size()];
+        for (final String key : changes.keySet()) {
+            if (key != null) {
+                changedKeys[changeCount++] = key;
+            }
+        }
+        Arrays.sort(changedKeys, 0, changeCount);
+
+        // Merge the two sorted key arrays.
+        final String[] mergedKeys = new String[keys.length + changeCount];
+        final String[] mergedValues = new String[keys.length + changeCount];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        boolean modified = false;
+        while (i < keys.length || j < changeCount) {
+            final int comparison;
+            if (i >= keys.length) {
+                comparison = 1;
+            } else if (j >= changeCount) {
+                comparison = -1;
+            } else {
+                comparison = keys[i].compareTo(changedKeys[j]);
+            }
+
+            if (comparison < 0) {
+                mergedKeys[size] = keys[i];
+                mergedValues[size++] = values[i++];
+                continue;
+            }
+
+            final String changedKey = changedKeys[j++];
+            final String changedValue = changes.get(changedKey);
+            if (comparison == 0) {
+                final String existingValue = values[i];
+                if (changedValue == null) {
+                    modified = true;
+                } else {
+                    mergedKeys[size] = keys[i];
+                    mergedValues[size++] = changedValue;
+                    modified |= !changedValue.equals(existingValue);
+                }
+                i++;
+            } else if (changedValue != null) {
+                mergedKeys[size] = changedKey;
+                mergedValues[size++] = changedValue;
+                modified = true;
+            }
+        }
+
+        if (!modified) {
+            return this;
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        // Keys that were already present are copied by reference, so an identity check is enough to
+        // determine whether or not the set of keys changed.
+        boolean sameShape = size == keys.length;
+        for (int k = 0; sameShape && k < size; k++) {
+            sameShape = keys[k] == mergedKeys[k];
+        }
+
+        final String[] shape = sameShape ? keys : internShape(Arrays.copyOf(mergedKeys, size));
+        final String[] newValues = size == mergedValues.length ? mergedValues : Arrays.copyOf(mergedValues, size);
+        return new CompactAttributeMap(shape, newValues);
+    }
+
+    private static String[] internShape(final String[] keys) {
+        final Shape shape = new Shape(keys);
+        final String[] existing = internedShapes.get(shape);
+        if (existing != null) {
+            return existing;
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = internKey(keys[i]);
+        }
+
+        if (internedShapes.size() >= MAX_INTERNED_SHAPES) {
+            return keys;
+        }
+
+        final String[] raced = internedShapes.putIfAbsent(shape, keys);
+        return raced == null ? keys : raced;
+    }
+
+    private static String internKey(final String key) {
+        final String existing = internedKeys.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (internedKeys.size() >= MAX_INTERNED_KEYS) {
+            return key;
+        }
+
+        final String raced = internedKeys.putIfAbsent(key, key);
+        return raced == null ? key : raced;
+    }
+
+    private int indexOf(final Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+
+        return Arrays.binarySearch(keys, key);
+    }
+
+    @Override
+    public String get(final Object key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        Set<Map.Entry<String, String>> set = entrySet;
+        if (set == null) {
+            set = new EntrySet();
+            entrySet = set;
+        }
+        return set;
+    }
+
+    /**
+     * @return the array of keys, sorted in their natural order. Exposed only so
+     *         that tests can verify that shapes are shared.
+     */
+    String[] getShape() {
+        return keys;
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            return new Iterator<Map.Entry<String, String>>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < keys.length;
+                }
+
+                @Override
+                public Map.Entry<String, String> next() {
+                    if (index >= keys.length) {
+                        throw new NoSuchElementException();
+                    }
+
+                    final Map.Entry<String, String> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+                    index++;
+                    return entry;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+    }
+
+    private static class Shape {
+        private final String[] keys;
+        private final int hashCode;
+
+        public Shape(final String[] keys) {
+            this.keys = keys;
+            this.hashCode = Arrays.hashCode(keys);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Shape)) {
+                return false;
+            }
+            return Arrays.equals(keys, ((Shape) obj).keys);
+        }
+    }
+}
@@ -17,12 +17,16 @@
 package org.apache.nifi.controller.repository;
 
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
@@ -64,7 +68,9 @@ import org.apache.nifi.controller.repository.claim.ContentClaim;
 import org.apache.nifi.controller.repository.claim.ResourceClaim;
 import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
 import org.apache.nifi.controller.repository.claim.StandardContentClaim;
+import org.apache.nifi.controller.repository.io.ByteBufferInputStream;
 import org.apache.nifi.controller.repository.io.LimitedInputStream;
+import org.apache.nifi.controller.repository.io.MappedResourceClaimCache;
 import org.apache.nifi.engine.FlowEngine;
 import org.apache.nifi.stream.io.ByteCountingOutputStream;
 import org.apache.nifi.stream.io.StreamUtils;
@@ -116,9 +122,12 @@ public class FileSystemRepository implements ContentRepository {
     private final long maxArchiveMillis;
     private final Map<String, Long> minUsableContainerBytesForArchive = new HashMap<>();
     private final boolean alwaysSync;
+    private final boolean memoryMappedReads;
+    private final int maxMappedClaims;
     private final ScheduledExecutorService containerCleanupExecutor;
 
     private ResourceClaimManager resourceClaimManager; // effectively final
+    private MappedResourceClaimCache mappedClaimCache; // effectively final; null unless memory-mapped reads are enabled
 
     // Map of container to archived files that should be deleted next.
     private final Map<String, BlockingQueue<ArchiveInfo>> archivedFiles = new HashMap<>();
@@ -138,6 +147,8 @@ public class FileSystemRepository implements ContentRepository {
         archiveData = false;
         maxArchiveMillis = 0;
         alwaysSync = false;
+        memoryMappedReads = false;
+        maxMappedClaims = 0;
         containerCleanupExecutor = null;
         nifiProperties = null;
     }
@@ -223,6 +234,11 @@ public class FileSystemRepository implements ContentRepository {
 
         this.alwaysSync = Boolean.parseBoolean(nifiProperties.getProperty("nifi.content.repository.always.sync"));
         LOG.info("Initializing FileSystemRepository with 'Always Sync' set to {}", alwaysSync);
+        this.memoryMappedReads = nifiProperties.isContentRepositoryMemoryMappedReads();
+        this.maxMappedClaims = nifiProperties.getContentRepositoryMaxMappedClaims();
+        if (memoryMappedReads) {
+            LOG.info("FileSystemRepository will read content through memory-mapped files, caching the mappings of up to {} Resource Claims", maxMappedClaims);
+        }
         initializeRepository();
 
         containerCleanupExecutor = new FlowEngine(containers.size(), "Cleanup FileSystemRepository Container", true);
@@ -231,6 +247,9 @@ public class FileSystemRepository implements ContentRepository {
     @Override
     public void initialize(final ResourceClaimManager claimManager) {
         this.resourceClaimManager = claimManager;
+        if (memoryMappedReads) {
+            this.mappedClaimCache = new MappedResourceClaimCache(claimManager, maxMappedClaims);
+        }
 
         final Map<String, Path> fileRespositoryPaths = nifiProperties.getContentRepositoryPaths();
 
@@ -267,6 +286,10 @@ public class FileSystemRepository implements ContentRepository {
             } catch (final IOException ioe) {
             }
         }
+
+        if (mappedClaimCache != null) {
+            mappedClaimCache.clear();
+        }
     }
 
     private static double getRatio(final String value) {
@@ -619,8 +642,11 @@ public class FileSystemRepository implements ContentRepository {
         } catch (final ContentNotFoundException cnfe) {
         }
 
-        // Ensure that we have no writable claim streams for this resource claim
+        // Ensure that we have no writable claim streams or cached mappings for this resource claim
         final ByteCountingOutputStream bcos = writableClaimStreams.remove(claim);
+        if (mappedClaimCache != null) {
+            mappedClaimCache.evict(claim);
+        }
 
         if (bcos != null) {
             try {
@@ -663,27 +689,30 @@ public class FileSystemRepository implements ContentRepository {
             throw new IllegalArgumentException("destination cannot be within claims");
         }
 
-        try (final ByteCountingOutputStream out = new ByteCountingOutputStream(write(destination))) {
+        // the content of each claim is transferred directly between the files by exportTo, rather than copied through a buffer
+        try (final OutputStream out = write(destination)) {
+            long bytesWritten = 0L;
             if (header != null) {
                 out.write(header);
+                bytesWritten += header.length;
             }
 
             int i = 0;
             for (final ContentClaim claim : claims) {
-                try (final InputStream in = read(claim)) {
-                    StreamUtils.copy(in, out);
-                }
+                bytesWritten += exportTo(claim, out);
 
                 if (++i < claims.size() && demarcator != null) {
                     out.write(demarcator);
+                    bytesWritten += demarcator.length;
                 }
             }
 
             if (footer != null) {
                 out.write(footer);
+                bytesWritten += footer.length;
             }
 
-            return out.getBytesWritten();
+            return bytesWritten;
         }
     }
 
@@ -711,6 +740,16 @@ public class FileSystemRepository implements ContentRepository {
             return 0L;
         }
 
+        if (isZeroCopyExport(claim)) {
+            try (final FileOutputStream fos = new FileOutputStream(destination.toFile(), append)) {
+                final long copied = transferTo(claim, 0L, claim.getLength(), fos.getChannel());
+                if (alwaysSync) {
+                    fos.getFD().sync();
+                }
+                return copied;
+            }
+        }
+
         try (final InputStream in = read(claim);
                 final FileOutputStream fos = new FileOutputStream(destination.toFile(), append)) {
             final long copied = StreamUtils.copy(in, fos);
@@ -740,6 +779,19 @@ public class FileSystemRepository implements ContentRepository {
 
         }
 
+        if (isZeroCopyExport(claim)) {
+            try (final FileOutputStream fos = new FileOutputStream(destination.toFile(), append)) {
+                final long copied = transferTo(claim, offset, Math.min(length, claimSize - offset), fos.getChannel());
+                if (copied < length) {
+                    throw new EOFException("Attempted to copy " + length + " bytes but only " + copied + " bytes were available");
+                }
+                if (alwaysSync) {
+                    fos.getFD().sync();
+                }
+                return copied;
+            }
+        }
+
         try (final InputStream in = read(claim);
                 final FileOutputStream fos = new FileOutputStream(destination.toFile(), append)) {
             if (offset > 0) {
@@ -759,6 +811,13 @@ public class FileSystemRepository implements ContentRepository {
             return 0L;
         }
 
+        if (destination instanceof ContentClaimOutputStream && claim.getLength() >= 0) {
+            return ((ContentClaimOutputStream) destination).transferFrom(claim, 0L, claim.getLength());
+        }
+        if (destination instanceof FileOutputStream && isZeroCopyExport(claim)) {
+            return transferTo(claim, 0L, claim.getLength(), ((FileOutputStream) destination).getChannel());
+        }
+
         try (final InputStream in = read(claim)) {
             return StreamUtils.copy(in, destination);
         }
@@ -776,6 +835,12 @@ public class FileSystemRepository implements ContentRepository {
         if (offset == 0 && length == claimSize) {
             return exportTo(claim, destination);
         }
+        if (destination instanceof ContentClaimOutputStream && claim.getLength() >= 0) {
+            return ((ContentClaimOutputStream) destination).transferFrom(claim, offset, Math.min(length, claimSize - offset));
+        }
+        if (destination instanceof FileOutputStream && isZeroCopyExport(claim)) {
+            return transferTo(claim, offset, Math.min(length, claimSize - offset), ((FileOutputStream) destination).getChannel());
+        }
         try (final InputStream in = read(claim)) {
             StreamUtils.skip(in, offset);
             final byte[] buffer = new byte[8192];
@@ -803,12 +868,62 @@ public class FileSystemRepository implements ContentRepository {
         return claim.getLength();
     }
 
+    /**
+     * @param claim the claim to export
+     * @return <code>true</code> if the content of the given claim can be
+     *         exported by transferring bytes directly from the file that backs the
+     *         claim, rather than copying them through an InputStream
+     */
+    private boolean isZeroCopyExport(final ContentClaim claim) {
+        // see javadocs for claim.getLength() as to why we need to check the length.
+        return memoryMappedReads && claim.getLength() >= 0;
+    }
+
+    /**
+     * Transfers the given range of the claim's content to the given channel,
+     * allowing the operating system to copy the bytes without moving them
+     * through the JVM heap where possible
+     *
+     * @param claim the claim to transfer
+     * @param offset the offset into the claim's content at which to begin
+     * @param length the number of bytes to transfer
+     * @param destination the channel to transfer to
+     * @return the number of bytes transferred
+     * @throws IOException if unable to read from the claim or write to the destination
+     */
+    private long transferTo(final ContentClaim claim, final long offset, final long length, final WritableByteChannel destination) throws IOException {
+        final Path path = getPath(claim, true);
+        try (final FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long startPosition = claim.getOffset() + offset;
+            long transferred = 0L;
+            while (transferred < length) {
+                final long count = source.transferTo(startPosition + transferred, length - transferred, destination);
+                if (count <= 0) {
+                    // the file is shorter than the claim indicates; this is handled the same as a short read of the stream.
+                    break;
+                }
+                transferred += count;
+            }
+
+            return transferred;
+        }
+    }
+
     @Override
     public InputStream read(final ContentClaim claim) throws IOException {
         if (claim == null) {
             return new ByteArrayInputStream(new byte[0]);
         }
         final Path path = getPath(claim, true);
+
+        // see javadocs for claim.getLength() as to why we need to check the length.
+        if (mappedClaimCache != null && claim.getLength() >= 0) {
+            final ByteBuffer buffer = mappedClaimCache.getBuffer(claim.getResourceClaim(), path, claim.getOffset(), claim.getLength());
+            if (buffer != null) {
+                return new ByteBufferInputStream(buffer);
+            }
+        }
+
         final FileInputStream fis = new FileInputStream(path.toFile());
         if (claim.getOffset() > 0L) {
             try {
@@ -852,138 +967,7 @@ public class FileSystemRepository implements ContentRepository {
         ByteCountingOutputStream claimStream = writableClaimStreams.get(scc.getResourceClaim());
         final int initialLength = append ? (int) Math.max(0, scc.getLength()) : 0;
 
-        final ByteCountingOutputStream bcos = claimStream;
-        final OutputStream out = new OutputStream() {
-            private long bytesWritten = 0L;
-            private boolean recycle = true;
-            private boolean closed = false;
-
-            @Override
-            public String toString() {
-                return "FileSystemRepository Stream [" + scc + "]";
-            }
-
-            @Override
-            public synchronized void write(final int b) throws IOException {
-                if (closed) {
-                    throw new IOException("Stream is closed");
-                }
-
-                try {
-                    bcos.write(b);
-                } catch (final IOException ioe) {
-                    recycle = false;
-                    throw new IOException("Failed to write to " + this, ioe);
-                }
-
-                bytesWritten++;
-                scc.setLength(bytesWritten + initialLength);
-            }
-
-            @Override
-            public synchronized void write(final byte[] b) throws IOException {
-                if (closed) {
-                    throw new IOException("Stream is closed");
-                }
-
-                try {
-                    bcos.write(b);
-                } catch (final IOException ioe) {
-                    recycle = false;
-                    throw new IOException("Failed to write to " + this, ioe);
-                }
-
-                bytesWritten += b.length;
-                scc.setLength(bytesWritten + initialLength);
-            }
-
-            @Override
-            public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
-                if (closed) {
-                    throw new IOException("Stream is closed");
-                }
-
-                try {
-                    bcos.write(b, off, len);
-                } catch (final IOException ioe) {
-                    recycle = false;
-                    throw new IOException("Failed to write to " + this, ioe);
-                }
-
-                bytesWritten += len;
-                scc.setLength(bytesWritten + initialLength);
-            }
-
-            @Override
-            public synchronized void flush() throws IOException {
-                if (closed) {
-                    throw new IOException("Stream is closed");
-                }
-
-                bcos.flush();
-            }
-
-            @Override
-            public synchronized void close() throws IOException {
-                closed = true;
-
-                if (alwaysSync) {
-                    ((FileOutputStream) bcos.getWrappedStream()).getFD().sync();
-                }
-
-                if (scc.getLength() < 0) {
-                    // If claim was not written to, set length to 0
-                    scc.setLength(0L);
-                }
-
-                // if we've not yet hit the threshold for appending to a resource claim, add the claim
-                // to the writableClaimQueue so that the Resource Claim can be used again when create()
-                // is called. In this case, we don't have to actually close the file stream. Instead, we
-                // can just add it onto the queue and continue to use it for the next content claim.
-                final long resourceClaimLength = scc.getOffset() + scc.getLength();
-                if (recycle && resourceClaimLength < MAX_APPENDABLE_CLAIM_LENGTH) {
-                    final ClaimLengthPair pair = new ClaimLengthPair(scc.getResourceClaim(), resourceClaimLength);
-
-                    // We are checking that writableClaimStreams contains the resource claim as a key, as a sanity check.
-                    // It should always be there. However, we have encountered a bug before where we archived content before
-                    // we should have. As a result, the Resource Claim and the associated OutputStream were removed from the
-                    // writableClaimStreams map, and this caused a NullPointerException. Worse, the call here to
-                    // writableClaimQueue.offer() means that the ResourceClaim was then reused, which resulted in an endless
-                    // loop of NullPointerException's being thrown. As a result, we simply ensure that the Resource Claim does
-                    // in fact have an OutputStream associated with it before adding it back to the writableClaimQueue.
-                    final boolean enqueued = writableClaimStreams.get(scc.getResourceClaim()) != null && writableClaimQueue.offer(pair);
-
-                    if (enqueued) {
-                        LOG.debug("Claim length less than max; Adding {} back to Writable Claim Queue", this);
-                    } else {
-                        writableClaimStreams.remove(scc.getResourceClaim());
-                        resourceClaimManager.freeze(scc.getResourceClaim());
-
-                        bcos.close();
-
-                        LOG.debug("Claim length less than max; Closing {} because could not add back to queue", this);
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("Stack trace: ", new RuntimeException("Stack Trace for closing " + this));
-                        }
-                    }
-                } else {
-                    // we've reached the limit for this claim. Don't add it back to our queue.
-                    // Instead, just remove it and move on.
-
-                    // Mark the claim as no longer being able to be written to
-                    resourceClaimManager.freeze(scc.getResourceClaim());
-
-                    // ensure that the claim is no longer on the queue
-                    writableClaimQueue.remove(new ClaimLengthPair(scc.getResourceClaim(), resourceClaimLength));
-
-                    bcos.close();
-                    LOG.debug("Claim lenth >= max; Closing {}", this);
-                    if (LOG.isTraceEnabled()) {
-                        LOG.trace("Stack trace: ", new RuntimeException("Stack Trace for closing " + this));
-                    }
-                }
-            }
-        };
+        final OutputStream out = new ContentClaimOutputStream(scc, claimStream, initialLength);
 
         LOG.debug("Writing to {}", out);
         if (LOG.isTraceEnabled()) {
@@ -1122,6 +1106,10 @@ public class FileSystemRepository implements ContentRepository {
             }
         }
 
+        if (mappedClaimCache != null) {
+            mappedClaimCache.evict(claim);
+        }
+
         final Path curPath = getPath(claim);
         if (curPath == null) {
             return false;
@@ -1136,6 +1124,11 @@ public class FileSystemRepository implements ContentRepository {
         return writableClaimStreams.size();
     }
 
+    // visible for testing
+    int getMappedClaimCount() {
+        return mappedClaimCache == null ? 0 : mappedClaimCache.size();
+    }
+
     // marked protected for visibility and ability to override for unit tests.
     protected boolean archive(final Path curPath) throws IOException {
         // check if already archived
@@ -1661,6 +1654,181 @@ public class FileSystemRepository implements ContentRepository {
         }
     }
 
+    /**
+     * The OutputStream that is returned by {@link FileSystemRepository#write(ContentClaim)}. Content is appended to
+     * the file of the claim's Resource Claim, and the claim's length is updated as it is written. The stream may be
+     * closed without closing the file, so that the Resource Claim can be used by the next claim that is created.
+     */
+    private class ContentClaimOutputStream extends OutputStream {
+        private final StandardContentClaim scc;
+        private final ByteCountingOutputStream bcos;
+        private final long initialLength;
+        private long bytesWritten = 0L;
+        private boolean recycle = true;
+        private boolean closed = false;
+
+        ContentClaimOutputStream(final StandardContentClaim scc, final ByteCountingOutputStream bcos, final long initialLength) {
+            this.scc = scc;
+            this.bcos = bcos;
+            this.initialLength = initialLength;
+        }
+
+        @Override
+        public String toString() {
+            return "FileSystemRepository Stream [" + scc + "]";
+        }
+
+        @Override
+        public synchronized void write(final int b) throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+
+            try {
+                bcos.write(b);
+            } catch (final IOException ioe) {
+                recycle = false;
+                throw new IOException("Failed to write to " + this, ioe);
+            }
+
+            bytesWritten++;
+            scc.setLength(bytesWritten + initialLength);
+        }
+
+        @Override
+        public synchronized void write(final byte[] b) throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+
+            try {
+                bcos.write(b);
+            } catch (final IOException ioe) {
+                recycle = false;
+                throw new IOException("Failed to write to " + this, ioe);
+            }
+
+            bytesWritten += b.length;
+            scc.setLength(bytesWritten + initialLength);
+        }
+
+        @Override
+        public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+
+            try {
+                bcos.write(b, off, len);
+            } catch (final IOException ioe) {
+                recycle = false;
+                throw new IOException("Failed to write to " + this, ioe);
+            }
+
+            bytesWritten += len;
+            scc.setLength(bytesWritten + initialLength);
+        }
+
+        /**
+         * Appends the given range of another claim's content by transferring it directly from the file that
+         * backs that claim to the file of this one, so that the bytes are not copied through the JVM heap
+         *
+         * @param source the claim whose content is to be appended; its length must be known
+         * @param offset the offset into the source claim's content at which to begin
+         * @param length the number of bytes to append
+         * @return the number of bytes appended
+         * @throws IOException if unable to read from the source claim or write to this one
+         */
+        synchronized long transferFrom(final ContentClaim source, final long offset, final long length) throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+
+            final long transferred;
+            try {
+                bcos.flush();
+                transferred = transferTo(source, offset, length, ((FileOutputStream) bcos.getWrappedStream()).getChannel());
+            } catch (final IOException ioe) {
+                recycle = false;
+                throw new IOException("Failed to write to " + this, ioe);
+            }
+
+            bytesWritten += transferred;
+            scc.setLength(bytesWritten + initialLength);
+            return transferred;
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (closed) {
+                throw new IOException("Stream is closed");
+            }
+
+            bcos.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+
+            if (alwaysSync) {
+                ((FileOutputStream) bcos.getWrappedStream()).getFD().sync();
+            }
+
+            if (scc.getLength() < 0) {
+                // If claim was not written to, set length to 0
+                scc.setLength(0L);
+            }
+
+            // if we've not yet hit the threshold for appending to a resource claim, add the claim
+            // to the writableClaimQueue so that the Resource Claim can be used again when create()
+            // is called. In this case, we don't have to actually close the file stream. Instead, we
+            // can just add it onto the queue and continue to use it for the next content claim.
+            final long resourceClaimLength = scc.getOffset() + scc.getLength();
+            if (recycle && resourceClaimLength < MAX_APPENDABLE_CLAIM_LENGTH) {
+                final ClaimLengthPair pair = new ClaimLengthPair(scc.getResourceClaim(), resourceClaimLength);
+
+                // We are checking that writableClaimStreams contains the resource claim as a key, as a sanity check.
+                // It should always be there. However, we have encountered a bug before where we archived content before
+                // we should have. As a result, the Resource Claim and the associated OutputStream were removed from the
+                // writableClaimStreams map, and this caused a NullPointerException. Worse, the call here to
+                // writableClaimQueue.offer() means that the ResourceClaim was then reused, which resulted in an endless
+                // loop of NullPointerException's being thrown. As a result, we simply ensure that the Resource Claim does
+                // in fact have an OutputStream associated with it before adding it back to the writableClaimQueue.
+                final boolean enqueued = writableClaimStreams.get(scc.getResourceClaim()) != null && writableClaimQueue.offer(pair);
+
+                if (enqueued) {
+                    LOG.debug("Claim length less than max; Adding {} back to Writable Claim Queue", this);
+                } else {
+                    writableClaimStreams.remove(scc.getResourceClaim());
+                    resourceClaimManager.freeze(scc.getResourceClaim());
+
+                    bcos.close();
+
+                    LOG.debug("Claim length less than max; Closing {} because could not add back to queue", this);
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("Stack trace: ", new RuntimeException("Stack Trace for closing " + this));
+                    }
+                }
+            } else {
+                // we've reached the limit for this claim. Don't add it back to our queue.
+                // Instead, just remove it and move on.
+
+                // Mark the claim as no longer being able to be written to
+                resourceClaimManager.freeze(scc.getResourceClaim());
+
+                // ensure that the claim is no longer on the queue
+                writableClaimQueue.remove(new ClaimLengthPair(scc.getResourceClaim(), resourceClaimLength));
+
+                bcos.close();
+                LOG.debug("Claim lenth >= max; Closing {}", this);
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("Stack trace: ", new RuntimeException("Stack Trace for closing " + this));
+                }
+            }
+        }
+    }
+
     private static class ClaimLengthPair {
 
         private final ResourceClaim claim;
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.repository;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A FlowFileEventRepository that keeps a ring of per-second bins for each component, as the
+ * {@link RingBufferEventRepository} does, but accumulates each bin in {@link LongAdder}s rather than
+ * publishing a new immutable sum for every event. Updating the repository therefore allocates nothing,
+ * and many tasks of the same component updating it at once contend on striped cells instead of
+ * retrying a compare-and-set of the whole sum.
+ */
+public class LongAdderEventRepository implements FlowFileEventRepository {
+
+    private final int numMinutes;
+    private final ConcurrentMap<String, EventContainer> componentEventMap = new ConcurrentHashMap<>();
+
+    public LongAdderEventRepository(final int numMinutes) {
+        this.numMinutes = numMinutes;
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    @Override
+    public void updateRepository(final FlowFileEvent event) {
+        final String componentId = event.getComponentIdentifier();
+        EventContainer eventContainer = componentEventMap.get(componentId);
+        if (eventContainer == null) {
+            eventContainer = new SecondPrecisionEventContainer(numMinutes);
+            final EventContainer oldEventContainer = componentEventMap.putIfAbsent(componentId, eventContainer);
+            if (oldEventContainer != null) {
+                eventContainer = oldEventContainer;
+            }
+        }
+
+        eventContainer.addEvent(event);
+    }
+
+    @Override
+    public StandardRepositoryStatusReport reportTransferEvents(final long sinceEpochMillis) {
+        final StandardRepositoryStatusReport report = new StandardRepositoryStatusReport();
+
+        for (final Map.Entry<String, EventContainer> entry : componentEventMap.entrySet()) {
+            final String consumerId = entry.getKey();
+            final EventContainer container = entry.getValue();
+
+            final FlowFileEvent reportEntry = container.generateReport(consumerId, sinceEpochMillis);
+            report.addReportEntry(reportEntry);
+        }
+
+        return report;
+    }
+
+    @Override
+    public void purgeTransferEvents(final long cutoffEpochMilliseconds) {
+        for (final EventContainer container : componentEventMap.values()) {
+            container.purgeEvents(cutoffEpochMilliseconds);
+        }
+    }
+
+    private static interface EventContainer {
+
+        public void addEvent(FlowFileEvent event);
+
+        public void purgeEvents(long cutoffEpochMillis);
+
+        public FlowFileEvent generateReport(String consumerId, long sinceEpochMillis);
+    }
+
+    /**
+     * The sums of all events that occurred during one second. The bin is reused for a later second once
+     * the ring wraps around; the first thread to update it for the new second claims it by setting its
+     * second to {@link #RESETTING} and clears the counters while any other updater waits.
+     */
+    private static class EventSumBin {
+
+        private static final long RESETTING = -1L;
+        private static final long UNUSED = -2L;
+
+        private final AtomicLong second = new AtomicLong(UNUSED);
+
+        private final LongAdder flowFilesIn = new LongAdder();
+        private final LongAdder flowFilesOut = new LongAdder();
+        private final LongAdder flowFilesRemoved = new LongAdder();
+        private final LongAdder contentSizeIn = new LongAdder();
+        private final LongAdder contentSizeOut = new LongAdder();
+        private final LongAdder contentSizeRemoved = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final LongAdder flowFilesReceived = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder flowFilesSent = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder processingNanos = new LongAdder();
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder aggregateLineageMillis = new LongAdder();
+
+        public void add(final long eventSecond, final FlowFileEvent event) {
+            long binSecond = second.get();
+            while (binSecond != eventSecond) {
+                if (binSecond == RESETTING) {
+                    Thread.yield();
+                } else if (binSecond > eventSecond) {
+                    // the bin has already moved on to a later second; the event is too old to be counted
+                    return;
+                } else if (second.compareAndSet(binSecond, RESETTING)) {
+                    reset();
+                    second.set(eventSecond);
+                }
+
+                binSecond = second.get();
+            }
+
+            flowFilesIn.add(event.getFlowFilesIn());
+            flowFilesOut.add(event.getFlowFilesOut());
+            flowFilesRemoved.add(event.getFlowFilesRemoved());
+            contentSizeIn.add(event.getContentSizeIn());
+            contentSizeOut.add(event.getContentSizeOut());
+            contentSizeRemoved.add(event.getContentSizeRemoved());
+            bytesRead.add(event.getBytesRead());
+            bytesWritten.add(event.getBytesWritten());
+            flowFilesReceived.add(event.getFlowFilesReceived());
+            bytesReceived.add(event.getBytesReceived());
+            flowFilesSent.add(event.getFlowFilesSent());
+            bytesSent.add(event.getBytesSent());
+            processingNanos.add(event.getProcessingNanoseconds());
+            invocations.add(event.getInvocations());
+            aggregateLineageMillis.add(event.getAggregateLineageMillis());
+        }
+
+        private void reset() {
+            flowFilesIn.reset();
+            flowFilesOut.reset();
+            flowFilesRemoved.reset();
+            contentSizeIn.reset();
+            contentSizeOut.reset();
+            contentSizeRemoved.reset();
+            bytesRead.reset();
+            bytesWritten.reset();
+            flowFilesReceived.reset();
+            bytesReceived.reset();
+            flowFilesSent.reset();
+            bytesSent.reset();
+            processingNanos.reset();
+            invocations.reset();
+            aggregateLineageMillis.reset();
+        }
+
+        public long getSecond() {
+            return second.get();
+        }
+    }
+
+    private static class SecondPrecisionEventContainer implements EventContainer {
+
+        private final int numBins;
+        private final EventSumBin[] bins;
+
+        public SecondPrecisionEventContainer(final int numMinutes) {
+            numBins = 1 + numMinutes * 60;
+            bins = new EventSumBin[numBins];
+
+            for (int i = 0; i < numBins; i++) {
+                bins[i] = new EventSumBin();
+            }
+        }
+
+        @Override
+        public void addEvent(final FlowFileEvent event) {
+            final long second = System.currentTimeMillis() / 1000;
+            final int binIdx = (int) (second % numBins);
+            bins[binIdx].add(second, event);
+        }
+
+        @Override
+        public void purgeEvents(final long cutoffEpochMilliseconds) {
+            // no need to do anything
+        }
+
+        @Override
+        public FlowFileEvent generateReport(final String consumerId, final long sinceEpochMillis) {
+            long flowFilesIn = 0, flowFilesOut = 0, flowFilesRemoved = 0;
+            long contentSizeIn = 0L, contentSizeOut = 0L, contentSizeRemoved = 0L;
+            long bytesRead = 0L, bytesWritten = 0L;
+            long invocations = 0;
+            long processingNanos = 0L;
+            long aggregateLineageMillis = 0L;
+            long flowFilesReceived = 0, flowFilesSent = 0;
+            long bytesReceived = 0L, bytesSent = 0L;
+
+            final long sinceSecond = sinceEpochMillis / 1000;
+            for (final EventSumBin bin : bins) {
+                // a bin that is being reset or has never been used has a negative second and is skipped
+                if (bin.getSecond() >= sinceSecond) {
+                    flowFilesIn += bin.flowFilesIn.sum();
+                    flowFilesOut += bin.flowFilesOut.sum();
+                    flowFilesRemoved += bin.flowFilesRemoved.sum();
+                    contentSizeIn += bin.contentSizeIn.sum();
+                    contentSizeOut += bin.contentSizeOut.sum();
+                    contentSizeRemoved += bin.contentSizeRemoved.sum();
+                    bytesRead += bin.bytesRead.sum();
+                    bytesWritten += bin.bytesWritten.sum();
+                    flowFilesReceived += bin.flowFilesReceived.sum();
+                    bytesReceived += bin.bytesReceived.sum();
+                    flowFilesSent += bin.flowFilesSent.sum();
+                    bytesSent += bin.bytesSent.sum();
+                    invocations += bin.invocations.sum();
+                    processingNanos += bin.processingNanos.sum();
+                    aggregateLineageMillis += bin.aggregateLineageMillis.sum();
+                }
+            }
+
+            return new StandardFlowFileEvent(consumerId, (int) flowFilesIn, contentSizeIn,
+                    (int) flowFilesOut, contentSizeOut, (int) flowFilesRemoved, contentSizeRemoved,
+                    bytesRead, bytesWritten, (int) flowFilesReceived, bytesReceived, (int) flowFilesSent, bytesSent,
+                    (int) invocations, aggregateLineageMillis, processingNanos);
+        }
+    }
+}
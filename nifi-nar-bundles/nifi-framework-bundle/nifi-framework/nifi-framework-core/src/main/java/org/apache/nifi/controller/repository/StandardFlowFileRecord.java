@@ -16,10 +16,10 @@
  */
 package org.apache.nifi.controller.repository;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -49,7 +49,7 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
     private final long lineageStartIndex;
     private final long size;
     private final long penaltyExpirationMs;
-    private final Map<String, String> attributes;
+    private final CompactAttributeMap attributes;
     private final ContentClaim claim;
     private final long claimOffset;
     private final long lastQueueDate;
@@ -57,7 +57,7 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
 
     private StandardFlowFileRecord(final Builder builder) {
         this.id = builder.bId;
-        this.attributes = builder.bAttributes;
+        this.attributes = builder.bAttributes;  // already merged with the Builder's changes by build()
         this.entryDate = builder.bEntryDate;
         this.lineageStartDate = builder.bLineageStartDate;
         this.lineageStartIndex = builder.bLineageStartIndex;
@@ -106,7 +106,8 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
 
     @Override
     public Map<String, String> getAttributes() {
-        return Collections.unmodifiableMap(this.attributes);
+        // the attribute map is immutable, so there is no need to wrap it.
+        return this.attributes;
     }
 
     @Override
@@ -176,7 +177,11 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
         private final Set<String> bLineageIdentifiers = new HashSet<>();
         private long bPenaltyExpirationMs = -1L;
         private long bSize = 0L;
-        private final Map<String, String> bAttributes = new HashMap<>();
+        // The attributes are kept as the attributes of the FlowFile that this Builder was created from, plus the changes
+        // that have been made since. This avoids copying all attributes each time that a single attribute is updated,
+        // and allows the new FlowFile to share its parent's attributes entirely if none were changed.
+        private CompactAttributeMap bAttributes = CompactAttributeMap.EMPTY;
+        private Map<String, String> bAttributeChanges = null; // a null value indicates that the attribute is removed
         private ContentClaim bClaim = null;
         private long bClaimOffset = 0L;
         private long bLastQueueDate = System.currentTimeMillis();
@@ -212,7 +217,7 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
 
         public Builder addAttribute(final String key, final String value) {
             if (key != null && value != null) {
-                bAttributes.put(FlowFile.KeyValidator.validateKey(key), value);
+                getAttributeChanges().put(FlowFile.KeyValidator.validateKey(key), value);
             }
             return this;
         }
@@ -226,7 +231,7 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
                     final String key = entry.getKey();
                     final String value = entry.getValue();
                     if (key != null && value != null) {
-                        bAttributes.put(key, value);
+                        getAttributeChanges().put(key, value);
                     }
                 }
             }
@@ -240,7 +245,7 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
                         continue;
                     }
 
-                    bAttributes.remove(key);
+                    getAttributeChanges().put(key, null);
                 }
             }
             return this;
@@ -253,7 +258,7 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
                         continue;
                     }
 
-                    bAttributes.remove(key);
+                    getAttributeChanges().put(key, null);
                 }
             }
             return this;
@@ -261,17 +266,26 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
 
         public Builder removeAttributes(final Pattern keyPattern) {
             if (keyPattern != null) {
-                final Iterator<String> iterator = bAttributes.keySet().iterator();
-                while (iterator.hasNext()) {
-                    final String key = iterator.next();
+                final List<String> keysToRemove = new ArrayList<>();
+                for (final String key : bAttributes.keySet()) {
+                    if (keyPattern.matcher(key).matches()) {
+                        keysToRemove.add(key);
+                    }
+                }
+                if (bAttributeChanges != null) {
+                    for (final Map.Entry<String, String> entry : bAttributeChanges.entrySet()) {
+                        if (entry.getValue() != null && keyPattern.matcher(entry.getKey()).matches()) {
+                            keysToRemove.add(entry.getKey());
+                        }
+                    }
+                }
 
+                for (final String key : keysToRemove) {
                     if (CoreAttributes.UUID.key().equals(key)) {
                         continue;
                     }
 
-                    if (keyPattern.matcher(key).matches()) {
-                        iterator.remove();
-                    }
+                    getAttributeChanges().put(key, null);
                 }
             }
             return this;
@@ -304,7 +318,11 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
             bLineageIdentifiers.clear();
             bPenaltyExpirationMs = specFlowFile.getPenaltyExpirationMillis();
             bSize = specFlowFile.getSize();
-            bAttributes.putAll(specFlowFile.getAttributes());
+            if (bAttributes.isEmpty() && bAttributeChanges == null) {
+                bAttributes = CompactAttributeMap.of(specFlowFile.getAttributes());
+            } else {
+                getAttributeChanges().putAll(specFlowFile.getAttributes());
+            }
             bClaim = specFlowFile.getContentClaim();
             bClaimOffset = specFlowFile.getContentClaimOffset();
             bLastQueueDate = specFlowFile.getLastQueueDate();
@@ -314,8 +332,17 @@ public final class StandardFlowFileRecord implements FlowFile, FlowFileRecord {
         }
 
         public FlowFileRecord build() {
+            bAttributes = bAttributes.update(bAttributeChanges);
+            bAttributeChanges = null;
             return new StandardFlowFileRecord(this);
         }
+
+        private Map<String, String> getAttributeChanges() {
+            if (bAttributeChanges == null) {
+                bAttributeChanges = new HashMap<>();
+            }
+            return bAttributeChanges;
+        }
     }
 
     @Override
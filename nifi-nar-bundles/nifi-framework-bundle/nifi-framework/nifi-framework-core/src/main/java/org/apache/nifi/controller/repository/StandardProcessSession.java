@@ -299,6 +299,13 @@ public final class StandardProcessSession implements ProcessSession, ProvenanceE
         resetState();
     }
 
+    /**
+     * @return the number of FlowFiles whose changes have been checkpointed but not yet committed
+     */
+    public int getCheckpointedFlowFileCount() {
+        return checkpoint == null ? 0 : checkpoint.records.size();
+    }
+
     @Override
     public void commit() {
         checkpoint();
@@ -2243,8 +2250,11 @@ public final class StandardProcessSession implements ProcessSession, ProvenanceE
         long writtenCount = 0L;
 
         try {
-            try (final OutputStream rawOut = contentRepo.write(newClaim);
-                final OutputStream out = new BufferedOutputStream(rawOut)) {
+            // the header, footer and demarcators are buffered, but each source is exported to the repository's own stream so that
+            // the repository can recognize it and transfer the content directly into the new claim rather than copying it. The
+            // buffer must therefore be flushed before each export in order to keep the bytes in order.
+            final OutputStream claimOut = contentRepo.write(newClaim);
+            try (final OutputStream out = new BufferedOutputStream(claimOut)) {
 
                 if (header != null && header.length > 0) {
                     out.write(header);
@@ -2257,7 +2267,8 @@ public final class StandardProcessSession implements ProcessSession, ProvenanceE
                 for (final FlowFile source : sources) {
                     final StandardRepositoryRecord sourceRecord = records.get(source);
 
-                    final long copied = contentRepo.exportTo(sourceRecord.getCurrentClaim(), out, sourceRecord.getCurrentClaimOffset(), source.getSize());
+                    out.flush();
+                    final long copied = contentRepo.exportTo(sourceRecord.getCurrentClaim(), claimOut, sourceRecord.getCurrentClaimOffset(), source.getSize());
                     writtenCount += copied;
                     readCount += copied;
 
@@ -3013,9 +3024,20 @@ public final class StandardProcessSession implements ProcessSession, ProvenanceE
             this.reportedEvents.addAll(session.provenanceReporter.getEvents());
 
             this.records.putAll(session.records);
-            this.connectionCounts.putAll(session.connectionCounts);
             this.unacknowledgedFlowFiles.putAll(session.unacknowledgedFlowFiles);
-            this.counters.putAll(session.counters);
+
+            // The session's counts are reset after each checkpoint, so they must be added to, rather than replace,
+            // the counts of the previous checkpoints.
+            for (final StandardFlowFileEvent sessionEvent : session.connectionCounts.values()) {
+                final StandardFlowFileEvent connectionEvent = this.connectionCounts.computeIfAbsent(sessionEvent.getComponentIdentifier(), id -> new StandardFlowFileEvent(id));
+                connectionEvent.setContentSizeIn(connectionEvent.getContentSizeIn() + sessionEvent.getContentSizeIn());
+                connectionEvent.setFlowFilesIn(connectionEvent.getFlowFilesIn() + sessionEvent.getFlowFilesIn());
+                connectionEvent.setContentSizeOut(connectionEvent.getContentSizeOut() + sessionEvent.getContentSizeOut());
+                connectionEvent.setFlowFilesOut(connectionEvent.getFlowFilesOut() + sessionEvent.getFlowFilesOut());
+            }
+            for (final Map.Entry<String, Long> entry : session.counters.entrySet()) {
+                this.counters.merge(entry.getKey(), entry.getValue(), Long::sum);
+            }
 
             this.deleteOnCommit.putAll(session.deleteOnCommit);
             this.removedFlowFiles.addAll(session.removedFlowFiles);
@@ -44,6 +44,7 @@ import org.apache.nifi.util.FormatUtils;
 import org.apache.nifi.util.NiFiProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wali.GroupCommitWriteAheadLog;
 import org.wali.MinimalLockingWriteAheadLog;
 import org.wali.SyncListener;
 import org.wali.WriteAheadRepository;
@@ -82,6 +83,8 @@ public class WriteAheadFlowFileRepository implements FlowFileRepository, SyncLis
     private final long checkpointDelayMillis;
     private final Path flowFileRepositoryPath;
     private final int numPartitions;
+    private final String walImplementation;
+    private final int snapshotSegments;
     private final ScheduledExecutorService checkpointExecutor;
 
     // effectively final
@@ -120,6 +123,8 @@ public class WriteAheadFlowFileRepository implements FlowFileRepository, SyncLis
         checkpointDelayMillis = 0l;
         flowFileRepositoryPath = null;
         numPartitions = 0;
+        walImplementation = null;
+        snapshotSegments = 0;
         checkpointExecutor = null;
     }
 
@@ -129,6 +134,8 @@ public class WriteAheadFlowFileRepository implements FlowFileRepository, SyncLis
         // determine the database file path and ensure it exists
         flowFileRepositoryPath = nifiProperties.getFlowFileRepositoryPath();
         numPartitions = nifiProperties.getFlowFileRepositoryPartitions();
+        walImplementation = nifiProperties.getFlowFileRepositoryWalImplementation();
+        snapshotSegments = nifiProperties.getFlowFileRepositorySnapshotSegments();
         checkpointDelayMillis = FormatUtils.getTimeDuration(nifiProperties.getFlowFileRepositoryCheckpointInterval(), TimeUnit.MILLISECONDS);
 
         checkpointExecutor = Executors.newSingleThreadScheduledExecutor();
@@ -145,7 +152,15 @@ public class WriteAheadFlowFileRepository implements FlowFileRepository, SyncLis
         // backup and then the data deleted from the normal location; then can move backup to normal location and
         // delete backup. On restore, if no files exist in partition's directory, would have to check backup directory
         serdeFactory = new RepositoryRecordSerdeFactory(claimManager);
-        wal = new MinimalLockingWriteAheadLog<>(flowFileRepositoryPath, numPartitions, serdeFactory, this);
+        if (GroupCommitWriteAheadLog.class.getName().equals(walImplementation)) {
+            wal = new GroupCommitWriteAheadLog<>(flowFileRepositoryPath, numPartitions, snapshotSegments, serdeFactory, this);
+        } else if (MinimalLockingWriteAheadLog.class.getName().equals(walImplementation)) {
+            wal = new MinimalLockingWriteAheadLog<>(flowFileRepositoryPath, numPartitions, serdeFactory, this);
+        } else {
+            throw new IOException("Cannot initialize FlowFile Repository because the configured Write-Ahead Log implementation '"
+                + walImplementation + "' is not known; must be one of " + MinimalLockingWriteAheadLog.class.getName()
+                + " or " + GroupCommitWriteAheadLog.class.getName());
+        }
     }
 
     @Override
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.repository.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.nifi.controller.repository.claim.ResourceClaim;
+import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
+
+/**
+ * <p>
+ * Caches read-only memory mappings of the files that back Resource Claims, so
+ * that content stored in a large, shared Resource Claim does not need to be
+ * reopened and skipped to for every read.
+ * </p>
+ *
+ * <p>
+ * A mapping is cached only while the Resource Claim is referenced by at least
+ * one FlowFile, according to the {@link ResourceClaimManager}'s claimant count,
+ * and only once the Resource Claim can no longer be written to, since the file
+ * of a writable claim is still growing. Mappings are evicted when the Resource
+ * Claim is destroyed or archived, when the cache is full and the claimant
+ * count has dropped to 0, or when a cached mapping is requested after the
+ * claimant count has dropped to 0.
+ * </p>
+ *
+ * <p>
+ * Eviction only removes the mapping from the cache. Java offers no supported
+ * way to unmap a file explicitly, so buffers that have already been handed out
+ * remain valid, and keep the file mapped, until they are garbage collected.
+ * Until then, the file of an archived or destroyed Resource Claim stays mapped:
+ * its disk space is not reclaimed on most operating systems, and on Windows the
+ * file cannot be deleted.
+ * </p>
+ */
+public class MappedResourceClaimCache {
+
+    private final ResourceClaimManager claimManager;
+    private final int maxMappings;
+    private final ConcurrentMap<ResourceClaim, MappedByteBuffer> mappings = new ConcurrentHashMap<>();
+
+    public MappedResourceClaimCache(final ResourceClaimManager claimManager, final int maxMappings) {
+        this.claimManager = claimManager;
+        this.maxMappings = maxMappings;
+    }
+
+    /**
+     * Returns a read-only buffer over the given range of the file that backs
+     * the given Resource Claim
+     *
+     * @param claim the Resource Claim
+     * @param path the path of the file that backs the Resource Claim
+     * @param offset the offset into the file at which the range begins
+     * @param length the number of bytes in the range
+     * @return a buffer whose remaining bytes are the given range, or
+     *         <code>null</code> if the range cannot be memory mapped, in which case
+     *         the caller should read the file directly
+     * @throws IOException if unable to map the file
+     */
+    public ByteBuffer getBuffer(final ResourceClaim claim, final Path path, final long offset, final long length) throws IOException {
+        final long end = offset + length;
+        if (offset < 0 || length < 0 || end > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        MappedByteBuffer mapping = mappings.get(claim);
+        if (mapping != null && claimManager.getClaimantCount(claim) <= 0) {
+            // the content is no longer referenced, so do not hand out more buffers that would keep the file mapped
+            mappings.remove(claim);
+            return null;
+        }
+
+        if (mapping == null || mapping.capacity() < end) {
+            if (claim.isWritable() || claimManager.getClaimantCount(claim) <= 0) {
+                return null;
+            }
+
+            if (mapping == null && mappings.size() >= maxMappings) {
+                evictUnreferenced();
+                if (mappings.size() >= maxMappings) {
+                    return null;
+                }
+            }
+
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final long fileSize = channel.size();
+                if (fileSize < end || fileSize > Integer.MAX_VALUE) {
+                    return null;
+                }
+
+                mapping = channel.map(MapMode.READ_ONLY, 0L, fileSize);
+            }
+
+            mappings.put(claim, mapping);
+        }
+
+        final ByteBuffer buffer = mapping.duplicate();
+        buffer.limit((int) end);
+        buffer.position((int) offset);
+        return buffer.slice();
+    }
+
+    /**
+     * Removes the mapping for the given Resource Claim, if it is cached
+     *
+     * @param claim the Resource Claim
+     */
+    public void evict(final ResourceClaim claim) {
+        mappings.remove(claim);
+    }
+
+    /**
+     * Removes all cached mappings
+     */
+    public void clear() {
+        mappings.clear();
+    }
+
+    /**
+     * @return the number of mappings that are currently cached
+     */
+    public int size() {
+        return mappings.size();
+    }
+
+    private void evictUnreferenced() {
+        final Iterator<ResourceClaim> itr = mappings.keySet().iterator();
+        while (itr.hasNext()) {
+            if (claimManager.getClaimantCount(itr.next()) <= 0) {
+                itr.remove();
+            }
+        }
+    }
+}
@@ -191,7 +191,7 @@ public class EventDrivenSchedulingAgent extends AbstractSchedulingAgent {
                     final StandardProcessContext standardProcessContext = new StandardProcessContext(procNode, serviceProvider,
                         encryptor, getStateManager(connectable.getIdentifier()), variableRegistry);
 
-                    final long runNanos = procNode.getRunDuration(TimeUnit.NANOSECONDS);
+                    final long runNanos = procNode.getCommitBatchDuration(TimeUnit.NANOSECONDS);
                     final ProcessSessionFactory sessionFactory;
                     final StandardProcessSession rawSession;
                     final boolean batch;
@@ -221,6 +221,9 @@ public class EventDrivenSchedulingAgent extends AbstractSchedulingAgent {
                             if (System.nanoTime() > finishNanos) {
                                 break;
                             }
+                            if (rawSession.getCheckpointedFlowFileCount() >= procNode.getCommitBatchMaxFlowFiles()) {
+                                break;
+                            }
                             if (!scheduleState.isScheduled()) {
                                 break;
                             }
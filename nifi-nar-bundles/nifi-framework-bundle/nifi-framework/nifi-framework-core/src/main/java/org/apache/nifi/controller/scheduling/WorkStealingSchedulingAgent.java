@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.nifi.components.state.StateManager;
+import org.apache.nifi.connectable.Connectable;
+import org.apache.nifi.connectable.ConnectableType;
+import org.apache.nifi.controller.FlowController;
+import org.apache.nifi.controller.ProcessorNode;
+import org.apache.nifi.controller.ReportingTaskNode;
+import org.apache.nifi.controller.tasks.ContinuallyRunConnectableTask;
+import org.apache.nifi.controller.tasks.ContinuallyRunProcessorTask;
+import org.apache.nifi.controller.tasks.ReportingTaskWrapper;
+import org.apache.nifi.encrypt.StringEncryptor;
+import org.apache.nifi.engine.FlowEngine;
+import org.apache.nifi.nar.NarThreadContextClassLoader;
+import org.apache.nifi.processor.StandardProcessContext;
+import org.apache.nifi.registry.VariableRegistry;
+import org.apache.nifi.util.FormatUtils;
+import org.apache.nifi.util.NiFiProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A Timer-Driven {@link SchedulingAgent} that only runs components that are ready to do work. Rather than creating a
+ * periodic task per Concurrent Task of each component, this agent keeps the components that are ready to run on the
+ * queues of a fixed pool of work-stealing worker threads. A component becomes ready when data is queued for it, when back
+ * pressure that it was subject to is released (both are signaled to the agent via {@link #onEvent(Connectable)}), when
+ * its Run Schedule elapses or when it is no longer yielded.
+ * </p>
+ *
+ * <p>
+ * A component that finds no work to do is not run again until it is signaled. Because not every change of state can be
+ * signaled (for instance, a change to the flow that removes the connection that was applying back pressure), such a
+ * component is also checked again after the configured bored yield duration; each check that again finds no work doubles
+ * that period, up to {@link #MAX_NO_WORK_YIELD_NANOS}.
+ * </p>
+ *
+ * <p>
+ * Reporting Tasks, as well as the timers that make yielded and bored components ready again, are run by the Timer-Driven
+ * {@link FlowEngine}.
+ * </p>
+ */
+public class WorkStealingSchedulingAgent extends AbstractSchedulingAgent {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkStealingSchedulingAgent.class);
+
+    static final long MAX_NO_WORK_YIELD_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    private final long noWorkYieldNanos;
+    private final FlowController flowController;
+    private final ProcessContextFactory contextFactory;
+    private final StringEncryptor encryptor;
+    private final VariableRegistry variableRegistry;
+
+    private final ConcurrentMap<Connectable, ComponentRunner> runners = new ConcurrentHashMap<>();
+    private final AtomicInteger threadIndex = new AtomicInteger(0);
+    private volatile ForkJoinPool workerPool;
+
+    private volatile String adminYieldDuration = "1 sec";
+
+    public WorkStealingSchedulingAgent(
+            final FlowController flowController,
+            final FlowEngine flowEngine,
+            final ProcessContextFactory contextFactory,
+            final StringEncryptor encryptor,
+            final VariableRegistry variableRegistry,
+            final NiFiProperties nifiProperties,
+            final int maxThreadCount) {
+        super(flowEngine);
+        this.flowController = flowController;
+        this.contextFactory = contextFactory;
+        this.encryptor = encryptor;
+        this.variableRegistry = variableRegistry;
+
+        final String boredYieldDuration = nifiProperties.getBoredYieldDuration();
+        try {
+            noWorkYieldNanos = FormatUtils.getTimeDuration(boredYieldDuration, TimeUnit.NANOSECONDS);
+        } catch (final IllegalArgumentException e) {
+            throw new RuntimeException("Failed to create SchedulingAgent because the " + NiFiProperties.BORED_YIELD_DURATION + " property is set to an invalid time duration: " + boredYieldDuration);
+        }
+
+        this.workerPool = createWorkerPool(maxThreadCount);
+    }
+
+    private ForkJoinPool createWorkerPool(final int maxThreadCount) {
+        // Use asynchronous (FIFO) mode so that a component that re-submits itself goes to the back of the worker's
+        // queue rather than starving the other components that became ready on the same worker.
+        return new ForkJoinPool(maxThreadCount, pool -> new WorkerThread(pool, "Timer-Driven Process Thread-" + threadIndex.incrementAndGet()),
+            (thread, t) -> logger.error("Uncaught exception in {}", thread.getName(), t), true);
+    }
+
+    private StateManager getStateManager(final String componentId) {
+        return flowController.getStateManagerProvider().getStateManager(componentId);
+    }
+
+    @Override
+    public void shutdown() {
+        workerPool.shutdown();
+        flowEngine.shutdown();
+    }
+
+    @Override
+    public void doSchedule(final ReportingTaskNode taskNode, final ScheduleState scheduleState) {
+        final Runnable reportingTaskWrapper = new ReportingTaskWrapper(taskNode, scheduleState);
+        final long schedulingNanos = taskNode.getSchedulingPeriod(TimeUnit.NANOSECONDS);
+
+        final ScheduledFuture<?> future = flowEngine.scheduleWithFixedDelay(reportingTaskWrapper, 0L, schedulingNanos, TimeUnit.NANOSECONDS);
+        final List<ScheduledFuture<?>> futures = new ArrayList<>(1);
+        futures.add(future);
+        scheduleState.setFutures(futures);
+
+        logger.info("{} started.", taskNode.getReportingTask());
+    }
+
+    @Override
+    public void doSchedule(final Connectable connectable, final ScheduleState scheduleState) {
+        final List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < connectable.getMaxConcurrentTasks(); i++) {
+            tasks.add(createTask(connectable, scheduleState));
+        }
+
+        final ComponentRunner runner = new ComponentRunner(connectable, scheduleState, tasks);
+        final ComponentRunner previous = runners.put(connectable, runner);
+        if (previous != null) {
+            previous.stop();
+        }
+
+        scheduleState.setFutures(Collections.emptyList());
+
+        // Run the component once per Concurrent Task right away; from then on, it is run only when it is ready.
+        for (int i = 0; i < tasks.size(); i++) {
+            runner.signal();
+        }
+
+        logger.info("Scheduled {} to run with {} threads", connectable, connectable.getMaxConcurrentTasks());
+    }
+
+    /**
+     * Creates the task that runs one Concurrent Task of the given component.
+     *
+     * @param connectable the component to run
+     * @param scheduleState the schedule state of the component
+     * @return a task that returns <code>true</code> if the component had no work to do, <code>false</code> otherwise
+     */
+    protected Callable<Boolean> createTask(final Connectable connectable, final ScheduleState scheduleState) {
+        if (connectable.getConnectableType() == ConnectableType.PROCESSOR) {
+            final ProcessorNode procNode = (ProcessorNode) connectable;
+            final StandardProcessContext standardProcContext = new StandardProcessContext(procNode, flowController, encryptor, getStateManager(connectable.getIdentifier()), variableRegistry);
+            return new ContinuallyRunProcessorTask(this, procNode, flowController, contextFactory, scheduleState, standardProcContext);
+        }
+
+        final ConnectableProcessContext processContext = new ConnectableProcessContext(connectable, encryptor, getStateManager(connectable.getIdentifier()));
+        return new ContinuallyRunConnectableTask(contextFactory, connectable, scheduleState, processContext);
+    }
+
+    @Override
+    public void doUnschedule(final Connectable connectable, final ScheduleState scheduleState) {
+        final ComponentRunner runner = runners.get(connectable);
+        if (runner != null && runner.scheduleState == scheduleState) {
+            runners.remove(connectable, runner);
+            runner.stop();
+        }
+
+        logger.info("Stopped scheduling {} to run", connectable);
+    }
+
+    @Override
+    public void doUnschedule(final ReportingTaskNode taskNode, final ScheduleState scheduleState) {
+        for (final ScheduledFuture<?> future : scheduleState.getFutures()) {
+            // stop scheduling to run but do not interrupt currently running tasks.
+            future.cancel(false);
+        }
+
+        logger.info("Stopped scheduling {} to run", taskNode.getReportingTask());
+    }
+
+    @Override
+    public void setAdministrativeYieldDuration(final String yieldDuration) {
+        this.adminYieldDuration = yieldDuration;
+    }
+
+    @Override
+    public String getAdministrativeYieldDuration() {
+        return adminYieldDuration;
+    }
+
+    @Override
+    public long getAdministrativeYieldDuration(final TimeUnit timeUnit) {
+        return FormatUtils.getTimeDuration(adminYieldDuration, timeUnit);
+    }
+
+    @Override
+    public void onEvent(final Connectable connectable) {
+        final ComponentRunner runner = runners.get(connectable);
+        if (runner != null) {
+            runner.signal();
+        }
+    }
+
+    @Override
+    public void setMaxThreadCount(final int maxThreads) {
+        final ForkJoinPool currentPool = workerPool;
+        if (maxThreads < 1 || currentPool.getParallelism() == maxThreads || currentPool.isShutdown()) {
+            return;
+        }
+
+        // The parallelism of a ForkJoinPool cannot be changed, so components are moved to a new pool. Tasks that are
+        // already queued in the old pool still run there; every task that they submit goes to the new pool.
+        workerPool = createWorkerPool(maxThreads);
+        currentPool.shutdown();
+        logger.info("Timer-Driven worker pool now has {} threads", maxThreads);
+    }
+
+    /**
+     * Submits the given task to the worker pool. If called from one of the pool's worker threads, the task is added to
+     * that worker's own queue, where it is most likely to be run by the same thread but may be stolen by an idle one.
+     */
+    private void submit(final Runnable task) {
+        final ForkJoinPool pool = workerPool;
+        final Thread currentThread = Thread.currentThread();
+
+        try {
+            if (currentThread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) currentThread).getPool() == pool) {
+                ForkJoinTask.adapt(task).fork();
+            } else {
+                pool.execute(task);
+            }
+        } catch (final RejectedExecutionException ree) {
+            logger.debug("Could not submit {} because the Timer-Driven worker pool has been shut down", task);
+        }
+    }
+
+    private void schedule(final Runnable task, final long delayNanos) {
+        try {
+            flowEngine.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (final RejectedExecutionException ree) {
+            logger.debug("Could not schedule {} because the Timer-Driven Flow Engine has been shut down", task);
+        }
+    }
+
+    /**
+     * Tracks which of the Concurrent Tasks of a scheduled component are idle, and decides when the component is to run
+     * again after each of its tasks completes.
+     */
+    private class ComponentRunner {
+        private final Connectable connectable;
+        private final ScheduleState scheduleState;
+        private final Queue<Callable<Boolean>> idleTasks;
+
+        // incremented whenever the component is signaled, so that a task that found no work can detect a signal that
+        // arrived while it was running
+        private final AtomicLong signalCount = new AtomicLong(0L);
+        private final AtomicBoolean wakeupScheduled = new AtomicBoolean(false);
+        private final AtomicLong noWorkBackoffNanos = new AtomicLong(noWorkYieldNanos);
+        private volatile boolean stopped = false;
+
+        ComponentRunner(final Connectable connectable, final ScheduleState scheduleState, final List<Callable<Boolean>> tasks) {
+            this.connectable = connectable;
+            this.scheduleState = scheduleState;
+            this.idleTasks = new ConcurrentLinkedQueue<>(tasks);
+        }
+
+        private boolean isActive() {
+            return !stopped && scheduleState.isScheduled();
+        }
+
+        void stop() {
+            stopped = true;
+        }
+
+        /**
+         * Indicates that the component may have work to do, running one of its idle Concurrent Tasks, if there is one.
+         */
+        void signal() {
+            signalCount.incrementAndGet();
+            if (!isActive()) {
+                return;
+            }
+
+            final Callable<Boolean> task = idleTasks.poll();
+            if (task != null) {
+                submit(new RunTask(this, task));
+            }
+        }
+
+        /**
+         * Signals the component after the given delay, unless a delayed signal is already pending.
+         */
+        void signalAfter(final long delayNanos) {
+            if (wakeupScheduled.compareAndSet(false, true)) {
+                schedule(() -> {
+                    wakeupScheduled.set(false);
+                    signal();
+                }, delayNanos);
+            }
+        }
+
+        void onComplete(final Callable<Boolean> task, final boolean noWork, final long signalCountBeforeRun) {
+            // A runner is not started again once it is inactive, so the tasks of an inactive runner are dropped.
+            if (!isActive()) {
+                return;
+            }
+
+            // If the component yielded, no task is to run until the yield expires.
+            final long yieldMillis = connectable.getYieldExpiration() - System.currentTimeMillis();
+            if (yieldMillis > 0) {
+                idleTasks.offer(task);
+                signalAfter(TimeUnit.MILLISECONDS.toNanos(yieldMillis));
+                return;
+            }
+
+            if (noWork && noWorkYieldNanos > 0L) {
+                idleTasks.offer(task);
+
+                // A signal that arrived while the task was running may have been ignored because all of the
+                // component's tasks were busy; if so, the component may now have work to do.
+                if (signalCount.get() != signalCountBeforeRun) {
+                    signal();
+                } else {
+                    final long backoffNanos = noWorkBackoffNanos.get();
+                    noWorkBackoffNanos.set(Math.min(backoffNanos * 2, Math.max(noWorkYieldNanos, MAX_NO_WORK_YIELD_NANOS)));
+                    signalAfter(backoffNanos);
+                }
+                return;
+            }
+
+            noWorkBackoffNanos.set(noWorkYieldNanos);
+
+            final long schedulingNanos = connectable.getSchedulingPeriod(TimeUnit.NANOSECONDS);
+            if (schedulingNanos > 0L) {
+                schedule(() -> {
+                    if (isActive()) {
+                        submit(new RunTask(this, task));
+                    }
+                }, schedulingNanos);
+            } else {
+                submit(new RunTask(this, task));
+
+                // The component had work to do, so it may have enough to keep another of its Concurrent Tasks busy.
+                signal();
+            }
+        }
+    }
+
+    private static class RunTask implements Runnable {
+        private final ComponentRunner runner;
+        private final Callable<Boolean> task;
+
+        RunTask(final ComponentRunner runner, final Callable<Boolean> task) {
+            this.runner = runner;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            // The component may have been stopped while this task was queued; if so, the task is dropped rather than
+            // triggering a component whose @OnStopped methods may already have been invoked.
+            if (!runner.isActive()) {
+                return;
+            }
+
+            final long signalCountBeforeRun = runner.signalCount.get();
+
+            boolean noWork = false;
+            try {
+                noWork = task.call();
+            } catch (final Throwable t) {
+                logger.error("Failed to run {} due to {}", runner.connectable, t.toString(), t);
+            }
+
+            runner.onComplete(task, noWork, signalCountBeforeRun);
+        }
+
+        @Override
+        public String toString() {
+            return "RunTask[" + runner.connectable + "]";
+        }
+    }
+
+    private static class WorkerThread extends ForkJoinWorkerThread {
+        WorkerThread(final ForkJoinPool pool, final String name) {
+            super(pool);
+            setName(name);
+            setContextClassLoader(NarThreadContextClassLoader.getInstance());
+        }
+    }
+}
@@ -236,6 +236,8 @@ public class FlowFromDOMFactory {
             expiration = "0 sec";
         }
         dto.setFlowFileExpiration(expiration);
+        dto.setLoadBalanceStrategy(getString(element, "loadBalanceStrategy"));
+        dto.setLoadBalancePartitionAttribute(getString(element, "loadBalancePartitionAttribute"));
 
         final List<String> prioritizerClasses = new ArrayList<>();
         final List<Element> prioritizerNodeList = getChildrenByTagName(element, "queuePrioritizerClass");
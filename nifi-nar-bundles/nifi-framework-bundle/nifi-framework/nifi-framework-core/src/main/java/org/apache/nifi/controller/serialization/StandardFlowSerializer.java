@@ -46,6 +46,7 @@ import org.apache.nifi.controller.ProcessorNode;
 import org.apache.nifi.controller.ReportingTaskNode;
 import org.apache.nifi.controller.Template;
 import org.apache.nifi.controller.label.Label;
+import org.apache.nifi.controller.queue.LoadBalanceStrategy;
 import org.apache.nifi.controller.service.ControllerServiceNode;
 import org.apache.nifi.controller.service.ControllerServiceState;
 import org.apache.nifi.encrypt.StringEncryptor;
@@ -432,6 +433,16 @@ public class StandardFlowSerializer implements FlowSerializer {
         addTextElement(element, "maxWorkQueueDataSize", connection.getFlowFileQueue().getBackPressureDataSizeThreshold());
 
         addTextElement(element, "flowFileExpiration", connection.getFlowFileQueue().getFlowFileExpiration());
+
+        final LoadBalanceStrategy loadBalanceStrategy = connection.getFlowFileQueue().getLoadBalanceStrategy();
+        if (loadBalanceStrategy != LoadBalanceStrategy.DO_NOT_LOAD_BALANCE) {
+            addTextElement(element, "loadBalanceStrategy", loadBalanceStrategy.name());
+            final String partitioningAttribute = connection.getFlowFileQueue().getPartitioningAttribute();
+            if (partitioningAttribute != null) {
+                addTextElement(element, "loadBalancePartitionAttribute", partitioningAttribute);
+            }
+        }
+
         for (final FlowFilePrioritizer comparator : connection.getFlowFileQueue().getPriorities()) {
             final String className = comparator.getClass().getCanonicalName();
             addTextElement(element, "queuePrioritizerClass", className);
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.status.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The status history of a single component over one segment of the {@link PersistentComponentStatusRepository},
+ * held as one {@link StatusColumn} of timestamps and one {@link StatusColumn} per metric.
+ */
+class ComponentHistory {
+
+    private final String componentType;
+    private final String componentId;
+    private Map<String, String> details = Collections.emptyMap();
+    private final StatusColumn timestamps;
+    private final Map<String, StatusColumn> metrics;
+
+    ComponentHistory(final String componentType, final String componentId) {
+        this(componentType, componentId, new StatusColumn(), new LinkedHashMap<>());
+    }
+
+    private ComponentHistory(final String componentType, final String componentId, final StatusColumn timestamps, final Map<String, StatusColumn> metrics) {
+        this.componentType = componentType;
+        this.componentId = componentId;
+        this.timestamps = timestamps;
+        this.metrics = metrics;
+    }
+
+    String getComponentType() {
+        return componentType;
+    }
+
+    String getComponentId() {
+        return componentId;
+    }
+
+    Map<String, String> getDetails() {
+        return details;
+    }
+
+    void setDetails(final Map<String, String> details) {
+        this.details = details;
+    }
+
+    int getSampleCount() {
+        return timestamps.getCount();
+    }
+
+    long getLastTimestamp() {
+        return timestamps.getLastValue();
+    }
+
+    long[] getTimestamps() {
+        return timestamps.getValues();
+    }
+
+    /**
+     * @param field the field of the metric
+     * @return the values of the metric, one per timestamp, or <code>null</code> if the metric was not recorded
+     */
+    long[] getValues(final String field) {
+        final StatusColumn column = metrics.get(field);
+        return column == null ? null : column.getValues();
+    }
+
+    void addSample(final long timestamp, final List<String> fields, final long[] values) {
+        for (int i = 0; i < values.length; i++) {
+            StatusColumn column = metrics.get(fields.get(i));
+            if (column == null) {
+                // keep every column aligned with the timestamps if a metric is added part way through a segment
+                column = new StatusColumn();
+                for (int j = 0; j < timestamps.getCount(); j++) {
+                    column.add(0L);
+                }
+                metrics.put(fields.get(i), column);
+            }
+            column.add(values[i]);
+        }
+
+        timestamps.add(timestamp);
+    }
+
+    /**
+     * Creates a copy of this history that holds one sample per interval, whose timestamp is the timestamp of the
+     * first sample in the interval and whose values are the averages of the values of all samples in the interval.
+     *
+     * @param intervalMillis the length of each interval
+     * @return the downsampled history
+     */
+    ComponentHistory downsample(final long intervalMillis) {
+        final ComponentHistory downsampled = new ComponentHistory(componentType, componentId);
+        downsampled.setDetails(details);
+
+        final long[] sampleTimes = getTimestamps();
+        final List<String> fields = new ArrayList<>(metrics.keySet());
+        final long[][] columnValues = new long[fields.size()][];
+        for (int i = 0; i < fields.size(); i++) {
+            columnValues[i] = getValues(fields.get(i));
+        }
+
+        int bucketStart = 0;
+        while (bucketStart < sampleTimes.length) {
+            final long bucket = sampleTimes[bucketStart] / intervalMillis;
+            int bucketEnd = bucketStart + 1;
+            while (bucketEnd < sampleTimes.length && sampleTimes[bucketEnd] / intervalMillis == bucket) {
+                bucketEnd++;
+            }
+
+            final long[] averages = new long[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                long sum = 0L;
+                for (int j = bucketStart; j < bucketEnd; j++) {
+                    sum += columnValues[i][j];
+                }
+                averages[i] = sum / (bucketEnd - bucketStart);
+            }
+
+            downsampled.addSample(sampleTimes[bucketStart], fields, averages);
+            bucketStart = bucketEnd;
+        }
+
+        return downsampled;
+    }
+
+    void writeTo(final DataOutput out) throws IOException {
+        StatusColumn.writeString(out, componentType);
+        StatusColumn.writeString(out, componentId);
+
+        out.writeInt(details.size());
+        for (final Map.Entry<String, String> entry : details.entrySet()) {
+            StatusColumn.writeString(out, entry.getKey());
+            StatusColumn.writeString(out, entry.getValue());
+        }
+
+        timestamps.writeTo(out);
+
+        out.writeInt(metrics.size());
+        for (final Map.Entry<String, StatusColumn> entry : metrics.entrySet()) {
+            StatusColumn.writeString(out, entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
+    static ComponentHistory readFrom(final ByteBuffer buffer) {
+        final String componentType = StatusColumn.readString(buffer);
+        final String componentId = StatusColumn.readString(buffer);
+
+        final int detailCount = buffer.getInt();
+        final Map<String, String> details = new LinkedHashMap<>(detailCount);
+        for (int i = 0; i < detailCount; i++) {
+            details.put(StatusColumn.readString(buffer), StatusColumn.readString(buffer));
+        }
+
+        final StatusColumn timestamps = StatusColumn.readFrom(buffer);
+
+        final int metricCount = buffer.getInt();
+        final Map<String, StatusColumn> metrics = new LinkedHashMap<>(metricCount);
+        for (int i = 0; i < metricCount; i++) {
+            final String field = StatusColumn.readString(buffer);
+            metrics.put(field, StatusColumn.readFrom(buffer));
+        }
+
+        final ComponentHistory history = new ComponentHistory(componentType, componentId, timestamps, metrics);
+        history.setDetails(details);
+        return history;
+    }
+
+    /**
+     * The status of a single component at the time of a capture
+     */
+    static class Sample {
+        private final String componentType;
+        private final String componentId;
+        private final Map<String, String> details;
+        private final List<String> fields;
+        private final long[] values;
+
+        Sample(final String componentType, final String componentId, final Map<String, String> details, final List<String> fields, final long[] values) {
+            this.componentType = componentType;
+            this.componentId = componentId;
+            this.details = details;
+            this.fields = fields;
+            this.values = values;
+        }
+
+        String getComponentType() {
+            return componentType;
+        }
+
+        String getComponentId() {
+            return componentId;
+        }
+
+        Map<String, String> getDetails() {
+            return details;
+        }
+
+        List<String> getFields() {
+            return fields;
+        }
+
+        long[] getValues() {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.status.history;
+
+import org.apache.nifi.controller.status.ConnectionStatus;
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.ProcessorStatus;
+import org.apache.nifi.controller.status.RemoteProcessGroupStatus;
+import org.apache.nifi.util.ComponentStatusReport.ComponentType;
+import org.apache.nifi.util.FormatUtils;
+import org.apache.nifi.util.NiFiProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * A ComponentStatusRepository that persists status history to disk, so that it survives restarts and can be
+ * retained for much longer than the {@link VolatileComponentStatusRepository} can hold in heap.
+ *
+ * History is divided into segments of one hour. Within a segment, the history of each component is held as one
+ * delta-encoded column of timestamps and one per metric, rather than as a snapshot of every component per capture.
+ * Captures for the current hour are held in heap and appended to a journal; when the hour ends, the segment is
+ * written to a file that is memory-mapped and indexed by component, so that retrieving the history of a component
+ * reads only that component's columns. Segments older than the configured downsample age are rewritten with one
+ * averaged sample per downsample interval, and segments older than the maximum retention are deleted.
+ */
+public class PersistentComponentStatusRepository implements ComponentStatusRepository {
+
+    public static final String DIRECTORY_PROPERTY = "nifi.components.status.repository.directory";
+    public static final String DEFAULT_DIRECTORY = "./status_repository";
+    public static final String MAX_RETENTION_PROPERTY = "nifi.components.status.repository.max.retention";
+    public static final String DEFAULT_MAX_RETENTION = "7 days";
+    public static final String DOWNSAMPLE_AGE_PROPERTY = "nifi.components.status.repository.downsample.age";
+    public static final String DEFAULT_DOWNSAMPLE_AGE = "1 day";
+    public static final String DOWNSAMPLE_INTERVAL_PROPERTY = "nifi.components.status.repository.downsample.interval";
+    public static final String DEFAULT_DOWNSAMPLE_INTERVAL = "15 mins";
+
+    static final long SEGMENT_MILLIS = TimeUnit.HOURS.toMillis(1L);
+
+    private static final List<MetricDescriptor<ProcessorStatus>> PROCESSOR_METRICS = Arrays.stream(ProcessorStatusDescriptor.values())
+        .map(ProcessorStatusDescriptor::getDescriptor).collect(Collectors.toList());
+    private static final List<MetricDescriptor<ConnectionStatus>> CONNECTION_METRICS = Arrays.stream(ConnectionStatusDescriptor.values())
+        .map(ConnectionStatusDescriptor::getDescriptor).collect(Collectors.toList());
+    private static final List<MetricDescriptor<ProcessGroupStatus>> PROCESS_GROUP_METRICS = Arrays.stream(ProcessGroupStatusDescriptor.values())
+        .map(ProcessGroupStatusDescriptor::getDescriptor).collect(Collectors.toList());
+    private static final List<MetricDescriptor<RemoteProcessGroupStatus>> REMOTE_PROCESS_GROUP_METRICS = Arrays.stream(RemoteProcessGroupStatusDescriptor.values())
+        .map(RemoteProcessGroupStatusDescriptor::getDescriptor).collect(Collectors.toList());
+
+    private static final List<String> PROCESSOR_FIELDS = getFields(PROCESSOR_METRICS);
+    private static final List<String> CONNECTION_FIELDS = getFields(CONNECTION_METRICS);
+    private static final List<String> PROCESS_GROUP_FIELDS = getFields(PROCESS_GROUP_METRICS);
+    private static final List<String> REMOTE_PROCESS_GROUP_FIELDS = getFields(REMOTE_PROCESS_GROUP_METRICS);
+
+    private final Logger logger = LoggerFactory.getLogger(PersistentComponentStatusRepository.class);
+
+    private final File directory;
+    private final long maxRetentionMillis;
+    private final long downsampleAgeMillis;
+    private final long downsampleIntervalMillis;
+
+    private final ConcurrentSkipListMap<Long, StatusSegment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+    private final Lock readLock = rwLock.readLock();
+    private final Lock writeLock = rwLock.writeLock();
+
+    // the captures of the active segment, keyed by component identifier; guarded by rwLock
+    private Map<String, ComponentHistory> activeHistories = new HashMap<>();
+    private StatusJournal journal;
+
+    private volatile long lastCaptureTime = 0L;
+
+    /**
+     * Default no args constructor for service loading only
+     */
+    public PersistentComponentStatusRepository() {
+        directory = null;
+        maxRetentionMillis = 0L;
+        downsampleAgeMillis = 0L;
+        downsampleIntervalMillis = 0L;
+    }
+
+    public PersistentComponentStatusRepository(final NiFiProperties nifiProperties) throws IOException {
+        directory = new File(nifiProperties.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+        maxRetentionMillis = FormatUtils.getTimeDuration(nifiProperties.getProperty(MAX_RETENTION_PROPERTY, DEFAULT_MAX_RETENTION), TimeUnit.MILLISECONDS);
+        downsampleAgeMillis = FormatUtils.getTimeDuration(nifiProperties.getProperty(DOWNSAMPLE_AGE_PROPERTY, DEFAULT_DOWNSAMPLE_AGE), TimeUnit.MILLISECONDS);
+
+        // samples are never averaged across segments, so the downsample interval cannot be longer than a segment
+        final long configuredInterval = FormatUtils.getTimeDuration(nifiProperties.getProperty(DOWNSAMPLE_INTERVAL_PROPERTY, DEFAULT_DOWNSAMPLE_INTERVAL), TimeUnit.MILLISECONDS);
+        downsampleIntervalMillis = Math.max(1L, Math.min(configuredInterval, SEGMENT_MILLIS));
+
+        Files.createDirectories(directory.toPath());
+        recover();
+    }
+
+    private void recover() throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Unable to list the contents of Component Status Repository directory " + directory);
+        }
+
+        final List<File> journalFiles = new ArrayList<>();
+        for (final File file : files) {
+            final String filename = file.getName();
+            if (filename.endsWith(".tmp")) {
+                Files.deleteIfExists(file.toPath());
+            } else if (filename.endsWith(StatusSegment.FILE_EXTENSION)) {
+                try {
+                    final StatusSegment segment = StatusSegment.open(file);
+                    segments.put(segment.getStartMillis(), segment);
+                } catch (final IOException e) {
+                    logger.error("Unable to read Component Status History from {}; this history will not be available", file, e);
+                }
+            } else if (filename.endsWith(StatusJournal.FILE_EXTENSION)) {
+                journalFiles.add(file);
+            }
+        }
+
+        journalFiles.sort((a, b) -> a.getName().compareTo(b.getName()));
+        for (final File journalFile : journalFiles) {
+            if (journal != null) {
+                // a newer journal exists, so this segment is complete
+                sealActiveSegment();
+            }
+
+            final Map<String, ComponentHistory> histories = new HashMap<>();
+            final StatusJournal recovered = StatusJournal.recover(journalFile, histories);
+            if (segments.containsKey(recovered.getStartMillis())) {
+                // the segment was written but NiFi stopped before the journal could be removed
+                recovered.close();
+                Files.deleteIfExists(journalFile.toPath());
+                continue;
+            }
+
+            journal = recovered;
+            activeHistories = histories;
+        }
+
+        if (journal == null) {
+            final long now = System.currentTimeMillis();
+            journal = StatusJournal.create(directory, now - now % SEGMENT_MILLIS);
+        }
+
+        for (final ComponentHistory history : activeHistories.values()) {
+            lastCaptureTime = Math.max(lastCaptureTime, history.getLastTimestamp());
+        }
+
+        logger.info("Recovered Component Status History from {} segments and {} components in the active segment", segments.size(), activeHistories.size());
+        performMaintenance();
+    }
+
+    @Override
+    public void capture(final ProcessGroupStatus rootGroupStatus) {
+        capture(rootGroupStatus, new Date());
+    }
+
+    @Override
+    public void capture(final ProcessGroupStatus rootGroupStatus, final Date timestamp) {
+        final List<ComponentHistory.Sample> samples = new ArrayList<>();
+        createSamples(rootGroupStatus, samples);
+
+        final long captureTime = timestamp.getTime();
+        final long segmentStart = captureTime - captureTime % SEGMENT_MILLIS;
+
+        writeLock.lock();
+        try {
+            if (isSegmentChange(segmentStart)) {
+                sealActiveSegment();
+                performMaintenance();
+            }
+            if (journal == null) {
+                journal = StatusJournal.create(directory, segmentStart);
+            }
+
+            for (final ComponentHistory.Sample sample : samples) {
+                final ComponentHistory history = activeHistories.computeIfAbsent(sample.getComponentId(), id -> new ComponentHistory(sample.getComponentType(), id));
+                history.setDetails(sample.getDetails());
+                history.addSample(captureTime, sample.getFields(), sample.getValues());
+            }
+
+            journal.append(captureTime, samples);
+            logger.debug("Captured metrics for {}", this);
+        } catch (final IOException e) {
+            logger.error("Failed to persist Component Status History to {}; the captured status will be lost on restart", directory, e);
+        } finally {
+            writeLock.unlock();
+        }
+
+        lastCaptureTime = Math.max(lastCaptureTime, captureTime);
+    }
+
+    /**
+     * Determines whether a capture at a time in the segment with the given start time begins a new active segment. Captures that
+     * are older than the active segment, as when replaying historical values, are added to the active segment unless it is still
+     * empty, and a segment that has already been written is never started again. Must be called while holding the write lock.
+     */
+    private boolean isSegmentChange(final long segmentStart) {
+        if (journal == null || segmentStart == journal.getStartMillis() || segments.containsKey(segmentStart)) {
+            return false;
+        }
+
+        return segmentStart > journal.getStartMillis() || activeHistories.isEmpty();
+    }
+
+    /**
+     * Writes the active segment to a segment file and removes its journal. Must be called while holding the write lock.
+     */
+    private void sealActiveSegment() throws IOException {
+        if (!activeHistories.isEmpty()) {
+            final StatusSegment segment = StatusSegment.write(directory, journal.getStartMillis(), 0L, activeHistories.values());
+            segments.put(segment.getStartMillis(), segment);
+        }
+
+        journal.close();
+        Files.deleteIfExists(journal.getFile().toPath());
+        journal = null;
+        activeHistories = new HashMap<>();
+    }
+
+    /**
+     * Downsamples and deletes segments according to their age. Must be called while holding the write lock.
+     */
+    private void performMaintenance() {
+        final long now = System.currentTimeMillis();
+
+        for (final StatusSegment segment : segments.values()) {
+            final long segmentEnd = segment.getStartMillis() + SEGMENT_MILLIS;
+            try {
+                if (segmentEnd < now - maxRetentionMillis) {
+                    segments.remove(segment.getStartMillis());
+                    Files.deleteIfExists(segment.getFile().toPath());
+                    logger.debug("Removed {} because it is older than the maximum retention", segment);
+                } else if (segmentEnd < now - downsampleAgeMillis && segment.getResolutionMillis() < downsampleIntervalMillis) {
+                    final List<ComponentHistory> downsampled = new ArrayList<>();
+                    for (final ComponentHistory history : segment.readAll()) {
+                        downsampled.add(history.downsample(downsampleIntervalMillis));
+                    }
+
+                    segments.put(segment.getStartMillis(), StatusSegment.write(directory, segment.getStartMillis(), downsampleIntervalMillis, downsampled));
+                    logger.debug("Downsampled {} to one sample per {} millis", segment, downsampleIntervalMillis);
+                }
+            } catch (final IOException e) {
+                logger.warn("Failed to downsample or remove {}; will try again when the next segment is written", segment, e);
+            }
+        }
+    }
+
+    @Override
+    public Date getLastCaptureDate() {
+        return new Date(lastCaptureTime);
+    }
+
+    @Override
+    public StatusHistory getProcessorStatusHistory(final String processorId, final Date start, final Date end, final int preferredDataPoints) {
+        return getStatusHistory(processorId, PROCESSOR_METRICS, start, end);
+    }
+
+    @Override
+    public StatusHistory getConnectionStatusHistory(final String connectionId, final Date start, final Date end, final int preferredDataPoints) {
+        return getStatusHistory(connectionId, CONNECTION_METRICS, start, end);
+    }
+
+    @Override
+    public StatusHistory getProcessGroupStatusHistory(final String processGroupId, final Date start, final Date end, final int preferredDataPoints) {
+        return getStatusHistory(processGroupId, PROCESS_GROUP_METRICS, start, end);
+    }
+
+    @Override
+    public StatusHistory getRemoteProcessGroupStatusHistory(final String remoteGroupId, final Date start, final Date end, final int preferredDataPoints) {
+        return getStatusHistory(remoteGroupId, REMOTE_PROCESS_GROUP_METRICS, start, end);
+    }
+
+    private StatusHistory getStatusHistory(final String componentId, final List<? extends MetricDescriptor<?>> descriptors, final Date start, final Date end) {
+        final StandardStatusHistory history = new StandardStatusHistory();
+        history.setComponentDetail(COMPONENT_DETAIL_ID, componentId);
+
+        final long startMillis = start == null ? Long.MIN_VALUE : start.getTime();
+        final long endMillis = end == null ? Long.MAX_VALUE : end.getTime();
+
+        readLock.lock();
+        try {
+            for (final StatusSegment segment : segments.values()) {
+                if (segment.getStartMillis() + SEGMENT_MILLIS <= startMillis || segment.getStartMillis() > endMillis) {
+                    continue;
+                }
+
+                final ComponentHistory componentHistory = segment.read(componentId);
+                if (componentHistory != null) {
+                    addSnapshots(history, componentHistory, descriptors, startMillis, endMillis);
+                }
+            }
+
+            final ComponentHistory activeHistory = activeHistories.get(componentId);
+            if (activeHistory != null) {
+                addSnapshots(history, activeHistory, descriptors, startMillis, endMillis);
+            }
+        } finally {
+            readLock.unlock();
+        }
+
+        return history;
+    }
+
+    private void addSnapshots(final StandardStatusHistory history, final ComponentHistory componentHistory, final List<? extends MetricDescriptor<?>> descriptors,
+            final long startMillis, final long endMillis) {
+
+        for (final Map.Entry<String, String> entry : componentHistory.getDetails().entrySet()) {
+            history.setComponentDetail(entry.getKey(), entry.getValue());
+        }
+
+        final long[] timestamps = componentHistory.getTimestamps();
+        final long[][] values = new long[descriptors.size()][];
+        for (int i = 0; i < descriptors.size(); i++) {
+            values[i] = componentHistory.getValues(descriptors.get(i).getField());
+        }
+
+        for (int sample = 0; sample < timestamps.length; sample++) {
+            if (timestamps[sample] < startMillis || timestamps[sample] > endMillis) {
+                continue;
+            }
+
+            final StandardStatusSnapshot snapshot = new StandardStatusSnapshot();
+            snapshot.setTimestamp(new Date(timestamps[sample]));
+            for (int i = 0; i < descriptors.size(); i++) {
+                snapshot.addStatusMetric(descriptors.get(i), values[i] == null ? 0L : values[i][sample]);
+            }
+
+            history.addStatusSnapshot(snapshot);
+        }
+    }
+
+    private void createSamples(final ProcessGroupStatus groupStatus, final List<ComponentHistory.Sample> samples) {
+        final Map<String, String> groupDetails = new LinkedHashMap<>();
+        putDetail(groupDetails, COMPONENT_DETAIL_NAME, groupStatus.getName());
+        samples.add(createSample(ComponentType.PROCESS_GROUP, groupStatus.getId(), groupDetails, PROCESS_GROUP_METRICS, PROCESS_GROUP_FIELDS, groupStatus));
+
+        for (final ProcessorStatus status : groupStatus.getProcessorStatus()) {
+            final Map<String, String> details = new LinkedHashMap<>();
+            putDetail(details, COMPONENT_DETAIL_GROUP_ID, status.getGroupId());
+            putDetail(details, COMPONENT_DETAIL_NAME, status.getName());
+            putDetail(details, COMPONENT_DETAIL_TYPE, status.getType());
+            samples.add(createSample(ComponentType.PROCESSOR, status.getId(), details, PROCESSOR_METRICS, PROCESSOR_FIELDS, status));
+        }
+
+        for (final ConnectionStatus status : groupStatus.getConnectionStatus()) {
+            final Map<String, String> details = new LinkedHashMap<>();
+            putDetail(details, COMPONENT_DETAIL_GROUP_ID, status.getGroupId());
+            putDetail(details, COMPONENT_DETAIL_NAME, status.getName());
+            putDetail(details, COMPONENT_DETAIL_SOURCE_NAME, status.getSourceName());
+            putDetail(details, COMPONENT_DETAIL_DESTINATION_NAME, status.getDestinationName());
+            samples.add(createSample(ComponentType.CONNECTION, status.getId(), details, CONNECTION_METRICS, CONNECTION_FIELDS, status));
+        }
+
+        for (final RemoteProcessGroupStatus status : groupStatus.getRemoteProcessGroupStatus()) {
+            final Map<String, String> details = new LinkedHashMap<>();
+            putDetail(details, COMPONENT_DETAIL_GROUP_ID, status.getGroupId());
+            putDetail(details, COMPONENT_DETAIL_NAME, status.getName());
+            putDetail(details, COMPONENT_DETAIL_URI, status.getTargetUri());
+            samples.add(createSample(ComponentType.REMOTE_PROCESS_GROUP, status.getId(), details, REMOTE_PROCESS_GROUP_METRICS, REMOTE_PROCESS_GROUP_FIELDS, status));
+        }
+
+        for (final ProcessGroupStatus childStatus : groupStatus.getProcessGroupStatus()) {
+            createSamples(childStatus, samples);
+        }
+    }
+
+    private static void putDetail(final Map<String, String> details, final String key, final String value) {
+        if (value != null) {
+            details.put(key, value);
+        }
+    }
+
+    private static <T> ComponentHistory.Sample createSample(final ComponentType componentType, final String componentId, final Map<String, String> details,
+            final List<MetricDescriptor<T>> descriptors, final List<String> fields, final T status) {
+        final long[] values = new long[descriptors.size()];
+        for (int i = 0; i < values.length; i++) {
+            final Long value = descriptors.get(i).getValueFunction().getValue(status);
+            values[i] = value == null ? 0L : value;
+        }
+
+        return new ComponentHistory.Sample(componentType.name(), componentId, details, fields, values);
+    }
+
+    private static List<String> getFields(final List<? extends MetricDescriptor<?>> descriptors) {
+        final List<String> fields = new ArrayList<>(descriptors.size());
+        for (final MetricDescriptor<?> descriptor : descriptors) {
+            fields.add(descriptor.getField());
+        }
+        return Collections.unmodifiableList(fields);
+    }
+
+    @Override
+    public String toString() {
+        return "PersistentComponentStatusRepository[directory=" + directory + "]";
+    }
+}
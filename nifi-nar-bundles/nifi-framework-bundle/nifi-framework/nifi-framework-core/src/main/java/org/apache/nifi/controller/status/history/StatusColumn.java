@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.status.history;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A compact, append-only column of long values, as used by the {@link PersistentComponentStatusRepository}
+ * to hold the values of a single metric (or the timestamps) of a single component. Each value is stored as
+ * the zig-zag, variable-length encoded difference from the previous value, so that the slowly changing
+ * values typical of status metrics generally take only one or two bytes each.
+ */
+class StatusColumn {
+
+    private byte[] bytes;
+    private int length;
+    private int count;
+    private long lastValue;
+
+    StatusColumn() {
+        this.bytes = new byte[16];
+    }
+
+    private StatusColumn(final byte[] bytes, final int count, final long lastValue) {
+        this.bytes = bytes;
+        this.length = bytes.length;
+        this.count = count;
+        this.lastValue = lastValue;
+    }
+
+    /**
+     * Creates a column from the given encoded values, as written by {@link #writeTo(DataOutput)}
+     *
+     * @param buffer the buffer to read from, positioned at the start of the column
+     * @return the column
+     */
+    static StatusColumn readFrom(final ByteBuffer buffer) {
+        final int count = buffer.getInt();
+        final long lastValue = buffer.getLong();
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new StatusColumn(bytes, count, lastValue);
+    }
+
+    void add(final long value) {
+        final long delta = value - lastValue;
+        ensureCapacity(length + 10);
+        long zigZag = (delta << 1) ^ (delta >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            bytes[length++] = (byte) ((zigZag & 0x7F) | 0x80);
+            zigZag >>>= 7;
+        }
+        bytes[length++] = (byte) zigZag;
+
+        lastValue = value;
+        count++;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getLastValue() {
+        return lastValue;
+    }
+
+    int getEncodedLength() {
+        return length;
+    }
+
+    long[] getValues() {
+        final long[] values = new long[count];
+        long value = 0L;
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            long zigZag = 0L;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                zigZag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            value += (zigZag >>> 1) ^ -(zigZag & 1);
+            values[i] = value;
+        }
+        return values;
+    }
+
+    void writeTo(final DataOutput out) throws IOException {
+        out.writeInt(count);
+        out.writeLong(lastValue);
+        out.writeInt(length);
+        out.write(bytes, 0, length);
+    }
+
+
+    static void writeVarLong(final DataOutput out, final long value) throws IOException {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        out.writeByte((int) zigZag);
+    }
+
+    static long readVarLong(final ByteBuffer buffer) {
+        long zigZag = 0L;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            zigZag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
+    static void writeString(final DataOutput out, final String value) throws IOException {
+        final byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    static String readString(final ByteBuffer buffer) {
+        final byte[] encoded = new byte[buffer.getInt()];
+        buffer.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.status.history;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only journal of the captures that make up the active segment of the {@link PersistentComponentStatusRepository},
+ * so that the active segment can be recovered on restart. The type, identifier and metric fields of each component are
+ * written only the first time that the component is captured, and its details only when they change; after that, each
+ * capture of a component is written as the index of the component followed by its values.
+ */
+class StatusJournal implements Closeable {
+
+    static final String FILE_EXTENSION = ".journal";
+
+    private final File file;
+    private final long startMillis;
+    private final Map<String, JournalComponent> componentsById = new HashMap<>();
+    private final List<JournalComponent> componentsByIndex = new ArrayList<>();
+    private DataOutputStream out;
+
+    private StatusJournal(final File file, final long startMillis) {
+        this.file = file;
+        this.startMillis = startMillis;
+    }
+
+    static StatusJournal create(final File directory, final long startMillis) throws IOException {
+        final StatusJournal journal = new StatusJournal(new File(directory, startMillis + FILE_EXTENSION), startMillis);
+        journal.openForAppend();
+        return journal;
+    }
+
+    /**
+     * Replays the given journal into the given histories and opens it so that further captures can be appended.
+     * If the journal ends with a partially written capture, as it may if NiFi was not shut down cleanly, the
+     * partial capture is discarded.
+     *
+     * @param file the journal file
+     * @param histories the histories, keyed by component identifier, to add the journaled captures to
+     * @return the journal
+     * @throws IOException if unable to read or reopen the journal
+     */
+    static StatusJournal recover(final File file, final Map<String, ComponentHistory> histories) throws IOException {
+        final String filename = file.getName();
+        final long startMillis = Long.parseLong(filename.substring(0, filename.length() - FILE_EXTENSION.length()));
+        final StatusJournal journal = new StatusJournal(file, startMillis);
+
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        int validLength = 0;
+        while (buffer.hasRemaining()) {
+            final int componentCount = journal.componentsByIndex.size();
+            try {
+                journal.replayCapture(buffer, histories);
+                validLength = buffer.position();
+            } catch (final BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                journal.componentsByIndex.subList(componentCount, journal.componentsByIndex.size()).clear();
+                break;
+            }
+        }
+
+        if (validLength < buffer.capacity()) {
+            try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+
+        journal.componentsById.clear();
+        for (final JournalComponent component : journal.componentsByIndex) {
+            journal.componentsById.put(component.id, component);
+        }
+
+        journal.openForAppend();
+        return journal;
+    }
+
+    private void replayCapture(final ByteBuffer buffer, final Map<String, ComponentHistory> histories) {
+        final long timestamp = buffer.getLong();
+        final int sampleCount = buffer.getInt();
+
+        final List<JournalComponent> sampledComponents = new ArrayList<>(sampleCount);
+        final List<long[]> sampledValues = new ArrayList<>(sampleCount);
+        final List<Map<String, String>> sampledDetails = new ArrayList<>(sampleCount);
+
+        for (int i = 0; i < sampleCount; i++) {
+            final int index = (int) StatusColumn.readVarLong(buffer);
+            final JournalComponent component;
+            if (index == componentsByIndex.size()) {
+                final String type = StatusColumn.readString(buffer);
+                final String id = StatusColumn.readString(buffer);
+                final int fieldCount = buffer.getInt();
+                final List<String> fields = new ArrayList<>(fieldCount);
+                for (int j = 0; j < fieldCount; j++) {
+                    fields.add(StatusColumn.readString(buffer));
+                }
+
+                component = new JournalComponent(index, type, id, fields);
+                componentsByIndex.add(component);
+            } else {
+                component = componentsByIndex.get(index);
+            }
+
+            Map<String, String> details = null;
+            if (buffer.get() != 0) {
+                final int detailCount = buffer.getInt();
+                details = new LinkedHashMap<>(detailCount);
+                for (int j = 0; j < detailCount; j++) {
+                    details.put(StatusColumn.readString(buffer), StatusColumn.readString(buffer));
+                }
+            }
+
+            final long[] values = new long[component.fields.size()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = StatusColumn.readVarLong(buffer);
+            }
+
+            sampledComponents.add(component);
+            sampledValues.add(values);
+            sampledDetails.add(details);
+        }
+
+        // only apply the capture once it has been read completely
+        for (int i = 0; i < sampleCount; i++) {
+            final JournalComponent component = sampledComponents.get(i);
+            final ComponentHistory history = histories.computeIfAbsent(component.id, id -> new ComponentHistory(component.type, id));
+            if (sampledDetails.get(i) != null) {
+                component.details = sampledDetails.get(i);
+                history.setDetails(component.details);
+            }
+            history.addSample(timestamp, component.fields, sampledValues.get(i));
+        }
+    }
+
+    private void openForAppend() throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getStartMillis() {
+        return startMillis;
+    }
+
+    void append(final long timestamp, final Collection<ComponentHistory.Sample> samples) throws IOException {
+        out.writeLong(timestamp);
+        out.writeInt(samples.size());
+
+        for (final ComponentHistory.Sample sample : samples) {
+            JournalComponent component = componentsById.get(sample.getComponentId());
+            if (component == null || !component.fields.equals(sample.getFields())) {
+                component = new JournalComponent(componentsByIndex.size(), sample.getComponentType(), sample.getComponentId(), sample.getFields());
+                componentsByIndex.add(component);
+                componentsById.put(component.id, component);
+
+                StatusColumn.writeVarLong(out, component.index);
+                StatusColumn.writeString(out, component.type);
+                StatusColumn.writeString(out, component.id);
+                out.writeInt(component.fields.size());
+                for (final String field : component.fields) {
+                    StatusColumn.writeString(out, field);
+                }
+            } else {
+                StatusColumn.writeVarLong(out, component.index);
+            }
+
+            if (sample.getDetails().equals(component.details)) {
+                out.writeByte(0);
+            } else {
+                component.details = sample.getDetails();
+                out.writeByte(1);
+                out.writeInt(component.details.size());
+                for (final Map.Entry<String, String> entry : component.details.entrySet()) {
+                    StatusColumn.writeString(out, entry.getKey());
+                    StatusColumn.writeString(out, entry.getValue());
+                }
+            }
+
+            for (final long value : sample.getValues()) {
+                StatusColumn.writeVarLong(out, value);
+            }
+        }
+
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    private static class JournalComponent {
+        private final int index;
+        private final String type;
+        private final String id;
+        private final List<String> fields;
+        private Map<String, String> details;
+
+        private JournalComponent(final int index, final String type, final String id, final List<String> fields) {
+            this.index = index;
+            this.type = type;
+            this.id = id;
+            this.fields = fields;
+        }
+    }
+}
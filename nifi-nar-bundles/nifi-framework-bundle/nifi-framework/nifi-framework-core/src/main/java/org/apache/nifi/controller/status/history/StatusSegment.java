@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.status.history;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A sealed, immutable segment of the {@link PersistentComponentStatusRepository}, holding the status history of
+ * all components over one period of time. The file begins with an index of the components, sorted by a hash of
+ * their identifiers, followed by the history of each component. The file is memory-mapped, so looking up the
+ * history of one component reads only the index and that component's columns.
+ */
+class StatusSegment {
+
+    static final String FILE_EXTENSION = ".segment";
+
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 4 + 8 + 8 + 4;
+    private static final int INDEX_ENTRY_LENGTH = 8 + 4;
+
+    private final File file;
+    private final long startMillis;
+    private final long resolutionMillis;
+    private final int componentCount;
+    private final MappedByteBuffer buffer;
+
+    private StatusSegment(final File file, final MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+
+        final int version = buffer.getInt(0);
+        if (version != VERSION) {
+            throw new IOException("Cannot read Component Status History segment " + file + " because it has an unknown encoding version " + version);
+        }
+
+        this.startMillis = buffer.getLong(4);
+        this.resolutionMillis = buffer.getLong(12);
+        this.componentCount = buffer.getInt(20);
+    }
+
+    /**
+     * Writes the given histories to a new segment file, replacing any existing segment with the same start time
+     *
+     * @param directory the directory to write the segment to
+     * @param startMillis the start of the period of time that the segment covers
+     * @param resolutionMillis the interval that the histories were downsampled to, or 0 if they were not downsampled
+     * @param histories the histories to write
+     * @return the written segment
+     * @throws IOException if unable to write the segment
+     */
+    static StatusSegment write(final File directory, final long startMillis, final long resolutionMillis, final Collection<ComponentHistory> histories) throws IOException {
+        final List<ComponentHistory> sorted = new ArrayList<>(histories);
+        sorted.sort((a, b) -> Long.compare(hash(a.getComponentId()), hash(b.getComponentId())));
+
+        final ByteArrayOutputStream componentBytes = new ByteArrayOutputStream();
+        final DataOutputStream componentOut = new DataOutputStream(componentBytes);
+        final int[] offsets = new int[sorted.size()];
+        final int dataStart = HEADER_LENGTH + sorted.size() * INDEX_ENTRY_LENGTH;
+        for (int i = 0; i < sorted.size(); i++) {
+            offsets[i] = dataStart + componentOut.size();
+            sorted.get(i).writeTo(componentOut);
+        }
+        componentOut.flush();
+
+        final File file = new File(directory, startMillis + FILE_EXTENSION);
+        final File tempFile = new File(directory, startMillis + FILE_EXTENSION + ".tmp");
+        try (final OutputStream fos = new FileOutputStream(tempFile);
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+
+            out.writeInt(VERSION);
+            out.writeLong(startMillis);
+            out.writeLong(resolutionMillis);
+            out.writeInt(sorted.size());
+            for (int i = 0; i < sorted.size(); i++) {
+                out.writeLong(hash(sorted.get(i).getComponentId()));
+                out.writeInt(offsets[i]);
+            }
+            componentBytes.writeTo(out);
+        }
+
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    static StatusSegment open(final File file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new StatusSegment(file, buffer);
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getStartMillis() {
+        return startMillis;
+    }
+
+    long getResolutionMillis() {
+        return resolutionMillis;
+    }
+
+    /**
+     * @param componentId the identifier of the component
+     * @return the history of the component with the given identifier, or <code>null</code> if the segment holds no history for it
+     */
+    ComponentHistory read(final String componentId) {
+        final long hash = hash(componentId);
+
+        int low = 0;
+        int high = componentCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midHash = getIndexHash(mid);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                // several components may share a hash; find the first with this hash and check each of them
+                int index = mid;
+                while (index > 0 && getIndexHash(index - 1) == hash) {
+                    index--;
+                }
+                for (; index < componentCount && getIndexHash(index) == hash; index++) {
+                    final ComponentHistory history = readComponent(index);
+                    if (history.getComponentId().equals(componentId)) {
+                        return history;
+                    }
+                }
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    List<ComponentHistory> readAll() {
+        final List<ComponentHistory> histories = new ArrayList<>(componentCount);
+        for (int i = 0; i < componentCount; i++) {
+            histories.add(readComponent(i));
+        }
+        return histories;
+    }
+
+    private long getIndexHash(final int index) {
+        return buffer.getLong(HEADER_LENGTH + index * INDEX_ENTRY_LENGTH);
+    }
+
+    private ComponentHistory readComponent(final int index) {
+        final int offset = buffer.getInt(HEADER_LENGTH + index * INDEX_ENTRY_LENGTH + 8);
+
+        // each reader uses its own view of the mapped buffer, so that concurrent reads do not share a position
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        return ComponentHistory.readFrom(view);
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the given identifier
+     */
+    private static long hash(final String componentId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < componentId.length(); i++) {
+            hash ^= componentId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "StatusSegment[file=" + file + ", resolution=" + resolutionMillis + " millis]";
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.swap;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.controller.repository.IncompleteSwapFileException;
+import org.apache.nifi.controller.repository.SwapContents;
+import org.apache.nifi.controller.repository.SwapSummary;
+import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
+import org.apache.nifi.controller.repository.schema.FlowFileRecordFieldMap;
+import org.apache.nifi.repository.schema.ComplexRecordField;
+import org.apache.nifi.repository.schema.Record;
+import org.apache.nifi.repository.schema.RecordField;
+import org.apache.nifi.repository.schema.RecordSchema;
+import org.apache.nifi.repository.schema.Repetition;
+import org.apache.nifi.repository.schema.SchemaRecordReader;
+
+/**
+ * Reads swap files that were written by the {@link CompressedSchemaSwapSerializer}.
+ */
+public class CompressedSchemaSwapDeserializer implements SwapDeserializer {
+
+    @Override
+    public SwapContents deserializeFlowFiles(final DataInputStream in, final String swapLocation, final FlowFileQueue queue, final ResourceClaimManager claimManager) throws IOException {
+        final RecordSchema schema = RecordSchema.readFrom(in);
+        final List<RecordField> summaryFields = schema.getField(SwapSchema.SWAP_SUMMARY).getSubFields();
+        final RecordField summaryRecordField = new ComplexRecordField(SwapSchema.SWAP_SUMMARY, Repetition.EXACTLY_ONE, summaryFields);
+        final RecordSchema summarySchema = new RecordSchema(Collections.singletonList(summaryRecordField));
+
+        final Record summaryRecordParent = SchemaRecordReader.fromSchema(summarySchema).readRecord(in);
+        if (summaryRecordParent == null) {
+            throw new EOFException("Failed to read swap file " + swapLocation + " because the file did not contain a Swap Summary");
+        }
+
+        final SwapSummary swapSummary = SwapSummaryFieldMap.getSwapSummary((Record) summaryRecordParent.getFieldValue(SwapSchema.SWAP_SUMMARY), claimManager);
+
+        final RecordSchema flowFileSchema = new RecordSchema(schema.getField(SwapSchema.FLOWFILE_CONTENTS).getSubFields());
+        final SchemaRecordReader flowFileReader = SchemaRecordReader.fromSchema(flowFileSchema);
+
+        final List<FlowFileRecord> flowFiles = new ArrayList<>(swapSummary.getQueueSize().getObjectCount());
+        final Inflater inflater = new Inflater();
+        try {
+            while (true) {
+                final byte[] compressedBatch;
+                final int batchSize;
+                try {
+                    batchSize = in.readInt();
+                    if (batchSize == 0) {
+                        break;
+                    }
+
+                    compressedBatch = new byte[in.readInt()];
+                    in.readFully(compressedBatch);
+                } catch (final EOFException eof) {
+                    throw new IncompleteSwapFileException(swapLocation, new StandardSwapContents(swapSummary, flowFiles));
+                }
+
+                inflater.reset();
+                try (final InputStream batchIn = new InflaterInputStream(new ByteArrayInputStream(compressedBatch), inflater)) {
+                    for (int i = 0; i < batchSize; i++) {
+                        final Record flowFileRecord = flowFileReader.readRecord(batchIn);
+                        if (flowFileRecord == null) {
+                            throw new IOException("Swap file " + swapLocation + " is corrupt: expected a batch of " + batchSize + " FlowFiles but found only " + i);
+                        }
+
+                        flowFiles.add(FlowFileRecordFieldMap.getFlowFile(flowFileRecord, claimManager));
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+
+        return new StandardSwapContents(swapSummary, flowFiles);
+    }
+
+    @Override
+    public SwapSummary getSwapSummary(final DataInputStream in, final String swapLocation, final ResourceClaimManager claimManager) throws IOException {
+        // The schema and summary are written exactly as the uncompressed schema-based serializer writes them.
+        return new SchemaSwapDeserializer().getSwapSummary(in, swapLocation, claimManager);
+    }
+
+    public static String getSerializationName() {
+        return CompressedSchemaSwapSerializer.SERIALIZATION_NAME;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.swap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.controller.repository.SwapSummary;
+import org.apache.nifi.controller.repository.schema.FlowFileRecordFieldMap;
+import org.apache.nifi.repository.schema.FieldMapRecord;
+import org.apache.nifi.repository.schema.FieldType;
+import org.apache.nifi.repository.schema.Record;
+import org.apache.nifi.repository.schema.RecordField;
+import org.apache.nifi.repository.schema.RecordSchema;
+import org.apache.nifi.repository.schema.Repetition;
+import org.apache.nifi.repository.schema.SchemaRecordWriter;
+import org.apache.nifi.repository.schema.SimpleRecordField;
+
+/**
+ * <p>
+ * A variant of the {@link SchemaSwapSerializer} that compresses the FlowFiles of a swap file in batches.
+ * </p>
+ *
+ * <p>
+ * The schema and the swap summary are written exactly as the {@link SchemaSwapSerializer} writes them, and they are
+ * not compressed, so that the summary of a swap file can be read without decompressing any of the FlowFiles. The
+ * summary is followed by the FlowFiles, in batches of up to {@value #BATCH_SIZE}. Each batch is written as the number
+ * of FlowFiles in the batch, the length of the compressed batch, and the FlowFile records compressed with DEFLATE.
+ * The last batch is followed by a batch size of 0. Because every batch can be decompressed on its own, a swap file
+ * that was not completely written can still be read up to the last complete batch.
+ * </p>
+ */
+public class CompressedSchemaSwapSerializer implements SwapSerializer {
+    static final String SERIALIZATION_NAME = "Compressed Schema Swap Serialization";
+    static final int BATCH_SIZE = 1000;
+
+    private final RecordSchema schema = SwapSchema.FULL_SWAP_FILE_SCHEMA_V1;
+    private final RecordSchema flowFileSchema = new RecordSchema(schema.getField(SwapSchema.FLOWFILE_CONTENTS).getSubFields());
+
+    @Override
+    public void serializeFlowFiles(final List<FlowFileRecord> toSwap, final FlowFileQueue queue, final String swapLocation, final OutputStream out) throws IOException {
+        schema.writeTo(out);
+
+        final SwapSummary swapSummary = StandardSwapSummary.summarize(toSwap);
+        final Record summaryRecord = new SwapSummaryFieldMap(swapSummary, queue.getIdentifier(), SwapSchema.SWAP_SUMMARY_SCHEMA_V1);
+        final RecordField summaryField = new SimpleRecordField(SwapSchema.SWAP_SUMMARY, FieldType.COMPLEX, Repetition.EXACTLY_ONE);
+        final Record summaryParentRecord = new FieldMapRecord(Collections.singletonMap(summaryField, summaryRecord), new RecordSchema(Collections.singletonList(summaryField)));
+
+        final SchemaRecordWriter writer = new SchemaRecordWriter();
+        writer.writeRecord(summaryParentRecord, out);
+
+        final DataOutputStream dos = new DataOutputStream(out);
+        final ByteArrayOutputStream batchBuffer = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            for (int batchStart = 0; batchStart < toSwap.size(); batchStart += BATCH_SIZE) {
+                final List<FlowFileRecord> batch = toSwap.subList(batchStart, Math.min(toSwap.size(), batchStart + BATCH_SIZE));
+
+                batchBuffer.reset();
+                deflater.reset();
+                try (final DeflaterOutputStream compressedOut = new DeflaterOutputStream(batchBuffer, deflater, 65536)) {
+                    for (final FlowFileRecord flowFile : batch) {
+                        writer.writeRecord(new FlowFileRecordFieldMap(flowFile, flowFileSchema), compressedOut);
+                    }
+                }
+
+                dos.writeInt(batch.size());
+                dos.writeInt(batchBuffer.size());
+                batchBuffer.writeTo(dos);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        dos.writeInt(0);
+        dos.flush();
+    }
+
+    @Override
+    public String getSerializationName() {
+        return SERIALIZATION_NAME;
+    }
+}
@@ -26,11 +26,8 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.apache.nifi.controller.queue.FlowFileQueue;
-import org.apache.nifi.controller.queue.QueueSize;
 import org.apache.nifi.controller.repository.FlowFileRecord;
 import org.apache.nifi.controller.repository.SwapSummary;
-import org.apache.nifi.controller.repository.claim.ContentClaim;
-import org.apache.nifi.controller.repository.claim.ResourceClaim;
 import org.apache.nifi.controller.repository.schema.FlowFileRecordFieldMap;
 import org.apache.nifi.controller.repository.schema.FlowFileSchema;
 import org.apache.nifi.repository.schema.ComplexRecordField;
@@ -53,23 +50,7 @@ public class SchemaSwapSerializer implements SwapSerializer {
     public void serializeFlowFiles(final List<FlowFileRecord> toSwap, final FlowFileQueue queue, final String swapLocation, final OutputStream out) throws IOException {
         schema.writeTo(out);
 
-        long contentSize = 0L;
-        long maxFlowFileId = -1L;
-        final List<ResourceClaim> resourceClaims = new ArrayList<>();
-        for (final FlowFileRecord flowFile : toSwap) {
-            contentSize += flowFile.getSize();
-            if (flowFile.getId() > maxFlowFileId) {
-                maxFlowFileId = flowFile.getId();
-            }
-
-            final ContentClaim contentClaim = flowFile.getContentClaim();
-            if (contentClaim != null) {
-                resourceClaims.add(contentClaim.getResourceClaim());
-            }
-        }
-
-        final QueueSize queueSize = new QueueSize(toSwap.size(), contentSize);
-        final SwapSummary swapSummary = new StandardSwapSummary(queueSize, maxFlowFileId, resourceClaims);
+        final SwapSummary swapSummary = StandardSwapSummary.summarize(toSwap);
         final Record summaryRecord = new SwapSummaryFieldMap(swapSummary, queue.getIdentifier(), SwapSchema.SWAP_SUMMARY_SCHEMA_V1);
 
         final List<Record> flowFileRecords = toSwap.stream()
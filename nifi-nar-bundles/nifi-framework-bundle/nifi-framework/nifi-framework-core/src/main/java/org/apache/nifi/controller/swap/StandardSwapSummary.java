@@ -17,11 +17,14 @@
 
 package org.apache.nifi.controller.swap;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import org.apache.nifi.controller.queue.QueueSize;
+import org.apache.nifi.controller.repository.FlowFileRecord;
 import org.apache.nifi.controller.repository.SwapSummary;
+import org.apache.nifi.controller.repository.claim.ContentClaim;
 import org.apache.nifi.controller.repository.claim.ResourceClaim;
 
 public class StandardSwapSummary implements SwapSummary {
@@ -37,6 +40,31 @@ public class StandardSwapSummary implements SwapSummary {
         this.resourceClaims = Collections.unmodifiableList(resourceClaims);
     }
 
+    /**
+     * Creates a SwapSummary that describes a swap file holding the given FlowFiles
+     *
+     * @param flowFiles the FlowFiles that are held by the swap file
+     * @return a SwapSummary for the given FlowFiles
+     */
+    public static SwapSummary summarize(final List<FlowFileRecord> flowFiles) {
+        long contentSize = 0L;
+        long maxFlowFileId = -1L;
+        final List<ResourceClaim> resourceClaims = new ArrayList<>();
+        for (final FlowFileRecord flowFile : flowFiles) {
+            contentSize += flowFile.getSize();
+            if (flowFile.getId() > maxFlowFileId) {
+                maxFlowFileId = flowFile.getId();
+            }
+
+            final ContentClaim contentClaim = flowFile.getContentClaim();
+            if (contentClaim != null) {
+                resourceClaims.add(contentClaim.getResourceClaim());
+            }
+        }
+
+        return new StandardSwapSummary(new QueueSize(flowFiles.size(), contentSize), maxFlowFileId, resourceClaims);
+    }
+
     @Override
     public QueueSize getQueueSize() {
         return queueSize;
@@ -110,7 +110,7 @@ public class ContinuallyRunProcessorTask implements Callable<Boolean> {
             }
         }
 
-        final long batchNanos = procNode.getRunDuration(TimeUnit.NANOSECONDS);
+        final long batchNanos = procNode.getCommitBatchDuration(TimeUnit.NANOSECONDS);
         final ProcessSessionFactory sessionFactory;
         final StandardProcessSession rawSession;
         final boolean batch;
@@ -126,6 +126,14 @@ public class ContinuallyRunProcessorTask implements Callable<Boolean> {
 
         scheduleState.incrementActiveThreadCount();
 
+        // The processor may have been stopped since this task was run. Once the active thread count has been incremented,
+        // the processor cannot finish stopping until this task completes, so checking here ensures that the processor is
+        // not triggered after its @OnStopped methods have been invoked.
+        if (!scheduleState.isScheduled()) {
+            scheduleState.decrementActiveThreadCount();
+            return false;
+        }
+
         final long startNanos = System.nanoTime();
         final long finishNanos = startNanos + batchNanos;
         int invocationCount = 0;
@@ -144,6 +152,10 @@ public class ContinuallyRunProcessorTask implements Callable<Boolean> {
                         return false;
                     }
 
+                    if (rawSession.getCheckpointedFlowFileCount() >= procNode.getCommitBatchMaxFlowFiles()) {
+                        return false;
+                    }
+
                     if (!isWorkToDo(procNode)) {
                         break;
                     }
@@ -17,6 +17,9 @@
 package org.apache.nifi.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
@@ -24,8 +27,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.nifi.controller.queue.FlowFileQueue;
@@ -35,8 +44,12 @@ import org.apache.nifi.controller.repository.SwapContents;
 import org.apache.nifi.controller.repository.SwapManagerInitializationContext;
 import org.apache.nifi.controller.repository.claim.ResourceClaim;
 import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
+import org.apache.nifi.controller.repository.claim.StandardResourceClaimManager;
+import org.apache.nifi.controller.swap.MockFlowFile;
 import org.apache.nifi.events.EventReporter;
+import org.apache.nifi.util.NiFiProperties;
 import org.junit.Test;
+import org.mockito.Matchers;
 import org.mockito.Mockito;
 
 public class TestFileSystemSwapManager {
@@ -63,6 +76,173 @@ public class TestFileSystemSwapManager {
         }
     }
 
+    @Test
+    public void testSwapInBeforeSwapFileWritten() throws IOException, InterruptedException {
+        final File repoDir = createRepositoryDirectory("target/swap-before-write");
+        final FlowFileRepository flowFileRepo = Mockito.mock(FlowFileRepository.class);
+        final FlowFileQueue flowFileQueue = createQueue();
+
+        // Block the only swap-out thread so that the swap file cannot be written
+        final ExecutorService swapOutExecutor = Executors.newSingleThreadExecutor();
+        final CountDownLatch writesBlocked = new CountDownLatch(1);
+        swapOutExecutor.submit(() -> {
+            writesBlocked.await();
+            return null;
+        });
+
+        final FileSystemSwapManager swapManager = createSwapManager(repoDir, false, flowFileRepo, swapOutExecutor, null);
+        final List<FlowFileRecord> toSwap = createFlowFiles(100);
+        final String swapLocation = swapManager.swapOut(toSwap, flowFileQueue);
+
+        assertEquals(100, swapManager.getSwapSummary(swapLocation).getQueueSize().getObjectCount());
+
+        final SwapContents contents = swapManager.swapIn(swapLocation, flowFileQueue);
+        assertEquals(100, contents.getFlowFiles().size());
+        for (int i = 0; i < toSwap.size(); i++) {
+            assertSame(toSwap.get(i), contents.getFlowFiles().get(i));
+        }
+
+        writesBlocked.countDown();
+        swapOutExecutor.shutdown();
+        assertTrue(swapOutExecutor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // The swap file must never have been written, nor the repository updated.
+        assertFalse(new File(swapLocation).exists());
+        assertEquals(0, new File(repoDir, "swap").list().length);
+        Mockito.verifyZeroInteractions(flowFileRepo);
+    }
+
+    @Test
+    public void testSwapOutInBackgroundAndPrefetch() throws IOException, InterruptedException {
+        final File repoDir = createRepositoryDirectory("target/swap-prefetch");
+        final FlowFileRepository flowFileRepo = Mockito.mock(FlowFileRepository.class);
+        final FlowFileQueue flowFileQueue = createQueue();
+
+        final ExecutorService swapOutExecutor = Executors.newSingleThreadExecutor();
+        final ExecutorService swapInExecutor = Executors.newSingleThreadExecutor();
+        final FileSystemSwapManager swapManager = createSwapManager(repoDir, true, flowFileRepo, swapOutExecutor, swapInExecutor);
+
+        final String swapLocation = swapManager.swapOut(createFlowFiles(2500), flowFileQueue);
+        swapOutExecutor.shutdown();
+        assertTrue(swapOutExecutor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(new File(swapLocation).exists());
+        Mockito.verify(flowFileRepo).swapFlowFilesOut(Matchers.anyListOf(FlowFileRecord.class), Matchers.eq(flowFileQueue), Matchers.eq(swapLocation));
+
+        // Prefetching swaps the FlowFiles in from the (compressed) swap file in the background
+        swapManager.prefetch(swapLocation, flowFileQueue);
+        swapInExecutor.shutdown();
+        assertTrue(swapInExecutor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertFalse(new File(swapLocation).exists());
+        Mockito.verify(flowFileRepo).swapFlowFilesIn(Matchers.eq(swapLocation), Matchers.anyListOf(FlowFileRecord.class), Matchers.eq(flowFileQueue));
+
+        final SwapContents contents = swapManager.swapIn(swapLocation, flowFileQueue);
+        assertEquals(2500, contents.getSummary().getQueueSize().getObjectCount());
+        assertEquals(2500, contents.getFlowFiles().size());
+        for (int i = 0; i < 2500; i++) {
+            final FlowFileRecord flowFile = contents.getFlowFiles().get(i);
+            assertEquals(String.valueOf(i), flowFile.getAttribute("i"));
+            assertEquals(i, flowFile.getSize());
+        }
+
+        Mockito.verify(flowFileRepo, Mockito.times(1)).swapFlowFilesIn(Matchers.anyString(), Matchers.anyListOf(FlowFileRecord.class), Matchers.any(FlowFileQueue.class));
+    }
+
+    @Test
+    public void testFailedSwapOutKeepsFlowFiles() throws IOException, InterruptedException {
+        final File repoDir = createRepositoryDirectory("target/swap-failed-write");
+        final FlowFileRepository flowFileRepo = Mockito.mock(FlowFileRepository.class);
+        Mockito.doThrow(new IOException("Intentional Unit Test Exception")).when(flowFileRepo)
+            .swapFlowFilesOut(Matchers.anyListOf(FlowFileRecord.class), Matchers.any(FlowFileQueue.class), Matchers.anyString());
+        final FlowFileQueue flowFileQueue = createQueue();
+
+        final ExecutorService swapOutExecutor = Executors.newSingleThreadExecutor();
+        final FileSystemSwapManager swapManager = createSwapManager(repoDir, false, flowFileRepo, swapOutExecutor, null);
+
+        final List<FlowFileRecord> toSwap = createFlowFiles(100);
+        final String swapLocation = swapManager.swapOut(toSwap, flowFileQueue);
+        swapOutExecutor.shutdown();
+        assertTrue(swapOutExecutor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // The swap file must not be left behind, as the repository does not know about it.
+        assertFalse(new File(swapLocation).exists());
+
+        final SwapContents contents = swapManager.swapIn(swapLocation, flowFileQueue);
+        assertEquals(toSwap, contents.getFlowFiles());
+        Mockito.verify(flowFileRepo, Mockito.never()).swapFlowFilesIn(Matchers.anyString(), Matchers.anyListOf(FlowFileRecord.class), Matchers.any(FlowFileQueue.class));
+    }
+
+    private File createRepositoryDirectory(final String path) {
+        final File repoDir = new File(path);
+        final File swapDir = new File(repoDir, "swap");
+        final File[] swapFiles = swapDir.listFiles();
+        if (swapFiles != null) {
+            for (final File swapFile : swapFiles) {
+                swapFile.delete();
+            }
+        }
+
+        return repoDir;
+    }
+
+    private FlowFileQueue createQueue() {
+        final FlowFileQueue flowFileQueue = Mockito.mock(FlowFileQueue.class);
+        Mockito.when(flowFileQueue.getIdentifier()).thenReturn("87bb99fe-412c-49f6-a441-d1b0af4e20b4");
+        return flowFileQueue;
+    }
+
+    private List<FlowFileRecord> createFlowFiles(final int count) {
+        final ResourceClaimManager resourceClaimManager = new StandardResourceClaimManager();
+        final List<FlowFileRecord> flowFiles = new ArrayList<>(count);
+        final Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            attributes.put("i", String.valueOf(i));
+            flowFiles.add(new MockFlowFile(attributes, i, resourceClaimManager));
+        }
+
+        return flowFiles;
+    }
+
+    private FileSystemSwapManager createSwapManager(final File repoDir, final boolean compress, final FlowFileRepository flowFileRepo,
+        final ExecutorService swapOutExecutor, final ExecutorService swapInExecutor) {
+
+        final Map<String, String> properties = new HashMap<>();
+        properties.put(NiFiProperties.FLOWFILE_REPOSITORY_DIRECTORY, repoDir.getAbsolutePath());
+        properties.put(NiFiProperties.SWAP_COMPRESSION_ENABLED, String.valueOf(compress));
+        final FileSystemSwapManager swapManager = new FileSystemSwapManager(NiFiProperties.createBasicNiFiProperties(null, properties));
+
+        final ResourceClaimManager resourceClaimManager = new StandardResourceClaimManager();
+        swapManager.initialize(new SwapManagerInitializationContext() {
+            @Override
+            public ResourceClaimManager getResourceClaimManager() {
+                return resourceClaimManager;
+            }
+
+            @Override
+            public FlowFileRepository getFlowFileRepository() {
+                return flowFileRepo;
+            }
+
+            @Override
+            public EventReporter getEventReporter() {
+                return EventReporter.NO_OP;
+            }
+
+            @Override
+            public ExecutorService getSwapOutExecutor() {
+                return swapOutExecutor;
+            }
+
+            @Override
+            public ExecutorService getSwapInExecutor() {
+                return swapInExecutor;
+            }
+        });
+
+        return swapManager;
+    }
+
 
     private FileSystemSwapManager createSwapManager() {
         final FileSystemSwapManager swapManager = new FileSystemSwapManager();
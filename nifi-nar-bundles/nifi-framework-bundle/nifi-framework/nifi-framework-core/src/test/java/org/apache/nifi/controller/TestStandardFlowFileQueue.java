@@ -42,6 +42,7 @@ import org.apache.nifi.controller.queue.DropFlowFileStatus;
 import org.apache.nifi.controller.queue.FlowFileQueue;
 import org.apache.nifi.controller.queue.ListFlowFileState;
 import org.apache.nifi.controller.queue.ListFlowFileStatus;
+import org.apache.nifi.controller.queue.LoadBalanceStrategy;
 import org.apache.nifi.controller.queue.QueueSize;
 import org.apache.nifi.controller.repository.FlowFileRecord;
 import org.apache.nifi.controller.repository.FlowFileRepository;
@@ -180,6 +181,48 @@ public class TestStandardFlowFileQueue {
         assertFalse(queue.isActiveQueueEmpty());
     }
 
+    @Test
+    public void testLoadBalancedFlowFilesCountTowardsBackPressure() {
+        queue.setBackPressureObjectThreshold(10);
+
+        // keep every other FlowFile on this node; the others are in transit to another node until acknowledged
+        final List<FlowFileRecord> sent = new ArrayList<>();
+        queue.setLoadBalancer((flowFileQueue, flowFiles) -> {
+            final List<FlowFileRecord> local = new ArrayList<>();
+            for (final FlowFileRecord flowFile : flowFiles) {
+                if (flowFile.getId() % 2 == 0) {
+                    local.add(flowFile);
+                } else {
+                    sent.add(flowFile);
+                }
+            }
+            return local;
+        });
+
+        // not balanced until a strategy is set
+        queue.put(new TestFlowFile());
+        assertEquals(1, queue.getActiveQueueSize().getObjectCount());
+
+        queue.setLoadBalanceStrategy(LoadBalanceStrategy.ROUND_ROBIN, null);
+        for (int i = 0; i < 9; i++) {
+            queue.put(new TestFlowFile());
+        }
+
+        assertEquals(5, sent.size());
+        assertEquals(5, queue.getActiveQueueSize().getObjectCount());
+        assertEquals(5, queue.getUnacknowledgedQueueSize().getObjectCount());
+        assertTrue(queue.isFull());
+
+        queue.acknowledge(sent);
+        assertEquals(0, queue.getUnacknowledgedQueueSize().getObjectCount());
+        assertFalse(queue.isFull());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartitionByAttributeRequiresAttribute() {
+        queue.setLoadBalanceStrategy(LoadBalanceStrategy.PARTITION_BY_ATTRIBUTE, " ");
+    }
+
     @Test
     public void testBackPressureAfterPollFilter() throws InterruptedException {
         queue.setBackPressureObjectThreshold(10);
@@ -382,6 +425,32 @@ public class TestStandardFlowFileQueue {
         queue.poll(exp);
     }
 
+    @Test
+    public void testNextSwapFilePrefetched() {
+        for (int i = 1; i <= 20000; i++) {
+            queue.put(new TestFlowFile());
+        }
+
+        assertEquals(1, swapManager.swappedOut.size());
+        final String swapLocation = swapManager.swappedOut.keySet().iterator().next();
+
+        final Set<FlowFileRecord> exp = new HashSet<>();
+        for (int i = 0; i < 5000; i++) {
+            assertNotNull(queue.poll(exp));
+        }
+        assertTrue(swapManager.prefetchedLocations.isEmpty());
+
+        // the active queue is now within SWAP_PREFETCH_COUNT of the swap-in threshold
+        assertNotNull(queue.poll(exp));
+        assertEquals(Collections.singletonList(swapLocation), swapManager.prefetchedLocations);
+
+        for (int i = 0; i < 5000; i++) {
+            assertNotNull(queue.poll(exp));
+        }
+        assertEquals(1, swapManager.swapInCalledCount);
+        assertEquals(1, swapManager.prefetchedLocations.size());
+    }
+
     @Test
     public void testQueueCountsUpdatedWhenIncompleteSwapFile() {
         for (int i = 1; i <= 20000; i++) {
@@ -532,6 +601,7 @@ public class TestStandardFlowFileQueue {
         private final Map<String, List<FlowFileRecord>> swappedOut = new HashMap<>();
         int swapOutCalledCount = 0;
         int swapInCalledCount = 0;
+        final List<String> prefetchedLocations = new ArrayList<>();
 
         private int incompleteSwapFileRecordsToInclude = -1;
 
@@ -552,6 +622,11 @@ public class TestStandardFlowFileQueue {
             return location;
         }
 
+        @Override
+        public void prefetch(final String swapLocation, final FlowFileQueue flowFileQueue) {
+            prefetchedLocations.add(swapLocation);
+        }
+
         private void throwIncompleteIfNecessary(final String swapLocation, final boolean remove) throws IOException {
             if (incompleteSwapFileRecordsToInclude > -1) {
                 final SwapSummary summary = getSwapSummary(swapLocation);
@@ -0,0 +1,627 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.nifi.connectable.Connectable;
+import org.apache.nifi.connectable.Connection;
+import org.apache.nifi.controller.queue.DropFlowFileState;
+import org.apache.nifi.controller.queue.DropFlowFileStatus;
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.queue.ListFlowFileState;
+import org.apache.nifi.controller.queue.ListFlowFileStatus;
+import org.apache.nifi.controller.queue.QueueSize;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.controller.repository.FlowFileRepository;
+import org.apache.nifi.controller.repository.FlowFileSwapManager;
+import org.apache.nifi.controller.repository.SwapContents;
+import org.apache.nifi.controller.repository.SwapManagerInitializationContext;
+import org.apache.nifi.controller.repository.SwapSummary;
+import org.apache.nifi.controller.repository.claim.ContentClaim;
+import org.apache.nifi.controller.repository.claim.ResourceClaim;
+import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
+import org.apache.nifi.controller.swap.StandardSwapContents;
+import org.apache.nifi.controller.swap.StandardSwapSummary;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.flowfile.FlowFilePrioritizer;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
+import org.apache.nifi.processor.FlowFileFilter;
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.apache.nifi.provenance.ProvenanceEventType;
+import org.apache.nifi.provenance.StandardProvenanceEventRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TestStripedFlowFileQueue {
+    private TestSwapManager swapManager = null;
+    private StripedFlowFileQueue queue = null;
+
+    private List<ProvenanceEventRecord> provRecords = new ArrayList<>();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        provRecords.clear();
+
+        final Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.getSource()).thenReturn(Mockito.mock(Connectable.class));
+        Mockito.when(connection.getDestination()).thenReturn(Mockito.mock(Connectable.class));
+
+        final ProcessScheduler scheduler = Mockito.mock(ProcessScheduler.class);
+        swapManager = new TestSwapManager();
+
+        final FlowFileRepository flowFileRepo = Mockito.mock(FlowFileRepository.class);
+        final ProvenanceEventRepository provRepo = Mockito.mock(ProvenanceEventRepository.class);
+        final ResourceClaimManager claimManager = Mockito.mock(ResourceClaimManager.class);
+
+        Mockito.when(provRepo.eventBuilder()).thenReturn(new StandardProvenanceEventRecord.Builder());
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final Iterable<ProvenanceEventRecord> iterable = (Iterable<ProvenanceEventRecord>) invocation.getArguments()[0];
+                for (final ProvenanceEventRecord record : iterable) {
+                    provRecords.add(record);
+                }
+                return null;
+            }
+        }).when(provRepo).registerEvents(Mockito.any(Iterable.class));
+
+        queue = new StripedFlowFileQueue("id", connection, flowFileRepo, provRepo, claimManager, scheduler, swapManager, null, 10000, 4);
+        TestFlowFile.idGenerator.set(0L);
+    }
+
+    @Test
+    public void testExpire() {
+        queue.setFlowFileExpiration("1 ms");
+
+        for (int i = 0; i < 100; i++) {
+            queue.put(new TestFlowFile());
+        }
+
+        // just make sure that the flowfiles have time to expire.
+        try {
+            Thread.sleep(100L);
+        } catch (final InterruptedException ie) {
+        }
+
+        final Set<FlowFileRecord> expiredRecords = new HashSet<>(100);
+        final FlowFileRecord pulled = queue.poll(expiredRecords);
+
+        assertNull(pulled);
+        assertEquals(100, expiredRecords.size());
+
+        final QueueSize activeSize = queue.getActiveQueueSize();
+        assertEquals(0, activeSize.getObjectCount());
+        assertEquals(0L, activeSize.getByteCount());
+
+        final QueueSize unackSize = queue.getUnacknowledgedQueueSize();
+        assertEquals(0, unackSize.getObjectCount());
+        assertEquals(0L, unackSize.getByteCount());
+    }
+
+    @Test
+    public void testBackPressure() {
+        queue.setBackPressureObjectThreshold(10);
+
+        assertTrue(queue.isEmpty());
+        assertTrue(queue.isActiveQueueEmpty());
+        assertFalse(queue.isFull());
+
+        for (int i = 0; i < 9; i++) {
+            queue.put(new TestFlowFile());
+            assertFalse(queue.isFull());
+            assertFalse(queue.isEmpty());
+            assertFalse(queue.isActiveQueueEmpty());
+        }
+
+        queue.put(new TestFlowFile());
+        assertTrue(queue.isFull());
+
+        final Set<FlowFileRecord> expiredRecords = new HashSet<>();
+        final FlowFileRecord polled = queue.poll(expiredRecords);
+        assertNotNull(polled);
+        assertTrue(expiredRecords.isEmpty());
+
+        // queue is still full because FlowFile has not yet been acknowledged.
+        assertTrue(queue.isFull());
+        queue.acknowledge(polled);
+
+        // FlowFile has been acknowledged; queue should no longer be full.
+        assertFalse(queue.isFull());
+        assertFalse(queue.isEmpty());
+        assertFalse(queue.isActiveQueueEmpty());
+    }
+
+    @Test
+    public void testFifoWithoutPrioritizers() {
+        for (int i = 0; i < 1000; i++) {
+            queue.put(new TestFlowFile());
+        }
+
+        final List<FlowFileRecord> polled = queue.poll(1000, new HashSet<FlowFileRecord>());
+        assertEquals(1000, polled.size());
+
+        // all FlowFiles were put by the same thread, so they are all held by the same stripe, in order.
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, polled.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testPenalizedFlowFilesSetAside() {
+        final long penaltyExpiration = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5L);
+        queue.put(new TestFlowFile(new HashMap<String, String>(), 1L, penaltyExpiration));
+        queue.put(new TestFlowFile());
+
+        final Set<FlowFileRecord> expired = new HashSet<>();
+        final FlowFileRecord first = queue.poll(expired);
+        assertNotNull(first);
+        assertEquals(1L, first.getId());
+        assertNull(queue.poll(expired));
+
+        assertEquals(1, queue.getActiveQueueSize().getObjectCount());
+        assertEquals(1, queue.getUnacknowledgedQueueSize().getObjectCount());
+    }
+
+    @Test
+    public void testPrioritizersMergeStripes() {
+        final List<FlowFilePrioritizer> prioritizers = new ArrayList<>();
+        prioritizers.add(new FlowFileSizePrioritizer());
+
+        final int threads = 4;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int threadIndex = t;
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 100; i++) {
+                            queue.put(new TestFlowFile(1000 - (i * threads + threadIndex)));
+                        }
+                        latch.countDown();
+                    }
+                });
+            }
+
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+
+        queue.setPriorities(prioritizers);
+        assertEquals(prioritizers, queue.getPriorities());
+
+        final List<FlowFileRecord> polled = queue.poll(400, new HashSet<FlowFileRecord>());
+        assertEquals(400, polled.size());
+        for (int i = 1; i < polled.size(); i++) {
+            assertTrue(polled.get(i - 1).getSize() <= polled.get(i).getSize());
+        }
+    }
+
+    @Test
+    public void testPollWithFilter() {
+        for (int i = 0; i < 100; i++) {
+            queue.put(new TestFlowFile(i));
+        }
+
+        final FlowFileFilter evenSizeFilter = new FlowFileFilter() {
+            @Override
+            public FlowFileFilterResult filter(final FlowFile flowFile) {
+                return flowFile.getSize() % 2 == 0 ? FlowFileFilterResult.ACCEPT_AND_CONTINUE : FlowFileFilterResult.REJECT_AND_CONTINUE;
+            }
+        };
+
+        final List<FlowFileRecord> selected = queue.poll(evenSizeFilter, new HashSet<FlowFileRecord>());
+        assertEquals(50, selected.size());
+        assertEquals(50, queue.getActiveQueueSize().getObjectCount());
+        assertEquals(50, queue.getUnacknowledgedQueueSize().getObjectCount());
+
+        // unselected FlowFiles retain their order
+        final List<FlowFileRecord> remaining = queue.poll(100, new HashSet<FlowFileRecord>());
+        assertEquals(50, remaining.size());
+        for (int i = 0; i < remaining.size(); i++) {
+            assertEquals(i * 2 + 1, remaining.get(i).getSize());
+        }
+    }
+
+    @Test
+    public void testSwapOutOccurs() {
+        for (int i = 0; i < 10000; i++) {
+            queue.put(new TestFlowFile());
+            assertEquals(0, swapManager.swapOutCalledCount);
+            assertEquals(i + 1, queue.size().getObjectCount());
+            assertEquals(i + 1, queue.size().getByteCount());
+        }
+
+        for (int i = 0; i < 9999; i++) {
+            queue.put(new TestFlowFile());
+            assertEquals(0, swapManager.swapOutCalledCount);
+            assertEquals(i + 10001, queue.size().getObjectCount());
+            assertEquals(i + 10001, queue.size().getByteCount());
+        }
+
+        queue.put(new TestFlowFile(1000));
+        assertEquals(1, swapManager.swapOutCalledCount);
+        assertEquals(20000, queue.size().getObjectCount());
+        assertEquals(20999, queue.size().getByteCount());
+
+        assertEquals(10000, queue.getActiveQueueSize().getObjectCount());
+    }
+
+    @Test
+    public void testLowestPrioritySwappedOutFirst() {
+        final List<FlowFilePrioritizer> prioritizers = new ArrayList<>();
+        prioritizers.add(new FlowFileSizePrioritizer());
+        queue.setPriorities(prioritizers);
+
+        long maxSize = 20000;
+        for (int i = 1; i <= 20000; i++) {
+            queue.put(new TestFlowFile(maxSize - i));
+        }
+
+        assertEquals(1, swapManager.swapOutCalledCount);
+        assertEquals(20000, queue.size().getObjectCount());
+
+        assertEquals(10000, queue.getActiveQueueSize().getObjectCount());
+        final List<FlowFileRecord> flowFiles = queue.poll(Integer.MAX_VALUE, new HashSet<FlowFileRecord>());
+        assertEquals(10000, flowFiles.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, flowFiles.get(i).getSize());
+        }
+    }
+
+    @Test
+    public void testSwapInPreservesOrder() {
+        for (int i = 1; i <= 20000; i++) {
+            queue.put(new TestFlowFile());
+        }
+
+        assertEquals(1, swapManager.swappedOut.size());
+        queue.put(new TestFlowFile());
+        assertEquals(1, swapManager.swappedOut.size());
+
+        final Set<FlowFileRecord> exp = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            final FlowFileRecord flowFile = queue.poll(exp);
+            assertNotNull(flowFile);
+            assertEquals(i, flowFile.getId());
+            queue.acknowledge(Collections.singleton(flowFile));
+        }
+
+        assertEquals(0, swapManager.swapInCalledCount);
+        assertEquals(0, queue.getActiveQueueSize().getObjectCount());
+
+        // this should trigger a swap-in of 10,000 records, and then pull 1 off the top.
+        final FlowFileRecord swappedIn = queue.poll(exp);
+        assertNotNull(swappedIn);
+        assertEquals(1, swapManager.swapInCalledCount);
+        assertEquals(9999, queue.getActiveQueueSize().getObjectCount());
+        assertTrue(swapManager.swappedOut.isEmpty());
+        queue.acknowledge(swappedIn);
+
+        final List<FlowFileRecord> remaining = queue.poll(Integer.MAX_VALUE, exp);
+        queue.acknowledge(remaining);
+        final List<FlowFileRecord> migrated = queue.poll(Integer.MAX_VALUE, exp);
+        assertEquals(1, migrated.size());
+        assertEquals(20000L, migrated.get(0).getId());
+        queue.acknowledge(migrated);
+
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(timeout = 120000)
+    public void testDropSwappedFlowFiles() {
+        for (int i = 1; i <= 30000; i++) {
+            queue.put(new TestFlowFile());
+        }
+
+        assertEquals(2, swapManager.swappedOut.size());
+        final DropFlowFileStatus status = queue.dropFlowFiles("1", "Unit Test");
+        while (status.getState() != DropFlowFileState.COMPLETE) {
+            try {
+                Thread.sleep(100L);
+            } catch (final Exception e) {
+            }
+        }
+
+        assertEquals(0, queue.size().getObjectCount());
+        assertEquals(0, queue.size().getByteCount());
+        assertEquals(0, swapManager.swappedOut.size());
+        assertEquals(2, swapManager.swapInCalledCount);
+        assertEquals(30000, provRecords.size());
+        assertEquals(ProvenanceEventType.DROP, provRecords.get(0).getEventType());
+    }
+
+    @Test(timeout = 5000)
+    public void testListFlowFilesResultsLimited() throws InterruptedException {
+        for (int i = 0; i < 30050; i++) {
+            queue.put(new TestFlowFile());
+        }
+
+        final ListFlowFileStatus status = queue.listFlowFiles(UUID.randomUUID().toString(), 100);
+        assertNotNull(status);
+        assertEquals(30050, status.getQueueSize().getObjectCount());
+
+        while (status.getState() != ListFlowFileState.COMPLETE) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(100, status.getFlowFileSummaries().size());
+        assertEquals(100, status.getCompletionPercentage());
+        assertNull(status.getFailureReason());
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentProducersAndConsumers() throws InterruptedException {
+        final int producers = 8;
+        final int consumers = 8;
+        final int flowFilesPerProducer = 5000;
+        final int totalFlowFiles = producers * flowFilesPerProducer;
+
+        final Set<Long> consumed = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        final AtomicInteger consumedCount = new AtomicInteger(0);
+        final CountDownLatch producersFinished = new CountDownLatch(producers);
+        final CountDownLatch consumersFinished = new CountDownLatch(consumers);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            for (int i = 0; i < producers; i++) {
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < flowFilesPerProducer; j++) {
+                            queue.put(new TestFlowFile());
+                        }
+                        producersFinished.countDown();
+                    }
+                });
+            }
+
+            for (int i = 0; i < consumers; i++) {
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        final Set<FlowFileRecord> expired = new HashSet<>();
+                        while (consumedCount.get() < totalFlowFiles) {
+                            final List<FlowFileRecord> polled = queue.poll(10, expired);
+                            for (final FlowFileRecord flowFile : polled) {
+                                consumed.add(flowFile.getId());
+                            }
+                            consumedCount.addAndGet(polled.size());
+                            queue.acknowledge(polled);
+                        }
+                        consumersFinished.countDown();
+                    }
+                });
+            }
+
+            assertTrue(producersFinished.await(30, TimeUnit.SECONDS));
+            assertTrue(consumersFinished.await(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(totalFlowFiles, consumedCount.get());
+        assertEquals(totalFlowFiles, consumed.size());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size().getByteCount());
+    }
+
+
+    private class TestSwapManager implements FlowFileSwapManager {
+        private final Map<String, List<FlowFileRecord>> swappedOut = new HashMap<>();
+        int swapOutCalledCount = 0;
+        int swapInCalledCount = 0;
+
+        @Override
+        public void initialize(final SwapManagerInitializationContext initializationContext) {
+
+        }
+
+        @Override
+        public String swapOut(List<FlowFileRecord> flowFiles, FlowFileQueue flowFileQueue) throws IOException {
+            swapOutCalledCount++;
+            final String location = UUID.randomUUID().toString();
+            swappedOut.put(location, new ArrayList<>(flowFiles));
+            return location;
+        }
+
+        @Override
+        public SwapContents peek(String swapLocation, final FlowFileQueue flowFileQueue) throws IOException {
+            return new StandardSwapContents(getSwapSummary(swapLocation), swappedOut.get(swapLocation));
+        }
+
+        @Override
+        public SwapContents swapIn(String swapLocation, FlowFileQueue flowFileQueue) throws IOException {
+            swapInCalledCount++;
+            final SwapSummary summary = getSwapSummary(swapLocation);
+            return new StandardSwapContents(summary, swappedOut.remove(swapLocation));
+        }
+
+        @Override
+        public List<String> recoverSwapLocations(FlowFileQueue flowFileQueue) throws IOException {
+            return new ArrayList<>(swappedOut.keySet());
+        }
+
+        @Override
+        public SwapSummary getSwapSummary(String swapLocation) throws IOException {
+            final List<FlowFileRecord> flowFiles = swappedOut.get(swapLocation);
+            if (flowFiles == null) {
+                return StandardSwapSummary.EMPTY_SUMMARY;
+            }
+
+            int count = 0;
+            long size = 0L;
+            Long max = null;
+            final List<ResourceClaim> resourceClaims = new ArrayList<>();
+            for (final FlowFileRecord flowFile : flowFiles) {
+                count++;
+                size += flowFile.getSize();
+                if (max == null || flowFile.getId() > max) {
+                    max = flowFile.getId();
+                }
+
+                if (flowFile.getContentClaim() != null) {
+                    resourceClaims.add(flowFile.getContentClaim().getResourceClaim());
+                }
+            }
+
+            return new StandardSwapSummary(new QueueSize(count, size), max, resourceClaims);
+        }
+
+        @Override
+        public void purge() {
+            swappedOut.clear();
+        }
+    }
+
+
+    private static class TestFlowFile implements FlowFileRecord {
+        private static final AtomicLong idGenerator = new AtomicLong(0L);
+
+        private final long id = idGenerator.getAndIncrement();
+        private final long entryDate = System.currentTimeMillis();
+        private final Map<String, String> attributes;
+        private final long size;
+        private final long penaltyExpiration;
+
+        public TestFlowFile() {
+            this(1L);
+        }
+
+        public TestFlowFile(final long size) {
+            this(new HashMap<String, String>(), size, 0L);
+        }
+
+        public TestFlowFile(final Map<String, String> attributes, final long size, final long penaltyExpiration) {
+            this.attributes = attributes;
+            this.size = size;
+            this.penaltyExpiration = penaltyExpiration;
+
+            if (!attributes.containsKey(CoreAttributes.UUID.key())) {
+                attributes.put(CoreAttributes.UUID.key(), UUID.randomUUID().toString());
+            }
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public long getEntryDate() {
+            return entryDate;
+        }
+
+        @Override
+        public long getLineageStartDate() {
+            return entryDate;
+        }
+
+        @Override
+        public Long getLastQueueDate() {
+            return null;
+        }
+
+        @Override
+        public boolean isPenalized() {
+            return penaltyExpiration > System.currentTimeMillis();
+        }
+
+        @Override
+        public String getAttribute(String key) {
+            return attributes.get(key);
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public Map<String, String> getAttributes() {
+            return Collections.unmodifiableMap(attributes);
+        }
+
+        @Override
+        public int compareTo(final FlowFile o) {
+            return Long.compare(id, o.getId());
+        }
+
+        @Override
+        public long getPenaltyExpirationMillis() {
+            return penaltyExpiration;
+        }
+
+        @Override
+        public ContentClaim getContentClaim() {
+            return null;
+        }
+
+        @Override
+        public long getContentClaimOffset() {
+            return 0;
+        }
+
+        @Override
+        public long getLineageStartIndex() {
+            return 0;
+        }
+
+        @Override
+        public long getQueueDateIndex() {
+            return 0;
+        }
+    }
+
+    private static class FlowFileSizePrioritizer implements FlowFilePrioritizer {
+        @Override
+        public int compare(final FlowFile o1, final FlowFile o2) {
+            return Long.compare(o1.getSize(), o2.getSize());
+        }
+    }
+}
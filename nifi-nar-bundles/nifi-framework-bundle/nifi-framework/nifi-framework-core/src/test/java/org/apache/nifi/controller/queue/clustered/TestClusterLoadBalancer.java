@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.queue.clustered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.nifi.cluster.coordination.ClusterCoordinator;
+import org.apache.nifi.cluster.coordination.node.NodeConnectionState;
+import org.apache.nifi.cluster.protocol.NodeIdentifier;
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.queue.LoadBalanceStrategy;
+import org.apache.nifi.controller.repository.ContentRepository;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.controller.repository.FlowFileRepository;
+import org.apache.nifi.controller.repository.RepositoryRecord;
+import org.apache.nifi.controller.repository.RepositoryRecordType;
+import org.apache.nifi.controller.repository.StandardFlowFileRecord;
+import org.apache.nifi.controller.repository.VolatileContentRepository;
+import org.apache.nifi.controller.repository.claim.ContentClaim;
+import org.apache.nifi.controller.repository.claim.StandardResourceClaimManager;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
+import org.apache.nifi.io.socket.ServerSocketConfiguration;
+import org.apache.nifi.io.socket.SocketConfiguration;
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.apache.nifi.provenance.ProvenanceEventType;
+import org.apache.nifi.provenance.StandardProvenanceEventRecord;
+import org.apache.nifi.stream.io.StreamUtils;
+import org.apache.nifi.util.NiFiProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestClusterLoadBalancer {
+
+    private static final String CONNECTION_ID = "connection-1";
+
+    private final AtomicLong idGenerator = new AtomicLong(0L);
+    private ScheduledExecutorService executor;
+    private ClusterCoordinator clusterCoordinator;
+    private final Set<NodeIdentifier> connectedNodes = new HashSet<>();
+    private NodeIdentifier localNodeId;
+
+    private VolatileContentRepository contentRepo;
+    private FlowFileRepository flowFileRepo;
+    private final List<RepositoryRecord> repoRecords = Collections.synchronizedList(new ArrayList<>());
+    private final List<ProvenanceEventRecord> provRecords = Collections.synchronizedList(new ArrayList<>());
+    private ProvenanceEventRepository provRepo;
+    private ClusterLoadBalancer loadBalancer;
+
+    private LoadBalanceServer server;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        executor = Executors.newScheduledThreadPool(2);
+
+        localNodeId = createNodeId("node-2", 1);
+        clusterCoordinator = Mockito.mock(ClusterCoordinator.class);
+        Mockito.when(clusterCoordinator.getLocalNodeIdentifier()).thenReturn(localNodeId);
+        Mockito.when(clusterCoordinator.isConnected()).thenReturn(true);
+        Mockito.when(clusterCoordinator.getNodeIdentifiers(NodeConnectionState.CONNECTED)).thenAnswer(invocation -> new HashSet<>(connectedNodes));
+        connectedNodes.add(localNodeId);
+
+        contentRepo = createContentRepository();
+        flowFileRepo = Mockito.mock(FlowFileRepository.class);
+        Mockito.doAnswer(invocation -> repoRecords.addAll((Collection<RepositoryRecord>) invocation.getArguments()[0]))
+            .when(flowFileRepo).updateRepository(Mockito.any(Collection.class));
+        provRepo = createProvenanceRepository(provRecords);
+
+        final SocketConfiguration socketConfiguration = new SocketConfiguration();
+        socketConfiguration.setSocketTimeout(LoadBalanceProtocol.SOCKET_TIMEOUT_MILLIS);
+        loadBalancer = new ClusterLoadBalancer(clusterCoordinator, flowFileRepo, contentRepo, provRepo, new StandardResourceClaimManager(), socketConfiguration, executor);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        executor.shutdownNow();
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private NodeIdentifier createNodeId(final String id, final int loadBalancePort) {
+        return new NodeIdentifier(id, "localhost", 8080, "localhost", 8081, null, null, null, false, "localhost", loadBalancePort, null);
+    }
+
+    private VolatileContentRepository createContentRepository() {
+        final VolatileContentRepository repo = new VolatileContentRepository(Mockito.mock(NiFiProperties.class));
+        repo.initialize(new StandardResourceClaimManager());
+        return repo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProvenanceEventRepository createProvenanceRepository(final List<ProvenanceEventRecord> records) throws IOException {
+        final ProvenanceEventRepository repo = Mockito.mock(ProvenanceEventRepository.class);
+        Mockito.when(repo.eventBuilder()).thenAnswer(invocation -> new StandardProvenanceEventRecord.Builder());
+        Mockito.doAnswer(invocation -> {
+            for (final ProvenanceEventRecord record : (Iterable<ProvenanceEventRecord>) invocation.getArguments()[0]) {
+                records.add(record);
+            }
+            return null;
+        }).when(repo).registerEvents(Mockito.any(Iterable.class));
+        return repo;
+    }
+
+    private FlowFileQueue createQueue(final LoadBalanceStrategy strategy, final String partitioningAttribute) {
+        final FlowFileQueue queue = Mockito.mock(FlowFileQueue.class);
+        Mockito.when(queue.getIdentifier()).thenReturn(CONNECTION_ID);
+        Mockito.when(queue.getLoadBalanceStrategy()).thenReturn(strategy);
+        Mockito.when(queue.getPartitioningAttribute()).thenReturn(partitioningAttribute);
+        return queue;
+    }
+
+    private FlowFileRecord createFlowFile(final Map<String, String> attributes, final byte[] content) throws IOException {
+        final ContentClaim claim = contentRepo.create(false);
+        try (final OutputStream out = contentRepo.write(claim)) {
+            out.write(content);
+        }
+
+        return new StandardFlowFileRecord.Builder()
+            .id(idGenerator.getAndIncrement())
+            .addAttributes(attributes)
+            .addAttribute(CoreAttributes.UUID.key(), UUID.randomUUID().toString())
+            .contentClaim(claim)
+            .size(content.length)
+            .build();
+    }
+
+    private FlowFileRecord createFlowFile(final String attributeValue) throws IOException {
+        return createFlowFile(Collections.singletonMap("partition", attributeValue), attributeValue.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void startServer(final FlowFileQueue receivingQueue, final FlowFileRepository receivingFlowFileRepo, final ContentRepository receivingContentRepo,
+            final ProvenanceEventRepository receivingProvRepo) throws IOException {
+        server = new LoadBalanceServer(2, 0, new ServerSocketConfiguration(), id -> receivingQueue == null || !id.equals(receivingQueue.getIdentifier()) ? null : receivingQueue,
+            receivingFlowFileRepo, receivingContentRepo, receivingProvRepo);
+        server.start();
+
+        connectedNodes.add(createNodeId("node-1", server.getPort()));
+        loadBalancer.refreshMembership();
+    }
+
+    @Test
+    public void testKeepsFlowFilesWhenNotConnected() throws IOException {
+        connectedNodes.add(createNodeId("node-1", 1));
+        connectedNodes.add(createNodeId("node-3", 1));
+        Mockito.when(clusterCoordinator.isConnected()).thenReturn(false);
+        loadBalancer.refreshMembership();
+
+        final List<FlowFileRecord> flowFiles = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            flowFiles.add(createFlowFile(String.valueOf(i)));
+        }
+
+        final FlowFileQueue queue = createQueue(LoadBalanceStrategy.ROUND_ROBIN, null);
+        assertEquals(flowFiles, loadBalancer.distribute(queue, flowFiles));
+        assertEquals(0, loadBalancer.getPendingCount());
+    }
+
+    @Test
+    public void testIgnoresNodesWithoutLoadBalancePort() throws IOException {
+        connectedNodes.add(new NodeIdentifier("node-1", "localhost", 8080, "localhost", 8081, null, null, null, false));
+        loadBalancer.refreshMembership();
+
+        final List<FlowFileRecord> flowFiles = Collections.singletonList(createFlowFile("a"));
+        final FlowFileQueue queue = createQueue(LoadBalanceStrategy.SINGLE_NODE, null);
+        assertEquals(flowFiles, loadBalancer.distribute(queue, flowFiles));
+    }
+
+    @Test
+    public void testRoundRobin() throws IOException {
+        // the nodes are not listening, but nothing is sent before the pending FlowFiles are checked
+        executor.shutdownNow();
+        executor = Mockito.mock(ScheduledExecutorService.class);
+        loadBalancer = new ClusterLoadBalancer(clusterCoordinator, flowFileRepo, contentRepo, provRepo, new StandardResourceClaimManager(), new SocketConfiguration(), executor);
+        connectedNodes.add(createNodeId("node-1", 1));
+        connectedNodes.add(createNodeId("node-3", 1));
+        loadBalancer.refreshMembership();
+
+        final List<FlowFileRecord> flowFiles = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            flowFiles.add(createFlowFile(String.valueOf(i)));
+        }
+
+        final FlowFileQueue queue = createQueue(LoadBalanceStrategy.ROUND_ROBIN, null);
+        final List<FlowFileRecord> local = loadBalancer.distribute(queue, flowFiles);
+        assertEquals(3, local.size());
+        assertEquals(6, loadBalancer.getPendingCount());
+
+        // node-2 is second in order, so it gets every third FlowFile starting with the second one
+        assertEquals(flowFiles.get(1), local.get(0));
+        assertEquals(flowFiles.get(4), local.get(1));
+        assertEquals(flowFiles.get(7), local.get(2));
+    }
+
+    @Test
+    public void testPartitionByAttribute() throws IOException {
+        executor.shutdownNow();
+        executor = Mockito.mock(ScheduledExecutorService.class);
+        loadBalancer = new ClusterLoadBalancer(clusterCoordinator, flowFileRepo, contentRepo, provRepo, new StandardResourceClaimManager(), new SocketConfiguration(), executor);
+        connectedNodes.add(createNodeId("node-1", 1));
+        connectedNodes.add(createNodeId("node-3", 1));
+        loadBalancer.refreshMembership();
+
+        final FlowFileQueue queue = createQueue(LoadBalanceStrategy.PARTITION_BY_ATTRIBUTE, "partition");
+        for (int i = 0; i < 20; i++) {
+            final String value = "value-" + i;
+            final boolean expectLocal = Math.floorMod(value.hashCode(), 3) == 1;
+
+            // every FlowFile with the same value goes to the same node
+            for (int j = 0; j < 3; j++) {
+                final List<FlowFileRecord> local = loadBalancer.distribute(queue, Collections.singletonList(createFlowFile(value)));
+                assertEquals(expectLocal ? 1 : 0, local.size());
+            }
+        }
+
+        // FlowFiles without the attribute go to the first node
+        final List<FlowFileRecord> local = loadBalancer.distribute(queue, Collections.singletonList(createFlowFile(Collections.emptyMap(), new byte[] {1})));
+        assertTrue(local.isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testSendToNode() throws IOException, InterruptedException {
+        final FlowFileQueue receivingQueue = createQueue(LoadBalanceStrategy.SINGLE_NODE, null);
+        final BlockingQueue<FlowFileRecord> received = new LinkedBlockingQueue<>();
+        Mockito.doAnswer(invocation -> {
+            for (final Object flowFile : (Collection<?>) invocation.getArguments()[0]) {
+                received.add((FlowFileRecord) flowFile);
+            }
+            return null;
+        }).when(receivingQueue).putAllLocally(Mockito.anyCollection());
+
+        final List<RepositoryRecord> receivingRepoRecords = Collections.synchronizedList(new ArrayList<>());
+        final FlowFileRepository receivingFlowFileRepo = Mockito.mock(FlowFileRepository.class);
+        Mockito.when(receivingFlowFileRepo.getNextFlowFileSequence()).thenAnswer(invocation -> idGenerator.getAndIncrement());
+        Mockito.doAnswer(invocation -> receivingRepoRecords.addAll((Collection<RepositoryRecord>) invocation.getArguments()[0]))
+            .when(receivingFlowFileRepo).updateRepository(Mockito.anyCollection());
+        final List<ProvenanceEventRecord> receivingProvRecords = Collections.synchronizedList(new ArrayList<>());
+        final VolatileContentRepository receivingContentRepo = createContentRepository();
+        startServer(receivingQueue, receivingFlowFileRepo, receivingContentRepo, createProvenanceRepository(receivingProvRecords));
+
+        final FlowFileQueue queue = createQueue(LoadBalanceStrategy.SINGLE_NODE, null);
+        final List<FlowFileRecord> acknowledged = Collections.synchronizedList(new ArrayList<>());
+        Mockito.doAnswer(invocation -> acknowledged.addAll((Collection<FlowFileRecord>) invocation.getArguments()[0]))
+            .when(queue).acknowledge(Mockito.anyCollection());
+
+        final List<FlowFileRecord> flowFiles = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final Map<String, String> attributes = new HashMap<>();
+            attributes.put("index", String.valueOf(i));
+            attributes.put("filename", "file-" + i);
+            flowFiles.add(createFlowFile(attributes, ("Hello " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // node-1 is first in order, so it receives all FlowFiles
+        assertTrue(loadBalancer.distribute(queue, flowFiles).isEmpty());
+
+        final Map<String, FlowFileRecord> receivedByIndex = new HashMap<>();
+        while (receivedByIndex.size() < flowFiles.size()) {
+            final FlowFileRecord flowFile = received.poll(10, TimeUnit.SECONDS);
+            receivedByIndex.put(flowFile.getAttribute("index"), flowFile);
+        }
+
+        for (int i = 0; i < flowFiles.size(); i++) {
+            final FlowFileRecord flowFile = receivedByIndex.get(String.valueOf(i));
+            assertEquals("file-" + i, flowFile.getAttribute("filename"));
+
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            try (final InputStream in = receivingContentRepo.read(flowFile.getContentClaim())) {
+                StreamUtils.copy(in, content);
+            }
+            assertEquals("Hello " + i, new String(content.toByteArray(), StandardCharsets.UTF_8));
+        }
+
+        assertEquals(flowFiles.size(), receivingRepoRecords.size());
+        for (final RepositoryRecord record : receivingRepoRecords) {
+            assertEquals(RepositoryRecordType.CREATE, record.getType());
+        }
+        assertEquals(flowFiles.size(), receivingProvRecords.size());
+        assertEquals(ProvenanceEventType.RECEIVE, receivingProvRecords.get(0).getEventType());
+
+        // the sender removes the FlowFiles once the receiver has confirmed the transaction
+        final long maxTime = System.currentTimeMillis() + 10000L;
+        while (acknowledged.size() < flowFiles.size() && System.currentTimeMillis() < maxTime) {
+            Thread.sleep(10L);
+        }
+        assertEquals(flowFiles.size(), acknowledged.size());
+        assertEquals(flowFiles.size(), repoRecords.size());
+        for (final RepositoryRecord record : repoRecords) {
+            assertEquals(RepositoryRecordType.DELETE, record.getType());
+        }
+        assertEquals(flowFiles.size(), provRecords.size());
+        assertEquals(ProvenanceEventType.SEND, provRecords.get(0).getEventType());
+        assertEquals(0, loadBalancer.getPendingCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testKeepsFlowFilesWhenConnectionNotFound() throws IOException, InterruptedException {
+        startServer(null, Mockito.mock(FlowFileRepository.class), createContentRepository(), createProvenanceRepository(new ArrayList<>()));
+
+        final FlowFileQueue queue = createQueue(LoadBalanceStrategy.SINGLE_NODE, null);
+        final BlockingQueue<FlowFileRecord> keptLocally = new LinkedBlockingQueue<>();
+        Mockito.doAnswer(invocation -> {
+            for (final Object flowFile : (Collection<?>) invocation.getArguments()[0]) {
+                keptLocally.add((FlowFileRecord) flowFile);
+            }
+            return null;
+        }).when(queue).putAllLocally(Mockito.anyCollection());
+
+        final FlowFileRecord flowFile = createFlowFile("a");
+        assertTrue(loadBalancer.distribute(queue, Collections.singletonList(flowFile)).isEmpty());
+
+        assertEquals(flowFile, keptLocally.poll(10, TimeUnit.SECONDS));
+        Mockito.verify(queue).acknowledge(Collections.singletonList(flowFile));
+        assertTrue(repoRecords.isEmpty());
+    }
+}
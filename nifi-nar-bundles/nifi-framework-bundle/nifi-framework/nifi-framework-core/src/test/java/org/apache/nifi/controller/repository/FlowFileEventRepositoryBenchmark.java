@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.repository;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the throughput of the RingBufferEventRepository and the LongAdderEventRepository when 64 threads
+ * update the repository at once, as happens when many concurrent tasks of the same component commit their
+ * sessions. This is not run as part of the build; to run it, build the test classes with the 'benchmarks'
+ * profile enabled and execute the main method from the test classpath. Running with '-prof gc' additionally
+ * shows the allocation rate of each repository.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@Threads(64)
+public class FlowFileEventRepositoryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class RepositoryState {
+        @Param({"ringBuffer", "longAdder"})
+        private String repository;
+
+        // the number of components that the updating threads are spread across
+        @Param({"1", "8"})
+        private int componentCount;
+
+        private FlowFileEventRepository repo;
+        private FlowFileEvent[] events;
+
+        @Setup
+        public void setup() {
+            repo = "ringBuffer".equals(repository) ? new RingBufferEventRepository(5) : new LongAdderEventRepository(5);
+
+            events = new FlowFileEvent[componentCount];
+            for (int i = 0; i < componentCount; i++) {
+                events[i] = new StandardFlowFileEvent("component-" + i, 1, 1024L, 1, 1024L, 0, 0L,
+                    1024L, 1024L, 0, 0L, 0, 0L, 1, 10L, 25000L);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private int index;
+
+        @Setup
+        public void setup() {
+            index = (int) Thread.currentThread().getId();
+        }
+    }
+
+    @Benchmark
+    public void updateRepository(final RepositoryState state, final ThreadState threadState) throws IOException {
+        state.repo.updateRepository(state.events[threadState.index % state.events.length]);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+            .include(FlowFileEventRepositoryBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the compact attribute storage of StandardFlowFileRecord with holding a copy of a HashMap per
+ * FlowFile, as StandardFlowFileRecord used to. This is not run as part of the build; to run it, build the
+ * test classes with the 'benchmarks' profile enabled and execute the main method from the test classpath.
+ *
+ * The 'update' benchmarks measure the cost of creating a FlowFile with one changed attribute from a parent
+ * FlowFile. The 'get' benchmarks measure attribute lookups against a large set of queued FlowFiles whose
+ * attributes were deserialized, as they are when FlowFiles are restored from the FlowFile Repository or swapped
+ * in. The benchmarks run with JMH's GC profiler; its 'gc.alloc.rate.norm' result for the 'update' benchmarks is
+ * the number of bytes allocated per update, which measures allocation churn rather than the heap that each FlowFile
+ * retains. Before running the benchmarks, the main method measures the heap retained per queued FlowFile by each
+ * storage type, as the difference in used heap after garbage collection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class StandardFlowFileRecordBenchmark {
+
+    private static final int QUEUED_FLOWFILES = 200000;
+
+    private static Map<String, String> createAttributes(final int flowFileIndex, final int attributeCount) {
+        // Each key is a new String, as it is when attributes are deserialized.
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put(new String(CoreAttributes.UUID.key()), UUID.randomUUID().toString());
+        attributes.put(new String(CoreAttributes.FILENAME.key()), "file-" + flowFileIndex);
+        attributes.put(new String(CoreAttributes.PATH.key()), "./");
+        for (int i = 3; i < attributeCount; i++) {
+            attributes.put(new String("attribute." + i), "value-" + i);
+        }
+        return attributes;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Measures the heap retained per FlowFile when {@link #QUEUED_FLOWFILES} FlowFiles are created from deserialized
+     * attributes. The keys and values are shared with the deserialized attributes, so only the FlowFile and the storage
+     * of its attributes are measured.
+     */
+    private static long measureRetainedBytesPerFlowFile(final String storage, final int attributeCount) {
+        final List<Map<String, String>> deserialized = new ArrayList<>(QUEUED_FLOWFILES);
+        for (int i = 0; i < QUEUED_FLOWFILES; i++) {
+            deserialized.add(createAttributes(i, attributeCount));
+        }
+
+        final List<Object> flowFiles = new ArrayList<>(QUEUED_FLOWFILES);
+        final long before = usedHeap();
+        for (int i = 0; i < QUEUED_FLOWFILES; i++) {
+            if ("compact".equals(storage)) {
+                flowFiles.add(new StandardFlowFileRecord.Builder().id(i).addAttributes(deserialized.get(i)).build());
+            } else {
+                flowFiles.add(new LegacyFlowFileRecord.Builder().id(i).addAttributes(deserialized.get(i)).build());
+            }
+        }
+        final long after = usedHeap();
+
+        // the FlowFiles must still be reachable when the heap is measured
+        if (flowFiles.size() != QUEUED_FLOWFILES || deserialized.size() != QUEUED_FLOWFILES) {
+            throw new IllegalStateException();
+        }
+        return (after - before) / QUEUED_FLOWFILES;
+    }
+
+    @State(Scope.Thread)
+    public static class ParentState {
+        @Param({"5", "20"})
+        private int attributeCount;
+
+        private FlowFileRecord compactParent;
+        private LegacyFlowFileRecord legacyParent;
+
+        @Setup
+        public void setup() {
+            final Map<String, String> attributes = createAttributes(0, attributeCount);
+            compactParent = new StandardFlowFileRecord.Builder().id(1L).addAttributes(attributes).build();
+            legacyParent = new LegacyFlowFileRecord.Builder().id(1L).addAttributes(attributes).build();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class QueueState {
+        @Param({"5", "20"})
+        private int attributeCount;
+
+        @Param({"compact", "legacy"})
+        private String storage;
+
+        private List<Map<String, String>> attributeMaps;
+        private int index = 0;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            final List<Map<String, String>> deserialized = new ArrayList<>(QUEUED_FLOWFILES);
+            for (int i = 0; i < QUEUED_FLOWFILES; i++) {
+                deserialized.add(createAttributes(i, attributeCount));
+            }
+
+            attributeMaps = new ArrayList<>(QUEUED_FLOWFILES);
+            for (int i = 0; i < QUEUED_FLOWFILES; i++) {
+                if ("compact".equals(storage)) {
+                    attributeMaps.add(new StandardFlowFileRecord.Builder().id(i).addAttributes(deserialized.get(i)).build().getAttributes());
+                } else {
+                    attributeMaps.add(new LegacyFlowFileRecord.Builder().id(i).addAttributes(deserialized.get(i)).build().getAttributes());
+                }
+            }
+        }
+
+        private Map<String, String> next() {
+            index = (index + 1) % QUEUED_FLOWFILES;
+            return attributeMaps.get(index);
+        }
+    }
+
+    @Benchmark
+    public FlowFileRecord updateCompact(final ParentState state) {
+        return new StandardFlowFileRecord.Builder()
+            .fromFlowFile(state.compactParent)
+            .addAttribute("attribute.1", "updated")
+            .build();
+    }
+
+    @Benchmark
+    public LegacyFlowFileRecord updateLegacy(final ParentState state) {
+        return new LegacyFlowFileRecord.Builder()
+            .fromFlowFile(state.legacyParent)
+            .addAttribute("attribute.1", "updated")
+            .build();
+    }
+
+    @Benchmark
+    public String get(final QueueState state) {
+        return state.next().get(CoreAttributes.FILENAME.key());
+    }
+
+    /**
+     * The attribute handling of StandardFlowFileRecord prior to the introduction of compact attribute storage.
+     */
+    public static final class LegacyFlowFileRecord {
+        private final long id;
+        private final long entryDate;
+        private final long lastQueueDate;
+        private final Map<String, String> attributes;
+
+        private LegacyFlowFileRecord(final Builder builder) {
+            this.id = builder.bId;
+            this.entryDate = builder.bEntryDate;
+            this.lastQueueDate = builder.bLastQueueDate;
+            this.attributes = builder.bAttributes;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Map<String, String> getAttributes() {
+            return Collections.unmodifiableMap(attributes);
+        }
+
+        public static final class Builder {
+            private long bId;
+            private long bEntryDate = System.currentTimeMillis();
+            private long bLastQueueDate = System.currentTimeMillis();
+            private final Set<String> bLineageIdentifiers = new HashSet<>();
+            private final Map<String, String> bAttributes = new HashMap<>();
+
+            public Builder id(final long id) {
+                bId = id;
+                return this;
+            }
+
+            public Builder addAttribute(final String key, final String value) {
+                bAttributes.put(FlowFile.KeyValidator.validateKey(key), value);
+                return this;
+            }
+
+            public Builder addAttributes(final Map<String, String> attributes) {
+                for (final String key : attributes.keySet()) {
+                    FlowFile.KeyValidator.validateKey(key);
+                }
+                bAttributes.putAll(attributes);
+                return this;
+            }
+
+            public Builder fromFlowFile(final LegacyFlowFileRecord flowFile) {
+                bId = flowFile.getId();
+                bEntryDate = flowFile.entryDate;
+                bLastQueueDate = flowFile.lastQueueDate;
+                bLineageIdentifiers.clear();
+                bAttributes.putAll(flowFile.getAttributes());
+                return this;
+            }
+
+            public LegacyFlowFileRecord build() {
+                return new LegacyFlowFileRecord(this);
+            }
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        for (final int attributeCount : new int[] {5, 20}) {
+            for (final String storage : new String[] {"compact", "legacy"}) {
+                System.out.printf("%s attribute storage for %d attributes retains %d bytes per FlowFile, excluding keys and values%n",
+                    storage, attributeCount, measureRetainedBytesPerFlowFile(storage, attributeCount));
+            }
+        }
+
+        final Options options = new OptionsBuilder()
+            .include(StandardFlowFileRecordBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+}
@@ -21,14 +21,17 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
@@ -332,6 +335,33 @@ public class TestFileSystemRepository {
         assertTrue(Arrays.equals(Files.readAllBytes(helloWorldFile.toPath()), data));
     }
 
+    @Test
+    public void testExportToContentClaimOutputStream() throws IOException {
+        final ContentClaim source = repository.create(true);
+        try (final OutputStream out = repository.write(source)) {
+            out.write("0123456789".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // the content is transferred directly into the destination claim, which may share a file with the source
+        final ContentClaim destination = repository.create(true);
+        try (final OutputStream out = repository.write(destination)) {
+            out.write("[".getBytes(StandardCharsets.UTF_8));
+            assertEquals(10L, repository.exportTo(source, out));
+            out.write("|".getBytes(StandardCharsets.UTF_8));
+            assertEquals(4L, repository.exportTo(source, out, 3L, 4L));
+            out.write("]".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(17L, destination.getLength());
+
+        final ContentClaim next = repository.create(true);
+        try (final OutputStream out = repository.write(next)) {
+            out.write("next".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals("[0123456789|3456]", new String(readFully(repository.read(destination), 32), StandardCharsets.UTF_8));
+        assertEquals("next", new String(readFully(repository.read(next), 32), StandardCharsets.UTF_8));
+    }
+
     @Test
     public void testExportToFile() throws IOException {
         final ContentClaim claim = repository.create(true);
@@ -355,6 +385,81 @@ public class TestFileSystemRepository {
         assertTrue(Arrays.equals(doubleExpected, Files.readAllBytes(outPath)));
     }
 
+    @Test
+    public void testMemoryMappedReadsAndZeroCopyExport() throws IOException {
+        // We are going to construct our own repository using different properties, so
+        // we need to shutdown the existing one.
+        shutdown();
+
+        final Map<String, String> addProps = new HashMap<>();
+        addProps.put(NiFiProperties.CONTENT_REPOSITORY_MEMORY_MAPPED_READS, "true");
+        final NiFiProperties localProps = NiFiProperties.createBasicNiFiProperties(null, addProps);
+        repository = new FileSystemRepository(localProps);
+        claimManager = new StandardResourceClaimManager();
+        repository.initialize(claimManager);
+        repository.purge();
+
+        final byte[] hello = Files.readAllBytes(helloWorldFile.toPath());
+        final ContentClaim helloClaim = repository.create(true);
+        try (final OutputStream out = repository.write(helloClaim)) {
+            out.write(hello);
+        }
+
+        // Fill up the rest of the Resource Claim so that it is no longer writable.
+        final byte[] large = new byte[FileSystemRepository.MAX_APPENDABLE_CLAIM_LENGTH];
+        Arrays.fill(large, (byte) 'A');
+        final ContentClaim largeClaim = repository.create(true);
+        try (final OutputStream out = repository.write(largeClaim)) {
+            out.write(large);
+        }
+        assertEquals(helloClaim.getResourceClaim(), largeClaim.getResourceClaim());
+        assertFalse(largeClaim.getResourceClaim().isWritable());
+
+        try (final InputStream in = repository.read(helloClaim)) {
+            assertTrue(Arrays.equals(hello, readFully(in, hello.length)));
+        }
+        try (final InputStream in = repository.read(largeClaim)) {
+            assertTrue(Arrays.equals(large, readFully(in, large.length)));
+        }
+        assertEquals(1, repository.getMappedClaimCount());
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        repository.exportTo(helloClaim, baos);
+        assertTrue(Arrays.equals(hello, baos.toByteArray()));
+
+        final Path outPath = new File("target/testMemoryMappedReadsAndZeroCopyExport").toPath();
+        Files.deleteIfExists(outPath);
+        repository.exportTo(helloClaim, outPath, false);
+        repository.exportTo(helloClaim, outPath, true, 1L, 4L);
+        try (final OutputStream out = Files.newOutputStream(outPath, StandardOpenOption.APPEND)) {
+            repository.exportTo(largeClaim, out, 10L, 5L);
+        }
+
+        final byte[] expected = new byte[hello.length + 9];
+        System.arraycopy(hello, 0, expected, 0, hello.length);
+        System.arraycopy(hello, 1, expected, hello.length, 4);
+        Arrays.fill(expected, hello.length + 4, expected.length, (byte) 'A');
+        assertTrue(Arrays.equals(expected, Files.readAllBytes(outPath)));
+
+        // Exporting more bytes than the claim holds fails, as it does when the content is streamed.
+        try {
+            repository.exportTo(helloClaim, outPath, false, 1L, hello.length);
+            fail("Expected EOFException");
+        } catch (final EOFException eofe) {
+            // expected
+        }
+
+        // Once the Resource Claim is no longer referenced, its mapping is no longer handed out.
+        repository.decrementClaimantCount(helloClaim);
+        repository.decrementClaimantCount(largeClaim);
+        try (final InputStream in = repository.read(helloClaim)) {
+            assertTrue(Arrays.equals(hello, readFully(in, hello.length)));
+        }
+        assertEquals(0, repository.getMappedClaimCount());
+        assertTrue(repository.remove(helloClaim));
+        assertEquals(0, repository.getMappedClaimCount());
+    }
+
     @Test
     public void testSize() throws IOException {
         final ContentClaim claim = repository.create(true);
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.repository;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestLongAdderEventRepository {
+
+    private FlowFileEvent createEvent(final String componentId) {
+        return new StandardFlowFileEvent(componentId, 1, 1024L, 1, 1024L * 1024L, 1, 1024L,
+            1024L, 1024L * 1024L, 2, 2048L, 3, 4096L, 1, 783L, 234782L);
+    }
+
+    private FlowFileEvent getEntry(final RepositoryStatusReport report, final String componentId) {
+        return report.getReportEntries().get(componentId);
+    }
+
+    @Test
+    public void testSumsEvents() throws IOException {
+        final LongAdderEventRepository repo = new LongAdderEventRepository(5);
+        for (int i = 0; i < 1000; i++) {
+            repo.updateRepository(createEvent("ABC"));
+        }
+        repo.updateRepository(createEvent("DEF"));
+
+        final RepositoryStatusReport report = repo.reportTransferEvents(System.currentTimeMillis() - 60000L);
+        final FlowFileEvent abc = getEntry(report, "ABC");
+        assertEquals(1000, abc.getFlowFilesIn());
+        assertEquals(1000 * 1024L, abc.getContentSizeIn());
+        assertEquals(1000, abc.getFlowFilesOut());
+        assertEquals(1000 * 1024L * 1024L, abc.getContentSizeOut());
+        assertEquals(1000, abc.getFlowFilesRemoved());
+        assertEquals(1000 * 1024L, abc.getContentSizeRemoved());
+        assertEquals(1000 * 1024L, abc.getBytesRead());
+        assertEquals(1000 * 1024L * 1024L, abc.getBytesWritten());
+        assertEquals(2000, abc.getFlowFilesReceived());
+        assertEquals(1000 * 2048L, abc.getBytesReceived());
+        assertEquals(3000, abc.getFlowFilesSent());
+        assertEquals(1000 * 4096L, abc.getBytesSent());
+        assertEquals(1000, abc.getInvocations());
+        assertEquals(1000 * 783L, abc.getAggregateLineageMillis());
+        assertEquals(1000 * 234782L, abc.getProcessingNanoseconds());
+
+        assertEquals(1, getEntry(report, "DEF").getFlowFilesIn());
+        repo.close();
+    }
+
+    @Test
+    public void testEventsBeforeReportWindowExcluded() throws IOException {
+        final LongAdderEventRepository repo = new LongAdderEventRepository(5);
+        repo.updateRepository(createEvent("ABC"));
+
+        final RepositoryStatusReport report = repo.reportTransferEvents(System.currentTimeMillis() + 5000L);
+        assertEquals(0, getEntry(report, "ABC").getFlowFilesIn());
+        repo.close();
+    }
+
+    @Test(timeout = 20000)
+    public void testConcurrentUpdates() throws IOException, InterruptedException {
+        final LongAdderEventRepository repo = new LongAdderEventRepository(5);
+        final int threadCount = 16;
+        final int eventsPerThread = 20000;
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final Thread thread = new Thread(() -> {
+                for (int j = 0; j < eventsPerThread; j++) {
+                    repo.updateRepository(createEvent("ABC"));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final FlowFileEvent abc = getEntry(repo.reportTransferEvents(System.currentTimeMillis() - 60000L), "ABC");
+        assertEquals(threadCount * eventsPerThread, abc.getFlowFilesIn());
+        assertEquals(threadCount * eventsPerThread * 1024L, abc.getContentSizeIn());
+        assertEquals(threadCount * eventsPerThread, abc.getInvocations());
+        repo.close();
+    }
+}
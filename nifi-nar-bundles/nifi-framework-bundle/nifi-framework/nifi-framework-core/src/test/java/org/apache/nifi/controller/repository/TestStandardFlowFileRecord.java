@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
+import org.junit.Test;
+
+public class TestStandardFlowFileRecord {
+
+    private FlowFileRecord createFlowFile(final Map<String, String> attributes) {
+        return new StandardFlowFileRecord.Builder()
+            .id(1L)
+            .addAttributes(attributes)
+            .build();
+    }
+
+    @Test
+    public void testUpdateAttributesFromParent() {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put(CoreAttributes.UUID.key(), "1234");
+        attributes.put("a", "1");
+        attributes.put("b", "2");
+        attributes.put("c", "3");
+        final FlowFileRecord parent = createFlowFile(attributes);
+        assertEquals(attributes, parent.getAttributes());
+
+        final FlowFileRecord child = new StandardFlowFileRecord.Builder()
+            .fromFlowFile(parent)
+            .addAttribute("b", "updated")
+            .addAttribute("d", "4")
+            .removeAttributes("a")
+            .build();
+
+        assertEquals("updated", child.getAttribute("b"));
+        assertEquals("4", child.getAttribute("d"));
+        assertNull(child.getAttribute("a"));
+        assertEquals(4, child.getAttributes().size());
+
+        // the parent must not be affected
+        assertEquals(attributes, parent.getAttributes());
+    }
+
+    @Test
+    public void testUnchangedAttributesAreShared() {
+        final FlowFileRecord parent = createFlowFile(Collections.singletonMap("a", "1"));
+        final FlowFileRecord child = new StandardFlowFileRecord.Builder()
+            .fromFlowFile(parent)
+            .size(100L)
+            .addAttribute("a", "1")
+            .build();
+
+        assertSame(parent.getAttributes(), child.getAttributes());
+    }
+
+    @Test
+    public void testFlowFilesWithSameKeysShareShape() {
+        final Map<String, String> first = new HashMap<>();
+        first.put("filename", "a.txt");
+        first.put("path", "/");
+        final Map<String, String> second = new HashMap<>();
+        second.put(new String("filename"), "b.txt");
+        second.put(new String("path"), "/tmp");
+
+        final CompactAttributeMap firstMap = (CompactAttributeMap) createFlowFile(first).getAttributes();
+        final CompactAttributeMap secondMap = (CompactAttributeMap) createFlowFile(second).getAttributes();
+        assertSame(firstMap.getShape(), secondMap.getShape());
+        assertEquals("b.txt", secondMap.get("filename"));
+    }
+
+    @Test
+    public void testRemoveAttributesByPatternIncludesPendingChanges() {
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put(CoreAttributes.UUID.key(), "1234");
+        attributes.put("tmp.a", "1");
+        attributes.put("keep", "2");
+        final FlowFileRecord parent = createFlowFile(attributes);
+
+        final FlowFileRecord child = new StandardFlowFileRecord.Builder()
+            .fromFlowFile(parent)
+            .addAttribute("tmp.b", "3")
+            .removeAttributes(Pattern.compile("tmp\\..*|uuid"))
+            .build();
+
+        assertEquals(2, child.getAttributes().size());
+        assertEquals("1234", child.getAttribute(CoreAttributes.UUID.key()));
+        assertEquals("2", child.getAttribute("keep"));
+        assertFalse(child.getAttributes().containsKey("tmp.b"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAttributesAreUnmodifiable() {
+        final FlowFileRecord flowFile = createFlowFile(Collections.singletonMap("a", "1"));
+        assertTrue(flowFile.getAttributes().containsKey("a"));
+        flowFile.getAttributes().put("b", "2");
+    }
+}
@@ -86,6 +86,7 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -99,6 +100,7 @@ public class TestStandardProcessSession {
 
     private ProvenanceEventRepository provenanceRepo;
     private MockFlowFileRepository flowFileRepo;
+    private CounterRepository counterRepo;
     private final Relationship FAKE_RELATIONSHIP = new Relationship.Builder().name("FAKE").build();
     private static StandardResourceClaimManager resourceClaimManager;
 
@@ -142,7 +144,7 @@ public class TestStandardProcessSession {
 
         System.setProperty(NiFiProperties.PROPERTIES_FILE_PATH, TestStandardProcessSession.class.getResource("/conf/nifi.properties").getFile());
         final FlowFileEventRepository flowFileEventRepo = Mockito.mock(FlowFileEventRepository.class);
-        final CounterRepository counterRepo = Mockito.mock(CounterRepository.class);
+        counterRepo = Mockito.mock(CounterRepository.class);
         provenanceRepo = new MockProvenanceRepository();
 
         final Connection connection = Mockito.mock(Connection.class);
@@ -610,6 +612,32 @@ public class TestStandardProcessSession {
         assertEquals(0, provenanceRepo.getEvents(0L, 100000).size());
     }
 
+    @Test
+    public void testCheckpointedCountsCombinedOnCommit() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            final FlowFile flowFile = session.create();
+            session.transfer(flowFile, Relationship.ANONYMOUS);
+            session.adjustCounter("checkpoints", 1L, false);
+            session.checkpoint();
+        }
+
+        assertEquals(3, session.getCheckpointedFlowFileCount());
+        session.commit();
+        assertEquals(0, session.getCheckpointedFlowFileCount());
+        assertEquals(3, flowFileQueue.size().getObjectCount());
+
+        final ArgumentCaptor<FlowFileEvent> eventCaptor = ArgumentCaptor.forClass(FlowFileEvent.class);
+        Mockito.verify(context.getFlowFileEventRepository(), Mockito.atLeastOnce()).updateRepository(eventCaptor.capture());
+        int connectionFlowFilesIn = 0;
+        for (final FlowFileEvent event : eventCaptor.getAllValues()) {
+            if (!"connectable-1".equals(event.getComponentIdentifier())) {
+                connectionFlowFilesIn += event.getFlowFilesIn();
+            }
+        }
+        assertEquals(3, connectionFlowFilesIn);
+        Mockito.verify(counterRepo, Mockito.times(2)).adjustCounter(any(String.class), Mockito.eq("checkpoints"), Mockito.eq(3L));
+    }
+
     @Test
     public void testProvenanceEventsEmittedForForkIfNotRemoved() throws IOException {
         final FlowFileRecord flowFileRecord = new StandardFlowFileRecord.Builder()
@@ -935,6 +963,29 @@ public class TestStandardProcessSession {
         assertEquals("Hello, World", new String(buff));
     }
 
+    @Test
+    public void testMergeWithHeaderFooterAndDemarcator() throws IOException {
+        final List<FlowFile> sources = new ArrayList<>();
+        for (final String content : new String[] {"Hello", "there", "World"}) {
+            FlowFile ff = session.create();
+            ff = session.write(ff, new OutputStreamCallback() {
+                @Override
+                public void process(final OutputStream out) throws IOException {
+                    out.write(content.getBytes());
+                }
+            });
+            sources.add(ff);
+        }
+
+        FlowFile merged = session.create(sources);
+        merged = session.merge(sources, merged, "<".getBytes(), ">".getBytes(), ", ".getBytes());
+        assertEquals(21, merged.getSize());
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        session.exportTo(merged, baos);
+        assertEquals("<Hello, there, World>", new String(baos.toByteArray()));
+    }
+
     @Test
     public void testAppendDoesNotDecrementContentClaimIfNotNeeded() {
         FlowFile flowFile = session.create();
@@ -1704,7 +1755,11 @@ public class TestStandardProcessSession {
 
         @Override
         public long exportTo(ContentClaim claim, OutputStream destination, long offset, long length) throws IOException {
-            throw new UnsupportedOperationException();
+            try (final InputStream in = read(claim)) {
+                StreamUtils.skip(in, offset);
+                StreamUtils.copy(in, destination, length);
+            }
+            return length;
         }
 
         @Override
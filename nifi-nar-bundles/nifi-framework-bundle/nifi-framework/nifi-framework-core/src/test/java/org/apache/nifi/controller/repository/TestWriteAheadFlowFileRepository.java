@@ -56,6 +56,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.wali.GroupCommitWriteAheadLog;
 
 public class TestWriteAheadFlowFileRepository {
 
@@ -159,12 +160,24 @@ public class TestWriteAheadFlowFileRepository {
 
     @Test
     public void testRestartWithOneRecord() throws IOException {
+        restartWithOneRecord(NiFiProperties.createBasicNiFiProperties(null, null));
+    }
+
+    @Test
+    public void testRestartWithOneRecordUsingGroupCommitWriteAheadLog() throws IOException {
+        final Map<String, String> additionalProperties = new HashMap<>();
+        additionalProperties.put(NiFiProperties.FLOWFILE_REPOSITORY_WAL_IMPLEMENTATION, GroupCommitWriteAheadLog.class.getName());
+        additionalProperties.put(NiFiProperties.FLOWFILE_REPOSITORY_SNAPSHOT_SEGMENTS, "2");
+        restartWithOneRecord(NiFiProperties.createBasicNiFiProperties(null, additionalProperties));
+    }
+
+    private void restartWithOneRecord(final NiFiProperties nifiProperties) throws IOException {
         final Path path = Paths.get("target/test-repo");
         if (Files.exists(path)) {
             FileUtils.deleteFile(path.toFile(), true);
         }
 
-        final WriteAheadFlowFileRepository repo = new WriteAheadFlowFileRepository(NiFiProperties.createBasicNiFiProperties(null, null));
+        final WriteAheadFlowFileRepository repo = new WriteAheadFlowFileRepository(nifiProperties);
         repo.initialize(new StandardResourceClaimManager());
 
         final TestQueueProvider queueProvider = new TestQueueProvider();
@@ -218,7 +231,7 @@ public class TestWriteAheadFlowFileRepository {
         repo.close();
 
         // restore
-        final WriteAheadFlowFileRepository repo2 = new WriteAheadFlowFileRepository(NiFiProperties.createBasicNiFiProperties(null, null));
+        final WriteAheadFlowFileRepository repo2 = new WriteAheadFlowFileRepository(nifiProperties);
         repo2.initialize(new StandardResourceClaimManager());
         repo2.loadFlowFiles(queueProvider, 0L);
 
@@ -37,6 +37,8 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.LockSupport;
 
 import org.apache.commons.io.FileUtils;
@@ -167,6 +169,60 @@ public class TestProcessorLifecycle {
         assertEquals("@OnScheduled", testProcessor.operationNames.get(0));
     }
 
+    /**
+     * Validates that the Work-Stealing Timer-Driven agent does not trigger a
+     * processor once it has been stopped, and that a quick stop and start does
+     * not leave tasks of the previous run that exceed the configured number of
+     * Concurrent Tasks.
+     */
+    @Test(timeout = 60000)
+    public void validateWorkStealingAgentDoesNotTriggerStoppedProcessor() throws Exception {
+        fc = this.buildFlowControllerForTest(NiFiProperties.TIMER_DRIVEN_SCHEDULING_AGENT, WorkStealingSchedulingAgent.class.getName());
+        ProcessGroup testGroup = fc.createProcessGroup(UUID.randomUUID().toString());
+        this.setControllerRootGroup(fc, testGroup);
+        final ProcessorNode testProcNode = fc.createProcessor(TestProcessor.class.getName(), UUID.randomUUID().toString());
+        testProcNode.setProperties(properties);
+        testProcNode.setMaxConcurrentTasks(2);
+        testProcNode.setScheduldingPeriod("0 sec");
+        testGroup.addProcessor(testProcNode);
+        TestProcessor testProcessor = (TestProcessor) testProcNode.getProcessor();
+
+        final AtomicBoolean stopped = new AtomicBoolean(true);
+        final AtomicInteger triggerCount = new AtomicInteger(0);
+        final AtomicInteger triggersWhileStopped = new AtomicInteger(0);
+        final AtomicInteger activeCount = new AtomicInteger(0);
+        final AtomicInteger maxActiveCount = new AtomicInteger(0);
+        final Runnable onTrigger = () -> {
+            maxActiveCount.accumulateAndGet(activeCount.incrementAndGet(), Math::max);
+            if (stopped.get()) {
+                triggersWhileStopped.incrementAndGet();
+            }
+            triggerCount.incrementAndGet();
+            activeCount.decrementAndGet();
+        };
+        testProcessor.setScenario(() -> stopped.set(false), new EmptyRunnable(), () -> stopped.set(true), onTrigger);
+
+        final ProcessScheduler ps = fc.getProcessScheduler();
+        for (int i = 0; i < 20; i++) {
+            final int countBeforeStart = triggerCount.get();
+            ps.startProcessor(testProcNode);
+            while (triggerCount.get() < countBeforeStart + 100) {
+                Thread.sleep(1L);
+            }
+
+            ps.stopProcessor(testProcNode);
+            while (testProcNode.getPhysicalScheduledState() != ScheduledState.STOPPED) {
+                Thread.sleep(1L);
+            }
+        }
+
+        final int countAfterStop = triggerCount.get();
+        Thread.sleep(500L);
+        assertEquals(countAfterStop, triggerCount.get());
+        assertEquals(0, triggersWhileStopped.get());
+        assertTrue("Ran " + maxActiveCount.get() + " Concurrent Tasks but only 2 are allowed", maxActiveCount.get() <= 2);
+    }
+
     /**
      * Validates that stop calls are harmless and idempotent if processor is not
      * in STARTING or RUNNING state.
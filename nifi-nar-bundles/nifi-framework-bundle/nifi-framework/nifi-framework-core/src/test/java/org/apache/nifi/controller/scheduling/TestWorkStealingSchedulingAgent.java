@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.nifi.components.state.StateManagerProvider;
+import org.apache.nifi.connectable.Connectable;
+import org.apache.nifi.connectable.ConnectableType;
+import org.apache.nifi.connectable.Connection;
+import org.apache.nifi.controller.FlowController;
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.engine.FlowEngine;
+import org.apache.nifi.processor.ProcessContext;
+import org.apache.nifi.processor.ProcessSessionFactory;
+import org.apache.nifi.registry.VariableRegistry;
+import org.apache.nifi.util.NiFiProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestWorkStealingSchedulingAgent {
+
+    private FlowEngine flowEngine;
+    private WorkStealingSchedulingAgent agent;
+
+    // the number of FlowFiles queued for the component; each time that the component is triggered, it processes one
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final AtomicInteger triggerCount = new AtomicInteger(0);
+    private final AtomicInteger activeCount = new AtomicInteger(0);
+    private final AtomicInteger maxActiveCount = new AtomicInteger(0);
+    private final AtomicLong yieldExpiration = new AtomicLong(0L);
+    private volatile long triggerMillis = 0L;
+
+    @Before
+    public void setup() {
+        flowEngine = new FlowEngine(2, "Test Timer-Driven Process", true);
+    }
+
+    @After
+    public void cleanup() {
+        if (agent != null) {
+            agent.shutdown();
+        }
+    }
+
+    private WorkStealingSchedulingAgent createAgent(final String boredYieldDuration, final int maxThreads) {
+        final Map<String, String> props = new HashMap<>();
+        props.put(NiFiProperties.BORED_YIELD_DURATION, boredYieldDuration);
+        final NiFiProperties nifiProperties = NiFiProperties.createBasicNiFiProperties(null, props);
+
+        final FlowController flowController = Mockito.mock(FlowController.class);
+        Mockito.when(flowController.getStateManagerProvider()).thenReturn(Mockito.mock(StateManagerProvider.class));
+
+        agent = new WorkStealingSchedulingAgent(flowController, flowEngine, Mockito.mock(ProcessContextFactory.class), null,
+            VariableRegistry.EMPTY_REGISTRY, nifiProperties, maxThreads);
+        return agent;
+    }
+
+    private Connectable createFunnel(final int maxConcurrentTasks) {
+        final FlowFileQueue queue = Mockito.mock(FlowFileQueue.class);
+        Mockito.when(queue.isActiveQueueEmpty()).thenAnswer(invocation -> queued.get() <= 0);
+
+        final Connection incoming = Mockito.mock(Connection.class);
+        Mockito.when(incoming.getFlowFileQueue()).thenReturn(queue);
+        final Connection outgoing = Mockito.mock(Connection.class);
+
+        final Connectable funnel = Mockito.mock(Connectable.class);
+        Mockito.when(funnel.getIdentifier()).thenReturn("funnel");
+        Mockito.when(funnel.getConnectableType()).thenReturn(ConnectableType.FUNNEL);
+        Mockito.when(funnel.getMaxConcurrentTasks()).thenReturn(maxConcurrentTasks);
+        Mockito.when(funnel.getSchedulingPeriod(Mockito.any(TimeUnit.class))).thenReturn(0L);
+        Mockito.when(funnel.getYieldExpiration()).thenAnswer(invocation -> yieldExpiration.get());
+        Mockito.when(funnel.getIncomingConnections()).thenReturn(Collections.singletonList(incoming));
+        Mockito.when(funnel.getConnections()).thenReturn(Collections.singleton(outgoing));
+        Mockito.when(funnel.getRelationships()).thenReturn(Collections.emptySet());
+
+        Mockito.doAnswer(invocation -> {
+            final int active = activeCount.incrementAndGet();
+            maxActiveCount.accumulateAndGet(active, Math::max);
+            try {
+                if (queued.getAndDecrement() > 0) {
+                    triggerCount.incrementAndGet();
+                    triggerMillis = System.currentTimeMillis();
+                    Thread.sleep(5L);
+                } else {
+                    queued.incrementAndGet();
+                }
+            } finally {
+                activeCount.decrementAndGet();
+            }
+            return null;
+        }).when(funnel).onTrigger(Mockito.any(ProcessContext.class), Mockito.any(ProcessSessionFactory.class));
+
+        return funnel;
+    }
+
+    private ScheduleState schedule(final Connectable connectable) {
+        final ScheduleState scheduleState = new ScheduleState();
+        agent.schedule(connectable, scheduleState);
+        return scheduleState;
+    }
+
+    private void waitForTriggerCount(final int count) throws InterruptedException {
+        final long stopTime = System.currentTimeMillis() + 10000L;
+        while (triggerCount.get() < count && System.currentTimeMillis() < stopTime) {
+            Thread.sleep(5L);
+        }
+        assertEquals(count, triggerCount.get());
+    }
+
+    @Test(timeout = 20000)
+    public void testIdleComponentRunsOnlyWhenSignaled() throws InterruptedException {
+        createAgent("10 secs", 2);
+        final Connectable funnel = createFunnel(1);
+        schedule(funnel);
+
+        // Data is queued but the agent has not been told, and the component will not be checked again for 10 seconds.
+        Thread.sleep(100L);
+        queued.set(5);
+        Thread.sleep(200L);
+        assertEquals(0, triggerCount.get());
+
+        agent.onEvent(funnel);
+        waitForTriggerCount(5);
+
+        // Once the queue is empty, the component must not keep running.
+        Thread.sleep(100L);
+        final int invocations = Mockito.mockingDetails(funnel).getInvocations().size();
+        Thread.sleep(200L);
+        assertEquals(invocations, Mockito.mockingDetails(funnel).getInvocations().size());
+    }
+
+    @Test(timeout = 20000)
+    public void testNoWorkYieldFallback() throws InterruptedException {
+        createAgent("10 millis", 2);
+        final Connectable funnel = createFunnel(1);
+        schedule(funnel);
+
+        // Without being signaled, the component must still find the data after backing off.
+        Thread.sleep(100L);
+        queued.set(3);
+        waitForTriggerCount(3);
+    }
+
+    @Test(timeout = 20000)
+    public void testConcurrentTasksShareWork() throws InterruptedException {
+        createAgent("10 secs", 4);
+        final Connectable funnel = createFunnel(4);
+        schedule(funnel);
+
+        Thread.sleep(100L);
+        queued.set(200);
+        agent.onEvent(funnel);
+        waitForTriggerCount(200);
+
+        assertTrue("Expected more than 1 Concurrent Task to run", maxActiveCount.get() > 1);
+        assertTrue("Ran " + maxActiveCount.get() + " Concurrent Tasks but only 4 are allowed", maxActiveCount.get() <= 4);
+    }
+
+    @Test(timeout = 20000)
+    public void testYieldedComponentNotRunUntilYieldExpires() throws InterruptedException {
+        createAgent("10 secs", 2);
+        final Connectable funnel = createFunnel(1);
+
+        final long start = System.currentTimeMillis();
+        yieldExpiration.set(start + 500L);
+        queued.set(2);
+        schedule(funnel);
+
+        waitForTriggerCount(2);
+        assertTrue(triggerMillis >= start + 500L);
+    }
+
+    @Test(timeout = 20000)
+    public void testUnscheduledComponentNotRun() throws InterruptedException {
+        createAgent("10 millis", 2);
+        final Connectable funnel = createFunnel(2);
+        final ScheduleState scheduleState = schedule(funnel);
+
+        // let the tasks that were started when the component was scheduled complete before stopping it
+        Thread.sleep(100L);
+        agent.unschedule(funnel, scheduleState);
+
+        queued.set(5);
+        agent.onEvent(funnel);
+        Thread.sleep(300L);
+        assertEquals(0, triggerCount.get());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.status.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.ProcessorStatus;
+import org.apache.nifi.util.NiFiProperties;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestPersistentComponentStatusRepository {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1L);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1L);
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private PersistentComponentStatusRepository createRepository(final String maxRetention, final String downsampleAge) throws IOException {
+        final Map<String, String> props = new HashMap<>();
+        props.put(PersistentComponentStatusRepository.DIRECTORY_PROPERTY, tempFolder.getRoot().getAbsolutePath());
+        props.put(PersistentComponentStatusRepository.MAX_RETENTION_PROPERTY, maxRetention);
+        props.put(PersistentComponentStatusRepository.DOWNSAMPLE_AGE_PROPERTY, downsampleAge);
+        props.put(PersistentComponentStatusRepository.DOWNSAMPLE_INTERVAL_PROPERTY, "15 mins");
+        return new PersistentComponentStatusRepository(NiFiProperties.createBasicNiFiProperties(null, props));
+    }
+
+    private ProcessGroupStatus createStatus(final long bytesRead) {
+        final ProcessorStatus processorStatus = new ProcessorStatus();
+        processorStatus.setId("proc");
+        processorStatus.setGroupId("root");
+        processorStatus.setName("Processor " + bytesRead);
+        processorStatus.setType("GenerateFlowFile");
+        processorStatus.setBytesRead(bytesRead);
+        processorStatus.setInputCount((int) bytesRead / 10);
+
+        final ProcessGroupStatus groupStatus = new ProcessGroupStatus();
+        groupStatus.setId("root");
+        groupStatus.setName("Root");
+        groupStatus.setInputCount(0);
+        groupStatus.setInputContentSize(0L);
+        groupStatus.setOutputCount(0);
+        groupStatus.setOutputContentSize(0L);
+        groupStatus.setQueuedCount(0);
+        groupStatus.setQueuedContentSize(0L);
+        groupStatus.setBytesRead(bytesRead);
+        groupStatus.setBytesWritten(0L);
+        groupStatus.setProcessorStatus(Collections.singletonList(processorStatus));
+        return groupStatus;
+    }
+
+    private long getBytesRead(final StatusSnapshot snapshot) {
+        return snapshot.getStatusMetrics().get(ProcessorStatusDescriptor.BYTES_READ.getDescriptor());
+    }
+
+    private long getInputCount(final StatusSnapshot snapshot) {
+        return snapshot.getStatusMetrics().get(ProcessorStatusDescriptor.INPUT_COUNT.getDescriptor());
+    }
+
+    private long currentHour() {
+        final long now = System.currentTimeMillis();
+        return now - now % HOUR;
+    }
+
+    @Test
+    public void testHistoryRecoveredFromJournal() throws IOException {
+        final long start = currentHour();
+        PersistentComponentStatusRepository repo = createRepository("7 days", "1 day");
+        for (int i = 0; i < 5; i++) {
+            repo.capture(createStatus(i * 100L), new Date(start + i * MINUTE));
+        }
+
+        repo = createRepository("7 days", "1 day");
+        final StatusHistory history = repo.getProcessorStatusHistory("proc", null, null, Integer.MAX_VALUE);
+        final List<StatusSnapshot> snapshots = history.getStatusSnapshots();
+        assertEquals(5, snapshots.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(start + i * MINUTE, snapshots.get(i).getTimestamp().getTime());
+            assertEquals(i * 100L, getBytesRead(snapshots.get(i)));
+            assertEquals(i * 10L, getInputCount(snapshots.get(i)));
+        }
+
+        assertEquals("Processor 400", history.getComponentDetails().get(ComponentStatusRepository.COMPONENT_DETAIL_NAME));
+        assertEquals("GenerateFlowFile", history.getComponentDetails().get(ComponentStatusRepository.COMPONENT_DETAIL_TYPE));
+        assertEquals(5, repo.getProcessGroupStatusHistory("root", null, null, Integer.MAX_VALUE).getStatusSnapshots().size());
+        assertTrue(repo.getConnectionStatusHistory("unknown", null, null, Integer.MAX_VALUE).getStatusSnapshots().isEmpty());
+    }
+
+    @Test
+    public void testSegmentsWrittenAndQueriedByDate() throws IOException {
+        final long firstHour = currentHour() - 3 * HOUR;
+        PersistentComponentStatusRepository repo = createRepository("7 days", "1 day");
+        for (int hour = 0; hour < 3; hour++) {
+            for (int i = 0; i < 3; i++) {
+                repo.capture(createStatus(hour * 1000L + i), new Date(firstHour + hour * HOUR + i * MINUTE));
+            }
+        }
+
+        final File[] segmentFiles = tempFolder.getRoot().listFiles((dir, name) -> name.endsWith(StatusSegment.FILE_EXTENSION));
+        assertEquals(2, segmentFiles.length);
+
+        repo = createRepository("7 days", "1 day");
+        assertEquals(9, repo.getProcessorStatusHistory("proc", null, null, Integer.MAX_VALUE).getStatusSnapshots().size());
+
+        final List<StatusSnapshot> secondHour = repo.getProcessorStatusHistory("proc", new Date(firstHour + HOUR), new Date(firstHour + 2 * HOUR - 1),
+            Integer.MAX_VALUE).getStatusSnapshots();
+        assertEquals(3, secondHour.size());
+        assertEquals(1000L, getBytesRead(secondHour.get(0)));
+        assertEquals(1002L, getBytesRead(secondHour.get(2)));
+
+        assertTrue(repo.getProcessorStatusHistory("unknown", null, null, Integer.MAX_VALUE).getStatusSnapshots().isEmpty());
+    }
+
+    @Test
+    public void testOldSegmentsDownsampledAndRemoved() throws IOException {
+        final long now = currentHour();
+        final PersistentComponentStatusRepository repo = createRepository("4 hours", "90 mins");
+
+        // a segment beyond the maximum retention
+        repo.capture(createStatus(1L), new Date(now - 6 * HOUR));
+
+        // a segment that is old enough to be downsampled: samples each minute for 30 minutes fall into two 15-minute intervals
+        final long downsampledHour = now - 3 * HOUR;
+        for (int i = 0; i < 30; i++) {
+            repo.capture(createStatus(i * 10L), new Date(downsampledHour + i * MINUTE));
+        }
+
+        // a segment that is kept at full resolution
+        final long recentHour = now - HOUR;
+        for (int i = 0; i < 4; i++) {
+            repo.capture(createStatus(i), new Date(recentHour + i * MINUTE));
+        }
+
+        // capturing in a new hour seals the previous segment and applies retention
+        repo.capture(createStatus(0L), new Date(now));
+
+        assertFalse(new File(tempFolder.getRoot(), (now - 6 * HOUR) + StatusSegment.FILE_EXTENSION).exists());
+
+        final List<StatusSnapshot> snapshots = repo.getProcessorStatusHistory("proc", null, null, Integer.MAX_VALUE).getStatusSnapshots();
+        assertEquals(2 + 4 + 1, snapshots.size());
+
+        assertEquals(downsampledHour, snapshots.get(0).getTimestamp().getTime());
+        assertEquals(70L, getBytesRead(snapshots.get(0)));
+        assertEquals(downsampledHour + 15 * MINUTE, snapshots.get(1).getTimestamp().getTime());
+        assertEquals(220L, getBytesRead(snapshots.get(1)));
+
+        assertEquals(recentHour, snapshots.get(2).getTimestamp().getTime());
+    }
+
+    @Test
+    public void testPartiallyWrittenJournalRecovered() throws IOException {
+        final long start = currentHour();
+        PersistentComponentStatusRepository repo = createRepository("7 days", "1 day");
+        repo.capture(createStatus(100L), new Date(start));
+        repo.capture(createStatus(200L), new Date(start + MINUTE));
+
+        final File[] journalFiles = tempFolder.getRoot().listFiles((dir, name) -> name.endsWith(StatusJournal.FILE_EXTENSION));
+        assertEquals(1, journalFiles.length);
+        try (final OutputStream out = new FileOutputStream(journalFiles[0], true)) {
+            out.write(new byte[] {0, 0, 1, 5});
+        }
+
+        repo = createRepository("7 days", "1 day");
+        repo.capture(createStatus(300L), new Date(start + 2 * MINUTE));
+
+        repo = createRepository("7 days", "1 day");
+        final List<StatusSnapshot> snapshots = repo.getProcessorStatusHistory("proc", null, null, Integer.MAX_VALUE).getStatusSnapshots();
+        assertEquals(3, snapshots.size());
+        assertEquals(100L, getBytesRead(snapshots.get(0)));
+        assertEquals(200L, getBytesRead(snapshots.get(1)));
+        assertEquals(300L, getBytesRead(snapshots.get(2)));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.controller.swap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.nifi.controller.queue.FlowFileQueue;
+import org.apache.nifi.controller.repository.FlowFileRecord;
+import org.apache.nifi.controller.repository.IncompleteSwapFileException;
+import org.apache.nifi.controller.repository.SwapContents;
+import org.apache.nifi.controller.repository.SwapSummary;
+import org.apache.nifi.controller.repository.claim.ResourceClaimManager;
+import org.apache.nifi.controller.repository.claim.StandardResourceClaimManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestCompressedSchemaSwapSerializerDeserializer {
+
+    private final ResourceClaimManager resourceClaimManager = new StandardResourceClaimManager();
+    private final String swapLocation = "target/testCompressedRoundTrip.swap";
+    private FlowFileQueue flowFileQueue;
+
+    @Before
+    public void setup() {
+        MockFlowFile.resetIdGenerator();
+
+        flowFileQueue = Mockito.mock(FlowFileQueue.class);
+        Mockito.when(flowFileQueue.getIdentifier()).thenReturn("87bb99fe-412c-49f6-a441-d1b0af4e20b4");
+    }
+
+    @Test
+    public void testRoundTripSerializeDeserializeSummary() throws IOException {
+        final byte[] serialized = serialize(createFlowFiles(10000));
+
+        final SwapSummary swapSummary;
+        try (final DataInputStream dis = new DataInputStream(new ByteArrayInputStream(serialized))) {
+            swapSummary = new CompressedSchemaSwapDeserializer().getSwapSummary(dis, swapLocation, resourceClaimManager);
+        }
+
+        assertEquals(10000, swapSummary.getQueueSize().getObjectCount());
+        assertEquals(sizeOf(10000), swapSummary.getQueueSize().getByteCount());
+        assertEquals(9999, swapSummary.getMaxFlowFileId().intValue());
+        assertEquals(10000, swapSummary.getResourceClaims().size());
+    }
+
+    @Test
+    public void testRoundTripSerializeDeserializeFullSwapFile() throws IOException {
+        final byte[] serialized = serialize(createFlowFiles(10000));
+
+        final SwapContents contents = deserialize(serialized);
+        assertEquals(10000, contents.getSummary().getQueueSize().getObjectCount());
+        assertEquals(sizeOf(10000), contents.getSummary().getQueueSize().getByteCount());
+        assertEquals(9999, contents.getSummary().getMaxFlowFileId().intValue());
+
+        assertEquals(10000, contents.getFlowFiles().size());
+        int counter = 0;
+        for (final FlowFileRecord flowFile : contents.getFlowFiles()) {
+            final int i = counter++;
+            assertEquals(String.valueOf(i), flowFile.getAttribute("i"));
+            assertEquals(i, flowFile.getSize());
+        }
+    }
+
+    @Test
+    public void testCompressedSwapFileIsSmaller() throws IOException {
+        final List<FlowFileRecord> flowFiles = createFlowFiles(10000);
+        final byte[] compressed = serialize(flowFiles);
+
+        final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+        new SchemaSwapSerializer().serializeFlowFiles(flowFiles, flowFileQueue, swapLocation, uncompressed);
+
+        assertTrue(compressed.length < uncompressed.size() / 2);
+    }
+
+    @Test
+    public void testIncompleteSwapFileReturnsCompleteBatches() throws IOException {
+        final byte[] serialized = serialize(createFlowFiles(2500));
+
+        // Cut off the end of the swap file, so that only the first two batches are complete
+        final byte[] truncated = Arrays.copyOf(serialized, serialized.length - 50);
+        try {
+            deserialize(truncated);
+            fail("Expected IncompleteSwapFileException");
+        } catch (final IncompleteSwapFileException isfe) {
+            final SwapContents partialContents = isfe.getPartialContents();
+            assertEquals(2500, partialContents.getSummary().getQueueSize().getObjectCount());
+            assertEquals(2 * CompressedSchemaSwapSerializer.BATCH_SIZE, partialContents.getFlowFiles().size());
+            assertEquals("1999", partialContents.getFlowFiles().get(1999).getAttribute("i"));
+        }
+    }
+
+    private List<FlowFileRecord> createFlowFiles(final int count) {
+        final List<FlowFileRecord> flowFiles = new ArrayList<>(count);
+        final Map<String, String> attrs = new HashMap<>();
+        attrs.put("path", "./");
+        attrs.put("filename", "unit-test-file");
+        for (int i = 0; i < count; i++) {
+            attrs.put("i", String.valueOf(i));
+            flowFiles.add(new MockFlowFile(attrs, i, resourceClaimManager));
+        }
+
+        return flowFiles;
+    }
+
+    private long sizeOf(final int count) {
+        long size = 0L;
+        for (int i = 0; i < count; i++) {
+            size += i;
+        }
+        return size;
+    }
+
+    private byte[] serialize(final List<FlowFileRecord> flowFiles) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new CompressedSchemaSwapSerializer().serializeFlowFiles(flowFiles, flowFileQueue, swapLocation, baos);
+        return baos.toByteArray();
+    }
+
+    private SwapContents deserialize(final byte[] serialized) throws IOException {
+        try (final DataInputStream dis = new DataInputStream(new ByteArrayInputStream(serialized))) {
+            return new CompressedSchemaSwapDeserializer().deserializeFlowFiles(dis, swapLocation, flowFileQueue, resourceClaimManager);
+        }
+    }
+}
@@ -121,6 +121,54 @@ public class RemoteResourceFactory extends RemoteResourceInitiator {
         }
     }
 
+    /**
+     * Receives the negotiation of the given resource that the remote instance initiated, and sets the version of the
+     * resource to the version that was agreed upon
+     *
+     * @param resource the resource that the remote instance is expected to negotiate
+     * @param dis the stream to read the negotiation from
+     * @param dos the stream to respond to the negotiation with
+     * @param <T> the type of the resource
+     * @return the resource
+     * @throws IOException if unable to communicate with the remote instance
+     * @throws HandshakeException if the remote instance negotiates a different resource or no version can be agreed upon
+     */
+    public static <T extends VersionedRemoteResource> T receiveResourceNegotiation(final T resource, final DataInputStream dis, final DataOutputStream dos)
+            throws IOException, HandshakeException {
+        final String resourceName = dis.readUTF();
+        final int version = dis.readInt();
+
+        if (!resource.getResourceName().equals(resourceName)) {
+            final String errorMsg = "Expected to negotiate resource " + resource.getResourceName() + " but received " + resourceName;
+            dos.write(ABORT);
+            dos.writeUTF(errorMsg);
+            dos.flush();
+            throw new HandshakeException(errorMsg);
+        }
+
+        final VersionNegotiator negotiator = resource.getVersionNegotiator();
+        if (negotiator.isVersionSupported(version)) {
+            dos.write(RESOURCE_OK);
+            dos.flush();
+
+            negotiator.setVersion(version);
+            return resource;
+        } else {
+            final Integer preferred = negotiator.getPreferredVersion(version);
+            if (preferred == null) {
+                dos.write(ABORT);
+                dos.writeUTF("Unable to negotiate an acceptable version of the resource " + resourceName);
+                dos.flush();
+                throw new HandshakeException("Unable to negotiate an acceptable version of the resource " + resourceName);
+            }
+            dos.write(DIFFERENT_RESOURCE_VERSION);
+            dos.writeInt(preferred);
+            dos.flush();
+
+            return receiveResourceNegotiation(resource, dis, dos);
+        }
+    }
+
     public static <T extends VersionedRemoteResource> T
             receiveResourceNegotiation(final Class<T> cls, final DataInputStream dis, final DataOutputStream dos, final Class<?>[] constructorArgClasses, final Object[] constructorArgs)
             throws IOException, HandshakeException {
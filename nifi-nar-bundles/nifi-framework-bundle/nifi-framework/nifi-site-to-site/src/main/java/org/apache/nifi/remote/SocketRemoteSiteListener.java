@@ -17,14 +17,21 @@
 package org.apache.nifi.remote;
 
 import org.apache.nifi.groups.ProcessGroup;
+import org.apache.nifi.remote.cluster.ClusterNodeInformation;
 import org.apache.nifi.remote.cluster.NodeInformant;
+import org.apache.nifi.remote.exception.BadRequestException;
 import org.apache.nifi.remote.exception.HandshakeException;
+import org.apache.nifi.remote.exception.NotAuthorizedException;
+import org.apache.nifi.remote.exception.RequestExpiredException;
 import org.apache.nifi.remote.io.socket.SocketChannelCommunicationsSession;
+import org.apache.nifi.remote.io.socket.multiplex.MultiplexedConnection;
+import org.apache.nifi.remote.io.socket.multiplex.MultiplexedStream;
 import org.apache.nifi.remote.io.socket.ssl.SSLSocketChannel;
 import org.apache.nifi.remote.io.socket.ssl.SSLSocketChannelCommunicationsSession;
 import org.apache.nifi.remote.protocol.CommunicationsSession;
 import org.apache.nifi.remote.protocol.RequestType;
 import org.apache.nifi.remote.protocol.ServerProtocol;
+import org.apache.nifi.util.NiFiProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,29 +44,70 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import org.apache.nifi.remote.cluster.ClusterNodeInformation;
-import org.apache.nifi.util.NiFiProperties;
 
+/**
+ * Listens for RAW socket Site-to-Site connections. Connections are multiplexed on a single selector thread, which
+ * hands each connection to a pool of worker threads whenever a request arrives. A worker services requests for as
+ * long as the peer keeps sending them and then returns the connection to the selector, so that a connection that is
+ * idle between transactions does not hold a thread. By default the pool grows with the number of connections that
+ * have a request in progress, just as when every connection had a thread of its own; if a maximum number of workers
+ * is configured, requests beyond it wait for a worker and a warning is logged.
+ *
+ * Handshakes, which wait on the peer and may involve several round trips, are performed by a separate pool whose
+ * threads are only held while a handshake is in progress, so that they never wait behind transactions for a worker.
+ *
+ * A peer may also open a {@link MultiplexedConnection}, over which it opens any number of streams. Each stream is
+ * serviced exactly like a connection of its own. The multiplexed connection itself is watched by the selector like
+ * any other connection, and its frames are read by the handshake pool whenever they arrive, so that a worker that is
+ * waiting on data for one stream never prevents that data from being read.
+ */
 public class SocketRemoteSiteListener implements RemoteSiteListener {
 
     public static final String DEFAULT_FLOWFILE_PATH = "./";
 
+    private static final long SELECT_TIMEOUT_MILLIS = 1000L;
+    private static final long SATURATION_WARNING_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1L);
+
     private final int socketPort;
     private final SSLContext sslContext;
     private final NodeInformant nodeInformant;
     private final AtomicReference<ProcessGroup> rootGroup = new AtomicReference<>();
     private final NiFiProperties nifiProperties;
+    private final int maxWorkerThreads;
 
     private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private final Queue<SiteToSiteConnection> connectionsToRegister = new ConcurrentLinkedQueue<>();
+    private final Set<SiteToSiteConnection> parkedStreams = ConcurrentHashMap.newKeySet();
+    private final Set<MultiplexedConnection> multiplexedConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong lastSaturationWarning = new AtomicLong(0L);
+    private volatile Selector selector;
+    private volatile ThreadPoolExecutor workerPool;
+    private volatile ExecutorService connectionPool;
 
     private static final Logger LOG = LoggerFactory.getLogger(SocketRemoteSiteListener.class);
 
@@ -72,6 +120,7 @@ public class SocketRemoteSiteListener implements RemoteSiteListener {
         this.sslContext = sslContext;
         this.nifiProperties = nifiProperties;
         this.nodeInformant = nodeInformant;
+        this.maxWorkerThreads = Math.max(0, nifiProperties.getRemoteInputSocketThreads());
     }
 
     @Override
@@ -81,256 +130,508 @@ public class SocketRemoteSiteListener implements RemoteSiteListener {
 
     @Override
     public void start() throws IOException {
-        final boolean secure = (sslContext != null);
-
         final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
-        serverSocketChannel.configureBlocking(true);
+        serverSocketChannel.configureBlocking(false);
         serverSocketChannel.bind(new InetSocketAddress(socketPort));
+
+        final Selector selector = Selector.open();
+        final SelectionKey acceptKey = serverSocketChannel.register(selector, 0);
+        this.selector = selector;
         stopped.set(false);
 
-        final Thread listenerThread = new Thread(new Runnable() {
-            private int threadCount = 0;
+        final ThreadPoolExecutor workerPool;
+        if (maxWorkerThreads > 0) {
+            workerPool = new ThreadPoolExecutor(maxWorkerThreads, maxWorkerThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory("Site-to-Site Worker Thread-"));
+            workerPool.allowCoreThreadTimeOut(true);
+        } else {
+            workerPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new NamedThreadFactory("Site-to-Site Worker Thread-"));
+        }
+        this.workerPool = workerPool;
+
+        final ExecutorService connectionPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), new NamedThreadFactory("Site-to-Site Connection Thread-"));
+        this.connectionPool = connectionPool;
 
+        final Thread listenerThread = new Thread(new Runnable() {
             @Override
             public void run() {
-                while (!stopped.get()) {
-                    final ProcessGroup processGroup = rootGroup.get();
-                    // If nodeInformant is not null, we are in clustered mode, which means that we don't care about
-                    // the processGroup.
-                    if ((nodeInformant == null) && (processGroup == null || (processGroup.getInputPorts().isEmpty() && processGroup.getOutputPorts().isEmpty()))) {
-                        try {
-                            Thread.sleep(2000L);
-                        } catch (final Exception e) {
+                try {
+                    while (!stopped.get()) {
+                        // Only accept connections once there is something for them to talk to. If nodeInformant is not null,
+                        // we are in clustered mode, which means that we don't care about the processGroup.
+                        acceptKey.interestOps(isAcceptingConnections() ? SelectionKey.OP_ACCEPT : 0);
+
+                        registerParkedConnections(selector);
+                        selector.select(SELECT_TIMEOUT_MILLIS);
+                        if (stopped.get()) {
+                            break;
                         }
-                        continue;
-                    }
 
-                    LOG.trace("Accepting Connection...");
-                    Socket acceptedSocket = null;
-                    try {
-                        serverSocketChannel.configureBlocking(false);
-                        final ServerSocket serverSocket = serverSocketChannel.socket();
-                        serverSocket.setSoTimeout(2000);
-                        while (!stopped.get() && acceptedSocket == null) {
-                            try {
-                                acceptedSocket = serverSocket.accept();
-                            } catch (final SocketTimeoutException ste) {
-                                continue;
-                            }
-                        }
-                    } catch (final IOException e) {
-                        LOG.error("RemoteSiteListener Unable to accept connection due to {}", e.toString());
-                        if (LOG.isDebugEnabled()) {
-                            LOG.error("", e);
-                        }
-                        continue;
-                    }
-                    LOG.trace("Got connection");
+                        final Iterator<SelectionKey> itr = selector.selectedKeys().iterator();
+                        while (itr.hasNext()) {
+                            final SelectionKey key = itr.next();
+                            itr.remove();
 
-                    if (stopped.get()) {
-                        return;
-                    }
-                    final Socket socket = acceptedSocket;
-                    final SocketChannel socketChannel = socket.getChannel();
-                    final Thread thread = new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            LOG.debug("{} Determining URL of connection", this);
-                            final InetAddress inetAddress = socket.getInetAddress();
-                            String hostname = inetAddress.getHostName();
-                            final int slashIndex = hostname.indexOf("/");
-                            if (slashIndex == 0) {
-                                hostname = hostname.substring(1);
-                            } else if (slashIndex > 0) {
-                                hostname = hostname.substring(0, slashIndex);
+                            if (!key.isValid()) {
+                                continue;
                             }
 
-                            final int port = socket.getPort();
-                            final String peerUri = "nifi://" + hostname + ":" + port;
-                            LOG.debug("{} Connection URL is {}", this, peerUri);
-
-                            final CommunicationsSession commsSession;
-                            final String dn;
-                            try {
-                                if (secure) {
-                                    final SSLSocketChannel sslSocketChannel = new SSLSocketChannel(sslContext, socketChannel, false);
-                                    LOG.trace("Channel is secure; connecting...");
-                                    sslSocketChannel.connect();
-                                    LOG.trace("Channel connected");
-
-                                    commsSession = new SSLSocketChannelCommunicationsSession(sslSocketChannel);
-                                    dn = sslSocketChannel.getDn();
-                                    commsSession.setUserDn(dn);
-                                } else {
-                                    LOG.trace("{} Channel is not secure", this);
-                                    commsSession = new SocketChannelCommunicationsSession(socketChannel);
-                                    dn = null;
-                                }
-                            } catch (final Exception e) {
-                                LOG.error("RemoteSiteListener Unable to accept connection from {} due to {}", socket, e.toString());
-                                if (LOG.isDebugEnabled()) {
-                                    LOG.error("", e);
+                            if (key == acceptKey) {
+                                if (key.isAcceptable()) {
+                                    accept(serverSocketChannel, connectionPool);
                                 }
-                                try {
-                                    socketChannel.close();
-                                } catch (IOException swallow) {
+                            } else if (key.isReadable()) {
+                                // Stop watching the channel while a thread owns it; that thread parks it again when it is done.
+                                final SiteToSiteConnection connection = (SiteToSiteConnection) key.attachment();
+                                key.interestOps(0);
+                                if (connection.multiplexedConnection == null) {
+                                    dispatch(() -> serviceRequests(connection));
+                                } else {
+                                    connectionPool.execute(() -> readFrames(connection));
                                 }
-                                return;
                             }
+                        }
 
-                            LOG.info("Received connection from {}, User DN: {}", socket.getInetAddress(), dn);
+                        closeExpiredConnections(selector, connectionPool);
+                    }
+                } catch (final Throwable t) {
+                    LOG.error("Site-to-Site Listener failed due to {}; no longer accepting connections on port {}", t.toString(), socketPort);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.error("", t);
+                    }
+                } finally {
+                    shutdownListener(selector, serverSocketChannel, workerPool, connectionPool);
+                }
+            }
+        });
+        listenerThread.setName("Site-to-Site Listener");
+        listenerThread.start();
+    }
 
-                            final InputStream socketIn;
-                            final OutputStream socketOut;
+    private boolean isAcceptingConnections() {
+        final ProcessGroup processGroup = rootGroup.get();
+        return nodeInformant != null || (processGroup != null && (!processGroup.getInputPorts().isEmpty() || !processGroup.getOutputPorts().isEmpty()));
+    }
 
-                            try {
-                                socketIn = commsSession.getInput().getInputStream();
-                                socketOut = commsSession.getOutput().getOutputStream();
-                            } catch (final IOException e) {
-                                LOG.error("Connection dropped from {} before any data was transmitted", peerUri);
-                                try {
-                                    commsSession.close();
-                                } catch (final IOException ioe) {
-                                }
+    private void accept(final ServerSocketChannel serverSocketChannel, final ExecutorService connectionPool) {
+        LOG.trace("Accepting Connection...");
+        final SocketChannel socketChannel;
+        try {
+            socketChannel = serverSocketChannel.accept();
+        } catch (final IOException e) {
+            LOG.error("RemoteSiteListener Unable to accept connection due to {}", e.toString());
+            if (LOG.isDebugEnabled()) {
+                LOG.error("", e);
+            }
+            return;
+        }
 
-                                return;
-                            }
+        if (socketChannel == null) {
+            return;
+        }
 
-                            final DataInputStream dis = new DataInputStream(socketIn);
-                            final DataOutputStream dos = new DataOutputStream(socketOut);
-
-                            ServerProtocol protocol = null;
-                            Peer peer = null;
-                            try {
-                                // ensure that we are communicating with another NiFi
-                                LOG.debug("Verifying magic bytes...");
-                                verifyMagicBytes(dis, peerUri);
-
-                                LOG.debug("Receiving Server Protocol Negotiation");
-                                protocol = RemoteResourceFactory.receiveServerProtocolNegotiation(dis, dos);
-                                protocol.setRootProcessGroup(rootGroup.get());
-                                protocol.setNodeInformant(nodeInformant);
-
-                                final PeerDescription description = new PeerDescription("localhost", getPort(), sslContext != null);
-                                peer = new Peer(description, commsSession, peerUri, "nifi://localhost:" + getPort());
-                                LOG.debug("Handshaking....");
-                                protocol.handshake(peer);
-
-                                if (!protocol.isHandshakeSuccessful()) {
-                                    LOG.error("Handshake failed with {}; closing connection", peer);
-                                    try {
-                                        peer.close();
-                                    } catch (final IOException e) {
-                                        LOG.warn("Failed to close {} due to {}", peer, e);
-                                    }
-
-                                    // no need to shutdown protocol because we failed to perform handshake
-                                    return;
-                                }
+        LOG.trace("Got connection");
+        connectionPool.execute(() -> handshake(socketChannel));
+    }
 
-                                commsSession.setTimeout((int) protocol.getRequestExpiration());
-
-                                LOG.info("Successfully negotiated ServerProtocol {} Version {} with {}", new Object[]{
-                                    protocol.getResourceName(), protocol.getVersionNegotiator().getVersion(), peer});
-
-                                try {
-                                    while (!protocol.isShutdown()) {
-                                        LOG.trace("Getting Protocol Request Type...");
-
-                                        int timeoutCount = 0;
-                                        RequestType requestType = null;
-
-                                        while (requestType == null) {
-                                            try {
-                                                requestType = protocol.getRequestType(peer);
-                                            } catch (final SocketTimeoutException e) {
-                                                // Give the timeout a bit longer (twice as long) to receive the Request Type,
-                                                // in order to attempt to receive more data without shutting down the socket if we don't
-                                                // have to.
-                                                LOG.debug("{} Timed out waiting to receive RequestType using {} with {}", new Object[]{this, protocol, peer});
-                                                timeoutCount++;
-                                                requestType = null;
-
-                                                if (timeoutCount >= 2) {
-                                                    throw e;
-                                                }
-                                            }
-                                        }
-
-                                        LOG.debug("Request type from {} is {}", protocol, requestType);
-                                        switch (requestType) {
-                                            case NEGOTIATE_FLOWFILE_CODEC:
-                                                protocol.negotiateCodec(peer);
-                                                break;
-                                            case RECEIVE_FLOWFILES:
-                                                // peer wants to receive FlowFiles, so we will transfer FlowFiles.
-                                                protocol.getPort().transferFlowFiles(peer, protocol);
-                                                break;
-                                            case SEND_FLOWFILES:
-                                                // Peer wants to send FlowFiles, so we will receive.
-                                                protocol.getPort().receiveFlowFiles(peer, protocol);
-                                                break;
-                                            case REQUEST_PEER_LIST:
-                                                final Optional<ClusterNodeInformation> nodeInfo = (nodeInformant == null) ? Optional.empty() : Optional.of(nodeInformant.getNodeInformation());
-                                                protocol.sendPeerList(
-                                                        peer,
-                                                        nodeInfo,
-                                                        nifiProperties.getRemoteInputHost(),
-                                                        nifiProperties.getRemoteInputPort(),
-                                                        nifiProperties.getRemoteInputHttpPort(),
-                                                        nifiProperties.isSiteToSiteSecure());
-                                                break;
-                                            case SHUTDOWN:
-                                                protocol.shutdown(peer);
-                                                break;
-                                        }
-                                    }
-                                    LOG.debug("Finished communicating with {} ({})", peer, protocol);
-                                } catch (final Exception e) {
-                                    LOG.error("Unable to communicate with remote instance {} ({}) due to {}; closing connection", peer, protocol, e.toString());
-                                    if (LOG.isDebugEnabled()) {
-                                        LOG.error("", e);
-                                    }
-                                }
-                            } catch (final IOException e) {
-                                LOG.error("Unable to communicate with remote instance {} due to {}; closing connection", peer, e.toString());
-                                if (LOG.isDebugEnabled()) {
-                                    LOG.error("", e);
-                                }
-                            } catch (final Throwable t) {
-                                LOG.error("Handshake failed when communicating with {}; closing connection. Reason for failure: {}", peerUri, t.toString());
-                                if (LOG.isDebugEnabled()) {
-                                    LOG.error("", t);
-                                }
-                            } finally {
-                                LOG.trace("Cleaning up");
-                                try {
-                                    if (protocol != null && peer != null) {
-                                        protocol.shutdown(peer);
-                                    }
-                                } catch (final Exception protocolException) {
-                                    LOG.warn("Failed to shutdown protocol due to {}", protocolException.toString());
-                                }
+    private void handshake(final SocketChannel socketChannel) {
+        final Socket socket = socketChannel.socket();
+
+        LOG.debug("{} Determining URL of connection", this);
+        final InetAddress inetAddress = socket.getInetAddress();
+        String hostname = inetAddress.getHostName();
+        final int slashIndex = hostname.indexOf("/");
+        if (slashIndex == 0) {
+            hostname = hostname.substring(1);
+        } else if (slashIndex > 0) {
+            hostname = hostname.substring(0, slashIndex);
+        }
 
-                                try {
-                                    if (peer != null) {
-                                        peer.close();
-                                    }
-                                } catch (final Exception peerException) {
-                                    LOG.warn("Failed to close peer due to {}; some resources may not be appropriately cleaned up", peerException.toString());
-                                }
-                                LOG.trace("Finished cleaning up");
-                            }
+        final int port = socket.getPort();
+        final String peerUri = "nifi://" + hostname + ":" + port;
+        LOG.debug("{} Connection URL is {}", this, peerUri);
+
+        final CommunicationsSession commsSession;
+        final String dn;
+        try {
+            if (sslContext != null) {
+                final SSLSocketChannel sslSocketChannel = new SSLSocketChannel(sslContext, socketChannel, false);
+                LOG.trace("Channel is secure; connecting...");
+                sslSocketChannel.connect();
+                LOG.trace("Channel connected");
+
+                commsSession = new SSLSocketChannelCommunicationsSession(sslSocketChannel);
+                dn = sslSocketChannel.getDn();
+                commsSession.setUserDn(dn);
+            } else {
+                LOG.trace("{} Channel is not secure", this);
+                commsSession = new SocketChannelCommunicationsSession(socketChannel);
+                dn = null;
+            }
+        } catch (final Exception e) {
+            LOG.error("RemoteSiteListener Unable to accept connection from {} due to {}", socket, e.toString());
+            if (LOG.isDebugEnabled()) {
+                LOG.error("", e);
+            }
+            try {
+                socketChannel.close();
+            } catch (IOException swallow) {
+            }
+            return;
+        }
+
+        LOG.info("Received connection from {}, User DN: {}", socket.getInetAddress(), dn);
+        negotiateProtocol(new SiteToSiteConnection(socketChannel, commsSession), peerUri, true);
+    }
+
+    private void handshake(final MultiplexedStream stream, final String peerUri) {
+        LOG.debug("Received stream {} from {}", stream, peerUri);
+        negotiateProtocol(new SiteToSiteConnection(null, stream), peerUri, false);
+    }
+
+    /**
+     * Verifies the magic bytes that the peer opens the given connection with and negotiates the protocol to communicate
+     * with, after which the connection is serviced or parked until its first request arrives.
+     *
+     * @param connection the new connection
+     * @param peerUri the URI of the peer
+     * @param allowMultiplexing whether or not the peer may open a multiplexed connection in place of a regular one
+     */
+    private void negotiateProtocol(final SiteToSiteConnection connection, final String peerUri, final boolean allowMultiplexing) {
+        final CommunicationsSession commsSession = connection.commsSession;
+        final InputStream socketIn;
+        final OutputStream socketOut;
+
+        try {
+            socketIn = commsSession.getInput().getInputStream();
+            socketOut = commsSession.getOutput().getOutputStream();
+        } catch (final IOException e) {
+            LOG.error("Connection dropped from {} before any data was transmitted", peerUri);
+            try {
+                commsSession.close();
+            } catch (final IOException ioe) {
+            }
+
+            return;
+        }
+
+        final DataInputStream dis = new DataInputStream(socketIn);
+        final DataOutputStream dos = new DataOutputStream(socketOut);
+
+        try {
+            // ensure that we are communicating with another NiFi
+            LOG.debug("Verifying magic bytes...");
+            if (verifyMagicBytes(dis, peerUri, allowMultiplexing)) {
+                acceptMultiplexedConnection(connection, dis, dos, peerUri);
+                return;
+            }
+
+            LOG.debug("Receiving Server Protocol Negotiation");
+            final ServerProtocol protocol = RemoteResourceFactory.receiveServerProtocolNegotiation(dis, dos);
+            protocol.setRootProcessGroup(rootGroup.get());
+            protocol.setNodeInformant(nodeInformant);
+
+            final PeerDescription description = new PeerDescription("localhost", getPort(), sslContext != null);
+            final Peer peer = new Peer(description, commsSession, peerUri, "nifi://localhost:" + getPort());
+            connection.peer = peer;
+            LOG.debug("Handshaking....");
+            protocol.handshake(peer);
+
+            if (!protocol.isHandshakeSuccessful()) {
+                LOG.error("Handshake failed with {}; closing connection", peer);
+                // no need to shutdown protocol because we failed to perform handshake
+                connection.close();
+                return;
+            }
+
+            connection.protocol = protocol;
+            commsSession.setTimeout((int) protocol.getRequestExpiration());
+
+            LOG.info("Successfully negotiated ServerProtocol {} Version {} with {}", new Object[]{
+                protocol.getResourceName(), protocol.getVersionNegotiator().getVersion(), peer});
+        } catch (final IOException e) {
+            LOG.error("Unable to communicate with remote instance {} due to {}; closing connection", connection.peer, e.toString());
+            if (LOG.isDebugEnabled()) {
+                LOG.error("", e);
+            }
+            connection.close();
+            return;
+        } catch (final Throwable t) {
+            LOG.error("Handshake failed when communicating with {}; closing connection. Reason for failure: {}", peerUri, t.toString());
+            if (LOG.isDebugEnabled()) {
+                LOG.error("", t);
+            }
+            connection.close();
+            return;
+        }
+
+        if (commsSession.isDataAvailable()) {
+            dispatch(() -> serviceRequests(connection));
+        } else {
+            park(connection);
+        }
+    }
+
+    private void acceptMultiplexedConnection(final SiteToSiteConnection connection, final DataInputStream dis, final DataOutputStream dos, final String peerUri) throws IOException {
+        // streams are accepted while frames are being read, which must not block, so their handshakes are left to the
+        // connection pool, which is not claimed until the peer has sent something on the new stream
+        final MultiplexedConnection multiplexedConnection = new MultiplexedConnection(connection.commsSession, peerUri,
+            stream -> stream.notifyWhenDataAvailable(() -> connectionPool.execute(() -> handshake(stream, peerUri))));
+        RemoteResourceFactory.receiveResourceNegotiation(multiplexedConnection, dis, dos);
+
+        connection.multiplexedConnection = multiplexedConnection;
+        multiplexedConnections.add(multiplexedConnection);
+        LOG.info("Successfully negotiated multiplexed connection Version {} with {}", multiplexedConnection.getVersionNegotiator().getVersion(), peerUri);
+
+        if (connection.commsSession.isDataAvailable()) {
+            readFrames(connection);
+        } else {
+            park(connection);
+        }
+    }
+
+    /**
+     * Reads the frames that have arrived on the given multiplexed connection and then hands the connection back to the
+     * selector, unless it has been closed
+     *
+     * @param connection the multiplexed connection
+     */
+    private void readFrames(final SiteToSiteConnection connection) {
+        if (connection.multiplexedConnection.readAvailableFrames() && !stopped.get()) {
+            park(connection);
+        } else {
+            LOG.debug("Finished communicating with {}", connection.multiplexedConnection);
+            connection.close();
+        }
+    }
+
+    /**
+     * Hands the given task to a worker, warning if all of the configured workers are busy, in which case the task
+     * waits until one of them becomes available
+     *
+     * @param task the task that services a connection
+     */
+    private void dispatch(final Runnable task) {
+        final ThreadPoolExecutor workerPool = this.workerPool;
+        if (maxWorkerThreads > 0 && workerPool.getActiveCount() >= maxWorkerThreads) {
+            final long now = System.currentTimeMillis();
+            final long lastWarning = lastSaturationWarning.get();
+            if (now - lastWarning > SATURATION_WARNING_INTERVAL_MILLIS && lastSaturationWarning.compareAndSet(lastWarning, now)) {
+                LOG.warn("All {} Site-to-Site worker threads are busy, so {} requests are waiting for a worker. Consider increasing the value of the {} property",
+                    new Object[] {maxWorkerThreads, workerPool.getQueue().size() + 1, NiFiProperties.REMOTE_INPUT_SOCKET_THREADS});
+            }
+        }
+
+        workerPool.execute(task);
+    }
+
+    /**
+     * Services requests from the given connection until the protocol is shut down or the peer has no further data
+     * waiting, at which point the connection is handed back to the selector.
+     *
+     * @param connection the connection to service
+     */
+    private void serviceRequests(final SiteToSiteConnection connection) {
+        final ServerProtocol protocol = connection.protocol;
+        final Peer peer = connection.peer;
+
+        try {
+            do {
+                handleRequest(protocol, peer);
+            } while (!protocol.isShutdown() && !stopped.get() && connection.commsSession.isDataAvailable());
+        } catch (final Exception e) {
+            LOG.error("Unable to communicate with remote instance {} ({}) due to {}; closing connection", peer, protocol, e.toString());
+            if (LOG.isDebugEnabled()) {
+                LOG.error("", e);
+            }
+            connection.close();
+            return;
+        }
+
+        if (protocol.isShutdown() || stopped.get()) {
+            LOG.debug("Finished communicating with {} ({})", peer, protocol);
+            connection.close();
+            return;
+        }
+
+        park(connection);
+    }
+
+    /**
+     * Hands the given idle connection to the selector thread, which will wake a worker once the peer sends its next request.
+     *
+     * @param connection the idle connection
+     */
+    private void park(final SiteToSiteConnection connection) {
+        connection.idleSince = System.currentTimeMillis();
+
+        if (connection.socketChannel == null) {
+            // a stream of a multiplexed connection; whichever of its next request and its expiration comes first claims it
+            parkedStreams.add(connection);
+            ((MultiplexedStream) connection.commsSession).notifyWhenDataAvailable(() -> {
+                if (parkedStreams.remove(connection)) {
+                    dispatch(() -> {
+                        if (connection.commsSession.isDataAvailable()) {
+                            serviceRequests(connection);
+                        } else {
+                            LOG.debug("Stream from {} was closed while idle", connection.peer);
+                            connection.close();
                         }
                     });
-                    thread.setName("Site-to-Site Worker Thread-" + (threadCount++));
-                    LOG.debug("Handing connection to {}", thread);
-                    thread.start();
+                }
+            });
+            return;
+        }
+
+        connectionsToRegister.add(connection);
+
+        final Selector selector = this.selector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    private void handleRequest(final ServerProtocol protocol, final Peer peer) throws IOException, NotAuthorizedException, BadRequestException, RequestExpiredException {
+        LOG.trace("Getting Protocol Request Type...");
+
+        int timeoutCount = 0;
+        RequestType requestType = null;
+
+        while (requestType == null) {
+            try {
+                requestType = protocol.getRequestType(peer);
+            } catch (final SocketTimeoutException e) {
+                // Give the timeout a bit longer (twice as long) to receive the Request Type,
+                // in order to attempt to receive more data without shutting down the socket if we don't
+                // have to.
+                LOG.debug("{} Timed out waiting to receive RequestType using {} with {}", new Object[]{this, protocol, peer});
+                timeoutCount++;
+                requestType = null;
+
+                if (timeoutCount >= 2) {
+                    throw e;
                 }
             }
-        });
-        listenerThread.setName("Site-to-Site Listener");
-        listenerThread.start();
+        }
+
+        LOG.debug("Request type from {} is {}", protocol, requestType);
+        switch (requestType) {
+            case NEGOTIATE_FLOWFILE_CODEC:
+                protocol.negotiateCodec(peer);
+                break;
+            case RECEIVE_FLOWFILES:
+                // peer wants to receive FlowFiles, so we will transfer FlowFiles.
+                protocol.getPort().transferFlowFiles(peer, protocol);
+                break;
+            case SEND_FLOWFILES:
+                // Peer wants to send FlowFiles, so we will receive.
+                protocol.getPort().receiveFlowFiles(peer, protocol);
+                break;
+            case REQUEST_PEER_LIST:
+                final Optional<ClusterNodeInformation> nodeInfo = (nodeInformant == null) ? Optional.empty() : Optional.of(nodeInformant.getNodeInformation());
+                protocol.sendPeerList(
+                        peer,
+                        nodeInfo,
+                        nifiProperties.getRemoteInputHost(),
+                        nifiProperties.getRemoteInputPort(),
+                        nifiProperties.getRemoteInputHttpPort(),
+                        nifiProperties.isSiteToSiteSecure());
+                break;
+            case SHUTDOWN:
+                protocol.shutdown(peer);
+                break;
+        }
+    }
+
+    private void registerParkedConnections(final Selector selector) {
+        SiteToSiteConnection connection;
+        while ((connection = connectionsToRegister.poll()) != null) {
+            try {
+                if (connection.key == null) {
+                    connection.key = connection.socketChannel.register(selector, SelectionKey.OP_READ, connection);
+                } else {
+                    connection.key.interestOps(SelectionKey.OP_READ);
+                }
+            } catch (final ClosedChannelException | CancelledKeyException e) {
+                LOG.debug("Connection to {} was closed while idle", connection.peer);
+                connection.close();
+            }
+        }
+    }
+
+    private void closeExpiredConnections(final Selector selector, final ExecutorService connectionPool) {
+        final long now = System.currentTimeMillis();
+        for (final SelectionKey key : selector.keys()) {
+            final Object attachment = key.attachment();
+            if (!(attachment instanceof SiteToSiteConnection) || !key.isValid() || key.interestOps() == 0) {
+                continue;
+            }
+
+            // A multiplexed connection has no protocol of its own; its streams expire individually
+            final SiteToSiteConnection connection = (SiteToSiteConnection) attachment;
+            if (connection.protocol == null) {
+                continue;
+            }
+
+            // Mirror the blocking behavior of waiting up to twice the request expiration for the next Request Type
+            if (now - connection.idleSince > 2 * connection.protocol.getRequestExpiration()) {
+                LOG.debug("Timed out waiting to receive RequestType from {}; closing connection", connection.peer);
+                key.cancel();
+                connectionPool.execute(connection::close);
+            }
+        }
+
+        for (final SiteToSiteConnection connection : parkedStreams) {
+            if (now - connection.idleSince > 2 * connection.protocol.getRequestExpiration() && parkedStreams.remove(connection)) {
+                LOG.debug("Timed out waiting to receive RequestType from {}; closing stream", connection.peer);
+                connectionPool.execute(connection::close);
+            }
+        }
+
+        multiplexedConnections.removeIf(MultiplexedConnection::isClosed);
+    }
+
+    private void shutdownListener(final Selector selector, final ServerSocketChannel serverSocketChannel, final ExecutorService workerPool,
+            final ExecutorService connectionPool) {
+        workerPool.shutdown();
+        connectionPool.shutdown();
+
+        for (final SelectionKey key : selector.keys()) {
+            final Object attachment = key.attachment();
+            if (attachment instanceof SiteToSiteConnection && key.interestOps() != 0) {
+                ((SiteToSiteConnection) attachment).close();
+            }
+        }
+
+        SiteToSiteConnection connection;
+        while ((connection = connectionsToRegister.poll()) != null) {
+            connection.close();
+        }
+
+        for (final SiteToSiteConnection stream : parkedStreams) {
+            if (parkedStreams.remove(stream)) {
+                stream.close();
+            }
+        }
+
+        for (final MultiplexedConnection multiplexedConnection : multiplexedConnections) {
+            multiplexedConnection.close();
+        }
+        multiplexedConnections.clear();
+
+        try {
+            selector.close();
+        } catch (final IOException e) {
+            LOG.warn("Failed to close Site-to-Site selector due to {}", e.toString());
+        }
+
+        try {
+            serverSocketChannel.close();
+        } catch (final IOException e) {
+            LOG.warn("Failed to close Site-to-Site server socket on port {} due to {}", socketPort, e.toString());
+        }
     }
 
     private int getPort() {
@@ -340,9 +641,17 @@ public class SocketRemoteSiteListener implements RemoteSiteListener {
     @Override
     public void stop() {
         stopped.set(true);
+
+        final Selector selector = this.selector;
+        if (selector != null) {
+            selector.wakeup();
+        }
     }
 
-    private void verifyMagicBytes(final InputStream in, final String peerDescription) throws IOException, HandshakeException {
+    /**
+     * @return <code>true</code> if the peer is opening a multiplexed connection, <code>false</code> if it is opening a regular connection
+     */
+    private boolean verifyMagicBytes(final InputStream in, final String peerDescription, final boolean allowMultiplexing) throws IOException, HandshakeException {
         final byte[] receivedMagicBytes = new byte[CommunicationsSession.MAGIC_BYTES.length];
 
         // expect magic bytes
@@ -354,8 +663,82 @@ public class SocketRemoteSiteListener implements RemoteSiteListener {
             throw new HandshakeException("Handshake failed (not enough bytes) when communicating with " + peerDescription);
         }
 
+        if (allowMultiplexing && Arrays.equals(MultiplexedConnection.MAGIC_BYTES, receivedMagicBytes)) {
+            return true;
+        }
+
         if (!Arrays.equals(CommunicationsSession.MAGIC_BYTES, receivedMagicBytes)) {
             throw new HandshakeException("Handshake with " + peerDescription + " failed because the Magic Header was not present");
         }
+        return false;
+    }
+
+    /**
+     * The state of a single Site-to-Site connection, of a multiplexed connection, or of a single stream of a multiplexed
+     * connection, in which case there is no socket channel. It is owned by at most one thread at a time; while it is
+     * idle it is owned by the selector thread, or by the multiplexed connection.
+     */
+    private static class SiteToSiteConnection {
+        private final SocketChannel socketChannel;
+        private final CommunicationsSession commsSession;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private volatile Peer peer;
+        private volatile ServerProtocol protocol;
+        private volatile MultiplexedConnection multiplexedConnection;
+        private volatile SelectionKey key;
+        private volatile long idleSince;
+
+        private SiteToSiteConnection(final SocketChannel socketChannel, final CommunicationsSession commsSession) {
+            this.socketChannel = socketChannel;
+            this.commsSession = commsSession;
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+
+            LOG.trace("Cleaning up");
+            if (multiplexedConnection != null) {
+                // closes every stream of the connection as well
+                multiplexedConnection.close();
+                return;
+            }
+
+            try {
+                if (protocol != null && peer != null) {
+                    protocol.shutdown(peer);
+                }
+            } catch (final Exception protocolException) {
+                LOG.warn("Failed to shutdown protocol due to {}", protocolException.toString());
+            }
+
+            try {
+                if (peer != null) {
+                    peer.close();
+                } else {
+                    commsSession.close();
+                }
+            } catch (final Exception peerException) {
+                LOG.warn("Failed to close peer due to {}; some resources may not be appropriately cleaned up", peerException.toString());
+            }
+            LOG.trace("Finished cleaning up");
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+        private NamedThreadFactory(final String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setName(namePrefix + threadCount.getAndIncrement());
+            return thread;
+        }
     }
 }
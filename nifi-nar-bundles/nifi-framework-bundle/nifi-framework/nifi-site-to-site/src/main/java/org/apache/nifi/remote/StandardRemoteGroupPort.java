@@ -152,6 +152,7 @@ public class StandardRemoteGroupPort extends RemoteGroupPort {
                 .nodePenalizationPeriod(penalizationMillis, TimeUnit.MILLISECONDS)
                 .timeout(remoteGroup.getCommunicationsTimeout(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS)
                 .transportProtocol(remoteGroup.getTransportProtocol())
+                .multiplexConnections(nifiProperties.isRemoteSocketMultiplexConnections())
                 .httpProxy(new HttpProxy(remoteGroup.getProxyHost(), remoteGroup.getProxyPort(), remoteGroup.getProxyUser(), remoteGroup.getProxyPassword()))
                 .build();
         clientRef.set(client);
@@ -32,6 +32,7 @@ import org.apache.nifi.remote.cluster.NodeInformant;
 import org.apache.nifi.remote.codec.FlowFileCodec;
 import org.apache.nifi.remote.exception.HandshakeException;
 import org.apache.nifi.remote.exception.ProtocolException;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
 import org.apache.nifi.remote.io.CompressionInputStream;
 import org.apache.nifi.remote.io.CompressionOutputStream;
 import org.apache.nifi.remote.util.StandardDataPacket;
@@ -116,9 +117,16 @@ public abstract class AbstractFlowFileServerProtocol implements ServerProtocol {
                         break;
                     case PORT_IDENTIFIER: {
                         checkPortStatus(peer, value);
+                        break;
                     }
+                    case COMPRESSION_ALGORITHM:
+                        // introduced in version 7; earlier versions always compress with DEFLATE
+                        if (getVersionNegotiator().getVersion() >= 7) {
+                            confirmed.setCompressionAlgorithm(CompressionAlgorithm.valueOf(value));
+                        }
+                        break;
                 }
-            } catch (final NumberFormatException nfe) {
+            } catch (final IllegalArgumentException iae) {
                 throw new HandshakeException(ResponseCode.ILLEGAL_PROPERTY_VALUE, "Received invalid value for property '" + property + "'; invalid value: " + value);
             }
         }
@@ -241,9 +249,11 @@ public abstract class AbstractFlowFileServerProtocol implements ServerProtocol {
         final long startNanos = System.nanoTime();
         String calculatedCRC = "";
         OutputStream os = new DataOutputStream(commsSession.getOutput().getOutputStream());
+        final boolean useGzip = handshakeProperties.isUseGzip();
+        final CompressionAlgorithm.Compressor compressor = useGzip ? handshakeProperties.getCompressionAlgorithm().createCompressor() : null;
+        codec.reset();
         while (continueTransaction) {
-            final boolean useGzip = handshakeProperties.isUseGzip();
-            final OutputStream flowFileOutputStream = useGzip ? new CompressionOutputStream(os) : os;
+            final OutputStream flowFileOutputStream = useGzip ? new CompressionOutputStream(os, compressor) : os;
             logger.debug("{} Sending {} to {}", new Object[]{this, flowFile, peer});
 
             final CheckedOutputStream checkedOutputStream = new CheckedOutputStream(flowFileOutputStream, crc);
@@ -431,9 +441,11 @@ public abstract class AbstractFlowFileServerProtocol implements ServerProtocol {
         final Set<FlowFile> flowFilesReceived = new HashSet<>();
         long bytesReceived = 0L;
         boolean continueTransaction = true;
+        final CompressionAlgorithm.Decompressor decompressor = handshakeProperties.isUseGzip() ? handshakeProperties.getCompressionAlgorithm().createDecompressor() : null;
+        codec.reset();
         while (continueTransaction) {
             final long startNanos = System.nanoTime();
-            final InputStream flowFileInputStream = handshakeProperties.isUseGzip() ? new CompressionInputStream(dis) : dis;
+            final InputStream flowFileInputStream = handshakeProperties.isUseGzip() ? new CompressionInputStream(dis, decompressor) : dis;
             final CheckedInputStream checkedInputStream = new CheckedInputStream(flowFileInputStream, crc);
 
             final DataPacket dataPacket = codec.decode(checkedInputStream);
@@ -17,12 +17,14 @@
 package org.apache.nifi.remote.protocol;
 
 import org.apache.nifi.remote.exception.HandshakeException;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
 
 public class HandshakeProperties {
 
     private String commsIdentifier;
     private String transitUriPrefix = null;
     private boolean useGzip;
+    private CompressionAlgorithm compressionAlgorithm = CompressionAlgorithm.DEFLATE;
     private long expirationMillis;
     private int batchCount = 0;
     private long batchBytes = 0L;
@@ -52,6 +54,14 @@ public class HandshakeProperties {
         this.useGzip = useGzip;
     }
 
+    public CompressionAlgorithm getCompressionAlgorithm() {
+        return compressionAlgorithm;
+    }
+
+    public void setCompressionAlgorithm(CompressionAlgorithm compressionAlgorithm) {
+        this.compressionAlgorithm = compressionAlgorithm;
+    }
+
     public long getExpirationMillis() {
         return expirationMillis;
     }
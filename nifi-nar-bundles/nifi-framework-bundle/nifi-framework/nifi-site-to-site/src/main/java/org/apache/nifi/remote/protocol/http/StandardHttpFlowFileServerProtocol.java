@@ -46,13 +46,15 @@ public class StandardHttpFlowFileServerProtocol extends AbstractFlowFileServerPr
 
     public static final String RESOURCE_NAME = "HttpFlowFileProtocol";
 
-    private final FlowFileCodec codec = new StandardFlowFileCodec();
+    private final FlowFileCodec codec;
     private final VersionNegotiator versionNegotiator;
     private final HttpRemoteSiteListener transactionManager;
 
     public StandardHttpFlowFileServerProtocol(final VersionNegotiator versionNegotiator, final NiFiProperties nifiProperties) {
         super();
         this.versionNegotiator = versionNegotiator;
+        // the codec is not negotiated over HTTP, but is implied by the version of the protocol
+        this.codec = new StandardFlowFileCodec(versionNegotiator.getVersion() >= 7 ? 2 : 1);
         this.transactionManager = HttpRemoteSiteListener.getInstance(nifiProperties);
     }
 
@@ -46,7 +46,8 @@ public class SocketFlowFileServerProtocol extends AbstractFlowFileServerProtocol
     public static final String RESOURCE_NAME = "SocketFlowFileProtocol";
 
     // Version 6 added to support Zero-Master Clustering, which was introduced in NiFi 1.0.0
-    private final VersionNegotiator versionNegotiator = new StandardVersionNegotiator(6, 5, 4, 3, 2, 1);
+    // Version 7 added to support negotiating the compression algorithm and version 2 of the StandardFlowFileCodec
+    private final VersionNegotiator versionNegotiator = new StandardVersionNegotiator(7, 6, 5, 4, 3, 2, 1);
 
     @Override
     protected HandshakeProperties doHandshake(Peer peer) throws IOException, HandshakeException {
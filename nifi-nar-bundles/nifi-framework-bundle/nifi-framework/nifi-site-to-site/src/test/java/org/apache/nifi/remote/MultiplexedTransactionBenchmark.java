@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.remote;
+
+import org.apache.nifi.connectable.Port;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.groups.ProcessGroup;
+import org.apache.nifi.processor.ProcessContext;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.processor.Relationship;
+import org.apache.nifi.provenance.ProvenanceReporter;
+import org.apache.nifi.remote.codec.FlowFileCodec;
+import org.apache.nifi.remote.io.socket.SocketChannelCommunicationsSession;
+import org.apache.nifi.remote.io.socket.multiplex.MultiplexedConnection;
+import org.apache.nifi.remote.protocol.CommunicationsSession;
+import org.apache.nifi.remote.protocol.ServerProtocol;
+import org.apache.nifi.remote.protocol.socket.SocketClientProtocol;
+import org.apache.nifi.remote.util.StandardDataPacket;
+import org.apache.nifi.util.NiFiProperties;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+
+/**
+ * Measures the number of Site-to-Site transactions per second that can be sent to a SocketRemoteSiteListener over a
+ * link with a simulated round-trip time, with each sending thread using either a connection of its own or a stream of a
+ * single multiplexed connection that all of the threads share. Each transaction carries one small FlowFile and waits for
+ * the two round trips of its confirmation, so that a single transaction at a time can never exceed
+ * 1000 / (2 * roundTripMillis) transactions per second on one connection; the multiplexed connection keeps every thread's
+ * transactions in flight at once over one socket. The number of threads is set with the Threads annotation, or with the
+ * -t option when running through the JMH launcher. This is not run as part of the build; to run it, build the test
+ * classes with the 'benchmarks' profile enabled and execute the main method from the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Threads(8)
+@Fork(1)
+public class MultiplexedTransactionBenchmark {
+
+    private static final String RECEIVING_PORT_ID = "receiving-port";
+    private static final int TIMEOUT_MILLIS = 30000;
+
+    @State(Scope.Benchmark)
+    public static class LinkState {
+        @Param({"false", "true"})
+        private boolean multiplexed;
+
+        @Param({"50"})
+        private int roundTripMillis;
+
+        private SocketRemoteSiteListener listener;
+        private DelayedLink link;
+        private MultiplexedConnection multiplexedConnection;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            final int listenerPort;
+            try (final ServerSocket serverSocket = new ServerSocket(0)) {
+                listenerPort = serverSocket.getLocalPort();
+            }
+
+            final Map<String, String> properties = new HashMap<>();
+            properties.put(NiFiProperties.REMOTE_INPUT_HOST, "localhost");
+            properties.put(NiFiProperties.REMOTE_INPUT_PORT, String.valueOf(listenerPort));
+            properties.put(NiFiProperties.SITE_TO_SITE_SECURE, "false");
+            final NiFiProperties nifiProperties = NiFiProperties.createBasicNiFiProperties(null, properties);
+
+            final RootGroupPort receivingPort = createReceivingPort();
+            final ProcessGroup rootGroup = Mockito.mock(ProcessGroup.class);
+            Mockito.when(rootGroup.isRootGroup()).thenReturn(true);
+            Mockito.when(rootGroup.getInputPorts()).thenReturn(Collections.<Port> singleton(receivingPort));
+            Mockito.when(rootGroup.getOutputPorts()).thenReturn(Collections.emptySet());
+            Mockito.when(rootGroup.getInputPort(RECEIVING_PORT_ID)).thenReturn(receivingPort);
+
+            listener = new SocketRemoteSiteListener(listenerPort, null, nifiProperties);
+            listener.setRootGroup(rootGroup);
+            listener.start();
+
+            link = new DelayedLink(listenerPort, roundTripMillis / 2);
+            if (multiplexed) {
+                multiplexedConnection = MultiplexedConnection.initiate(link.connect(), "benchmark");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            if (multiplexedConnection != null) {
+                multiplexedConnection.close();
+            }
+            link.close();
+            listener.stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PeerState {
+        private Peer peer;
+        private SocketClientProtocol protocol;
+        private FlowFileCodec codec;
+        private int transactionCount = 0;
+
+        @Setup(Level.Trial)
+        public void setup(final LinkState linkState) throws IOException {
+            final CommunicationsSession commsSession = linkState.multiplexed ? linkState.multiplexedConnection.openStream() : linkState.link.connect();
+            commsSession.getOutput().getOutputStream().write(CommunicationsSession.MAGIC_BYTES);
+
+            final String peerUrl = "nifi://localhost:" + linkState.link.getPort();
+            peer = new Peer(new PeerDescription("localhost", linkState.link.getPort(), false), commsSession, peerUrl, peerUrl);
+            protocol = new SocketClientProtocol();
+            final DataInputStream dis = new DataInputStream(commsSession.getInput().getInputStream());
+            final DataOutputStream dos = new DataOutputStream(commsSession.getOutput().getOutputStream());
+            RemoteResourceInitiator.initiateResourceNegotiation(protocol, dis, dos);
+
+            final RemoteDestination destination = Mockito.mock(RemoteDestination.class);
+            Mockito.when(destination.getIdentifier()).thenReturn(RECEIVING_PORT_ID);
+            protocol.setDestination(destination);
+            protocol.setTimeout(TIMEOUT_MILLIS);
+            protocol.handshake(peer, RECEIVING_PORT_ID);
+            codec = protocol.negotiateCodec(peer);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            // the multiplexed connection may already have been closed by the thread that tore down the link
+            try {
+                protocol.shutdown(peer);
+            } catch (final IOException e) {
+            }
+            try {
+                peer.close();
+            } catch (final IOException e) {
+            }
+        }
+    }
+
+    @Benchmark
+    public int sendTransaction(final PeerState state) throws IOException {
+        final Transaction transaction = state.protocol.startTransaction(state.peer, state.codec, TransferDirection.SEND);
+        final byte[] content = ("transaction " + state.transactionCount++).getBytes(StandardCharsets.UTF_8);
+        transaction.send(new StandardDataPacket(Collections.singletonMap("filename", "benchmark.txt"), new ByteArrayInputStream(content), content.length));
+        transaction.confirm();
+        return transaction.complete().getDataPacketsTransferred();
+    }
+
+    /**
+     * @return a port that accepts every transaction sent to it and discards the FlowFiles
+     */
+    private static RootGroupPort createReceivingPort() throws Exception {
+        final PortAuthorizationResult authorized = Mockito.mock(PortAuthorizationResult.class);
+        Mockito.when(authorized.isAuthorized()).thenReturn(true);
+
+        final FlowFile flowFile = Mockito.mock(FlowFile.class);
+        final ProvenanceReporter provenanceReporter = Mockito.mock(ProvenanceReporter.class);
+        final ProcessContext context = Mockito.mock(ProcessContext.class);
+        Mockito.when(context.getAvailableRelationships()).thenReturn(Collections.singleton(new Relationship.Builder().name("success").build()));
+
+        final RootGroupPort receivingPort = Mockito.mock(RootGroupPort.class);
+        Mockito.when(receivingPort.checkUserAuthorization(Mockito.anyString())).thenReturn(authorized);
+        Mockito.when(receivingPort.isValid()).thenReturn(true);
+        Mockito.when(receivingPort.isRunning()).thenReturn(true);
+        Mockito.when(receivingPort.getConnections()).thenReturn(Collections.emptySet());
+        Mockito.when(receivingPort.receiveFlowFiles(any(Peer.class), any(ServerProtocol.class))).thenAnswer(invocation -> {
+            final Peer peer = (Peer) invocation.getArguments()[0];
+            final ServerProtocol protocol = (ServerProtocol) invocation.getArguments()[1];
+
+            final ProcessSession session = Mockito.mock(ProcessSession.class);
+            Mockito.when(session.importFrom(any(InputStream.class), any(FlowFile.class))).thenAnswer(importInvocation -> {
+                final InputStream in = (InputStream) importInvocation.getArguments()[0];
+                while (in.read() >= 0) {
+                }
+                return flowFile;
+            });
+            Mockito.when(session.putAttribute(any(FlowFile.class), any(String.class), any(String.class))).thenReturn(flowFile);
+            Mockito.when(session.getProvenanceReporter()).thenReturn(provenanceReporter);
+
+            return protocol.receiveFlowFiles(peer, context, session, protocol.getPreNegotiatedCodec());
+        });
+        return receivingPort;
+    }
+
+    /**
+     * A local TCP link that delays everything sent over it, in each direction, by a fixed number of milliseconds
+     * without limiting its bandwidth.
+     */
+    private static class DelayedLink {
+        private final ServerSocket serverSocket;
+        private final int targetPort;
+        private final int delayMillis;
+
+        private DelayedLink(final int targetPort, final int delayMillis) throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            this.targetPort = targetPort;
+            this.delayMillis = delayMillis;
+
+            final Thread acceptThread = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        final Socket source = serverSocket.accept();
+                        final Socket target = new Socket("localhost", this.targetPort);
+                        source.setTcpNoDelay(true);
+                        target.setTcpNoDelay(true);
+                        relay(source, target);
+                        relay(target, source);
+                    } catch (final IOException e) {
+                        return;
+                    }
+                }
+            }, "Delayed Link Acceptor");
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private CommunicationsSession connect() throws IOException {
+            final SocketChannel socketChannel = SocketChannel.open(new InetSocketAddress("localhost", getPort()));
+            socketChannel.socket().setTcpNoDelay(true);
+            return new SocketChannelCommunicationsSession(socketChannel);
+        }
+
+        /**
+         * Copies everything read from one socket to the other once it has been delayed; the chunk that marks the end of
+         * the stream is empty.
+         */
+        private void relay(final Socket from, final Socket to) throws IOException {
+            final InputStream in = from.getInputStream();
+            final OutputStream out = to.getOutputStream();
+            final BlockingQueue<DelayedChunk> chunks = new LinkedBlockingQueue<>();
+
+            final Thread reader = new Thread(() -> {
+                final byte[] buffer = new byte[65536];
+                try {
+                    int len;
+                    while ((len = in.read(buffer)) > 0) {
+                        chunks.add(new DelayedChunk(Arrays.copyOf(buffer, len), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis)));
+                    }
+                } catch (final IOException e) {
+                    // the link is being torn down
+                }
+                chunks.add(new DelayedChunk(new byte[0], System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis)));
+            }, "Delayed Link Reader");
+
+            final Thread writer = new Thread(() -> {
+                try {
+                    while (true) {
+                        final DelayedChunk chunk = chunks.take();
+                        final long waitNanos = chunk.dueNanos - System.nanoTime();
+                        if (waitNanos > 0) {
+                            TimeUnit.NANOSECONDS.sleep(waitNanos);
+                        }
+                        if (chunk.data.length == 0) {
+                            to.shutdownOutput();
+                            return;
+                        }
+                        out.write(chunk.data);
+                        out.flush();
+                    }
+                } catch (final IOException | InterruptedException e) {
+                    // the link is being torn down
+                }
+            }, "Delayed Link Writer");
+
+            reader.setDaemon(true);
+            writer.setDaemon(true);
+            reader.start();
+            writer.start();
+        }
+
+        private void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    private static class DelayedChunk {
+        private final byte[] data;
+        private final long dueNanos;
+
+        private DelayedChunk(final byte[] data, final long dueNanos) {
+            this.data = data;
+            this.dueNanos = dueNanos;
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+            .include(MultiplexedTransactionBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.remote;
+
+import org.apache.nifi.connectable.Port;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.groups.ProcessGroup;
+import org.apache.nifi.processor.ProcessContext;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.processor.Relationship;
+import org.apache.nifi.provenance.ProvenanceReporter;
+import org.apache.nifi.remote.codec.FlowFileCodec;
+import org.apache.nifi.remote.io.socket.SocketChannelCommunicationsSession;
+import org.apache.nifi.remote.io.socket.multiplex.MultiplexedConnection;
+import org.apache.nifi.remote.protocol.CommunicationsSession;
+import org.apache.nifi.remote.protocol.ServerProtocol;
+import org.apache.nifi.remote.protocol.socket.SocketClientProtocol;
+import org.apache.nifi.remote.util.StandardDataPacket;
+import org.apache.nifi.util.NiFiProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+
+public class TestSocketRemoteSiteListener {
+
+    private static final int WORKER_THREADS = 4;
+    private static final String WORKER_THREAD_PREFIX = "Site-to-Site Worker Thread-";
+    private static final String RECEIVING_PORT_ID = "receiving-port";
+
+    private int port;
+    private SocketRemoteSiteListener listener;
+    private final AtomicInteger flowFilesReceived = new AtomicInteger(0);
+
+    @Before
+    public void setup() throws Exception {
+        try (final ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+
+        final Map<String, String> properties = new HashMap<>();
+        properties.put(NiFiProperties.REMOTE_INPUT_HOST, "localhost");
+        properties.put(NiFiProperties.REMOTE_INPUT_PORT, String.valueOf(port));
+        properties.put(NiFiProperties.REMOTE_INPUT_SOCKET_THREADS, String.valueOf(WORKER_THREADS));
+        properties.put(NiFiProperties.SITE_TO_SITE_SECURE, "false");
+        properties.put(NiFiProperties.SITE_TO_SITE_HTTP_ENABLED, "true");
+        properties.put(NiFiProperties.WEB_HTTP_PORT, "8080");
+        final NiFiProperties nifiProperties = NiFiProperties.createBasicNiFiProperties(null, properties);
+
+        final Port inputPort = Mockito.mock(Port.class);
+        final ProcessGroup rootGroup = Mockito.mock(ProcessGroup.class);
+        Mockito.when(rootGroup.isRootGroup()).thenReturn(true);
+        Mockito.when(rootGroup.getInputPorts()).thenReturn(Collections.singleton(inputPort));
+        Mockito.when(rootGroup.getOutputPorts()).thenReturn(Collections.emptySet());
+        final RootGroupPort receivingPort = createReceivingPort();
+        Mockito.when(rootGroup.getInputPort(RECEIVING_PORT_ID)).thenReturn(receivingPort);
+
+        listener = new SocketRemoteSiteListener(port, null, nifiProperties);
+        listener.setRootGroup(rootGroup);
+        listener.start();
+    }
+
+    @After
+    public void cleanup() {
+        listener.stop();
+    }
+
+    /**
+     * @return a port that accepts every transaction sent to it, counting the FlowFiles in flowFilesReceived
+     */
+    private RootGroupPort createReceivingPort() throws Exception {
+        final PortAuthorizationResult authorized = Mockito.mock(PortAuthorizationResult.class);
+        Mockito.when(authorized.isAuthorized()).thenReturn(true);
+
+        final RootGroupPort receivingPort = Mockito.mock(RootGroupPort.class);
+        Mockito.when(receivingPort.checkUserAuthorization(Mockito.anyString())).thenReturn(authorized);
+        Mockito.when(receivingPort.isValid()).thenReturn(true);
+        Mockito.when(receivingPort.isRunning()).thenReturn(true);
+        Mockito.when(receivingPort.getConnections()).thenReturn(Collections.emptySet());
+        Mockito.when(receivingPort.receiveFlowFiles(any(Peer.class), any(ServerProtocol.class))).thenAnswer(invocation -> {
+            final Peer peer = (Peer) invocation.getArguments()[0];
+            final ServerProtocol protocol = (ServerProtocol) invocation.getArguments()[1];
+
+            final ProcessSession session = Mockito.mock(ProcessSession.class);
+            final FlowFile flowFile = Mockito.mock(FlowFile.class);
+            Mockito.when(session.importFrom(any(InputStream.class), any(FlowFile.class))).thenAnswer(importInvocation -> {
+                final InputStream in = (InputStream) importInvocation.getArguments()[0];
+                while (in.read() >= 0) {
+                }
+                return flowFile;
+            });
+            Mockito.when(session.putAttribute(any(FlowFile.class), any(String.class), any(String.class))).thenReturn(flowFile);
+            Mockito.when(session.getProvenanceReporter()).thenReturn(Mockito.mock(ProvenanceReporter.class));
+
+            final ProcessContext context = Mockito.mock(ProcessContext.class);
+            Mockito.when(context.getAvailableRelationships()).thenReturn(Collections.singleton(new Relationship.Builder().name("success").build()));
+
+            final int received = protocol.receiveFlowFiles(peer, context, session, protocol.getPreNegotiatedCodec());
+            flowFilesReceived.addAndGet(received);
+            return received;
+        });
+        return receivingPort;
+    }
+
+    private ClientConnection connect(final int timeoutMillis) throws IOException {
+        final SocketChannel socketChannel = SocketChannel.open();
+        socketChannel.socket().connect(new InetSocketAddress("localhost", port), timeoutMillis);
+        return handshake(new SocketChannelCommunicationsSession(socketChannel), timeoutMillis, null);
+    }
+
+    private ClientConnection handshake(final CommunicationsSession commsSession, final int timeoutMillis, final String destinationId) throws IOException {
+        commsSession.getOutput().getOutputStream().write(CommunicationsSession.MAGIC_BYTES);
+
+        final Peer peer = new Peer(new PeerDescription("localhost", port, false), commsSession, "nifi://localhost:" + port, "http://localhost:8080/nifi");
+        final SocketClientProtocol protocol = new SocketClientProtocol();
+        final DataInputStream dis = new DataInputStream(commsSession.getInput().getInputStream());
+        final DataOutputStream dos = new DataOutputStream(commsSession.getOutput().getOutputStream());
+        RemoteResourceInitiator.initiateResourceNegotiation(protocol, dis, dos);
+
+        protocol.setTimeout(timeoutMillis);
+        if (destinationId != null) {
+            final RemoteDestination destination = Mockito.mock(RemoteDestination.class);
+            Mockito.when(destination.getIdentifier()).thenReturn(destinationId);
+            protocol.setDestination(destination);
+        }
+        protocol.handshake(peer, destinationId);
+        return new ClientConnection(protocol, peer);
+    }
+
+    private void assertPeerList(final ClientConnection connection) throws IOException {
+        final Set<PeerStatus> peerStatuses = connection.protocol.getPeerStatuses(connection.peer);
+        assertEquals(1, peerStatuses.size());
+        assertEquals(port, peerStatuses.iterator().next().getPeerDescription().getPort());
+    }
+
+    private static int countWorkerThreads() {
+        int count = 0;
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(WORKER_THREAD_PREFIX)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test(timeout = 180000)
+    public void testManyConcurrentPeersShareBoundedWorkerPool() throws Exception {
+        final int numPeers = 1000;
+        final ExecutorService clientPool = Executors.newFixedThreadPool(50);
+        final List<ClientConnection> connections = Collections.synchronizedList(new ArrayList<>());
+
+        final AtomicBoolean sampling = new AtomicBoolean(true);
+        final AtomicInteger maxWorkerThreads = new AtomicInteger(0);
+        final Thread sampler = new Thread(() -> {
+            while (sampling.get()) {
+                maxWorkerThreads.set(Math.max(maxWorkerThreads.get(), countWorkerThreads()));
+                try {
+                    Thread.sleep(10L);
+                } catch (final InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < numPeers; i++) {
+                futures.add(clientPool.submit(() -> {
+                    connections.add(connect(30000));
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(numPeers, connections.size());
+
+            // Every connection is now idle and held open by its peer; each round of requests must be serviced on those same connections
+            for (int round = 0; round < 2; round++) {
+                futures.clear();
+                for (final ClientConnection connection : connections) {
+                    futures.add(clientPool.submit(() -> {
+                        assertPeerList(connection);
+                        return null;
+                    }));
+                }
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        } finally {
+            sampling.set(false);
+            sampler.join();
+
+            for (final ClientConnection connection : connections) {
+                connection.close();
+            }
+            clientPool.shutdown();
+            clientPool.awaitTermination(30, TimeUnit.SECONDS);
+        }
+
+        assertTrue("Expected at least one worker thread to service requests", maxWorkerThreads.get() > 0);
+        assertTrue("Expected no more than " + WORKER_THREADS + " worker threads but saw " + maxWorkerThreads.get(), maxWorkerThreads.get() <= WORKER_THREADS);
+    }
+
+    @Test(timeout = 30000)
+    public void testIdleConnectionIsClosed() throws Exception {
+        final ClientConnection connection = connect(250);
+        try {
+            assertPeerList(connection);
+
+            // the listener closes connections that have not sent a request within twice the request expiration
+            Thread.sleep(2000L);
+
+            try {
+                assertPeerList(connection);
+                fail("Expected idle connection to have been closed by the listener");
+            } catch (final IOException expected) {
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSilentConnectionsDoNotHoldWorkers() throws Exception {
+        // peers that connect but never send their magic bytes are left to the handshake threads
+        final List<SocketChannel> silentChannels = new ArrayList<>();
+        try {
+            for (int i = 0; i < WORKER_THREADS * 2; i++) {
+                silentChannels.add(SocketChannel.open(new InetSocketAddress("localhost", port)));
+            }
+
+            final ClientConnection connection = connect(5000);
+            try {
+                assertPeerList(connection);
+            } finally {
+                connection.close();
+            }
+        } finally {
+            for (final SocketChannel channel : silentChannels) {
+                channel.close();
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentTransactionsOverMultiplexedConnection() throws Exception {
+        final SocketChannel socketChannel = SocketChannel.open(new InetSocketAddress("localhost", port));
+        final MultiplexedConnection multiplexedConnection = MultiplexedConnection.initiate(new SocketChannelCommunicationsSession(socketChannel), "test");
+
+        final int numStreams = 16;
+        final int transactionsPerStream = 5;
+        final ExecutorService clientPool = Executors.newFixedThreadPool(numStreams);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < numStreams; i++) {
+                futures.add(clientPool.submit(() -> {
+                    final ClientConnection connection = handshake(multiplexedConnection.openStream(), 30000, RECEIVING_PORT_ID);
+                    try {
+                        assertPeerList(connection);
+
+                        final FlowFileCodec codec = connection.protocol.negotiateCodec(connection.peer);
+                        for (int t = 0; t < transactionsPerStream; t++) {
+                            final Transaction transaction = connection.protocol.startTransaction(connection.peer, codec, TransferDirection.SEND);
+                            final byte[] content = ("transaction " + t).getBytes("UTF-8");
+                            transaction.send(new StandardDataPacket(Collections.singletonMap("index", String.valueOf(t)), new ByteArrayInputStream(content), content.length));
+                            transaction.confirm();
+                            assertEquals(1, transaction.complete().getDataPacketsTransferred());
+                        }
+                    } finally {
+                        connection.close();
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clientPool.shutdown();
+            clientPool.awaitTermination(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(numStreams * transactionsPerStream, flowFilesReceived.get());
+        assertTrue("Expected the connection to remain open after all of its streams were closed", !multiplexedConnection.isClosed());
+
+        // the listener reads the frames of the connection from its selector, rather than from a thread of the connection's own
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse("Expected no reader thread for the accepted connection but found " + thread.getName(),
+                thread.getName().startsWith("Site-to-Site Multiplexed Connection Reader for nifi://"));
+        }
+        assertEquals(0, multiplexedConnection.getStreamCount());
+
+        // a new stream can be opened on the same connection and is serviced like any other
+        final ClientConnection connection = handshake(multiplexedConnection.openStream(), 30000, null);
+        try {
+            assertPeerList(connection);
+        } finally {
+            connection.close();
+            multiplexedConnection.close();
+        }
+    }
+
+    private static class ClientConnection {
+        private final SocketClientProtocol protocol;
+        private final Peer peer;
+
+        private ClientConnection(final SocketClientProtocol protocol, final Peer peer) {
+            this.protocol = protocol;
+            this.peer = peer;
+        }
+
+        private void close() {
+            try {
+                protocol.shutdown(peer);
+            } catch (final IOException e) {
+            }
+            try {
+                peer.close();
+            } catch (final IOException e) {
+            }
+        }
+    }
+}
@@ -34,6 +34,8 @@ import org.apache.nifi.remote.StandardVersionNegotiator;
 import org.apache.nifi.remote.codec.FlowFileCodec;
 import org.apache.nifi.remote.codec.StandardFlowFileCodec;
 import org.apache.nifi.remote.exception.HandshakeException;
+import org.apache.nifi.remote.io.CompressionAlgorithm;
+import org.apache.nifi.remote.io.CompressionOutputStream;
 import org.apache.nifi.remote.io.http.HttpInput;
 import org.apache.nifi.remote.io.http.HttpServerCommunicationsSession;
 import org.apache.nifi.remote.protocol.DataPacket;
@@ -42,6 +44,7 @@ import org.apache.nifi.remote.protocol.HandshakeProperty;
 import org.apache.nifi.remote.util.StandardDataPacket;
 import org.apache.nifi.stream.io.ByteArrayInputStream;
 import org.apache.nifi.stream.io.ByteArrayOutputStream;
+import org.apache.nifi.stream.io.StreamUtils;
 import org.apache.nifi.util.NiFiProperties;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -49,8 +52,12 @@ import org.junit.Test;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -597,5 +604,75 @@ public class TestHttpFlowFileServerProtocol {
         assertEquals(2, flowFileReceived);
     }
 
+    @Test
+    public void testIllegalCompressionAlgorithm() throws Exception {
+        final HttpFlowFileServerProtocol serverProtocol = new StandardHttpFlowFileServerProtocol(new StandardVersionNegotiator(7),
+            NiFiProperties.createBasicNiFiProperties(null, null));
+        final Peer peer = getDefaultPeer();
+        final HttpServerCommunicationsSession commsSession = (HttpServerCommunicationsSession) peer.getCommunicationsSession();
+        commsSession.putHandshakeParam(HandshakeProperty.GZIP, "true");
+        commsSession.putHandshakeParam(HandshakeProperty.COMPRESSION_ALGORITHM, "UNKNOWN");
+        try {
+            serverProtocol.handshake(peer);
+            fail();
+        } catch (final HandshakeException e) {
+            assertEquals(ResponseCode.ILLEGAL_PROPERTY_VALUE, e.getResponseCode());
+        }
+    }
+
+    @Test
+    public void testReceiveTwoFilesCompressedWithVersion7() throws Exception {
+        final HttpRemoteSiteListener remoteSiteListener = HttpRemoteSiteListener.getInstance(NiFiProperties.createBasicNiFiProperties(null, null));
+
+        final String transactionId = "testReceiveTwoFilesCompressedWithVersion7";
+        final HttpFlowFileServerProtocol serverProtocol = new StandardHttpFlowFileServerProtocol(new StandardVersionNegotiator(7),
+            NiFiProperties.createBasicNiFiProperties(null, null));
+        final Peer peer = getDefaultPeer(transactionId);
+        final HttpServerCommunicationsSession commsSession = (HttpServerCommunicationsSession) peer.getCommunicationsSession();
+        commsSession.putHandshakeParam(HandshakeProperty.GZIP, "true");
+        commsSession.putHandshakeParam(HandshakeProperty.COMPRESSION_ALGORITHM, CompressionAlgorithm.LZ4.name());
+        commsSession.putHandshakeParam(HandshakeProperty.BATCH_COUNT, "2");
+        commsSession.setUserDn("unit-test");
+        commsSession.setDataTransferUrl("https://peer-host:8443/nifi-api/input-ports/port-id/transactions/" + transactionId + "/flow-files");
+
+        serverProtocol.handshake(peer);
+        assertTrue(serverProtocol.isHandshakeSuccessful());
+
+        final FlowFileCodec negotiatedCodec = serverProtocol.negotiateCodec(peer);
+        assertEquals(2, negotiatedCodec.getVersionNegotiator().getVersion());
+
+        // encode the way that the client does, with one compressed stream per FlowFile and a codec of its own
+        final FlowFileCodec clientCodec = new StandardFlowFileCodec(2);
+        final CompressionAlgorithm.Compressor compressor = CompressionAlgorithm.LZ4.createCompressor();
+        final ByteArrayOutputStream testDataOs = new ByteArrayOutputStream();
+        for (int i = 0; i < 2; i++) {
+            final CompressionOutputStream compressedOut = new CompressionOutputStream(testDataOs, compressor);
+            clientCodec.encode(createClientDataPacket(), compressedOut);
+            compressedOut.close();
+        }
+        ((HttpInput)commsSession.getInput()).setInputStream(new ByteArrayInputStream(testDataOs.toByteArray()));
 
+        final ProcessContext context = mock(ProcessContext.class);
+        final ProcessSession processSession = mock(ProcessSession.class);
+        final ProvenanceReporter provenanceReporter = mock(ProvenanceReporter.class);
+        final FlowFile flowFile1 = mock(FlowFile.class);
+        final FlowFile flowFile2 = mock(FlowFile.class);
+        final List<String> receivedContents = new ArrayList<>();
+        doAnswer(invocation -> {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            StreamUtils.copy((InputStream) invocation.getArguments()[0], content);
+            receivedContents.add(new String(content.toByteArray(), StandardCharsets.UTF_8));
+            return flowFile1;
+        }).when(processSession).importFrom(any(InputStream.class), any(FlowFile.class));
+        doReturn(flowFile1).doReturn(flowFile2).when(processSession).putAttribute(any(FlowFile.class), any(String.class), any(String.class));
+        doReturn(provenanceReporter).when(processSession).getProvenanceReporter();
+        doReturn(new HashSet<Relationship>()).when(context).getAvailableRelationships();
+
+        assertEquals(2, serverProtocol.receiveFlowFiles(peer, context, processSession, negotiatedCodec));
+        assertEquals(Arrays.asList("Content from client.", "Content from client."), receivedContents);
+        assertTrue(remoteSiteListener.isTransactionActive(transactionId));
+
+        commsSession.setResponseCode(ResponseCode.CONFIRM_TRANSACTION);
+        assertEquals(2, serverProtocol.commitReceiveTransaction(peer));
+    }
 }
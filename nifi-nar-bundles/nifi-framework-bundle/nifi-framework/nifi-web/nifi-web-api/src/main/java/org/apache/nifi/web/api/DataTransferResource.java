@@ -82,10 +82,12 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.apache.nifi.remote.protocol.HandshakeProperty.BATCH_COUNT;
 import static org.apache.nifi.remote.protocol.HandshakeProperty.BATCH_DURATION;
 import static org.apache.nifi.remote.protocol.HandshakeProperty.BATCH_SIZE;
+import static org.apache.nifi.remote.protocol.HandshakeProperty.COMPRESSION_ALGORITHM;
 import static org.apache.nifi.remote.protocol.HandshakeProperty.REQUEST_EXPIRATION_MILLIS;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_BATCH_COUNT;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_BATCH_DURATION;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_BATCH_SIZE;
+import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_COMPRESSION_ALGORITHM;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_REQUEST_EXPIRATION;
 import static org.apache.nifi.remote.protocol.http.HttpHeaders.HANDSHAKE_PROPERTY_USE_COMPRESSION;
 
@@ -110,7 +112,7 @@ public class DataTransferResource extends ApplicationResource {
 
     private NiFiServiceFacade serviceFacade;
     private final ResponseCreator responseCreator = new ResponseCreator();
-    private final VersionNegotiator transportProtocolVersionNegotiator = new TransportProtocolVersionNegotiator(1);
+    private final VersionNegotiator transportProtocolVersionNegotiator = new TransportProtocolVersionNegotiator(2, 1);
     private final HttpRemoteSiteListener transactionManager;
     private final NiFiProperties nifiProperties;
 
@@ -335,6 +337,7 @@ public class DataTransferResource extends ApplicationResource {
         final String batchCount = req.getHeader(HANDSHAKE_PROPERTY_BATCH_COUNT);
         final String batchSize = req.getHeader(HANDSHAKE_PROPERTY_BATCH_SIZE);
         final String batchDuration = req.getHeader(HANDSHAKE_PROPERTY_BATCH_DURATION);
+        final String compressionAlgorithm = req.getHeader(HANDSHAKE_PROPERTY_COMPRESSION_ALGORITHM);
 
         commSession.putHandshakeParam(HandshakeProperty.PORT_IDENTIFIER, portId);
         commSession.putHandshakeParam(HandshakeProperty.GZIP, String.valueOf(useCompression));
@@ -351,6 +354,9 @@ public class DataTransferResource extends ApplicationResource {
         if (!isEmpty(batchDuration)) {
             commSession.putHandshakeParam(BATCH_DURATION, batchDuration);
         }
+        if (useCompression && !isEmpty(compressionAlgorithm)) {
+            commSession.putHandshakeParam(COMPRESSION_ALGORITHM, compressionAlgorithm);
+        }
 
         if (peerDescription.isSecure()) {
             final NiFiUser nifiUser = NiFiUserUtils.getNiFiUser();
@@ -86,7 +86,7 @@ public class SiteToSiteResource extends ApplicationResource {
     private Authorizer authorizer;
 
     private final ResponseCreator responseCreator = new ResponseCreator();
-    private final VersionNegotiator transportProtocolVersionNegotiator = new TransportProtocolVersionNegotiator(1);
+    private final VersionNegotiator transportProtocolVersionNegotiator = new TransportProtocolVersionNegotiator(2, 1);
     private final HttpRemoteSiteListener transactionManager;
 
     public SiteToSiteResource(final NiFiProperties nifiProperties) {
@@ -605,6 +605,8 @@ public final class DtoFactory {
         dto.setBackPressureObjectThreshold(connection.getFlowFileQueue().getBackPressureObjectThreshold());
         dto.setBackPressureDataSizeThreshold(connection.getFlowFileQueue().getBackPressureDataSizeThreshold());
         dto.setFlowFileExpiration(connection.getFlowFileQueue().getFlowFileExpiration());
+        dto.setLoadBalanceStrategy(connection.getFlowFileQueue().getLoadBalanceStrategy().name());
+        dto.setLoadBalancePartitionAttribute(connection.getFlowFileQueue().getPartitioningAttribute());
         dto.setPrioritizers(new ArrayList<String>());
         for (final FlowFilePrioritizer comparator : connection.getFlowFileQueue().getPriorities()) {
             dto.getPrioritizers().add(comparator.getClass().getCanonicalName());
@@ -2745,6 +2747,8 @@ public final class DtoFactory {
         copy.setParentGroupId(original.getParentGroupId());
         copy.setSelectedRelationships(copy(original.getSelectedRelationships()));
         copy.setFlowFileExpiration(original.getFlowFileExpiration());
+        copy.setLoadBalanceStrategy(original.getLoadBalanceStrategy());
+        copy.setLoadBalancePartitionAttribute(original.getLoadBalancePartitionAttribute());
         copy.setBackPressureObjectThreshold(original.getBackPressureObjectThreshold());
         copy.setBackPressureDataSizeThreshold(original.getBackPressureDataSizeThreshold());
         copy.setPrioritizers(copy(original.getPrioritizers()));
@@ -220,7 +220,7 @@ public class TestSiteToSiteResource {
 
         assertEquals(200, response.getStatus());
         assertEquals(1, resultEntity.getPeers().size());
-        assertEquals(new Integer(1), response.getMetadata().getFirst(HttpHeaders.PROTOCOL_VERSION));
+        assertEquals(new Integer(2), response.getMetadata().getFirst(HttpHeaders.PROTOCOL_VERSION));
     }
 
     private SiteToSiteResource getSiteToSiteResource(final NiFiServiceFacade serviceFacade) {
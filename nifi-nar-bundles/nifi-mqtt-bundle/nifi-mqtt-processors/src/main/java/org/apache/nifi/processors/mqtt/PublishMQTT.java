@@ -17,6 +17,7 @@
 
 package org.apache.nifi.processors.mqtt;
 
+import org.apache.nifi.annotation.behavior.BatchCommits;
 import org.apache.nifi.annotation.behavior.SupportsBatching;
 import org.apache.nifi.annotation.lifecycle.OnStopped;
 import org.apache.nifi.components.PropertyDescriptor;
@@ -54,6 +55,7 @@ import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 @SupportsBatching
+@BatchCommits
 @InputRequirement(Requirement.INPUT_REQUIRED)
 @Tags({"publish", "MQTT", "IOT"})
 @CapabilityDescription("Publishes a message to an MQTT topic")
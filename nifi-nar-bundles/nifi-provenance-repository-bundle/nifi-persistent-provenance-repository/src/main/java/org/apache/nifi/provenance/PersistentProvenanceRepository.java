@@ -115,6 +115,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -150,6 +151,12 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
     private final Lock readLock = rwLock.readLock();
 
     private RecordWriter[] writers; // guarded by readLock/writeLock
+    private long writersFirstEventId = -1L; // guarded by readLock/writeLock
+
+    // only one rollover may be in progress at a time; the write lock is held only while the writers are swapped
+    private final Lock rolloverLock = new ReentrantLock();
+    private final Object backPressureMonitor = new Object();
+    private volatile boolean backPressureEngaged = false;
 
     private final AtomicLong streamStartTime = new AtomicLong(System.currentTimeMillis());
     private final RepositoryConfiguration configuration;
@@ -186,6 +193,7 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
 
     private final TimedBuffer<TimedCountSize> updateCounts = new TimedBuffer<>(TimeUnit.SECONDS, 300, new CountSizeEntityAccess());
     private final TimedBuffer<TimestampedLong> backpressurePauseMillis = new TimedBuffer<>(TimeUnit.SECONDS, 300, new LongEntityAccess());
+    private final TimedBuffer<TimestampedLong> writerSwapPauseNanos = new TimedBuffer<>(TimeUnit.SECONDS, 300, new LongEntityAccess());
 
     /**
      * default no args constructor for service loading only.
@@ -268,7 +276,8 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
             recover();
 
             if (configuration.isAllowRollover()) {
-                writers = createWriters(configuration, idGenerator.get());
+                writersFirstEventId = idGenerator.get();
+                writers = createWriters(configuration, writersFirstEventId);
             }
 
             if (configuration.isAllowRollover()) {
@@ -277,15 +286,15 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
                     public void run() {
                         // Check if we need to roll over
                         if (needToRollover()) {
-                            // it appears that we do need to roll over. Obtain write lock so that we can do so, and then
+                            // it appears that we do need to roll over. Obtain the rollover lock so that we can do so, and then
                             // confirm that we still need to.
-                            writeLock.lock();
+                            rolloverLock.lock();
                             try {
-                                logger.debug("Obtained write lock to perform periodic rollover");
+                                logger.debug("Obtained rollover lock to perform periodic rollover");
 
                                 if (needToRollover()) {
                                     try {
-                                        rollover(false);
+                                        performRollover(false);
                                     } catch (final Exception e) {
                                         logger.error("Failed to roll over Provenance Event Log due to {}", e.toString());
                                         logger.error("", e);
@@ -293,7 +302,7 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
                                     }
                                 }
                             } finally {
-                                writeLock.unlock();
+                                rolloverLock.unlock();
                             }
                         }
                     }
@@ -728,6 +737,7 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
     @Override
     public synchronized void close() throws IOException {
         this.closed.set(true);
+        releaseBackPressure();
         writeLock.lock();
         try {
             logger.debug("Obtained write lock for close");
@@ -753,6 +763,8 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
     }
 
     private void persistRecord(final Iterable<ProvenanceEventRecord> records) {
+        waitForBackPressureRelief();
+
         final long totalJournalSize;
         readLock.lock();
         try {
@@ -817,18 +829,12 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
                 // running out of disk space. If we have multiple partitions, we may well be able to rollover. This helps
                 // in two ways: it compresses the journal files which frees up space, and if it ends up merging to a different
                 // partition/storage directory, we can delete the journals from this directory that ran out of space.
-                // In order to do this, though, we must switch from a read lock to a write lock.
-                // This part of the code gets a little bit messy, and we could potentially refactor it a bit in order to
-                // make the code cleaner.
+                // In order to do this, though, we must release the read lock, as the rollover obtains the write lock in order
+                // to swap out the writers. This part of the code gets a little bit messy, and we could potentially refactor it
+                // a bit in order to make the code cleaner.
                 readLock.unlock();
                 try {
-                    writeLock.lock();
-                    try {
-                        logger.debug("Obtained write lock to rollover due to IOException on write");
-                        rollover(true);
-                    } finally {
-                        writeLock.unlock();
-                    }
+                    rollover(true);
                 } catch (final Exception e) {
                     logger.error("Failed to Rollover Provenance Event Repository file due to {}", e.toString());
                     logger.error("", e);
@@ -846,23 +852,12 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
 
         // If the total number of bytes written to the Journals is >= configured max, we need to roll over
         if (totalJournalSize >= configuration.getMaxEventFileCapacity()) {
-            writeLock.lock();
             try {
-                logger.debug("Obtained write lock to perform rollover based on file size");
-
-                // now that we've obtained the lock, we need to verify that we still need to do the rollover, as
-                // another thread may have just done it.
-                if (bytesWrittenSinceRollover.get() >= configuration.getMaxEventFileCapacity()) {
-                    try {
-                        rollover(false);
-                    } catch (final IOException e) {
-                        logger.error("Failed to Rollover Provenance Event Repository file due to {}", e.toString());
-                        logger.error("", e);
-                        eventReporter.reportEvent(Severity.ERROR, EVENT_CATEGORY, "Failed to Rollover Provenance Event Log due to " + e.toString());
-                    }
-                }
-            } finally {
-                writeLock.unlock();
+                rolloverIfFull();
+            } catch (final IOException e) {
+                logger.error("Failed to Rollover Provenance Event Repository file due to {}", e.toString());
+                logger.error("", e);
+                eventReporter.reportEvent(Severity.ERROR, EVENT_CATEGORY, "Failed to Rollover Provenance Event Log due to " + e.toString());
             }
         }
     }
@@ -1255,12 +1250,7 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
      * @throws IOException if unable to complete rollover
      */
     void rolloverWithLock(final boolean force) throws IOException {
-        writeLock.lock();
-        try {
-            rollover(force);
-        } finally {
-            writeLock.unlock();
-        }
+        rollover(force);
     }
 
     protected long getRolloverRetryMillis() {
@@ -1268,157 +1258,255 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
     }
 
     /**
-     * <p>
-     * MUST be called with the write lock held.
-     * </p>
+     * @return the number of nanoseconds, over the last five minutes, during
+     * which threads registering events were paused, either while the Record
+     * Writers were being swapped out for a rollover or because back pressure
+     * was applied while waiting for journals to be merged
+     */
+    public long getEventRegistrationPauseNanos() {
+        final long fiveMinutesAgo = System.currentTimeMillis() - TimeUnit.MILLISECONDS.convert(5, TimeUnit.MINUTES);
+        final TimestampedLong rolloverPauseNanos = writerSwapPauseNanos.getAggregateValue(fiveMinutesAgo);
+        final TimestampedLong backPressureNanos = backpressurePauseMillis.getAggregateValue(fiveMinutesAgo);
+        return (rolloverPauseNanos == null ? 0L : rolloverPauseNanos.getValue()) + (backPressureNanos == null ? 0L : backPressureNanos.getValue());
+    }
+
+    /**
+     * Rolls over the journal files if no other thread is currently doing so
+     * and the journals have reached their maximum capacity. This is used from
+     * the write path so that a thread registering events never waits for
+     * another thread's rollover to complete.
      *
+     * @throws IOException if unable to complete rollover
+     */
+    private void rolloverIfFull() throws IOException {
+        if (!rolloverLock.tryLock()) {
+            logger.debug("Journals have reached their maximum capacity but another thread is already rolling over");
+            return;
+        }
+
+        try {
+            // now that we've obtained the lock, we need to verify that we still need to do the rollover, as
+            // another thread may have just done it.
+            if (bytesWrittenSinceRollover.get() >= configuration.getMaxEventFileCapacity()) {
+                performRollover(false);
+            }
+        } finally {
+            rolloverLock.unlock();
+        }
+    }
+
+    /**
      * Rolls over the data in the journal files, merging them into a single
-     * Provenance Event Log File, and compressing and indexing as needed.
+     * Provenance Event Log File, and compressing and indexing as needed. Only
+     * a single rollover is performed at a time, but the repository's write lock
+     * is held only while the new Record Writers are swapped in, so threads
+     * registering events are not blocked while the old journals are closed and
+     * merged.
      *
      * @param force if true, will force a rollover regardless of whether or not
      * data has been written
      * @throws IOException if unable to complete rollover
      */
     private void rollover(final boolean force) throws IOException {
+        rolloverLock.lock();
+        try {
+            performRollover(force);
+        } finally {
+            rolloverLock.unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * MUST be called with the rollover lock held.
+     * </p>
+     *
+     * @param force if true, will force a rollover regardless of whether or not
+     * data has been written
+     * @throws IOException if unable to create the new Record Writers or to
+     * purge old events while applying back pressure
+     */
+    private void performRollover(final boolean force) throws IOException {
         if (!configuration.isAllowRollover()) {
             return;
         }
 
-        // If this is the first time we're creating the out stream, or if we
-        // have written something to the stream, then roll over
-        if (force || recordsWrittenSinceRollover.get() > 0L || dirtyWriterCount.get() > 0) {
-            final List<File> journalsToMerge = new ArrayList<>();
-            for (final RecordWriter writer : writers) {
-                if (!writer.isClosed()) {
-                    final File writerFile = writer.getFile();
-                    journalsToMerge.add(writerFile);
-                    try {
-                        writer.close();
-                    } catch (final IOException ioe) {
-                        logger.warn("Failed to close {} due to {}", writer, ioe.toString());
-                        if (logger.isDebugEnabled()) {
-                            logger.warn("", ioe);
-                        }
-                    }
-                }
+        // Swap in a new set of writers. All events that were assigned an ID before the swap are in the old journals and all
+        // events that are assigned an ID afterward go to the new journals, so each merged file still covers a contiguous range
+        // of Event ID's. This is the only point at which threads registering events are blocked by a rollover.
+        final RecordWriter[] writersToClose;
+        final int recordsWritten;
+        writeLock.lock();
+        try {
+            // If this is the first time we're creating the out stream, or if we
+            // have written something to the stream, then roll over
+            if (!force && recordsWrittenSinceRollover.get() == 0 && dirtyWriterCount.get() == 0) {
+                return;
             }
 
-            if (logger.isDebugEnabled()) {
-                if (journalsToMerge.isEmpty()) {
-                    logger.debug("No journals to merge; all RecordWriters were already closed");
-                } else {
-                    logger.debug("Going to merge {} files for journals starting with ID {}", journalsToMerge.size(), LuceneUtil.substringBefore(journalsToMerge.get(0).getName(), "."));
+            // If no Event ID's have been assigned since the current writers were created, the new journals would have the same
+            // names as the current ones, and there is nothing in the current journals to merge anyway.
+            final long firstEventId = idGenerator.get();
+            if (firstEventId == writersFirstEventId) {
+                logger.debug("No events have been written since the last rollover; will not roll over journals starting with ID {}", firstEventId);
+                return;
+            }
+
+            final long swapStart = System.nanoTime();
+            writersToClose = writers;
+            writers = createWriters(configuration, firstEventId);
+            writersFirstEventId = firstEventId;
+
+            dirtyWriterCount.set(0);
+            streamStartTime.set(System.currentTimeMillis());
+            bytesWrittenSinceRollover.set(0);
+            recordsWritten = recordsWrittenSinceRollover.getAndSet(0);
+            writerSwapPauseNanos.add(new TimestampedLong(System.nanoTime() - swapStart));
+        } finally {
+            writeLock.unlock();
+        }
+
+        final List<File> journalsToMerge = new ArrayList<>();
+        for (final RecordWriter writer : writersToClose) {
+            if (!writer.isClosed()) {
+                final File writerFile = writer.getFile();
+                journalsToMerge.add(writerFile);
+                try {
+                    writer.close();
+                } catch (final IOException ioe) {
+                    logger.warn("Failed to close {} due to {}", writer, ioe.toString());
+                    if (logger.isDebugEnabled()) {
+                        logger.warn("", ioe);
+                    }
                 }
             }
+        }
 
-            // Choose a storage directory to store the merged file in.
-            final long storageDirIdx = storageDirectoryIndex.getAndIncrement();
-            final List<File> storageDirs = configuration.getStorageDirectories();
-            final File storageDir = storageDirs.get((int) (storageDirIdx % storageDirs.size()));
+        if (logger.isDebugEnabled()) {
+            if (journalsToMerge.isEmpty()) {
+                logger.debug("No journals to merge; all RecordWriters were already closed");
+            } else {
+                logger.debug("Going to merge {} files for journals starting with ID {}", journalsToMerge.size(), LuceneUtil.substringBefore(journalsToMerge.get(0).getName(), "."));
+            }
+        }
 
-            Future<?> future = null;
-            if (!journalsToMerge.isEmpty()) {
-                // Run the rollover logic in a background thread.
-                final AtomicReference<Future<?>> futureReference = new AtomicReference<>();
-                final AtomicInteger retryAttempts = new AtomicInteger(MAX_JOURNAL_ROLLOVER_RETRIES);
-                final int recordsWritten = recordsWrittenSinceRollover.getAndSet(0);
-                final Runnable rolloverRunnable = new Runnable() {
-                    @Override
-                    public void run() {
-                        File fileRolledOver = null;
+        // Choose a storage directory to store the merged file in.
+        final long storageDirIdx = storageDirectoryIndex.getAndIncrement();
+        final List<File> storageDirs = configuration.getStorageDirectories();
+        final File storageDir = storageDirs.get((int) (storageDirIdx % storageDirs.size()));
+
+        Future<?> future = null;
+        if (!journalsToMerge.isEmpty()) {
+            // Run the rollover logic in a background thread.
+            final AtomicReference<Future<?>> futureReference = new AtomicReference<>();
+            final AtomicInteger retryAttempts = new AtomicInteger(MAX_JOURNAL_ROLLOVER_RETRIES);
+            final Runnable rolloverRunnable = new Runnable() {
+                @Override
+                public void run() {
+                    File fileRolledOver = null;
 
+                    try {
                         try {
-                            try {
-                                fileRolledOver = mergeJournals(journalsToMerge, getMergeFile(journalsToMerge, storageDir), eventReporter);
-                            } catch (final IOException ioe) {
-                                logger.error("Failed to merge Journal Files {} into a Provenance Log File due to {}", journalsToMerge, ioe.toString());
-                                logger.error("", ioe);
-                            }
-
-                            if (fileRolledOver != null) {
-
-                                final File file = fileRolledOver;
-
-                                // update our map of id to Path
-                                // We need to make sure that another thread doesn't also update the map at the same time. We cannot
-                                // use the write lock when purging old events, and we want to use the same approach here.
-                                boolean updated = false;
-                                final Long fileFirstEventId = Long.valueOf(LuceneUtil.substringBefore(fileRolledOver.getName(), "."));
-                                while (!updated) {
-                                    final SortedMap<Long, Path> existingPathMap = idToPathMap.get();
-                                    final SortedMap<Long, Path> newIdToPathMap = new TreeMap<>(new PathMapComparator());
-                                    newIdToPathMap.putAll(existingPathMap);
-                                    newIdToPathMap.put(fileFirstEventId, file.toPath());
-                                    updated = idToPathMap.compareAndSet(existingPathMap, newIdToPathMap);
-                                }
+                            fileRolledOver = mergeJournals(journalsToMerge, getMergeFile(journalsToMerge, storageDir), eventReporter);
+                        } catch (final IOException ioe) {
+                            logger.error("Failed to merge Journal Files {} into a Provenance Log File due to {}", journalsToMerge, ioe.toString());
+                            logger.error("", ioe);
+                        }
 
-                                final TimedCountSize countSize = updateCounts.getAggregateValue(System.currentTimeMillis() - TimeUnit.MILLISECONDS.convert(5, TimeUnit.MINUTES));
-                                logger.info("Successfully Rolled over Provenance Event file containing {} records. In the past 5 minutes, "
-                                    + "{} events have been written to the Provenance Repository, totaling {}",
-                                    recordsWritten, countSize.getCount(), FormatUtils.formatDataSize(countSize.getSize()));
+                        if (fileRolledOver != null) {
+
+                            final File file = fileRolledOver;
+
+                            // update our map of id to Path
+                            // We need to make sure that another thread doesn't also update the map at the same time. We cannot
+                            // use the write lock when purging old events, and we want to use the same approach here.
+                            boolean updated = false;
+                            final Long fileFirstEventId = Long.valueOf(LuceneUtil.substringBefore(fileRolledOver.getName(), "."));
+                            while (!updated) {
+                                final SortedMap<Long, Path> existingPathMap = idToPathMap.get();
+                                final SortedMap<Long, Path> newIdToPathMap = new TreeMap<>(new PathMapComparator());
+                                newIdToPathMap.putAll(existingPathMap);
+                                newIdToPathMap.put(fileFirstEventId, file.toPath());
+                                updated = idToPathMap.compareAndSet(existingPathMap, newIdToPathMap);
                             }
 
-                            //if files were rolled over or if out of retries stop the future
-                            if (fileRolledOver != null || retryAttempts.decrementAndGet() == 0) {
+                            final TimedCountSize countSize = updateCounts.getAggregateValue(System.currentTimeMillis() - TimeUnit.MILLISECONDS.convert(5, TimeUnit.MINUTES));
+                            logger.info("Successfully Rolled over Provenance Event file containing {} records. In the past 5 minutes, "
+                                + "{} events have been written to the Provenance Repository, totaling {}, and event registration was paused for {}",
+                                recordsWritten, countSize.getCount(), FormatUtils.formatDataSize(countSize.getSize()),
+                                FormatUtils.formatNanos(getEventRegistrationPauseNanos(), true));
+                        }
 
-                                if (fileRolledOver == null && retryAttempts.get() == 0) {
-                                    logger.error("Failed to merge Journal Files {} after {} attempts.", journalsToMerge, MAX_JOURNAL_ROLLOVER_RETRIES);
-                                }
+                        //if files were rolled over or if out of retries stop the future
+                        if (fileRolledOver != null || retryAttempts.decrementAndGet() == 0) {
 
-                                rolloverCompletions.getAndIncrement();
+                            if (fileRolledOver == null && retryAttempts.get() == 0) {
+                                logger.error("Failed to merge Journal Files {} after {} attempts.", journalsToMerge, MAX_JOURNAL_ROLLOVER_RETRIES);
+                            }
 
-                                // Cancel the future so that we don't run anymore
-                                Future<?> future;
-                                while ((future = futureReference.get()) == null) {
-                                    try {
-                                        Thread.sleep(10L);
-                                    } catch (final InterruptedException ie) {
-                                    }
-                                }
-                                future.cancel(false);
+                            rolloverCompletions.getAndIncrement();
 
-                            } else {
-                                logger.warn("Couldn't merge journals. Will try again. journalsToMerge: {}, storageDir: {}", journalsToMerge, storageDir);
+                            // Cancel the future so that we don't run anymore
+                            Future<?> future;
+                            while ((future = futureReference.get()) == null) {
+                                try {
+                                    Thread.sleep(10L);
+                                } catch (final InterruptedException ie) {
+                                }
                             }
-                        } catch (final Exception e) {
-                            logger.error("Failed to merge journals. Will try again. journalsToMerge: {}, storageDir: {}, cause: {}", journalsToMerge, storageDir, e.toString());
-                            logger.error("", e);
+                            future.cancel(false);
+
+                        } else {
+                            logger.warn("Couldn't merge journals. Will try again. journalsToMerge: {}, storageDir: {}", journalsToMerge, storageDir);
                         }
+                    } catch (final Exception e) {
+                        logger.error("Failed to merge journals. Will try again. journalsToMerge: {}, storageDir: {}, cause: {}", journalsToMerge, storageDir, e.toString());
+                        logger.error("", e);
                     }
-                };
+                }
+            };
 
-                // We are going to schedule the future to run immediately and then repeat every 10 seconds. This allows us to keep retrying if we
-                // fail for some reason. When we succeed or if retries are exceeded, the Runnable will cancel itself.
-                future = rolloverExecutor.scheduleWithFixedDelay(rolloverRunnable, 0, getRolloverRetryMillis(), TimeUnit.MILLISECONDS);
-                futureReference.set(future);
-            }
+            // We are going to schedule the future to run immediately and then repeat every 10 seconds. This allows us to keep retrying if we
+            // fail for some reason. When we succeed or if retries are exceeded, the Runnable will cancel itself.
+            future = rolloverExecutor.scheduleWithFixedDelay(rolloverRunnable, 0, getRolloverRetryMillis(), TimeUnit.MILLISECONDS);
+            futureReference.set(future);
+        }
 
-            streamStartTime.set(System.currentTimeMillis());
-            bytesWrittenSinceRollover.set(0);
+        applyBackPressure(future);
+    }
 
-            // We don't want to create new 'writers' until the number of unmerged journals falls below our threshold. So we wait
-            // here before we repopulate the 'writers' member variable and release the lock.
-            int journalFileCount = getJournalCount();
-            long repoSize = getSize(getLogFiles(), 0L);
-            final int journalCountThreshold = configuration.getJournalCount() * 5;
-            final long sizeThreshold = (long) (configuration.getMaxStorageCapacity() * 1.1D); // do not go over 10% of max capacity
-
-            // check if we need to apply backpressure.
-            // If we have too many journal files, or if the repo becomes too large, backpressure is necessary. Without it,
-            // if the rate at which provenance events are registered exceeds the rate at which we can compress/merge/index them,
-            // then eventually we will end up with all of the data stored in the 'journals' directory and not yet indexed. This
-            // would mean that the data would never even be accessible. In order to prevent this, if we exceeds 110% of the configured
-            // max capacity for the repo, or if we have 5 sets of journal files waiting to be merged, we will block here until
-            // that is no longer the case.
-            if (journalFileCount > journalCountThreshold || repoSize > sizeThreshold) {
-                final long stopTheWorldStart = System.nanoTime();
-
-                logger.warn("The rate of the dataflow is exceeding the provenance recording rate. "
-                        + "Slowing down flow to accommodate. Currently, there are {} journal files ({} bytes) and "
-                        + "threshold for blocking is {} ({} bytes)", journalFileCount, repoSize, journalCountThreshold, sizeThreshold);
-                eventReporter.reportEvent(Severity.WARNING, "Provenance Repository", "The rate of the dataflow is "
-                        + "exceeding the provenance recording rate. Slowing down flow to accommodate");
+    /**
+     * Blocks registration of new events until the number of unmerged journals
+     * and the size of the repository have fallen below their thresholds.
+     *
+     * @param future the future of the merge that was just scheduled, or
+     * <code>null</code> if no merge was scheduled
+     * @throws IOException if unable to purge old events
+     */
+    private void applyBackPressure(final Future<?> future) throws IOException {
+        int journalFileCount = getJournalCount();
+        long repoSize = getSize(getLogFiles(), 0L);
+        final int journalCountThreshold = configuration.getJournalCount() * 5;
+        final long sizeThreshold = (long) (configuration.getMaxStorageCapacity() * 1.1D); // do not go over 10% of max capacity
+
+        // check if we need to apply backpressure.
+        // If we have too many journal files, or if the repo becomes too large, backpressure is necessary. Without it,
+        // if the rate at which provenance events are registered exceeds the rate at which we can compress/merge/index them,
+        // then eventually we will end up with all of the data stored in the 'journals' directory and not yet indexed. This
+        // would mean that the data would never even be accessible. In order to prevent this, if we exceeds 110% of the configured
+        // max capacity for the repo, or if we have 5 sets of journal files waiting to be merged, we will block here until
+        // that is no longer the case. While we do, other threads registering events wait in waitForBackPressureRelief().
+        if (journalFileCount > journalCountThreshold || repoSize > sizeThreshold) {
+            final long stopTheWorldStart = System.nanoTime();
+            backPressureEngaged = true;
+
+            logger.warn("The rate of the dataflow is exceeding the provenance recording rate. "
+                    + "Slowing down flow to accommodate. Currently, there are {} journal files ({} bytes) and "
+                    + "threshold for blocking is {} ({} bytes)", journalFileCount, repoSize, journalCountThreshold, sizeThreshold);
+            eventReporter.reportEvent(Severity.WARNING, "Provenance Repository", "The rate of the dataflow is "
+                    + "exceeding the provenance recording rate. Slowing down flow to accommodate");
 
+            try {
                 while (journalFileCount > journalCountThreshold || repoSize > sizeThreshold) {
                     // if a shutdown happens while we are in this loop, kill the rollover thread and break
                     if (this.closed.get()) {
@@ -1453,20 +1541,44 @@ public class PersistentProvenanceRepository implements ProvenanceRepository {
                     journalFileCount = getJournalCount();
                     repoSize = getSize(getLogFiles(), 0L);
                 }
-
-                final long stopTheWorldNanos = System.nanoTime() - stopTheWorldStart;
-                backpressurePauseMillis.add(new TimestampedLong(stopTheWorldNanos));
-                final TimestampedLong pauseNanosLastFiveMinutes = backpressurePauseMillis.getAggregateValue(System.currentTimeMillis() - TimeUnit.MILLISECONDS.convert(5, TimeUnit.MINUTES));
-                logger.info("Provenance Repository has now caught up with rolling over journal files. Current number of "
-                    + "journal files to be rolled over is {}. Provenance Repository Back Pressure paused Session commits for {} ({} total in the last 5 minutes).",
-                    journalFileCount, FormatUtils.formatNanos(stopTheWorldNanos, true), FormatUtils.formatNanos(pauseNanosLastFiveMinutes.getValue(), true));
+            } finally {
+                releaseBackPressure();
             }
 
-            // we've finished rolling over successfully. Create new writers and reset state.
-            writers = createWriters(configuration, idGenerator.get());
-            dirtyWriterCount.set(0);
-            streamStartTime.set(System.currentTimeMillis());
-            recordsWrittenSinceRollover.getAndSet(0);
+            final long stopTheWorldNanos = System.nanoTime() - stopTheWorldStart;
+            backpressurePauseMillis.add(new TimestampedLong(stopTheWorldNanos));
+            final TimestampedLong pauseNanosLastFiveMinutes = backpressurePauseMillis.getAggregateValue(System.currentTimeMillis() - TimeUnit.MILLISECONDS.convert(5, TimeUnit.MINUTES));
+            logger.info("Provenance Repository has now caught up with rolling over journal files. Current number of "
+                + "journal files to be rolled over is {}. Provenance Repository Back Pressure paused Session commits for {} ({} total in the last 5 minutes).",
+                journalFileCount, FormatUtils.formatNanos(stopTheWorldNanos, true), FormatUtils.formatNanos(pauseNanosLastFiveMinutes.getValue(), true));
+        }
+    }
+
+    private void releaseBackPressure() {
+        synchronized (backPressureMonitor) {
+            backPressureEngaged = false;
+            backPressureMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Waits while back pressure is applied by a rollover that is waiting for
+     * the journals to be merged.
+     */
+    private void waitForBackPressureRelief() {
+        if (!backPressureEngaged) {
+            return;
+        }
+
+        synchronized (backPressureMonitor) {
+            while (backPressureEngaged && !closed.get()) {
+                try {
+                    backPressureMonitor.wait(100L);
+                } catch (final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
         }
     }
 
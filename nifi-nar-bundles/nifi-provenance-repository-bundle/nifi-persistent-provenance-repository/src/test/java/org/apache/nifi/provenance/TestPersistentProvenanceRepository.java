@@ -1581,6 +1581,7 @@ public class TestPersistentProvenanceRepository {
 
         final int threadMillis = (int) TimeUnit.NANOSECONDS.toMillis(threadNanos.get());
         assertTrue(threadMillis > 1200); // use 1200 to account for the fact that the timing is not exact
+        assertTrue(repo.getEventRegistrationPauseNanos() > TimeUnit.MILLISECONDS.toNanos(1200));
 
         builder.fromFlowFile(createFlowFile(15, 3000L, attributes));
         attributes.put("uuid", "00000000-0000-0000-0000-00000000000" + 15);
@@ -1589,6 +1590,72 @@ public class TestPersistentProvenanceRepository {
         Thread.sleep(3000L);
     }
 
+    @Test
+    public void testEventsRegisteredWhileRolloverInProgress() throws IOException, InterruptedException {
+        final RepositoryConfiguration config = createConfiguration();
+        config.setMaxEventFileCapacity(1L); // force rollover on each record.
+        config.setJournalCount(1);
+
+        // Block the first rollover after it has swapped in the new writers, while it is checking whether or not
+        // back pressure is needed.
+        final CountDownLatch rolloverStarted = new CountDownLatch(1);
+        final CountDownLatch resumeRollover = new CountDownLatch(1);
+        repo = new PersistentProvenanceRepository(config, DEFAULT_ROLLOVER_MILLIS) {
+            @Override
+            protected int getJournalCount() {
+                if (rolloverStarted.getCount() > 0) {
+                    rolloverStarted.countDown();
+                    try {
+                        resumeRollover.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getJournalCount();
+            }
+        };
+        repo.initialize(getEventReporter(), null, null);
+
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put("uuid", UUID.randomUUID().toString());
+        final ProvenanceEventBuilder builder = new StandardProvenanceEventRecord.Builder();
+        builder.setEventTime(System.currentTimeMillis());
+        builder.setEventType(ProvenanceEventType.RECEIVE);
+        builder.setTransitUri("nifi://unit-test");
+        builder.fromFlowFile(createFlowFile(3L, 3000L, attributes));
+        builder.setComponentId("1234");
+        builder.setComponentType("dummy processor");
+
+        final Thread rolloverThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                repo.registerEvent(builder.build());
+            }
+        });
+        rolloverThread.start();
+        assertTrue(rolloverStarted.await(10, TimeUnit.SECONDS));
+
+        // The rollover is still in progress, but other threads must be able to register events.
+        try {
+            for (int i = 0; i < 10; i++) {
+                repo.registerEvent(builder.build());
+            }
+        } finally {
+            resumeRollover.countDown();
+        }
+
+        rolloverThread.join();
+
+        // All of the events must be retrievable once the journals have been merged.
+        repo.rolloverWithLock(true);
+        final long deadline = System.currentTimeMillis() + 10000L;
+        while (repo.getEvents(0L, 100).size() < 11 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100L);
+        }
+        assertEquals(11, repo.getEvents(0L, 100).size());
+        assertEquals(0, reportedEvents.size());
+    }
+
 
     // TODO: test EOF on merge
     // TODO: Test journal with no records
@@ -16,8 +16,10 @@
  */
 package org.apache.nifi.processors.standard;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
 import com.jayway.jsonpath.spi.json.JsonProvider;
@@ -30,10 +32,12 @@ import org.apache.nifi.processor.AbstractProcessor;
 import org.apache.nifi.processor.ProcessSession;
 import org.apache.nifi.processor.io.InputStreamCallback;
 import org.apache.nifi.processors.standard.util.JsonPathExpressionValidator;
+import org.apache.nifi.processors.standard.util.StreamingJsonPath;
 import org.apache.nifi.stream.io.BufferedInputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -87,6 +91,51 @@ public abstract class AbstractJsonPathProcessor extends AbstractProcessor {
         return contextHolder.get();
     }
 
+    /**
+     * Evaluates the given paths against the content of the FlowFile in a single pass over the content, without parsing the whole document into memory.
+     *
+     * @param processSession session to read the FlowFile with
+     * @param flowFile the FlowFile whose content is to be evaluated
+     * @param streamingJsonPaths the paths to evaluate, keyed by name
+     * @return the result of each path that was found in the document, keyed by the name of the path, or <code>null</code> if the result of any path
+     *         was not conclusive, in which case the paths must be evaluated against the parsed document instead. The result of a definite path is the
+     *         value that it selects; the result of an indefinite path is a List of the values that it selects, as with {@link DocumentContext#read(JsonPath)}.
+     * @throws InvalidJsonException if the content is not valid JSON
+     */
+    static Map<String, Object> evaluateStreaming(ProcessSession processSession, FlowFile flowFile, Map<String, StreamingJsonPath> streamingJsonPaths) {
+        final List<String> names = new ArrayList<>(streamingJsonPaths.keySet());
+        final List<StreamingJsonPath> paths = new ArrayList<>(names.size());
+        final List<List<Object>> matches = new ArrayList<>(names.size());
+        for (final String name : names) {
+            paths.add(streamingJsonPaths.get(name));
+            matches.add(new ArrayList<>());
+        }
+
+        final AtomicReference<Map<String, Object>> resultsHolder = new AtomicReference<>();
+        processSession.read(flowFile, new InputStreamCallback() {
+            @Override
+            public void process(InputStream in) throws IOException {
+                try (BufferedInputStream bufferedInputStream = new BufferedInputStream(in)) {
+                    final StreamingJsonPath.Result result = StreamingJsonPath.evaluate(bufferedInputStream, paths, (pathIndex, value) -> matches.get(pathIndex).add(value));
+                    final Map<String, Object> results = new HashMap<>();
+                    for (int i = 0; i < names.size(); i++) {
+                        if (!result.isConclusive(i)) {
+                            return;
+                        }
+                        if (result.isFound(i)) {
+                            results.put(names.get(i), paths.get(i).isDefinite() ? matches.get(i).get(0) : matches.get(i));
+                        }
+                    }
+                    resultsHolder.set(results);
+                } catch (JsonProcessingException e) {
+                    throw new InvalidJsonException(e);
+                }
+            }
+        });
+
+        return resultsHolder.get();
+    }
+
     /**
      * Determines the context by which JsonSmartJsonProvider would treat the value. {@link java.util.Map} and {@link java.util.List} objects can be rendered as JSON elements, everything else is
      * treated as a scalar.
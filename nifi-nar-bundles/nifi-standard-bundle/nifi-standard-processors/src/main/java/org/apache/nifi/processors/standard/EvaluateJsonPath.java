@@ -51,6 +51,7 @@ import org.apache.nifi.processor.ProcessorInitializationContext;
 import org.apache.nifi.processor.Relationship;
 import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.io.OutputStreamCallback;
+import org.apache.nifi.processors.standard.util.StreamingJsonPath;
 import org.apache.nifi.stream.io.BufferedOutputStream;
 
 import com.jayway.jsonpath.DocumentContext;
@@ -245,6 +246,7 @@ public class EvaluateJsonPath extends AbstractJsonPathProcessor {
 
         /* Build the JsonPath expressions from attributes */
         final Map<String, JsonPath> attributeToJsonPathMap = new HashMap<>();
+        Map<String, StreamingJsonPath> streamingJsonPaths = new HashMap<>();
 
         for (final Map.Entry<PropertyDescriptor, String> entry : processContext.getProperties().entrySet()) {
             if (!entry.getKey().isDynamic()) {
@@ -252,6 +254,16 @@ public class EvaluateJsonPath extends AbstractJsonPathProcessor {
             }
             final JsonPath jsonPath = JsonPath.compile(entry.getValue());
             attributeToJsonPathMap.put(entry.getKey().getName(), jsonPath);
+
+            // If every expression can be answered in a single pass, they are all evaluated while streaming the content
+            if (streamingJsonPaths != null) {
+                final StreamingJsonPath streamingJsonPath = StreamingJsonPath.compile(entry.getValue());
+                if (streamingJsonPath == null) {
+                    streamingJsonPaths = null;
+                } else {
+                    streamingJsonPaths.put(entry.getKey().getName(), streamingJsonPath);
+                }
+            }
         }
 
         final String destination = processContext.getProperty(DESTINATION).getValue();
@@ -261,8 +273,14 @@ public class EvaluateJsonPath extends AbstractJsonPathProcessor {
         }
 
         DocumentContext documentContext = null;
+        Map<String, Object> streamingResults = null;
         try {
-            documentContext = validateAndEstablishJsonContext(processSession, flowFile);
+            if (streamingJsonPaths != null) {
+                streamingResults = evaluateStreaming(processSession, flowFile, streamingJsonPaths);
+            }
+            if (streamingResults == null) {
+                documentContext = validateAndEstablishJsonContext(processSession, flowFile);
+            }
         } catch (InvalidJsonException e) {
             logger.error("FlowFile {} did not have valid JSON content.", new Object[]{flowFile});
             processSession.transfer(flowFile, REL_FAILURE);
@@ -279,7 +297,15 @@ public class EvaluateJsonPath extends AbstractJsonPathProcessor {
 
             final AtomicReference<Object> resultHolder = new AtomicReference<>(null);
             try {
-                final Object result = documentContext.read(jsonPathExp);
+                final Object result;
+                if (streamingResults == null) {
+                    result = documentContext.read(jsonPathExp);
+                } else if (streamingResults.containsKey(jsonPathAttrKey)) {
+                    result = streamingResults.get(jsonPathAttrKey);
+                } else {
+                    throw new PathNotFoundException("No results for path: " + jsonPathExp.getPath());
+                }
+
                 if (returnType.equals(RETURN_TYPE_SCALAR) && !isJsonScalar(result)) {
                     logger.error("Unable to return a scalar value for the expression {} for FlowFile {}. Evaluated value was {}. Transferring to {}.",
                             new Object[]{jsonPathExp.getPath(), flowFile.getId(), result.toString(), REL_FAILURE.getName()});
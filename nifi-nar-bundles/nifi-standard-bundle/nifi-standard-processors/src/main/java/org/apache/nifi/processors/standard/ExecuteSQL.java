@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -28,6 +29,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -36,6 +38,7 @@ import org.apache.nifi.annotation.behavior.EventDriven;
 import org.apache.nifi.annotation.behavior.InputRequirement;
 import org.apache.nifi.annotation.behavior.InputRequirement.Requirement;
 import org.apache.nifi.annotation.behavior.WritesAttribute;
+import org.apache.nifi.annotation.behavior.WritesAttributes;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.Tags;
 import org.apache.nifi.annotation.lifecycle.OnScheduled;
@@ -61,11 +64,25 @@ import org.apache.nifi.util.StopWatch;
         + " Streaming is used so arbitrarily large result sets are supported. This processor can be scheduled to run on "
         + "a timer, or cron expression, using the standard scheduling methods, or it can be triggered by an incoming FlowFile. "
         + "If it is triggered by an incoming FlowFile, then attributes of that FlowFile will be available when evaluating the "
-        + "select query. FlowFile attribute 'executesql.row.count' indicates how many rows were selected.")
-@WritesAttribute(attribute="executesql.row.count", description = "Contains the number of rows returned in the select query")
+        + "select query. FlowFile attribute 'executesql.row.count' indicates how many rows were selected. If Max Rows Per Flow File is set, "
+        + "the result set is split into several FlowFiles as it is read, so that the whole result never has to be held in a single FlowFile.")
+@WritesAttributes({
+    @WritesAttribute(attribute = "executesql.row.count", description = "Contains the number of rows returned in the select query"),
+    @WritesAttribute(attribute = "fragment.identifier", description = "If 'Max Rows Per Flow File' is set then all FlowFiles from the same query result set "
+        + "will have the same value for the fragment.identifier attribute. This can then be used to correlate the results."),
+    @WritesAttribute(attribute = "fragment.count", description = "If 'Max Rows Per Flow File' is set then this is the total number of "
+        + "FlowFiles produced by a single ResultSet. This can be used in conjunction with the fragment.identifier attribute in order to know "
+        + "how many FlowFiles belonged to the same incoming ResultSet. This attribute is not set if 'Output Batch Size' is set."),
+    @WritesAttribute(attribute = "fragment.index", description = "If 'Max Rows Per Flow File' is set then the position of this FlowFile in the list of "
+        + "outgoing FlowFiles that were all derived from the same result set FlowFile. This can be used in conjunction with the fragment.identifier "
+        + "attribute to know which FlowFiles originated from the same query result set and in what order FlowFiles were produced")
+})
 public class ExecuteSQL extends AbstractProcessor {
 
     public static final String RESULT_ROW_COUNT = "executesql.row.count";
+    public static final String FRAGMENT_ID = "fragment.identifier";
+    public static final String FRAGMENT_INDEX = "fragment.index";
+    public static final String FRAGMENT_COUNT = "fragment.count";
 
     // Relationships
     public static final Relationship REL_SUCCESS = new Relationship.Builder()
@@ -117,6 +134,43 @@ public class ExecuteSQL extends AbstractProcessor {
             .required(true)
             .build();
 
+    public static final PropertyDescriptor FETCH_SIZE = new PropertyDescriptor.Builder()
+            .name("esql-fetch-size")
+            .displayName("Fetch Size")
+            .description("The number of result rows to be fetched from the result set at a time. This is a hint to the driver and may not be "
+                    + "honored and/or exact. If the value specified is zero, then the hint is ignored, and many drivers will then read the "
+                    + "entire result set into memory before the first row is returned.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor MAX_ROWS_PER_FLOW_FILE = new PropertyDescriptor.Builder()
+            .name("esql-max-rows")
+            .displayName("Max Rows Per Flow File")
+            .description("The maximum number of result rows that will be included in a single FlowFile. This will allow you to break up very large "
+                    + "result sets into multiple FlowFiles, which are created as the result set is read. If the value specified is zero, then all "
+                    + "rows are returned in a single FlowFile.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    public static final PropertyDescriptor OUTPUT_BATCH_SIZE = new PropertyDescriptor.Builder()
+            .name("esql-output-batch-size")
+            .displayName("Output Batch Size")
+            .description("The number of output FlowFiles to queue before committing the process session. When set to zero, the session will be "
+                    + "committed when all result set rows have been processed and the output FlowFiles are ready for transfer to the downstream "
+                    + "relationship. For large result sets, this can cause a large burst of FlowFiles to be transferred at the end of processor "
+                    + "execution. If this property is set, then when the specified number of FlowFiles are ready for transfer, the session will "
+                    + "be committed, releasing the FlowFiles to the downstream relationship. Any incoming FlowFile is removed when the first "
+                    + "batch is committed, so a failure after that point cannot route it to failure. This property is only used if "
+                    + "'Max Rows Per Flow File' is set. NOTE: The fragment.count attribute will not be set on FlowFiles when this property is set.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
     private final List<PropertyDescriptor> propDescriptors;
 
     public ExecuteSQL() {
@@ -130,6 +184,9 @@ public class ExecuteSQL extends AbstractProcessor {
         pds.add(SQL_SELECT_QUERY);
         pds.add(QUERY_TIMEOUT);
         pds.add(NORMALIZE_NAMES_FOR_AVRO);
+        pds.add(FETCH_SIZE);
+        pds.add(MAX_ROWS_PER_FLOW_FILE);
+        pds.add(OUTPUT_BATCH_SIZE);
         propDescriptors = Collections.unmodifiableList(pds);
     }
 
@@ -172,6 +229,9 @@ public class ExecuteSQL extends AbstractProcessor {
         final DBCPService dbcpService = context.getProperty(DBCP_SERVICE).asControllerService(DBCPService.class);
         final Integer queryTimeout = context.getProperty(QUERY_TIMEOUT).asTimePeriod(TimeUnit.SECONDS).intValue();
         final boolean convertNamesForAvro = context.getProperty(NORMALIZE_NAMES_FOR_AVRO).asBoolean();
+        final Integer fetchSize = context.getProperty(FETCH_SIZE).asInteger();
+        final Integer maxRowsPerFlowFile = context.getProperty(MAX_ROWS_PER_FLOW_FILE).asInteger();
+        final Integer outputBatchSize = context.getProperty(OUTPUT_BATCH_SIZE).asInteger();
         final StopWatch stopWatch = new StopWatch(true);
         final String selectQuery;
         if (context.getProperty(SQL_SELECT_QUERY).isSet()) {
@@ -192,6 +252,24 @@ public class ExecuteSQL extends AbstractProcessor {
         try (final Connection con = dbcpService.getConnection();
             final Statement st = con.createStatement()) {
             st.setQueryTimeout(queryTimeout); // timeout in seconds
+            if (fetchSize != null && fetchSize > 0) {
+                try {
+                    st.setFetchSize(fetchSize);
+                } catch (SQLException se) {
+                    // Not all drivers support this, just log the error (at debug level) and move on
+                    logger.debug("Cannot set fetch size to {} due to {}", new Object[]{fetchSize, se.getLocalizedMessage()}, se);
+                }
+            }
+
+            if (maxRowsPerFlowFile > 0) {
+                // the result set is written to new FlowFiles; the incoming FlowFile, if any, is removed once they have all been created
+                fileToProcess = splitResultSet(context, session, con, st, selectQuery, fileToProcess, maxRowsPerFlowFile, outputBatchSize, convertNamesForAvro, stopWatch);
+                if (fileToProcess != null) {
+                    session.remove(fileToProcess);
+                }
+                return;
+            }
+
             final AtomicLong nrOfRows = new AtomicLong(0L);
             if (fileToProcess == null) {
                 fileToProcess = session.create();
@@ -237,4 +315,107 @@ public class ExecuteSQL extends AbstractProcessor {
             }
         }
     }
+
+    /**
+     * Executes the query and writes the result set to new FlowFiles of at most the given number of rows each. The FlowFiles are
+     * created as the result set is read, and if an output batch size is given, the session is committed each time that many
+     * FlowFiles are ready, so that neither the result set nor the FlowFiles created from it need to be held until the end.
+     *
+     * @return the incoming FlowFile, or <code>null</code> if there was none or it has been removed because the session was committed
+     */
+    private FlowFile splitResultSet(final ProcessContext context, final ProcessSession session, final Connection con, final Statement st, final String selectQuery,
+            final FlowFile incoming, final int maxRowsPerFlowFile, final int outputBatchSize, final boolean convertNamesForAvro, final StopWatch stopWatch) throws SQLException {
+        final ComponentLog logger = getLogger();
+        final List<FlowFile> resultSetFlowFiles = new ArrayList<>();
+        final String fragmentIdentifier = UUID.randomUUID().toString();
+        FlowFile fileToProcess = incoming;
+
+        String jdbcURL = "DBCPService";
+        try {
+            final DatabaseMetaData databaseMetaData = con.getMetaData();
+            if (databaseMetaData != null) {
+                jdbcURL = databaseMetaData.getURL();
+            }
+        } catch (SQLException se) {
+            // Ignore and use default JDBC URL. This shouldn't happen unless the driver doesn't implement getMetaData() properly
+        }
+
+        try {
+            logger.debug("Executing query {}", new Object[]{selectQuery});
+            final ResultSet resultSet = st.executeQuery(selectQuery);
+
+            int fragmentIndex = 0;
+            while (true) {
+                final AtomicLong nrOfRows = new AtomicLong(0L);
+                FlowFile resultSetFlowFile = fileToProcess == null ? session.create() : session.create(fileToProcess);
+                resultSetFlowFiles.add(resultSetFlowFile);
+
+                resultSetFlowFile = session.write(resultSetFlowFile, out -> {
+                    try {
+                        nrOfRows.set(JdbcCommon.convertToAvroStream(resultSet, out, null, null, maxRowsPerFlowFile, convertNamesForAvro));
+                    } catch (final SQLException e) {
+                        throw new ProcessException(e);
+                    }
+                });
+                resultSetFlowFiles.set(resultSetFlowFiles.size() - 1, resultSetFlowFile);
+
+                // an empty result set still produces a single FlowFile, as it does when the result set is not split
+                if (nrOfRows.get() == 0 && fragmentIndex > 0) {
+                    resultSetFlowFiles.remove(resultSetFlowFiles.size() - 1);
+                    session.remove(resultSetFlowFile);
+                    break;
+                }
+
+                resultSetFlowFile = session.putAttribute(resultSetFlowFile, RESULT_ROW_COUNT, String.valueOf(nrOfRows.get()));
+                resultSetFlowFile = session.putAttribute(resultSetFlowFile, FRAGMENT_ID, fragmentIdentifier);
+                resultSetFlowFile = session.putAttribute(resultSetFlowFile, FRAGMENT_INDEX, String.valueOf(fragmentIndex));
+                resultSetFlowFiles.set(resultSetFlowFiles.size() - 1, resultSetFlowFile);
+
+                logger.info("{} contains {} Avro records", new Object[]{resultSetFlowFile, nrOfRows.get()});
+                if (fileToProcess == null) {
+                    session.getProvenanceReporter().receive(resultSetFlowFile, jdbcURL, stopWatch.getElapsed(TimeUnit.MILLISECONDS));
+                } else {
+                    session.getProvenanceReporter().fetch(resultSetFlowFile, jdbcURL, stopWatch.getElapsed(TimeUnit.MILLISECONDS));
+                }
+                fragmentIndex++;
+
+                if (nrOfRows.get() < maxRowsPerFlowFile) {
+                    // the result set has been exhausted
+                    break;
+                }
+
+                if (outputBatchSize > 0 && resultSetFlowFiles.size() >= outputBatchSize) {
+                    session.transfer(resultSetFlowFiles, REL_SUCCESS);
+                    resultSetFlowFiles.clear();
+
+                    // the incoming FlowFile must be accounted for before the session can be committed
+                    if (fileToProcess != null) {
+                        session.remove(fileToProcess);
+                        fileToProcess = null;
+                    }
+                    session.commit();
+                }
+            }
+
+            if (outputBatchSize == 0) {
+                for (int i = 0; i < resultSetFlowFiles.size(); i++) {
+                    resultSetFlowFiles.set(i, session.putAttribute(resultSetFlowFiles.get(i), FRAGMENT_COUNT, Integer.toString(fragmentIndex)));
+                }
+            }
+
+            logger.info("Transferring {} FlowFiles containing the result of {} to 'success'", new Object[]{resultSetFlowFiles.size(), selectQuery});
+            session.transfer(resultSetFlowFiles, REL_SUCCESS);
+            return fileToProcess;
+        } catch (final ProcessException | SQLException e) {
+            // the FlowFiles that have not yet been committed are incomplete
+            session.remove(resultSetFlowFiles);
+            if (fileToProcess == null && incoming != null) {
+                logger.error("Unable to execute SQL select query {} for {} due to {}. Some results have already been transferred to 'success' "
+                        + "and the incoming FlowFile has been removed", new Object[]{selectQuery, incoming, e});
+                context.yield();
+                return null;
+            }
+            throw e;
+        }
+    }
 }
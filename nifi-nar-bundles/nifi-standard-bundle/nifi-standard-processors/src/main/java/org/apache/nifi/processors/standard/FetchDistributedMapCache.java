@@ -45,11 +45,13 @@ import org.apache.nifi.processor.util.StandardValidators;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @EventDriven
@@ -109,6 +111,16 @@ public class FetchDistributedMapCache extends AbstractProcessor {
             .defaultValue("UTF-8")
             .build();
 
+    public static final PropertyDescriptor PROP_BATCH_SIZE = new PropertyDescriptor.Builder()
+            .name("Batch Size")
+            .description("The maximum number of FlowFiles to process in a single execution. The values for all of the FlowFiles in a batch are "
+                    + "requested from the Distributed Map Cache at once, which is considerably more efficient than requesting them one at a time "
+                    + "when the cache is on a remote host.")
+            .required(true)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .defaultValue("1")
+            .build();
+
     public static final Relationship REL_SUCCESS = new Relationship.Builder()
             .name("success")
             .description("If the cache was successfully communicated with it will be routed to this relationship")
@@ -142,6 +154,7 @@ public class FetchDistributedMapCache extends AbstractProcessor {
         descriptors.add(PROP_PUT_CACHE_VALUE_IN_ATTRIBUTE);
         descriptors.add(PROP_PUT_ATTRIBUTE_MAX_LENGTH);
         descriptors.add(PROP_CHARACTER_SET);
+        descriptors.add(PROP_BATCH_SIZE);
         return descriptors;
     }
 
@@ -152,65 +165,88 @@ public class FetchDistributedMapCache extends AbstractProcessor {
 
     @Override
     public void onTrigger(final ProcessContext context, final ProcessSession session) throws ProcessException {
-        FlowFile flowFile = session.get();
-        if (flowFile == null) {
+        final List<FlowFile> flowFiles = session.get(context.getProperty(PROP_BATCH_SIZE).asInteger());
+        if (flowFiles.isEmpty()) {
             return;
         }
 
         final ComponentLog logger = getLogger();
-        final String cacheKey = context.getProperty(PROP_CACHE_ENTRY_IDENTIFIER).evaluateAttributeExpressions(flowFile).getValue();
-        if (StringUtils.isBlank(cacheKey)) {
-            logger.error("FlowFile {} has no attribute for given Cache Entry Identifier", new Object[]{flowFile});
-            flowFile = session.penalize(flowFile);
-            session.transfer(flowFile, REL_FAILURE);
+        final List<FlowFile> keyedFlowFiles = new ArrayList<>(flowFiles.size());
+        final List<String> cacheKeys = new ArrayList<>(flowFiles.size());
+        for (final FlowFile flowFile : flowFiles) {
+            final String cacheKey = context.getProperty(PROP_CACHE_ENTRY_IDENTIFIER).evaluateAttributeExpressions(flowFile).getValue();
+            if (StringUtils.isBlank(cacheKey)) {
+                logger.error("FlowFile {} has no attribute for given Cache Entry Identifier", new Object[]{flowFile});
+                session.transfer(session.penalize(flowFile), REL_FAILURE);
+                continue;
+            }
+
+            keyedFlowFiles.add(flowFile);
+            cacheKeys.add(cacheKey);
+        }
+
+        if (keyedFlowFiles.isEmpty()) {
             return;
         }
+
         final DistributedMapCacheClient cache = context.getProperty(PROP_DISTRIBUTED_CACHE_SERVICE).asControllerService(DistributedMapCacheClient.class);
 
+        // fetch the values for the entire batch in a single request, rather than making a round trip to the cache for each FlowFile
+        final Map<String, byte[]> cacheValues;
         try {
-            final byte[] cacheValue = cache.get(cacheKey, keySerializer, valueDeserializer);
-
-            if(cacheValue==null){
-                session.transfer(flowFile, REL_NOT_FOUND);
-                logger.info("Could not find an entry in cache for {}; routing to not-found", new Object[]{flowFile});
-
-            } else {
-                boolean putInAttribute = context.getProperty(PROP_PUT_CACHE_VALUE_IN_ATTRIBUTE).isSet();
-                if(putInAttribute){
-                    String attributeName = context.getProperty(PROP_PUT_CACHE_VALUE_IN_ATTRIBUTE).evaluateAttributeExpressions(flowFile).getValue();
-                    String attributeValue = new String(cacheValue,context.getProperty(PROP_CHARACTER_SET).getValue());
-
-                    int maxLength = context.getProperty(PROP_PUT_ATTRIBUTE_MAX_LENGTH).asInteger();
-                    if(maxLength < attributeValue.length()){
-                        attributeValue = attributeValue.substring(0,maxLength);
-                    }
-
-                    flowFile = session.putAttribute(flowFile, attributeName, attributeValue);
-
-                } else {
-                    flowFile = session.write(flowFile, new OutputStreamCallback() {
-                        @Override
-                        public void process(OutputStream out) throws IOException {
-                            out.write(cacheValue);
-                        }
-                    });
-                }
-
-                session.transfer(flowFile, REL_SUCCESS);
-                if(putInAttribute){
-                    logger.info("Found a cache key of {} and added an attribute to {} with it's value.", new Object[]{cacheKey, flowFile});
-                }else {
-                    logger.info("Found a cache key of {} and replaced the contents of {} with it's value.", new Object[]{cacheKey, flowFile});
-                }
+            cacheValues = cache.getAll(new HashSet<>(cacheKeys), keySerializer, valueDeserializer);
+        } catch (final IOException e) {
+            for (final FlowFile flowFile : keyedFlowFiles) {
+                session.transfer(session.penalize(flowFile), REL_FAILURE);
+                logger.error("Unable to communicate with cache when processing {} due to {}", new Object[]{flowFile, e});
             }
+            return;
+        }
 
-        } catch (final IOException e) {
-            flowFile = session.penalize(flowFile);
-            session.transfer(flowFile, REL_FAILURE);
-            logger.error("Unable to communicate with cache when processing {} due to {}", new Object[]{flowFile, e});
+        for (int i = 0; i < keyedFlowFiles.size(); i++) {
+            final String cacheKey = cacheKeys.get(i);
+            transferWithCacheValue(context, session, keyedFlowFiles.get(i), cacheKey, cacheValues.get(cacheKey));
         }
     }
 
+    private void transferWithCacheValue(final ProcessContext context, final ProcessSession session, final FlowFile original, final String cacheKey, final byte[] cacheValue) {
+        final ComponentLog logger = getLogger();
+        FlowFile flowFile = original;
+
+        if(cacheValue==null){
+            session.transfer(flowFile, REL_NOT_FOUND);
+            logger.info("Could not find an entry in cache for {}; routing to not-found", new Object[]{flowFile});
+            return;
+        }
+
+        boolean putInAttribute = context.getProperty(PROP_PUT_CACHE_VALUE_IN_ATTRIBUTE).isSet();
+        if(putInAttribute){
+            String attributeName = context.getProperty(PROP_PUT_CACHE_VALUE_IN_ATTRIBUTE).evaluateAttributeExpressions(flowFile).getValue();
+            String attributeValue = new String(cacheValue, Charset.forName(context.getProperty(PROP_CHARACTER_SET).getValue()));
+
+            int maxLength = context.getProperty(PROP_PUT_ATTRIBUTE_MAX_LENGTH).asInteger();
+            if(maxLength < attributeValue.length()){
+                attributeValue = attributeValue.substring(0,maxLength);
+            }
+
+            flowFile = session.putAttribute(flowFile, attributeName, attributeValue);
+
+        } else {
+            flowFile = session.write(flowFile, new OutputStreamCallback() {
+                @Override
+                public void process(OutputStream out) throws IOException {
+                    out.write(cacheValue);
+                }
+            });
+        }
+
+        session.transfer(flowFile, REL_SUCCESS);
+        if(putInAttribute){
+            logger.info("Found a cache key of {} and added an attribute to {} with it's value.", new Object[]{cacheKey, flowFile});
+        }else {
+            logger.info("Found a cache key of {} and replaced the contents of {} with it's value.", new Object[]{cacheKey, flowFile});
+        }
+    }
 
     public static class CacheValueDeserializer implements Deserializer<byte[]> {
 
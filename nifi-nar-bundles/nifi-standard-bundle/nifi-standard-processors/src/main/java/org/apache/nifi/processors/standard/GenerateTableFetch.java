@@ -65,7 +65,8 @@ import java.util.stream.IntStream;
 @SeeAlso({QueryDatabaseTable.class, ExecuteSQL.class})
 @CapabilityDescription("Generates SQL select queries that fetch \"pages\" of rows from a table. The partition size property, along with the table's row count, "
         + "determine the size and number of pages and generated FlowFiles. In addition, incremental fetching can be achieved by setting Maximum-Value Columns, "
-        + "which causes the processor to track the columns' maximum values, thus only fetching rows whose columns' values exceed the observed maximums. This "
+        + "which causes the processor to track the columns' maximum values, thus only fetching rows whose columns' values exceed the observed maximums. If a "
+        + "Column for Value Partitioning is set, each page is instead a range of that column's values, so that the pages can be fetched in parallel. This "
         + "processor is intended to be run on the Primary Node only.")
 @Stateful(scopes = Scope.CLUSTER, description = "After performing a query on the specified table, the maximum values for "
         + "the specified column(s) will be retained for use in future executions of the query. This allows the Processor "
@@ -87,6 +88,22 @@ public class GenerateTableFetch extends AbstractDatabaseFetchProcessor {
             .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
             .build();
 
+    public static final PropertyDescriptor COLUMN_FOR_VALUE_PARTITIONING = new PropertyDescriptor.Builder()
+            .name("gen-table-column-for-val-partitioning")
+            .displayName("Column for Value Partitioning")
+            .description("The name of an integer column whose values are used to partition the table, rather than paging through the rows with "
+                    + "an offset. Each generated SQL statement selects the rows whose values of this column fall within a range of Partition Size "
+                    + "consecutive values, between the column's minimum and maximum values. The statements do not need to order the rows or skip "
+                    + "past those of the preceding pages, so they can be executed in parallel (for example, by ExecuteSQL with several concurrent "
+                    + "tasks) without each one scanning the table up to its offset. The column should be indexed and its values should be "
+                    + "evenly distributed, such as those of an auto-incrementing primary key. If the values are sparse, some statements will "
+                    + "return fewer rows than the Partition Size, or none at all. If this property is not set, or the Partition Size is zero, "
+                    + "the rows are paged with an offset.")
+            .required(false)
+            .expressionLanguageSupported(false)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+
     public GenerateTableFetch() {
         final Set<Relationship> r = new HashSet<>();
         r.add(REL_SUCCESS);
@@ -100,6 +117,7 @@ public class GenerateTableFetch extends AbstractDatabaseFetchProcessor {
         pds.add(MAX_VALUE_COLUMN_NAMES);
         pds.add(QUERY_TIMEOUT);
         pds.add(PARTITION_SIZE);
+        pds.add(COLUMN_FOR_VALUE_PARTITIONING);
         propDescriptors = Collections.unmodifiableList(pds);
     }
 
@@ -129,6 +147,7 @@ public class GenerateTableFetch extends AbstractDatabaseFetchProcessor {
         final String columnNames = context.getProperty(COLUMN_NAMES).getValue();
         final String maxValueColumnNames = context.getProperty(MAX_VALUE_COLUMN_NAMES).getValue();
         final int partitionSize = context.getProperty(PARTITION_SIZE).asInteger();
+        final String partitionColumnName = partitionSize == 0 ? null : StringUtils.trimToNull(context.getProperty(COLUMN_FOR_VALUE_PARTITIONING).getValue());
 
         final StateManager stateManager = context.getStateManager();
         final StateMap stateMap;
@@ -176,12 +195,20 @@ public class GenerateTableFetch extends AbstractDatabaseFetchProcessor {
                 }
             });
 
+            // The minimum and maximum values of the partitioning column follow those of the maximum-value columns
+            if (partitionColumnName != null) {
+                maxValueSelectColumns.add("MIN(" + partitionColumnName + ")");
+                maxValueSelectColumns.add("MAX(" + partitionColumnName + ")");
+            }
+
             whereClause = StringUtils.join(maxValueClauses, " AND ");
             columnsClause = StringUtils.join(maxValueSelectColumns, ", ");
 
             // Build a SELECT query with maximum-value columns (if present)
             final String selectQuery = dbAdapter.getSelectStatement(tableName, columnsClause, whereClause, null, null, null);
             int rowCount = 0;
+            Long minPartitionValue = null;
+            Long maxPartitionValue = null;
 
             try (final Connection con = dbcpService.getConnection();
                  final Statement st = con.createStatement()) {
@@ -200,7 +227,8 @@ public class GenerateTableFetch extends AbstractDatabaseFetchProcessor {
 
                     // Update the state map with the newly-observed maximum values
                     ResultSetMetaData rsmd = resultSet.getMetaData();
-                    for (int i = 2; i <= rsmd.getColumnCount(); i++) {
+                    final int lastMaxValueColumn = maxValueColumnNameList.size() + 1;
+                    for (int i = 2; i <= lastMaxValueColumn; i++) {
                         String resultColumnName = rsmd.getColumnName(i).toLowerCase();
                         int type = rsmd.getColumnType(i);
                         try {
@@ -213,6 +241,17 @@ public class GenerateTableFetch extends AbstractDatabaseFetchProcessor {
                             throw new ProcessException(pie);
                         }
                     }
+
+                    if (partitionColumnName != null) {
+                        final long minValue = resultSet.getLong(lastMaxValueColumn + 1);
+                        if (!resultSet.wasNull()) {
+                            minPartitionValue = minValue;
+                        }
+                        final long maxValue = resultSet.getLong(lastMaxValueColumn + 2);
+                        if (!resultSet.wasNull()) {
+                            maxPartitionValue = maxValue;
+                        }
+                    }
                 } else {
                     // Something is very wrong here, one row (even if count is zero) should be returned
                     throw new SQLException("No rows returned from metadata query: " + selectQuery);
@@ -221,16 +260,39 @@ public class GenerateTableFetch extends AbstractDatabaseFetchProcessor {
                 logger.error("Unable to execute SQL select query {} due to {}", new Object[]{selectQuery, e});
                 throw new ProcessException(e);
             }
-            final int numberOfFetches = (partitionSize == 0) ? rowCount : (rowCount / partitionSize) + (rowCount % partitionSize == 0 ? 0 : 1);
+            final long numberOfFetches;
+            if (partitionColumnName != null) {
+                numberOfFetches = (rowCount == 0 || minPartitionValue == null || maxPartitionValue == null)
+                        ? 0 : (maxPartitionValue - minPartitionValue) / partitionSize + 1;
+            } else {
+                numberOfFetches = (partitionSize == 0) ? rowCount : (rowCount / partitionSize) + (rowCount % partitionSize == 0 ? 0 : 1);
+            }
 
 
             // Generate SQL statements to read "pages" of data
-            for (int i = 0; i < numberOfFetches; i++) {
+            for (long i = 0; i < numberOfFetches; i++) {
                 FlowFile sqlFlowFile;
 
-                Integer limit = partitionSize == 0 ? null : partitionSize;
-                Integer offset = partitionSize == 0 ? null : i * partitionSize;
-                final String query = dbAdapter.getSelectStatement(tableName, columnNames, whereClause, StringUtils.join(maxValueColumnNameList, ", "), limit, offset);
+                final String query;
+                if (partitionColumnName != null) {
+                    // Select a range of values of the partitioning column; the last range ends at the maximum value that was observed,
+                    // so that rows added since then are left for the next execution
+                    final long lowerBound = minPartitionValue + i * partitionSize;
+                    final String upperBoundClause = (i == numberOfFetches - 1)
+                            ? partitionColumnName + " <= " + maxPartitionValue
+                            : partitionColumnName + " < " + (lowerBound + partitionSize);
+                    final List<String> rangeClauses = new ArrayList<>(3);
+                    if (!StringUtils.isEmpty(whereClause)) {
+                        rangeClauses.add(whereClause);
+                    }
+                    rangeClauses.add(partitionColumnName + " >= " + lowerBound);
+                    rangeClauses.add(upperBoundClause);
+                    query = dbAdapter.getSelectStatement(tableName, columnNames, StringUtils.join(rangeClauses, " AND "), null, null, null);
+                } else {
+                    Integer limit = partitionSize == 0 ? null : partitionSize;
+                    Integer offset = partitionSize == 0 ? null : (int) i * partitionSize;
+                    query = dbAdapter.getSelectStatement(tableName, columnNames, whereClause, StringUtils.join(maxValueColumnNameList, ", "), limit, offset);
+                }
                 sqlFlowFile = session.create();
                 sqlFlowFile = session.write(sqlFlowFile, out -> {
                     out.write(query.getBytes());
@@ -80,7 +80,6 @@ import org.apache.nifi.processor.util.bin.BinManager;
 import org.apache.nifi.stream.io.BufferedInputStream;
 import org.apache.nifi.stream.io.BufferedOutputStream;
 import org.apache.nifi.stream.io.NonCloseableOutputStream;
-import org.apache.nifi.stream.io.StreamUtils;
 import org.apache.nifi.util.FlowFilePackager;
 import org.apache.nifi.util.FlowFilePackagerV1;
 import org.apache.nifi.util.FlowFilePackagerV2;
@@ -552,55 +551,40 @@ public class MergeContent extends BinFiles {
 
             final ProcessSession session = bin.getSession();
             FlowFile bundle = session.create(bin.getContents());
-            final AtomicReference<String> bundleMimeTypeRef = new AtomicReference<>(null);
-            bundle = session.write(bundle, new OutputStreamCallback() {
-                @Override
-                public void process(final OutputStream out) throws IOException {
-                    final byte[] header = getDelimiterContent(context, contents, HEADER);
-                    if (header != null) {
-                        out.write(header);
-                    }
-
-                    boolean isFirst = true;
-                    final Iterator<FlowFile> itr = contents.iterator();
-                    while (itr.hasNext()) {
-                        final FlowFile flowFile = itr.next();
-                        bin.getSession().read(flowFile, false, new InputStreamCallback() {
-                            @Override
-                            public void process(final InputStream in) throws IOException {
-                                StreamUtils.copy(in, out);
-                            }
-                        });
-
-                        if (itr.hasNext()) {
-                            final byte[] demarcator = getDelimiterContent(context, contents, DEMARCATOR);
-                            if (demarcator != null) {
-                                out.write(demarcator);
-                            }
-                        }
 
-                        final String flowFileMimeType = flowFile.getAttribute(CoreAttributes.MIME_TYPE.key());
-                        if (isFirst) {
-                            bundleMimeTypeRef.set(flowFileMimeType);
-                            isFirst = false;
-                        } else {
-                            if (bundleMimeTypeRef.get() != null && !bundleMimeTypeRef.get().equals(flowFileMimeType)) {
-                                bundleMimeTypeRef.set(null);
-                            }
-                        }
-                    }
+            final byte[] header;
+            final byte[] footer;
+            final byte[] demarcator;
+            try {
+                header = getDelimiterContent(context, contents, HEADER);
+                footer = getDelimiterContent(context, contents, FOOTER);
+                demarcator = getDelimiterContent(context, contents, DEMARCATOR);
+            } catch (final IOException e) {
+                throw new ProcessException("Failed to read the header, footer or demarcator for the merged FlowFile", e);
+            }
 
-                    final byte[] footer = getDelimiterContent(context, contents, FOOTER);
-                    if (footer != null) {
-                        out.write(footer);
+            // let the framework concatenate the content, so that the content repository can transfer the bytes of each
+            // FlowFile directly into the merged content instead of copying them through this processor
+            bundle = session.merge(contents, bundle, header, footer, demarcator);
+
+            String bundleMimeType = null;
+            boolean isFirst = true;
+            for (final FlowFile flowFile : contents) {
+                final String flowFileMimeType = flowFile.getAttribute(CoreAttributes.MIME_TYPE.key());
+                if (isFirst) {
+                    bundleMimeType = flowFileMimeType;
+                    isFirst = false;
+                } else {
+                    if (bundleMimeType != null && !bundleMimeType.equals(flowFileMimeType)) {
+                        bundleMimeType = null;
                     }
                 }
-            });
+            }
 
             session.getProvenanceReporter().join(contents, bundle);
             bundle = session.putAttribute(bundle, CoreAttributes.FILENAME.key(), createFilename(contents));
-            if (bundleMimeTypeRef.get() != null) {
-                this.mimeType = bundleMimeTypeRef.get();
+            if (bundleMimeType != null) {
+                this.mimeType = bundleMimeType;
             }
 
             return bundle;
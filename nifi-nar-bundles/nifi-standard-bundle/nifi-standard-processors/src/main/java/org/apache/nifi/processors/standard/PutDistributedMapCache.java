@@ -23,7 +23,9 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
@@ -109,6 +111,15 @@ public class PutDistributedMapCache extends AbstractProcessor {
         .expressionLanguageSupported(false)
         .build();
 
+    public static final PropertyDescriptor BATCH_SIZE = new PropertyDescriptor.Builder()
+        .name("Batch Size")
+        .description("The maximum number of FlowFiles to process in a single execution. When the cache update strategy is " +
+            "'Replace if present', all of the entries for a batch are sent to the cache at once, which is considerably more " +
+            "efficient than sending them one at a time when the cache is on a remote host.")
+        .required(true)
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .defaultValue("1")
+        .build();
 
     public static final Relationship REL_SUCCESS = new Relationship.Builder()
         .name("success")
@@ -139,6 +150,7 @@ public class PutDistributedMapCache extends AbstractProcessor {
         descriptors.add(DISTRIBUTED_CACHE_SERVICE);
         descriptors.add(CACHE_UPDATE_STRATEGY);
         descriptors.add(CACHE_ENTRY_MAX_BYTES);
+        descriptors.add(BATCH_SIZE);
         return descriptors;
     }
 
@@ -150,76 +162,103 @@ public class PutDistributedMapCache extends AbstractProcessor {
     @Override
     public void onTrigger(final ProcessContext context, final ProcessSession session) throws ProcessException {
 
-        FlowFile flowFile = session.get();
-        if (flowFile == null) {
+        final List<FlowFile> flowFiles = session.get(context.getProperty(BATCH_SIZE).asInteger());
+        if (flowFiles.isEmpty()) {
             return;
         }
 
         final ComponentLog logger = getLogger();
+        final long maxCacheEntrySize = context.getProperty(CACHE_ENTRY_MAX_BYTES).asDataSize(DataUnit.B).longValue();
 
-        // cache key is computed from attribute 'CACHE_ENTRY_IDENTIFIER' with expression language support
-        final String cacheKey = context.getProperty(CACHE_ENTRY_IDENTIFIER).evaluateAttributeExpressions(flowFile).getValue();
-
-        // if the computed value is null, or empty, we transfer the flow file to failure relationship
-        if (StringUtils.isBlank(cacheKey)) {
-            logger.error("FlowFile {} has no attribute for given Cache Entry Identifier", new Object[] {flowFile});
-            flowFile = session.penalize(flowFile);
-            session.transfer(flowFile, REL_FAILURE);
-            return;
-        }
+        // the FlowFiles that can be cached, along with their cache keys and values, in the order in which they were received
+        final List<FlowFile> cacheableFlowFiles = new ArrayList<>(flowFiles.size());
+        final List<String> cacheKeys = new ArrayList<>(flowFiles.size());
+        final List<byte[]> cacheValues = new ArrayList<>(flowFiles.size());
 
-        // the cache client used to interact with the distributed cache
-        final DistributedMapCacheClient cache = context.getProperty(DISTRIBUTED_CACHE_SERVICE).asControllerService(DistributedMapCacheClient.class);
+        for (FlowFile flowFile : flowFiles) {
+            // cache key is computed from attribute 'CACHE_ENTRY_IDENTIFIER' with expression language support
+            final String cacheKey = context.getProperty(CACHE_ENTRY_IDENTIFIER).evaluateAttributeExpressions(flowFile).getValue();
 
-        try {
+            // if the computed value is null, or empty, we transfer the flow file to failure relationship
+            if (StringUtils.isBlank(cacheKey)) {
+                logger.error("FlowFile {} has no attribute for given Cache Entry Identifier", new Object[] {flowFile});
+                flowFile = session.penalize(flowFile);
+                session.transfer(flowFile, REL_FAILURE);
+                continue;
+            }
 
-            final long maxCacheEntrySize = context.getProperty(CACHE_ENTRY_MAX_BYTES).asDataSize(DataUnit.B).longValue();
             long flowFileSize = flowFile.getSize();
 
             // too big flow file
             if (flowFileSize > maxCacheEntrySize) {
                 logger.warn("Flow file {} size {} exceeds the max cache entry size ({} B).", new Object[] {flowFile, flowFileSize, maxCacheEntrySize});
                 session.transfer(flowFile, REL_FAILURE);
-                return;
+                continue;
             }
 
             if (flowFileSize == 0) {
                 logger.warn("Flow file {} is empty, there is nothing to cache.", new Object[] {flowFile});
                 session.transfer(flowFile, REL_FAILURE);
-                return;
-
+                continue;
             }
 
             // get flow file content
             final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
             session.exportTo(flowFile, byteStream);
-            byte[] cacheValue = byteStream.toByteArray();
-            final String updateStrategy = context.getProperty(CACHE_UPDATE_STRATEGY).getValue();
-            boolean cached = false;
 
+            cacheableFlowFiles.add(flowFile);
+            cacheKeys.add(cacheKey);
+            cacheValues.add(byteStream.toByteArray());
+        }
+
+        if (cacheableFlowFiles.isEmpty()) {
+            return;
+        }
+
+        // the cache client used to interact with the distributed cache
+        final DistributedMapCacheClient cache = context.getProperty(DISTRIBUTED_CACHE_SERVICE).asControllerService(DistributedMapCacheClient.class);
+        final String updateStrategy = context.getProperty(CACHE_UPDATE_STRATEGY).getValue();
+
+        int processed = 0;
+        try {
             if (updateStrategy.equals(CACHE_UPDATE_REPLACE.getValue())) {
-                cache.put(cacheKey, cacheValue, keySerializer, valueSerializer);
-                cached = true;
+                // send the whole batch in a single request. If a key appears more than once, the last FlowFile wins,
+                // just as it would if the entries were put one at a time.
+                final Map<String, byte[]> entries = new LinkedHashMap<>();
+                for (int i = 0; i < cacheableFlowFiles.size(); i++) {
+                    entries.put(cacheKeys.get(i), cacheValues.get(i));
+                }
+                cache.putAll(entries, keySerializer, valueSerializer);
+
+                for (final FlowFile flowFile : cacheableFlowFiles) {
+                    transferCached(session, flowFile, true);
+                }
+                processed = cacheableFlowFiles.size();
             } else if (updateStrategy.equals(CACHE_UPDATE_KEEP_ORIGINAL.getValue())) {
-                final byte[] oldValue = cache.getAndPutIfAbsent(cacheKey, cacheValue, keySerializer, valueSerializer, valueDeserializer);
-                if (oldValue == null) {
-                    cached = true;
+                // whether or not each entry is added depends on the entries added before it, so they must be added one at a time
+                for (final FlowFile flowFile : cacheableFlowFiles) {
+                    final byte[] oldValue = cache.getAndPutIfAbsent(cacheKeys.get(processed), cacheValues.get(processed), keySerializer, valueSerializer, valueDeserializer);
+                    transferCached(session, flowFile, oldValue == null);
+                    processed++;
                 }
             }
-
-            // set 'cached' attribute
-            flowFile = session.putAttribute(flowFile, CACHED_ATTRIBUTE_NAME, String.valueOf(cached));
-
-            if (cached) {
-                session.transfer(flowFile, REL_SUCCESS);
-            } else {
+        } catch (final IOException e) {
+            for (FlowFile flowFile : cacheableFlowFiles.subList(processed, cacheableFlowFiles.size())) {
+                flowFile = session.penalize(flowFile);
                 session.transfer(flowFile, REL_FAILURE);
+                logger.error("Unable to communicate with cache when processing {} due to {}", new Object[] {flowFile, e});
             }
+        }
+    }
 
-        } catch (final IOException e) {
-            flowFile = session.penalize(flowFile);
+    private void transferCached(final ProcessSession session, final FlowFile original, final boolean cached) {
+        // set 'cached' attribute
+        final FlowFile flowFile = session.putAttribute(original, CACHED_ATTRIBUTE_NAME, String.valueOf(cached));
+
+        if (cached) {
+            session.transfer(flowFile, REL_SUCCESS);
+        } else {
             session.transfer(flowFile, REL_FAILURE);
-            logger.error("Unable to communicate with cache when processing {} due to {}", new Object[] {flowFile, e});
         }
     }
 
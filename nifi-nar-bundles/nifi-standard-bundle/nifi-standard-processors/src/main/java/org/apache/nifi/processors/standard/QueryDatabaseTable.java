@@ -120,6 +120,22 @@ public class QueryDatabaseTable extends AbstractDatabaseFetchProcessor {
             .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
             .build();
 
+    public static final PropertyDescriptor OUTPUT_BATCH_SIZE = new PropertyDescriptor.Builder()
+            .name("qdbt-output-batch-size")
+            .displayName("Output Batch Size")
+            .description("The number of output FlowFiles to queue before committing the process session. When set to zero, the session will be "
+                    + "committed when all result set rows have been processed and the output FlowFiles are ready for transfer to the downstream "
+                    + "relationship. For large result sets, this can cause a large burst of FlowFiles to be transferred at the end of processor "
+                    + "execution. If this property is set, then when the specified number of FlowFiles are ready for transfer, the session will "
+                    + "be committed, releasing the FlowFiles to the downstream relationship. The maximum values are still only stored in the "
+                    + "processor's state once the whole result set has been processed. This property is only used if 'Max Rows Per Flow File' is set. "
+                    + "NOTE: The fragment.count attribute will not be set on FlowFiles when this property is set, and the maxvalue.* attributes "
+                    + "hold the maximum values observed up to the time that each batch is committed.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
     public QueryDatabaseTable() {
         final Set<Relationship> r = new HashSet<>();
         r.add(REL_SUCCESS);
@@ -134,6 +150,7 @@ public class QueryDatabaseTable extends AbstractDatabaseFetchProcessor {
         pds.add(QUERY_TIMEOUT);
         pds.add(FETCH_SIZE);
         pds.add(MAX_ROWS_PER_FLOW_FILE);
+        pds.add(OUTPUT_BATCH_SIZE);
         pds.add(NORMALIZE_NAMES_FOR_AVRO);
         propDescriptors = Collections.unmodifiableList(pds);
     }
@@ -179,6 +196,7 @@ public class QueryDatabaseTable extends AbstractDatabaseFetchProcessor {
         final String maxValueColumnNames = context.getProperty(MAX_VALUE_COLUMN_NAMES).getValue();
         final Integer fetchSize = context.getProperty(FETCH_SIZE).asInteger();
         final Integer maxRowsPerFlowFile = context.getProperty(MAX_ROWS_PER_FLOW_FILE).asInteger();
+        final Integer outputBatchSize = context.getProperty(OUTPUT_BATCH_SIZE).asInteger();
         final boolean convertNamesForAvro = context.getProperty(NORMALIZE_NAMES_FOR_AVRO).asBoolean();
 
         final Map<String,String> maxValueProperties = getDefaultMaxValueProperties(context.getProperties());
@@ -283,6 +301,18 @@ public class QueryDatabaseTable extends AbstractDatabaseFetchProcessor {
                     }
 
                     fragmentIndex++;
+
+                    if (maxRowsPerFlowFile > 0 && outputBatchSize > 0 && resultSetFlowFiles.size() >= outputBatchSize) {
+                        // release this batch of FlowFiles downstream rather than holding them until the whole result set has been read
+                        for (int i = 0; i < resultSetFlowFiles.size(); i++) {
+                            for (Map.Entry<String, String> entry : statePropertyMap.entrySet()) {
+                                resultSetFlowFiles.set(i, session.putAttribute(resultSetFlowFiles.get(i), "maxvalue." + entry.getKey(), entry.getValue()));
+                            }
+                        }
+                        session.transfer(resultSetFlowFiles, REL_SUCCESS);
+                        session.commit();
+                        resultSetFlowFiles.clear();
+                    }
                 }
 
                 for (int i = 0; i < resultSetFlowFiles.size(); i++) {
@@ -292,7 +322,7 @@ public class QueryDatabaseTable extends AbstractDatabaseFetchProcessor {
                     }
 
                     //set count on all FlowFiles
-                    if(maxRowsPerFlowFile > 0) {
+                    if(maxRowsPerFlowFile > 0 && outputBatchSize == 0) {
                         resultSetFlowFiles.set(i,
                                 session.putAttribute(resultSetFlowFiles.get(i), "fragment.count", Integer.toString(fragmentIndex)));
                     }
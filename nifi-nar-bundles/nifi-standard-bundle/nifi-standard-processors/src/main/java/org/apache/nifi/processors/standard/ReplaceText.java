@@ -22,6 +22,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -31,6 +33,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -61,6 +64,7 @@ import org.apache.nifi.processor.io.StreamCallback;
 import org.apache.nifi.processor.util.FlowFileFilters;
 import org.apache.nifi.processor.util.StandardValidators;
 import org.apache.nifi.processors.standard.util.NLKBufferedReader;
+import org.apache.nifi.processors.standard.util.StreamingRegexReplacer;
 import org.apache.nifi.stream.io.StreamUtils;
 import org.apache.nifi.util.StopWatch;
 
@@ -139,11 +143,24 @@ public class ReplaceText extends AbstractProcessor {
             + "the FlowFile will be routed to 'failure'. "
             + "In 'Line-by-Line' Mode, if a single line is larger than this value, the FlowFile will be routed to 'failure'. A default value "
             + "of 1 MB is provided, primarily for 'Entire Text' mode. In 'Line-by-Line' Mode, a value such as 8 KB or 16 KB is suggested. "
-            + "This value is ignored if the <Replacement Strategy> property is set to one of: Append, Prepend, Always Replace")
+            + "This value is ignored if the <Replacement Strategy> property is set to one of: Append, Prepend, Always Replace. "
+            + "If the content is searched in windows rather than buffered in its entirety, as described for the <Maximum Match Length> property, "
+            + "this is the number of characters that are read into each window, and FlowFiles larger than this value are not routed to 'failure'.")
         .required(true)
         .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
         .defaultValue("1 MB")
         .build();
+    public static final PropertyDescriptor MAX_MATCH_LENGTH = new PropertyDescriptor.Builder()
+        .name("Maximum Match Length")
+        .description("The maximum number of characters that a single match of the Search Value may span, when using the 'Regex Replace' strategy "
+            + "in 'Entire text' mode. If set, rather than buffering the entire FlowFile, the content is searched in overlapping windows of "
+            + "<Maximum Buffer Size> characters, so that FlowFiles of any size can be processed with bounded memory. A match that would span "
+            + "more characters than this may be truncated or not found, and anchors and lookbehind constructs can only see the current window. "
+            + "The 'Literal Replace' strategy always searches the content in windows, as the length of a match is that of the Search Value. "
+            + "If not set, the entire FlowFile is buffered.")
+        .required(false)
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .build();
     public static final PropertyDescriptor REPLACEMENT_STRATEGY = new PropertyDescriptor.Builder()
         .name("Replacement Strategy")
         .description("The strategy for how and what to replace within the FlowFile's text content.")
@@ -181,6 +198,7 @@ public class ReplaceText extends AbstractProcessor {
         properties.add(REPLACEMENT_VALUE);
         properties.add(CHARACTER_SET);
         properties.add(MAX_BUFFER_SIZE);
+        properties.add(MAX_MATCH_LENGTH);
         properties.add(REPLACEMENT_STRATEGY);
         properties.add(EVALUATION_MODE);
         this.properties = Collections.unmodifiableList(properties);
@@ -215,9 +233,11 @@ public class ReplaceText extends AbstractProcessor {
         final Charset charset = Charset.forName(context.getProperty(CHARACTER_SET).getValue());
         final int maxBufferSize = context.getProperty(MAX_BUFFER_SIZE).asDataSize(DataUnit.B).intValue();
 
+        final Integer maxMatchLength = context.getProperty(MAX_MATCH_LENGTH).asInteger();
+
         final String evaluateMode = context.getProperty(EVALUATION_MODE).getValue();
         final byte[] buffer;
-        if (replacementStrategy.equalsIgnoreCase(regexReplaceValue) || replacementStrategy.equalsIgnoreCase(literalReplaceValue)) {
+        if (replacementStrategy.equalsIgnoreCase(regexReplaceValue) && maxMatchLength == null && evaluateMode.equalsIgnoreCase(ENTIRE_TEXT)) {
             buffer = new byte[maxBufferSize];
         } else {
             buffer = null;
@@ -236,12 +256,12 @@ public class ReplaceText extends AbstractProcessor {
                 if (context.getProperty(SEARCH_VALUE).getValue().equals(".*")) {
                     replacementStrategyExecutor = new AlwaysReplace();
                 } else {
-                    replacementStrategyExecutor = new RegexReplace(buffer, context);
+                    replacementStrategyExecutor = new RegexReplace(buffer, maxMatchLength, maxBufferSize, context);
                 }
 
                 break;
             case literalReplaceValue:
-                replacementStrategyExecutor = new LiteralReplace(buffer);
+                replacementStrategyExecutor = new LiteralReplace(maxBufferSize);
                 break;
             case alwaysReplace:
                 replacementStrategyExecutor = new AlwaysReplace();
@@ -462,9 +482,15 @@ public class ReplaceText extends AbstractProcessor {
 
     private static class RegexReplace implements ReplacementStrategyExecutor {
         private final byte[] buffer;
+        private final Integer maxMatchLength;
+        private final StreamingRegexReplacer streamingReplacer;
         private final int numCapturingGroups;
         private final Map<String, String> additionalAttrs;
 
+        // the Search Value is usually the same for every FlowFile, so its Matcher is reused for as long as it does not change
+        private String searchRegex;
+        private Matcher searchMatcher;
+
         private static final AttributeValueDecorator escapeBackRefDecorator = new AttributeValueDecorator() {
             @Override
             public String decorate(final String attributeValue) {
@@ -472,14 +498,37 @@ public class ReplaceText extends AbstractProcessor {
             }
         };
 
-        public RegexReplace(final byte[] buffer, final ProcessContext context) {
+        public RegexReplace(final byte[] buffer, final Integer maxMatchLength, final int windowSize, final ProcessContext context) {
             this.buffer = buffer;
+            this.maxMatchLength = maxMatchLength;
+            this.streamingReplacer = maxMatchLength == null ? null : new StreamingRegexReplacer(windowSize);
 
             final String regexValue = context.getProperty(SEARCH_VALUE).evaluateAttributeExpressions().getValue();
             numCapturingGroups = Pattern.compile(regexValue).matcher("").groupCount();
             additionalAttrs = new HashMap<>(numCapturingGroups);
         }
 
+        private Matcher getSearchMatcher(final String regex) {
+            if (!regex.equals(searchRegex)) {
+                searchMatcher = Pattern.compile(regex).matcher("");
+                searchRegex = regex;
+            }
+            return searchMatcher;
+        }
+
+        private String getReplacement(final ProcessContext context, final FlowFile flowFile, final MatchResult match) {
+            additionalAttrs.clear();
+            for (int i = 1; i <= match.groupCount(); i++) {
+                final String groupValue = match.group(i);
+                additionalAttrs.put("$" + i, groupValue);
+            }
+
+            String replacement = context.getProperty(REPLACEMENT_VALUE).evaluateAttributeExpressions(flowFile, additionalAttrs, escapeBackRefDecorator).getValue();
+            replacement = escapeLiteralBackReferences(replacement, numCapturingGroups);
+
+            return normalizeReplacementString(replacement);
+        }
+
         @Override
         public FlowFile replace(final FlowFile flowFile, final ProcessSession session, final ProcessContext context, final String evaluateMode, final Charset charset, final int maxBufferSize) {
             final AttributeValueDecorator quotedAttributeDecorator = new AttributeValueDecorator() {
@@ -489,11 +538,21 @@ public class ReplaceText extends AbstractProcessor {
                 }
             };
             final String searchRegex = context.getProperty(SEARCH_VALUE).evaluateAttributeExpressions(flowFile, quotedAttributeDecorator).getValue();
-            final Pattern searchPattern = Pattern.compile(searchRegex);
+            final Matcher matcher = getSearchMatcher(searchRegex);
 
             final int flowFileSize = (int) flowFile.getSize();
             FlowFile updatedFlowFile;
-            if (evaluateMode.equalsIgnoreCase(ENTIRE_TEXT)) {
+            if (evaluateMode.equalsIgnoreCase(ENTIRE_TEXT) && streamingReplacer != null) {
+                updatedFlowFile = session.write(flowFile, new StreamCallback() {
+                    @Override
+                    public void process(final InputStream in, final OutputStream out) throws IOException {
+                        final Reader reader = new InputStreamReader(in, charset);
+                        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset))) {
+                            streamingReplacer.replace(matcher, maxMatchLength, reader, writer, match -> getReplacement(context, flowFile, match));
+                        }
+                    }
+                });
+            } else if (evaluateMode.equalsIgnoreCase(ENTIRE_TEXT)) {
                 session.read(flowFile, new InputStreamCallback() {
                     @Override
                     public void process(final InputStream in) throws IOException {
@@ -502,20 +561,11 @@ public class ReplaceText extends AbstractProcessor {
                 });
 
                 final String contentString = new String(buffer, 0, flowFileSize, charset);
-                additionalAttrs.clear();
-                final Matcher matcher = searchPattern.matcher(contentString);
+                matcher.reset(contentString);
                 if (matcher.find()) {
-                    for (int i = 1; i <= matcher.groupCount(); i++) {
-                        final String groupValue = matcher.group(i);
-                        additionalAttrs.put("$" + i, groupValue);
-                    }
-
-                    String replacement = context.getProperty(REPLACEMENT_VALUE).evaluateAttributeExpressions(flowFile, additionalAttrs, escapeBackRefDecorator).getValue();
-                    replacement = escapeLiteralBackReferences(replacement, numCapturingGroups);
-
-                    String replacementFinal = normalizeReplacementString(replacement);
+                    final String replacementFinal = getReplacement(context, flowFile, matcher);
 
-                    final String updatedValue = contentString.replaceAll(searchRegex, replacementFinal);
+                    final String updatedValue = matcher.replaceAll(replacementFinal);
                     updatedFlowFile = session.write(flowFile, new OutputStreamCallback() {
                         @Override
                         public void process(final OutputStream out) throws IOException {
@@ -534,20 +584,11 @@ public class ReplaceText extends AbstractProcessor {
                             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, charset))) {
                             String oneLine;
                             while (null != (oneLine = br.readLine())) {
-                                additionalAttrs.clear();
-                                final Matcher matcher = searchPattern.matcher(oneLine);
+                                matcher.reset(oneLine);
                                 if (matcher.find()) {
-                                    for (int i = 1; i <= matcher.groupCount(); i++) {
-                                        final String groupValue = matcher.group(i);
-                                        additionalAttrs.put("$" + i, groupValue);
-                                    }
-
-                                    String replacement = context.getProperty(REPLACEMENT_VALUE).evaluateAttributeExpressions(flowFile, additionalAttrs, escapeBackRefDecorator).getValue();
-                                    replacement = escapeLiteralBackReferences(replacement, numCapturingGroups);
+                                    final String replacementFinal = getReplacement(context, flowFile, matcher);
 
-                                    String replacementFinal = normalizeReplacementString(replacement);
-
-                                    final String updatedValue = oneLine.replaceAll(searchRegex, replacementFinal);
+                                    final String updatedValue = matcher.replaceAll(replacementFinal);
                                     bw.write(updatedValue);
                                 } else {
                                     // No match. Just write out the line as it was.
@@ -564,15 +605,26 @@ public class ReplaceText extends AbstractProcessor {
 
         @Override
         public boolean isAllDataBufferedForEntireText() {
-            return true;
+            return streamingReplacer == null;
         }
     }
 
     private static class LiteralReplace implements ReplacementStrategyExecutor {
-        private final byte[] buffer;
+        private final StreamingRegexReplacer streamingReplacer;
 
-        public LiteralReplace(final byte[] buffer) {
-            this.buffer = buffer;
+        private String searchValue;
+        private Matcher searchMatcher;
+
+        public LiteralReplace(final int windowSize) {
+            this.streamingReplacer = new StreamingRegexReplacer(windowSize);
+        }
+
+        private Matcher getSearchMatcher(final String value) {
+            if (!value.equals(searchValue)) {
+                searchMatcher = Pattern.compile(value, Pattern.LITERAL).matcher("");
+                searchValue = value;
+            }
+            return searchMatcher;
         }
 
         @Override
@@ -589,16 +641,19 @@ public class ReplaceText extends AbstractProcessor {
 
             final String searchValue = context.getProperty(SEARCH_VALUE).evaluateAttributeExpressions(flowFile, quotedAttributeDecorator).getValue();
 
-            final int flowFileSize = (int) flowFile.getSize();
+            // Interpreting the search and replacement values as char sequences, as String.replace(CharSequence, CharSequence) does
+            final Matcher matcher = getSearchMatcher(searchValue);
+            final String quotedReplacement = Matcher.quoteReplacement(replacementValue);
+
             if (evaluateMode.equalsIgnoreCase(ENTIRE_TEXT)) {
                 flowFile = session.write(flowFile, new StreamCallback() {
                     @Override
                     public void process(final InputStream in, final OutputStream out) throws IOException {
-                        StreamUtils.fillBuffer(in, buffer, false);
-                        final String contentString = new String(buffer, 0, flowFileSize, charset);
-                        // Interpreting the search and replacement values as char sequences
-                        final String updatedValue = contentString.replace(searchValue, replacementValue);
-                        out.write(updatedValue.getBytes(charset));
+                        // A match spans exactly as many characters as the search value, so the content never needs to be buffered in its entirety
+                        final Reader reader = new InputStreamReader(in, charset);
+                        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset))) {
+                            streamingReplacer.replace(matcher, searchValue.length(), reader, writer, match -> quotedReplacement);
+                        }
                     }
                 });
             } else {
@@ -609,8 +664,7 @@ public class ReplaceText extends AbstractProcessor {
                             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, charset))) {
                             String oneLine;
                             while (null != (oneLine = br.readLine())) {
-                                // Interpreting the search and replacement values as char sequences
-                                final String updatedValue = oneLine.replace(searchValue, replacementValue);
+                                final String updatedValue = matcher.reset(oneLine).replaceAll(quotedReplacement);
                                 bw.write(updatedValue);
                             }
                         }
@@ -622,7 +676,7 @@ public class ReplaceText extends AbstractProcessor {
 
         @Override
         public boolean isAllDataBufferedForEntireText() {
-            return true;
+            return false;
         }
     }
 
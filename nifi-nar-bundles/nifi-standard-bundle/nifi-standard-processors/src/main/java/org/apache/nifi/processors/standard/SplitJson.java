@@ -48,7 +48,10 @@ import org.apache.nifi.processor.ProcessSession;
 import org.apache.nifi.processor.ProcessorInitializationContext;
 import org.apache.nifi.processor.Relationship;
 import org.apache.nifi.processor.util.StandardValidators;
+import org.apache.nifi.processors.standard.util.StreamingJsonPath;
+import org.apache.nifi.stream.io.BufferedInputStream;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.JsonPath;
@@ -164,6 +167,15 @@ public class SplitJson extends AbstractJsonPathProcessor {
         }
 
         final ComponentLog logger = getLogger();
+        String representationOption = processContext.getProperty(NULL_VALUE_DEFAULT_REPRESENTATION).getValue();
+        final String nullDefaultValue = NULL_REPRESENTATION_MAP.get(representationOption);
+
+        // Expressions that can be answered in a single pass are evaluated while streaming the content, so that the document never
+        // needs to be held in memory; all others are evaluated against the parsed document.
+        final StreamingJsonPath streamingJsonPath = StreamingJsonPath.compile(processContext.getProperty(ARRAY_JSON_PATH_EXPRESSION).getValue());
+        if (streamingJsonPath != null && splitStreaming(processSession, original, streamingJsonPath, nullDefaultValue)) {
+            return;
+        }
 
         DocumentContext documentContext = null;
         try {
@@ -175,8 +187,6 @@ public class SplitJson extends AbstractJsonPathProcessor {
         }
 
         final JsonPath jsonPath = JSON_PATH_REF.get();
-        String representationOption = processContext.getProperty(NULL_VALUE_DEFAULT_REPRESENTATION).getValue();
-        final String nullDefaultValue = NULL_REPRESENTATION_MAP.get(representationOption);
 
         final List<FlowFile> segments = new ArrayList<>();
 
@@ -222,4 +232,72 @@ public class SplitJson extends AbstractJsonPathProcessor {
         processSession.transfer(original, REL_ORIGINAL);
         logger.info("Split {} into {} FlowFiles", new Object[]{original, segments.size()});
     }
+
+    /**
+     * @return <code>true</code> if the FlowFile was split or routed to failure, <code>false</code> if the result of the path was not conclusive
+     *         and the path must be evaluated against the parsed document instead
+     */
+    private boolean splitStreaming(final ProcessSession processSession, final FlowFile original, final StreamingJsonPath streamingJsonPath, final String nullDefaultValue) {
+        final ComponentLog logger = getLogger();
+
+        // A definite path selects the array itself, whose elements are the splits; an indefinite path selects the splits directly.
+        final StreamingJsonPath splitPath = streamingJsonPath.isDefinite() ? streamingJsonPath.elements() : streamingJsonPath;
+
+        final String fragmentIdentifier = UUID.randomUUID().toString();
+        final List<FlowFile> segments = new ArrayList<>();
+        final AtomicReference<StreamingJsonPath.Result> resultHolder = new AtomicReference<>();
+
+        try {
+            processSession.read(original, in -> {
+                try (final BufferedInputStream bufferedInputStream = new BufferedInputStream(in)) {
+                    final StreamingJsonPath.Result result = StreamingJsonPath.evaluate(bufferedInputStream, Collections.singletonList(splitPath), (pathIndex, value) -> {
+                        FlowFile split = processSession.create(original);
+                        split = processSession.write(split, out -> out.write(getResultRepresentation(value, nullDefaultValue).getBytes(StandardCharsets.UTF_8)));
+                        split = processSession.putAttribute(split, "fragment.identifier", fragmentIdentifier);
+                        split = processSession.putAttribute(split, "fragment.index", Integer.toString(segments.size()));
+                        split = processSession.putAttribute(split, "segment.original.filename", split.getAttribute(CoreAttributes.FILENAME.key()));
+                        segments.add(split);
+                    });
+                    resultHolder.set(result);
+                } catch (final JsonProcessingException e) {
+                    throw new InvalidJsonException(e);
+                }
+            });
+        } catch (final InvalidJsonException e) {
+            logger.error("FlowFile {} did not have valid JSON content.", new Object[]{original});
+            processSession.remove(segments);
+            processSession.transfer(original, REL_FAILURE);
+            return true;
+        }
+
+        final StreamingJsonPath.Result result = resultHolder.get();
+        if (!result.isConclusive(0)) {
+            processSession.remove(segments);
+            return false;
+        }
+
+        if (!result.isFound(0)) {
+            logger.warn("JsonPath {} could not be found for FlowFile {}", new Object[]{streamingJsonPath.getPath(), original});
+            processSession.remove(segments);
+            processSession.transfer(original, REL_FAILURE);
+            return true;
+        }
+
+        if (streamingJsonPath.isDefinite() && !result.isArray(0)) {
+            logger.error("The evaluated value of {} was not a JSON Array compatible type and cannot be split.", new Object[]{streamingJsonPath.getPath()});
+            processSession.remove(segments);
+            processSession.transfer(original, REL_FAILURE);
+            return true;
+        }
+
+        final String fragmentCount = Integer.toString(segments.size());
+        segments.forEach((segment) -> {
+            segment = processSession.putAttribute(segment, "fragment.count", fragmentCount);
+            processSession.transfer(segment, REL_SPLIT);
+        });
+
+        processSession.transfer(original, REL_ORIGINAL);
+        logger.info("Split {} into {} FlowFiles", new Object[]{original, segments.size()});
+        return true;
+    }
 }
@@ -47,9 +47,7 @@ import static java.sql.Types.VARCHAR;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.ResultSet;
@@ -59,11 +57,10 @@ import java.sql.SQLException;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaBuilder;
 import org.apache.avro.SchemaBuilder.FieldAssembler;
+import org.apache.avro.file.DataFileConstants;
 import org.apache.avro.file.DataFileWriter;
-import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericDatumWriter;
-import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -73,6 +70,15 @@ public class JdbcCommon {
 
     private static final int MAX_DIGITS_IN_BIGINT = 19;
 
+    /**
+     * The default size of the blocks of rows in the Avro data files that are written, which is that of Avro's DataFileWriter
+     */
+    public static final int DEFAULT_BLOCK_SIZE = DataFileConstants.DEFAULT_SYNC_INTERVAL;
+
+    // every field of the schema is a union of null and the column's type, in that order
+    private static final int NULL_BRANCH = 0;
+    private static final int VALUE_BRANCH = 1;
+
     public static long convertToAvroStream(final ResultSet rs, final OutputStream outStream, boolean convertNames) throws SQLException, IOException {
         return convertToAvroStream(rs, outStream, null, null, convertNames);
     }
@@ -89,133 +95,48 @@ public class JdbcCommon {
 
     public static long convertToAvroStream(final ResultSet rs, final OutputStream outStream, String recordName, ResultSetRowCallback callback, final int maxRows, boolean convertNames)
             throws SQLException, IOException {
+        return convertToAvroStream(rs, outStream, recordName, callback, maxRows, convertNames, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Writes the rows of a result set to an Avro data file. Rather than populating a record for each row and having Avro resolve the type of each
+     * value against the schema, a writer is chosen for each column when the schema is created, and each row is encoded directly from the result set.
+     *
+     * @param rs          The result set to convert to Avro
+     * @param outStream   The stream to write the Avro data file to
+     * @param recordName  The a priori record name to use if it cannot be determined from the result set.
+     * @param callback    A callback to invoke for each row, or null
+     * @param maxRows     The maximum number of rows to write, or 0 to write all of the rows
+     * @param convertNames Whether to normalize the table and column names to names that are valid in Avro
+     * @param blockSize   The approximate number of bytes of encoded rows that are buffered and then written as one block of the data file
+     * @return the number of rows written
+     * @throws SQLException if unable to read from the result set
+     * @throws IOException if unable to write to the stream
+     */
+    public static long convertToAvroStream(final ResultSet rs, final OutputStream outStream, String recordName, ResultSetRowCallback callback, final int maxRows, boolean convertNames,
+            final int blockSize) throws SQLException, IOException {
         final Schema schema = createSchema(rs, recordName, convertNames);
-        final GenericRecord rec = new GenericData.Record(schema);
+        final ResultSetDatumWriter datumWriter = new ResultSetDatumWriter(rs.getMetaData());
 
-        final DatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(schema);
-        try (final DataFileWriter<GenericRecord> dataFileWriter = new DataFileWriter<>(datumWriter)) {
+        try (final DataFileWriter<ResultSet> dataFileWriter = new DataFileWriter<>(datumWriter)) {
+            dataFileWriter.setSyncInterval(blockSize);
             dataFileWriter.create(schema, outStream);
 
-            final ResultSetMetaData meta = rs.getMetaData();
-            final int nrOfColumns = meta.getColumnCount();
             long nrOfRows = 0;
             while (rs.next()) {
                 if (callback != null) {
                     callback.processRow(rs);
                 }
-                for (int i = 1; i <= nrOfColumns; i++) {
-                    final int javaSqlType = meta.getColumnType(i);
-
-                    // Need to handle CLOB and BLOB before getObject() is called, due to ResultSet's maximum portability statement
-                    if (javaSqlType == CLOB) {
-                        Clob clob = rs.getClob(i);
-                        if (clob != null) {
-                            long numChars = clob.length();
-                            char[] buffer = new char[(int) numChars];
-                            InputStream is = clob.getAsciiStream();
-                            int index = 0;
-                            int c = is.read();
-                            while (c > 0) {
-                                buffer[index++] = (char) c;
-                                c = is.read();
-                            }
-                            rec.put(i - 1, new String(buffer));
-                            clob.free();
-                        } else {
-                            rec.put(i - 1, null);
-                        }
-                        continue;
-                    }
-
-                    if (javaSqlType == BLOB) {
-                        Blob blob = rs.getBlob(i);
-                        if (blob != null) {
-                            long numChars = blob.length();
-                            byte[] buffer = new byte[(int) numChars];
-                            InputStream is = blob.getBinaryStream();
-                            int index = 0;
-                            int c = is.read();
-                            while (c > 0) {
-                                buffer[index++] = (byte) c;
-                                c = is.read();
-                            }
-                            ByteBuffer bb = ByteBuffer.wrap(buffer);
-                            rec.put(i - 1, bb);
-                            blob.free();
-                        } else {
-                            rec.put(i - 1, null);
-                        }
-                        continue;
-                    }
-
-                    final Object value = rs.getObject(i);
-
-                    if (value == null) {
-                        rec.put(i - 1, null);
-
-                    } else if (javaSqlType == BINARY || javaSqlType == VARBINARY || javaSqlType == LONGVARBINARY || javaSqlType == ARRAY) {
-                        // bytes requires little bit different handling
-                        byte[] bytes = rs.getBytes(i);
-                        ByteBuffer bb = ByteBuffer.wrap(bytes);
-                        rec.put(i - 1, bb);
-
-                    } else if (value instanceof Byte) {
-                        // tinyint(1) type is returned by JDBC driver as java.sql.Types.TINYINT
-                        // But value is returned by JDBC as java.lang.Byte
-                        // (at least H2 JDBC works this way)
-                        // direct put to avro record results:
-                        // org.apache.avro.AvroRuntimeException: Unknown datum type java.lang.Byte
-                        rec.put(i - 1, ((Byte) value).intValue());
-                    } else if(value instanceof Short) {
-                        //MS SQL returns TINYINT as a Java Short, which Avro doesn't understand.
-                        rec.put(i - 1, ((Short) value).intValue());
-                    } else if (value instanceof BigDecimal) {
-                        // Avro can't handle BigDecimal as a number - it will throw an AvroRuntimeException such as: "Unknown datum type: java.math.BigDecimal: 38"
-                        rec.put(i - 1, value.toString());
-
-                    } else if (value instanceof BigInteger) {
-                        // Check the precision of the BIGINT. Some databases allow arbitrary precision (> 19), but Avro won't handle that.
-                        // It the SQL type is BIGINT and the precision is between 0 and 19 (inclusive); if so, the BigInteger is likely a
-                        // long (and the schema says it will be), so try to get its value as a long.
-                        // Otherwise, Avro can't handle BigInteger as a number - it will throw an AvroRuntimeException
-                        // such as: "Unknown datum type: java.math.BigInteger: 38". In this case the schema is expecting a string.
-                        if (javaSqlType == BIGINT) {
-                            int precision = meta.getPrecision(i);
-                            if (precision < 0 || precision > MAX_DIGITS_IN_BIGINT) {
-                                rec.put(i - 1, value.toString());
-                            } else {
-                                try {
-                                    rec.put(i - 1, ((BigInteger) value).longValueExact());
-                                } catch (ArithmeticException ae) {
-                                    // Since the value won't fit in a long, convert it to a string
-                                    rec.put(i - 1, value.toString());
-                                }
-                            }
-                        } else {
-                            rec.put(i - 1, value.toString());
-                        }
-
-                    } else if (value instanceof Number || value instanceof Boolean) {
-                        if (javaSqlType == BIGINT) {
-                            int precision = meta.getPrecision(i);
-                            if (precision < 0 || precision > MAX_DIGITS_IN_BIGINT) {
-                                rec.put(i - 1, value.toString());
-                            } else {
-                                rec.put(i - 1, value);
-                            }
-                        } else {
-                            rec.put(i - 1, value);
-                        }
-
-                    } else {
-                        // The different types that we support are numbers (int, long, double, float),
-                        // as well as boolean values and Strings. Since Avro doesn't provide
-                        // timestamp types, we want to convert those to Strings. So we will cast anything other
-                        // than numbers or booleans to strings by using the toString() method.
-                        rec.put(i - 1, value.toString());
+                try {
+                    dataFileWriter.append(rs);
+                } catch (final RuntimeException | IOException e) {
+                    // DataFileWriter wraps the exceptions thrown by the datum writer; the cause may be a failure to read from the result set
+                    final SQLException sqlException = findSQLException(e);
+                    if (sqlException != null) {
+                        throw sqlException;
                     }
+                    throw e;
                 }
-                dataFileWriter.append(rec);
                 nrOfRows += 1;
 
                 if (maxRows > 0 && nrOfRows == maxRows)
@@ -226,6 +147,152 @@ public class JdbcCommon {
         }
     }
 
+    private static SQLException findSQLException(final Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                return (SQLException) cause;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the writer for a column of a result set, which must encode the column's value as the type that {@link #createSchema(ResultSet, String, boolean)}
+     * chooses for the column
+     */
+    private static ColumnWriter createColumnWriter(final ResultSetMetaData meta, final int column) throws SQLException {
+        switch (meta.getColumnType(column)) {
+            // Need to handle CLOB and BLOB before getObject() is called, due to ResultSet's maximum portability statement
+            case CLOB:
+                return JdbcCommon::writeClob;
+
+            case BLOB:
+                return JdbcCommon::writeBlob;
+
+            case CHAR:
+            case LONGNVARCHAR:
+            case LONGVARCHAR:
+            case NCHAR:
+            case NVARCHAR:
+            case VARCHAR:
+            case ROWID:
+            case DECIMAL:
+            case NUMERIC:
+            case DATE:
+            case TIME:
+            case TIMESTAMP:
+                // Avro can't handle BigDecimal as a number, and doesn't provide timestamp types, so these are written as strings
+                return nullable((value, out) -> out.writeString(value.toString()));
+
+            case BIT:
+            case BOOLEAN:
+                return nullable((value, out) -> out.writeBoolean(value instanceof Boolean ? (Boolean) value : ((Number) value).intValue() != 0));
+
+            case INTEGER:
+                if (meta.isSigned(column)) {
+                    return nullable((value, out) -> out.writeInt(((Number) value).intValue()));
+                }
+                return nullable((value, out) -> out.writeLong(((Number) value).longValue()));
+
+            case SMALLINT:
+            case TINYINT:
+                // tinyint(1) is returned by some drivers as a Byte (H2) or Short (MS SQL), which Avro doesn't understand
+                return nullable((value, out) -> out.writeInt(((Number) value).intValue()));
+
+            case BIGINT:
+                // Check the precision of the BIGINT. Some databases allow arbitrary precision (> 19), but Avro won't handle that,
+                // so the schema has a string for the type
+                final int precision = meta.getPrecision(column);
+                if (precision < 0 || precision > MAX_DIGITS_IN_BIGINT) {
+                    return nullable((value, out) -> out.writeString(value.toString()));
+                }
+                return nullable((value, out) -> out.writeLong(value instanceof BigInteger ? ((BigInteger) value).longValueExact() : ((Number) value).longValue()));
+
+            case FLOAT:
+            case REAL:
+                // Some drivers return a Double for a FLOAT column
+                return nullable((value, out) -> out.writeFloat(((Number) value).floatValue()));
+
+            case DOUBLE:
+                return nullable((value, out) -> out.writeDouble(((Number) value).doubleValue()));
+
+            case BINARY:
+            case VARBINARY:
+            case LONGVARBINARY:
+            case ARRAY:
+                return (rs, i, out) -> {
+                    // bytes requires little bit different handling
+                    final byte[] bytes = rs.getBytes(i);
+                    if (bytes == null) {
+                        writeNull(out);
+                    } else {
+                        out.writeIndex(VALUE_BRANCH);
+                        out.writeBytes(bytes);
+                    }
+                };
+
+            default:
+                throw new IllegalArgumentException("createSchema: Unknown SQL type " + meta.getColumnType(column) + " cannot be converted to Avro type");
+        }
+    }
+
+    private static ColumnWriter nullable(final ValueEncoder encoder) {
+        return (rs, column, out) -> {
+            final Object value = rs.getObject(column);
+            if (value == null) {
+                writeNull(out);
+            } else {
+                out.writeIndex(VALUE_BRANCH);
+                encoder.encode(value, out);
+            }
+        };
+    }
+
+    private static void writeNull(final Encoder out) throws IOException {
+        out.writeIndex(NULL_BRANCH);
+        out.writeNull();
+    }
+
+    private static void writeClob(final ResultSet rs, final int column, final Encoder out) throws SQLException, IOException {
+        Clob clob = rs.getClob(column);
+        if (clob != null) {
+            long numChars = clob.length();
+            char[] buffer = new char[(int) numChars];
+            InputStream is = clob.getAsciiStream();
+            int index = 0;
+            int c = is.read();
+            while (c > 0) {
+                buffer[index++] = (char) c;
+                c = is.read();
+            }
+            out.writeIndex(VALUE_BRANCH);
+            out.writeString(new String(buffer));
+            clob.free();
+        } else {
+            writeNull(out);
+        }
+    }
+
+    private static void writeBlob(final ResultSet rs, final int column, final Encoder out) throws SQLException, IOException {
+        Blob blob = rs.getBlob(column);
+        if (blob != null) {
+            long numChars = blob.length();
+            byte[] buffer = new byte[(int) numChars];
+            InputStream is = blob.getBinaryStream();
+            int index = 0;
+            int c = is.read();
+            while (c > 0) {
+                buffer[index++] = (byte) c;
+                c = is.read();
+            }
+            out.writeIndex(VALUE_BRANCH);
+            out.writeBytes(buffer);
+            blob.free();
+        } else {
+            writeNull(out);
+        }
+    }
+
     public static Schema createSchema(final ResultSet rs) throws SQLException {
         return createSchema(rs, null, false);
     }
@@ -369,4 +436,49 @@ public class JdbcCommon {
     public interface ResultSetRowCallback {
         void processRow(ResultSet resultSet) throws IOException;
     }
+
+    /**
+     * Writes the value of one column of the current row of a result set
+     */
+    private interface ColumnWriter {
+        void write(ResultSet rs, int column, Encoder out) throws SQLException, IOException;
+    }
+
+    /**
+     * Writes a non-null value, as returned by {@link ResultSet#getObject(int)}, as the type of its column in the schema
+     */
+    private interface ValueEncoder {
+        void encode(Object value, Encoder out) throws IOException;
+    }
+
+    /**
+     * Writes the current row of a result set as a record of the schema that {@link #createSchema(ResultSet, String, boolean)} creates for it
+     */
+    private static class ResultSetDatumWriter implements DatumWriter<ResultSet> {
+        private final ColumnWriter[] columnWriters;
+
+        ResultSetDatumWriter(final ResultSetMetaData meta) throws SQLException {
+            final int nrOfColumns = meta.getColumnCount();
+            columnWriters = new ColumnWriter[nrOfColumns];
+            for (int i = 1; i <= nrOfColumns; i++) {
+                columnWriters[i - 1] = createColumnWriter(meta, i);
+            }
+        }
+
+        @Override
+        public void setSchema(final Schema schema) {
+            // the column writers were created from the same result set as the schema
+        }
+
+        @Override
+        public void write(final ResultSet rs, final Encoder out) throws IOException {
+            try {
+                for (int i = 0; i < columnWriters.length; i++) {
+                    columnWriters[i].write(rs, i + 1, out);
+                }
+            } catch (final SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
 }
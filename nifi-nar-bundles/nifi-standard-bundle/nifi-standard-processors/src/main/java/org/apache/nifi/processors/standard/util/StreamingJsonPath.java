@@ -0,0 +1,828 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.standard.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A JsonPath expression that can be evaluated in a single pass over a stream of JSON, without first parsing the whole
+ * document into memory. Only a subset of JsonPath is supported: child properties (<code>$.a.b</code> or <code>$['a']</code>),
+ * array indexes (<code>$.a[0]</code>), wildcards (<code>$.a[*]</code> or <code>$.a.*</code>) and filters that compare the
+ * current element, or one of its properties, to a literal (<code>$.a[?(@.b &gt; 10)]</code>). Only the values that are
+ * selected by an expression, or that a filter must be applied to, are materialized; the rest of the document is skipped
+ * by the parser. Values are materialized in the same manner as the JacksonJsonProvider does, so that they are rendered
+ * identically to the results of {@link com.jayway.jsonpath.JsonPath}. Expressions outside of the supported subset are not
+ * compiled, and the caller is expected to fall back to evaluating them against the fully parsed document.
+ */
+public class StreamingJsonPath {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    private final String path;
+    private final List<Step> steps;
+
+    // whether the expression that this path was compiled from selects at most one value, which is also true of the path
+    // that selects the elements of a definite expression
+    private final boolean definiteExpression;
+
+    // the number of leading steps that each select at most one value
+    private final int definiteStepCount;
+
+    private StreamingJsonPath(final String path, final List<Step> steps, final boolean definiteExpression) {
+        this.path = path;
+        this.steps = steps;
+        this.definiteExpression = definiteExpression;
+
+        int definiteSteps = 0;
+        while (definiteSteps < steps.size() && steps.get(definiteSteps).isDefinite()) {
+            definiteSteps++;
+        }
+        this.definiteStepCount = definiteSteps;
+    }
+
+    /**
+     * Compiles the given JsonPath expression, if it is within the subset of JsonPath that can be evaluated in a single pass
+     *
+     * @param expression the JsonPath expression
+     * @return the compiled expression, or <code>null</code> if the expression cannot be evaluated in a single pass
+     */
+    public static StreamingJsonPath compile(final String expression) {
+        if (expression == null) {
+            return null;
+        }
+
+        String path = expression.trim();
+        if (path.isEmpty() || path.charAt(0) == '@') {
+            return null;
+        }
+        if (path.charAt(0) != '$') {
+            path = "$." + path;
+        }
+
+        final List<Step> steps = new ArrayList<>();
+        int index = 1;
+        while (index < path.length()) {
+            final char c = path.charAt(index);
+            if (c == '.') {
+                index++;
+                if (index >= path.length() || path.charAt(index) == '.') {
+                    // trailing period or deep scan
+                    return null;
+                }
+
+                if (path.charAt(index) == '*') {
+                    steps.add(new WildcardStep());
+                    index++;
+                    continue;
+                }
+
+                final int end = nextSegment(path, index);
+                final String name = path.substring(index, end);
+                if (!isSimplePropertyName(name)) {
+                    return null;
+                }
+                steps.add(new PropertyStep(name));
+                index = end;
+            } else if (c == '[') {
+                final int close = findBracketClose(path, index);
+                if (close < 0) {
+                    return null;
+                }
+
+                final Step step = parseBracket(path.substring(index + 1, close).trim());
+                if (step == null) {
+                    return null;
+                }
+                steps.add(step);
+                index = close + 1;
+            } else {
+                return null;
+            }
+        }
+
+        boolean definite = true;
+        for (final Step step : steps) {
+            definite &= step.isDefinite();
+        }
+        return new StreamingJsonPath(expression, Collections.unmodifiableList(steps), definite);
+    }
+
+    private static int nextSegment(final String path, final int start) {
+        int end = start;
+        while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isSimplePropertyName(final String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            // parentheses indicate a function, such as length(), which is not supported
+            if (Character.isWhitespace(c) || c == '(' || c == ')' || c == '*' || c == '\'' || c == '"' || c == ']') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the index of the bracket that closes the bracket at the given index, ignoring any brackets within quotes
+     */
+    private static int findBracketClose(final String path, final int open) {
+        char quote = 0;
+        for (int i = open + 1; i < path.length(); i++) {
+            final char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Step parseBracket(final String content) {
+        if (content.equals("*")) {
+            return new WildcardStep();
+        }
+
+        if (content.startsWith("?(") && content.endsWith(")")) {
+            final Predicate predicate = Predicate.parse(content.substring(2, content.length() - 1).trim());
+            return predicate == null ? null : new FilterStep(predicate);
+        }
+
+        final String name = parseQuoted(content);
+        if (name != null) {
+            return new PropertyStep(name);
+        }
+
+        if (content.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < content.length(); i++) {
+            if (!Character.isDigit(content.charAt(i))) {
+                // negative indexes, slices and lists of indexes are not supported
+                return null;
+            }
+        }
+
+        try {
+            return new IndexStep(Integer.parseInt(content));
+        } catch (final NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the contents of the given single- or double-quoted string, or <code>null</code> if the value is not a single quoted string
+     */
+    private static String parseQuoted(final String value) {
+        if (value.length() < 2) {
+            return null;
+        }
+
+        final char quote = value.charAt(0);
+        if ((quote != '\'' && quote != '"') || value.charAt(value.length() - 1) != quote) {
+            return null;
+        }
+
+        final String contents = value.substring(1, value.length() - 1);
+        if (contents.indexOf(quote) >= 0 || contents.indexOf('\\') >= 0) {
+            // lists of properties and escaped characters are not supported
+            return null;
+        }
+        return contents;
+    }
+
+    /**
+     * @return the expression that this path was compiled from
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return <code>true</code> if this path selects at most one value, <code>false</code> if it may select any number of values
+     */
+    public boolean isDefinite() {
+        return definiteStepCount == steps.size();
+    }
+
+    /**
+     * @return a path that selects each of the elements of the array that is selected by this path
+     */
+    public StreamingJsonPath elements() {
+        final List<Step> elementSteps = new ArrayList<>(steps);
+        elementSteps.add(new ArrayElementsStep());
+        return new StreamingJsonPath(path, Collections.unmodifiableList(elementSteps), definiteExpression);
+    }
+
+    /**
+     * Evaluates all of the given paths against the JSON in the given stream, in a single pass. The handler is notified of
+     * each value that is selected by a path, in the order in which the values appear in the document.
+     *
+     * @param in the JSON content
+     * @param paths the paths to evaluate
+     * @param handler the handler to notify of each selected value
+     * @return the result of the evaluation, which indicates which paths were found in the document and whether the result of each is conclusive
+     * @throws JsonParseException if the content is not valid JSON
+     * @throws IOException if unable to read from the stream, or if thrown by the handler
+     */
+    public static Result evaluate(final InputStream in, final List<StreamingJsonPath> paths, final MatchHandler handler) throws IOException {
+        final Evaluation evaluation = new Evaluation(paths, handler);
+
+        try (final JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() == null) {
+                throw new JsonParseException("Content does not contain a JSON value", parser.getCurrentLocation());
+            }
+
+            final List<Cursor> cursors = new ArrayList<>(paths.size());
+            for (int i = 0; i < paths.size(); i++) {
+                cursors.add(new Cursor(i, 0, false));
+            }
+            evaluation.walk(parser, cursors);
+        }
+
+        return new Result(evaluation);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * Notified of each value that a path selects
+     */
+    public interface MatchHandler {
+        /**
+         * @param pathIndex the index of the path that selected the value
+         * @param value the selected value, as a Map, List, String, Number, Boolean or <code>null</code>
+         * @throws IOException if unable to handle the value
+         */
+        void onMatch(int pathIndex, Object value) throws IOException;
+    }
+
+    /**
+     * Indicates, for each path that was evaluated, whether the path was found in the document. A definite path is found if it
+     * selected a value. An indefinite path, such as <code>$.a.b[*].c</code>, is found even if it selected no values, unless one
+     * of its leading array indexes was out of bounds, in which case JsonPath also considers it not found.
+     * <p>
+     * JsonPath treats a step that does not fit the value that it is applied to, such as a property of an array or a wildcard
+     * over a string, inconsistently, depending upon where in the path the step occurs. When that happens the result of the path
+     * is not conclusive, and the caller is expected to evaluate the path against the fully parsed document instead.
+     * </p>
+     */
+    public static class Result {
+        private final boolean[] found;
+        private final boolean[] array;
+        private final boolean[] conclusive;
+
+        private Result(final Evaluation evaluation) {
+            final int pathCount = evaluation.paths.size();
+            this.found = new boolean[pathCount];
+            this.array = evaluation.array;
+            this.conclusive = new boolean[pathCount];
+
+            for (int i = 0; i < pathCount; i++) {
+                conclusive[i] = !evaluation.inconclusive[i];
+                found[i] = !evaluation.notFound[i] && (evaluation.matched[i] || !evaluation.paths.get(i).definiteExpression);
+            }
+        }
+
+        public boolean isFound(final int pathIndex) {
+            return found[pathIndex];
+        }
+
+        /**
+         * @param pathIndex the index of the path
+         * @return <code>true</code> if the result of the path matches that of evaluating it against the fully parsed document
+         */
+        public boolean isConclusive(final int pathIndex) {
+            return conclusive[pathIndex];
+        }
+
+        /**
+         * @param pathIndex the index of a path that was created by {@link StreamingJsonPath#elements()}
+         * @return <code>true</code> if the value whose elements the path selects was a JSON Array
+         */
+        public boolean isArray(final int pathIndex) {
+            return array[pathIndex];
+        }
+    }
+
+    private static class Cursor {
+        private final int pathIndex;
+        private final int stepIndex;
+
+        // whether the value must first pass the filter at stepIndex
+        private final boolean pendingFilter;
+
+        private Cursor(final int pathIndex, final int stepIndex, final boolean pendingFilter) {
+            this.pathIndex = pathIndex;
+            this.stepIndex = stepIndex;
+            this.pendingFilter = pendingFilter;
+        }
+    }
+
+    private static class Evaluation {
+        private final List<StreamingJsonPath> paths;
+        private final MatchHandler handler;
+        private final boolean[] matched;
+        private final boolean[] notFound;
+        private final boolean[] inconclusive;
+        private final boolean[] array;
+
+        private Evaluation(final List<StreamingJsonPath> paths, final MatchHandler handler) {
+            this.paths = paths;
+            this.handler = handler;
+            this.matched = new boolean[paths.size()];
+            this.notFound = new boolean[paths.size()];
+            this.inconclusive = new boolean[paths.size()];
+            this.array = new boolean[paths.size()];
+        }
+
+        /**
+         * Evaluates the given cursors against the value at the parser's current token, leaving the parser positioned on the last token of the value
+         */
+        private void walk(final JsonParser parser, final List<Cursor> cursors) throws IOException {
+            final JsonToken token = parser.getCurrentToken();
+
+            // If any path selects this value, or must apply a filter to it, the value is materialized and the remainder
+            // of every path is evaluated against it in memory.
+            for (final Cursor cursor : cursors) {
+                final List<Step> steps = paths.get(cursor.pathIndex).steps;
+                if (cursor.pendingFilter || cursor.stepIndex == steps.size()
+                    || (token == JsonToken.START_OBJECT && steps.get(cursor.stepIndex) instanceof FilterStep)) {
+
+                    final Object value = objectMapper.readValue(parser, Object.class);
+                    for (final Cursor toEvaluate : cursors) {
+                        evaluate(value, toEvaluate.pathIndex, toEvaluate.stepIndex, toEvaluate.pendingFilter);
+                    }
+                    return;
+                }
+            }
+
+            final boolean isObject = token == JsonToken.START_OBJECT;
+            final boolean isArray = token == JsonToken.START_ARRAY;
+            final List<Cursor> applicable = new ArrayList<>(cursors.size());
+            for (final Cursor cursor : cursors) {
+                if (applies(cursor.pathIndex, cursor.stepIndex, isObject, isArray)) {
+                    applicable.add(cursor);
+                }
+            }
+
+            // whether each of the applicable cursors selected any child of this value
+            final boolean[] selected = new boolean[applicable.size()];
+
+            if (isObject) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String fieldName = parser.getCurrentName();
+                    parser.nextToken();
+
+                    final List<Cursor> childCursors = new ArrayList<>(applicable.size());
+                    for (int i = 0; i < applicable.size(); i++) {
+                        final Cursor cursor = applicable.get(i);
+                        if (paths.get(cursor.pathIndex).steps.get(cursor.stepIndex).selectsField(fieldName)) {
+                            childCursors.add(new Cursor(cursor.pathIndex, cursor.stepIndex + 1, false));
+                            selected[i] = true;
+                        }
+                    }
+
+                    walkChild(parser, childCursors);
+                }
+            } else if (isArray) {
+                int index = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    final List<Cursor> childCursors = new ArrayList<>(applicable.size());
+                    for (int i = 0; i < applicable.size(); i++) {
+                        final Cursor cursor = applicable.get(i);
+                        final Step step = paths.get(cursor.pathIndex).steps.get(cursor.stepIndex);
+                        if (step instanceof FilterStep) {
+                            childCursors.add(new Cursor(cursor.pathIndex, cursor.stepIndex, true));
+                        } else if (step.selectsIndex(index)) {
+                            childCursors.add(new Cursor(cursor.pathIndex, cursor.stepIndex + 1, false));
+                            selected[i] = true;
+                        }
+                    }
+
+                    walkChild(parser, childCursors);
+                    index++;
+                }
+            }
+
+            for (int i = 0; i < applicable.size(); i++) {
+                if (!selected[i]) {
+                    onMissing(applicable.get(i).pathIndex, applicable.get(i).stepIndex);
+                }
+            }
+        }
+
+        private void walkChild(final JsonParser parser, final List<Cursor> childCursors) throws IOException {
+            if (childCursors.isEmpty()) {
+                parser.skipChildren();
+            } else {
+                walk(parser, childCursors);
+            }
+        }
+
+        private void evaluate(final Object value, final int pathIndex, final int stepIndex, final boolean pendingFilter) throws IOException {
+            final List<Step> steps = paths.get(pathIndex).steps;
+
+            int index = stepIndex;
+            if (pendingFilter) {
+                if (!((FilterStep) steps.get(index)).predicate.test(value)) {
+                    return;
+                }
+                index++;
+            }
+
+            if (index == steps.size()) {
+                matched[pathIndex] = true;
+                handler.onMatch(pathIndex, value);
+                return;
+            }
+
+            if (!applies(pathIndex, index, value instanceof Map, value instanceof List)) {
+                return;
+            }
+
+            final Step step = steps.get(index);
+            boolean selected = false;
+            if (value instanceof Map) {
+                if (step instanceof FilterStep) {
+                    // as with JsonPath, a filter that is applied to an object rather than an array is applied to the object itself
+                    if (((FilterStep) step).predicate.test(value)) {
+                        evaluate(value, pathIndex, index + 1, false);
+                    }
+                    return;
+                }
+
+                for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    if (step.selectsField(String.valueOf(entry.getKey()))) {
+                        evaluate(entry.getValue(), pathIndex, index + 1, false);
+                        selected = true;
+                    }
+                }
+            } else {
+                final List<?> elements = (List<?>) value;
+                for (int i = 0; i < elements.size(); i++) {
+                    if (step instanceof FilterStep) {
+                        evaluate(elements.get(i), pathIndex, index, true);
+                    } else if (step.selectsIndex(i)) {
+                        evaluate(elements.get(i), pathIndex, index + 1, false);
+                        selected = true;
+                    }
+                }
+            }
+
+            if (!selected && !(step instanceof FilterStep)) {
+                onMissing(pathIndex, index);
+            }
+        }
+
+        /**
+         * Determines whether the given step of the given path can be applied to an object, an array or, if neither, a scalar value.
+         * If the step does not fit the value, the result of the path is recorded as inconclusive.
+         *
+         * @return <code>true</code> if the step should be applied to the children of the value
+         */
+        private boolean applies(final int pathIndex, final int stepIndex, final boolean isObject, final boolean isArray) {
+            final Step step = paths.get(pathIndex).steps.get(stepIndex);
+            if (step instanceof ArrayElementsStep) {
+                // the value whose elements are selected was found; if it is not an array, that is reported to the caller rather than treated as inconclusive
+                matched[pathIndex] = true;
+                array[pathIndex] |= isArray;
+                return isArray;
+            }
+
+            final boolean applies;
+            if (step instanceof PropertyStep) {
+                applies = isObject;
+            } else if (step instanceof IndexStep) {
+                applies = isArray;
+            } else {
+                applies = isObject || isArray;
+            }
+
+            if (!applies) {
+                inconclusive[pathIndex] = true;
+            }
+            return applies;
+        }
+
+        /**
+         * Records that the given step of the given path, which was applied to a value of the appropriate type, selected nothing
+         */
+        private void onMissing(final int pathIndex, final int stepIndex) {
+            final StreamingJsonPath path = paths.get(pathIndex);
+            final Step step = path.steps.get(stepIndex);
+            if (step instanceof PropertyStep) {
+                // a missing property means that a definite path is not found, but simply contributes no values to an indefinite path
+                if (path.definiteExpression) {
+                    notFound[pathIndex] = true;
+                }
+            } else if (step instanceof IndexStep) {
+                if (stepIndex < path.definiteStepCount) {
+                    notFound[pathIndex] = true;
+                } else {
+                    inconclusive[pathIndex] = true;
+                }
+            }
+        }
+    }
+
+    private abstract static class Step {
+        abstract boolean isDefinite();
+
+        boolean selectsField(final String fieldName) {
+            return false;
+        }
+
+        boolean selectsIndex(final int index) {
+            return false;
+        }
+    }
+
+    private static class PropertyStep extends Step {
+        private final String name;
+
+        private PropertyStep(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        boolean isDefinite() {
+            return true;
+        }
+
+        @Override
+        boolean selectsField(final String fieldName) {
+            return name.equals(fieldName);
+        }
+    }
+
+    private static class IndexStep extends Step {
+        private final int index;
+
+        private IndexStep(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        boolean isDefinite() {
+            return true;
+        }
+
+        @Override
+        boolean selectsIndex(final int index) {
+            return this.index == index;
+        }
+    }
+
+    private static class WildcardStep extends Step {
+        @Override
+        boolean isDefinite() {
+            return false;
+        }
+
+        @Override
+        boolean selectsField(final String fieldName) {
+            return true;
+        }
+
+        @Override
+        boolean selectsIndex(final int index) {
+            return true;
+        }
+    }
+
+    /**
+     * Selects the elements of an array but, unlike a wildcard, not the values of an object
+     */
+    private static class ArrayElementsStep extends Step {
+        @Override
+        boolean isDefinite() {
+            return false;
+        }
+
+        @Override
+        boolean selectsIndex(final int index) {
+            return true;
+        }
+    }
+
+    private static class FilterStep extends Step {
+        private final Predicate predicate;
+
+        private FilterStep(final Predicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        boolean isDefinite() {
+            return false;
+        }
+    }
+
+    /**
+     * A filter of the form <code>@.a.b</code>, which tests for the existence of a property, or <code>@.a.b &lt;operator&gt; &lt;literal&gt;</code>
+     */
+    private static class Predicate {
+        private static final String[] OPERATORS = {"==", "!=", "<=", ">=", "<", ">"};
+
+        private final List<String> propertyNames;
+        private final String operator;
+        private final Object literal;
+
+        private Predicate(final List<String> propertyNames, final String operator, final Object literal) {
+            this.propertyNames = propertyNames;
+            this.operator = operator;
+            this.literal = literal;
+        }
+
+        private static Predicate parse(final String expression) {
+            if (!expression.startsWith("@")) {
+                return null;
+            }
+
+            // parse the operand, which is the current element or a child path of it
+            final List<String> propertyNames = new ArrayList<>();
+            int index = 1;
+            while (index < expression.length()) {
+                final char c = expression.charAt(index);
+                if (c == '.') {
+                    final int end = nextOperandSegment(expression, index + 1);
+                    final String name = expression.substring(index + 1, end);
+                    if (!isSimplePropertyName(name)) {
+                        return null;
+                    }
+                    propertyNames.add(name);
+                    index = end;
+                } else if (c == '[') {
+                    final int close = findBracketClose(expression, index);
+                    final String name = close < 0 ? null : parseQuoted(expression.substring(index + 1, close).trim());
+                    if (name == null) {
+                        return null;
+                    }
+                    propertyNames.add(name);
+                    index = close + 1;
+                } else {
+                    break;
+                }
+            }
+
+            final String remainder = expression.substring(index).trim();
+            if (remainder.isEmpty()) {
+                // an existence check requires a property
+                return propertyNames.isEmpty() ? null : new Predicate(propertyNames, null, null);
+            }
+
+            for (final String operator : OPERATORS) {
+                if (remainder.startsWith(operator)) {
+                    final String literalText = remainder.substring(operator.length()).trim();
+                    final Object literal = parseLiteral(literalText);
+                    if (literal == null) {
+                        return null;
+                    }
+                    return new Predicate(propertyNames, operator, literal);
+                }
+            }
+
+            return null;
+        }
+
+        private static int nextOperandSegment(final String expression, final int start) {
+            int end = start;
+            while (end < expression.length()) {
+                final char c = expression.charAt(end);
+                if (c == '.' || c == '[' || Character.isWhitespace(c) || c == '=' || c == '!' || c == '<' || c == '>') {
+                    break;
+                }
+                end++;
+            }
+            return end;
+        }
+
+        /**
+         * @return the literal value, {@link NullLiteral#INSTANCE} for a literal of <code>null</code>, or <code>null</code> if the literal is not supported
+         */
+        private static Object parseLiteral(final String text) {
+            if (text.isEmpty()) {
+                return null;
+            }
+
+            final String quoted = parseQuoted(text);
+            if (quoted != null) {
+                return quoted;
+            }
+
+            switch (text) {
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                case "null":
+                    return NullLiteral.INSTANCE;
+                default:
+                    break;
+            }
+
+            try {
+                return new BigDecimal(text);
+            } catch (final NumberFormatException nfe) {
+                return null;
+            }
+        }
+
+        private boolean test(final Object element) {
+            Object value = element;
+            for (final String propertyName : propertyNames) {
+                if (!(value instanceof Map) || !((Map<?, ?>) value).containsKey(propertyName)) {
+                    return false;
+                }
+                value = ((Map<?, ?>) value).get(propertyName);
+            }
+
+            if (operator == null) {
+                return true;
+            }
+
+            final Integer comparison;
+            if (value instanceof Number && literal instanceof BigDecimal) {
+                comparison = new BigDecimal(value.toString()).compareTo((BigDecimal) literal);
+            } else if (value instanceof String && literal instanceof String) {
+                comparison = ((String) value).compareTo((String) literal);
+            } else {
+                comparison = null;
+            }
+
+            switch (operator) {
+                case "==":
+                    return comparison == null ? isEqual(value) : comparison == 0;
+                case "!=":
+                    return comparison == null ? !isEqual(value) : comparison != 0;
+                case "<":
+                    return comparison != null && comparison < 0;
+                case "<=":
+                    return comparison != null && comparison <= 0;
+                case ">":
+                    return comparison != null && comparison > 0;
+                case ">=":
+                    return comparison != null && comparison >= 0;
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Determines whether a value that is neither a number nor a string is equal to the literal
+         */
+        private boolean isEqual(final Object value) {
+            if (value == null) {
+                return literal == NullLiteral.INSTANCE;
+            }
+            return value instanceof Boolean && value.equals(literal);
+        }
+    }
+
+    private enum NullLiteral {
+        INSTANCE
+    }
+}
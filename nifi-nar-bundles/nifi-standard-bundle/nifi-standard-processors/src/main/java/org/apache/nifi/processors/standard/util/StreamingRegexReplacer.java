@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.standard.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.function.Function;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+
+/**
+ * <p>
+ * Replaces every match of a regular expression in a stream of text, as {@link Matcher#replaceAll(String)} does, while
+ * holding only a bounded window of the text in memory. The text is read into a window of a fixed number of characters,
+ * and matches are searched for within that window. Because a match could continue past the end of the window, the caller
+ * must declare the maximum number of characters that a single match may span; whenever a match that begins within that
+ * many characters of the end of the window could be altered by the text that follows, all of the text from that many
+ * characters before the end of the window is searched again once the window has been advanced. A match that begins
+ * further back is accepted as found.
+ * </p>
+ *
+ * <p>
+ * The window is advanced by writing out the characters that can no longer be part of a match and keeping the rest,
+ * together with the character that precedes them so that anchors and word boundaries at the start of the next window
+ * are evaluated as they would be against the whole text. Lookbehind constructs cannot see any further back than that.
+ * </p>
+ *
+ * <p>
+ * The window's buffer is reused for each stream that is processed, so instances of this class are not thread-safe.
+ * </p>
+ */
+public class StreamingRegexReplacer {
+
+    private final int windowSize;
+    private char[] buffer;
+    private CharBuffer view;
+
+    /**
+     * @param windowSize the number of characters to read into the window each time that it is advanced
+     */
+    public StreamingRegexReplacer(final int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Reads all of the text from the given reader, and writes it to the given writer with each match of the matcher's pattern
+     * replaced.
+     *
+     * @param matcher a matcher for the pattern to search for, which is reset against each window of text
+     * @param maxMatchLength the maximum number of characters that a match may span
+     * @param reader the text to search
+     * @param writer the writer to write the text to, after replacement
+     * @param replacementFunction provides the replacement string, in the syntax of {@link Matcher#appendReplacement(StringBuffer, String)},
+     *            when the first match is found. It is not called if there are no matches. The same replacement is used for all matches.
+     * @return <code>true</code> if any match was found, <code>false</code> otherwise
+     * @throws IOException if unable to read or write the text
+     */
+    public boolean replace(final Matcher matcher, final int maxMatchLength, final Reader reader, final Writer writer, final Function<MatchResult, String> replacementFunction)
+            throws IOException {
+        if (maxMatchLength < 0) {
+            throw new IllegalArgumentException("Maximum match length cannot be negative");
+        }
+
+        // the window always has room to read a full window size beyond what is kept from the previous window
+        final int capacity = windowSize + maxMatchLength + 1;
+        if (buffer == null || buffer.length < capacity) {
+            buffer = new char[capacity];
+            view = CharBuffer.wrap(buffer);
+        }
+
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+
+        String replacement = null;
+        int length = 0;
+        int contextLength = 0;
+        boolean endOfStream = false;
+        boolean skipEmptyMatchAtStart = false;
+
+        while (!endOfStream) {
+            while (length < buffer.length) {
+                final int read = reader.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    endOfStream = true;
+                    break;
+                }
+                length += read;
+            }
+
+            view.clear();
+            view.limit(length);
+            matcher.reset(view);
+            matcher.region(contextLength, length);
+
+            int written = contextLength;
+            int deferredFrom = -1;
+            int lastMatchEnd = -1;
+            boolean lastMatchEmpty = false;
+            while (matcher.find()) {
+                final int start = matcher.start();
+                final int end = matcher.end();
+                if (!endOfStream && matcher.hitEnd() && start >= length - maxMatchLength) {
+                    // more text could change this match, so search for it again in the next window. The end may have been
+                    // hit by an attempt that began before this match, such as a longer alternative that failed only for
+                    // lack of text, so the search is resumed from the earliest position at which a match could still be
+                    // altered rather than from the start of this match.
+                    deferredFrom = Math.min(start, length - maxMatchLength);
+                    break;
+                }
+
+                // an empty match at the end of the previous window has already been replaced
+                final boolean duplicate = skipEmptyMatchAtStart && start == contextLength && end == start;
+                skipEmptyMatchAtStart = false;
+                if (duplicate) {
+                    continue;
+                }
+
+                if (replacement == null) {
+                    replacement = replacementFunction.apply(matcher.toMatchResult());
+                }
+
+                writer.write(buffer, written, start - written);
+                appendReplacement(matcher, replacement, writer);
+                written = end;
+                lastMatchEnd = end;
+                lastMatchEmpty = end == start;
+            }
+            skipEmptyMatchAtStart = false;
+
+            final int keep;
+            if (endOfStream) {
+                keep = length;
+            } else if (deferredFrom >= 0) {
+                keep = Math.max(written, deferredFrom);
+            } else {
+                keep = Math.max(written, length - maxMatchLength);
+            }
+            writer.write(buffer, written, keep - written);
+
+            if (!endOfStream) {
+                contextLength = keep > 0 ? 1 : 0;
+                final int retainFrom = keep - contextLength;
+                System.arraycopy(buffer, retainFrom, buffer, 0, length - retainFrom);
+                length -= retainFrom;
+                skipEmptyMatchAtStart = lastMatchEmpty && lastMatchEnd == keep;
+            }
+        }
+
+        return replacement != null;
+    }
+
+    /**
+     * Writes the replacement for the current match of the given matcher, substituting references to capturing groups in the
+     * same manner as {@link Matcher#appendReplacement(StringBuffer, String)}
+     */
+    static void appendReplacement(final Matcher matcher, final String replacement, final Writer writer) throws IOException {
+        final int replacementLength = replacement.length();
+        int cursor = 0;
+        while (cursor < replacementLength) {
+            final char nextChar = replacement.charAt(cursor);
+            if (nextChar == '\\') {
+                cursor++;
+                if (cursor == replacementLength) {
+                    throw new IllegalArgumentException("character to be escaped is missing");
+                }
+                writer.write(replacement.charAt(cursor));
+                cursor++;
+            } else if (nextChar == '$') {
+                cursor++;
+                if (cursor == replacementLength) {
+                    throw new IllegalArgumentException("Illegal group reference: group index is missing");
+                }
+
+                final String group;
+                if (replacement.charAt(cursor) == '{') {
+                    final int nameEnd = replacement.indexOf('}', cursor);
+                    if (nameEnd < 0) {
+                        throw new IllegalArgumentException("named capturing group is missing trailing '}'");
+                    }
+                    final String groupName = replacement.substring(cursor + 1, nameEnd);
+                    if (groupName.isEmpty()) {
+                        throw new IllegalArgumentException("named capturing group has 0 length name");
+                    }
+                    group = matcher.group(groupName);
+                    cursor = nameEnd + 1;
+                } else {
+                    int groupNumber = replacement.charAt(cursor) - '0';
+                    if (groupNumber < 0 || groupNumber > 9) {
+                        throw new IllegalArgumentException("Illegal group reference");
+                    }
+                    cursor++;
+
+                    // take as many digits as still refer to an existing group
+                    while (cursor < replacementLength) {
+                        final int nextDigit = replacement.charAt(cursor) - '0';
+                        if (nextDigit < 0 || nextDigit > 9) {
+                            break;
+                        }
+                        final int newGroupNumber = groupNumber * 10 + nextDigit;
+                        if (matcher.groupCount() < newGroupNumber) {
+                            break;
+                        }
+                        groupNumber = newGroupNumber;
+                        cursor++;
+                    }
+                    group = matcher.group(groupNumber);
+                }
+
+                if (group != null) {
+                    writer.write(group);
+                }
+            } else {
+                writer.write(nextChar);
+                cursor++;
+            }
+        }
+    }
+}
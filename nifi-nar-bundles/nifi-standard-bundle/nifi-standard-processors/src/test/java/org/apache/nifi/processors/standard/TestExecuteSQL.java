@@ -225,6 +225,83 @@ public class TestExecuteSQL {
         runner.assertAllFlowFilesTransferred(ExecuteSQL.REL_FAILURE, 1);
     }
 
+    @Test
+    public void testWithMaxRowsPerFlowFile() throws SQLException {
+        // remove previous test database, if any
+        final File dbLocation = new File(DB_LOCATION);
+        dbLocation.delete();
+
+        // load test data to database
+        final Connection con = ((DBCPService) runner.getControllerService("dbcp")).getConnection();
+        Statement stmt = con.createStatement();
+
+        try {
+            stmt.execute("drop table TEST_MAX_ROWS");
+        } catch (final SQLException sqle) {
+        }
+
+        stmt.execute("create table TEST_MAX_ROWS (id integer not null, val1 integer, constraint max_rows_pk primary key (id))");
+        for (int i = 0; i < 5; i++) {
+            stmt.execute("insert into TEST_MAX_ROWS (id, val1) VALUES (" + i + ", " + i + ")");
+        }
+
+        runner.setIncomingConnection(false);
+        runner.setProperty(ExecuteSQL.SQL_SELECT_QUERY, "SELECT * FROM TEST_MAX_ROWS");
+        runner.setProperty(ExecuteSQL.FETCH_SIZE, "2");
+        runner.setProperty(ExecuteSQL.MAX_ROWS_PER_FLOW_FILE, "2");
+        runner.run();
+
+        runner.assertAllFlowFilesTransferred(ExecuteSQL.REL_SUCCESS, 3);
+        final List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(ExecuteSQL.REL_SUCCESS);
+        final String fragmentId = flowFiles.get(0).getAttribute(ExecuteSQL.FRAGMENT_ID);
+        for (int i = 0; i < 3; i++) {
+            final MockFlowFile flowFile = flowFiles.get(i);
+            flowFile.assertAttributeEquals(ExecuteSQL.RESULT_ROW_COUNT, i < 2 ? "2" : "1");
+            flowFile.assertAttributeEquals(ExecuteSQL.FRAGMENT_ID, fragmentId);
+            flowFile.assertAttributeEquals(ExecuteSQL.FRAGMENT_INDEX, String.valueOf(i));
+            flowFile.assertAttributeEquals(ExecuteSQL.FRAGMENT_COUNT, "3");
+        }
+    }
+
+    @Test
+    public void testWithOutputBatchSize() throws SQLException {
+        // remove previous test database, if any
+        final File dbLocation = new File(DB_LOCATION);
+        dbLocation.delete();
+
+        // load test data to database
+        final Connection con = ((DBCPService) runner.getControllerService("dbcp")).getConnection();
+        Statement stmt = con.createStatement();
+
+        try {
+            stmt.execute("drop table TEST_OUTPUT_BATCH");
+        } catch (final SQLException sqle) {
+        }
+
+        stmt.execute("create table TEST_OUTPUT_BATCH (id integer not null, val1 integer, constraint output_batch_pk primary key (id))");
+        for (int i = 0; i < 4; i++) {
+            stmt.execute("insert into TEST_OUTPUT_BATCH (id, val1) VALUES (" + i + ", " + i + ")");
+        }
+
+        runner.setIncomingConnection(true);
+        runner.setProperty(ExecuteSQL.SQL_SELECT_QUERY, "SELECT * FROM TEST_OUTPUT_BATCH");
+        runner.setProperty(ExecuteSQL.MAX_ROWS_PER_FLOW_FILE, "1");
+        runner.setProperty(ExecuteSQL.OUTPUT_BATCH_SIZE, "2");
+        runner.enqueue("trigger".getBytes());
+        runner.run();
+
+        // The incoming FlowFile is removed with the first batch, and the fragment count is not known as the batches are committed
+        runner.assertAllFlowFilesTransferred(ExecuteSQL.REL_SUCCESS, 4);
+        runner.assertQueueEmpty();
+        final List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(ExecuteSQL.REL_SUCCESS);
+        for (int i = 0; i < 4; i++) {
+            final MockFlowFile flowFile = flowFiles.get(i);
+            flowFile.assertAttributeEquals(ExecuteSQL.RESULT_ROW_COUNT, "1");
+            flowFile.assertAttributeEquals(ExecuteSQL.FRAGMENT_INDEX, String.valueOf(i));
+            flowFile.assertAttributeNotExists(ExecuteSQL.FRAGMENT_COUNT);
+        }
+    }
+
     public void invokeOnTrigger(final Integer queryTimeout, final String query, final boolean incomingFlowFile, final boolean setQueryProperty)
         throws InitializationException, ClassNotFoundException, SQLException, IOException {
 
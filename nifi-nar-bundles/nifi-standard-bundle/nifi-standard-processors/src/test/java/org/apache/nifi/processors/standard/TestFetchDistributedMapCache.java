@@ -27,9 +27,12 @@ import org.apache.nifi.util.TestRunners;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -147,9 +150,53 @@ public class TestFetchDistributedMapCache {
         runner.clearTransferState();
     }
 
+    @Test
+    public void testBatchIsFetchedInSingleRequest() throws InitializationException, IOException {
+        service.put("key1", "value1", new FetchDistributedMapCache.StringSerializer(), new FetchDistributedMapCache.StringSerializer());
+        service.put("key2", "value2", new FetchDistributedMapCache.StringSerializer(), new FetchDistributedMapCache.StringSerializer());
+        runner.setProperty(FetchDistributedMapCache.PROP_CACHE_ENTRY_IDENTIFIER, "${cacheKeyAttribute}");
+        runner.setProperty(FetchDistributedMapCache.PROP_BATCH_SIZE, "10");
+
+        for (final String key : new String[] {"key1", "key2", "key1", "missing", ""}) {
+            final Map<String, String> props = new HashMap<>();
+            props.put("cacheKeyAttribute", key);
+            runner.enqueue(new byte[] {}, props);
+        }
+
+        runner.run();
+
+        assertEquals(1, service.getAllCalls);
+        runner.assertTransferCount(FetchDistributedMapCache.REL_SUCCESS, 3);
+        runner.assertTransferCount(FetchDistributedMapCache.REL_NOT_FOUND, 1);
+        runner.assertTransferCount(FetchDistributedMapCache.REL_FAILURE, 1);
+
+        runner.getFlowFilesForRelationship(FetchDistributedMapCache.REL_SUCCESS).get(0).assertContentEquals("value1");
+        runner.getFlowFilesForRelationship(FetchDistributedMapCache.REL_SUCCESS).get(1).assertContentEquals("value2");
+        runner.getFlowFilesForRelationship(FetchDistributedMapCache.REL_SUCCESS).get(2).assertContentEquals("value1");
+    }
+
+    @Test
+    public void testBatchCommunicationFailure() throws InitializationException, IOException {
+        service.setFailOnCalls(true);
+        runner.setProperty(FetchDistributedMapCache.PROP_CACHE_ENTRY_IDENTIFIER, "${cacheKeyAttribute}");
+        runner.setProperty(FetchDistributedMapCache.PROP_BATCH_SIZE, "10");
+
+        for (int i = 0; i < 3; i++) {
+            final Map<String, String> props = new HashMap<>();
+            props.put("cacheKeyAttribute", "key" + i);
+            runner.enqueue(new byte[] {}, props);
+        }
+
+        runner.run();
+
+        runner.assertAllFlowFilesTransferred(FetchDistributedMapCache.REL_FAILURE, 3);
+        runner.assertPenalizeCount(3);
+    }
+
     private class MockCacheClient extends AbstractControllerService implements DistributedMapCacheClient {
         private final ConcurrentMap<Object, Object> values = new ConcurrentHashMap<>();
         private boolean failOnCalls = false;
+        private int getAllCalls = 0;
 
         public void setFailOnCalls(boolean failOnCalls){
             this.failOnCalls = failOnCalls;
@@ -200,6 +247,17 @@ public class TestFetchDistributedMapCache {
             }
         }
 
+        @Override
+        public <K, V> Map<K, V> getAll(final Set<K> keys, final Serializer<K> keySerializer, final Deserializer<V> valueDeserializer) throws IOException {
+            verifyNotFail();
+            getAllCalls++;
+            final Map<K, V> result = new HashMap<>();
+            for (final K key : keys) {
+                result.put(key, get(key, keySerializer, valueDeserializer));
+            }
+            return result;
+        }
+
         @Override
         public void close() throws IOException {
         }
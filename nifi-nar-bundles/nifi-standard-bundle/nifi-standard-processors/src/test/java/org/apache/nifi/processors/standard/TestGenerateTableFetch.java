@@ -41,6 +41,7 @@ import java.sql.SQLException;
 import java.sql.SQLNonTransientConnectionException;
 import java.sql.Statement;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.nifi.processors.standard.AbstractDatabaseFetchProcessor.DB_TYPE;
@@ -251,6 +252,48 @@ public class TestGenerateTableFetch {
         runner.clearTransferState();
     }
 
+    @Test
+    public void testValuePartitioning() throws ClassNotFoundException, SQLException, InitializationException, IOException {
+
+        // load test data to database
+        final Connection con = ((DBCPService) runner.getControllerService("dbcp")).getConnection();
+        Statement stmt = con.createStatement();
+
+        try {
+            stmt.execute("drop table TEST_QUERY_DB_TABLE");
+        } catch (final SQLException sqle) {
+            // Ignore this error, probably a "table does not exist" since Derby doesn't yet support DROP IF EXISTS [DERBY-4842]
+        }
+
+        stmt.execute("create table TEST_QUERY_DB_TABLE (id integer not null, bucket integer not null)");
+        for (int i = 0; i < 5; i++) {
+            stmt.execute("insert into TEST_QUERY_DB_TABLE (id, bucket) VALUES (" + i + ", 0)");
+        }
+
+        runner.setProperty(GenerateTableFetch.TABLE_NAME, "TEST_QUERY_DB_TABLE");
+        runner.setIncomingConnection(false);
+        runner.setProperty(GenerateTableFetch.MAX_VALUE_COLUMN_NAMES, "BUCKET");
+        runner.setProperty(GenerateTableFetch.COLUMN_FOR_VALUE_PARTITIONING, "ID");
+        runner.setProperty(GenerateTableFetch.PARTITION_SIZE, "2");
+
+        runner.run();
+        runner.assertAllFlowFilesTransferred(GenerateTableFetch.REL_SUCCESS, 3);
+        final List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(GenerateTableFetch.REL_SUCCESS);
+        assertEquals("SELECT * FROM TEST_QUERY_DB_TABLE WHERE ID >= 0 AND ID < 2", new String(flowFiles.get(0).toByteArray()));
+        assertEquals("SELECT * FROM TEST_QUERY_DB_TABLE WHERE ID >= 2 AND ID < 4", new String(flowFiles.get(1).toByteArray()));
+        assertEquals("SELECT * FROM TEST_QUERY_DB_TABLE WHERE ID >= 4 AND ID <= 4", new String(flowFiles.get(2).toByteArray()));
+        runner.clearTransferState();
+
+        // Add rows in a new bucket, only the range covering them should be fetched
+        stmt.execute("insert into TEST_QUERY_DB_TABLE (id, bucket) VALUES (10, 1)");
+        stmt.execute("insert into TEST_QUERY_DB_TABLE (id, bucket) VALUES (11, 1)");
+        runner.run();
+        runner.assertAllFlowFilesTransferred(GenerateTableFetch.REL_SUCCESS, 1);
+        runner.getFlowFilesForRelationship(GenerateTableFetch.REL_SUCCESS).get(0)
+                .assertContentEquals("SELECT * FROM TEST_QUERY_DB_TABLE WHERE BUCKET > 0 AND ID >= 10 AND ID <= 11");
+        runner.clearTransferState();
+    }
+
 
     /**
      * Simple implementation only for ListDatabaseTables processor testing.
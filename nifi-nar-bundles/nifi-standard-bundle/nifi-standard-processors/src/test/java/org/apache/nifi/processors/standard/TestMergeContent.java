@@ -29,6 +29,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.zip.ZipInputStream;
 
@@ -326,6 +327,49 @@ public class TestMergeContent {
         bundle.assertAttributeEquals(CoreAttributes.MIME_TYPE.key(), "application/plain-text");
     }
 
+    @Test
+    public void testBinaryConcatWithDelimitersPreservesExactBytes() throws IOException, InterruptedException {
+        final TestRunner runner = TestRunners.newTestRunner(new MergeContent());
+        runner.setProperty(MergeContent.MAX_BIN_AGE, "1 sec");
+        runner.setProperty(MergeContent.MERGE_FORMAT, MergeContent.MERGE_FORMAT_CONCAT);
+        runner.setProperty(MergeContent.DELIMITER_STRATEGY, MergeContent.DELIMITER_STRATEGY_TEXT);
+        runner.setProperty(MergeContent.HEADER, "<header>");
+        runner.setProperty(MergeContent.DEMARCATOR, "--");
+        runner.setProperty(MergeContent.FOOTER, "</footer>");
+
+        // binary content larger than any stream buffer, including an empty FlowFile, so that the
+        // delimiters must be interleaved with the content in the right place
+        final Random random = new Random(17L);
+        final byte[] first = new byte[20000];
+        random.nextBytes(first);
+        final byte[] second = new byte[0];
+        final byte[] third = new byte[70000];
+        random.nextBytes(third);
+
+        runner.enqueue(first);
+        runner.enqueue(second);
+        runner.enqueue(third);
+        runner.run();
+
+        runner.assertQueueEmpty();
+        runner.assertTransferCount(MergeContent.REL_MERGED, 1);
+        runner.assertTransferCount(MergeContent.REL_FAILURE, 0);
+        runner.assertTransferCount(MergeContent.REL_ORIGINAL, 3);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write("<header>".getBytes("UTF-8"));
+        expected.write(first);
+        expected.write("--".getBytes("UTF-8"));
+        expected.write(second);
+        expected.write("--".getBytes("UTF-8"));
+        expected.write(third);
+        expected.write("</footer>".getBytes("UTF-8"));
+
+        final MockFlowFile bundle = runner.getFlowFilesForRelationship(MergeContent.REL_MERGED).get(0);
+        bundle.assertContentEquals(expected.toByteArray());
+        bundle.assertAttributeEquals(MergeContent.MERGE_COUNT_ATTRIBUTE, "3");
+    }
+
     @Test
     public void testTextDelimitersValidation() throws IOException, InterruptedException {
         final TestRunner runner = TestRunners.newTestRunner(new MergeContent());
@@ -217,9 +217,61 @@ public class TestPutDistributedMapCache {
         assertEquals(original, new String(value, "UTF-8"));
     }
 
+    @Test
+    public void testBatchIsPutInSingleRequest() throws InitializationException, IOException {
+        runner.setProperty(PutDistributedMapCache.CACHE_ENTRY_IDENTIFIER, "${cacheKeyAttribute}");
+        runner.setProperty(PutDistributedMapCache.BATCH_SIZE, "10");
+
+        final String[][] entries = {{"key1", "first"}, {"key2", "second"}, {"key1", "third"}, {"", "no key"}, {"key3", ""}};
+        for (final String[] entry : entries) {
+            final Map<String, String> props = new HashMap<>();
+            props.put("cacheKeyAttribute", entry[0]);
+            runner.enqueue(entry[1].getBytes("UTF-8"), props);
+        }
+
+        runner.run();
+
+        assertEquals(1, service.putAllCalls);
+        runner.assertTransferCount(PutDistributedMapCache.REL_SUCCESS, 3);
+        runner.assertTransferCount(PutDistributedMapCache.REL_FAILURE, 2);
+        for (final MockFlowFile flowFile : runner.getFlowFilesForRelationship(PutDistributedMapCache.REL_SUCCESS)) {
+            flowFile.assertAttributeEquals("cached", "true");
+        }
+
+        // as with individual puts, the last FlowFile with a given key determines the cached value
+        final byte[] value = service.get("key1", new PutDistributedMapCache.StringSerializer(), new PutDistributedMapCache.CacheValueDeserializer());
+        assertEquals("third", new String(value, "UTF-8"));
+    }
+
+    @Test
+    public void testBatchKeepOriginal() throws InitializationException, IOException {
+        runner.setProperty(PutDistributedMapCache.CACHE_ENTRY_IDENTIFIER, "${cacheKeyAttribute}");
+        runner.setProperty(PutDistributedMapCache.CACHE_UPDATE_STRATEGY, PutDistributedMapCache.CACHE_UPDATE_KEEP_ORIGINAL.getValue());
+        runner.setProperty(PutDistributedMapCache.BATCH_SIZE, "10");
+
+        final String[][] entries = {{"key1", "first"}, {"key2", "second"}, {"key1", "third"}};
+        for (final String[] entry : entries) {
+            final Map<String, String> props = new HashMap<>();
+            props.put("cacheKeyAttribute", entry[0]);
+            runner.enqueue(entry[1].getBytes("UTF-8"), props);
+        }
+
+        runner.run();
+
+        runner.assertTransferCount(PutDistributedMapCache.REL_SUCCESS, 2);
+        runner.assertTransferCount(PutDistributedMapCache.REL_FAILURE, 1);
+        final MockFlowFile notCached = runner.getFlowFilesForRelationship(PutDistributedMapCache.REL_FAILURE).get(0);
+        notCached.assertAttributeEquals("cached", "false");
+        notCached.assertContentEquals("third");
+
+        final byte[] value = service.get("key1", new PutDistributedMapCache.StringSerializer(), new PutDistributedMapCache.CacheValueDeserializer());
+        assertEquals("first", new String(value, "UTF-8"));
+    }
+
     private class MockCacheClient extends AbstractControllerService implements DistributedMapCacheClient {
         private final ConcurrentMap<Object, Object> values = new ConcurrentHashMap<>();
         private boolean failOnCalls = false;
+        private int putAllCalls = 0;
 
         private void verifyNotFail() throws IOException {
             if (failOnCalls) {
@@ -261,6 +313,13 @@ public class TestPutDistributedMapCache {
             return (V) values.get(key);
         }
 
+        @Override
+        public <K, V> void putAll(final Map<K, V> keysAndValues, final Serializer<K> keySerializer, final Serializer<V> valueSerializer) throws IOException {
+            verifyNotFail();
+            putAllCalls++;
+            values.putAll(keysAndValues);
+        }
+
         @Override
         public void close() throws IOException {
         }
@@ -525,6 +525,48 @@ public class TestReplaceText {
         out.assertContentEquals("Good");
     }
 
+    @Test
+    public void testRoutesToSuccessIfTooLargeButMaxMatchLengthIsSet() throws IOException {
+        final TestRunner runner = TestRunners.newTestRunner(new ReplaceText());
+        runner.setValidateExpressionUsage(false);
+        runner.setProperty(ReplaceText.SEARCH_VALUE, "(W)orld");
+        runner.setProperty(ReplaceText.MAX_BUFFER_SIZE, "4 b");
+        runner.setProperty(ReplaceText.MAX_MATCH_LENGTH, "5");
+        runner.setProperty(ReplaceText.REPLACEMENT_VALUE, "$1ide ${abc}");
+
+        final Map<String, String> attributes = new HashMap<>();
+        attributes.put("abc", "Web");
+        runner.enqueue("Hello, World! Hello, World!".getBytes(), attributes);
+
+        runner.run();
+
+        runner.assertAllFlowFilesTransferred(ReplaceText.REL_SUCCESS, 1);
+        final MockFlowFile out = runner.getFlowFilesForRelationship(ReplaceText.REL_SUCCESS).get(0);
+        out.assertContentEquals("Hello, Wide Web! Hello, Wide Web!");
+    }
+
+    @Test
+    public void testLiteralRoutesToSuccessIfTooLarge() throws IOException {
+        final TestRunner runner = TestRunners.newTestRunner(new ReplaceText());
+        runner.setValidateExpressionUsage(false);
+        runner.setProperty(ReplaceText.SEARCH_VALUE, "l.");
+        runner.setProperty(ReplaceText.MAX_BUFFER_SIZE, "1 b");
+        runner.setProperty(ReplaceText.REPLACEMENT_VALUE, "$1");
+        runner.setProperty(ReplaceText.REPLACEMENT_STRATEGY, ReplaceText.LITERAL_REPLACE);
+
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("Hel.lo, Wor.ld! ");
+        }
+        runner.enqueue(content.toString().getBytes());
+
+        runner.run();
+
+        runner.assertAllFlowFilesTransferred(ReplaceText.REL_SUCCESS, 1);
+        final MockFlowFile out = runner.getFlowFilesForRelationship(ReplaceText.REL_SUCCESS).get(0);
+        out.assertContentEquals(content.toString().replace("l.", "$1"));
+    }
+
     @Test
     public void testProblematicCase1() throws IOException {
         final TestRunner runner = TestRunners.newTestRunner(new ReplaceText());
@@ -226,4 +226,33 @@ public class TestSplitJson {
             testRunner.getFlowFilesForRelationship(SplitJson.REL_SPLIT).get(i).assertContentEquals("null");
         }
     }
+
+    @Test
+    public void testSplit_filterExpression() throws Exception {
+        final TestRunner testRunner = TestRunners.newTestRunner(new SplitJson());
+        testRunner.setProperty(SplitJson.ARRAY_JSON_PATH_EXPRESSION, "$.values[?(@.size > 1)].name");
+
+        testRunner.enqueue("{\"values\": [{\"name\": \"a\", \"size\": 1}, {\"name\": \"b\", \"size\": 2}, {\"name\": \"c\", \"size\": 3}]}");
+        testRunner.run();
+
+        testRunner.assertTransferCount(SplitJson.REL_ORIGINAL, 1);
+        testRunner.assertTransferCount(SplitJson.REL_SPLIT, 2);
+        testRunner.getFlowFilesForRelationship(SplitJson.REL_SPLIT).get(0).assertContentEquals("b");
+        testRunner.getFlowFilesForRelationship(SplitJson.REL_SPLIT).get(0).assertAttributeEquals("fragment.index", "0");
+        testRunner.getFlowFilesForRelationship(SplitJson.REL_SPLIT).get(1).assertContentEquals("c");
+        testRunner.getFlowFilesForRelationship(SplitJson.REL_SPLIT).get(1).assertAttributeEquals("fragment.count", "2");
+    }
+
+    @Test
+    public void testSplit_truncatedJsonDocument() throws Exception {
+        final TestRunner testRunner = TestRunners.newTestRunner(new SplitJson());
+        testRunner.setProperty(SplitJson.ARRAY_JSON_PATH_EXPRESSION, "$.values");
+
+        // the elements that precede the invalid content must not be transferred
+        testRunner.enqueue("{\"values\": [1, 2, 3, ");
+        testRunner.run();
+
+        testRunner.assertAllFlowFilesTransferred(SplitJson.REL_FAILURE, 1);
+        testRunner.assertTransferCount(SplitJson.REL_SPLIT, 0);
+    }
 }
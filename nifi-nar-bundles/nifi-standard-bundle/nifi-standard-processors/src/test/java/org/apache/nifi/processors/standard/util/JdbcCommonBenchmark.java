@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.standard.util;
+
+import static java.sql.Types.ARRAY;
+import static java.sql.Types.BIGINT;
+import static java.sql.Types.BINARY;
+import static java.sql.Types.BLOB;
+import static java.sql.Types.CLOB;
+import static java.sql.Types.LONGVARBINARY;
+import static java.sql.Types.VARBINARY;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of converting a result set from an embedded, in-memory Derby database to Avro. The 'read' benchmark
+ * only reads each value from the result set, which is the cost of the query itself; 'previousConversion' runs a copy of
+ * the conversion loop that JdbcCommon used before it encoded rows directly, which populates a GenericRecord from the
+ * column type and value class of every value and writes it with a GenericDatumWriter using Avro's default block size;
+ * and 'convertToAvroStream' uses JdbcCommon with the given block size. This is not run as part of the build; to run it,
+ * build the test classes with the 'benchmarks' profile enabled and execute the main method from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class JdbcCommonBenchmark {
+
+    private static final String DB_URL = "jdbc:derby:memory:jdbcCommonBenchmark";
+    private static final String QUERY = "SELECT * FROM BENCHMARK_TABLE";
+    private static final int MAX_DIGITS_IN_BIGINT = 19;
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    };
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        @Param({"10000"})
+        private int rows;
+
+        private Connection connection;
+
+        @Setup
+        public void setup() throws ClassNotFoundException, SQLException {
+            Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+            connection = DriverManager.getConnection(DB_URL + ";create=true");
+
+            try (final Statement stmt = connection.createStatement()) {
+                stmt.execute("create table BENCHMARK_TABLE (id integer not null, name varchar(100), amount double, scale real, "
+                    + "created_on timestamp, counter bigint, code smallint, description varchar(1000))");
+            }
+
+            try (final PreparedStatement ps = connection.prepareStatement("insert into BENCHMARK_TABLE values (?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < rows; i++) {
+                    ps.setInt(1, i);
+                    ps.setString(2, "Name " + i);
+                    ps.setDouble(3, i * 1.5D);
+                    ps.setFloat(4, i / 7F);
+                    ps.setTimestamp(5, new Timestamp(1480000000000L + i * 1000L));
+                    ps.setLong(6, i * 1000000007L);
+                    ps.setShort(7, (short) (i % 100));
+                    if (i % 10 == 0) {
+                        ps.setNull(8, Types.VARCHAR);
+                    } else {
+                        ps.setString(8, "A somewhat longer description of the row numbered " + i);
+                    }
+                    ps.addBatch();
+                    if (i % 1000 == 999) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            connection.close();
+            try {
+                DriverManager.getConnection(DB_URL + ";drop=true");
+            } catch (final SQLException e) {
+                // Derby reports that the database was dropped with an exception
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Writer {
+        // 64000 is Avro's default, which the previous conversion always used
+        @Param({"64000", "1048576"})
+        private int blockSize;
+    }
+
+    @Benchmark
+    public long read(final Database database) throws SQLException {
+        long count = 0;
+        try (final Statement stmt = database.connection.createStatement();
+            final ResultSet rs = stmt.executeQuery(QUERY)) {
+            final int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int i = 1; i <= columns; i++) {
+                    if (rs.getObject(i) != null) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long previousConversion(final Database database) throws SQLException, IOException {
+        try (final Statement stmt = database.connection.createStatement();
+            final ResultSet rs = stmt.executeQuery(QUERY)) {
+            return previousConvertToAvroStream(rs, DISCARD);
+        }
+    }
+
+    @Benchmark
+    public long convertToAvroStream(final Database database, final Writer writer) throws SQLException, IOException {
+        try (final Statement stmt = database.connection.createStatement();
+            final ResultSet rs = stmt.executeQuery(QUERY)) {
+            return JdbcCommon.convertToAvroStream(rs, DISCARD, null, null, 0, false, writer.blockSize);
+        }
+    }
+
+    /**
+     * The body of JdbcCommon.convertToAvroStream as it was before rows were encoded directly, without the row callback
+     * and row limit, which the benchmarks do not use.
+     */
+    private static long previousConvertToAvroStream(final ResultSet rs, final OutputStream outStream) throws SQLException, IOException {
+        final Schema schema = JdbcCommon.createSchema(rs, null, false);
+        final GenericRecord rec = new GenericData.Record(schema);
+
+        final DatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(schema);
+        try (final DataFileWriter<GenericRecord> dataFileWriter = new DataFileWriter<>(datumWriter)) {
+            dataFileWriter.create(schema, outStream);
+
+            final ResultSetMetaData meta = rs.getMetaData();
+            final int nrOfColumns = meta.getColumnCount();
+            long nrOfRows = 0;
+            while (rs.next()) {
+                for (int i = 1; i <= nrOfColumns; i++) {
+                    final int javaSqlType = meta.getColumnType(i);
+
+                    if (javaSqlType == CLOB) {
+                        Clob clob = rs.getClob(i);
+                        if (clob != null) {
+                            long numChars = clob.length();
+                            char[] buffer = new char[(int) numChars];
+                            InputStream is = clob.getAsciiStream();
+                            int index = 0;
+                            int c = is.read();
+                            while (c > 0) {
+                                buffer[index++] = (char) c;
+                                c = is.read();
+                            }
+                            rec.put(i - 1, new String(buffer));
+                            clob.free();
+                        } else {
+                            rec.put(i - 1, null);
+                        }
+                        continue;
+                    }
+
+                    if (javaSqlType == BLOB) {
+                        Blob blob = rs.getBlob(i);
+                        if (blob != null) {
+                            long numChars = blob.length();
+                            byte[] buffer = new byte[(int) numChars];
+                            InputStream is = blob.getBinaryStream();
+                            int index = 0;
+                            int c = is.read();
+                            while (c > 0) {
+                                buffer[index++] = (byte) c;
+                                c = is.read();
+                            }
+                            ByteBuffer bb = ByteBuffer.wrap(buffer);
+                            rec.put(i - 1, bb);
+                            blob.free();
+                        } else {
+                            rec.put(i - 1, null);
+                        }
+                        continue;
+                    }
+
+                    final Object value = rs.getObject(i);
+
+                    if (value == null) {
+                        rec.put(i - 1, null);
+
+                    } else if (javaSqlType == BINARY || javaSqlType == VARBINARY || javaSqlType == LONGVARBINARY || javaSqlType == ARRAY) {
+                        byte[] bytes = rs.getBytes(i);
+                        ByteBuffer bb = ByteBuffer.wrap(bytes);
+                        rec.put(i - 1, bb);
+
+                    } else if (value instanceof Byte) {
+                        rec.put(i - 1, ((Byte) value).intValue());
+                    } else if (value instanceof Short) {
+                        rec.put(i - 1, ((Short) value).intValue());
+                    } else if (value instanceof BigDecimal) {
+                        rec.put(i - 1, value.toString());
+
+                    } else if (value instanceof BigInteger) {
+                        if (javaSqlType == BIGINT) {
+                            int precision = meta.getPrecision(i);
+                            if (precision < 0 || precision > MAX_DIGITS_IN_BIGINT) {
+                                rec.put(i - 1, value.toString());
+                            } else {
+                                try {
+                                    rec.put(i - 1, ((BigInteger) value).longValueExact());
+                                } catch (ArithmeticException ae) {
+                                    rec.put(i - 1, value.toString());
+                                }
+                            }
+                        } else {
+                            rec.put(i - 1, value.toString());
+                        }
+
+                    } else if (value instanceof Number || value instanceof Boolean) {
+                        if (javaSqlType == BIGINT) {
+                            int precision = meta.getPrecision(i);
+                            if (precision < 0 || precision > MAX_DIGITS_IN_BIGINT) {
+                                rec.put(i - 1, value.toString());
+                            } else {
+                                rec.put(i - 1, value);
+                            }
+                        } else {
+                            rec.put(i - 1, value);
+                        }
+
+                    } else {
+                        rec.put(i - 1, value.toString());
+                    }
+                }
+                dataFileWriter.append(rec);
+                nrOfRows += 1;
+            }
+
+            return nrOfRows;
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+            .include(JdbcCommonBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+}
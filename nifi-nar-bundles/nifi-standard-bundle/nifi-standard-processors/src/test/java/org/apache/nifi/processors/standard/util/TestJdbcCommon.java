@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.sql.Connection;
@@ -490,6 +491,114 @@ public class TestJdbcCommon {
         }
     }
 
+    @Test
+    public void testConvertToAvroStreamForFloatReturnedAsDouble() throws SQLException, IOException {
+        final ResultSetMetaData metadata = mock(ResultSetMetaData.class);
+        when(metadata.getColumnCount()).thenReturn(2);
+        when(metadata.getColumnType(1)).thenReturn(Types.FLOAT);
+        when(metadata.getColumnName(1)).thenReturn("f");
+        when(metadata.getColumnType(2)).thenReturn(Types.BIGINT);
+        when(metadata.getColumnName(2)).thenReturn("l");
+        when(metadata.getPrecision(2)).thenReturn(19);
+        when(metadata.getTableName(1)).thenReturn("table");
+
+        final ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metadata);
+
+        final AtomicInteger counter = new AtomicInteger(2);
+        Mockito.doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return counter.getAndDecrement() > 0;
+            }
+        }).when(rs).next();
+
+        when(rs.getObject(1)).thenReturn(1.5D, (Object) null);
+        when(rs.getObject(2)).thenReturn(Integer.valueOf(42), BigInteger.valueOf(Long.MAX_VALUE));
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        assertEquals(2, JdbcCommon.convertToAvroStream(rs, baos, false));
+
+        final InputStream instream = new ByteArrayInputStream(baos.toByteArray());
+
+        final DatumReader<GenericRecord> datumReader = new GenericDatumReader<>();
+        try (final DataFileStream<GenericRecord> dataFileReader = new DataFileStream<>(instream, datumReader)) {
+            GenericRecord record = dataFileReader.next();
+            assertEquals(1.5F, record.get("f"));
+            assertEquals(42L, record.get("l"));
+
+            record = dataFileReader.next();
+            assertNull(record.get("f"));
+            assertEquals(Long.MAX_VALUE, record.get("l"));
+        }
+    }
+
+    @Test
+    public void testConvertToAvroStreamWithBlockSize() throws SQLException, IOException {
+        final ResultSetMetaData metadata = mock(ResultSetMetaData.class);
+        when(metadata.getColumnCount()).thenReturn(2);
+        when(metadata.getColumnType(1)).thenReturn(Types.INTEGER);
+        when(metadata.isSigned(1)).thenReturn(true);
+        when(metadata.getColumnName(1)).thenReturn("id");
+        when(metadata.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(metadata.getColumnName(2)).thenReturn("name");
+        when(metadata.getTableName(1)).thenReturn("table");
+
+        final ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metadata);
+
+        final int rowCount = 1000;
+        final AtomicInteger counter = new AtomicInteger(0);
+        Mockito.doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return counter.incrementAndGet() <= rowCount;
+            }
+        }).when(rs).next();
+        Mockito.doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return (Integer) invocation.getArguments()[0] == 1 ? (Object) counter.get() : "name-" + counter.get();
+            }
+        }).when(rs).getObject(Mockito.anyInt());
+
+        // a small block size causes the rows to be written in many blocks
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertEquals(rowCount, JdbcCommon.convertToAvroStream(rs, baos, null, null, 0, false, 1024));
+
+        final InputStream instream = new ByteArrayInputStream(baos.toByteArray());
+
+        final DatumReader<GenericRecord> datumReader = new GenericDatumReader<>();
+        try (final DataFileStream<GenericRecord> dataFileReader = new DataFileStream<>(instream, datumReader)) {
+            GenericRecord record = null;
+            int expectedId = 1;
+            while (dataFileReader.hasNext()) {
+                record = dataFileReader.next(record);
+                assertEquals(expectedId, record.get("id"));
+                assertEquals("name-" + expectedId, record.get("name").toString());
+                expectedId++;
+            }
+            assertEquals(rowCount + 1, expectedId);
+        }
+    }
+
+    @Test(expected = SQLException.class)
+    public void testConvertToAvroStreamPropagatesSQLException() throws SQLException, IOException {
+        final ResultSetMetaData metadata = mock(ResultSetMetaData.class);
+        when(metadata.getColumnCount()).thenReturn(1);
+        when(metadata.getColumnType(1)).thenReturn(Types.VARCHAR);
+        when(metadata.getColumnName(1)).thenReturn("name");
+        when(metadata.getTableName(1)).thenReturn("table");
+
+        final ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metadata);
+        when(rs.next()).thenReturn(true);
+        when(rs.getObject(1)).thenThrow(new SQLException("Connection lost"));
+
+        JdbcCommon.convertToAvroStream(rs, new ByteArrayOutputStream(), false);
+    }
+
     // many test use Derby as database, so ensure driver is available
     @Test
     public void testDriverLoad() throws ClassNotFoundException {
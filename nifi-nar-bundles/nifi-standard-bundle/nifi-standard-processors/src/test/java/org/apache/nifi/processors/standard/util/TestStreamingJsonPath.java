@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.standard.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+public class TestStreamingJsonPath {
+
+    private static final Path JSON_SNIPPET = Paths.get("src/test/resources/TestJson/json-sample.json");
+    private static final Configuration CONFIGURATION = Configuration.builder().jsonProvider(new JacksonJsonProvider()).build();
+    private static final JsonProvider JSON_PROVIDER = CONFIGURATION.jsonProvider();
+
+    private static final String NOT_FOUND = "<not found>";
+
+    private String evaluateWithDocument(final byte[] content, final String path) {
+        final DocumentContext documentContext = JsonPath.using(CONFIGURATION).parse(new ByteArrayInputStream(content));
+        try {
+            return JSON_PROVIDER.toJson(documentContext.read(JsonPath.compile(path)));
+        } catch (final PathNotFoundException pnfe) {
+            return NOT_FOUND;
+        }
+    }
+
+    private List<String> evaluateStreaming(final byte[] content, final List<String> paths) throws IOException {
+        final List<StreamingJsonPath> streamingPaths = new ArrayList<>();
+        final List<List<Object>> matches = new ArrayList<>();
+        for (final String path : paths) {
+            final StreamingJsonPath streamingPath = StreamingJsonPath.compile(path);
+            assertNotNull("Expected " + path + " to be supported", streamingPath);
+            streamingPaths.add(streamingPath);
+            matches.add(new ArrayList<>());
+        }
+
+        final StreamingJsonPath.Result result;
+        try (final InputStream in = new ByteArrayInputStream(content)) {
+            result = StreamingJsonPath.evaluate(in, streamingPaths, (pathIndex, value) -> matches.get(pathIndex).add(value));
+        }
+
+        final List<String> results = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            assertTrue("Expected the result of " + paths.get(i) + " to be conclusive", result.isConclusive(i));
+            if (!result.isFound(i)) {
+                results.add(NOT_FOUND);
+            } else if (streamingPaths.get(i).isDefinite()) {
+                assertEquals(1, matches.get(i).size());
+                results.add(JSON_PROVIDER.toJson(matches.get(i).get(0)));
+            } else {
+                results.add(JSON_PROVIDER.toJson(matches.get(i)));
+            }
+        }
+        return results;
+    }
+
+    @Test
+    public void testResultsMatchDocumentEvaluation() throws IOException {
+        final byte[] content = Files.readAllBytes(JSON_SNIPPET);
+        final List<String> paths = Arrays.asList(
+            "$",
+            "$[0]",
+            "$[0]._id",
+            "$[1].name.first",
+            "$[0]['name']['last']",
+            "$[0].range",
+            "$[0].range[3]",
+            "$[0].range[100]",
+            "$[0].nonexistent",
+            "$[*].name",
+            "$[*].friends[*].name",
+            "$[0].name.*",
+            "$[*].friends[?(@.id > 1)]",
+            "$[*].friends[?(@.id == 0)].name",
+            "$[?(@.isActive == true)].index",
+            "$[?(@.eyeColor != 'brown')].eyeColor",
+            "$[?(@.age >= 30)].age",
+            "$[0].range[?(@ < 3)]",
+            "$[*].tags[?(@ == 'ea')]",
+            "$[?(@.nonexistent)]",
+            "$[?(@.balance)]._id",
+            "$[0].nonexistent[*]");
+
+        final List<String> streamingResults = evaluateStreaming(content, paths);
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals("Unexpected result for " + paths.get(i), evaluateWithDocument(content, paths.get(i)), streamingResults.get(i));
+        }
+    }
+
+    @Test
+    public void testMissingValuesMatchDocumentEvaluation() throws IOException {
+        final List<String> paths = Arrays.asList("$.nonexistent[*]", "$.a.nonexistent[*]", "$.a.b[5]", "$.a.*", "$.a.b[?(@ > 1)]", "$.a[?(@.b)]", "$.x[?(@.b)]");
+        final byte[] objectContent = "{\"a\": {\"b\": [1, 2]}, \"s\": \"x\"}".getBytes(StandardCharsets.UTF_8);
+        final List<String> objectResults = evaluateStreaming(objectContent, paths);
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals("Unexpected result for " + paths.get(i), evaluateWithDocument(objectContent, paths.get(i)), objectResults.get(i));
+        }
+
+        final List<String> arrayPaths = Arrays.asList("$[*].a", "$[*].nonexistent", "$[5].x[*]", "$[0]");
+        final byte[] arrayContent = "[{\"a\": 1}, {\"b\": 2}]".getBytes(StandardCharsets.UTF_8);
+        final List<String> arrayResults = evaluateStreaming(arrayContent, arrayPaths);
+        for (int i = 0; i < arrayPaths.size(); i++) {
+            assertEquals("Unexpected result for " + arrayPaths.get(i), evaluateWithDocument(arrayContent, arrayPaths.get(i)), arrayResults.get(i));
+        }
+    }
+
+    @Test
+    public void testMismatchedStepsAreInconclusive() throws IOException {
+        final byte[] content = "{\"a\": {\"b\": [1, 2]}, \"s\": \"x\"}".getBytes(StandardCharsets.UTF_8);
+        final List<StreamingJsonPath> paths = new ArrayList<>();
+        for (final String path : Arrays.asList("$.s[*]", "$.a.b[*].c", "$[*].a", "$[0]", "$.s.x", "$.a.b")) {
+            paths.add(StreamingJsonPath.compile(path));
+        }
+
+        final StreamingJsonPath.Result result = StreamingJsonPath.evaluate(new ByteArrayInputStream(content), paths, (pathIndex, value) -> {
+        });
+        for (int i = 0; i < paths.size() - 1; i++) {
+            assertFalse("Expected the result of " + paths.get(i) + " to be inconclusive", result.isConclusive(i));
+        }
+        assertTrue(result.isConclusive(paths.size() - 1));
+        assertTrue(result.isFound(paths.size() - 1));
+    }
+
+    @Test
+    public void testUnsupportedExpressionsAreNotCompiled() {
+        for (final String path : Arrays.asList("$..name", "$[0:2]", "$[-1]", "$[0,1]", "$['a','b']", "$.range.length()", "$[?(@.a > 1 && @.b < 2)]",
+            "$[?(@.name =~ /.*/)]", "@.name", "$[?(@ in [1, 2])]", "")) {
+            assertNull("Expected " + path + " not to be supported", StreamingJsonPath.compile(path));
+        }
+    }
+
+    @Test
+    public void testDefiniteAndIndefinitePaths() {
+        assertTrue(StreamingJsonPath.compile("$.a.b[0]").isDefinite());
+        assertFalse(StreamingJsonPath.compile("$.a[*].b").isDefinite());
+        assertFalse(StreamingJsonPath.compile("$.a[?(@.b == 'c')]").isDefinite());
+        assertFalse(StreamingJsonPath.compile("$.a").elements().isDefinite());
+    }
+
+    @Test
+    public void testElementsOfArray() throws IOException {
+        final byte[] content = "{\"a\": {\"b\": [1, {\"c\": 2}, [3], null]}, \"z\": [4]}".getBytes(StandardCharsets.UTF_8);
+        final StreamingJsonPath path = StreamingJsonPath.compile("$.a.b").elements();
+
+        final List<Object> matches = new ArrayList<>();
+        final StreamingJsonPath.Result result = StreamingJsonPath.evaluate(new ByteArrayInputStream(content), Collections.singletonList(path),
+            (pathIndex, value) -> matches.add(value));
+
+        assertTrue(result.isConclusive(0));
+        assertTrue(result.isFound(0));
+        assertTrue(result.isArray(0));
+        assertEquals("[1,{\"c\":2},[3],null]", JSON_PROVIDER.toJson(matches));
+    }
+
+    @Test
+    public void testElementsOfObjectNotSelected() throws IOException {
+        final byte[] content = "{\"a\": {\"b\": {\"c\": 2}}}".getBytes(StandardCharsets.UTF_8);
+        final StreamingJsonPath path = StreamingJsonPath.compile("$.a.b").elements();
+
+        final List<Object> matches = new ArrayList<>();
+        final StreamingJsonPath.Result result = StreamingJsonPath.evaluate(new ByteArrayInputStream(content), Collections.singletonList(path),
+            (pathIndex, value) -> matches.add(value));
+
+        assertTrue(result.isConclusive(0));
+        assertTrue(result.isFound(0));
+        assertFalse(result.isArray(0));
+        assertTrue(matches.isEmpty());
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testInvalidJson() throws IOException {
+        final byte[] content = "[{\"a\": 1}, {\"a\": ".getBytes(StandardCharsets.UTF_8);
+        StreamingJsonPath.evaluate(new ByteArrayInputStream(content), Collections.singletonList(StreamingJsonPath.compile("$[*].a")), (pathIndex, value) -> {
+        });
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void testEmptyContent() throws IOException {
+        StreamingJsonPath.evaluate(new ByteArrayInputStream(new byte[0]), Collections.singletonList(StreamingJsonPath.compile("$")), (pathIndex, value) -> {
+        });
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.standard.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class TestStreamingRegexReplacer {
+
+    private String replace(final StreamingRegexReplacer replacer, final String text, final String regex, final int maxMatchLength, final String replacement) throws IOException {
+        final StringWriter writer = new StringWriter();
+        replacer.replace(Pattern.compile(regex).matcher(""), maxMatchLength, new StringReader(text), writer, match -> replacement);
+        return writer.toString();
+    }
+
+    private void verifyReplacement(final String text, final String regex, final int maxMatchLength, final String replacement) throws IOException {
+        final String expected = text.replaceAll(regex, replacement);
+        for (int windowSize = 1; windowSize <= text.length() + 1; windowSize++) {
+            final String actual = replace(new StreamingRegexReplacer(windowSize), text, regex, maxMatchLength, replacement);
+            assertEquals("Wrong result for " + regex + " with window size " + windowSize, expected, actual);
+        }
+    }
+
+    @Test
+    public void testMatchesAcrossWindows() throws IOException {
+        verifyReplacement("Hello, World! Hello, World!", "World", 5, "Universe");
+        verifyReplacement("Hello, World! Hello, World!", "o", 1, "0");
+        verifyReplacement("aaa bbb aaaa b aa", "a+", 4, "X");
+        verifyReplacement("abc123def4567ghi", "(\\d+)", 4, "<$1>");
+        verifyReplacement("key1=value1\nkey2=value2\n", "(?<key>\\w+)=(\\w+)", 11, "$2=${key}");
+        verifyReplacement("no matches here", "xyz", 3, "abc");
+        verifyReplacement("", "a", 1, "b");
+    }
+
+    @Test
+    public void testAnchorsAndBoundaries() throws IOException {
+        verifyReplacement("Hello, World!", "^Hello", 5, "Goodbye");
+        verifyReplacement("Hello, World!", "!$", 1, "?");
+        verifyReplacement("cat concat cat", "\\bcat\\b", 3, "dog");
+        verifyReplacement("line 1\nline 2\nline 3", "(?m)^line", 4, "row");
+        verifyReplacement("line 1\nline 2\nline 3", "(?m)\\d$", 1, "#");
+    }
+
+    @Test
+    public void testAlternationAcrossWindows() throws IOException {
+        // the shorter alternative matches first within a window that ends before the longer alternative is complete
+        verifyReplacement("xxxxxabc", "abc|b", 3, "X");
+        verifyReplacement("xxabcxxabcxabxabc", "abc|b", 3, "X");
+        verifyReplacement("one two three twelve", "twelve|tw|e", 6, "_");
+        verifyReplacement("aaab aab ab b", "a{1,3}b|b", 4, "[$0]");
+    }
+
+    @Test
+    public void testEmptyMatches() throws IOException {
+        verifyReplacement("abcab", "a*", 2, "-");
+        verifyReplacement("abc", "", 0, "|");
+        verifyReplacement("x\ny\n", "(?m)$", 0, ";");
+    }
+
+    @Test
+    public void testRandomText() throws IOException {
+        final Random random = new Random(17L);
+        final char[] alphabet = {'a', 'b', 'c', ' ', '\n'};
+        for (int i = 0; i < 20; i++) {
+            final StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 200; j++) {
+                sb.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            final String text = sb.toString();
+
+            verifyReplacement(text, "ab{1,3}c?", 5, "[$0]");
+            verifyReplacement(text, "(?m)^b", 1, "B");
+            verifyReplacement(text, "c\\s", 2, "_");
+            verifyReplacement(text, "abc|b", 3, "X");
+            verifyReplacement(text, "(a|ab)(c|bcd)", 4, "<$2>");
+        }
+    }
+
+    @Test
+    public void testLiteralReplacement() throws IOException {
+        final String text = "The quick brown fox jumps over the lazy dog. The end.";
+        final StreamingRegexReplacer replacer = new StreamingRegexReplacer(8);
+        final StringWriter writer = new StringWriter();
+        final Matcher matcher = Pattern.compile("The", Pattern.LITERAL).matcher("");
+        assertTrue(replacer.replace(matcher, 3, new StringReader(text), writer, match -> Matcher.quoteReplacement("$A\\")));
+        assertEquals(text.replace("The", "$A\\"), writer.toString());
+
+        // the same replacer and matcher may be reused for another stream
+        final StringWriter noMatchWriter = new StringWriter();
+        assertFalse(replacer.replace(matcher, 3, new StringReader("no match"), noMatchWriter, match -> "unused"));
+        assertEquals("no match", noMatchWriter.toString());
+    }
+
+    @Test
+    public void testReplacementFromFirstMatch() throws IOException {
+        final StringWriter writer = new StringWriter();
+        new StreamingRegexReplacer(4).replace(Pattern.compile("(\\d)").matcher(""), 1, new StringReader("a1b2c3"), writer, match -> "<" + match.group(1) + ">");
+        assertEquals("a<1>b<1>c<1>", writer.toString());
+    }
+}
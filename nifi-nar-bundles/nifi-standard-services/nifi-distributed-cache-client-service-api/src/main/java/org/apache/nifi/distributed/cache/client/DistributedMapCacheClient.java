@@ -17,6 +17,9 @@
 package org.apache.nifi.distributed.cache.client;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.Tags;
@@ -137,4 +140,74 @@ public interface DistributedMapCacheClient extends ControllerService {
      */
     <K> boolean remove(K key, Serializer<K> serializer) throws IOException;
 
+    /**
+     * Returns the values in the cache for the given keys. Implementations that
+     * communicate with a remote cache should fetch all of the values at once,
+     * rather than making a separate request for each key; the default
+     * implementation simply calls {@link #get(Object, Serializer, Deserializer)}
+     * for each key.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param keys the keys to lookup in the map
+     * @param keySerializer key serializer
+     * @param valueDeserializer value deserializer
+     *
+     * @return a Map that contains an entry for each of the given keys, whose
+     * value is the value in the cache for that key, or <code>null</code> if
+     * the cache has no value for that key
+     * @throws IOException if unable to communicate with the remote instance
+     */
+    default <K, V> Map<K, V> getAll(Set<K> keys, Serializer<K> keySerializer, Deserializer<V> valueDeserializer) throws IOException {
+        final Map<K, V> values = new HashMap<>(keys.size());
+        for (final K key : keys) {
+            values.put(key, get(key, keySerializer, valueDeserializer));
+        }
+        return values;
+    }
+
+    /**
+     * Adds each of the specified keys and values to the cache, overwriting any
+     * value that is currently set. Implementations that communicate with a
+     * remote cache should send all of the entries at once, rather than making
+     * a separate request for each entry; the default implementation simply
+     * calls {@link #put(Object, Object, Serializer, Serializer)} for each entry.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param keysAndValues the keys to set, and the values to associate with them
+     * @param keySerializer the Serializer that will be used to serialize the keys into bytes
+     * @param valueSerializer the Serializer that will be used to serialize the values into bytes
+     *
+     * @throws IOException if unable to communicate with the remote instance
+     */
+    default <K, V> void putAll(Map<K, V> keysAndValues, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        for (final Map.Entry<K, V> entry : keysAndValues.entrySet()) {
+            put(entry.getKey(), entry.getValue(), keySerializer, valueSerializer);
+        }
+    }
+
+    /**
+     * Removes the entries with the given keys from the cache, if they are
+     * present. Implementations that communicate with a remote cache should
+     * remove all of the entries at once, rather than making a separate request
+     * for each key; the default implementation simply calls
+     * {@link #remove(Object, Serializer)} for each key.
+     *
+     * @param <K> type of key
+     * @param keys the keys of the entries to remove
+     * @param serializer serializer
+     * @return the number of entries that were removed
+     * @throws IOException if unable to communicate with the remote instance
+     */
+    default <K> long removeAll(Set<K> keys, Serializer<K> serializer) throws IOException {
+        long removed = 0L;
+        for (final K key : keys) {
+            if (remove(key, serializer)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
 }
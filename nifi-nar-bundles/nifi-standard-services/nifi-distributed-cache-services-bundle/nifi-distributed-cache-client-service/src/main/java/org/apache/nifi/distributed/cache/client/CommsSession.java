@@ -43,4 +43,11 @@ public interface CommsSession extends Closeable {
     long getTimeout(TimeUnit timeUnit);
 
     SSLContext getSSLContext();
+
+    /**
+     * @return the version of the protocol that was negotiated with the server
+     */
+    int getProtocolVersion();
+
+    void setProtocolVersion(int protocolVersion);
 }
@@ -19,7 +19,10 @@ package org.apache.nifi.distributed.cache.client;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -216,6 +219,128 @@ public class DistributedMapCacheClientService extends AbstractControllerService
         });
     }
 
+    @Override
+    public <K, V> Map<K, V> getAll(final Set<K> keys, final Serializer<K> keySerializer, final Deserializer<V> valueDeserializer) throws IOException {
+        if (keys.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return withCommsSession(new CommsAction<Map<K, V>>() {
+            @Override
+            public Map<K, V> execute(final CommsSession session) throws IOException {
+                final DataOutputStream dos = new DataOutputStream(session.getOutputStream());
+                final DataInputStream dis = new DataInputStream(session.getInputStream());
+                final Map<K, V> values = new HashMap<>(keys.size());
+
+                if (session.getProtocolVersion() < 2) {
+                    // server does not support multi-key requests; issue a 'get' for each key over this session
+                    for (final K key : keys) {
+                        dos.writeUTF("get");
+                        serialize(key, keySerializer, dos);
+                        dos.flush();
+
+                        values.put(key, valueDeserializer.deserialize(readLengthDelimitedResponse(dis)));
+                    }
+                    return values;
+                }
+
+                // the server responds with the values in the order in which the keys were sent
+                final List<K> orderedKeys = new ArrayList<>(keys);
+                dos.writeUTF("getAll");
+                dos.writeInt(orderedKeys.size());
+                for (final K key : orderedKeys) {
+                    serialize(key, keySerializer, dos);
+                }
+                dos.flush();
+
+                for (final K key : orderedKeys) {
+                    values.put(key, valueDeserializer.deserialize(readLengthDelimitedResponse(dis)));
+                }
+                return values;
+            }
+        });
+    }
+
+    @Override
+    public <K, V> void putAll(final Map<K, V> keysAndValues, final Serializer<K> keySerializer, final Serializer<V> valueSerializer) throws IOException {
+        if (keysAndValues.isEmpty()) {
+            return;
+        }
+
+        withCommsSession(new CommsAction<Object>() {
+            @Override
+            public Object execute(final CommsSession session) throws IOException {
+                final DataOutputStream dos = new DataOutputStream(session.getOutputStream());
+                final DataInputStream dis = new DataInputStream(session.getInputStream());
+
+                if (session.getProtocolVersion() < 2) {
+                    for (final Map.Entry<K, V> entry : keysAndValues.entrySet()) {
+                        dos.writeUTF("put");
+                        serialize(entry.getKey(), keySerializer, dos);
+                        serialize(entry.getValue(), valueSerializer, dos);
+                        dos.flush();
+
+                        if (!dis.readBoolean()) {
+                            throw new IOException("Expected to receive confirmation of 'put' request but received unexpected response");
+                        }
+                    }
+                    return null;
+                }
+
+                dos.writeUTF("putAll");
+                dos.writeInt(keysAndValues.size());
+                for (final Map.Entry<K, V> entry : keysAndValues.entrySet()) {
+                    serialize(entry.getKey(), keySerializer, dos);
+                    serialize(entry.getValue(), valueSerializer, dos);
+                }
+                dos.flush();
+
+                if (!dis.readBoolean()) {
+                    throw new IOException("Expected to receive confirmation of 'putAll' request but received unexpected response");
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public <K> long removeAll(final Set<K> keys, final Serializer<K> serializer) throws IOException {
+        if (keys.isEmpty()) {
+            return 0L;
+        }
+
+        return withCommsSession(new CommsAction<Long>() {
+            @Override
+            public Long execute(final CommsSession session) throws IOException {
+                final DataOutputStream dos = new DataOutputStream(session.getOutputStream());
+                final DataInputStream dis = new DataInputStream(session.getInputStream());
+
+                if (session.getProtocolVersion() < 2) {
+                    long removed = 0L;
+                    for (final K key : keys) {
+                        dos.writeUTF("remove");
+                        serialize(key, serializer, dos);
+                        dos.flush();
+
+                        if (dis.readBoolean()) {
+                            removed++;
+                        }
+                    }
+                    return removed;
+                }
+
+                dos.writeUTF("removeAll");
+                dos.writeInt(keys.size());
+                for (final K key : keys) {
+                    serialize(key, serializer, dos);
+                }
+                dos.flush();
+
+                return dis.readLong();
+            }
+        });
+    }
+
     private byte[] readLengthDelimitedResponse(final DataInputStream dis) throws IOException {
         final int responseLength = dis.readInt();
         final byte[] responseBuffer = new byte[responseLength];
@@ -247,9 +372,11 @@ public class DistributedMapCacheClientService extends AbstractControllerService
         }
 
         session = createCommsSession(configContext);
-        final VersionNegotiator versionNegotiator = new StandardVersionNegotiator(1);
+        // prefer version 2, which supports multi-key requests, but fall back to version 1 for older servers
+        final VersionNegotiator versionNegotiator = new StandardVersionNegotiator(2, 1);
         try {
             ProtocolHandshake.initiateHandshake(session.getInputStream(), session.getOutputStream(), versionNegotiator);
+            session.setProtocolVersion(versionNegotiator.getVersion());
         } catch (final HandshakeException e) {
             try {
                 session.close();
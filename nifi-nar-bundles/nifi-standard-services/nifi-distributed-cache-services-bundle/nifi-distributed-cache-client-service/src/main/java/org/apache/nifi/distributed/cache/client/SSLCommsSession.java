@@ -35,6 +35,7 @@ public class SSLCommsSession implements CommsSession {
     private final SSLContext sslContext;
     private final String hostname;
     private final int port;
+    private volatile int protocolVersion = 1;
 
     private final SSLSocketChannelInputStream in;
     private final BufferedInputStream bufferedIn;
@@ -106,4 +107,13 @@ public class SSLCommsSession implements CommsSession {
         return timeUnit.convert(sslSocketChannel.getTimeout(), TimeUnit.MILLISECONDS);
     }
 
+    @Override
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    @Override
+    public void setProtocolVersion(final int protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
 }
@@ -123,7 +123,7 @@ public abstract class AbstractCacheServer implements CacheServer {
                             try (final InputStream in = new BufferedInputStream(rawInputStream);
                                 final OutputStream out = new BufferedOutputStream(rawOutputStream)) {
 
-                                final VersionNegotiator versionNegotiator = new StandardVersionNegotiator(1);
+                                final VersionNegotiator versionNegotiator = createVersionNegotiator();
 
                                 ProtocolHandshake.receiveHandshake(in, out, versionNegotiator);
 
@@ -201,4 +201,15 @@ public abstract class AbstractCacheServer implements CacheServer {
      * @throws IOException ex
      */
     protected abstract boolean listen(InputStream in, OutputStream out, int version) throws IOException;
+
+    /**
+     * Creates the VersionNegotiator that is used to agree upon a protocol
+     * version with each client that connects. The versions are listed in order
+     * of preference.
+     *
+     * @return a VersionNegotiator for the protocol versions this server supports
+     */
+    protected VersionNegotiator createVersionNegotiator() {
+        return new StandardVersionNegotiator(1);
+    }
 }
@@ -17,16 +17,21 @@
 package org.apache.nifi.distributed.cache.server.map;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.net.ssl.SSLContext;
 
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.SeeAlso;
 import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.components.AllowableValue;
+import org.apache.nifi.components.PropertyDescriptor;
 import org.apache.nifi.controller.ConfigurationContext;
 import org.apache.nifi.distributed.cache.server.CacheServer;
 import org.apache.nifi.distributed.cache.server.DistributedCacheServer;
 import org.apache.nifi.distributed.cache.server.EvictionPolicy;
+import org.apache.nifi.processor.util.StandardValidators;
 import org.apache.nifi.ssl.SSLContextService;
 import org.apache.nifi.ssl.SSLContextService.ClientAuth;
 
@@ -36,6 +41,41 @@ import org.apache.nifi.ssl.SSLContextService.ClientAuth;
 @SeeAlso(classNames = {"org.apache.nifi.distributed.cache.client.DistributedMapCacheClientService", "org.apache.nifi.ssl.StandardSSLContextService"})
 public class DistributedMapCacheServer extends DistributedCacheServer {
 
+    public static final PropertyDescriptor CONCURRENCY_LEVEL = new PropertyDescriptor.Builder()
+        .name("Concurrency Level")
+        .description("The number of independently locked segments that the cache entries are spread across, which is the number of clients that can "
+            + "update the cache at the same time. With a value of 1, the entries are kept in the order given by the Eviction Strategy, and the entry "
+            + "that is evicted is always exactly the least frequently used, least recently used, or oldest one. With a greater value, the entry that "
+            + "is evicted is chosen by comparing a small random sample of the entries, so it is only approximately the one that the Eviction Strategy "
+            + "would choose, but evicting it is much less costly for a large cache.")
+        .required(true)
+        .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+        .defaultValue("1")
+        .build();
+
+    public static final AllowableValue PERSISTENCE_WRITE_AHEAD_LOG = new AllowableValue("Write-Ahead Log", "Write-Ahead Log",
+        "All cache entries are held on the heap. Every change is journaled to a write-ahead log, which is replayed in full when the service is enabled.");
+    public static final AllowableValue PERSISTENCE_MEMORY_MAPPED_LOG = new AllowableValue("Memory-Mapped Log", "Memory-Mapped Log",
+        "Cache entries are held off the heap, in memory-mapped log files that are compacted in the background, so the cache may be much larger than "
+            + "the heap. After a clean shutdown, the cache is available again without replaying the log. The Concurrency Level does not apply.");
+
+    public static final PropertyDescriptor PERSISTENCE_STRATEGY = new PropertyDescriptor.Builder()
+        .name("Persistence Strategy")
+        .description("Determines how the cache is stored when a Persistence Directory is specified. Entries persisted using one strategy "
+            + "are not available after switching to the other.")
+        .required(true)
+        .allowableValues(PERSISTENCE_WRITE_AHEAD_LOG, PERSISTENCE_MEMORY_MAPPED_LOG)
+        .defaultValue(PERSISTENCE_WRITE_AHEAD_LOG.getValue())
+        .build();
+
+    @Override
+    protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
+        final List<PropertyDescriptor> properties = new ArrayList<>(super.getSupportedPropertyDescriptors());
+        properties.add(CONCURRENCY_LEVEL);
+        properties.add(PERSISTENCE_STRATEGY);
+        return properties;
+    }
+
     @Override
     protected CacheServer createCacheServer(final ConfigurationContext context) {
         final int port = context.getProperty(PORT).asInteger();
@@ -43,6 +83,9 @@ public class DistributedMapCacheServer extends DistributedCacheServer {
         final SSLContextService sslContextService = context.getProperty(SSL_CONTEXT_SERVICE).asControllerService(SSLContextService.class);
         final int maxSize = context.getProperty(MAX_CACHE_ENTRIES).asInteger();
         final String evictionPolicyName = context.getProperty(EVICTION_POLICY).getValue();
+        final int concurrencyLevel = context.getProperty(CONCURRENCY_LEVEL).asInteger();
+        final MapCacheServer.PersistenceStrategy persistenceStrategy = PERSISTENCE_MEMORY_MAPPED_LOG.getValue().equals(context.getProperty(PERSISTENCE_STRATEGY).getValue())
+            ? MapCacheServer.PersistenceStrategy.MEMORY_MAPPED_LOG : MapCacheServer.PersistenceStrategy.WRITE_AHEAD_LOG;
 
         final SSLContext sslContext;
         if (sslContextService == null) {
@@ -69,7 +112,7 @@ public class DistributedMapCacheServer extends DistributedCacheServer {
         try {
             final File persistenceDir = persistencePath == null ? null : new File(persistencePath);
 
-            return new MapCacheServer(getIdentifier(), sslContext, port, maxSize, evictionPolicy, persistenceDir);
+            return new MapCacheServer(getIdentifier(), sslContext, port, maxSize, evictionPolicy, persistenceDir, concurrencyLevel, persistenceStrategy);
         } catch (final Exception e) {
             throw new RuntimeException(e);
         }
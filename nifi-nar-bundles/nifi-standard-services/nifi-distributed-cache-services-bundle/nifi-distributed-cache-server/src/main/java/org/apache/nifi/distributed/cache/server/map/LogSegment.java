@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.distributed.cache.server.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * A single file of the log that backs a {@link MemoryMappedMapCache}. The file is memory-mapped in its entirety and
+ * records are only ever appended to it, so a record's offset within the segment never changes.
+ * </p>
+ *
+ * <p>
+ * The segment begins with a header that holds the position at which the next record will be written and the number
+ * of bytes occupied by records that are still referenced by the cache's index. Each record consists of a type, the
+ * length of the key, the length of the value, a CRC-32 checksum of the preceding fields and the key and value, followed
+ * by the key and the value themselves. Because the file is extended with zeroes when it is created, a record type of
+ * zero marks the end of the records.
+ * </p>
+ *
+ * <p>
+ * Only one thread may append to a segment at a time. Records that have been written may be read concurrently.
+ * </p>
+ */
+class LogSegment {
+
+    static final byte END_OF_SEGMENT = 0;
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    static final String FILE_SUFFIX = ".segment";
+
+    private static final int MAGIC = 0x4E694D43; // 'NiMC'
+    private static final int WRITE_POSITION_OFFSET = 4;
+    private static final int LIVE_BYTES_OFFSET = 8;
+    static final int SEGMENT_HEADER_LENGTH = 16;
+
+    // type (1 byte), key length (4 bytes), value length (4 bytes), checksum (4 bytes)
+    static final int RECORD_HEADER_LENGTH = 13;
+
+    private final int id;
+    private final File file;
+    private final MappedByteBuffer buffer;
+
+    private LogSegment(final int id, final File file, final MappedByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    static File getFile(final File directory, final int id) {
+        return new File(directory, id + FILE_SUFFIX);
+    }
+
+    static LogSegment create(final File directory, final int id, final int capacity) throws IOException {
+        final File file = getFile(directory, id);
+        final MappedByteBuffer buffer;
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(capacity);
+            buffer = raf.getChannel().map(MapMode.READ_WRITE, 0, capacity);
+        }
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(WRITE_POSITION_OFFSET, SEGMENT_HEADER_LENGTH);
+        buffer.putLong(LIVE_BYTES_OFFSET, 0L);
+        return new LogSegment(id, file, buffer);
+    }
+
+    static LogSegment open(final File file, final int id) throws IOException {
+        final MappedByteBuffer buffer;
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            final FileChannel channel = raf.getChannel();
+            buffer = channel.map(MapMode.READ_WRITE, 0, channel.size());
+        }
+
+        if (buffer.capacity() < SEGMENT_HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+            throw new IOException("File " + file + " is not a valid cache log segment");
+        }
+        return new LogSegment(id, file, buffer);
+    }
+
+    static int getRecordLength(final int keyLength, final int valueLength) {
+        return RECORD_HEADER_LENGTH + keyLength + valueLength;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    int getWritePosition() {
+        return buffer.getInt(WRITE_POSITION_OFFSET);
+    }
+
+    long getLiveBytes() {
+        return buffer.getLong(LIVE_BYTES_OFFSET);
+    }
+
+    void adjustLiveBytes(final long delta) {
+        buffer.putLong(LIVE_BYTES_OFFSET, getLiveBytes() + delta);
+    }
+
+    /**
+     * Resets the header of the segment to reflect the records that were found by {@link #scan(RecordVisitor)}, for use
+     * when the header cannot be trusted because the cache was not shut down cleanly
+     */
+    void resetHeader(final int writePosition, final long liveBytes) {
+        buffer.putInt(WRITE_POSITION_OFFSET, writePosition);
+        buffer.putLong(LIVE_BYTES_OFFSET, liveBytes);
+    }
+
+    boolean hasRoomFor(final int recordLength) {
+        return (long) getWritePosition() + recordLength <= buffer.capacity();
+    }
+
+    /**
+     * Appends a record to the segment. The caller must first ensure that there is room for it.
+     *
+     * @return the offset of the record within the segment
+     */
+    int append(final byte type, final ByteBuffer key, final ByteBuffer value) {
+        final int offset = getWritePosition();
+        final int keyLength = key.remaining();
+        final int valueLength = value == null ? 0 : value.remaining();
+
+        final ByteBuffer out = buffer.duplicate();
+        out.position(offset + RECORD_HEADER_LENGTH);
+        out.put(key.duplicate());
+        if (value != null) {
+            out.put(value.duplicate());
+        }
+
+        buffer.put(offset, type);
+        buffer.putInt(offset + 1, keyLength);
+        buffer.putInt(offset + 5, valueLength);
+        buffer.putInt(offset + 9, checksum(offset, keyLength, valueLength));
+
+        buffer.putInt(WRITE_POSITION_OFFSET, offset + getRecordLength(keyLength, valueLength));
+        return offset;
+    }
+
+    byte getType(final int offset) {
+        return buffer.get(offset);
+    }
+
+    int getKeyLength(final int offset) {
+        return buffer.getInt(offset + 1);
+    }
+
+    int getValueLength(final int offset) {
+        return buffer.getInt(offset + 5);
+    }
+
+    int getRecordLength(final int offset) {
+        return getRecordLength(getKeyLength(offset), getValueLength(offset));
+    }
+
+    boolean keyEquals(final int offset, final ByteBuffer key) {
+        final int keyLength = getKeyLength(offset);
+        if (keyLength != key.remaining()) {
+            return false;
+        }
+
+        final ByteBuffer storedKey = buffer.duplicate();
+        storedKey.position(offset + RECORD_HEADER_LENGTH);
+        storedKey.limit(offset + RECORD_HEADER_LENGTH + keyLength);
+        return storedKey.equals(key);
+    }
+
+    /**
+     * @return a copy of the key of the record at the given offset, backed by an array on the heap
+     */
+    ByteBuffer readKey(final int offset) {
+        return copy(offset + RECORD_HEADER_LENGTH, getKeyLength(offset));
+    }
+
+    /**
+     * @return a copy of the value of the record at the given offset, backed by an array on the heap
+     */
+    ByteBuffer readValue(final int offset) {
+        return copy(offset + RECORD_HEADER_LENGTH + getKeyLength(offset), getValueLength(offset));
+    }
+
+    private ByteBuffer copy(final int position, final int length) {
+        final ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.limit(position + length);
+
+        final byte[] copy = new byte[length];
+        source.get(copy);
+        return ByteBuffer.wrap(copy);
+    }
+
+    private int checksum(final int offset, final int keyLength, final int valueLength) {
+        final ByteBuffer header = buffer.duplicate();
+        header.position(offset);
+        header.limit(offset + 9);
+
+        final ByteBuffer body = buffer.duplicate();
+        body.position(offset + RECORD_HEADER_LENGTH);
+        body.limit(offset + RECORD_HEADER_LENGTH + keyLength + valueLength);
+
+        final CRC32 crc = new CRC32();
+        crc.update(header);
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Visits each intact record in the segment, in the order in which they were written, stopping at the end of the
+     * records or at the first record that is incomplete or fails its checksum.
+     *
+     * @return the offset just past the last intact record
+     */
+    int scan(final RecordVisitor visitor) throws IOException {
+        int offset = SEGMENT_HEADER_LENGTH;
+        while (offset + RECORD_HEADER_LENGTH <= buffer.capacity()) {
+            final byte type = getType(offset);
+            if (type != PUT && type != DELETE) {
+                break;
+            }
+
+            final int keyLength = getKeyLength(offset);
+            final int valueLength = getValueLength(offset);
+            if (keyLength < 0 || valueLength < 0 || (long) offset + getRecordLength(keyLength, valueLength) > buffer.capacity()) {
+                break;
+            }
+            if (buffer.getInt(offset + 9) != checksum(offset, keyLength, valueLength)) {
+                break;
+            }
+
+            visitor.visit(this, offset, type);
+            offset += getRecordLength(keyLength, valueLength);
+        }
+
+        return offset;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Deletes the file that backs this segment. The segment must not be used afterward.
+     */
+    boolean delete() {
+        return file.delete();
+    }
+
+    @Override
+    public String toString() {
+        return "LogSegment[id=" + id + ", file=" + file + "]";
+    }
+
+    interface RecordVisitor {
+        void visit(LogSegment segment, int offset, byte type) throws IOException;
+    }
+}
@@ -27,6 +27,8 @@ import javax.net.ssl.SSLContext;
 
 import org.apache.nifi.distributed.cache.server.AbstractCacheServer;
 import org.apache.nifi.distributed.cache.server.EvictionPolicy;
+import org.apache.nifi.remote.StandardVersionNegotiator;
+import org.apache.nifi.remote.VersionNegotiator;
 import org.apache.nifi.stream.io.DataOutputStream;
 
 public class MapCacheServer extends AbstractCacheServer {
@@ -35,19 +37,62 @@ public class MapCacheServer extends AbstractCacheServer {
 
     public MapCacheServer(final String identifier, final SSLContext sslContext, final int port, final int maxSize,
             final EvictionPolicy evictionPolicy, final File persistencePath) throws IOException {
+        this(identifier, sslContext, port, maxSize, evictionPolicy, persistencePath, 1);
+    }
+
+    public MapCacheServer(final String identifier, final SSLContext sslContext, final int port, final int maxSize,
+            final EvictionPolicy evictionPolicy, final File persistencePath, final int concurrencyLevel) throws IOException {
+        this(identifier, sslContext, port, maxSize, evictionPolicy, persistencePath, concurrencyLevel, PersistenceStrategy.WRITE_AHEAD_LOG);
+    }
+
+    public MapCacheServer(final String identifier, final SSLContext sslContext, final int port, final int maxSize, final EvictionPolicy evictionPolicy,
+            final File persistencePath, final int concurrencyLevel, final PersistenceStrategy persistenceStrategy) throws IOException {
         super(identifier, sslContext, port);
 
-        final MapCache simpleCache = new SimpleMapCache(identifier, maxSize, evictionPolicy);
+        if (persistencePath != null && persistenceStrategy == PersistenceStrategy.MEMORY_MAPPED_LOG) {
+            // the memory-mapped cache holds its entries in the log itself, rather than in a separate in-memory cache
+            this.cache = new MemoryMappedMapCache(identifier, persistencePath, maxSize, evictionPolicy);
+            return;
+        }
+
+        // With a single shard, the SimpleMapCache is used, as it always evicts exactly the entry that the eviction policy ranks first.
+        final MapCache inMemoryCache;
+        if (concurrencyLevel > 1) {
+            inMemoryCache = new ShardedMapCache(identifier, maxSize, evictionPolicy, concurrencyLevel);
+        } else {
+            inMemoryCache = new SimpleMapCache(identifier, maxSize, evictionPolicy);
+        }
 
         if (persistencePath == null) {
-            this.cache = simpleCache;
+            this.cache = inMemoryCache;
         } else {
-            final PersistentMapCache persistentCache = new PersistentMapCache(identifier, persistencePath, simpleCache);
+            final PersistentMapCache persistentCache = new PersistentMapCache(identifier, persistencePath, inMemoryCache);
             persistentCache.restore();
             this.cache = persistentCache;
         }
     }
 
+    /**
+     * The ways in which the cache can be persisted, when a persistence path is given
+     */
+    public enum PersistenceStrategy {
+        /**
+         * The entries are held on the heap, and every change is journaled to a write-ahead log that is replayed on restart
+         */
+        WRITE_AHEAD_LOG,
+
+        /**
+         * The entries are held off the heap, in a memory-mapped log with a memory-mapped index. See {@link MemoryMappedMapCache}.
+         */
+        MEMORY_MAPPED_LOG
+    }
+
+    @Override
+    protected VersionNegotiator createVersionNegotiator() {
+        // Version 2 adds the getAll, putAll and removeAll requests, which operate on many keys in a single round trip
+        return new StandardVersionNegotiator(2, 1);
+    }
+
     @Override
     protected boolean listen(final InputStream in, final OutputStream out, final int version) throws IOException {
         final DataInputStream dis = new DataInputStream(in);
@@ -116,6 +161,46 @@ public class MapCacheServer extends AbstractCacheServer {
                 dos.writeBoolean(removed);
                 break;
             }
+            case "getAll": {
+                requireVersion(action, version, 2);
+                final int numKeys = dis.readInt();
+                for (int i = 0; i < numKeys; i++) {
+                    final byte[] key = readValue(dis);
+                    final ByteBuffer existingValue = cache.get(ByteBuffer.wrap(key));
+                    if (existingValue == null) {
+                        dos.writeInt(0);
+                    } else {
+                        final byte[] byteArray = existingValue.array();
+                        dos.writeInt(byteArray.length);
+                        dos.write(byteArray);
+                    }
+                }
+                break;
+            }
+            case "putAll": {
+                requireVersion(action, version, 2);
+                final int numEntries = dis.readInt();
+                for (int i = 0; i < numEntries; i++) {
+                    final byte[] key = readValue(dis);
+                    final byte[] value = readValue(dis);
+                    cache.put(ByteBuffer.wrap(key), ByteBuffer.wrap(value));
+                }
+                dos.writeBoolean(true);
+                break;
+            }
+            case "removeAll": {
+                requireVersion(action, version, 2);
+                final int numKeys = dis.readInt();
+                long removed = 0L;
+                for (int i = 0; i < numKeys; i++) {
+                    final byte[] key = readValue(dis);
+                    if (cache.remove(ByteBuffer.wrap(key)) != null) {
+                        removed++;
+                    }
+                }
+                dos.writeLong(removed);
+                break;
+            }
             default: {
                 throw new IOException("Illegal Request");
             }
@@ -143,6 +228,12 @@ public class MapCacheServer extends AbstractCacheServer {
         }
     }
 
+    private void requireVersion(final String action, final int version, final int requiredVersion) throws IOException {
+        if (version < requiredVersion) {
+            throw new IOException("Illegal Request: " + action + " requires protocol version " + requiredVersion + " but client negotiated version " + version);
+        }
+    }
+
     private byte[] readValue(final DataInputStream dis) throws IOException {
         final int numBytes = dis.readInt();
         final byte[] buffer = new byte[numBytes];
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.distributed.cache.server.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * <p>
+ * The index of a {@link MemoryMappedMapCache}: an open-addressing hash table, with linear probing, that is held in a
+ * memory-mapped file rather than on the heap. The table has a fixed number of slots, which is chosen when the file is
+ * created so that the table is never more than half full. Each slot holds the location of the newest log record for a
+ * key, the hash of that key, and the statistics that the eviction policy needs. The keys themselves are not held in
+ * the index; a probe compares the key with the one stored in the log.
+ * </p>
+ *
+ * <p>
+ * The file's header records whether the index was closed cleanly. If it was not, the index may not agree with the log
+ * and must be rebuilt by scanning the log.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+class MappedIndex {
+
+    static final String FILE_NAME = "index";
+
+    private static final int MAGIC = 0x4E694D49; // 'NiMI'
+    private static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 64;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int CLEAN_OFFSET = 12;
+    private static final int SIZE_OFFSET = 16;
+
+    // location (8 bytes), hash (4 bytes), hit count (4 bytes), entry date (8 bytes), last hit date (8 bytes)
+    static final int SLOT_LENGTH = 32;
+    private static final int HASH_OFFSET = 8;
+    private static final int HIT_COUNT_OFFSET = 12;
+    private static final int ENTRY_DATE_OFFSET = 16;
+    private static final int LAST_HIT_DATE_OFFSET = 24;
+
+    // a single mapping cannot exceed 2 GB, so large tables are mapped in several chunks
+    private static final int SLOTS_PER_CHUNK_SHIFT = 25;
+    private static final int SLOTS_PER_CHUNK = 1 << SLOTS_PER_CHUNK_SHIFT;
+
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] chunks;
+    private final int capacity;
+    private final int mask;
+    private final boolean recoveredCleanly;
+    private int size;
+
+    private MappedIndex(final MappedByteBuffer header, final MappedByteBuffer[] chunks, final int capacity, final boolean recoveredCleanly) {
+        this.header = header;
+        this.chunks = chunks;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.recoveredCleanly = recoveredCleanly;
+        this.size = recoveredCleanly ? header.getInt(SIZE_OFFSET) : 0;
+    }
+
+    /**
+     * @return the number of slots needed so that the given number of entries never fill more than half of them
+     */
+    static int getCapacityFor(final int maxEntries) {
+        final long minimum = Math.max(16L, 2L * maxEntries);
+        if (minimum > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Cannot create an index for " + maxEntries + " entries");
+        }
+        return Integer.highestOneBit((int) minimum - 1) << 1;
+    }
+
+    /**
+     * Opens the index in the given directory, creating it if it does not exist. If the index exists but was not closed
+     * cleanly, or does not have the given capacity, it is cleared and {@link #isRecoveredCleanly()} returns
+     * <code>false</code>. In any case, the index is marked as not closed cleanly until {@link #close()} is called.
+     */
+    static MappedIndex open(final File directory, final int capacity) throws IOException {
+        final File file = new File(directory, FILE_NAME);
+        final long fileLength = HEADER_LENGTH + (long) capacity * SLOT_LENGTH;
+
+        boolean clean = false;
+        if (file.exists() && file.length() == fileLength) {
+            try (final RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                clean = raf.readInt() == MAGIC && raf.readInt() == VERSION && raf.readInt() == capacity && raf.readInt() == 1;
+            }
+        }
+
+        if (!clean) {
+            // discard whatever is there, as recreating the file is the quickest way to clear every slot
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Unable to delete " + file + " in order to rebuild the cache index");
+            }
+        }
+
+        final MappedByteBuffer header;
+        final int chunkCount = (capacity + SLOTS_PER_CHUNK - 1) / SLOTS_PER_CHUNK;
+        final MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+        try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(fileLength);
+            final FileChannel channel = raf.getChannel();
+            header = channel.map(MapMode.READ_WRITE, 0, HEADER_LENGTH);
+            for (int i = 0; i < chunkCount; i++) {
+                final long slots = Math.min(SLOTS_PER_CHUNK, capacity - (long) i * SLOTS_PER_CHUNK);
+                chunks[i] = channel.map(MapMode.READ_WRITE, HEADER_LENGTH + (long) i * SLOTS_PER_CHUNK * SLOT_LENGTH, slots * SLOT_LENGTH);
+            }
+        }
+
+        header.putInt(0, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(CAPACITY_OFFSET, capacity);
+        header.putInt(CLEAN_OFFSET, 0);
+        header.force();
+
+        return new MappedIndex(header, chunks, capacity, clean);
+    }
+
+    boolean isRecoveredCleanly() {
+        return recoveredCleanly;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Computes the hash that the index uses for a key, from the key's own hash code
+     */
+    static int hash(final int hashCode) {
+        final int h = hashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the slot at which a search for an entry with the given hash begins
+     */
+    int getHomeSlot(final int hash) {
+        return hash & mask;
+    }
+
+    int nextSlot(final int slot) {
+        return (slot + 1) & mask;
+    }
+
+    private MappedByteBuffer chunk(final int slot) {
+        return chunks[slot >>> SLOTS_PER_CHUNK_SHIFT];
+    }
+
+    private int position(final int slot) {
+        return (slot & (SLOTS_PER_CHUNK - 1)) * SLOT_LENGTH;
+    }
+
+    boolean isOccupied(final int slot) {
+        return getLocation(slot) != 0L;
+    }
+
+    long getLocation(final int slot) {
+        return chunk(slot).getLong(position(slot));
+    }
+
+    void setLocation(final int slot, final long location) {
+        chunk(slot).putLong(position(slot), location);
+    }
+
+    int getHash(final int slot) {
+        return chunk(slot).getInt(position(slot) + HASH_OFFSET);
+    }
+
+    int getHitCount(final int slot) {
+        return chunk(slot).getInt(position(slot) + HIT_COUNT_OFFSET);
+    }
+
+    long getEntryDate(final int slot) {
+        return chunk(slot).getLong(position(slot) + ENTRY_DATE_OFFSET);
+    }
+
+    long getLastHitDate(final int slot) {
+        return chunk(slot).getLong(position(slot) + LAST_HIT_DATE_OFFSET);
+    }
+
+    void hit(final int slot, final long timestamp) {
+        final MappedByteBuffer chunk = chunk(slot);
+        final int position = position(slot);
+        chunk.putInt(position + HIT_COUNT_OFFSET, chunk.getInt(position + HIT_COUNT_OFFSET) + 1);
+        chunk.putLong(position + LAST_HIT_DATE_OFFSET, timestamp);
+    }
+
+    /**
+     * Fills the given empty slot with a new entry
+     */
+    void insert(final int slot, final long location, final int hash, final long timestamp) {
+        writeSlot(slot, location, hash, 0, timestamp, timestamp);
+        size++;
+        header.putInt(SIZE_OFFSET, size);
+    }
+
+    /**
+     * Replaces the entry in the given slot with a new one, as when a new value is put for the key
+     */
+    void replace(final int slot, final long location, final long timestamp) {
+        writeSlot(slot, location, getHash(slot), 0, timestamp, timestamp);
+    }
+
+    private void writeSlot(final int slot, final long location, final int hash, final int hitCount, final long entryDate, final long lastHitDate) {
+        final MappedByteBuffer chunk = chunk(slot);
+        final int position = position(slot);
+        chunk.putLong(position, location);
+        chunk.putInt(position + HASH_OFFSET, hash);
+        chunk.putInt(position + HIT_COUNT_OFFSET, hitCount);
+        chunk.putLong(position + ENTRY_DATE_OFFSET, entryDate);
+        chunk.putLong(position + LAST_HIT_DATE_OFFSET, lastHitDate);
+    }
+
+    /**
+     * Empties the given slot. Entries that follow it in the same run of occupied slots are moved back as necessary, so
+     * that every entry can still be reached from its home slot without any deletion markers.
+     */
+    void remove(final int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = nextSlot(next);
+            if (!isOccupied(next)) {
+                break;
+            }
+
+            // The entry at 'next' may stay where it is only if its home slot lies cyclically within (hole, next]
+            final int home = getHomeSlot(getHash(next));
+            final boolean reachable = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+            if (reachable) {
+                continue;
+            }
+
+            writeSlot(hole, getLocation(next), getHash(next), getHitCount(next), getEntryDate(next), getLastHitDate(next));
+            hole = next;
+        }
+
+        writeSlot(hole, 0L, 0, 0, 0L, 0L);
+        size--;
+        header.putInt(SIZE_OFFSET, size);
+    }
+
+    /**
+     * Writes all changes to disk and marks the index as closed cleanly. The index must not be used afterward.
+     */
+    void close() {
+        for (final MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        header.putInt(SIZE_OFFSET, size);
+        header.putInt(CLEAN_OFFSET, 1);
+        header.force();
+    }
+}
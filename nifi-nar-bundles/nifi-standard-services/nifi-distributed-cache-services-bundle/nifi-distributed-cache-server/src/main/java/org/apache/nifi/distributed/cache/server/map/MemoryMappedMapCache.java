@@ -0,0 +1,616 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.distributed.cache.server.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.nifi.distributed.cache.server.EvictionPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A persistent MapCache that keeps its keys and values out of the JVM heap. Every change is appended to a log that is
+ * made up of memory-mapped {@link LogSegment}s, and a {@link MappedIndex}, which is itself a memory-mapped file, maps
+ * each key to the location of its newest record in the log. The only objects that the cache creates on the heap are
+ * the copies of keys and values that it returns, so the size of the cache is limited by disk space and the operating
+ * system's page cache rather than by the heap, and the cache adds little work for the garbage collector.
+ * </p>
+ *
+ * <p>
+ * When the cache is shut down cleanly, the index is written to disk and marked as such, so the cache can be reopened
+ * without reading the log at all. If the cache was not shut down cleanly, the index is rebuilt by scanning the log.
+ * As with the {@link PersistentMapCache}, changes are not forced to disk as they are made, so the changes made just
+ * before the operating system fails may be lost.
+ * </p>
+ *
+ * <p>
+ * Records that are replaced or removed leave garbage in the log. A background task periodically compacts the segment
+ * that holds the greatest proportion of garbage, by copying its live records to the end of the log, and then deletes
+ * it. Deletion records are copied along with the live records only while an older segment might still hold a value
+ * that they delete.
+ * </p>
+ *
+ * <p>
+ * Like the {@link ShardedMapCache}, when the cache is full this cache evicts the entry that the {@link EvictionPolicy}
+ * ranks first among a small random sample of its entries.
+ * </p>
+ */
+public class MemoryMappedMapCache implements MapCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryMappedMapCache.class);
+
+    static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    static final long DEFAULT_COMPACTION_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(30L);
+
+    // a segment is compacted once no more than this fraction of its records are still live
+    static final double COMPACTION_THRESHOLD = 0.5D;
+
+    // the number of entries that are compared in order to choose one to evict
+    static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final String serviceIdentifier;
+    private final File directory;
+    private final int maxSize;
+    private final EvictionPolicy evictionPolicy;
+    private final int segmentSize;
+
+    private final Lock lock = new ReentrantLock();
+    private final TreeMap<Integer, LogSegment> segments = new TreeMap<>();
+    private MappedIndex index;
+    private LogSegment activeSegment;
+    private boolean shutdown = false;
+
+    private final ScheduledExecutorService compactionExecutor;
+
+    public MemoryMappedMapCache(final String serviceIdentifier, final File directory, final int maxSize, final EvictionPolicy evictionPolicy) throws IOException {
+        this(serviceIdentifier, directory, maxSize, evictionPolicy, DEFAULT_SEGMENT_SIZE, DEFAULT_COMPACTION_PERIOD_MILLIS);
+    }
+
+    /**
+     * @param compactionPeriodMillis how often to compact the log, or 0 to compact only when {@link #compact()} is called
+     */
+    public MemoryMappedMapCache(final String serviceIdentifier, final File directory, final int maxSize, final EvictionPolicy evictionPolicy,
+            final int segmentSize, final long compactionPeriodMillis) throws IOException {
+        if (segmentSize <= LogSegment.SEGMENT_HEADER_LENGTH + LogSegment.RECORD_HEADER_LENGTH) {
+            throw new IllegalArgumentException("Segment size of " + segmentSize + " bytes is too small");
+        }
+
+        this.serviceIdentifier = serviceIdentifier;
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.evictionPolicy = evictionPolicy;
+        this.segmentSize = segmentSize;
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+
+        open();
+
+        if (compactionPeriodMillis > 0) {
+            compactionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName("Compact " + serviceIdentifier + " Map Cache");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactionExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    compact();
+                } catch (final Throwable t) {
+                    logger.error("{} failed to compact log", new Object[] {this, t});
+                }
+            }, compactionPeriodMillis, compactionPeriodMillis, TimeUnit.MILLISECONDS);
+        } else {
+            compactionExecutor = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryMappedMapCache[service id=" + serviceIdentifier + ", directory=" + directory + "]";
+    }
+
+    private void open() throws IOException {
+        final File[] segmentFiles = directory.listFiles((dir, name) -> name.endsWith(LogSegment.FILE_SUFFIX));
+        if (segmentFiles != null) {
+            for (final File segmentFile : segmentFiles) {
+                final String name = segmentFile.getName();
+                final int id;
+                try {
+                    id = Integer.parseInt(name.substring(0, name.length() - LogSegment.FILE_SUFFIX.length()));
+                } catch (final NumberFormatException nfe) {
+                    continue;
+                }
+                segments.put(id, LogSegment.open(segmentFile, id));
+            }
+        }
+
+        index = MappedIndex.open(directory, MappedIndex.getCapacityFor(maxSize));
+        if (segments.isEmpty()) {
+            activeSegment = createSegment(1, 0);
+            return;
+        }
+
+        activeSegment = segments.lastEntry().getValue();
+        if (index.isRecoveredCleanly()) {
+            logger.info("{} restored {} entries from {} log segments", new Object[] {this, index.size(), segments.size()});
+        } else {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * Rebuilds the index, which is empty, by replaying the entire log. Because compaction only ever moves live records,
+     * and the deletion records that they may depend upon, to the end of the log, replaying the segments in order always
+     * leaves the newest value for each key in the index.
+     */
+    private void rebuildIndex() throws IOException {
+        final long start = System.nanoTime();
+        final long timestamp = System.currentTimeMillis();
+        final List<ByteBuffer> evictedKeys = new ArrayList<>();
+
+        // the segment headers cannot be trusted either, so the live bytes are counted up again as the log is replayed
+        for (final LogSegment segment : segments.values()) {
+            segment.resetHeader(LogSegment.SEGMENT_HEADER_LENGTH, 0L);
+        }
+
+        for (final LogSegment segment : segments.values()) {
+            final int endOfRecords = segment.scan((scanned, offset, type) -> {
+                final ByteBuffer key = scanned.readKey(offset);
+                final int slot = find(key);
+                if (slot >= 0) {
+                    release(index.getLocation(slot));
+                    if (type == LogSegment.PUT) {
+                        index.replace(slot, location(scanned, offset), timestamp);
+                    } else {
+                        index.remove(slot);
+                    }
+                } else if (type == LogSegment.PUT) {
+                    if (index.size() >= maxSize) {
+                        // the cache may have been shrunk since these records were written
+                        evictedKeys.add(removeSlot(chooseEvictionVictim()));
+                    }
+                    index.insert(emptySlotFor(key), location(scanned, offset), MappedIndex.hash(key.hashCode()), timestamp);
+                }
+
+                if (type == LogSegment.PUT) {
+                    scanned.adjustLiveBytes(scanned.getRecordLength(offset));
+                }
+            });
+
+            segment.resetHeader(endOfRecords, segment.getLiveBytes());
+        }
+
+        for (final ByteBuffer evictedKey : evictedKeys) {
+            // a key that was evicted may have been put again later in the log
+            if (find(evictedKey) < 0) {
+                append(LogSegment.DELETE, evictedKey, null);
+            }
+        }
+
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("{} was not shut down cleanly; rebuilt index of {} entries from {} log segments in {} millis",
+            new Object[] {this, index.size(), segments.size(), millis});
+    }
+
+    @Override
+    public MapPutResult putIfAbsent(final ByteBuffer key, final ByteBuffer value) throws IOException {
+        lock.lock();
+        try {
+            verifyNotShutdown();
+            final int slot = find(key);
+            if (slot >= 0) {
+                index.hit(slot, System.currentTimeMillis());
+                return new MapPutResult(false, key, value, readValue(index.getLocation(slot)), null, null);
+            }
+
+            return add(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public MapPutResult put(final ByteBuffer key, final ByteBuffer value) throws IOException {
+        lock.lock();
+        try {
+            verifyNotShutdown();
+            final int slot = find(key);
+            if (slot < 0) {
+                return add(key, value);
+            }
+
+            final long existingLocation = index.getLocation(slot);
+            final ByteBuffer existingValue = readValue(existingLocation);
+            final long newLocation = append(LogSegment.PUT, key, value);
+            release(existingLocation);
+            index.replace(slot, newLocation, System.currentTimeMillis());
+            return new MapPutResult(true, key, value, existingValue, null, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MapPutResult add(final ByteBuffer key, final ByteBuffer value) throws IOException {
+        ByteBuffer evictedKey = null;
+        ByteBuffer evictedValue = null;
+        if (index.size() >= maxSize) {
+            final int victim = chooseEvictionVictim();
+            evictedValue = readValue(index.getLocation(victim));
+            evictedKey = removeSlot(victim);
+            append(LogSegment.DELETE, evictedKey, null);
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Evicting value {} from cache", new Object[] {evictedValue});
+            }
+        }
+
+        final long location = append(LogSegment.PUT, key, value);
+        index.insert(emptySlotFor(key), location, MappedIndex.hash(key.hashCode()), System.currentTimeMillis());
+        return new MapPutResult(true, key, value, null, evictedKey, evictedValue);
+    }
+
+    @Override
+    public boolean containsKey(final ByteBuffer key) throws IOException {
+        lock.lock();
+        try {
+            verifyNotShutdown();
+            final int slot = find(key);
+            if (slot < 0) {
+                return false;
+            }
+
+            index.hit(slot, System.currentTimeMillis());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ByteBuffer get(final ByteBuffer key) throws IOException {
+        lock.lock();
+        try {
+            verifyNotShutdown();
+            final int slot = find(key);
+            if (slot < 0) {
+                return null;
+            }
+
+            index.hit(slot, System.currentTimeMillis());
+            return readValue(index.getLocation(slot));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ByteBuffer remove(final ByteBuffer key) throws IOException {
+        lock.lock();
+        try {
+            verifyNotShutdown();
+            final int slot = find(key);
+            if (slot < 0) {
+                return null;
+            }
+
+            final ByteBuffer value = readValue(index.getLocation(slot));
+            append(LogSegment.DELETE, key, null);
+            removeSlot(slot);
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() throws IOException {
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdown();
+            try {
+                compactionExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        lock.lock();
+        try {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+
+            for (final LogSegment segment : segments.values()) {
+                segment.force();
+            }
+            index.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of entries in the cache
+     */
+    int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of segments that make up the log
+     */
+    int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compacts each segment, other than the one being written to, in which no more than {@link #COMPACTION_THRESHOLD}
+     * of the bytes belong to live records. The live records are copied to the end of the log, a few at a time so that
+     * clients are not blocked for long, and then the segment is deleted.
+     */
+    void compact() throws IOException {
+        while (true) {
+            final LogSegment segment;
+            final boolean olderSegmentExists;
+            lock.lock();
+            try {
+                if (shutdown) {
+                    return;
+                }
+
+                segment = chooseSegmentToCompact();
+                if (segment == null) {
+                    return;
+                }
+                olderSegmentExists = segments.firstKey() < segment.getId();
+            } finally {
+                lock.unlock();
+            }
+
+            // The segment can be read without holding the lock, as nothing is written to it once it is no longer active
+            segment.scan((scanned, offset, type) -> {
+                lock.lock();
+                try {
+                    if (shutdown) {
+                        throw new IOException(this + " was shut down during compaction");
+                    }
+
+                    final ByteBuffer key = scanned.readKey(offset);
+                    final int slot = find(key);
+                    if (type == LogSegment.PUT) {
+                        final long location = location(scanned, offset);
+                        if (slot >= 0 && index.getLocation(slot) == location) {
+                            final long newLocation = append(LogSegment.PUT, key, scanned.readValue(offset));
+                            release(location);
+                            index.setLocation(slot, newLocation);
+                        }
+                    } else if (slot < 0 && olderSegmentExists) {
+                        // an older segment may still hold a value for the key, which this record must continue to delete
+                        append(LogSegment.DELETE, key, null);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            });
+
+            lock.lock();
+            try {
+                segments.remove(segment.getId());
+            } finally {
+                lock.unlock();
+            }
+
+            if (!segment.delete()) {
+                logger.warn("{} compacted {} but was unable to delete it", new Object[] {this, segment});
+            } else {
+                logger.debug("{} compacted and deleted {}", new Object[] {this, segment});
+            }
+        }
+    }
+
+    private LogSegment chooseSegmentToCompact() {
+        LogSegment chosen = null;
+        double chosenRatio = COMPACTION_THRESHOLD;
+        for (final LogSegment segment : segments.values()) {
+            if (segment == activeSegment) {
+                continue;
+            }
+
+            final int recordBytes = segment.getWritePosition() - LogSegment.SEGMENT_HEADER_LENGTH;
+            final double liveRatio = recordBytes == 0 ? 0D : (double) segment.getLiveBytes() / recordBytes;
+            if (liveRatio <= chosenRatio) {
+                chosen = segment;
+                chosenRatio = liveRatio;
+            }
+        }
+        return chosen;
+    }
+
+    private void verifyNotShutdown() throws IOException {
+        if (shutdown) {
+            throw new IOException(this + " has been shut down");
+        }
+    }
+
+    private static long location(final LogSegment segment, final int offset) {
+        return ((long) segment.getId() << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private LogSegment segmentOf(final long location) {
+        return segments.get((int) (location >>> 32));
+    }
+
+    private static int offsetOf(final long location) {
+        return (int) location;
+    }
+
+    private ByteBuffer readValue(final long location) {
+        return segmentOf(location).readValue(offsetOf(location));
+    }
+
+    private ByteBuffer readKey(final long location) {
+        return segmentOf(location).readKey(offsetOf(location));
+    }
+
+    /**
+     * Accounts for the record at the given location no longer being referenced by the index
+     */
+    private void release(final long location) {
+        final LogSegment segment = segmentOf(location);
+        segment.adjustLiveBytes(-segment.getRecordLength(offsetOf(location)));
+    }
+
+    /**
+     * @return the slot that holds the entry for the given key, or -1 if there is none
+     */
+    private int find(final ByteBuffer key) {
+        final int hash = MappedIndex.hash(key.hashCode());
+        int slot = index.getHomeSlot(hash);
+        while (index.isOccupied(slot)) {
+            if (index.getHash(slot) == hash) {
+                final long location = index.getLocation(slot);
+                if (segmentOf(location).keyEquals(offsetOf(location), key)) {
+                    return slot;
+                }
+            }
+            slot = index.nextSlot(slot);
+        }
+        return -1;
+    }
+
+    /**
+     * @return the empty slot into which a new entry for the given key, which is not in the index, should be inserted
+     */
+    private int emptySlotFor(final ByteBuffer key) {
+        int slot = index.getHomeSlot(MappedIndex.hash(key.hashCode()));
+        while (index.isOccupied(slot)) {
+            slot = index.nextSlot(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Removes the entry in the given slot from the index
+     *
+     * @return the key of the removed entry
+     */
+    private ByteBuffer removeSlot(final int slot) {
+        final long location = index.getLocation(slot);
+        final ByteBuffer key = readKey(location);
+        release(location);
+        index.remove(slot);
+        return key;
+    }
+
+    /**
+     * Appends a record to the log, starting a new segment if the active one is full
+     *
+     * @return the location of the record
+     */
+    private long append(final byte type, final ByteBuffer key, final ByteBuffer value) throws IOException {
+        final int recordLength = LogSegment.getRecordLength(key.remaining(), value == null ? 0 : value.remaining());
+        if (!activeSegment.hasRoomFor(recordLength)) {
+            activeSegment = createSegment(activeSegment.getId() + 1, recordLength);
+        }
+
+        final int offset = activeSegment.append(type, key, value);
+        if (type == LogSegment.PUT) {
+            activeSegment.adjustLiveBytes(recordLength);
+        }
+        return location(activeSegment, offset);
+    }
+
+    private LogSegment createSegment(final int id, final int recordLength) throws IOException {
+        // a record that does not fit in a segment of the usual size is given a segment of its own
+        final long capacity = Math.max(segmentSize, (long) LogSegment.SEGMENT_HEADER_LENGTH + recordLength);
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IOException("Cannot store a record of " + recordLength + " bytes");
+        }
+
+        final LogSegment segment = LogSegment.create(directory, id, (int) capacity);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * @return the slot of the entry that the eviction policy ranks first among a random sample of the entries
+     */
+    private int chooseEvictionVictim() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int capacity = index.getCapacity();
+
+        int victim = -1;
+        for (int sampled = 0; sampled < EVICTION_SAMPLE_SIZE; sampled++) {
+            // the index is never more than half full, so an occupied slot is found quickly
+            int slot = random.nextInt(capacity);
+            while (!index.isOccupied(slot)) {
+                slot = index.nextSlot(slot);
+            }
+
+            if (victim < 0 || ranksBefore(slot, victim)) {
+                victim = slot;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Compares two entries in the same way as the {@link EvictionPolicy}'s comparator, which cannot be used directly
+     * because the entries are not held as CacheRecords
+     */
+    private boolean ranksBefore(final int slot, final int other) {
+        switch (evictionPolicy) {
+            case LFU: {
+                final int hitCountComparison = Integer.compare(index.getHitCount(slot), index.getHitCount(other));
+                if (hitCountComparison != 0) {
+                    return hitCountComparison < 0;
+                }
+                return index.getEntryDate(slot) < index.getEntryDate(other);
+            }
+            case LRU:
+                return index.getLastHitDate(slot) < index.getLastHitDate(other);
+            case FIFO:
+            default:
+                return index.getEntryDate(slot) < index.getEntryDate(other);
+        }
+    }
+
+}
@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.distributed.cache.server.map;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.nifi.distributed.cache.server.CacheRecord;
+import org.apache.nifi.distributed.cache.server.EvictionPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A MapCache that spreads its entries across a number of shards, each of which is guarded by its own lock, so that
+ * clients whose keys fall into different shards do not contend with one another. Looking up an entry holds the lock
+ * of its shard only long enough to find the entry; recording the hit does not require any lock.
+ * </p>
+ *
+ * <p>
+ * Unlike the {@link SimpleMapCache}, this cache does not keep its entries sorted in eviction order, as doing so would
+ * require every access to update a structure that is shared by all shards. Instead, when the cache is full, a small
+ * random sample of its entries is taken and the entry that the {@link EvictionPolicy} ranks first among the sample is
+ * evicted. The entry that is evicted is therefore not necessarily the least recently used, least frequently used, or
+ * oldest entry in the cache, but it is very likely to rank ahead of most of the other entries, and the cost of finding
+ * it does not grow with the size of the cache.
+ * </p>
+ */
+public class ShardedMapCache implements MapCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedMapCache.class);
+
+    // the number of entries that are compared in order to choose one to evict
+    static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final String serviceIdentifier;
+    private final int maxSize;
+    private final Comparator<CacheRecord> evictionComparator;
+    private final Shard[] shards;
+
+    // the number of entries in the cache, plus the number that are about to be added, so that the cache never holds more than maxSize entries
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    public ShardedMapCache(final String serviceIdentifier, final int maxSize, final EvictionPolicy evictionPolicy, final int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+
+        this.serviceIdentifier = serviceIdentifier;
+        this.maxSize = maxSize;
+        this.evictionComparator = evictionPolicy.getComparator();
+
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedMapCache[service id=" + serviceIdentifier + ", shards=" + shards.length + "]";
+    }
+
+    private Shard getShard(final ByteBuffer key) {
+        // mix the high-order bits of the hash code into the low-order bits, which determine the shard
+        final int hash = key.hashCode();
+        final int spread = hash ^ (hash >>> 16);
+        return shards[(spread & Integer.MAX_VALUE) % shards.length];
+    }
+
+    @Override
+    public MapPutResult putIfAbsent(final ByteBuffer key, final ByteBuffer value) {
+        final Shard shard = getShard(key);
+
+        final MapCacheRecord existing = shard.get(key);
+        if (existing != null) {
+            existing.hit();
+            return new MapPutResult(false, key, value, existing.getValue(), null, null);
+        }
+
+        final MapCacheRecord evicted = reserveCapacity();
+        final MapCacheRecord newRecord = new MapCacheRecord(key, value);
+
+        shard.lock.lock();
+        try {
+            final Entry entry = shard.entries.get(key);
+            if (entry != null) {
+                // another client added the key since we checked. Give back the space that we reserved.
+                size.decrementAndGet();
+                entry.record.hit();
+                return new MapPutResult(false, key, value, entry.record.getValue(), null, null);
+            }
+
+            shard.add(key, newRecord);
+        } finally {
+            shard.lock.unlock();
+        }
+
+        return new MapPutResult(true, key, value, null, evicted == null ? null : evicted.getKey(), evicted == null ? null : evicted.getValue());
+    }
+
+    @Override
+    public MapPutResult put(final ByteBuffer key, final ByteBuffer value) {
+        final Shard shard = getShard(key);
+        final MapCacheRecord record = new MapCacheRecord(key, value);
+
+        // Replacing an existing entry does not change the size of the cache, so nothing needs to be evicted.
+        final MapCacheRecord replaced = shard.replace(key, record);
+        if (replaced != null) {
+            return new MapPutResult(true, key, value, replaced.getValue(), null, null);
+        }
+
+        final MapCacheRecord evicted = reserveCapacity();
+
+        MapCacheRecord existing;
+        shard.lock.lock();
+        try {
+            final Entry entry = shard.entries.get(key);
+            if (entry == null) {
+                shard.add(key, record);
+                existing = null;
+            } else {
+                // another client added the key since we checked. Give back the space that we reserved.
+                size.decrementAndGet();
+                existing = entry.record;
+                entry.record = record;
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+
+        final ByteBuffer existingValue = existing == null ? null : existing.getValue();
+        final ByteBuffer evictedKey = evicted == null ? null : evicted.getKey();
+        final ByteBuffer evictedValue = evicted == null ? null : evicted.getValue();
+        return new MapPutResult(true, key, value, existingValue, evictedKey, evictedValue);
+    }
+
+    @Override
+    public boolean containsKey(final ByteBuffer key) {
+        final MapCacheRecord record = getShard(key).get(key);
+        if (record == null) {
+            return false;
+        }
+
+        record.hit();
+        return true;
+    }
+
+    @Override
+    public ByteBuffer get(final ByteBuffer key) {
+        final MapCacheRecord record = getShard(key).get(key);
+        if (record == null) {
+            return null;
+        }
+
+        record.hit();
+        return record.getValue();
+    }
+
+    @Override
+    public ByteBuffer remove(final ByteBuffer key) throws IOException {
+        final Shard shard = getShard(key);
+
+        final MapCacheRecord removed;
+        shard.lock.lock();
+        try {
+            removed = shard.remove(key);
+        } finally {
+            shard.lock.unlock();
+        }
+
+        if (removed == null) {
+            return null;
+        }
+
+        size.decrementAndGet();
+        return removed.getValue();
+    }
+
+    @Override
+    public void shutdown() throws IOException {
+    }
+
+    /**
+     * @return the number of entries in the cache
+     */
+    int size() {
+        int count = 0;
+        for (final Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                count += shard.records.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reserves room in the cache for one new entry, evicting an entry if the cache is full. No shard lock may be held
+     * by the calling thread, as evicting an entry requires obtaining the lock of the shard that holds it.
+     *
+     * @return the entry that was evicted, or <code>null</code> if there was room for the new entry
+     */
+    private MapCacheRecord reserveCapacity() {
+        MapCacheRecord firstEvicted = null;
+
+        while (true) {
+            final int currentSize = size.get();
+            if (currentSize < maxSize) {
+                if (size.compareAndSet(currentSize, currentSize + 1)) {
+                    return firstEvicted;
+                }
+                continue;
+            }
+
+            final MapCacheRecord evicted = evict();
+            if (evicted == null) {
+                // Every entry that has been counted is still being added by some other client, so there is nothing
+                // that we can evict yet. Rather than waiting, allow the cache to go briefly over its maximum size.
+                size.incrementAndGet();
+                return firstEvicted;
+            }
+
+            if (firstEvicted == null) {
+                firstEvicted = evicted;
+            }
+        }
+    }
+
+    /**
+     * Evicts the entry that the eviction policy ranks first among a random sample of entries
+     *
+     * @return the entry that was evicted, or <code>null</code> if the cache has no entries to evict
+     */
+    private MapCacheRecord evict() {
+        while (true) {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            MapCacheRecord candidate = null;
+            Shard candidateShard = null;
+            for (int sampled = 0; sampled < EVICTION_SAMPLE_SIZE; sampled++) {
+                // start at a random shard, moving on to the next if it is empty
+                final int start = random.nextInt(shards.length);
+                Shard shard = null;
+                MapCacheRecord record = null;
+                for (int i = 0; i < shards.length && record == null; i++) {
+                    shard = shards[(start + i) % shards.length];
+                    shard.lock.lock();
+                    try {
+                        final int recordCount = shard.records.size();
+                        if (recordCount > 0) {
+                            record = shard.records.get(random.nextInt(recordCount)).record;
+                        }
+                    } finally {
+                        shard.lock.unlock();
+                    }
+                }
+
+                if (record == null) {
+                    break;
+                }
+
+                if (candidate == null || evictionComparator.compare(record, candidate) < 0) {
+                    candidate = record;
+                    candidateShard = shard;
+                }
+            }
+
+            if (candidate == null) {
+                return null;
+            }
+
+            candidateShard.lock.lock();
+            try {
+                final Entry entry = candidateShard.entries.get(candidate.getKey());
+                if (entry == null || entry.record != candidate) {
+                    // the entry was removed or replaced while we were sampling; take another sample
+                    continue;
+                }
+                candidateShard.remove(candidate.getKey());
+            } finally {
+                candidateShard.lock.unlock();
+            }
+
+            size.decrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Evicting value {} from cache", new String(candidate.getValue().array(), StandardCharsets.UTF_8));
+            }
+            return candidate;
+        }
+    }
+
+    /**
+     * A portion of the cache. The entries are held both in a map, for lookup by key, and in a list, so that an entry can
+     * be chosen at random for eviction. Both are guarded by the shard's lock.
+     */
+    private static class Shard {
+        private final Lock lock = new ReentrantLock();
+        private final Map<ByteBuffer, Entry> entries = new HashMap<>();
+        private final List<Entry> records = new ArrayList<>();
+
+        private MapCacheRecord get(final ByteBuffer key) {
+            lock.lock();
+            try {
+                final Entry entry = entries.get(key);
+                return entry == null ? null : entry.record;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Replaces the record of the entry with the given key, if there is one
+         *
+         * @return the record that was replaced, or <code>null</code> if there was no entry with the given key
+         */
+        private MapCacheRecord replace(final ByteBuffer key, final MapCacheRecord record) {
+            lock.lock();
+            try {
+                final Entry entry = entries.get(key);
+                if (entry == null) {
+                    return null;
+                }
+
+                final MapCacheRecord replaced = entry.record;
+                entry.record = record;
+                return replaced;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // must be called with the lock held
+        private void add(final ByteBuffer key, final MapCacheRecord record) {
+            final Entry entry = new Entry(record, records.size());
+            entries.put(key, entry);
+            records.add(entry);
+        }
+
+        // must be called with the lock held
+        private MapCacheRecord remove(final ByteBuffer key) {
+            final Entry entry = entries.remove(key);
+            if (entry == null) {
+                return null;
+            }
+
+            // move the last entry into the position of the removed one so that the list need not be shifted
+            final Entry last = records.remove(records.size() - 1);
+            if (last != entry) {
+                last.index = entry.index;
+                records.set(entry.index, last);
+            }
+
+            return entry.record;
+        }
+    }
+
+    private static class Entry {
+        private MapCacheRecord record;
+        private int index;
+
+        private Entry(final MapCacheRecord record, final int index) {
+            this.record = record;
+            this.index = index;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.apache.nifi.distributed.cache.server;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -26,9 +27,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.ConnectException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.SerializationException;
 import org.apache.commons.lang3.SystemUtils;
@@ -39,8 +43,11 @@ import org.apache.nifi.distributed.cache.client.DistributedSetCacheClientService
 import org.apache.nifi.distributed.cache.client.Serializer;
 import org.apache.nifi.distributed.cache.client.exception.DeserializationException;
 import org.apache.nifi.distributed.cache.server.map.DistributedMapCacheServer;
+import org.apache.nifi.distributed.cache.server.map.MapCacheServer;
 import org.apache.nifi.processor.Processor;
 import org.apache.nifi.processor.util.StandardValidators;
+import org.apache.nifi.remote.StandardVersionNegotiator;
+import org.apache.nifi.remote.VersionNegotiator;
 import org.apache.nifi.reporting.InitializationException;
 import org.apache.nifi.util.MockConfigurationContext;
 import org.apache.nifi.util.MockControllerServiceInitializationContext;
@@ -392,6 +399,75 @@ public class TestServerAndClient {
         LOGGER.debug("end testNonPersistentMapServerAndClient");
     }
 
+    @Test
+    public void testMapServerAndClientBatchOperations() throws InitializationException, IOException {
+        LOGGER.info("Testing " + Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        final DistributedMapCacheServer server = new MapServer();
+        final TestRunner runner = TestRunners.newTestRunner(Mockito.mock(Processor.class));
+        runner.addControllerService("server", server);
+        runner.enableControllerService(server);
+
+        try {
+            final DistributedMapCacheClientService client = createMapClient(server.getPort());
+            verifyBatchOperations(client);
+            client.close();
+        } finally {
+            server.shutdownServer();
+        }
+    }
+
+    @Test
+    public void testBatchOperationsWithVersion1Server() throws IOException, InitializationException {
+        LOGGER.info("Testing " + Thread.currentThread().getStackTrace()[1].getMethodName());
+
+        // a server that only speaks version 1 of the protocol, and so does not understand getAll, putAll or removeAll
+        final MapCacheServer server = new MapCacheServer("server", null, 0, 100, EvictionPolicy.FIFO, null) {
+            @Override
+            protected VersionNegotiator createVersionNegotiator() {
+                return new StandardVersionNegotiator(1);
+            }
+        };
+        server.start();
+
+        try {
+            final DistributedMapCacheClientService client = createMapClient(server.getPort());
+            verifyBatchOperations(client);
+            client.close();
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void verifyBatchOperations(final DistributedMapCacheClientService client) throws IOException {
+        final Serializer<String> serializer = new StringSerializer();
+        final Deserializer<String> deserializer = new StringDeserializer();
+
+        final Map<String, String> entries = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            entries.put("key-" + i, "value-" + i);
+        }
+        client.putAll(entries, serializer, serializer);
+        assertEquals("value-42", client.get("key-42", serializer, deserializer));
+
+        final Set<String> keys = new HashSet<>(Arrays.asList("key-1", "key-2", "key-99", "missing"));
+        final Map<String, String> values = client.getAll(keys, serializer, deserializer);
+        assertEquals(4, values.size());
+        assertEquals("value-1", values.get("key-1"));
+        assertEquals("value-2", values.get("key-2"));
+        assertEquals("value-99", values.get("key-99"));
+        assertTrue(values.containsKey("missing"));
+        assertNull(values.get("missing"));
+
+        assertEquals(3L, client.removeAll(keys, serializer));
+        assertFalse(client.containsKey("key-1", serializer));
+        assertTrue(client.containsKey("key-3", serializer));
+
+        // the session remains usable for single-key requests after batch requests
+        assertTrue(client.putIfAbsent("key-1", "new-value", serializer, serializer));
+        assertEquals("new-value", client.get("key-1", serializer, deserializer));
+    }
+
     @Test
     public void testClientTermination() throws InitializationException, IOException, InterruptedException {
 
@@ -457,6 +533,20 @@ public class TestServerAndClient {
         }
     }
 
+    private DistributedMapCacheClientService createMapClient(final int port) throws InitializationException {
+        final DistributedMapCacheClientService client = new DistributedMapCacheClientService();
+        final MockControllerServiceInitializationContext clientInitContext = new MockControllerServiceInitializationContext(client, "client");
+        client.initialize(clientInitContext);
+
+        final Map<PropertyDescriptor, String> clientProperties = new HashMap<>();
+        clientProperties.put(DistributedMapCacheClientService.HOSTNAME, "localhost");
+        clientProperties.put(DistributedMapCacheClientService.PORT, String.valueOf(port));
+        clientProperties.put(DistributedMapCacheClientService.COMMUNICATIONS_TIMEOUT, "360 secs");
+        final MockConfigurationContext clientContext = new MockConfigurationContext(clientProperties, clientInitContext.getControllerServiceLookup());
+        client.cacheConfig(clientContext);
+        return client;
+    }
+
     private DistributedSetCacheClientService createClient(final int port) throws InitializationException {
         final DistributedSetCacheClientService client = new DistributedSetCacheClientService();
         final MockControllerServiceInitializationContext clientInitContext = new MockControllerServiceInitializationContext(client, "client");
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.distributed.cache.server.map;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.distributed.cache.server.EvictionPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the throughput of the SimpleMapCache and the ShardedMapCache when 32 clients use the cache at once in
+ * the manner of DetectDuplicate, each calling putIfAbsent with keys drawn from a key space that is twice the size of
+ * the cache, so that about half of the calls add an entry and cause an eviction. This is not run as part of the
+ * build; to run it, build the test classes with the 'benchmarks' profile enabled and execute the main method from
+ * the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@Threads(32)
+public class MapCacheBenchmark {
+
+    private static final int MAX_CACHE_ENTRIES = 100000;
+    private static final int KEY_COUNT = MAX_CACHE_ENTRIES * 2;
+
+    @State(Scope.Benchmark)
+    public static class CacheState {
+        @Param({"simple", "sharded"})
+        private String cache;
+
+        @Param({"LFU", "LRU"})
+        private String evictionPolicy;
+
+        private MapCache mapCache;
+        private ByteBuffer[] keys;
+        private ByteBuffer value;
+
+        @Setup
+        public void setup() throws IOException {
+            final EvictionPolicy policy = EvictionPolicy.valueOf(evictionPolicy);
+            mapCache = "simple".equals(cache) ? new SimpleMapCache("benchmark", MAX_CACHE_ENTRIES, policy)
+                : new ShardedMapCache("benchmark", MAX_CACHE_ENTRIES, policy, 64);
+
+            keys = new ByteBuffer[KEY_COUNT];
+            for (int i = 0; i < KEY_COUNT; i++) {
+                keys[i] = ByteBuffer.wrap(("a4b5e6f1-9d3c-4f0e-8a2b-" + String.format("%012d", i)).getBytes(StandardCharsets.UTF_8));
+            }
+            value = ByteBuffer.wrap("flowfile description".getBytes(StandardCharsets.UTF_8));
+
+            for (int i = 0; i < MAX_CACHE_ENTRIES; i++) {
+                mapCache.putIfAbsent(keys[i], value);
+            }
+        }
+    }
+
+    @Benchmark
+    public MapPutResult putIfAbsent(final CacheState state) throws IOException {
+        final ByteBuffer key = state.keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+        return state.mapCache.putIfAbsent(key, state.value);
+    }
+
+    @Benchmark
+    public ByteBuffer get(final CacheState state) throws IOException {
+        final ByteBuffer key = state.keys[ThreadLocalRandom.current().nextInt(KEY_COUNT)];
+        return state.mapCache.get(key);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+            .include(MapCacheBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+}
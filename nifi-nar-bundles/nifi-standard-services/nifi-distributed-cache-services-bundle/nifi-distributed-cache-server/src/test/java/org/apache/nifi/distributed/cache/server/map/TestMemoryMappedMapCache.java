@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.distributed.cache.server.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.nifi.distributed.cache.server.EvictionPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMemoryMappedMapCache {
+
+    private final File directory = new File("target/mapped-cache-data");
+
+    @Before
+    public void setup() throws IOException {
+        deleteRecursively(directory);
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        deleteRecursively(directory);
+    }
+
+    private static ByteBuffer bytes(final String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MemoryMappedMapCache createCache(final int maxSize, final int segmentSize) throws IOException {
+        return new MemoryMappedMapCache("id", directory, maxSize, EvictionPolicy.LRU, segmentSize, 0L);
+    }
+
+    @Test
+    public void testPutGetRemove() throws IOException {
+        final MemoryMappedMapCache cache = createCache(100, 4096);
+        try {
+            assertNull(cache.get(bytes("a")));
+            assertFalse(cache.containsKey(bytes("a")));
+
+            MapPutResult result = cache.putIfAbsent(bytes("a"), bytes("1"));
+            assertTrue(result.isSuccessful());
+            assertNull(result.getExistingValue());
+
+            result = cache.putIfAbsent(bytes("a"), bytes("2"));
+            assertFalse(result.isSuccessful());
+            assertEquals(bytes("1"), result.getExistingValue());
+
+            result = cache.put(bytes("a"), bytes("3"));
+            assertTrue(result.isSuccessful());
+            assertEquals(bytes("1"), result.getExistingValue());
+            assertEquals(bytes("3"), cache.get(bytes("a")));
+            assertTrue(cache.containsKey(bytes("a")));
+            assertEquals(1, cache.size());
+
+            // an empty value is distinct from a missing one
+            cache.put(bytes("empty"), bytes(""));
+            assertEquals(bytes(""), cache.get(bytes("empty")));
+
+            assertEquals(bytes("3"), cache.remove(bytes("a")));
+            assertNull(cache.remove(bytes("a")));
+            assertNull(cache.get(bytes("a")));
+            assertEquals(1, cache.size());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testEvictionWhenFull() throws IOException {
+        final MemoryMappedMapCache cache = createCache(3, 4096);
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertNull(cache.put(bytes("key-" + i), bytes("value-" + i)).getEvictedKey());
+            }
+
+            final MapPutResult result = cache.putIfAbsent(bytes("key-3"), bytes("value-3"));
+            assertTrue(result.isSuccessful());
+            assertNotNull(result.getEvictedKey());
+            assertEquals(bytes("value-" + new String(result.getEvictedKey().array(), StandardCharsets.UTF_8).substring(4)), result.getEvictedValue());
+            assertFalse(cache.containsKey(result.getEvictedKey()));
+            assertTrue(cache.containsKey(bytes("key-3")));
+            assertEquals(3, cache.size());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testRecordsLargerThanSegment() throws IOException {
+        final MemoryMappedMapCache cache = createCache(100, 256);
+        try {
+            final byte[] large = new byte[10000];
+            for (int i = 0; i < large.length; i++) {
+                large[i] = (byte) i;
+            }
+
+            cache.put(bytes("small"), bytes("value"));
+            cache.put(bytes("large"), ByteBuffer.wrap(large));
+            cache.put(bytes("after"), bytes("value"));
+
+            assertEquals(ByteBuffer.wrap(large), cache.get(bytes("large")));
+            assertEquals(bytes("value"), cache.get(bytes("small")));
+            assertEquals(bytes("value"), cache.get(bytes("after")));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testRestoreAfterShutdown() throws IOException {
+        MemoryMappedMapCache cache = createCache(1000, 4096);
+        for (int i = 0; i < 500; i++) {
+            cache.put(bytes("key-" + i), bytes("value-" + i));
+        }
+        cache.put(bytes("key-1"), bytes("updated"));
+        cache.remove(bytes("key-2"));
+        cache.shutdown();
+
+        cache = createCache(1000, 4096);
+        try {
+            verifyRestored(cache);
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testRecoveryWithoutShutdown() throws IOException {
+        final MemoryMappedMapCache cache = createCache(1000, 4096);
+        for (int i = 0; i < 500; i++) {
+            cache.put(bytes("key-" + i), bytes("value-" + i));
+        }
+        cache.put(bytes("key-1"), bytes("updated"));
+        cache.remove(bytes("key-2"));
+
+        // opening the cache again without shutting it down leaves the index marked as not closed cleanly
+        final MemoryMappedMapCache recovered = createCache(1000, 4096);
+        try {
+            verifyRestored(recovered);
+        } finally {
+            recovered.shutdown();
+        }
+    }
+
+    private void verifyRestored(final MemoryMappedMapCache cache) throws IOException {
+        assertEquals(499, cache.size());
+        assertEquals(bytes("updated"), cache.get(bytes("key-1")));
+        assertNull(cache.get(bytes("key-2")));
+        for (int i = 3; i < 500; i++) {
+            assertEquals(bytes("value-" + i), cache.get(bytes("key-" + i)));
+        }
+
+        // the restored cache can still be updated
+        cache.put(bytes("key-500"), bytes("value-500"));
+        assertEquals(bytes("value-500"), cache.get(bytes("key-500")));
+    }
+
+    @Test
+    public void testRecoveryWhenCacheHasShrunk() throws IOException {
+        final MemoryMappedMapCache cache = createCache(100, 4096);
+        for (int i = 0; i < 100; i++) {
+            cache.put(bytes("key-" + i), bytes("value-" + i));
+        }
+        cache.shutdown();
+
+        MemoryMappedMapCache shrunk = createCache(10, 4096);
+        assertEquals(10, shrunk.size());
+        shrunk.shutdown();
+
+        // the entries that were evicted while rebuilding the index must not reappear
+        shrunk = createCache(1000, 4096);
+        try {
+            assertEquals(10, shrunk.size());
+        } finally {
+            shrunk.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompactionReclaimsSegments() throws IOException {
+        final MemoryMappedMapCache cache = createCache(1000, 1024);
+
+        // the values for the keys to be removed are written first, so that they are in the oldest segments
+        for (int i = 0; i < 20; i++) {
+            cache.put(bytes("removed-" + i), bytes("value-" + i));
+        }
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 10; i++) {
+                cache.put(bytes("key-" + i), bytes("value-" + round));
+            }
+        }
+        for (int i = 0; i < 20; i++) {
+            cache.remove(bytes("removed-" + i));
+        }
+
+        final int segmentsBefore = cache.getSegmentCount();
+        cache.compact();
+        final int segmentsAfter = cache.getSegmentCount();
+        assertTrue("Expected compaction to reduce " + segmentsBefore + " segments, but there are " + segmentsAfter, segmentsAfter < segmentsBefore / 4);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(bytes("value-99"), cache.get(bytes("key-" + i)));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertNull(cache.get(bytes("removed-" + i)));
+        }
+
+        // Rebuilding the index from the compacted log must produce the same entries
+        final MemoryMappedMapCache recovered = createCache(1000, 1024);
+        try {
+            assertEquals(10, recovered.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(bytes("value-99"), recovered.get(bytes("key-" + i)));
+            }
+            for (int i = 0; i < 20; i++) {
+                assertNull(recovered.get(bytes("removed-" + i)));
+            }
+        } finally {
+            recovered.shutdown();
+        }
+    }
+
+    private static void deleteRecursively(final File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+
+        if (!file.delete()) {
+            throw new IOException("Could not delete " + file.getAbsolutePath());
+        }
+    }
+}
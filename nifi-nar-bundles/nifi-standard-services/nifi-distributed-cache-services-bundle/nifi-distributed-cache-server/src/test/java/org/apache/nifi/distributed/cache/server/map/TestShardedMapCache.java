@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.distributed.cache.server.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.distributed.cache.server.EvictionPolicy;
+import org.junit.Test;
+
+public class TestShardedMapCache {
+
+    private static ByteBuffer bytes(final String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPutGetRemove() throws IOException {
+        final ShardedMapCache cache = new ShardedMapCache("id", 100, EvictionPolicy.LRU, 4);
+
+        assertNull(cache.get(bytes("a")));
+        assertFalse(cache.containsKey(bytes("a")));
+
+        MapPutResult result = cache.putIfAbsent(bytes("a"), bytes("1"));
+        assertTrue(result.isSuccessful());
+        assertNull(result.getExistingValue());
+
+        result = cache.putIfAbsent(bytes("a"), bytes("2"));
+        assertFalse(result.isSuccessful());
+        assertEquals(bytes("1"), result.getExistingValue());
+        assertEquals(bytes("1"), cache.get(bytes("a")));
+
+        result = cache.put(bytes("a"), bytes("3"));
+        assertTrue(result.isSuccessful());
+        assertEquals(bytes("1"), result.getExistingValue());
+        assertEquals(bytes("3"), cache.get(bytes("a")));
+        assertTrue(cache.containsKey(bytes("a")));
+        assertEquals(1, cache.size());
+
+        assertEquals(bytes("3"), cache.remove(bytes("a")));
+        assertNull(cache.remove(bytes("a")));
+        assertNull(cache.get(bytes("a")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictionWhenFull() throws IOException {
+        final ShardedMapCache cache = new ShardedMapCache("id", 3, EvictionPolicy.FIFO, 4);
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(cache.put(bytes("key-" + i), bytes("value-" + i)).getEvictedKey());
+        }
+
+        final MapPutResult result = cache.putIfAbsent(bytes("key-3"), bytes("value-3"));
+        assertTrue(result.isSuccessful());
+        assertNotNull(result.getEvictedKey());
+        assertFalse(cache.containsKey(result.getEvictedKey()));
+        assertTrue(cache.containsKey(bytes("key-3")));
+        assertEquals(3, cache.size());
+
+        // replacing the value of an existing key does not cause an eviction
+        assertNull(cache.put(bytes("key-3"), bytes("value-4")).getEvictedKey());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testFrequentlyUsedEntriesAreNotEvicted() throws IOException {
+        final ShardedMapCache cache = new ShardedMapCache("id", 100, EvictionPolicy.LFU, 8);
+
+        final List<ByteBuffer> hotKeys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final ByteBuffer key = bytes("hot-" + i);
+            hotKeys.add(key);
+            cache.put(key, key);
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            for (final ByteBuffer hotKey : hotKeys) {
+                cache.get(hotKey);
+            }
+            cache.putIfAbsent(bytes("cold-" + i), bytes("value"));
+        }
+
+        assertEquals(100, cache.size());
+        for (final ByteBuffer hotKey : hotKeys) {
+            assertTrue(cache.containsKey(hotKey));
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testConcurrentClientsDoNotExceedMaxSize() throws Exception {
+        final int maxSize = 500;
+        final ShardedMapCache cache = new ShardedMapCache("id", maxSize, EvictionPolicy.LRU, 16);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        final String key = thread + "-" + i;
+                        final MapPutResult result = cache.putIfAbsent(bytes(key), bytes(key));
+                        assertTrue(result.isSuccessful());
+                        if (i % 10 == 0) {
+                            cache.remove(bytes(key));
+                        }
+                        if (i % 3 == 0) {
+                            cache.get(bytes(thread + "-" + (i / 2)));
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get(15, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // every thread adds entries after its last removal, so the cache must be full
+        assertEquals(maxSize, cache.size());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordSet;
+
+/**
+ * <p>
+ * A RecordSetWriter writes records to the OutputStream that it was created for, one at a time, so that records can
+ * be written as they are read or computed. A set of records is begun by {@link #beginRecordSet()}, after which any number
+ * of records may be written with {@link #write(Record)}, and is completed by {@link #finishRecordSet()}. Closing the
+ * writer does not close the underlying OutputStream.
+ * </p>
+ *
+ * <p>
+ * PLEASE NOTE: This interface is still considered 'unstable' and may change in a non-backward-compatible
+ * manner between minor or incremental releases of NiFi.
+ * </p>
+ */
+public interface RecordSetWriter extends Closeable {
+
+    /**
+     * Begins a new set of records, writing any header that the format requires
+     *
+     * @throws IOException if unable to write to the underlying OutputStream
+     */
+    void beginRecordSet() throws IOException;
+
+    /**
+     * Writes the given record
+     *
+     * @param record the record to write
+     * @throws IOException if unable to write to the underlying OutputStream
+     */
+    void write(Record record) throws IOException;
+
+    /**
+     * Completes the set of records that was begun by {@link #beginRecordSet()}, writing any footer that the format requires
+     *
+     * @return the result of writing the record set
+     * @throws IOException if unable to write to the underlying OutputStream
+     */
+    WriteResult finishRecordSet() throws IOException;
+
+    /**
+     * Writes all records in the given RecordSet as a single set of records
+     *
+     * @param recordSet the records to write
+     * @return the result of writing the record set
+     * @throws IOException if unable to read from the RecordSet or write to the underlying OutputStream
+     */
+    default WriteResult write(final RecordSet recordSet) throws IOException {
+        beginRecordSet();
+
+        Record record;
+        while ((record = recordSet.next()) != null) {
+            write(record);
+        }
+
+        return finishRecordSet();
+    }
+
+    /**
+     * @return the MIME Type that the Record Writer produces. This will be added to FlowFiles using the mime.type attribute.
+     */
+    String getMimeType();
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.nifi.controller.ControllerService;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+/**
+ * <p>
+ * A Controller Service that is responsible for creating a {@link RecordSetWriter}.
+ * </p>
+ */
+public interface RecordSetWriterFactory extends ControllerService {
+
+    /**
+     * Creates a RecordSetWriter that writes records with the given schema to the given OutputStream
+     *
+     * @param logger the logger of the component that is writing the records
+     * @param schema the schema of the records that will be written
+     * @param flowFile the FlowFile whose content is being written
+     * @param out the OutputStream to write to
+     * @return a RecordSetWriter for the OutputStream
+     * @throws IOException if unable to create the writer, such as if the schema cannot be represented in the output format
+     */
+    RecordSetWriter createWriter(ComponentLog logger, RecordSchema schema, FlowFile flowFile, OutputStream out) throws IOException;
+}
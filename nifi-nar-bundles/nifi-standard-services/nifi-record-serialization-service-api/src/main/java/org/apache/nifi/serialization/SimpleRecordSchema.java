@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+public class SimpleRecordSchema implements RecordSchema {
+    private final List<RecordField> fields;
+    private final List<String> fieldNames;
+    private final Map<String, Integer> fieldIndices;
+
+    public SimpleRecordSchema(final List<RecordField> fields) {
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+
+        final List<String> names = new ArrayList<>(fields.size());
+        final Map<String, Integer> indices = new HashMap<>(fields.size() * 2);
+        for (int i = 0; i < fields.size(); i++) {
+            final String fieldName = fields.get(i).getFieldName();
+            if (indices.put(fieldName, i) != null) {
+                throw new IllegalArgumentException("Two fields are given with the same name ('" + fieldName + "')");
+            }
+            names.add(fieldName);
+        }
+
+        this.fieldNames = Collections.unmodifiableList(names);
+        this.fieldIndices = indices;
+    }
+
+    @Override
+    public List<RecordField> getFields() {
+        return fields;
+    }
+
+    @Override
+    public int getFieldCount() {
+        return fields.size();
+    }
+
+    @Override
+    public RecordField getField(final int index) {
+        return fields.get(index);
+    }
+
+    @Override
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    @Override
+    public Optional<RecordField> getField(final String fieldName) {
+        final Integer index = fieldIndices.get(fieldName);
+        return index == null ? Optional.empty() : Optional.of(fields.get(index));
+    }
+
+    @Override
+    public int getFieldIndex(final String fieldName) {
+        final Integer index = fieldIndices.get(fieldName);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public int hashCode() {
+        return 143 + 3 * fields.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof RecordSchema)) {
+            return false;
+        }
+
+        final RecordSchema other = (RecordSchema) obj;
+        return fields.equals(other.getFields());
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < fields.size(); i++) {
+            final RecordField field = fields.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("\"").append(field.getFieldName()).append("\" : \"").append(field.getDataType()).append("\"");
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization.record;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The type of the values of a {@link RecordField}. For fields of type {@link RecordFieldType#RECORD}, the DataType also
+ * provides the schema of the child records, and for fields of type {@link RecordFieldType#ARRAY}, the type of the elements.
+ */
+public class DataType {
+    private final RecordFieldType fieldType;
+    private final RecordSchema childSchema;
+    private final DataType elementType;
+
+    DataType(final RecordFieldType fieldType, final RecordSchema childSchema, final DataType elementType) {
+        this.fieldType = fieldType;
+        this.childSchema = childSchema;
+        this.elementType = elementType;
+    }
+
+    public RecordFieldType getFieldType() {
+        return fieldType;
+    }
+
+    public Optional<RecordSchema> getChildRecordSchema() {
+        return Optional.ofNullable(childSchema);
+    }
+
+    public Optional<DataType> getElementType() {
+        return Optional.ofNullable(elementType);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 + 41 * fieldType.hashCode() + 41 * Objects.hashCode(childSchema) + 41 * Objects.hashCode(elementType);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof DataType)) {
+            return false;
+        }
+
+        final DataType other = (DataType) obj;
+        return fieldType == other.fieldType && Objects.equals(childSchema, other.childSchema) && Objects.equals(elementType, other.elementType);
+    }
+
+    @Override
+    public String toString() {
+        if (elementType != null) {
+            return fieldType.getSimpleName() + "[" + elementType + "]";
+        }
+        return fieldType.getSimpleName();
+    }
+}
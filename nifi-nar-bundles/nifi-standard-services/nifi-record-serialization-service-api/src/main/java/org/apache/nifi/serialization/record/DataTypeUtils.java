@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization.record;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Converts the values of record fields between types
+ */
+public class DataTypeUtils {
+
+    private DataTypeUtils() {
+    }
+
+    /**
+     * Converts the given value to the type given by the DataType
+     *
+     * @param value the value to convert
+     * @param dataType the type to convert the value to
+     * @param fieldName the name of the field whose value is being converted, used for error messages
+     * @return the converted value, or <code>null</code> if the value is <code>null</code>
+     * @throws IllegalTypeConversionException if the value cannot be converted to the given type
+     */
+    public static Object convertType(final Object value, final DataType dataType, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+
+        switch (dataType.getFieldType()) {
+            case STRING:
+                return toString(value);
+            case BOOLEAN:
+                return toBoolean(value, fieldName);
+            case INT:
+                return toInteger(value, fieldName);
+            case LONG:
+                return toLong(value, fieldName);
+            case FLOAT:
+                return toFloat(value, fieldName);
+            case DOUBLE:
+                return toDouble(value, fieldName);
+            case BYTES:
+                return toBytes(value, fieldName);
+            case RECORD:
+                return toRecord(value, dataType.getChildRecordSchema().orElse(null), fieldName);
+            case ARRAY:
+                return toArray(value, dataType.getElementType().orElse(null), fieldName);
+            default:
+                throw new IllegalTypeConversionException("Cannot convert value of field " + fieldName + " to unknown type " + dataType);
+        }
+    }
+
+    public static String toString(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof byte[]) {
+            return new String((byte[]) value, StandardCharsets.UTF_8);
+        }
+        if (value instanceof Object[]) {
+            return Arrays.toString((Object[]) value);
+        }
+        return value.toString();
+    }
+
+    public static Boolean toBoolean(final Object value, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof String) {
+            final String string = ((String) value).trim();
+            if (string.equalsIgnoreCase("true")) {
+                return Boolean.TRUE;
+            } else if (string.equalsIgnoreCase("false")) {
+                return Boolean.FALSE;
+            }
+        }
+
+        throw conversionFailure(value, "Boolean", fieldName, null);
+    }
+
+    public static Long toLong(final Object value, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Long) {
+            return (Long) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (final NumberFormatException nfe) {
+                throw conversionFailure(value, "Long", fieldName, nfe);
+            }
+        }
+
+        throw conversionFailure(value, "Long", fieldName, null);
+    }
+
+    public static Integer toInteger(final Object value, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Integer.parseInt(((String) value).trim());
+            } catch (final NumberFormatException nfe) {
+                throw conversionFailure(value, "Integer", fieldName, nfe);
+            }
+        }
+
+        throw conversionFailure(value, "Integer", fieldName, null);
+    }
+
+    public static Double toDouble(final Object value, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String) value).trim());
+            } catch (final NumberFormatException nfe) {
+                throw conversionFailure(value, "Double", fieldName, nfe);
+            }
+        }
+
+        throw conversionFailure(value, "Double", fieldName, null);
+    }
+
+    public static Float toFloat(final Object value, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Float) {
+            return (Float) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).floatValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Float.parseFloat(((String) value).trim());
+            } catch (final NumberFormatException nfe) {
+                throw conversionFailure(value, "Float", fieldName, nfe);
+            }
+        }
+
+        throw conversionFailure(value, "Float", fieldName, null);
+    }
+
+    public static byte[] toBytes(final Object value, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8);
+        }
+
+        throw conversionFailure(value, "byte[]", fieldName, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Record toRecord(final Object value, final RecordSchema schema, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Record) {
+            return (Record) value;
+        }
+        if (value instanceof Map && schema != null) {
+            final Map<String, Object> map = (Map<String, Object>) value;
+            final Object[] values = new Object[schema.getFieldCount()];
+            for (int i = 0; i < values.length; i++) {
+                final RecordField field = schema.getField(i);
+                values[i] = convertType(map.get(field.getFieldName()), field.getDataType(), field.getFieldName());
+            }
+            return new SimpleRecord(schema, values);
+        }
+
+        throw conversionFailure(value, "Record", fieldName, null);
+    }
+
+    public static Object[] toArray(final Object value, final DataType elementType, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+
+        final Object[] elements;
+        if (value instanceof Object[]) {
+            elements = (Object[]) value;
+        } else if (value instanceof Collection) {
+            elements = ((Collection<?>) value).toArray();
+        } else {
+            throw conversionFailure(value, "Object[]", fieldName, null);
+        }
+
+        if (elementType == null) {
+            return elements;
+        }
+
+        final Object[] converted = new Object[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            converted[i] = convertType(elements[i], elementType, fieldName);
+        }
+        return converted;
+    }
+
+    private static IllegalTypeConversionException conversionFailure(final Object value, final String type, final String fieldName, final Throwable cause) {
+        return new IllegalTypeConversionException("Cannot convert value [" + value + "] of type " + value.getClass() + " to " + type + " for field " + fieldName, cause);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization.record;
+
+/**
+ * A single record, whose values are described by its {@link RecordSchema}. The <code>getAs</code> methods convert the value
+ * of a field to the requested type if the value is of a different type, as when the value of a STRING field holds a number.
+ */
+public interface Record {
+
+    RecordSchema getSchema();
+
+    /**
+     * @return the values of the fields, in the order that the fields are defined in the schema
+     */
+    Object[] getValues();
+
+    Object getValue(String fieldName);
+
+    Object getValue(RecordField field);
+
+    String getAsString(String fieldName);
+
+    Long getAsLong(String fieldName);
+
+    Integer getAsInt(String fieldName);
+
+    Double getAsDouble(String fieldName);
+
+    Float getAsFloat(String fieldName);
+
+    Boolean getAsBoolean(String fieldName);
+
+    Record getAsRecord(String fieldName);
+
+    Object[] getAsArray(String fieldName);
+}
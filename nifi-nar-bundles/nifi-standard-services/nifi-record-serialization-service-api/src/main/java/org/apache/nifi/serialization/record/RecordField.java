@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization.record;
+
+import java.util.Objects;
+
+public class RecordField {
+    private final String fieldName;
+    private final DataType dataType;
+
+    public RecordField(final String fieldName, final DataType dataType) {
+        this.fieldName = Objects.requireNonNull(fieldName);
+        this.dataType = Objects.requireNonNull(dataType);
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public DataType getDataType() {
+        return dataType;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 + 41 * fieldName.hashCode() + 41 * dataType.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof RecordField)) {
+            return false;
+        }
+
+        final RecordField other = (RecordField) obj;
+        return fieldName.equals(other.fieldName) && dataType.equals(other.dataType);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordField[name=" + fieldName + ", dataType=" + dataType + "]";
+    }
+}
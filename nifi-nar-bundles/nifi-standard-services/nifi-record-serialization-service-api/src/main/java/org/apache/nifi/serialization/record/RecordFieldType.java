@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization.record;
+
+public enum RecordFieldType {
+    /**
+     * A String field type. Fields of this type use a {@code java.lang.String} value.
+     */
+    STRING("string"),
+
+    /**
+     * A boolean field type. Fields of this type use a {@code boolean} value.
+     */
+    BOOLEAN("boolean"),
+
+    /**
+     * An integer field type. Fields of this type use an {@code int} value.
+     */
+    INT("int"),
+
+    /**
+     * A long field type. Fields of this type use a {@code long} value.
+     */
+    LONG("long"),
+
+    /**
+     * A float field type. Fields of this type use a {@code float} value.
+     */
+    FLOAT("float"),
+
+    /**
+     * A double field type. Fields of this type use a {@code double} value.
+     */
+    DOUBLE("double"),
+
+    /**
+     * A binary field type. Fields of this type use a {@code byte[]} value.
+     */
+    BYTES("bytes"),
+
+    /**
+     * A record field type. Fields of this type use a {@link Record} value, whose schema is given by the
+     * {@link DataType} of the field.
+     */
+    RECORD("record"),
+
+    /**
+     * An array field type. Fields of this type use an {@code Object[]} value, whose elements are of the
+     * element type given by the {@link DataType} of the field.
+     */
+    ARRAY("array");
+
+
+    private final String simpleName;
+    private final DataType defaultDataType;
+
+    private RecordFieldType(final String simpleName) {
+        this.simpleName = simpleName;
+        this.defaultDataType = new DataType(this, null, null);
+    }
+
+    public String getSimpleName() {
+        return simpleName;
+    }
+
+    /**
+     * @return the DataType for this field type; fields of type RECORD or ARRAY should use
+     *         {@link #getRecordDataType(RecordSchema)} or {@link #getArrayDataType(DataType)} instead
+     */
+    public DataType getDataType() {
+        return defaultDataType;
+    }
+
+    /**
+     * @param childSchema the schema of the records that are the values of the field
+     * @return a DataType for a field of type RECORD
+     */
+    public static DataType getRecordDataType(final RecordSchema childSchema) {
+        return new DataType(RECORD, childSchema, null);
+    }
+
+    /**
+     * @param elementType the type of the elements of the array
+     * @return a DataType for a field of type ARRAY
+     */
+    public static DataType getArrayDataType(final DataType elementType) {
+        return new DataType(ARRAY, null, elementType);
+    }
+}
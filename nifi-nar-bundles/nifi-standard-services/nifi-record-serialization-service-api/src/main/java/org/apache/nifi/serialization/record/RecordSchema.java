@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization.record;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface RecordSchema {
+    /**
+     * @return the list of fields that are present in the schema
+     */
+    List<RecordField> getFields();
+
+    /**
+     * @return the number of fields in the schema
+     */
+    int getFieldCount();
+
+    /**
+     * @param index the 0-based index of which field to return
+     * @return the index'th field
+     *
+     * @throws IndexOutOfBoundsException if the index is &lt; 0 or &gt;= the number of fields (determined by {@link #getFieldCount()}).
+     */
+    RecordField getField(int index);
+
+    /**
+     * @return the names of the fields in the schema, in the order that the fields are defined
+     */
+    List<String> getFieldNames();
+
+    /**
+     * @param fieldName the name of the field
+     * @return the field with the given name, or an empty Optional if the schema has no field with that name
+     */
+    Optional<RecordField> getField(String fieldName);
+
+    /**
+     * @param fieldName the name of the field
+     * @return the index of the field with the given name, or -1 if the schema has no field with that name
+     */
+    int getFieldIndex(String fieldName);
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization.record;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A Record whose values are held in an array, in the order of the fields of its schema
+ */
+public class SimpleRecord implements Record {
+    private final RecordSchema schema;
+    private final Object[] values;
+
+    /**
+     * @param schema the schema of the record
+     * @param values the values of the record, in the order of the fields of the schema; the array is not copied
+     */
+    public SimpleRecord(final RecordSchema schema, final Object[] values) {
+        if (values.length != schema.getFieldCount()) {
+            throw new IllegalArgumentException("Record has " + values.length + " values but its schema has " + schema.getFieldCount() + " fields");
+        }
+
+        this.schema = Objects.requireNonNull(schema);
+        this.values = values;
+    }
+
+    public SimpleRecord(final RecordSchema schema, final Map<String, Object> values) {
+        this.schema = Objects.requireNonNull(schema);
+        this.values = new Object[schema.getFieldCount()];
+        for (int i = 0; i < this.values.length; i++) {
+            this.values[i] = values.get(schema.getField(i).getFieldName());
+        }
+    }
+
+    @Override
+    public RecordSchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public Object[] getValues() {
+        return Arrays.copyOf(values, values.length);
+    }
+
+    @Override
+    public Object getValue(final String fieldName) {
+        final int index = schema.getFieldIndex(fieldName);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public Object getValue(final RecordField field) {
+        return getValue(field.getFieldName());
+    }
+
+    @Override
+    public String getAsString(final String fieldName) {
+        return DataTypeUtils.toString(getValue(fieldName));
+    }
+
+    @Override
+    public Long getAsLong(final String fieldName) {
+        return DataTypeUtils.toLong(getValue(fieldName), fieldName);
+    }
+
+    @Override
+    public Integer getAsInt(final String fieldName) {
+        return DataTypeUtils.toInteger(getValue(fieldName), fieldName);
+    }
+
+    @Override
+    public Double getAsDouble(final String fieldName) {
+        return DataTypeUtils.toDouble(getValue(fieldName), fieldName);
+    }
+
+    @Override
+    public Float getAsFloat(final String fieldName) {
+        return DataTypeUtils.toFloat(getValue(fieldName), fieldName);
+    }
+
+    @Override
+    public Boolean getAsBoolean(final String fieldName) {
+        return DataTypeUtils.toBoolean(getValue(fieldName), fieldName);
+    }
+
+    @Override
+    public Record getAsRecord(final String fieldName) {
+        final RecordSchema childSchema = schema.getField(fieldName)
+            .flatMap(field -> field.getDataType().getChildRecordSchema())
+            .orElse(null);
+        return DataTypeUtils.toRecord(getValue(fieldName), childSchema, fieldName);
+    }
+
+    @Override
+    public Object[] getAsArray(final String fieldName) {
+        return DataTypeUtils.toArray(getValue(fieldName), null, fieldName);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 + 41 * schema.hashCode() + 41 * Arrays.deepHashCode(values);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof SimpleRecord)) {
+            return false;
+        }
+
+        final SimpleRecord other = (SimpleRecord) obj;
+        return schema.equals(other.schema) && Arrays.deepEquals(values, other.values);
+    }
+
+    @Override
+    public String toString() {
+        return "SimpleRecord[values=" + Arrays.deepToString(values) + "]";
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.avro;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.nifi.serialization.MalformedRecordException;
+import org.apache.nifi.serialization.RecordReader;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+/**
+ * Reads the records of an Avro Data File, using the schema that is embedded in the file. A single Avro record
+ * is reused for all records that are read, so that memory use does not depend on the number of records.
+ */
+public class AvroRecordReader implements RecordReader {
+    private final DataFileStream<GenericRecord> dataFileStream;
+    private final RecordSchema recordSchema;
+    private GenericRecord reuse;
+
+    public AvroRecordReader(final InputStream in) throws IOException, MalformedRecordException {
+        try {
+            this.dataFileStream = new DataFileStream<>(in, new GenericDatumReader<GenericRecord>());
+        } catch (final IOException ioe) {
+            throw new MalformedRecordException("Content is not a valid Avro Data File", ioe);
+        }
+
+        this.recordSchema = AvroTypeUtil.createSchema(dataFileStream.getSchema());
+    }
+
+    @Override
+    public Record nextRecord() throws IOException, MalformedRecordException {
+        if (!dataFileStream.hasNext()) {
+            return null;
+        }
+
+        reuse = dataFileStream.next(reuse);
+        return AvroTypeUtil.convertAvroRecordToRecord(reuse, recordSchema);
+    }
+
+    @Override
+    public RecordSchema getSchema() {
+        return recordSchema;
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataFileStream.close();
+    }
+}
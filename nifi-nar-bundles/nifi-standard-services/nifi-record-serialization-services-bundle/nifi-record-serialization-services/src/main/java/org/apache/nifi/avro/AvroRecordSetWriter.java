@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.avro;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.nifi.annotation.documentation.CapabilityDescription;
+import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.annotation.lifecycle.OnEnabled;
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.controller.AbstractControllerService;
+import org.apache.nifi.controller.ConfigurationContext;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.serialization.RecordSetWriter;
+import org.apache.nifi.serialization.RecordSetWriterFactory;
+import org.apache.nifi.serialization.SchemaTextProperties;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+@Tags({"avro", "result", "set", "writer", "serializer", "record", "row"})
+@CapabilityDescription("Writes the contents of a Record Set in Avro format. The records are written as an Avro Data File, using the "
+    + "configured Schema Text if one is given, or else a schema that is derived from the schema of the records.")
+public class AvroRecordSetWriter extends AbstractControllerService implements RecordSetWriterFactory {
+
+    private volatile Schema configuredSchema;
+
+    @Override
+    protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
+        final List<PropertyDescriptor> properties = new ArrayList<>();
+        properties.add(SchemaTextProperties.SCHEMA_TEXT);
+        return properties;
+    }
+
+    @OnEnabled
+    public void storeSchema(final ConfigurationContext context) {
+        final String schemaText = context.getProperty(SchemaTextProperties.SCHEMA_TEXT).getValue();
+        configuredSchema = (schemaText == null || schemaText.trim().isEmpty()) ? null : new Schema.Parser().parse(schemaText);
+    }
+
+    @Override
+    public RecordSetWriter createWriter(final ComponentLog logger, final RecordSchema schema, final FlowFile flowFile, final OutputStream out) {
+        final Schema avroSchema = configuredSchema == null ? AvroTypeUtil.buildAvroSchema(schema) : configuredSchema;
+        return new WriteAvroResult(avroSchema, out);
+    }
+}
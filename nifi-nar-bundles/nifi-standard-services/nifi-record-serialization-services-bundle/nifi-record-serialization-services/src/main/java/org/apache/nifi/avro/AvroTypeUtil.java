@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.avro;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.record.DataType;
+import org.apache.nifi.serialization.record.DataTypeUtils;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.serialization.record.RecordSchema;
+import org.apache.nifi.serialization.record.SimpleRecord;
+
+/**
+ * Converts between Avro Schemas and objects and their Record equivalents
+ */
+public class AvroTypeUtil {
+
+    private static final String NAMESPACE = "org.apache.nifi";
+
+    private AvroTypeUtil() {
+    }
+
+    /**
+     * Creates a RecordSchema from the given Avro Schema, which must be of type RECORD
+     *
+     * @param avroSchema the Avro Schema
+     * @return a RecordSchema that is equivalent to the Avro Schema
+     * @throws IllegalArgumentException if the Avro Schema is not of type RECORD
+     */
+    public static RecordSchema createSchema(final Schema avroSchema) {
+        if (avroSchema.getType() != Type.RECORD) {
+            throw new IllegalArgumentException("Cannot create a Record Schema from an Avro Schema of type " + avroSchema.getType());
+        }
+
+        final List<RecordField> fields = new ArrayList<>(avroSchema.getFields().size());
+        for (final Field field : avroSchema.getFields()) {
+            fields.add(new RecordField(field.name(), determineDataType(field.schema())));
+        }
+
+        return new SimpleRecordSchema(fields);
+    }
+
+    private static DataType determineDataType(final Schema avroSchema) {
+        switch (avroSchema.getType()) {
+            case RECORD:
+                return RecordFieldType.getRecordDataType(createSchema(avroSchema));
+            case ARRAY:
+                return RecordFieldType.getArrayDataType(determineDataType(avroSchema.getElementType()));
+            case UNION: {
+                final List<Schema> nonNullTypes = new ArrayList<>(2);
+                for (final Schema unionType : avroSchema.getTypes()) {
+                    if (unionType.getType() != Type.NULL) {
+                        nonNullTypes.add(unionType);
+                    }
+                }
+
+                // A union of null and a single type is simply a nullable field; any other union is represented as a String
+                if (nonNullTypes.size() == 1) {
+                    return determineDataType(nonNullTypes.get(0));
+                }
+                return RecordFieldType.STRING.getDataType();
+            }
+            case BOOLEAN:
+                return RecordFieldType.BOOLEAN.getDataType();
+            case INT:
+                return RecordFieldType.INT.getDataType();
+            case LONG:
+                return RecordFieldType.LONG.getDataType();
+            case FLOAT:
+                return RecordFieldType.FLOAT.getDataType();
+            case DOUBLE:
+                return RecordFieldType.DOUBLE.getDataType();
+            case BYTES:
+            case FIXED:
+                return RecordFieldType.BYTES.getDataType();
+            case STRING:
+            case ENUM:
+            case MAP:
+            case NULL:
+            default:
+                return RecordFieldType.STRING.getDataType();
+        }
+    }
+
+    /**
+     * Creates an Avro Schema that is equivalent to the given RecordSchema. Every field of the Avro Schema is nullable.
+     *
+     * @param recordSchema the Record Schema
+     * @return an Avro Schema of type RECORD
+     */
+    public static Schema buildAvroSchema(final RecordSchema recordSchema) {
+        return buildAvroSchema(recordSchema, "nifiRecord", new AtomicInteger(0));
+    }
+
+    private static Schema buildAvroSchema(final RecordSchema recordSchema, final String recordName, final AtomicInteger nestedRecordCount) {
+        final List<Field> avroFields = new ArrayList<>(recordSchema.getFieldCount());
+        for (final RecordField recordField : recordSchema.getFields()) {
+            final Schema fieldSchema = buildAvroSchema(recordField.getDataType(), nestedRecordCount);
+            final List<Schema> unionTypes = new ArrayList<>(2);
+            unionTypes.add(Schema.create(Type.NULL));
+            unionTypes.add(fieldSchema);
+            avroFields.add(new Field(recordField.getFieldName(), Schema.createUnion(unionTypes), null, null));
+        }
+
+        final Schema avroSchema = Schema.createRecord(recordName, null, NAMESPACE, false);
+        avroSchema.setFields(avroFields);
+        return avroSchema;
+    }
+
+    private static Schema buildAvroSchema(final DataType dataType, final AtomicInteger nestedRecordCount) {
+        switch (dataType.getFieldType()) {
+            case BOOLEAN:
+                return Schema.create(Type.BOOLEAN);
+            case INT:
+                return Schema.create(Type.INT);
+            case LONG:
+                return Schema.create(Type.LONG);
+            case FLOAT:
+                return Schema.create(Type.FLOAT);
+            case DOUBLE:
+                return Schema.create(Type.DOUBLE);
+            case BYTES:
+                return Schema.create(Type.BYTES);
+            case RECORD: {
+                // Avro requires that every record within a schema has a unique name
+                final String recordName = "nifiRecord" + nestedRecordCount.incrementAndGet();
+                return buildAvroSchema(dataType.getChildRecordSchema().get(), recordName, nestedRecordCount);
+            }
+            case ARRAY: {
+                final DataType elementType = dataType.getElementType().orElse(RecordFieldType.STRING.getDataType());
+                return Schema.createArray(buildAvroSchema(elementType, nestedRecordCount));
+            }
+            case STRING:
+            default:
+                return Schema.create(Type.STRING);
+        }
+    }
+
+    /**
+     * Converts the given Avro record into a Record that has the given schema
+     *
+     * @param avroRecord the Avro record
+     * @param recordSchema the schema of the Record to create, as returned by {@link #createSchema(Schema)} for the Avro record's schema
+     * @return a Record that contains the values of the Avro record
+     */
+    public static Record convertAvroRecordToRecord(final GenericRecord avroRecord, final RecordSchema recordSchema) {
+        final Object[] values = new Object[recordSchema.getFieldCount()];
+        for (int i = 0; i < values.length; i++) {
+            final RecordField recordField = recordSchema.getField(i);
+            final Object rawValue = avroRecord.get(recordField.getFieldName());
+            values[i] = normalizeValue(rawValue, recordField.getDataType(), recordField.getFieldName());
+        }
+
+        return new SimpleRecord(recordSchema, values);
+    }
+
+    private static Object normalizeValue(final Object value, final DataType dataType, final String fieldName) {
+        if (value == null) {
+            return null;
+        }
+
+        switch (dataType.getFieldType()) {
+            case RECORD:
+                if (value instanceof GenericRecord) {
+                    return convertAvroRecordToRecord((GenericRecord) value, dataType.getChildRecordSchema().get());
+                }
+                break;
+            case ARRAY:
+                if (value instanceof Collection) {
+                    final Collection<?> collection = (Collection<?>) value;
+                    final DataType elementType = dataType.getElementType().orElse(RecordFieldType.STRING.getDataType());
+                    final Object[] elements = new Object[collection.size()];
+                    int i = 0;
+                    for (final Object element : collection) {
+                        elements[i++] = normalizeValue(element, elementType, fieldName);
+                    }
+                    return elements;
+                }
+                break;
+            case BYTES:
+                if (value instanceof ByteBuffer) {
+                    final ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+                    final byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    return bytes;
+                }
+                if (value instanceof GenericFixed) {
+                    return ((GenericFixed) value).bytes();
+                }
+                break;
+            case STRING:
+                if (value instanceof Map) {
+                    final Map<String, Object> map = new LinkedHashMap<>();
+                    for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                        map.put(entry.getKey().toString(), entry.getValue() instanceof CharSequence ? entry.getValue().toString() : entry.getValue());
+                    }
+                    return map.toString();
+                }
+                // Avro's Utf8 and EnumSymbol are both handled by toString()
+                return value.toString();
+            default:
+                break;
+        }
+
+        return DataTypeUtils.convertType(value, dataType, fieldName);
+    }
+
+    /**
+     * Converts the given Record into an Avro record with the given schema
+     *
+     * @param record the Record to convert
+     * @param avroSchema the schema of the Avro record to create, which must be of type RECORD
+     * @return an Avro record that contains the values of the Record
+     */
+    public static GenericRecord createAvroRecord(final Record record, final Schema avroSchema) {
+        final GenericRecord avroRecord = new GenericData.Record(avroSchema);
+        for (final Field field : avroSchema.getFields()) {
+            final Object rawValue = record.getValue(field.name());
+            avroRecord.put(field.pos(), convertToAvroObject(rawValue, field.schema(), field.name()));
+        }
+
+        return avroRecord;
+    }
+
+    private static Object convertToAvroObject(final Object rawValue, final Schema fieldSchema, final String fieldName) {
+        if (rawValue == null) {
+            return null;
+        }
+
+        switch (fieldSchema.getType()) {
+            case UNION:
+                for (final Schema unionType : fieldSchema.getTypes()) {
+                    if (unionType.getType() != Type.NULL) {
+                        return convertToAvroObject(rawValue, unionType, fieldName);
+                    }
+                }
+                return null;
+            case INT:
+                return DataTypeUtils.toInteger(rawValue, fieldName);
+            case LONG:
+                return DataTypeUtils.toLong(rawValue, fieldName);
+            case FLOAT:
+                return DataTypeUtils.toFloat(rawValue, fieldName);
+            case DOUBLE:
+                return DataTypeUtils.toDouble(rawValue, fieldName);
+            case BOOLEAN:
+                return DataTypeUtils.toBoolean(rawValue, fieldName);
+            case BYTES:
+                return ByteBuffer.wrap(DataTypeUtils.toBytes(rawValue, fieldName));
+            case FIXED:
+                return new GenericData.Fixed(fieldSchema, DataTypeUtils.toBytes(rawValue, fieldName));
+            case ENUM:
+                return new GenericData.EnumSymbol(fieldSchema, DataTypeUtils.toString(rawValue));
+            case RECORD: {
+                final Record nestedRecord = rawValue instanceof Record ? (Record) rawValue : DataTypeUtils.toRecord(rawValue, createSchema(fieldSchema), fieldName);
+                return createAvroRecord(nestedRecord, fieldSchema);
+            }
+            case ARRAY: {
+                final Object[] elements = DataTypeUtils.toArray(rawValue, null, fieldName);
+                final List<Object> avroElements = new ArrayList<>(elements.length);
+                for (final Object element : elements) {
+                    avroElements.add(convertToAvroObject(element, fieldSchema.getElementType(), fieldName));
+                }
+                return new GenericData.Array<>(fieldSchema, avroElements);
+            }
+            case MAP:
+                if (rawValue instanceof Map) {
+                    final Map<String, Object> avroMap = new HashMap<>();
+                    for (final Map.Entry<?, ?> entry : ((Map<?, ?>) rawValue).entrySet()) {
+                        avroMap.put(entry.getKey().toString(), convertToAvroObject(entry.getValue(), fieldSchema.getValueType(), fieldName));
+                    }
+                    return avroMap;
+                }
+                throw new IllegalArgumentException("Cannot convert value [" + rawValue + "] of field " + fieldName + " to an Avro Map");
+            case STRING:
+            default:
+                return DataTypeUtils.toString(rawValue);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.avro;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.nifi.serialization.RecordSetWriter;
+import org.apache.nifi.serialization.WriteResult;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.stream.io.NonCloseableOutputStream;
+
+/**
+ * Writes Records as an Avro Data File. Records are appended to the Data File one at a time so that the records
+ * never need to be held in memory all at once.
+ */
+public class WriteAvroResult implements RecordSetWriter {
+    private final Schema avroSchema;
+    private final OutputStream out;
+    private DataFileWriter<GenericRecord> dataFileWriter;
+    private int recordCount;
+
+    public WriteAvroResult(final Schema avroSchema, final OutputStream out) {
+        this.avroSchema = avroSchema;
+        this.out = out;
+    }
+
+    @Override
+    public void beginRecordSet() throws IOException {
+        if (dataFileWriter != null) {
+            throw new IllegalStateException("Cannot begin a Record Set because a Record Set has already been started");
+        }
+
+        recordCount = 0;
+        dataFileWriter = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(avroSchema));
+        dataFileWriter.create(avroSchema, new NonCloseableOutputStream(out));
+    }
+
+    @Override
+    public void write(final Record record) throws IOException {
+        if (dataFileWriter == null) {
+            throw new IllegalStateException("Cannot write a Record because no Record Set has been started");
+        }
+
+        dataFileWriter.append(AvroTypeUtil.createAvroRecord(record, avroSchema));
+        recordCount++;
+    }
+
+    @Override
+    public WriteResult finishRecordSet() throws IOException {
+        if (dataFileWriter == null) {
+            throw new IllegalStateException("Cannot finish a Record Set because no Record Set has been started");
+        }
+
+        // the underlying OutputStream is protected from being closed, so this only flushes the last block of the Data File
+        dataFileWriter.close();
+        dataFileWriter = null;
+        return WriteResult.of(recordCount, Collections.emptyMap());
+    }
+
+    @Override
+    public String getMimeType() {
+        return "application/avro-binary";
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (dataFileWriter != null) {
+            dataFileWriter.close();
+            dataFileWriter = null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.nifi.annotation.documentation.CapabilityDescription;
+import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.annotation.lifecycle.OnEnabled;
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.controller.AbstractControllerService;
+import org.apache.nifi.controller.ConfigurationContext;
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.serialization.MalformedRecordException;
+import org.apache.nifi.serialization.RecordReader;
+import org.apache.nifi.serialization.RecordReaderFactory;
+import org.apache.nifi.serialization.SchemaTextProperties;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+@Tags({"csv", "parse", "record", "row", "reader", "delimited", "comma", "separated", "values"})
+@CapabilityDescription("Parses CSV-formatted data, returning each row in the CSV file as a separate record. If the first line is a header, "
+    + "the values of each row are matched to the fields of the schema by the column names; otherwise, they are matched by position. "
+    + "If no Schema Text is configured, the first line must be a header, and every column is treated as a String.")
+public class CSVReader extends AbstractControllerService implements RecordReaderFactory {
+
+    public static final PropertyDescriptor FIRST_LINE_IS_HEADER = new PropertyDescriptor.Builder()
+        .name("Treat First Line as Header")
+        .description("Specifies whether or not the first line of CSV should be considered a Header that names the columns")
+        .required(true)
+        .allowableValues("true", "false")
+        .defaultValue("true")
+        .build();
+
+    private volatile RecordSchema configuredSchema;
+    private volatile char valueSeparator;
+    private volatile char quoteChar;
+    private volatile boolean firstLineIsHeader;
+
+    @Override
+    protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
+        final List<PropertyDescriptor> properties = new ArrayList<>();
+        properties.add(SchemaTextProperties.SCHEMA_TEXT);
+        properties.add(CSVUtils.VALUE_SEPARATOR);
+        properties.add(CSVUtils.QUOTE_CHAR);
+        properties.add(FIRST_LINE_IS_HEADER);
+        return properties;
+    }
+
+    @OnEnabled
+    public void storeConfiguration(final ConfigurationContext context) {
+        this.configuredSchema = SchemaTextProperties.getSchema(context);
+        this.valueSeparator = CSVUtils.getChar(context.getProperty(CSVUtils.VALUE_SEPARATOR).getValue());
+        this.quoteChar = CSVUtils.getChar(context.getProperty(CSVUtils.QUOTE_CHAR).getValue());
+        this.firstLineIsHeader = context.getProperty(FIRST_LINE_IS_HEADER).asBoolean();
+    }
+
+    @Override
+    public RecordReader createRecordReader(final FlowFile flowFile, final InputStream in, final ComponentLog logger) throws MalformedRecordException, IOException {
+        return new CSVRecordReader(in, configuredSchema, valueSeparator, quoteChar, firstLineIsHeader);
+    }
+}
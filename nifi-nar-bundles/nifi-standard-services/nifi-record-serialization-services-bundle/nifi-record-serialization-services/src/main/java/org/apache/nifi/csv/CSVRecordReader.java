@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.csv;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.nifi.serialization.MalformedRecordException;
+import org.apache.nifi.serialization.RecordReader;
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.record.DataTypeUtils;
+import org.apache.nifi.serialization.record.IllegalTypeConversionException;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.serialization.record.RecordSchema;
+import org.apache.nifi.serialization.record.SimpleRecord;
+
+/**
+ * Reads CSV records, as described by RFC 4180, from a stream one line at a time. Values may be quoted in order to
+ * contain the Value Separator, the Quote Character (which is then doubled) or line endings.
+ */
+public class CSVRecordReader implements RecordReader {
+    private final Reader reader;
+    private final char valueSeparator;
+    private final char quoteChar;
+    private final RecordSchema schema;
+
+    // for each value in a line, the index of the schema field that it populates, or -1 if the value is to be ignored
+    private final int[] fieldIndices;
+
+    private final StringBuilder valueBuilder = new StringBuilder();
+    private int pushedBack = -1;
+    private long lineNumber = 0;
+
+    public CSVRecordReader(final InputStream in, final RecordSchema configuredSchema, final char valueSeparator, final char quoteChar,
+        final boolean firstLineIsHeader) throws IOException, MalformedRecordException {
+
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.valueSeparator = valueSeparator;
+        this.quoteChar = quoteChar;
+
+        final List<String> header = firstLineIsHeader ? readLine() : null;
+        if (configuredSchema == null) {
+            if (header == null) {
+                throw new MalformedRecordException("No schema was configured and the CSV data does not have a header line from which to determine the schema");
+            }
+
+            final List<RecordField> fields = new ArrayList<>(header.size());
+            for (final String columnName : header) {
+                fields.add(new RecordField(columnName, RecordFieldType.STRING.getDataType()));
+            }
+            this.schema = new SimpleRecordSchema(fields);
+        } else {
+            this.schema = configuredSchema;
+        }
+
+        if (header == null) {
+            fieldIndices = new int[schema.getFieldCount()];
+            for (int i = 0; i < fieldIndices.length; i++) {
+                fieldIndices[i] = i;
+            }
+        } else {
+            fieldIndices = new int[header.size()];
+            for (int i = 0; i < fieldIndices.length; i++) {
+                fieldIndices[i] = schema.getFieldIndex(header.get(i));
+            }
+        }
+    }
+
+    @Override
+    public Record nextRecord() throws IOException, MalformedRecordException {
+        final List<String> line = readLine();
+        if (line == null) {
+            return null;
+        }
+
+        final Object[] values = new Object[schema.getFieldCount()];
+        final int valueCount = Math.min(line.size(), fieldIndices.length);
+        for (int i = 0; i < valueCount; i++) {
+            final int fieldIndex = fieldIndices[i];
+            if (fieldIndex < 0) {
+                continue;
+            }
+
+            final RecordField field = schema.getField(fieldIndex);
+            final String rawValue = line.get(i);
+            if (rawValue.isEmpty() && field.getDataType().getFieldType() != RecordFieldType.STRING) {
+                continue;
+            }
+
+            try {
+                values[fieldIndex] = DataTypeUtils.convertType(rawValue, field.getDataType(), field.getFieldName());
+            } catch (final IllegalTypeConversionException itce) {
+                throw new MalformedRecordException("Could not parse line " + lineNumber + " of CSV data: " + itce.getMessage(), itce);
+            }
+        }
+
+        return new SimpleRecord(schema, values);
+    }
+
+    /**
+     * Reads the values of the next non-empty line
+     *
+     * @return the values of the next line, or <code>null</code> if there are no more lines
+     */
+    private List<String> readLine() throws IOException, MalformedRecordException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+
+            lineNumber++;
+            if (c == '\r' || c == '\n') {
+                skipLineFeedAfter(c);
+                continue;
+            }
+
+            final List<String> values = new ArrayList<>(fieldIndices == null ? 16 : fieldIndices.length);
+            valueBuilder.setLength(0);
+            boolean quoted = false;
+
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new MalformedRecordException("Line " + lineNumber + " of CSV data contains a quoted value that is never closed");
+                    } else if (c == quoteChar) {
+                        final int next = read();
+                        if (next == quoteChar) {
+                            valueBuilder.append(quoteChar);
+                        } else {
+                            quoted = false;
+                            pushedBack = next;
+                        }
+                    } else {
+                        valueBuilder.append((char) c);
+                    }
+                } else if (c == -1 || c == '\r' || c == '\n') {
+                    values.add(valueBuilder.toString());
+                    skipLineFeedAfter(c);
+                    return values;
+                } else if (c == valueSeparator) {
+                    values.add(valueBuilder.toString());
+                    valueBuilder.setLength(0);
+                } else if (c == quoteChar && valueBuilder.length() == 0) {
+                    quoted = true;
+                } else {
+                    valueBuilder.append((char) c);
+                }
+
+                c = read();
+            }
+        }
+    }
+
+    private void skipLineFeedAfter(final int c) throws IOException {
+        if (c == '\r') {
+            final int next = read();
+            if (next != '\n') {
+                pushedBack = next;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -1) {
+            final int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+
+        return reader.read();
+    }
+
+    @Override
+    public RecordSchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
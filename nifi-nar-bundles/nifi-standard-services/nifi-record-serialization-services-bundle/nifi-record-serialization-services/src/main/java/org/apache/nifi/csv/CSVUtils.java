@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.csv;
+
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
+import org.apache.nifi.components.Validator;
+
+/**
+ * Properties and helper methods that are shared by the CSV Reader and Writer
+ */
+public class CSVUtils {
+
+    static final Validator SINGLE_CHARACTER_VALIDATOR = new Validator() {
+        @Override
+        public ValidationResult validate(final String subject, final String input, final ValidationContext context) {
+            final boolean valid = input != null && unescape(input).length() == 1;
+            return new ValidationResult.Builder()
+                .subject(subject)
+                .input(input)
+                .valid(valid)
+                .explanation(valid ? null : "Value must be exactly one character")
+                .build();
+        }
+    };
+
+    public static final PropertyDescriptor VALUE_SEPARATOR = new PropertyDescriptor.Builder()
+        .name("Value Separator")
+        .description("The character that is used to separate values/fields in a CSV Record. A tab may be given as \\t")
+        .addValidator(SINGLE_CHARACTER_VALIDATOR)
+        .defaultValue(",")
+        .required(true)
+        .build();
+    public static final PropertyDescriptor QUOTE_CHAR = new PropertyDescriptor.Builder()
+        .name("Quote Character")
+        .description("The character that is used to quote values so that they may contain the Value Separator, the Quote Character or line endings. "
+            + "Within a quoted value, the Quote Character itself is escaped by doubling it.")
+        .addValidator(SINGLE_CHARACTER_VALIDATOR)
+        .defaultValue("\"")
+        .required(true)
+        .build();
+
+    private CSVUtils() {
+    }
+
+    static char getChar(final String value) {
+        return unescape(value).charAt(0);
+    }
+
+    private static String unescape(final String input) {
+        if (input.equals("\\t")) {
+            return "\t";
+        }
+        return input;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.csv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.apache.nifi.serialization.RecordSetWriter;
+import org.apache.nifi.serialization.WriteResult;
+import org.apache.nifi.serialization.record.DataTypeUtils;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+/**
+ * Writes Records as CSV, quoting any value that contains the Value Separator, the Quote Character or a line ending
+ */
+public class WriteCSVResult implements RecordSetWriter {
+    private final RecordSchema schema;
+    private final Writer writer;
+    private final char valueSeparator;
+    private final char quoteChar;
+    private final boolean includeHeaderLine;
+    private int recordCount;
+
+    public WriteCSVResult(final RecordSchema schema, final OutputStream out, final char valueSeparator, final char quoteChar, final boolean includeHeaderLine) {
+        this.schema = schema;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.valueSeparator = valueSeparator;
+        this.quoteChar = quoteChar;
+        this.includeHeaderLine = includeHeaderLine;
+    }
+
+    @Override
+    public void beginRecordSet() throws IOException {
+        recordCount = 0;
+        if (includeHeaderLine) {
+            writeLine(schema.getFieldNames().toArray());
+        }
+    }
+
+    @Override
+    public void write(final Record record) throws IOException {
+        final Object[] values = new Object[schema.getFieldCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = record.getValue(schema.getField(i).getFieldName());
+        }
+
+        writeLine(values);
+        recordCount++;
+    }
+
+    private void writeLine(final Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(valueSeparator);
+            }
+
+            final String value = DataTypeUtils.toString(values[i]);
+            if (value != null) {
+                writeValue(value);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private void writeValue(final String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == valueSeparator || c == quoteChar || c == '\r' || c == '\n') {
+                quote = true;
+                break;
+            }
+        }
+
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write(quoteChar);
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == quoteChar) {
+                writer.write(quoteChar);
+            }
+            writer.write(c);
+        }
+        writer.write(quoteChar);
+    }
+
+    @Override
+    public WriteResult finishRecordSet() throws IOException {
+        writer.flush();
+        return WriteResult.of(recordCount, Collections.emptyMap());
+    }
+
+    @Override
+    public String getMimeType() {
+        return "text/csv";
+    }
+
+    @Override
+    public void close() throws IOException {
+        // flush any buffered data but leave the OutputStream open, as it is owned by the caller
+        writer.flush();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.nifi.serialization.MalformedRecordException;
+import org.apache.nifi.serialization.RecordReader;
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.record.DataType;
+import org.apache.nifi.serialization.record.DataTypeUtils;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.serialization.record.RecordSchema;
+import org.apache.nifi.serialization.record.SimpleRecord;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads JSON records from a stream. The content may be either a JSON Array of objects or a sequence of JSON objects.
+ * Only a single record is materialized at a time, so the amount of memory used does not depend on the size of the content.
+ * If no schema is given, the schema is inferred from the first record in the stream.
+ */
+public class JsonRecordReader implements RecordReader {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    private final JsonParser jsonParser;
+    private RecordSchema schema;
+    private JsonNode firstJsonNode;
+    private boolean firstJsonNodeConsumed = false;
+
+    public JsonRecordReader(final InputStream in, final RecordSchema schema) throws IOException, MalformedRecordException {
+        this.schema = schema;
+
+        try {
+            jsonParser = jsonFactory.createParser(in);
+
+            JsonToken token = jsonParser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = jsonParser.nextToken();
+            }
+
+            if (token == JsonToken.START_OBJECT) {
+                firstJsonNode = jsonParser.readValueAsTree();
+            } else if (token != null && token != JsonToken.END_ARRAY) {
+                throw new MalformedRecordException("Expected a JSON Object or an Array of JSON Objects but found " + token);
+            }
+        } catch (final JsonParseException jpe) {
+            throw new MalformedRecordException("Could not parse data as JSON", jpe);
+        }
+    }
+
+    @Override
+    public Record nextRecord() throws IOException, MalformedRecordException {
+        final JsonNode jsonNode = nextJsonNode();
+        if (jsonNode == null) {
+            return null;
+        }
+
+        return convertJsonNode(jsonNode, getSchema());
+    }
+
+    private JsonNode nextJsonNode() throws IOException, MalformedRecordException {
+        if (!firstJsonNodeConsumed) {
+            firstJsonNodeConsumed = true;
+            return firstJsonNode;
+        }
+
+        try {
+            final JsonToken token = jsonParser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new MalformedRecordException("Expected a JSON Object but found " + token);
+            }
+
+            return jsonParser.readValueAsTree();
+        } catch (final JsonParseException jpe) {
+            throw new MalformedRecordException("Could not parse data as JSON", jpe);
+        }
+    }
+
+    @Override
+    public RecordSchema getSchema() {
+        if (schema == null) {
+            schema = firstJsonNode == null ? new SimpleRecordSchema(Collections.<RecordField> emptyList()) : inferSchema(firstJsonNode);
+        }
+
+        return schema;
+    }
+
+    static RecordSchema inferSchema(final JsonNode objectNode) {
+        final List<RecordField> fields = new ArrayList<>();
+        final Iterator<Map.Entry<String, JsonNode>> itr = objectNode.fields();
+        while (itr.hasNext()) {
+            final Map.Entry<String, JsonNode> entry = itr.next();
+            fields.add(new RecordField(entry.getKey(), inferDataType(entry.getValue())));
+        }
+
+        return new SimpleRecordSchema(fields);
+    }
+
+    private static DataType inferDataType(final JsonNode node) {
+        if (node == null || node.isNull()) {
+            return RecordFieldType.STRING.getDataType();
+        }
+        if (node.isBoolean()) {
+            return RecordFieldType.BOOLEAN.getDataType();
+        }
+        if (node.isIntegralNumber()) {
+            return RecordFieldType.LONG.getDataType();
+        }
+        if (node.isNumber()) {
+            return RecordFieldType.DOUBLE.getDataType();
+        }
+        if (node.isObject()) {
+            return RecordFieldType.getRecordDataType(inferSchema(node));
+        }
+        if (node.isArray()) {
+            for (final JsonNode element : node) {
+                if (!element.isNull()) {
+                    return RecordFieldType.getArrayDataType(inferDataType(element));
+                }
+            }
+            return RecordFieldType.getArrayDataType(RecordFieldType.STRING.getDataType());
+        }
+
+        return RecordFieldType.STRING.getDataType();
+    }
+
+    private Record convertJsonNode(final JsonNode jsonNode, final RecordSchema recordSchema) throws MalformedRecordException {
+        final Object[] values = new Object[recordSchema.getFieldCount()];
+        for (int i = 0; i < values.length; i++) {
+            final RecordField field = recordSchema.getField(i);
+            try {
+                values[i] = convertField(jsonNode.get(field.getFieldName()), field.getDataType(), field.getFieldName());
+            } catch (final RuntimeException e) {
+                throw new MalformedRecordException("Could not convert value of field " + field.getFieldName() + " to " + field.getDataType(), e);
+            }
+        }
+
+        return new SimpleRecord(recordSchema, values);
+    }
+
+    private Object convertField(final JsonNode fieldNode, final DataType dataType, final String fieldName) throws MalformedRecordException {
+        if (fieldNode == null || fieldNode.isNull()) {
+            return null;
+        }
+
+        switch (dataType.getFieldType()) {
+            case STRING:
+                return fieldNode.isValueNode() ? fieldNode.asText() : fieldNode.toString();
+            case RECORD:
+                if (fieldNode.isObject() && dataType.getChildRecordSchema().isPresent()) {
+                    return convertJsonNode(fieldNode, dataType.getChildRecordSchema().get());
+                }
+                throw new MalformedRecordException("Expected a JSON Object for field " + fieldName + " but found " + fieldNode.getNodeType());
+            case ARRAY: {
+                if (!fieldNode.isArray()) {
+                    throw new MalformedRecordException("Expected a JSON Array for field " + fieldName + " but found " + fieldNode.getNodeType());
+                }
+
+                final DataType elementType = dataType.getElementType().orElse(RecordFieldType.STRING.getDataType());
+                final Object[] elements = new Object[fieldNode.size()];
+                for (int i = 0; i < elements.length; i++) {
+                    elements[i] = convertField(fieldNode.get(i), elementType, fieldName);
+                }
+                return elements;
+            }
+            default:
+                return DataTypeUtils.convertType(getRawValue(fieldNode), dataType, fieldName);
+        }
+    }
+
+    private Object getRawValue(final JsonNode fieldNode) {
+        if (fieldNode.isNumber()) {
+            return fieldNode.numberValue();
+        }
+        if (fieldNode.isBoolean()) {
+            return fieldNode.booleanValue();
+        }
+        return fieldNode.isValueNode() ? fieldNode.asText() : fieldNode.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        jsonParser.close();
+    }
+}
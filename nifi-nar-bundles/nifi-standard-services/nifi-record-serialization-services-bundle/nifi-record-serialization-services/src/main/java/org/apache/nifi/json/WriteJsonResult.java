@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.nifi.serialization.RecordSetWriter;
+import org.apache.nifi.serialization.WriteResult;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes Records as a JSON Array of JSON Objects. Each record is written to the underlying stream as soon as it is
+ * given to the writer.
+ */
+public class WriteJsonResult implements RecordSetWriter {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final JsonGenerator generator;
+    private int recordCount;
+
+    public WriteJsonResult(final OutputStream out, final boolean prettyPrint) throws IOException {
+        generator = jsonFactory.createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (prettyPrint) {
+            generator.useDefaultPrettyPrinter();
+        }
+    }
+
+    @Override
+    public void beginRecordSet() throws IOException {
+        recordCount = 0;
+        generator.writeStartArray();
+    }
+
+    @Override
+    public void write(final Record record) throws IOException {
+        writeRecord(record);
+        recordCount++;
+    }
+
+    private void writeRecord(final Record record) throws IOException {
+        final RecordSchema schema = record.getSchema();
+
+        generator.writeStartObject();
+        for (int i = 0; i < schema.getFieldCount(); i++) {
+            final RecordField field = schema.getField(i);
+            generator.writeFieldName(field.getFieldName());
+            writeValue(record.getValue(field));
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeValue(final Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            generator.writeNumber((Integer) value);
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Float) {
+            generator.writeNumber((Float) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof byte[]) {
+            generator.writeBinary((byte[]) value);
+        } else if (value instanceof Record) {
+            writeRecord((Record) value);
+        } else if (value instanceof Object[]) {
+            generator.writeStartArray();
+            for (final Object element : (Object[]) value) {
+                writeValue(element);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue());
+            }
+            generator.writeEndObject();
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    @Override
+    public WriteResult finishRecordSet() throws IOException {
+        generator.writeEndArray();
+        generator.flush();
+        return WriteResult.of(recordCount, Collections.emptyMap());
+    }
+
+    @Override
+    public String getMimeType() {
+        return "application/json";
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaParseException;
+import org.apache.nifi.avro.AvroTypeUtil;
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
+import org.apache.nifi.components.Validator;
+import org.apache.nifi.controller.ConfigurationContext;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+/**
+ * Properties that are shared by the Record Readers and Writers in order to configure the schema of the records.
+ * The schema is given as the text of an Avro Schema, regardless of the format of the data.
+ */
+public final class SchemaTextProperties {
+
+    public static final PropertyDescriptor SCHEMA_TEXT = new PropertyDescriptor.Builder()
+        .name("Schema Text")
+        .description("The text of an Avro-formatted Schema that describes the records. If not specified, the schema is derived from the data, "
+            + "if the format allows it.")
+        .required(false)
+        .addValidator(new AvroSchemaValidator())
+        .build();
+
+    private SchemaTextProperties() {
+    }
+
+    /**
+     * @param context the configuration context of the service
+     * @return the RecordSchema that is configured via the {@link #SCHEMA_TEXT} property, or <code>null</code> if no schema is configured
+     */
+    public static RecordSchema getSchema(final ConfigurationContext context) {
+        final String schemaText = context.getProperty(SCHEMA_TEXT).getValue();
+        if (schemaText == null || schemaText.trim().isEmpty()) {
+            return null;
+        }
+
+        return AvroTypeUtil.createSchema(new Schema.Parser().parse(schemaText));
+    }
+
+    private static class AvroSchemaValidator implements Validator {
+        @Override
+        public ValidationResult validate(final String subject, final String input, final ValidationContext context) {
+            try {
+                final Schema schema = new Schema.Parser().parse(input);
+                if (schema.getType() != Schema.Type.RECORD) {
+                    return new ValidationResult.Builder().subject(subject).input(input).valid(false)
+                        .explanation("Schema must be of type 'record' but is of type '" + schema.getType().getName() + "'").build();
+                }
+
+                return new ValidationResult.Builder().subject(subject).input(input).valid(true).build();
+            } catch (final SchemaParseException e) {
+                return new ValidationResult.Builder().subject(subject).input(input).valid(false)
+                    .explanation("Not a valid Avro Schema: " + e.getMessage()).build();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.avro;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.serialization.MalformedRecordException;
+import org.apache.nifi.serialization.RecordReader;
+import org.apache.nifi.serialization.RecordSetWriter;
+import org.apache.nifi.serialization.SchemaTextProperties;
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.WriteResult;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.serialization.record.RecordSchema;
+import org.apache.nifi.serialization.record.SimpleRecord;
+import org.apache.nifi.util.MockConfigurationContext;
+import org.junit.Test;
+
+public class TestAvroRecordReader {
+
+    @Test
+    public void testRoundTrip() throws IOException, MalformedRecordException {
+        final List<RecordField> addressFields = new ArrayList<>();
+        addressFields.add(new RecordField("city", RecordFieldType.STRING.getDataType()));
+        final RecordSchema addressSchema = new SimpleRecordSchema(addressFields);
+
+        final List<RecordField> fields = new ArrayList<>();
+        fields.add(new RecordField("id", RecordFieldType.INT.getDataType()));
+        fields.add(new RecordField("name", RecordFieldType.STRING.getDataType()));
+        fields.add(new RecordField("balance", RecordFieldType.DOUBLE.getDataType()));
+        fields.add(new RecordField("data", RecordFieldType.BYTES.getDataType()));
+        fields.add(new RecordField("address", RecordFieldType.getRecordDataType(addressSchema)));
+        fields.add(new RecordField("tags", RecordFieldType.getArrayDataType(RecordFieldType.STRING.getDataType())));
+        final RecordSchema schema = new SimpleRecordSchema(fields);
+
+        final Map<String, Object> address = new HashMap<>();
+        address.put("city", "Boston");
+
+        final Map<String, Object> values = new HashMap<>();
+        values.put("id", 1);
+        values.put("name", "John");
+        values.put("balance", 4.5D);
+        values.put("data", "hello".getBytes(StandardCharsets.UTF_8));
+        values.put("address", new SimpleRecord(addressSchema, address));
+        values.put("tags", new Object[] {"a", "b"});
+
+        final Schema avroSchema = AvroTypeUtil.buildAvroSchema(schema);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (final RecordSetWriter writer = new WriteAvroResult(avroSchema, baos)) {
+            writer.beginRecordSet();
+            writer.write(new SimpleRecord(schema, values));
+            writer.write(new SimpleRecord(schema, new HashMap<>()));
+            final WriteResult result = writer.finishRecordSet();
+            assertEquals(2, result.getRecordCount());
+        }
+
+        try (final AvroRecordReader reader = new AvroRecordReader(new ByteArrayInputStream(baos.toByteArray()))) {
+            assertEquals(schema, reader.getSchema());
+
+            final Record first = reader.nextRecord();
+            assertEquals(Integer.valueOf(1), first.getAsInt("id"));
+            assertEquals("John", first.getAsString("name"));
+            assertEquals(Double.valueOf(4.5D), first.getAsDouble("balance"));
+            assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), (byte[]) first.getValue("data"));
+            assertEquals("Boston", first.getAsRecord("address").getAsString("city"));
+            assertArrayEquals(new Object[] {"a", "b"}, first.getAsArray("tags"));
+
+            final Record second = reader.nextRecord();
+            for (final String fieldName : schema.getFieldNames()) {
+                assertNull(second.getValue(fieldName));
+            }
+
+            assertNull(reader.nextRecord());
+        }
+    }
+
+    @Test
+    public void testRoundTripThroughControllerServicesWithConfiguredSchema() throws IOException, MalformedRecordException {
+        final String schemaText = "{\"type\": \"record\", \"name\": \"person\", \"fields\": ["
+            + "{\"name\": \"id\", \"type\": \"long\"}, "
+            + "{\"name\": \"name\", \"type\": [\"null\", \"string\"]}, "
+            + "{\"name\": \"color\", \"type\": {\"type\": \"enum\", \"name\": \"color\", \"symbols\": [\"RED\", \"GREEN\"]}}]}";
+
+        final AvroRecordSetWriter writerFactory = new AvroRecordSetWriter();
+        final Map<PropertyDescriptor, String> properties = new HashMap<>();
+        properties.put(SchemaTextProperties.SCHEMA_TEXT, schemaText);
+        writerFactory.storeSchema(new MockConfigurationContext(properties, null));
+
+        final List<RecordField> fields = new ArrayList<>();
+        fields.add(new RecordField("id", RecordFieldType.INT.getDataType()));
+        fields.add(new RecordField("name", RecordFieldType.STRING.getDataType()));
+        fields.add(new RecordField("color", RecordFieldType.STRING.getDataType()));
+        final RecordSchema schema = new SimpleRecordSchema(fields);
+
+        // enough records that the Data File consists of several blocks, so that the reused Avro record is refilled across blocks
+        final int recordCount = 5000;
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (final RecordSetWriter writer = writerFactory.createWriter(null, schema, null, baos)) {
+            writer.beginRecordSet();
+            for (int i = 0; i < recordCount; i++) {
+                final Map<String, Object> values = new HashMap<>();
+                values.put("id", i);
+                values.put("name", i % 2 == 0 ? "name-" + i : null);
+                values.put("color", i % 3 == 0 ? "RED" : "GREEN");
+                writer.write(new SimpleRecord(schema, values));
+            }
+            assertEquals(recordCount, writer.finishRecordSet().getRecordCount());
+        }
+
+        try (final RecordReader reader = new AvroReader().createRecordReader(null, new ByteArrayInputStream(baos.toByteArray()), null)) {
+            assertEquals(RecordFieldType.LONG, reader.getSchema().getField("id").get().getDataType().getFieldType());
+
+            for (int i = 0; i < recordCount; i++) {
+                final Record record = reader.nextRecord();
+                assertEquals(Long.valueOf(i), record.getValue("id"));
+                assertEquals(i % 2 == 0 ? "name-" + i : null, record.getValue("name"));
+                assertEquals(i % 3 == 0 ? "RED" : "GREEN", record.getValue("color"));
+            }
+
+            assertNull(reader.nextRecord());
+        }
+    }
+
+    @Test(expected = MalformedRecordException.class)
+    public void testNotAvro() throws IOException, MalformedRecordException {
+        new AvroRecordReader(new ByteArrayInputStream("not avro".getBytes(StandardCharsets.UTF_8)));
+    }
+}
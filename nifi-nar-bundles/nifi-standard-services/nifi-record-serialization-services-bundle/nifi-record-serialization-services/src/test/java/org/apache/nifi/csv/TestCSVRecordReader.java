@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.nifi.serialization.MalformedRecordException;
+import org.apache.nifi.serialization.RecordSetWriter;
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.WriteResult;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.serialization.record.RecordSchema;
+import org.junit.Test;
+
+public class TestCSVRecordReader {
+
+    private CSVRecordReader createReader(final String csv, final RecordSchema schema, final boolean header) throws IOException, MalformedRecordException {
+        return new CSVRecordReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), schema, ',', '"', header);
+    }
+
+    private RecordSchema createSchema() {
+        final List<RecordField> fields = new ArrayList<>();
+        fields.add(new RecordField("id", RecordFieldType.INT.getDataType()));
+        fields.add(new RecordField("name", RecordFieldType.STRING.getDataType()));
+        fields.add(new RecordField("balance", RecordFieldType.DOUBLE.getDataType()));
+        return new SimpleRecordSchema(fields);
+    }
+
+    @Test
+    public void testHeaderDefinesSchema() throws IOException, MalformedRecordException {
+        final String csv = "id,name,comment\r\n1,John,\"Says \"\"hi\"\", then\r\nleaves\"\r\n\r\n2,Jane,\n";
+
+        try (final CSVRecordReader reader = createReader(csv, null, true)) {
+            assertEquals(Arrays.asList("id", "name", "comment"), reader.getSchema().getFieldNames());
+
+            final Record first = reader.nextRecord();
+            assertEquals("1", first.getAsString("id"));
+            assertEquals("John", first.getAsString("name"));
+            assertEquals("Says \"hi\", then\r\nleaves", first.getAsString("comment"));
+
+            final Record second = reader.nextRecord();
+            assertEquals("2", second.getAsString("id"));
+            assertEquals("Jane", second.getAsString("name"));
+            assertEquals("", second.getAsString("comment"));
+
+            assertNull(reader.nextRecord());
+        }
+    }
+
+    @Test
+    public void testHeaderMatchedToSchemaByName() throws IOException, MalformedRecordException {
+        final String csv = "balance,unknown,id\n4.5,x,1\n,y,2";
+
+        try (final CSVRecordReader reader = createReader(csv, createSchema(), true)) {
+            final Record first = reader.nextRecord();
+            assertEquals(Integer.valueOf(1), first.getAsInt("id"));
+            assertNull(first.getValue("name"));
+            assertEquals(Double.valueOf(4.5D), first.getAsDouble("balance"));
+
+            final Record second = reader.nextRecord();
+            assertEquals(Integer.valueOf(2), second.getAsInt("id"));
+            assertNull(second.getValue("balance"));
+
+            assertNull(reader.nextRecord());
+        }
+    }
+
+    @Test
+    public void testNoHeaderMatchedByPosition() throws IOException, MalformedRecordException {
+        try (final CSVRecordReader reader = createReader("1,John,4.5", createSchema(), false)) {
+            final Record record = reader.nextRecord();
+            assertEquals(Integer.valueOf(1), record.getAsInt("id"));
+            assertEquals("John", record.getAsString("name"));
+            assertEquals(Double.valueOf(4.5D), record.getAsDouble("balance"));
+            assertNull(reader.nextRecord());
+        }
+    }
+
+    @Test(expected = MalformedRecordException.class)
+    public void testInvalidValue() throws IOException, MalformedRecordException {
+        try (final CSVRecordReader reader = createReader("id,name,balance\nabc,John,4.5", createSchema(), true)) {
+            reader.nextRecord();
+        }
+    }
+
+    @Test(expected = MalformedRecordException.class)
+    public void testUnterminatedQuote() throws IOException, MalformedRecordException {
+        try (final CSVRecordReader reader = createReader("id,name\n1,\"John", null, true)) {
+            reader.nextRecord();
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, MalformedRecordException {
+        final String csv = "id,name,balance\n1,\"Doe, John\",4.5\n2,\"Says \"\"hi\"\"\",\n";
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (final CSVRecordReader reader = createReader(csv, createSchema(), true);
+            final RecordSetWriter writer = new WriteCSVResult(reader.getSchema(), baos, ',', '"', true)) {
+
+            final WriteResult result = writer.write(reader.createRecordSet());
+            assertEquals(2, result.getRecordCount());
+        }
+
+        assertEquals(csv, new String(baos.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.nifi.serialization.MalformedRecordException;
+import org.apache.nifi.serialization.RecordSetWriter;
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.WriteResult;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.serialization.record.RecordSchema;
+import org.junit.Test;
+
+public class TestJsonRecordReader {
+
+    private JsonRecordReader createReader(final String json, final RecordSchema schema) throws IOException, MalformedRecordException {
+        return new JsonRecordReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), schema);
+    }
+
+    @Test
+    public void testReadArrayInfersSchema() throws IOException, MalformedRecordException {
+        final String json = "[{\"id\": 1, \"name\": \"John\", \"balance\": 4.5, \"address\": {\"city\": \"Boston\"}, \"tags\": [\"a\", \"b\"]},"
+            + "{\"id\": 2, \"name\": null, \"balance\": 10, \"address\": {\"city\": \"Austin\"}, \"tags\": []}]";
+
+        try (final JsonRecordReader reader = createReader(json, null)) {
+            final RecordSchema schema = reader.getSchema();
+            assertEquals(Arrays.asList("id", "name", "balance", "address", "tags"), schema.getFieldNames());
+            assertEquals(RecordFieldType.LONG, schema.getField(0).getDataType().getFieldType());
+            assertEquals(RecordFieldType.STRING, schema.getField(1).getDataType().getFieldType());
+            assertEquals(RecordFieldType.DOUBLE, schema.getField(2).getDataType().getFieldType());
+            assertEquals(RecordFieldType.RECORD, schema.getField(3).getDataType().getFieldType());
+            assertEquals(RecordFieldType.ARRAY, schema.getField(4).getDataType().getFieldType());
+
+            final Record first = reader.nextRecord();
+            assertEquals(Long.valueOf(1L), first.getAsLong("id"));
+            assertEquals("John", first.getAsString("name"));
+            assertEquals(Double.valueOf(4.5D), first.getAsDouble("balance"));
+            assertEquals("Boston", first.getAsRecord("address").getAsString("city"));
+            assertArrayEquals(new Object[] {"a", "b"}, first.getAsArray("tags"));
+
+            final Record second = reader.nextRecord();
+            assertEquals(Long.valueOf(2L), second.getAsLong("id"));
+            assertNull(second.getValue("name"));
+            assertEquals(Double.valueOf(10D), second.getAsDouble("balance"));
+            assertEquals(0, second.getAsArray("tags").length);
+
+            assertNull(reader.nextRecord());
+        }
+    }
+
+    @Test
+    public void testReadConcatenatedObjectsWithSchema() throws IOException, MalformedRecordException {
+        final List<RecordField> fields = new ArrayList<>();
+        fields.add(new RecordField("id", RecordFieldType.INT.getDataType()));
+        fields.add(new RecordField("active", RecordFieldType.BOOLEAN.getDataType()));
+        fields.add(new RecordField("missing", RecordFieldType.STRING.getDataType()));
+        final RecordSchema schema = new SimpleRecordSchema(fields);
+
+        final String json = "{\"id\": \"1\", \"active\": true, \"ignored\": 4}\n{\"id\": 2, \"active\": \"false\"}";
+        try (final JsonRecordReader reader = createReader(json, schema)) {
+            final Record first = reader.nextRecord();
+            assertEquals(Integer.valueOf(1), first.getAsInt("id"));
+            assertEquals(Boolean.TRUE, first.getAsBoolean("active"));
+            assertNull(first.getValue("missing"));
+
+            final Record second = reader.nextRecord();
+            assertEquals(Integer.valueOf(2), second.getAsInt("id"));
+            assertEquals(Boolean.FALSE, second.getAsBoolean("active"));
+
+            assertNull(reader.nextRecord());
+        }
+    }
+
+    @Test
+    public void testEmptyArray() throws IOException, MalformedRecordException {
+        try (final JsonRecordReader reader = createReader("[]", null)) {
+            assertEquals(0, reader.getSchema().getFieldCount());
+            assertNull(reader.nextRecord());
+        }
+    }
+
+    @Test(expected = MalformedRecordException.class)
+    public void testNotJsonObjects() throws IOException, MalformedRecordException {
+        createReader("[1, 2, 3]", null);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException, MalformedRecordException {
+        final String json = "[{\"id\":1,\"name\":\"John \\\"Doe\\\"\",\"address\":{\"city\":\"Boston\"},\"tags\":[\"a\",\"b\"]},"
+            + "{\"id\":2,\"name\":null,\"address\":null,\"tags\":[]}]";
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (final JsonRecordReader reader = createReader(json, null);
+            final RecordSetWriter writer = new WriteJsonResult(baos, false)) {
+
+            final WriteResult result = writer.write(reader.createRecordSet());
+            assertEquals(2, result.getRecordCount());
+        }
+
+        assertEquals(json, new String(baos.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.json.JsonRecordReader;
+import org.apache.nifi.json.WriteJsonResult;
+import org.apache.nifi.processor.AbstractProcessor;
+import org.apache.nifi.processor.ProcessContext;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.processor.Relationship;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.util.MockProcessSession;
+import org.apache.nifi.util.SharedSessionState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares transforming every record of a JSON FlowFile by first splitting it into one FlowFile per record, as is done
+ * with SplitJson or SplitText today, against streaming the records of the FlowFile through a RecordReader and a
+ * RecordSetWriter. Both approaches use the same reader and writer implementations so that the difference is the cost
+ * of creating, writing, reading and transferring a FlowFile per record. This is not run as part of the build; to run it,
+ * build the test classes with the 'benchmarks' profile enabled and execute the main method from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordProcessingBenchmark {
+
+    @Param({"1000", "10000"})
+    private int recordCount;
+
+    private byte[] content;
+    private final NopProcessor processor = new NopProcessor();
+
+    @Setup
+    public void setup() {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < recordCount; i++) {
+            if (i > 0) {
+                sb.append(",\n");
+            }
+            sb.append("{\"id\": ").append(i)
+                .append(", \"name\": \"User ").append(i)
+                .append("\", \"balance\": ").append(i * 1.5D)
+                .append(", \"address\": {\"street\": \"").append(i).append(" Main Street\", \"city\": \"Springfield\"}}");
+        }
+        sb.append("]");
+        content = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private MockProcessSession createSession() {
+        return new MockProcessSession(new SharedSessionState(processor, new AtomicLong(0L)), processor);
+    }
+
+    private static int transform(final InputStream in, final OutputStream out) throws IOException {
+        try (final RecordReader reader = new JsonRecordReader(in, null);
+            final RecordSetWriter writer = new WriteJsonResult(out, false)) {
+            return writer.write(reader.createRecordSet()).getRecordCount();
+        } catch (final MalformedRecordException mre) {
+            throw new IOException(mre);
+        }
+    }
+
+    @Benchmark
+    public int splitThenProcess() {
+        final MockProcessSession session = createSession();
+        final FlowFile original = session.write(session.create(), out -> out.write(content));
+
+        // Split the content into one FlowFile per record
+        final List<FlowFile> splits = new ArrayList<>(recordCount);
+        session.read(original, in -> {
+            try (final RecordReader reader = new JsonRecordReader(in, null)) {
+                Record record;
+                while ((record = reader.nextRecord()) != null) {
+                    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    try (final RecordSetWriter writer = new WriteJsonResult(baos, false)) {
+                        writer.beginRecordSet();
+                        writer.write(record);
+                        writer.finishRecordSet();
+                    }
+
+                    FlowFile split = session.create(original);
+                    split = session.write(split, out -> baos.writeTo(out));
+                    splits.add(split);
+                }
+            } catch (final MalformedRecordException mre) {
+                throw new IOException(mre);
+            }
+        });
+        session.remove(original);
+
+        // Process each split individually
+        int processed = 0;
+        for (final FlowFile split : splits) {
+            final FlowFile transformed = session.write(split, (in, out) -> transform(in, out));
+            session.transfer(transformed, NopProcessor.REL_SUCCESS);
+            processed++;
+        }
+
+        session.commit();
+        return processed;
+    }
+
+    @Benchmark
+    public int recordStreaming() {
+        final MockProcessSession session = createSession();
+        FlowFile flowFile = session.create();
+        flowFile = session.write(flowFile, out -> out.write(content));
+
+        final int[] processed = new int[1];
+        flowFile = session.write(flowFile, (in, out) -> processed[0] = transform(in, out));
+        session.transfer(flowFile, NopProcessor.REL_SUCCESS);
+
+        session.commit();
+        return processed[0];
+    }
+
+    private static class NopProcessor extends AbstractProcessor {
+        static final Relationship REL_SUCCESS = new Relationship.Builder().name("success").build();
+
+        @Override
+        public Set<Relationship> getRelationships() {
+            return Collections.singleton(REL_SUCCESS);
+        }
+
+        @Override
+        public void onTrigger(final ProcessContext context, final ProcessSession session) {
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+            .include(RecordProcessingBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+}